@@ -6,8 +6,11 @@ package com.emc.storageos.api.service.authorization;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.emc.storageos.db.client.model.*;
 import com.emc.storageos.db.common.VdcUtil;
@@ -16,6 +19,7 @@ import org.springframework.util.CollectionUtils;
 
 import com.emc.storageos.api.service.impl.resource.ArgValidator;
 import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.util.NullColumnValueGetter;
 import com.emc.storageos.db.exceptions.DatabaseException;
 import com.emc.storageos.model.auth.ACLAssignmentChanges;
 import com.emc.storageos.model.auth.ACLEntry;
@@ -48,6 +52,49 @@ public class PermissionsHelper extends BasePermissionsHelper {
         super(dbClient);
     }
 
+    /**
+     * Loads the tenants, projects and hosts the given objects belong to, which are
+     * what the resource filters check the user's roles and acls on, with one query
+     * per type and caches them for the rest of the request.
+     * 
+     * @param objects the objects about to be filtered
+     * @param decidedIds ids of the parents the caller already knows the user's access to
+     */
+    public void prefetchParents(Collection<? extends DataObject> objects, Set<URI> decidedIds) {
+        Set<URI> tenantIds = new HashSet<URI>();
+        Set<URI> projectIds = new HashSet<URI>();
+        Set<URI> hostIds = new HashSet<URI>();
+        for (DataObject object : objects) {
+            if (object instanceof ProjectResource) {
+                addParentId(tenantIds, ((ProjectResource) object).getTenant(), decidedIds);
+                addParentId(projectIds, ((ProjectResource) object).getProject(), decidedIds);
+            } else if (object instanceof ProjectResourceSnapshot) {
+                addParentId(projectIds, ((ProjectResourceSnapshot) object).getProject(), decidedIds);
+            } else if (object instanceof TenantResource) {
+                addParentId(tenantIds, ((TenantResource) object).getTenant(), decidedIds);
+            } else if (object instanceof Task) {
+                addParentId(tenantIds, ((Task) object).getTenant(), decidedIds);
+            } else if (object instanceof HostInterface) {
+                addParentId(hostIds, ((HostInterface) object).getHost(), decidedIds);
+            }
+        }
+        prefetchObjects(tenantIds, TenantOrg.class);
+        prefetchObjects(projectIds, Project.class);
+        prefetchObjects(hostIds, Host.class);
+    }
+
+    private void addParentId(Set<URI> parentIds, NamedURI parent, Set<URI> decidedIds) {
+        if (parent != null) {
+            addParentId(parentIds, parent.getURI(), decidedIds);
+        }
+    }
+
+    private void addParentId(Set<URI> parentIds, URI parentId, Set<URI> decidedIds) {
+        if (!NullColumnValueGetter.isNullURI(parentId) && !decidedIds.contains(parentId)) {
+            parentIds.add(parentId);
+        }
+    }
+
     /**
      * Converts StringSetMap of permissions into a list of assignment entries as used by the API
      * 
@@ -463,7 +463,7 @@ public class ClusterService extends TaskResourceService {
         public boolean isAccessible(E resrep) {
             boolean ret = false;
             URI id = resrep.getId();
-            Cluster obj = _permissionsHelper.getObjectById(id, Cluster.class);
+            Cluster obj = getObjectById(id, Cluster.class);
             if (obj == null) {
                 return false;
             }
@@ -1824,7 +1824,7 @@ public class ComputeVirtualPoolService extends TaggedResource {
         @Override
         public boolean isAccessible(E resrep) {
             URI id = resrep.getId();
-            ComputeVirtualPool resource = _permissionsHelper.getObjectById(id, ComputeVirtualPool.class);
+            ComputeVirtualPool resource = getObjectById(id, ComputeVirtualPool.class);
             if (resource == null) {
                 return false;
             }
@@ -1306,7 +1306,7 @@ public class HostService extends TaskResourceService {
             boolean ret = false;
             URI id = resrep.getId();
 
-            Host obj = _permissionsHelper.getObjectById(id, Host.class);
+            Host obj = getObjectById(id, Host.class);
             if (obj == null) {
                 return false;
             }
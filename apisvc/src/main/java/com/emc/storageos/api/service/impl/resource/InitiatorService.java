@@ -449,12 +449,12 @@ public class InitiatorService extends TaskResourceService {
             boolean ret = false;
             URI id = resrep.getId();
 
-            Initiator ini = _permissionsHelper.getObjectById(id, Initiator.class);
+            Initiator ini = getObjectById(id, Initiator.class);
             if (ini == null || ini.getHost() == null) {
                 return false;
             }
 
-            Host obj = _permissionsHelper.getObjectById(ini.getHost(), Host.class);
+            Host obj = getObjectById(ini.getHost(), Host.class);
             if (obj == null) {
                 return false;
             }
@@ -306,12 +306,12 @@ public class IpInterfaceService extends TaskResourceService {
             boolean ret = false;
             URI id = resrep.getId();
 
-            IpInterface ipif = _permissionsHelper.getObjectById(id, IpInterface.class);
+            IpInterface ipif = getObjectById(id, IpInterface.class);
             if (ipif == null || ipif.getHost() == null) {
                 return false;
             }
 
-            Host obj = _permissionsHelper.getObjectById(ipif.getHost(), Host.class);
+            Host obj = getObjectById(ipif.getHost(), Host.class);
             if (obj == null) {
                 return false;
             }
@@ -854,7 +854,7 @@ public class ProjectService extends TaggedResource {
         public boolean isAccessible(E resrep) {
             boolean ret = false;
             URI id = resrep.getId();
-            Project project = _permissionsHelper.getObjectById(id, Project.class);
+            Project project = getObjectById(id, Project.class);
             if (project == null) {
                 return false;
             }
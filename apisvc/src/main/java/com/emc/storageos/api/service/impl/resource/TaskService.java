@@ -5,6 +5,8 @@
 package com.emc.storageos.api.service.impl.resource;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -17,6 +19,13 @@ import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -29,6 +38,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +48,7 @@ import com.emc.storageos.api.service.authorization.PermissionsHelper;
 import com.emc.storageos.api.service.impl.response.BulkList;
 import com.emc.storageos.api.service.impl.response.ResRepFilter;
 import com.emc.storageos.api.service.impl.response.RestLinkFactory;
+import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.TimestampedURIQueryResult;
 import com.emc.storageos.db.client.constraint.AggregatedConstraint;
 import com.emc.storageos.db.client.constraint.AggregationQueryResultList;
@@ -70,6 +81,7 @@ import com.emc.storageos.security.authorization.CheckPermission;
 import com.emc.storageos.security.authorization.DefaultPermissions;
 import com.emc.storageos.security.authorization.Role;
 import com.emc.storageos.services.OperationTypeEnum;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
 import com.emc.storageos.services.util.TimeUtils;
 import com.emc.storageos.svcs.errorhandling.resources.APIException;
 import com.emc.storageos.workflow.WorkflowController;
@@ -83,7 +95,6 @@ import com.google.common.collect.Sets;
 public class TaskService extends TaggedResource {
     private static Logger log = LoggerFactory.getLogger(TaskService.class.getName());
     private static final URI SYSTEM_TENANT = URI.create("system");
-    private static final Integer FETCH_ALL = -1;
 
     private static final String TENANT_QUERY_PARAM = "tenant";
     private static final String RESOURCE_QUERY_PARAM = "resource";
@@ -91,7 +102,17 @@ public class TaskService extends TaggedResource {
     private static final String START_TIME = "startTime";
     private static final String END_TIME = "endTime";
     private static final String STATE_PARAM = "state";
+    private static final String CONTINUATION_TOKEN_PARAM = "continuation_token";
     private static final int MAX_TASK_NUM_IN_MEM = 10000;
+    // Age of the task stats after which they are reloaded, see getStats
+    private static final long STATS_EXPIRY_MILLIS = 10 * 1000L;
+
+    // Per tenant task status counts, shared by all requests
+    private final ConcurrentMap<URI, TenantTaskStats> tenantTaskStats = new ConcurrentHashMap<>();
+
+    // Reloads the task stats of the tenants off the request threads, the thread exits when idle
+    private final ExecutorService taskStatsLoader = new NamedThreadPoolExecutor(TaskService.class.getSimpleName() + "Stats",
+            0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 
     /**
      * Returns information about the specified task.
@@ -139,6 +160,9 @@ public class TaskService extends TaggedResource {
 
     /**
      * Returns task status count information for the specified Tenant.
+     * The counts are read from the task index on the first request for a tenant, then cached: once they are more
+     * than 10 seconds old, a request returns them and triggers a reload in the background, so counts may lag task
+     * status changes by the reload time plus 10 seconds.
      *
      * @brief Task Status count
      * @param tenantId
@@ -158,23 +182,10 @@ public class TaskService extends TaggedResource {
         int error = 0;
         int pending = 0;
         for (URI normalizedTenantId : tenantIds) {
-            Constraint constraint = AggregatedConstraint.Factory.getAggregationConstraint(Task.class, "tenant",
-                    normalizedTenantId.toString(), "taskStatus");
-            AggregationQueryResultList queryResults = new AggregationQueryResultList();
-
-            _dbClient.queryByConstraint(constraint, queryResults);
-
-            Iterator<AggregationQueryResultList.AggregatedEntry> it = queryResults.iterator();
-            while (it.hasNext()) {
-                AggregationQueryResultList.AggregatedEntry entry = it.next();
-                if (entry.getValue().equals(Task.Status.ready.name())) {
-                    ready++;
-                } else if (entry.getValue().equals(Task.Status.error.name())) {
-                    error++;
-                } else {
-                    pending++;
-                }
-            }
+            int[] counts = getTenantTaskStats(normalizedTenantId).getCounts(_dbClient, taskStatsLoader);
+            pending += counts[TenantTaskStats.PENDING];
+            ready += counts[TenantTaskStats.READY];
+            error += counts[TenantTaskStats.ERROR];
         }
 
         return new TaskStatsRestRep(pending, ready, error);
@@ -188,19 +199,31 @@ public class TaskService extends TaggedResource {
      *            Tenant URI of the tenant the count is required for. If not supplied, the logged in users tenant will
      *            be used.
      *            A value of 'system' will provide a list of all the system tasks
-     * @return A list of tasks for the tenant
+     * @param max_count
+     *            Maximum number of tasks to return. If not supplied, all the tasks are returned, unless a continuation
+     *            token is supplied
+     * @param continuationToken
+     *            Pages the tasks when supplied: empty for the first page, otherwise the token returned with the
+     *            previous page to retrieve the next one. Pages hold at most max_count tasks, and at most 10000
+     * @return A list of tasks for the tenant, with a continuation token when paged and there are more tasks
      */
     @GET
     @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
     public TasksList getTasks(@QueryParam(TENANT_QUERY_PARAM) URI tenantId,
             @QueryParam(START_TIME) String startTime,
             @QueryParam(END_TIME) String endTime,
-            @QueryParam(MAX_COUNT_PARAM) Integer max_count) {
+            @QueryParam(MAX_COUNT_PARAM) Integer max_count,
+            @QueryParam(CONTINUATION_TOKEN_PARAM) String continuationToken) {
 
         Set<URI> tenantIds = getTenantsFromRequest(tenantId);
         verifyUserHasAccessToTenants(tenantIds);
 
-        if (max_count == null || max_count < 0 || max_count > MAX_TASK_NUM_IN_MEM) {
+        if (continuationToken != null) {
+            int pageSize = (max_count == null || max_count <= 0 || max_count > MAX_TASK_NUM_IN_MEM) ? MAX_TASK_NUM_IN_MEM
+                    : max_count;
+            TaskPosition after = continuationToken.isEmpty() ? null : TaskPosition.fromToken(continuationToken);
+            return getTaskPage(tenantIds, startTime, endTime, pageSize, after);
+        } else if (max_count == null || max_count < 0 || max_count > MAX_TASK_NUM_IN_MEM) {
             return getAllTasks(tenantIds, startTime, endTime, max_count);
         } else {
             return getLatestTasks(tenantIds, startTime, endTime, max_count);
@@ -262,31 +285,28 @@ public class TaskService extends TaggedResource {
         return new TasksList(resourceReps);
     }    
 
-    private class TaskComparator implements Comparator<TimestampedURIQueryResult.TimestampedURI> {
+    /**
+     * Orders index entries with the most recent first, entries with the same timestamp by task id
+     */
+    private static final Comparator<TimestampedURIQueryResult.TimestampedURI> NEWEST_FIRST = new Comparator<TimestampedURIQueryResult.TimestampedURI>() {
         @Override
-        /**
-         * Task with later timestamp ahead
-         */
         public int compare(TimestampedURIQueryResult.TimestampedURI obj1, TimestampedURIQueryResult.TimestampedURI obj2) {
-            if (Objects.equals(obj1.getTimestamp(), obj2.getTimestamp())) {
-                return 1; // If timestamps are equal don't return 0 or TreeSet will remove one of them
-            } else {
-                return obj2.getTimestamp().compareTo(obj1.getTimestamp());
+            int result = Long.compare(obj2.getTimestamp(), obj1.getTimestamp());
+            if (result != 0) {
+                return result;
             }
+            return obj1.getUri().toString().compareTo(obj2.getUri().toString());
         }
-    }
+    };
 
-    // Original method to return task list. Will be used when max_count is either NOT specified or set but > max limit like 10K.
-    // This could cause out of memory issue
+    // Original method to return task list. Will be used when max_count is either NOT specified or set but > max limit like 10K,
+    // and the caller does not page with continuation tokens. This could cause out of memory issue
     private TasksList getAllTasks(Set<URI> tenantIds, String startTime, String endTime, Integer maxCount) {
-        // Entries from the index, sorted with most recent first
-        Set<TimestampedURIQueryResult.TimestampedURI> sortedIndexEntries = Sets.newTreeSet(new TaskComparator());
+        List<TimestampedURIQueryResult.TimestampedURI> indexEntries = Lists.newArrayList();
 
         Date startWindowDate = TimeUtils.getDateTimestamp(startTime);
         Date endWindowDate = TimeUtils.getDateTimestamp(endTime);
 
-        // Fetch index entries and load into sorted set
-        List<NamedRelatedResourceRep> resourceReps = Lists.newArrayList();
         for (URI normalizedTenantId : tenantIds) {
             TimestampedURIQueryResult taskIds = new TimestampedURIQueryResult();
             _dbClient.queryByConstraint(
@@ -295,30 +315,141 @@ public class TaskService extends TaggedResource {
 
             Iterator<TimestampedURIQueryResult.TimestampedURI> it = taskIds.iterator();
             while (it.hasNext()) {
-                TimestampedURIQueryResult.TimestampedURI timestampedURI = it.next();
-                sortedIndexEntries.add(timestampedURI);
+                indexEntries.add(it.next());
             }
         }
+        Collections.sort(indexEntries, NEWEST_FIRST);
 
-        if (maxCount == null || maxCount < 0) {
-            maxCount = FETCH_ALL;
-        } else {
-            maxCount = Math.min(maxCount, sortedIndexEntries.size());
+        int count = indexEntries.size();
+        if (maxCount != null && maxCount >= 0) {
+            count = Math.min(maxCount, count);
         }
 
         // Produce the requested number of results
-        Iterator<TimestampedURIQueryResult.TimestampedURI> it = sortedIndexEntries.iterator();
-        int pos = 0;
-        while (it.hasNext() && (maxCount == FETCH_ALL || pos < maxCount)) {
-            TimestampedURIQueryResult.TimestampedURI uri = it.next();
+        List<NamedRelatedResourceRep> resourceReps = Lists.newArrayListWithCapacity(count);
+        for (TimestampedURIQueryResult.TimestampedURI uri : indexEntries.subList(0, count)) {
+            RestLinkRep link = new RestLinkRep("self", RestLinkFactory.newLink(ResourceTypeEnum.TASK, uri.getUri()));
+            resourceReps.add(new NamedRelatedResourceRep(uri.getUri(), link, uri.getName()));
+        }
+
+        return new TasksList(resourceReps);
+    }
+
+    /**
+     * Returns one page of tasks, most recent first, that follow the given position. The index entries of all the
+     * tenants are streamed through a heap bounded by the page size, so memory does not grow with the number of tasks.
+     * The index is ordered by task id rather than time, so each page reads the index entries of the window; the window
+     * of the next pages ends at the position of the previous page, so that newer entries are filtered out as they are
+     * read instead of going through the heap.
+     *
+     * @param after position of the last task of the previous page, null for the first page
+     */
+    private TasksList getTaskPage(Set<URI> tenantIds, String startTime, String endTime, int pageSize, TaskPosition after) {
+        // Keeps the pageSize + 1 entries that come first, the one that comes last on top
+        PriorityQueue<TimestampedURIQueryResult.TimestampedURI> taskHeap = new PriorityQueue<>(pageSize + 1,
+                Collections.reverseOrder(NEWEST_FIRST));
+
+        Date startWindowDate = TimeUtils.getDateTimestamp(startTime);
+        Date endWindowDate = TimeUtils.getDateTimestamp(endTime);
+        if (after != null) {
+            // index timestamps are in microseconds, the window is in milliseconds and includes its end
+            Date positionDate = new Date(TimeUnit.MICROSECONDS.toMillis(after.timestamp) + 1);
+            if (endWindowDate == null || positionDate.before(endWindowDate)) {
+                endWindowDate = positionDate;
+            }
+        }
+
+        int taskCount = 0;
+        for (URI normalizedTenantId : tenantIds) {
+            TimestampedURIQueryResult taskIds = new TimestampedURIQueryResult();
+            _dbClient.queryByConstraint(
+                    ContainmentConstraint.Factory.getTimedTenantOrgTaskConstraint(normalizedTenantId, startWindowDate, endWindowDate),
+                    taskIds);
+
+            Iterator<TimestampedURIQueryResult.TimestampedURI> it = taskIds.iterator();
+            while (it.hasNext()) {
+                TimestampedURIQueryResult.TimestampedURI timestampedURI = it.next();
+                if (after != null && !after.isBefore(timestampedURI)) {
+                    continue;
+                }
+                taskCount++;
+                if (taskHeap.size() <= pageSize) {
+                    taskHeap.add(timestampedURI);
+                } else if (NEWEST_FIRST.compare(timestampedURI, taskHeap.peek()) < 0) {
+                    taskHeap.poll();
+                    taskHeap.add(timestampedURI);
+                }
+            }
+        }
+
+        // The extra entry only tells whether there is another page
+        boolean hasMore = taskHeap.size() > pageSize;
+        if (hasMore) {
+            taskHeap.poll();
+        }
+        log.debug("The number of tasks of all tenants is {}, page size is {}", taskCount, taskHeap.size());
+
+        TimestampedURIQueryResult.TimestampedURI[] page = taskHeap.toArray(
+                new TimestampedURIQueryResult.TimestampedURI[taskHeap.size()]);
+        Arrays.sort(page, NEWEST_FIRST);
 
+        List<NamedRelatedResourceRep> resourceReps = Lists.newArrayListWithCapacity(page.length);
+        for (TimestampedURIQueryResult.TimestampedURI uri : page) {
             RestLinkRep link = new RestLinkRep("self", RestLinkFactory.newLink(ResourceTypeEnum.TASK, uri.getUri()));
             resourceReps.add(new NamedRelatedResourceRep(uri.getUri(), link, uri.getName()));
+        }
 
-            pos++;
+        String continuationToken = null;
+        if (hasMore && page.length > 0) {
+            continuationToken = new TaskPosition(page[page.length - 1]).toToken();
         }
+        return new TasksList(resourceReps, continuationToken);
+    }
 
-        return new TasksList(resourceReps);
+    /**
+     * Position of a task in the task listing, encoded in the continuation token
+     */
+    private static class TaskPosition {
+        private static final String SEPARATOR = ":";
+        private final long timestamp;
+        private final String uri;
+
+        TaskPosition(TimestampedURIQueryResult.TimestampedURI entry) {
+            this.timestamp = entry.getTimestamp();
+            this.uri = entry.getUri().toString();
+        }
+
+        private TaskPosition(long timestamp, String uri) {
+            this.timestamp = timestamp;
+            this.uri = uri;
+        }
+
+        /**
+         * @return true if the given index entry is listed after this position
+         */
+        boolean isBefore(TimestampedURIQueryResult.TimestampedURI entry) {
+            if (entry.getTimestamp() != timestamp) {
+                return entry.getTimestamp() < timestamp;
+            }
+            return entry.getUri().toString().compareTo(uri) > 0;
+        }
+
+        String toToken() {
+            return Base64.encodeBase64URLSafeString((timestamp + SEPARATOR + uri).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static TaskPosition fromToken(String token) {
+            try {
+                String decoded = new String(Base64.decodeBase64(token), StandardCharsets.UTF_8);
+                int index = decoded.indexOf(SEPARATOR);
+                if (index > 0 && index < decoded.length() - 1) {
+                    return new TaskPosition(Long.parseLong(decoded.substring(0, index)), decoded.substring(index + 1));
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Invalid continuation token {}", token, e);
+            }
+            throw APIException.badRequests.invalidParameter(CONTINUATION_TOKEN_PARAM, token);
+        }
     }
 
     /**
@@ -343,6 +474,7 @@ public class TaskService extends TaggedResource {
         }
 
         _dbClient.removeObject(task);
+        getTenantTaskStats(task.getTenant()).remove(task.getStatus());
         auditOp(OperationTypeEnum.DELETE_TASK, true, null, task.getId().toString(), task.getLabel());
 
         return Response.ok().build();
@@ -680,6 +812,111 @@ public class TaskService extends TaggedResource {
         return new TaskBulkRep(BulkList.wrapping(_dbIterator, MapTask.getInstance(), filter));
     }
 
+    private TenantTaskStats getTenantTaskStats(URI tenantId) {
+        TenantTaskStats stats = tenantTaskStats.get(tenantId);
+        if (stats == null) {
+            TenantTaskStats newStats = new TenantTaskStats(tenantId);
+            stats = tenantTaskStats.putIfAbsent(tenantId, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Task status counts of a tenant. Task status is written by the controller services through many code paths, so
+     * the counts can only be taken from the aggregated status index, which holds an entry per task. The index is read
+     * on the request thread only for the first request of a tenant. After that requests are answered from the counts
+     * in memory, and once they are older than STATS_EXPIRY_MILLIS a single reload is queued on the stats loader, which
+     * reads the index of one tenant at a time. Tasks deleted through this service are subtracted in place.
+     */
+    private static class TenantTaskStats {
+        static final int PENDING = 0;
+        static final int READY = 1;
+        static final int ERROR = 2;
+
+        private final URI tenantId;
+        private final int[] counts = new int[3];
+        private long loadedTime;
+        private boolean loaded;
+        private boolean reloading;
+
+        TenantTaskStats(URI tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        synchronized int[] getCounts(final DbClient dbClient, Executor loader) {
+            if (!loaded) {
+                System.arraycopy(load(dbClient), 0, counts, 0, counts.length);
+                loadedTime = System.currentTimeMillis();
+                loaded = true;
+            } else if (!reloading && System.currentTimeMillis() - loadedTime > STATS_EXPIRY_MILLIS) {
+                reloading = true;
+                try {
+                    loader.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            reload(dbClient);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    log.warn("Could not queue the reload of the task stats of tenant {}", tenantId, e);
+                    reloading = false;
+                }
+            }
+            return counts.clone();
+        }
+
+        synchronized void remove(String status) {
+            int index = indexOf(status);
+            if (loaded && counts[index] > 0) {
+                counts[index]--;
+            }
+        }
+
+        private void reload(DbClient dbClient) {
+            int[] newCounts = null;
+            try {
+                newCounts = load(dbClient);
+            } catch (Exception e) {
+                log.warn("Failed to reload the task stats of tenant {}", tenantId, e);
+            } finally {
+                synchronized (this) {
+                    if (newCounts != null) {
+                        System.arraycopy(newCounts, 0, counts, 0, counts.length);
+                        loadedTime = System.currentTimeMillis();
+                    }
+                    reloading = false;
+                }
+            }
+        }
+
+        private int[] load(DbClient dbClient) {
+            Constraint constraint = AggregatedConstraint.Factory.getAggregationConstraint(Task.class, "tenant",
+                    tenantId.toString(), "taskStatus");
+            AggregationQueryResultList queryResults = new AggregationQueryResultList();
+
+            dbClient.queryByConstraint(constraint, queryResults);
+
+            int[] newCounts = new int[counts.length];
+            Iterator<AggregationQueryResultList.AggregatedEntry> it = queryResults.iterator();
+            while (it.hasNext()) {
+                newCounts[indexOf(it.next().getValue())]++;
+            }
+            return newCounts;
+        }
+
+        private static int indexOf(Object status) {
+            if (Task.Status.ready.name().equals(status)) {
+                return READY;
+            } else if (Task.Status.error.name().equals(status)) {
+                return ERROR;
+            }
+            return PENDING;
+        }
+    }
+
     public static class TaskResRepFilter<E extends RelatedResourceRep> extends ResRepFilter<E> {
         public TaskResRepFilter(StorageOSUser user, PermissionsHelper permissionsHelper) {
             super(user, permissionsHelper);
@@ -687,7 +924,7 @@ public class TaskService extends TaggedResource {
 
         @Override
         public boolean isAccessible(E resourceRep) {
-            Task task = _permissionsHelper.getObjectById(resourceRep.getId(), Task.class);
+            Task task = getObjectById(resourceRep.getId(), Task.class);
             if (task == null) {
                 return false;
             }
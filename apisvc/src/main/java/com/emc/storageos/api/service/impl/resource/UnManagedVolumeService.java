@@ -128,6 +128,13 @@ public class UnManagedVolumeService extends TaskResourceService {
         this.ingestStrategyFactory = ingestStrategyFactory;
     }
 
+    // threads ingesting the storage system partitions of large unexported ingestion requests, 1 to disable
+    private int bulkIngestionThreads = 4;
+
+    public void setBulkIngestionThreads(int bulkIngestionThreads) {
+        this.bulkIngestionThreads = bulkIngestionThreads;
+    }
+
     @Override
     protected DataObject queryResource(URI id) {
         ArgValidator.checkUri(id);
@@ -273,7 +280,8 @@ public class UnManagedVolumeService extends TaskResourceService {
             }
 
             IngestVolumesUnexportedSchedulingThread.executeApiTask(
-                    _asyncTaskService.getExecutorService(), requestContext, ingestStrategyFactory, this, _dbClient, taskMap, taskList);
+                    _asyncTaskService.getExecutorService(), requestContext, ingestStrategyFactory, this, _dbClient, taskMap, taskList,
+                    bulkIngestionThreads);
 
         } catch (InternalException e) {
             throw e;
@@ -319,7 +319,7 @@ public class VcenterDataCenterService extends TaskResourceService {
             boolean ret = false;
             URI id = resrep.getId();
 
-            VcenterDataCenter obj = _permissionsHelper.getObjectById(id, VcenterDataCenter.class);
+            VcenterDataCenter obj = getObjectById(id, VcenterDataCenter.class);
             if (obj == null) {
                 return false;
             }
@@ -574,7 +574,7 @@ public class VcenterService extends TaskResourceService {
             boolean ret = false;
             URI id = resrep.getId();
 
-            Vcenter obj = _permissionsHelper.getObjectById(id, Vcenter.class);
+            Vcenter obj = getObjectById(id, Vcenter.class);
             if (obj == null) {
                 return false;
             }
@@ -1308,7 +1308,7 @@ public abstract class VirtualPoolService extends TaggedResource {
         @Override
         public boolean isAccessible(E resrep) {
             URI id = resrep.getId();
-            VirtualPool resource = _permissionsHelper.getObjectById(id, VirtualPool.class);
+            VirtualPool resource = getObjectById(id, VirtualPool.class);
             if (resource == null) {
                 return false;
             }
@@ -1394,7 +1394,7 @@ public abstract class VirtualPoolService extends TaggedResource {
         @Override
         public boolean isAccessible(E resrep) {
             URI id = resrep.getId();
-            VirtualPool resource = _permissionsHelper.getObjectById(id, VirtualPool.class);
+            VirtualPool resource = getObjectById(id, VirtualPool.class);
 
             if (resource.getType().equals(poolType.name())) {
                 return true;
@@ -4,8 +4,8 @@
  */
 package com.emc.storageos.api.service.impl.resource.blockingestorchestration;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,9 +41,9 @@ public class IngestStrategyFactory {
     
     private BlockIngestOrchestrator blockMirrorIngestOrchestrator;
 
-    private final Map<String, IngestStrategy> ingestStrategyMap;
+    private final ConcurrentMap<String, IngestStrategy> ingestStrategyMap;
     
-    private final Map<String, IngestExportStrategy> ingestExportStrategyMap;
+    private final ConcurrentMap<String, IngestExportStrategy> ingestExportStrategyMap;
 
     private DbClient _dbClient;
 
@@ -133,8 +133,9 @@ public class IngestStrategyFactory {
     }
 
     public IngestStrategyFactory() {
-        this.ingestStrategyMap = new HashMap<String, IngestStrategy>();
-        this.ingestExportStrategyMap = new HashMap<String, IngestExportStrategy>();
+        // strategies are looked up concurrently by the parallel ingestion partitions
+        this.ingestStrategyMap = new ConcurrentHashMap<String, IngestStrategy>();
+        this.ingestExportStrategyMap = new ConcurrentHashMap<String, IngestExportStrategy>();
     }
 
     public enum ReplicationStrategy {
@@ -344,13 +345,17 @@ public class IngestStrategyFactory {
         String strategyKey = replicationStrategy + "_" + volumeType;
         _logger.info("strategy key is " + strategyKey);
 
-        if (null == ingestStrategyMap.get(strategyKey)) {
-            IngestStrategy strategy = getIngestStrategy(IngestStrategyEnum.getIngestStrategy(strategyKey));
+        IngestStrategy strategy = ingestStrategyMap.get(strategyKey);
+        if (null == strategy) {
+            strategy = getIngestStrategy(IngestStrategyEnum.getIngestStrategy(strategyKey));
             _logger.debug("ingest strategy map does not contain key, adding " + strategyKey + " for " + strategy);
-            ingestStrategyMap.put(strategyKey, strategy);
+            IngestStrategy existing = ingestStrategyMap.putIfAbsent(strategyKey, strategy);
+            if (null != existing) {
+                strategy = existing;
+            }
         }
 
-        return ingestStrategyMap.get(strategyKey);
+        return strategy;
     }
     
     public IngestExportStrategy buildIngestExportStrategy(UnManagedVolume unManagedVolume) {
@@ -368,13 +373,17 @@ public class IngestStrategyFactory {
         }
         _logger.info("export strategy is " + exportStrategy.name());
         
-        if (null == ingestExportStrategyMap.get(exportStrategy.name())) {
-            IngestExportStrategy strategy = getIngestExportStrategy(exportStrategy);
+        IngestExportStrategy strategy = ingestExportStrategyMap.get(exportStrategy.name());
+        if (null == strategy) {
+            strategy = getIngestExportStrategy(exportStrategy);
             _logger.info("ingest strategy map does not contain key, adding " + exportStrategy + " for " + strategy);
-            ingestExportStrategyMap.put(exportStrategy.name(), strategy);
+            IngestExportStrategy existing = ingestExportStrategyMap.putIfAbsent(exportStrategy.name(), strategy);
+            if (null != existing) {
+                strategy = existing;
+            }
         }
         
-        return ingestExportStrategyMap.get(exportStrategy.name());
+        return strategy;
     }
 
 }
@@ -6,10 +6,17 @@ package com.emc.storageos.api.service.impl.resource.blockingestorchestration;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,9 +35,19 @@ import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVol
 import com.emc.storageos.db.client.util.ExceptionUtils;
 import com.emc.storageos.model.TaskList;
 import com.emc.storageos.model.TaskResourceRep;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
 import com.emc.storageos.svcs.errorhandling.resources.APIException;
 import com.emc.storageos.svcs.errorhandling.resources.InternalException;
 
+/**
+ * Ingests the UnManagedVolumes of an unexported ingestion request, then persists the objects created and
+ * updated by all the volumes in batches.
+ *
+ * With more than one ingestion thread, requests of at least BULK_INGESTION_MIN_VOLUMES volumes are ingested
+ * in bulk: the request is partitioned by storage system and the partitions are validated and ingested in
+ * parallel, each with its own request context. The task status, consistency groups and volume contexts are
+ * still committed on the scheduling thread, one partition after the other.
+ */
 public class IngestVolumesUnexportedSchedulingThread implements Runnable {
 
     private static final Logger _logger = LoggerFactory.getLogger(IngestVolumesUnexportedSchedulingThread.class);
@@ -39,9 +56,15 @@ public class IngestVolumesUnexportedSchedulingThread implements Runnable {
     private final UnManagedVolumeService _unManagedVolumeService;
     private final DbClient _dbClient;
     private final Map<String, String> _taskMap;
+    private final int _ingestionThreads;
 
     private static final String INGESTION_SUCCESSFUL_MSG = "Successfully ingested volume.";
 
+    // smallest request partitioned for bulk ingestion
+    public static final int BULK_INGESTION_MIN_VOLUMES = 100;
+    // partition of the volumes whose ingestion may span storage systems
+    private static final String SHARED_PARTITION = "shared";
+
     /**
      * Constructor.
      *
@@ -54,32 +77,218 @@ public class IngestVolumesUnexportedSchedulingThread implements Runnable {
     public IngestVolumesUnexportedSchedulingThread(BaseIngestionRequestContext requestContext,
             IngestStrategyFactory ingestStrategyFactory, UnManagedVolumeService unManagedVolumeService, DbClient dbClient,
             Map<String, String> taskMap) {
+        this(requestContext, ingestStrategyFactory, unManagedVolumeService, dbClient, taskMap, 1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param requestContext the BaseIngestionRequestContext
+     * @param ingestStrategyFactory the IngestStrategyFactory
+     * @param unManagedVolumeService the UnManagedVolumeService
+     * @param dbClient the database client
+     * @param taskMap a Map of UnManagedVolume ids to task ids
+     * @param ingestionThreads the number of threads ingesting the partitions of a bulk request, 1 to
+     *            ingest the volumes one after the other
+     */
+    public IngestVolumesUnexportedSchedulingThread(BaseIngestionRequestContext requestContext,
+            IngestStrategyFactory ingestStrategyFactory, UnManagedVolumeService unManagedVolumeService, DbClient dbClient,
+            Map<String, String> taskMap, int ingestionThreads) {
         this._requestContext = requestContext;
         this._ingestStrategyFactory = ingestStrategyFactory;
         this._unManagedVolumeService = unManagedVolumeService;
         this._dbClient = dbClient;
         this._taskMap = taskMap;
+        this._ingestionThreads = ingestionThreads;
     }
 
     @Override
     public void run() {
-        _requestContext.reset();
-        while (_requestContext.hasNext()) {
-            UnManagedVolume unManagedVolume = _requestContext.next();
+        long startTime = System.currentTimeMillis();
+        List<BaseIngestionRequestContext> partitions = partitionRequestContext();
+        long partitionedTime = System.currentTimeMillis();
+
+        if (partitions.size() > 1) {
+            ingestPartitions(partitions);
+        } else {
+            ingestUnManagedVolumes(partitions.get(0));
+        }
+        long ingestedTime = System.currentTimeMillis();
+
+        // objects to be persisted, gathered from all the volumes so they are written in a few large batches;
+        // an object updated for several volumes is written once
+        Set<DataObject> updatedObjects = Collections.newSetFromMap(new IdentityHashMap<DataObject, Boolean>());
+        Set<DataObject> createdObjects = Collections.newSetFromMap(new IdentityHashMap<DataObject, Boolean>());
+        List<BlockObject> blockObjects = new ArrayList<BlockObject>();
+        List<UnManagedVolume> unManagedVolumesToBeDeleted = new ArrayList<UnManagedVolume>();
+        int processedCount = 0;
+        try {
+            for (BaseIngestionRequestContext requestContext : partitions) {
+                processedCount += requestContext.getProcessedUnManagedVolumeMap().size();
+                wrapUp(requestContext, updatedObjects, createdObjects);
+                blockObjects.addAll(requestContext.getBlockObjectsToBeCreatedMap().values());
+                unManagedVolumesToBeDeleted.addAll(requestContext.getUnManagedVolumesToBeDeleted());
+            }
+        } catch (InternalException e) {
+            throw e;
+        } catch (Exception e) {
+            _logger.debug("Unexpected ingestion exception:", e);
+            throw APIException.internalServerErrors.genericApisvcError(ExceptionUtils.getExceptionMessage(e), e);
+        }
+        long wrappedUpTime = System.currentTimeMillis();
+
+        for (BlockObject bo : blockObjects) {
+            _logger.info("Ingestion Wrap Up: Creating BlockObject {} (hash {})", bo.forDisplay(), bo.hashCode());
+        }
+        for (UnManagedVolume umv : unManagedVolumesToBeDeleted) {
+            _logger.info("Ingestion Wrap Up: Deleting UnManagedVolume {} (hash {})", umv.forDisplay(), umv.hashCode());
+        }
+        // the DbClient splits the collections into batched mutations
+        _dbClient.updateObject(updatedObjects);
+        _dbClient.createObject(createdObjects);
+        _dbClient.createObject(blockObjects);
+        _dbClient.updateObject(unManagedVolumesToBeDeleted);
+        long persistedTime = System.currentTimeMillis();
+
+        // record the events after they have been persisted
+        for (BlockObject volume : blockObjects) {
+            _unManagedVolumeService.recordVolumeOperation(_dbClient, _unManagedVolumeService.getOpByBlockObjectType(volume),
+                    Status.ready, volume.getId());
+        }
+        long recordedTime = System.currentTimeMillis();
+
+        int volumeCount = _requestContext.getUnManagedVolumeUrisToProcess().size();
+        int persistedCount = updatedObjects.size() + createdObjects.size() + blockObjects.size() + unManagedVolumesToBeDeleted.size();
+        _logger.info("Ingested {} of {} unmanaged volumes in {} partition(s) in {} ms: partitioning {} ms, ingestion {}, "
+                + "wrap up {}, persisting {} objects {}, recording events {}",
+                new Object[] { processedCount, volumeCount, partitions.size(), recordedTime - startTime,
+                        partitionedTime - startTime, getThroughput(volumeCount, ingestedTime - partitionedTime),
+                        getThroughput(processedCount, wrappedUpTime - ingestedTime), persistedCount,
+                        getThroughput(persistedCount, persistedTime - wrappedUpTime),
+                        getThroughput(blockObjects.size(), recordedTime - persistedTime) });
+    }
+
+    /**
+     * Splits the request into partitions which can be ingested in parallel when bulk ingestion is enabled
+     * and the request has at least BULK_INGESTION_MIN_VOLUMES volumes, otherwise returns the request context.
+     *
+     * The volumes are partitioned by storage system, which keeps the volumes of a consistency group and
+     * their snapshots, clones and mirrors together. VPLEX and RecoverPoint volumes, whose ingestion spans
+     * storage systems, and volumes not found are all ingested in one partition.
+     *
+     * @return the request contexts to be ingested
+     */
+    List<BaseIngestionRequestContext> partitionRequestContext() {
+        List<URI> unManagedVolumeUris = _requestContext.getUnManagedVolumeUrisToProcess();
+        if (_ingestionThreads <= 1 || unManagedVolumeUris.size() < BULK_INGESTION_MIN_VOLUMES) {
+            return Collections.singletonList(_requestContext);
+        }
+
+        Map<String, List<URI>> partitionUris = new LinkedHashMap<String, List<URI>>();
+        Set<URI> found = new HashSet<URI>();
+        Iterator<UnManagedVolume> unManagedVolumes = _dbClient.queryIterativeObjects(UnManagedVolume.class, unManagedVolumeUris);
+        while (unManagedVolumes.hasNext()) {
+            UnManagedVolume unManagedVolume = unManagedVolumes.next();
+            found.add(unManagedVolume.getId());
+            String key = SHARED_PARTITION;
+            if (unManagedVolume.getStorageSystemUri() != null && !VolumeIngestionUtil.isVplexVolume(unManagedVolume)
+                    && !VolumeIngestionUtil.checkUnManagedResourceIsRecoverPointEnabled(unManagedVolume)) {
+                key = unManagedVolume.getStorageSystemUri().toString();
+            }
+            List<URI> uris = partitionUris.get(key);
+            if (uris == null) {
+                uris = new ArrayList<URI>();
+                partitionUris.put(key, uris);
+            }
+            uris.add(unManagedVolume.getId());
+        }
+        if (partitionUris.size() <= 1) {
+            return Collections.singletonList(_requestContext);
+        }
+        for (URI unManagedVolumeUri : unManagedVolumeUris) {
+            if (!found.contains(unManagedVolumeUri)) {
+                if (!partitionUris.containsKey(SHARED_PARTITION)) {
+                    partitionUris.put(SHARED_PARTITION, new ArrayList<URI>());
+                }
+                partitionUris.get(SHARED_PARTITION).add(unManagedVolumeUri);
+            }
+        }
+
+        List<BaseIngestionRequestContext> partitions = new ArrayList<BaseIngestionRequestContext>();
+        for (Map.Entry<String, List<URI>> entry : partitionUris.entrySet()) {
+            _logger.info("Ingestion partition {} has {} unmanaged volumes", entry.getKey(), entry.getValue().size());
+            partitions.add(_requestContext.createPartition(entry.getValue()));
+        }
+        return partitions;
+    }
+
+    /**
+     * Ingests the partitions of the request on at most _ingestionThreads threads.
+     *
+     * @param partitions the request contexts of the partitions
+     */
+    private void ingestPartitions(List<BaseIngestionRequestContext> partitions) {
+        ExecutorService executor = new NamedThreadPoolExecutor(IngestVolumesUnexportedSchedulingThread.class.getSimpleName(),
+                Math.min(_ingestionThreads, partitions.size()));
+        Exception failure = null;
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final BaseIngestionRequestContext requestContext : partitions) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        ingestUnManagedVolumes(requestContext);
+                    }
+                }));
+            }
+            // wait for all the partitions, so none is still being ingested when the request fails
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    _logger.error("Ingestion of a partition failed", e.getCause());
+                    failure = (failure == null) ? e : failure;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure != null) {
+            Throwable cause = (failure instanceof ExecutionException) ? failure.getCause() : failure;
+            if (cause instanceof InternalException) {
+                throw (InternalException) cause;
+            }
+            throw APIException.internalServerErrors.genericApisvcError(ExceptionUtils.getExceptionMessage(cause), cause);
+        }
+    }
+
+    /**
+     * Validates and ingests the UnManagedVolumes of a request context, keeping the created block objects
+     * and the volume contexts in the request context.
+     *
+     * @param requestContext the request context
+     */
+    private void ingestUnManagedVolumes(BaseIngestionRequestContext requestContext) {
+        requestContext.reset();
+        while (requestContext.hasNext()) {
+            UnManagedVolume unManagedVolume = requestContext.next();
             String taskId = _taskMap.get(unManagedVolume.getId().toString());
 
             try {
                 _logger.info("Ingestion starting for unmanaged volume {}", unManagedVolume.getNativeGuid());
                 List<URI> volList = new ArrayList<URI>();
-                volList.add(_requestContext.getCurrentUnManagedVolumeUri());
-                VolumeIngestionUtil.checkIngestionRequestValidForUnManagedVolumes(volList, _requestContext.getVpool(unManagedVolume),
+                volList.add(requestContext.getCurrentUnManagedVolumeUri());
+                VolumeIngestionUtil.checkIngestionRequestValidForUnManagedVolumes(volList, requestContext.getVpool(unManagedVolume),
                         _dbClient);
 
                 IngestStrategy ingestStrategy = _ingestStrategyFactory.buildIngestStrategy(unManagedVolume,
                         !IngestStrategyFactory.DISREGARD_PROTECTION);
 
                 @SuppressWarnings("unchecked")
-                BlockObject blockObject = ingestStrategy.ingestBlockObjects(_requestContext,
+                BlockObject blockObject = ingestStrategy.ingestBlockObjects(requestContext,
                         VolumeIngestionUtil.getBlockObjectClass(unManagedVolume));
 
                 if (null == blockObject) {
@@ -88,118 +297,111 @@ public class IngestVolumesUnexportedSchedulingThread implements Runnable {
                 }
                 _logger.info("Ingestion completed successfully for unmanaged volume {}", unManagedVolume.getNativeGuid());
 
-                _requestContext.getBlockObjectsToBeCreatedMap().put(blockObject.getNativeGuid(), blockObject);
-                _requestContext.getProcessedUnManagedVolumeMap().put(
-                        unManagedVolume.getNativeGuid(), _requestContext.getVolumeContext());
+                requestContext.getBlockObjectsToBeCreatedMap().put(blockObject.getNativeGuid(), blockObject);
+                requestContext.getProcessedUnManagedVolumeMap().put(
+                        unManagedVolume.getNativeGuid(), requestContext.getVolumeContext());
             } catch (APIException ex) {
                 _logger.error("APIException occurred", ex);
-                _dbClient.error(UnManagedVolume.class, _requestContext.getCurrentUnManagedVolumeUri(), taskId, ex);
-                _requestContext.getVolumeContext().rollback();
+                _dbClient.error(UnManagedVolume.class, requestContext.getCurrentUnManagedVolumeUri(), taskId, ex);
+                requestContext.getVolumeContext().rollback();
             } catch (Exception ex) {
                 _logger.error("Exception occurred", ex);
-                _dbClient.error(UnManagedVolume.class, _requestContext.getCurrentUnManagedVolumeUri(),
+                _dbClient.error(UnManagedVolume.class, requestContext.getCurrentUnManagedVolumeUri(),
                         taskId, IngestionException.exceptions.generalVolumeException(
                                 unManagedVolume.getLabel(), ex.getLocalizedMessage()));
-                _requestContext.getVolumeContext().rollback();
+                requestContext.getVolumeContext().rollback();
             }
         }
+    }
 
-        try {
-            // update the task status
-            for (String unManagedVolumeGUID : _requestContext.getProcessedUnManagedVolumeMap().keySet()) {
-                VolumeIngestionContext volumeContext = _requestContext.getProcessedUnManagedVolumeMap().get(unManagedVolumeGUID);
-                UnManagedVolume unManagedVolume = volumeContext.getUnmanagedVolume();String taskMessage = "";
-                String taskId = _taskMap.get(unManagedVolume.getId().toString());
-                boolean ingestedSuccessfully = false;
-                if (unManagedVolume.getInactive()) {
+    /**
+     * Updates the task status of the processed UnManagedVolumes of a request context, commits their
+     * consistency groups and internal resources, and gathers their data objects to be persisted.
+     *
+     * @param requestContext the request context
+     * @param updatedObjects the data objects to be updated
+     * @param createdObjects the data objects to be created
+     */
+    private void wrapUp(BaseIngestionRequestContext requestContext, Set<DataObject> updatedObjects,
+            Set<DataObject> createdObjects) {
+        // update the task status
+        for (String unManagedVolumeGUID : requestContext.getProcessedUnManagedVolumeMap().keySet()) {
+            VolumeIngestionContext volumeContext = requestContext.getProcessedUnManagedVolumeMap().get(unManagedVolumeGUID);
+            UnManagedVolume unManagedVolume = volumeContext.getUnmanagedVolume();
+            String taskMessage = "";
+            String taskId = _taskMap.get(unManagedVolume.getId().toString());
+            boolean ingestedSuccessfully = false;
+            if (unManagedVolume.getInactive()) {
+                ingestedSuccessfully = true;
+                taskMessage = INGESTION_SUCCESSFUL_MSG;
+            } else {
+                // check in the created objects for corresponding block object without any internal flags set
+                BlockObject createdObject = requestContext.findCreatedBlockObject(unManagedVolumeGUID.replace(
+                        VolumeIngestionUtil.UNMANAGEDVOLUME,
+                        VolumeIngestionUtil.VOLUME));
+                _logger.info("checking partial ingestion status of block object " + createdObject);
+                if ((null != createdObject)
+                        && (!createdObject.checkInternalFlags(Flag.PARTIALLY_INGESTED) ||
+                                // If this is an ingested RP volume in an uningested protection set, the ingest is successful.
+                                (createdObject instanceof Volume && ((Volume) createdObject).checkForRp() && ((Volume) createdObject)
+                                        .getProtectionSet() == null))
+                        ||
+                        // If this is a successfully processed VPLEX backend volume, it will have the INTERNAL_OBJECT Flag
+                        (VolumeIngestionUtil.isVplexBackendVolume(unManagedVolume) && createdObject
+                                .checkInternalFlags(Flag.INTERNAL_OBJECT))) {
+                    _logger.info("successfully partially ingested block object {} ", createdObject.forDisplay());
                     ingestedSuccessfully = true;
                     taskMessage = INGESTION_SUCCESSFUL_MSG;
                 } else {
-                    // check in the created objects for corresponding block object without any internal flags set
-                    BlockObject createdObject = _requestContext.findCreatedBlockObject(unManagedVolumeGUID.replace(
-                            VolumeIngestionUtil.UNMANAGEDVOLUME,
-                            VolumeIngestionUtil.VOLUME));
-                    _logger.info("checking partial ingestion status of block object " + createdObject);
-                    if ((null != createdObject)
-                            && (!createdObject.checkInternalFlags(Flag.PARTIALLY_INGESTED) ||
-                                    // If this is an ingested RP volume in an uningested protection set, the ingest is successful.
-                                    (createdObject instanceof Volume && ((Volume) createdObject).checkForRp() && ((Volume) createdObject)
-                                            .getProtectionSet() == null))
-                            ||
-                            // If this is a successfully processed VPLEX backend volume, it will have the INTERNAL_OBJECT Flag
-                            (VolumeIngestionUtil.isVplexBackendVolume(unManagedVolume) && createdObject
-                                    .checkInternalFlags(Flag.INTERNAL_OBJECT))) {
-                        _logger.info("successfully partially ingested block object {} ", createdObject.forDisplay());
-                        ingestedSuccessfully = true;
-                        taskMessage = INGESTION_SUCCESSFUL_MSG;
+                    _logger.info("block object {} was not (partially) ingested successfully", createdObject);
+                    ingestedSuccessfully = false;
+                    StringBuffer taskStatus = requestContext.getTaskStatusMap().get(unManagedVolume.getNativeGuid());
+                    if (taskStatus == null) {
+                        // No task status found. Put in a default message.
+                        taskMessage = String.format("Not all the parent/replicas of unmanaged volume %s have been ingested",
+                                unManagedVolume.getLabel());
                     } else {
-                        _logger.info("block object {} was not (partially) ingested successfully", createdObject);
-                        ingestedSuccessfully = false;
-                        StringBuffer taskStatus = _requestContext.getTaskStatusMap().get(unManagedVolume.getNativeGuid());
-                        if (taskStatus == null) {
-                            // No task status found. Put in a default message.
-                            taskMessage = String.format("Not all the parent/replicas of unmanaged volume %s have been ingested",
-                                    unManagedVolume.getLabel());
-                        } else {
-                            taskMessage = taskStatus.toString();
-                        }
+                        taskMessage = taskStatus.toString();
                     }
                 }
+            }
 
-                if (ingestedSuccessfully) {
-                    _dbClient.ready(UnManagedVolume.class,
-                            unManagedVolume.getId(), taskId, taskMessage);
-                } else {
-                    _dbClient.error(UnManagedVolume.class, unManagedVolume.getId(), taskId,
-                            IngestionException.exceptions.unmanagedVolumeIsNotVisible(unManagedVolume.getLabel(), taskMessage));
-                }
+            if (ingestedSuccessfully) {
+                _dbClient.ready(UnManagedVolume.class,
+                        unManagedVolume.getId(), taskId, taskMessage);
+            } else {
+                _dbClient.error(UnManagedVolume.class, unManagedVolume.getId(), taskId,
+                        IngestionException.exceptions.unmanagedVolumeIsNotVisible(unManagedVolume.getLabel(), taskMessage));
+            }
 
-                // Commit any ingested CG
-                _unManagedVolumeService.commitIngestedCG(_requestContext, unManagedVolume);
+            // Commit any ingested CG
+            _unManagedVolumeService.commitIngestedCG(requestContext, unManagedVolume);
 
-                // Commit the volume's internal resources
-                volumeContext.commit();
+            // Commit the volume's internal resources
+            volumeContext.commit();
 
-                // Commit this volume's updated data objects if any after ingestion
-                Set<DataObject> updatedObjects = _requestContext.getDataObjectsToBeUpdatedMap().get(unManagedVolumeGUID);
-                if (updatedObjects != null && !updatedObjects.isEmpty()) {
-                    for (DataObject dob : updatedObjects) {
-                        _logger.info("Ingestion Wrap Up: Updating DataObject {} (hash {})", dob.forDisplay(), dob.hashCode());
-                        _dbClient.updateObject(dob);
-                    }
+            // Gather this volume's updated data objects if any after ingestion
+            Set<DataObject> volumeUpdatedObjects = requestContext.getDataObjectsToBeUpdatedMap().get(unManagedVolumeGUID);
+            if (volumeUpdatedObjects != null) {
+                for (DataObject dob : volumeUpdatedObjects) {
+                    _logger.info("Ingestion Wrap Up: Updating DataObject {} (hash {})", dob.forDisplay(), dob.hashCode());
+                    updatedObjects.add(dob);
                 }
+            }
 
-                // Commit this volume's created data objects if any after ingestion
-                Set<DataObject> createdObjects = _requestContext.getDataObjectsToBeCreatedMap().get(unManagedVolumeGUID);
-                if (createdObjects != null && !createdObjects.isEmpty()) {
-                    for (DataObject dob : createdObjects) {
-                        _logger.info("Ingestion Wrap Up: Creating DataObject {} (hash {})", dob.forDisplay(), dob.hashCode());
-                        _dbClient.createObject(dob);
-                    }
+            // Gather this volume's created data objects if any after ingestion
+            Set<DataObject> volumeCreatedObjects = requestContext.getDataObjectsToBeCreatedMap().get(unManagedVolumeGUID);
+            if (volumeCreatedObjects != null) {
+                for (DataObject dob : volumeCreatedObjects) {
+                    _logger.info("Ingestion Wrap Up: Creating DataObject {} (hash {})", dob.forDisplay(), dob.hashCode());
+                    createdObjects.add(dob);
                 }
-
             }
-        } catch (InternalException e) {
-            throw e;
-        } catch (Exception e) {
-            _logger.debug("Unexpected ingestion exception:", e);
-            throw APIException.internalServerErrors.genericApisvcError(ExceptionUtils.getExceptionMessage(e), e);
-        }
-
-        for (BlockObject bo : _requestContext.getBlockObjectsToBeCreatedMap().values()) {
-            _logger.info("Ingestion Wrap Up: Creating BlockObject {} (hash {})", bo.forDisplay(), bo.hashCode());
-            _dbClient.createObject(bo);
-        }
-        for (UnManagedVolume umv : _requestContext.getUnManagedVolumesToBeDeleted()) {
-            _logger.info("Ingestion Wrap Up: Deleting UnManagedVolume {} (hash {})", umv.forDisplay(), umv.hashCode());
-            _dbClient.updateObject(umv);
         }
+    }
 
-        // record the events after they have been persisted
-        for (BlockObject volume : _requestContext.getBlockObjectsToBeCreatedMap().values()) {
-            _unManagedVolumeService.recordVolumeOperation(_dbClient, _unManagedVolumeService.getOpByBlockObjectType(volume),
-                    Status.ready, volume.getId());
-        }
+    private static String getThroughput(int count, long millis) {
+        return String.format("%d ms (%.1f/s)", millis, (millis > 0) ? count * 1000.0 / millis : (double) count);
     }
 
     /**
@@ -216,9 +418,29 @@ public class IngestVolumesUnexportedSchedulingThread implements Runnable {
     public static void executeApiTask(ExecutorService executorService, BaseIngestionRequestContext requestContext,
             IngestStrategyFactory ingestStrategyFactory, UnManagedVolumeService unManagedVolumeService, DbClient dbClient,
             Map<String, String> taskMap, TaskList taskList) {
+        executeApiTask(executorService, requestContext, ingestStrategyFactory, unManagedVolumeService, dbClient,
+                taskMap, taskList, 1);
+    }
+
+    /**
+     * Executes API Tasks on a separate thread by instantiating a IngestVolumesUnexportedSchedulingThread,
+     * ingesting large requests in bulk.
+     *
+     * @param executorService the ExecutorService
+     * @param requestContext the BaseIngestionRequestContext
+     * @param ingestStrategyFactory the IngestStrategyFactory
+     * @param unManagedVolumeService the UnManagedVolumeService
+     * @param dbClient the database client
+     * @param taskMap a Map of UnManagedVolume ids to task ids
+     * @param taskList a list of Tasks
+     * @param ingestionThreads the number of threads ingesting the partitions of a bulk request
+     */
+    public static void executeApiTask(ExecutorService executorService, BaseIngestionRequestContext requestContext,
+            IngestStrategyFactory ingestStrategyFactory, UnManagedVolumeService unManagedVolumeService, DbClient dbClient,
+            Map<String, String> taskMap, TaskList taskList, int ingestionThreads) {
 
         IngestVolumesUnexportedSchedulingThread schedulingThread = new IngestVolumesUnexportedSchedulingThread(requestContext,
-                ingestStrategyFactory, unManagedVolumeService, dbClient, taskMap);
+                ingestStrategyFactory, unManagedVolumeService, dbClient, taskMap, ingestionThreads);
 
         try {
             executorService.execute(schedulingThread);
@@ -147,6 +147,28 @@ public class BaseIngestionRequestContext implements IngestionRequestContext {
         _currentUnManagedVolumeUri = null;
     }
 
+    /**
+     * Creates a request context for a part of the UnManagedVolumes of this request,
+     * with the same VirtualPool, VirtualArray, Project, TenantOrg and VPLEX ingestion
+     * method. The new context has its own state, so it can be ingested on another thread.
+     *
+     * @param unManagedVolumeUris the UnManagedVolumes of the partition
+     * @return a new BaseIngestionRequestContext
+     */
+    public BaseIngestionRequestContext createPartition(List<URI> unManagedVolumeUris) {
+        return new BaseIngestionRequestContext(_dbClient, unManagedVolumeUris, _vpool,
+                _virtualArray, _project, _tenant, _vplexIngestionMethod);
+    }
+
+    /**
+     * Returns the UnManagedVolume URIs processed by this request.
+     *
+     * @return the UnManagedVolume URIs
+     */
+    public List<URI> getUnManagedVolumeUrisToProcess() {
+        return _unManagedVolumeUrisToProcess;
+    }
+
     /**
      * Instantiates the correct VolumeIngestionContext type for the
      * current UnManagedVolume being processed, based on the UnManagedVolume type.
@@ -5,6 +5,7 @@
 package com.emc.storageos.api.service.impl.response;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -42,6 +43,7 @@ import com.emc.storageos.db.client.model.VirtualPool.Type;
 import com.emc.storageos.db.client.model.Volume;
 import com.emc.storageos.db.client.util.NullColumnValueGetter;
 import com.emc.storageos.security.authentication.StorageOSUser;
+import com.emc.storageos.security.authorization.QueriedObjectCache;
 import com.emc.storageos.security.authorization.ACL;
 import com.emc.storageos.security.authorization.Role;
 import com.google.common.base.Function;
@@ -194,11 +196,21 @@ public class BulkList<T> implements List<T> {
      * - Arbitrary function to define mapping.
      * - No reflect for construction. Works with any object type
      * - Same class allows filtering or not
+     * - Elements are filtered a page at a time, after the filter's prefetch()
      */
     public static class AdaptingIterator<E extends DataObject, T> implements Iterator<T> {
+        // number of elements read ahead from the DB iterator and prefetched together
+        public static final int PAGE_SIZE = 100;
+
         private final Iterator<E> dbIterator;
         private final Function<E, T> adapter;
         private ResourceFilter<E> filter = null;
+        private Iterator<E> pageIterator = null;
+
+        // filtering statistics, logged when the DB iterator is exhausted
+        private int checkedCount = 0;
+        private int exposedCount = 0;
+        private int startDbReadCount = -1;
 
         E _next = null;
 
@@ -210,10 +222,12 @@ public class BulkList<T> implements List<T> {
 
         @Override
         public boolean hasNext() {
-            if (null == _next) {
-                while (dbIterator.hasNext()) {
-                    E element = dbIterator.next();
+            while (null == _next && nextPage()) {
+                while (pageIterator.hasNext()) {
+                    E element = pageIterator.next();
+                    checkedCount++;
                     if (filter == null || filter.isExposed(element)) {
+                        exposedCount++;
                         _next = element;
                         break;
                     }
@@ -222,6 +236,44 @@ public class BulkList<T> implements List<T> {
             return _next != null;
         }
 
+        /**
+         * Makes sure there are elements left in the current page, reading and
+         * prefetching the next page from the DB iterator if needed.
+         * 
+         * @return false if the DB iterator is exhausted
+         */
+        private boolean nextPage() {
+            if (pageIterator != null && pageIterator.hasNext()) {
+                return true;
+            }
+            if (startDbReadCount < 0) {
+                startDbReadCount = QueriedObjectCache.getDbReadCount();
+            }
+
+            List<E> page = new ArrayList<E>(PAGE_SIZE);
+            while (page.size() < PAGE_SIZE && dbIterator.hasNext()) {
+                E element = dbIterator.next();
+                if (element != null) {
+                    page.add(element);
+                }
+            }
+            if (page.isEmpty()) {
+                if (pageIterator != null && filter != null) {
+                    _log.info("{} of {} resources exposed with {} permission check DB reads",
+                            new Object[] { exposedCount, checkedCount,
+                                    QueriedObjectCache.getDbReadCount() - startDbReadCount });
+                }
+                pageIterator = null;
+                return false;
+            }
+
+            if (filter != null) {
+                filter.prefetch(page);
+            }
+            pageIterator = page.iterator();
+            return true;
+        }
+
         @Override
         public T next() {
             E next = null;
@@ -264,6 +316,16 @@ public class BulkList<T> implements List<T> {
         public boolean isExposed(E resource) {
             return !resource.checkInternalFlags(Flag.NO_PUBLIC_ACCESS);
         }
+
+        /**
+         * Called with each page of resources before they are checked, so that
+         * what the checks look up can be loaded for the whole page at once.
+         * Does nothing by default.
+         * 
+         * @param resources the page of resources about to be checked
+         */
+        public void prefetch(List<E> resources) {
+        }
     }
 
     /**
@@ -295,6 +357,20 @@ public class BulkList<T> implements List<T> {
             return super.isExposed(resource) && isAccessible(resource);
         }
 
+        /**
+         * Loads the tenants, projects and hosts the page of resources belongs to
+         * in bulk, skipping those the user's access to is already known.
+         */
+        @Override
+        public void prefetch(List<E> resources) {
+            if (_user == null || _permissionsHelper == null) {
+                return;
+            }
+            Set<URI> decidedIds = new HashSet<URI>(_cache._accessibleParentResources);
+            decidedIds.addAll(_cache._nonAccessibleParentResources);
+            _permissionsHelper.prefetchParents(resources, decidedIds);
+        }
+
         /**
          * Subclasses must implement this method in such a way that it
          * returns true only if the current user should have access to
@@ -558,7 +634,7 @@ public class BulkList<T> implements List<T> {
                 return false;
             }
             boolean ret = false;
-            Host host = _permissionsHelper.getObjectById(resource.getHost(), Host.class, true);
+            Host host = _permissionsHelper.getObjectById(resource.getHost(), Host.class);
             ret = host.getTenant().toString().equals(_user.getTenantId());
             if (!ret) {
                 ret = isTenantAccessible(host.getTenant());
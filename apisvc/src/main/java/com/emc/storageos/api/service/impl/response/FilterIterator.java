@@ -4,22 +4,39 @@
  */
 package com.emc.storageos.api.service.impl.response;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.emc.storageos.model.RelatedResourceRep;
+import com.emc.storageos.security.authorization.QueriedObjectCache;
 
 /**
  * An iterator to create RelatedResourceRestRep elements
  * 
+ * Elements are read from the query a page at a time and handed to the
+ * filter's prefetch() before being checked, so that the filter can load
+ * what it needs for the whole page in bulk.
  */
 public class FilterIterator<T extends RelatedResourceRep>
         implements Iterator<T> {
     private static final Logger _log = LoggerFactory.getLogger(FilterIterator.class);
 
+    // number of elements read ahead from the query and prefetched together
+    public static final int PAGE_SIZE = 100;
+
     private Iterator<T> _queryIterator;
     private ResRepFilter<T> _filter;
+    private int _pageSize = PAGE_SIZE;
+    private Iterator<T> _pageIterator = null;
+
+    // filtering statistics, logged when the query is exhausted
+    private int _checkedCount = 0;
+    private int _accessibleCount = 0;
+    private int _startDbReadCount = -1;
 
     T _next = null;
 
@@ -29,13 +46,21 @@ public class FilterIterator<T extends RelatedResourceRep>
         _filter = filter;
     }
 
+    public FilterIterator(Iterator<T> queryIterator,
+            ResRepFilter<T> filter, int pageSize) {
+        this(queryIterator, filter);
+        _pageSize = pageSize;
+    }
+
     @Override
     public boolean hasNext() {
-        if (null == _next) {
-            while (_queryIterator.hasNext()) {
-                T element = _queryIterator.next();
+        while (null == _next && nextPage()) {
+            while (_pageIterator.hasNext()) {
+                T element = _pageIterator.next();
+                _checkedCount++;
                 if (_filter.isAccessible(element)) {
                     _log.debug("found an accessible resource");
+                    _accessibleCount++;
                     _next = element;
                     break;
                 }
@@ -44,6 +69,39 @@ public class FilterIterator<T extends RelatedResourceRep>
         return _next != null;
     }
 
+    /**
+     * Makes sure there are elements left in the current page, reading and
+     * prefetching the next page from the query if needed.
+     * 
+     * @return false if the query is exhausted
+     */
+    private boolean nextPage() {
+        if (_pageIterator != null && _pageIterator.hasNext()) {
+            return true;
+        }
+        if (_startDbReadCount < 0) {
+            _startDbReadCount = QueriedObjectCache.getDbReadCount();
+        }
+
+        List<T> page = new ArrayList<T>(_pageSize);
+        while (page.size() < _pageSize && _queryIterator.hasNext()) {
+            page.add(_queryIterator.next());
+        }
+        if (page.isEmpty()) {
+            if (_pageIterator != null) {
+                _log.info("{} of {} resources accessible with {} permission check DB reads",
+                        new Object[] { _accessibleCount, _checkedCount,
+                                QueriedObjectCache.getDbReadCount() - _startDbReadCount });
+                _pageIterator = null;
+            }
+            return false;
+        }
+
+        _filter.prefetch(page);
+        _pageIterator = page.iterator();
+        return true;
+    }
+
     @Override
     public T next() {
         T next = null;
@@ -34,7 +34,7 @@ public class ProjOwnedResRepFilter<E extends RelatedResourceRep, K extends DataO
         URI id = resrep.getId();
 
         // bypass cache for all the project owned resources
-        K obj = _permissionsHelper.getObjectById(id, _clazz, true);
+        K obj = getObjectById(id, _clazz, true);
         if (obj == null) {
             return false;
         }
@@ -32,14 +32,14 @@ public class ProjOwnedSnapResRepFilter<E extends RelatedResourceRep, K extends D
         boolean ret = false;
         URI id = resrep.getId();
         // bypass cache for all the project owned snapshots
-        K obj = _permissionsHelper.getObjectById(id, _clazz, true);
+        K obj = getObjectById(id, _clazz, true);
         if (obj == null || obj.getProject() == null) {
             return false;
         }
 
         ret = isProjectAccessible(obj.getProject().getURI());
         if (!ret) {
-            Project project = _permissionsHelper.getObjectById(obj.getProject(), Project.class);
+            Project project = getObjectById(obj.getProject().getURI(), Project.class);
             ret = isTenantAccessible(project.getTenantOrg().getURI());
         }
         return ret;
@@ -6,13 +6,20 @@
 package com.emc.storageos.api.service.impl.response;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.emc.storageos.api.service.authorization.PermissionsHelper;
 import com.emc.storageos.api.service.impl.resource.ArgValidator;
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.model.DataObject;
 import com.emc.storageos.db.client.model.VirtualArray;
 import com.emc.storageos.db.client.model.ComputeVirtualPool;
 import com.emc.storageos.db.client.model.VirtualPool;
@@ -38,6 +45,9 @@ public abstract class ResRepFilter<E extends RelatedResourceRep> {
 
     private final ResourceFilteringCache _cache = new ResourceFilteringCache();
 
+    // the objects behind the current page of resources, see prefetch()
+    private final Map<URI, DataObject> _prefetchedObjects = new HashMap<URI, DataObject>();
+
     protected ResRepFilter(StorageOSUser user,
             PermissionsHelper permissionsHelper) {
         _user = user;
@@ -52,6 +62,74 @@ public abstract class ResRepFilter<E extends RelatedResourceRep> {
      */
     public abstract boolean isAccessible(E relatedResourceRep);
 
+    /**
+     * Called with each page of resources before they are checked. Loads the
+     * objects behind the resources with one query per type, and the tenants,
+     * projects and hosts they belong to, so that the checks of the page do not
+     * read them one at a time. Filters get the prefetched objects with
+     * getObjectById().
+     * 
+     * @param relatedResourceReps the page of resources about to be checked
+     */
+    public void prefetch(List<E> relatedResourceReps) {
+        _prefetchedObjects.clear();
+
+        Map<Class<? extends DataObject>, List<URI>> idsByType = new HashMap<Class<? extends DataObject>, List<URI>>();
+        for (E resRep : relatedResourceReps) {
+            URI id = resRep.getId();
+            if (id == null) {
+                continue;
+            }
+            Class<? extends DataObject> clazz;
+            try {
+                clazz = URIUtil.getModelClass(id);
+            } catch (RuntimeException e) {
+                _log.debug("no model class for {}, not prefetched", id);
+                continue;
+            }
+            List<URI> ids = idsByType.get(clazz);
+            if (ids == null) {
+                ids = new ArrayList<URI>();
+                idsByType.put(clazz, ids);
+            }
+            ids.add(id);
+        }
+
+        for (Map.Entry<Class<? extends DataObject>, List<URI>> entry : idsByType.entrySet()) {
+            for (DataObject object : _permissionsHelper.getObjectsById(entry.getValue(), entry.getKey())) {
+                _prefetchedObjects.put(object.getId(), object);
+            }
+        }
+
+        Set<URI> decidedIds = new HashSet<URI>(_cache._accessibleParentResources);
+        decidedIds.addAll(_cache._nonAccessibleParentResources);
+        _permissionsHelper.prefetchParents(_prefetchedObjects.values(), decidedIds);
+    }
+
+    /**
+     * Get the object behind a resource of the current page, reading it only if it
+     * was not prefetched. Prefetched objects are kept apart from the request cache,
+     * which is left to the tenants and projects the checks look up.
+     * 
+     * @param id the object id
+     * @param clazz the object type
+     * @return the object or null
+     */
+    protected <K extends DataObject> K getObjectById(URI id, Class<K> clazz) {
+        return getObjectById(id, clazz, false);
+    }
+
+    /**
+     * Same as getObjectById(URI, Class), bypassing the request cache on a read.
+     */
+    protected <K extends DataObject> K getObjectById(URI id, Class<K> clazz, boolean bypassCache) {
+        DataObject object = _prefetchedObjects.get(id);
+        if (clazz.isInstance(object)) {
+            return clazz.cast(object);
+        }
+        return _permissionsHelper.getObjectById(id, clazz, bypassCache);
+    }
+
     /**
      * verify whether the user in the filter has access to tenant
      * 
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.api.service.impl.resource.blockingestorchestration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.emc.storageos.api.service.impl.resource.blockingestorchestration.context.impl.BaseIngestionRequestContext;
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.model.StringMap;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume.SupportedVolumeCharacterstics;
+
+public class IngestVolumesUnexportedSchedulingThreadTest {
+    private static final URI SYSTEM_A = URI.create("urn:storageos:StorageSystem:a:vdc1");
+    private static final URI SYSTEM_B = URI.create("urn:storageos:StorageSystem:b:vdc1");
+
+    private int volumeIndex = 0;
+
+    private UnManagedVolume newUnManagedVolume(URI storageSystem, String characteristic) {
+        UnManagedVolume volume = new UnManagedVolume();
+        volume.setId(URI.create("urn:storageos:UnManagedVolume:" + volumeIndex++ + ":vdc1"));
+        volume.setStorageSystemUri(storageSystem);
+        volume.setVolumeCharacterstics(new StringMap());
+        if (characteristic != null) {
+            volume.getVolumeCharacterstics().put(characteristic, Boolean.TRUE.toString());
+        }
+        return volume;
+    }
+
+    private static List<URI> getIds(List<UnManagedVolume> volumes) {
+        List<URI> ids = new ArrayList<URI>();
+        for (UnManagedVolume volume : volumes) {
+            ids.add(volume.getId());
+        }
+        return ids;
+    }
+
+    private static IngestVolumesUnexportedSchedulingThread newSchedulingThread(DbClient dbClient, List<URI> uris,
+            int ingestionThreads) {
+        BaseIngestionRequestContext requestContext = new BaseIngestionRequestContext(dbClient, uris, null, null, null, null, null);
+        return new IngestVolumesUnexportedSchedulingThread(requestContext, new IngestStrategyFactory(), null, dbClient,
+                new HashMap<String, String>(), ingestionThreads);
+    }
+
+    @Test
+    public void testPartitionByStorageSystem() {
+        List<UnManagedVolume> systemA = new ArrayList<UnManagedVolume>();
+        List<UnManagedVolume> systemB = new ArrayList<UnManagedVolume>();
+        List<UnManagedVolume> shared = new ArrayList<UnManagedVolume>();
+        for (int i = 0; i < 60; i++) {
+            systemA.add(newUnManagedVolume(SYSTEM_A, null));
+            systemB.add(newUnManagedVolume(SYSTEM_B, null));
+        }
+        for (int i = 0; i < 10; i++) {
+            shared.add(newUnManagedVolume(SYSTEM_A, SupportedVolumeCharacterstics.IS_VPLEX_VOLUME.toString()));
+            shared.add(newUnManagedVolume(SYSTEM_B, SupportedVolumeCharacterstics.IS_RECOVERPOINT_ENABLED.toString()));
+            shared.add(newUnManagedVolume(null, null));
+        }
+        List<UnManagedVolume> found = new ArrayList<UnManagedVolume>();
+        for (int i = 0; i < 60; i++) {
+            found.add(systemA.get(i));
+            found.add(systemB.get(i));
+            if (i < shared.size()) {
+                found.add(shared.get(i));
+            }
+        }
+        // volumes not found in the db are ingested in the shared partition
+        UnManagedVolume missing = newUnManagedVolume(SYSTEM_A, null);
+        shared.add(missing);
+        List<URI> uris = getIds(found);
+        uris.add(missing.getId());
+
+        DbClient dbClient = mock(DbClient.class);
+        when(dbClient.queryIterativeObjects(UnManagedVolume.class, uris)).thenReturn(found.iterator());
+
+        List<BaseIngestionRequestContext> partitions = newSchedulingThread(dbClient, uris, 4).partitionRequestContext();
+
+        assertEquals(3, partitions.size());
+        assertEquals(getIds(systemA), partitions.get(0).getUnManagedVolumeUrisToProcess());
+        assertEquals(getIds(systemB), partitions.get(1).getUnManagedVolumeUrisToProcess());
+        assertEquals(getIds(shared), partitions.get(2).getUnManagedVolumeUrisToProcess());
+    }
+
+    @Test
+    public void testSmallRequestIsNotPartitioned() {
+        List<UnManagedVolume> volumes = new ArrayList<UnManagedVolume>();
+        for (int i = 0; i < IngestVolumesUnexportedSchedulingThread.BULK_INGESTION_MIN_VOLUMES - 1; i++) {
+            volumes.add(newUnManagedVolume(i % 2 == 0 ? SYSTEM_A : SYSTEM_B, null));
+        }
+        List<URI> uris = getIds(volumes);
+        DbClient dbClient = mock(DbClient.class);
+        when(dbClient.queryIterativeObjects(UnManagedVolume.class, uris)).thenReturn(volumes.iterator());
+
+        IngestVolumesUnexportedSchedulingThread thread = newSchedulingThread(dbClient, uris, 4);
+        List<BaseIngestionRequestContext> partitions = thread.partitionRequestContext();
+
+        assertEquals(1, partitions.size());
+        assertEquals(uris, partitions.get(0).getUnManagedVolumeUrisToProcess());
+    }
+
+    @Test
+    public void testSingleThreadIsNotPartitioned() {
+        List<UnManagedVolume> volumes = new ArrayList<UnManagedVolume>();
+        for (int i = 0; i < IngestVolumesUnexportedSchedulingThread.BULK_INGESTION_MIN_VOLUMES * 2; i++) {
+            volumes.add(newUnManagedVolume(i % 2 == 0 ? SYSTEM_A : SYSTEM_B, null));
+        }
+        List<URI> uris = getIds(volumes);
+        DbClient dbClient = mock(DbClient.class);
+        when(dbClient.queryIterativeObjects(UnManagedVolume.class, uris)).thenReturn(volumes.iterator());
+
+        List<BaseIngestionRequestContext> partitions = newSchedulingThread(dbClient, uris, 1).partitionRequestContext();
+
+        assertEquals(1, partitions.size());
+        assertEquals(uris, partitions.get(0).getUnManagedVolumeUrisToProcess());
+    }
+
+    @Test
+    public void testSingleStorageSystemIsNotPartitioned() {
+        List<UnManagedVolume> volumes = new ArrayList<UnManagedVolume>();
+        for (int i = 0; i < IngestVolumesUnexportedSchedulingThread.BULK_INGESTION_MIN_VOLUMES * 2; i++) {
+            volumes.add(newUnManagedVolume(SYSTEM_A, null));
+        }
+        List<URI> uris = getIds(volumes);
+        DbClient dbClient = mock(DbClient.class);
+        when(dbClient.queryIterativeObjects(UnManagedVolume.class, uris)).thenReturn(volumes.iterator());
+
+        List<BaseIngestionRequestContext> partitions = newSchedulingThread(dbClient, uris, 4).partitionRequestContext();
+
+        assertEquals(1, partitions.size());
+        assertEquals(uris, partitions.get(0).getUnManagedVolumeUrisToProcess());
+    }
+
+    /**
+     * The partitions look up their strategies concurrently, each strategy must be created once and shared
+     */
+    @Test
+    public void testConcurrentStrategyLookups() throws Exception {
+        final IngestStrategyFactory factory = new IngestStrategyFactory();
+        final List<UnManagedVolume> volumes = new ArrayList<UnManagedVolume>();
+        volumes.add(newUnManagedVolume(SYSTEM_A, null));
+        volumes.add(newUnManagedVolume(SYSTEM_A, SupportedVolumeCharacterstics.IS_SNAP_SHOT.toString()));
+        volumes.add(newUnManagedVolume(SYSTEM_A, SupportedVolumeCharacterstics.IS_VPLEX_VOLUME.toString()));
+        volumes.add(newUnManagedVolume(SYSTEM_B, SupportedVolumeCharacterstics.REMOTE_MIRRORING.toString()));
+
+        int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Object>>> futures = new ArrayList<Future<List<Object>>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<List<Object>>() {
+                    @Override
+                    public List<Object> call() throws Exception {
+                        start.await();
+                        List<Object> strategies = new ArrayList<Object>();
+                        for (UnManagedVolume volume : volumes) {
+                            strategies.add(factory.buildIngestStrategy(volume, !IngestStrategyFactory.DISREGARD_PROTECTION));
+                            strategies.add(factory.buildIngestExportStrategy(volume));
+                        }
+                        return strategies;
+                    }
+                }));
+            }
+            start.countDown();
+
+            Map<Integer, Object> firstStrategies = new HashMap<Integer, Object>();
+            for (Future<List<Object>> future : futures) {
+                List<Object> strategies = future.get();
+                for (int i = 0; i < strategies.size(); i++) {
+                    if (!firstStrategies.containsKey(i)) {
+                        firstStrategies.put(i, strategies.get(i));
+                    }
+                    assertSame(firstStrategies.get(i), strategies.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
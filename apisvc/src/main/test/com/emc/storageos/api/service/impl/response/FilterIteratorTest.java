@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.api.service.impl.response;
+
+import static org.mockito.Mockito.mock;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.emc.storageos.api.service.authorization.PermissionsHelper;
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.NamedURI;
+import com.emc.storageos.db.client.model.Project;
+import com.emc.storageos.db.client.model.TenantOrg;
+import com.emc.storageos.db.client.model.Volume;
+import com.emc.storageos.model.RelatedResourceRep;
+import com.emc.storageos.security.authentication.StorageOSUser;
+import com.emc.storageos.security.authorization.ACL;
+import com.emc.storageos.security.authorization.PermissionsKey;
+import com.emc.storageos.security.authorization.QueriedObjectCache;
+
+/**
+ * Tests that FilterIterator hands the filter one page of resources at a time
+ * and returns the same resources as checking them one by one, and that the
+ * prefetch of each page saves the permission checks their DB reads.
+ */
+public class FilterIteratorTest {
+
+    /**
+     * Serves the objects of a map and counts the queries made
+     */
+    private static class CountingDbAnswer implements Answer<Object> {
+        private final Map<URI, DataObject> _objects = new HashMap<URI, DataObject>();
+        private int _queries = 0;
+
+        void add(DataObject object) {
+            _objects.put(object.getId(), object);
+        }
+
+        @Override
+        public Object answer(InvocationOnMock invocation) {
+            if (!invocation.getMethod().getName().equals("queryObject")) {
+                return null;
+            }
+            _queries++;
+            Object ids = invocation.getArguments()[1];
+            if (ids instanceof URI) {
+                return _objects.get(ids);
+            }
+            List<DataObject> ret = new ArrayList<DataObject>();
+            for (Object id : (Collection<?>) ids) {
+                if (_objects.containsKey(id)) {
+                    ret.add(_objects.get(id));
+                }
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Checks volumes the way it was done before prefetching, one read at a time
+     */
+    private static class UnprefetchedFilter extends ProjOwnedResRepFilter<RelatedResourceRep, Volume> {
+        UnprefetchedFilter(StorageOSUser user, PermissionsHelper permissionsHelper) {
+            super(user, permissionsHelper, Volume.class);
+        }
+
+        @Override
+        public void prefetch(List<RelatedResourceRep> relatedResourceReps) {
+        }
+    }
+
+    private static class EvenFilter extends ResRepFilter<RelatedResourceRep> {
+        private final List<URI> _ids;
+        private final List<Integer> _pageSizes = new ArrayList<Integer>();
+        private int _prefetched = 0;
+
+        EvenFilter(List<URI> ids) {
+            super(null, null);
+            _ids = ids;
+        }
+
+        @Override
+        public void prefetch(List<RelatedResourceRep> relatedResourceReps) {
+            _pageSizes.add(relatedResourceReps.size());
+            _prefetched += relatedResourceReps.size();
+        }
+
+        @Override
+        public boolean isAccessible(RelatedResourceRep relatedResourceRep) {
+            int index = _ids.indexOf(relatedResourceRep.getId());
+            // every resource is prefetched before it is checked
+            Assert.assertTrue(index < _prefetched);
+            return index % 2 == 0;
+        }
+    }
+
+    @Test
+    public void testPagedFiltering() {
+        List<URI> ids = new ArrayList<URI>();
+        List<RelatedResourceRep> resReps = new ArrayList<RelatedResourceRep>();
+        for (int i = 0; i < 250; i++) {
+            URI id = URIUtil.createId(Volume.class);
+            ids.add(id);
+            resReps.add(new RelatedResourceRep(id, null));
+        }
+
+        EvenFilter filter = new EvenFilter(ids);
+        FilterIterator<RelatedResourceRep> it = new FilterIterator<RelatedResourceRep>(resReps.iterator(), filter);
+        List<URI> accessible = new ArrayList<URI>();
+        while (it.hasNext()) {
+            accessible.add(it.next().getId());
+        }
+
+        Assert.assertEquals(125, accessible.size());
+        for (int i = 0; i < accessible.size(); i++) {
+            Assert.assertEquals(ids.get(i * 2), accessible.get(i));
+        }
+        Assert.assertEquals(3, filter._pageSizes.size());
+        Assert.assertEquals(FilterIterator.PAGE_SIZE, filter._pageSizes.get(0).intValue());
+        Assert.assertEquals(50, filter._pageSizes.get(2).intValue());
+        Assert.assertFalse(it.hasNext());
+        Assert.assertNull(it.next());
+    }
+
+    @Test
+    public void testPrefetchReducesDbReads() {
+        CountingDbAnswer db = new CountingDbAnswer();
+        DbClient dbClient = mock(DbClient.class, db);
+
+        TenantOrg tenant = new TenantOrg();
+        tenant.setId(URIUtil.createId(TenantOrg.class));
+        tenant.setParentTenant(new NamedURI(URI.create(TenantOrg.NO_PARENT), "root"));
+        db.add(tenant);
+        StorageOSUser user = new StorageOSUser("user1", tenant.getId().toString());
+
+        // the user can use every other project of the tenant, without being its tenant admin
+        List<Project> projects = new ArrayList<Project>();
+        for (int i = 0; i < 10; i++) {
+            Project project = new Project();
+            project.setId(URIUtil.createId(Project.class));
+            project.setTenantOrg(new NamedURI(tenant.getId(), "tenant"));
+            if (i % 2 == 0) {
+                project.addAcl(new PermissionsKey(PermissionsKey.Type.SID, user.getName(),
+                        user.getTenantId()).toString(), ACL.ALL.toString());
+            }
+            projects.add(project);
+            db.add(project);
+        }
+
+        List<RelatedResourceRep> resReps = new ArrayList<RelatedResourceRep>();
+        for (int i = 0; i < 250; i++) {
+            Volume volume = new Volume();
+            volume.setId(URIUtil.createId(Volume.class));
+            volume.setTenant(new NamedURI(tenant.getId(), "tenant"));
+            volume.setProject(new NamedURI(projects.get(i % 10).getId(), "project"));
+            db.add(volume);
+            resReps.add(new RelatedResourceRep(volume.getId(), null));
+        }
+
+        // one read per volume, then one per tenant and project the first time they are checked
+        QueriedObjectCache.clearCache();
+        PermissionsHelper permissionsHelper = new PermissionsHelper(dbClient);
+        int unprefetchedReads = filterDbReads(db, resReps, new UnprefetchedFilter(user, permissionsHelper));
+        Assert.assertEquals(250 + 1 + 10, unprefetchedReads);
+
+        // one read of the volumes per page, and of the tenants and projects of the first page
+        QueriedObjectCache.clearCache();
+        int prefetchedReads = filterDbReads(db, resReps,
+                new ProjOwnedResRepFilter<RelatedResourceRep, Volume>(user, permissionsHelper, Volume.class));
+        Assert.assertEquals(3 + 2, prefetchedReads);
+        QueriedObjectCache.clearCache();
+    }
+
+    /**
+     * Filters the resources, checks that the accessible ones are returned and that
+     * the permission helper counted the DB reads made
+     *
+     * @return the number of DB reads the filtering took
+     */
+    private int filterDbReads(CountingDbAnswer db, List<RelatedResourceRep> resReps,
+            ResRepFilter<RelatedResourceRep> filter) {
+        int startQueries = db._queries;
+        int startDbReadCount = QueriedObjectCache.getDbReadCount();
+
+        FilterIterator<RelatedResourceRep> it = new FilterIterator<RelatedResourceRep>(resReps.iterator(), filter);
+        List<URI> accessible = new ArrayList<URI>();
+        while (it.hasNext()) {
+            accessible.add(it.next().getId());
+        }
+
+        Assert.assertEquals(125, accessible.size());
+        for (int i = 0; i < accessible.size(); i++) {
+            Assert.assertEquals(resReps.get(i * 2).getId(), accessible.get(i));
+        }
+        int queries = db._queries - startQueries;
+        Assert.assertEquals(queries, QueriedObjectCache.getDbReadCount() - startDbReadCount);
+        return queries;
+    }
+
+    @Test
+    public void testEmptyQuery() {
+        EvenFilter filter = new EvenFilter(new ArrayList<URI>());
+        FilterIterator<RelatedResourceRep> it = new FilterIterator<RelatedResourceRep>(
+                new ArrayList<RelatedResourceRep>().iterator(), filter);
+        Assert.assertFalse(it.hasNext());
+        Assert.assertTrue(filter._pageSizes.isEmpty());
+    }
+}
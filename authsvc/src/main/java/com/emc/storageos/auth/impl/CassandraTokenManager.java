@@ -5,6 +5,7 @@
 package com.emc.storageos.auth.impl;
 
 import java.net.URI;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -364,6 +365,7 @@ public class CassandraTokenManager extends CassandraTokenValidator implements To
                 return;
             }
             deleteTokenInternal(verificationToken);
+            invalidateCachedTokens(Collections.singletonList(tkId));
         } catch (DatabaseException ex) {
             throw SecurityException.fatals.databseExceptionDuringTokenDeletion(tokenIn,
                     ex);
@@ -404,6 +406,7 @@ public class CassandraTokenManager extends CassandraTokenValidator implements To
                     _dbClient.markForDeletion(userRecord);
                 }
             }
+            invalidateCachedUserTokens(userName);
         } catch (DatabaseException ex) {
             throw SecurityException.fatals.exceptionDuringTokenDeletionForUser(userName,
                     ex);
@@ -12,6 +12,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,11 +84,33 @@ public class TestDistributedDataManager implements DistributedDataManager {
         _dataMap.remove(path);
     }
     
+    @Override
+    public void createNodes(Map<String, Object> nodes) throws Exception {
+        _dataMap.putAll(nodes);
+    }
+
+    @Override
+    public void removeNodes(List<String> paths) throws Exception {
+        for (String path : paths) {
+            _dataMap.remove(path);
+        }
+    }
+
+    @Override
+    public boolean watchNode(String path, Watcher watcher) throws Exception {
+        return _dataMap.containsKey(path);
+    }
+
     @Override
     public void putData(String path, Object data) throws Exception {
         _dataMap.put(path, data);
     }
 
+    @Override
+    public void putData(Map<String, Object> nodes, Set<String> newPaths) throws Exception {
+        _dataMap.putAll(nodes);
+    }
+
     @Override
     public Object getData(String path, boolean watch) throws Exception {
         return _dataMap.get(path);
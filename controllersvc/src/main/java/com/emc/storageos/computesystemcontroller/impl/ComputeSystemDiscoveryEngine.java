@@ -34,6 +34,9 @@ public class ComputeSystemDiscoveryEngine {
     @Autowired
     private List<ComputeSystemDiscoveryAdapter> discoveryAdapters;
 
+    @Autowired
+    private ComputeSystemDiscoveryScheduler discoveryScheduler;
+
     private CoordinatorClient coordinatorClient;
 
     private DbClient dbClient;
@@ -81,6 +84,22 @@ public class ComputeSystemDiscoveryEngine {
      *             if an error occurs obtaining a lock.
      */
     public void discover(String targetId) throws Exception {
+        discover(targetId, false);
+    }
+
+    /**
+     * Performs discovery of a given target. An exclusive lock is obtained for the target so that only a single node can
+     * be performing discovery for any given object at a time.
+     * 
+     * @param targetId
+     *            the ID of the target to discover.
+     * @param scheduled
+     *            true for a scheduled scan, which is skipped while the target backs off after failures.
+     * 
+     * @throws Exception
+     *             if an error occurs obtaining a lock.
+     */
+    public void discover(String targetId, boolean scheduled) throws Exception {
         InterProcessLock lock = coordinatorClient.getLock(targetId);
         if (LOG.isInfoEnabled()) {
             LOG.info("Acquiring lock for compute system discovery: {}", targetId);
@@ -90,7 +109,7 @@ public class ComputeSystemDiscoveryEngine {
             if (LOG.isInfoEnabled()) {
                 LOG.info("Acquired lock for compute system discovery: {}", targetId);
             }
-            discoverInLock(targetId);
+            discoverInLock(targetId, scheduled);
         } finally {
             lock.release();
             if (LOG.isInfoEnabled()) {
@@ -100,25 +119,34 @@ public class ComputeSystemDiscoveryEngine {
     }
 
     /**
-     * Performs the discovery, within a lock.
+     * Performs the discovery, within a lock. The discovery is run by the {@link ComputeSystemDiscoveryScheduler}, under
+     * the concurrency limit and the deadline of the target type.
      * 
      * @param targetId
      *            the ID of the target to discover.
+     * @param scheduled
+     *            true for a scheduled scan, which is skipped while the target backs off after failures.
      */
-    protected void discoverInLock(String targetId) {
+    protected void discoverInLock(final String targetId, boolean scheduled) {
         DiscoveredSystemObject target = modelClient.findById(URI.create(targetId));
         if (target == null) {
             LOG.error("Could not find: " + targetId);
+            discoveryScheduler.removeTarget(targetId);
             throw ComputeSystemControllerException.exceptions.targetNotFound(targetId);
         }
 
-        ComputeSystemDiscoveryAdapter adapter = getDiscoveryAdapter(targetId);
+        final ComputeSystemDiscoveryAdapter adapter = getDiscoveryAdapter(targetId);
         if (adapter != null) {
             if (LOG.isInfoEnabled()) {
                 LOG.info("Discovering target " + target.getLabel() + " [" + targetId + "]");
             }
             try {
-                adapter.discoverTarget(targetId);
+                discoveryScheduler.discover(target, new Runnable() {
+                    @Override
+                    public void run() {
+                        adapter.discoverTarget(targetId);
+                    }
+                }, scheduled);
                 if (LOG.isInfoEnabled()) {
                     LOG.info("Discovery completed for " + target.getLabel() + " [" + targetId + "]");
                 }
@@ -127,6 +155,10 @@ public class ComputeSystemDiscoveryEngine {
                 LOG.error("Device is incompatible: " + target.getLabel() + " [" + targetId + "]: " + errorMessage);
                 adapter.discoveryFailure(target, DiscoveredDataObject.CompatibilityStatus.INCOMPATIBLE.name(), errorMessage);
                 throw e;
+            } catch (ComputeSystemDiscoveryScheduler.DiscoverySkippedException e) {
+                // the target was not discovered, its discovery status is left as it is
+                LOG.info("Discovery skipped for " + target.getLabel() + " [" + targetId + "]: " + e.getMessage());
+                throw ComputeSystemControllerException.exceptions.discoverFailed(targetId, e);
             } catch (RuntimeException e) {
                 String errorMessage = adapter.getErrorMessage(e);
                 LOG.error("Discovery failed for " + target.getLabel() + " [" + targetId + "]: " + errorMessage, e);
@@ -0,0 +1,612 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.computesystemcontroller.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.emc.storageos.db.client.model.DiscoveredSystemObject;
+import com.emc.storageos.db.client.model.Host;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
+
+/**
+ * Runs the discovery of compute system targets, so the discoveries picked up by the compute discovery queue run
+ * concurrently without one slow or unreachable host holding up the others:
+ * <ul>
+ * <li>the number of discoveries running at once is limited per discovery type, the host type (Linux, Windows, Esx,
+ * AIX, HPUX...) for hosts and the class name (Vcenter) for other targets</li>
+ * <li>each discovery has a deadline, after which it is reported as failed, its caller is released and the run is
+ * cancelled: it is interrupted, and the discovery adapters stop writing its results (see {@link #checkCancelled()})</li>
+ * <li>a target which failed FAILURES_BEFORE_BACKOFF times in a row is not discovered again by scheduled scans until
+ * its backoff, doubling with each failure up to the maximum backoff, expires. An explicit discovery request clears
+ * the backoff.</li>
+ * <li>the duration of the discovery of each target is recorded, and the slowest targets are logged periodically</li>
+ * <li>the state of a target is dropped when the target is removed, or when it was not discovered for longer than the
+ * maximum backoff</li>
+ * </ul>
+ */
+@Component
+public class ComputeSystemDiscoveryScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(ComputeSystemDiscoveryScheduler.class);
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final long DEFAULT_DEADLINE_SECONDS = 30 * 60;
+    public static final long DEFAULT_BACKOFF_SECONDS = 10 * 60;
+    public static final long DEFAULT_MAX_BACKOFF_SECONDS = 4 * 60 * 60;
+    public static final int FAILURES_BEFORE_BACKOFF = 2;
+
+    private static final long STATS_LOG_INTERVAL = TimeUnit.MINUTES.toMillis(15);
+    private static final long IDLE_EVICTION_INTERVAL = TimeUnit.MINUTES.toMillis(15);
+    private static final int STATS_LOG_TARGETS = 10;
+    // longest single wait, so the deadline is checked against the clock at least this often
+    private static final long DEFAULT_WAIT_SLICE_MILLIS = 1000;
+
+    // cancellation flag of the discovery run by the current thread
+    private static final ThreadLocal<AtomicBoolean> RUN_CANCELLED = new ThreadLocal<AtomicBoolean>();
+
+    /**
+     * Source of the current time, replaced by tests.
+     */
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Thrown when the discovery of a target is not run, because the target is backing off after failures, a previous
+     * discovery of the target is still running, or no slot was free before the deadline. The target did not fail
+     * again, so it is not reported as failed.
+     */
+    public static class DiscoverySkippedException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public DiscoverySkippedException(String message) {
+            super(message);
+        }
+
+        public DiscoverySkippedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private int defaultConcurrency = DEFAULT_CONCURRENCY;
+    private Map<String, Integer> concurrencyLimits = new HashMap<String, Integer>();
+    private long defaultDeadlineSeconds = DEFAULT_DEADLINE_SECONDS;
+    private Map<String, Long> deadlines = new HashMap<String, Long>();
+    private long backoffSeconds = DEFAULT_BACKOFF_SECONDS;
+    private long maxBackoffSeconds = DEFAULT_MAX_BACKOFF_SECONDS;
+
+    private final Map<String, DiscoveryPermits> permits = new ConcurrentHashMap<String, DiscoveryPermits>();
+    private final Map<String, TargetStats> targets = new ConcurrentHashMap<String, TargetStats>();
+    private final ThreadPoolExecutor executor = new NamedThreadPoolExecutor("ComputeSystemDiscovery", 0,
+            Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+    private volatile Clock clock = SYSTEM_CLOCK;
+    private long waitSliceMillis = DEFAULT_WAIT_SLICE_MILLIS;
+    private volatile long lastStatsLog = -1;
+    private volatile long lastIdleEviction = -1;
+
+    /**
+     * The slots of one discovery type. The limit can be changed while discoveries hold slots: lowering it takes the
+     * slots away as the running discoveries release them, so no more than the new limit run once they have ended.
+     */
+    private static class DiscoveryPermits extends Semaphore {
+        private static final long serialVersionUID = 1L;
+        private int limit;
+
+        private DiscoveryPermits(int limit) {
+            super(limit);
+            this.limit = limit;
+        }
+
+        private synchronized void setLimit(int newLimit) {
+            if (newLimit > limit) {
+                release(newLimit - limit);
+            } else if (newLimit < limit) {
+                reducePermits(limit - newLimit);
+            }
+            limit = newLimit;
+        }
+    }
+
+    /**
+     * Discovery state and durations of one target.
+     */
+    public static class TargetStats {
+        private final String targetId;
+        private String label;
+        private String type;
+        private boolean running;
+        private int consecutiveFailures;
+        private long backoffUntil;
+        private long discoveries;
+        private long lastDurationMillis;
+        private long maxDurationMillis;
+        private long totalDurationMillis;
+        private long lastWaitMillis;
+        private long lastUsed;
+
+        public TargetStats(String targetId) {
+            this.targetId = targetId;
+        }
+
+        public synchronized boolean isRunning() {
+            return running;
+        }
+
+        public synchronized int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        public synchronized long getBackoffUntil() {
+            return backoffUntil;
+        }
+
+        public synchronized long getDiscoveries() {
+            return discoveries;
+        }
+
+        public synchronized long getLastDurationMillis() {
+            return lastDurationMillis;
+        }
+
+        public synchronized long getMaxDurationMillis() {
+            return maxDurationMillis;
+        }
+
+        public synchronized long getMeanDurationMillis() {
+            return discoveries == 0 ? 0 : totalDurationMillis / discoveries;
+        }
+
+        private synchronized void started(DiscoveredSystemObject target, String discoveryType, long now, long waitMillis) {
+            lastUsed = now;
+            label = target.getLabel();
+            type = discoveryType;
+            running = true;
+            lastWaitMillis = waitMillis;
+        }
+
+        private synchronized void finished(long now, long durationMillis) {
+            lastUsed = now;
+            running = false;
+            discoveries++;
+            lastDurationMillis = durationMillis;
+            maxDurationMillis = Math.max(maxDurationMillis, durationMillis);
+            totalDurationMillis += durationMillis;
+        }
+
+        private synchronized void succeeded() {
+            consecutiveFailures = 0;
+            backoffUntil = 0;
+        }
+
+        private synchronized void failed(long now, long backoffMillis, long maxBackoffMillis) {
+            consecutiveFailures++;
+            if (consecutiveFailures >= FAILURES_BEFORE_BACKOFF) {
+                int doublings = Math.min(consecutiveFailures - FAILURES_BEFORE_BACKOFF, 16);
+                backoffUntil = now + Math.min(backoffMillis << doublings, maxBackoffMillis);
+            }
+        }
+
+        private synchronized void clearBackoff() {
+            backoffUntil = 0;
+        }
+
+        private synchronized boolean isIdle(long now, long maxIdleMillis) {
+            return !running && backoffUntil <= now && now - lastUsed > maxIdleMillis;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s [%s] %s: last=%dms mean=%dms max=%dms wait=%dms discoveries=%d failures=%d%s",
+                    label, targetId, type, lastDurationMillis, getMeanDurationMillis(), maxDurationMillis,
+                    lastWaitMillis, discoveries, consecutiveFailures, running ? " running" : "");
+        }
+    }
+
+    /**
+     * Sets the default number of discoveries of one type which may run at once.
+     */
+    public void setDefaultConcurrency(int defaultConcurrency) {
+        synchronized (permits) {
+            this.defaultConcurrency = defaultConcurrency;
+            updateLimits();
+        }
+    }
+
+    /**
+     * Sets the number of discoveries which may run at once, by discovery type. When a limit is lowered, the
+     * discoveries already running keep their slots, and no other discovery of the type starts until fewer than
+     * the new limit are running.
+     */
+    public void setConcurrencyLimits(Map<String, Integer> concurrencyLimits) {
+        synchronized (permits) {
+            this.concurrencyLimits = concurrencyLimits;
+            updateLimits();
+        }
+    }
+
+    public void setDefaultDeadlineSeconds(long defaultDeadlineSeconds) {
+        this.defaultDeadlineSeconds = defaultDeadlineSeconds;
+    }
+
+    /**
+     * Sets the time allowed for the discovery of one target, including the wait for a free slot, by discovery type.
+     */
+    public void setDeadlines(Map<String, Long> deadlines) {
+        this.deadlines = deadlines;
+    }
+
+    public void setBackoffSeconds(long backoffSeconds) {
+        this.backoffSeconds = backoffSeconds;
+    }
+
+    public void setMaxBackoffSeconds(long maxBackoffSeconds) {
+        this.maxBackoffSeconds = maxBackoffSeconds;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the longest single wait for a slot or for a running discovery, after which the deadline is checked again.
+     */
+    public void setWaitSliceMillis(long waitSliceMillis) {
+        this.waitSliceMillis = waitSliceMillis;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Waits for the discoveries still running after {@link #shutdown()} to end.
+     *
+     * @return true if they ended, false if the timeout elapsed first.
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Stops the discovery of the current thread if it was cancelled after its deadline. The discovery adapters call it
+     * before writing, so a discovery already reported as failed does not write its results late.
+     *
+     * @throws CancellationException
+     *             if the discovery run by the current thread was cancelled.
+     */
+    public static void checkCancelled() {
+        AtomicBoolean cancelled = RUN_CANCELLED.get();
+        if (cancelled != null && cancelled.get()) {
+            throw new CancellationException("The discovery was cancelled after its deadline");
+        }
+    }
+
+    /**
+     * Gets the type which the concurrency limit and the deadline of the discovery of a target are looked up by.
+     *
+     * @param target
+     *            the discovery target.
+     * @return the host type for a host, or the class name of the target.
+     */
+    public static String getDiscoveryType(DiscoveredSystemObject target) {
+        if (target instanceof Host && StringUtils.isNotBlank(((Host) target).getType())) {
+            return ((Host) target).getType();
+        }
+        return target.getClass().getSimpleName();
+    }
+
+    /**
+     * Runs the discovery of a target once a slot is free for its type, and waits for it until its deadline.
+     *
+     * @param target
+     *            the discovery target.
+     * @param discovery
+     *            the discovery of the target.
+     * @param scheduled
+     *            true for a scheduled scan, which is skipped while the target backs off after failures, false for an
+     *            explicit request, which clears the backoff.
+     * @throws DiscoverySkippedException
+     *             if the target is backing off after failures, if a previous discovery of the target is still running,
+     *             or if no slot was free before the deadline.
+     * @throws IllegalStateException
+     *             if the discovery did not complete before the deadline.
+     * @throws RuntimeException
+     *             the exception thrown by the discovery.
+     */
+    public void discover(DiscoveredSystemObject target, final Runnable discovery, boolean scheduled) {
+        final String targetId = target.getId().toString();
+        String type = getDiscoveryType(target);
+        long start = clock.currentTimeMillis();
+        long deadline = start + TimeUnit.SECONDS.toMillis(getDeadlineSeconds(type));
+
+        final TargetStats stats = getTargetStats(targetId);
+        if (stats.isRunning()) {
+            throw new DiscoverySkippedException(String.format("A previous discovery of %s is still running", target.getLabel()));
+        }
+        if (!scheduled) {
+            stats.clearBackoff();
+        } else if (stats.getBackoffUntil() > start) {
+            throw new DiscoverySkippedException(String.format(
+                    "Discovery of %s is deferred for %d seconds after %d consecutive failures",
+                    target.getLabel(), TimeUnit.MILLISECONDS.toSeconds(stats.getBackoffUntil() - start),
+                    stats.getConsecutiveFailures()));
+        }
+
+        final Semaphore semaphore = getPermits(type);
+        try {
+            if (!acquire(semaphore, deadline)) {
+                // not counted as a failure of the target, which never got to run
+                throw new DiscoverySkippedException(String.format("No %s discovery slot was free within %d seconds for %s",
+                        type, TimeUnit.MILLISECONDS.toSeconds(deadline - start), target.getLabel()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DiscoverySkippedException("Interrupted waiting for a discovery slot for " + target.getLabel(), e);
+        }
+
+        final long runStart = clock.currentTimeMillis();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        // claimed by the run when it starts, or by the caller to release the slot of a run cancelled before it started
+        final AtomicBoolean started = new AtomicBoolean();
+        stats.started(target, type, runStart, runStart - start);
+        Future<?> future;
+        try {
+            future = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (!started.compareAndSet(false, true)) {
+                        return;
+                    }
+                    RUN_CANCELLED.set(cancelled);
+                    try {
+                        discovery.run();
+                    } finally {
+                        RUN_CANCELLED.remove();
+                        long end = clock.currentTimeMillis();
+                        stats.finished(end, end - runStart);
+                        semaphore.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            stats.finished(runStart, 0);
+            semaphore.release();
+            throw e;
+        }
+
+        try {
+            if (!await(future, deadline)) {
+                cancel(future, cancelled, started, stats, semaphore);
+                recordFailure(stats);
+                throw new IllegalStateException(String.format("Discovery of %s did not complete within %d seconds",
+                        target.getLabel(), TimeUnit.MILLISECONDS.toSeconds(deadline - start)));
+            }
+            stats.succeeded();
+        } catch (ExecutionException e) {
+            recordFailure(stats);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            cancel(future, cancelled, started, stats, semaphore);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the discovery of " + target.getLabel(), e);
+        } finally {
+            LOG.info("Discovery of {} [{}] took {} ms, after waiting {} ms for a {} discovery slot",
+                    new Object[] { target.getLabel(), targetId, clock.currentTimeMillis() - runStart, runStart - start, type });
+            logStats();
+            evictIdleTargets();
+        }
+    }
+
+    /**
+     * Cancels a discovery which is no longer waited for. A running discovery is interrupted and stops at its next
+     * write; it keeps its slot until it ends, so the target is not discovered twice at once. The slot of a discovery
+     * which did not start yet is released.
+     */
+    private void cancel(Future<?> future, AtomicBoolean cancelled, AtomicBoolean started, TargetStats stats,
+            Semaphore semaphore) {
+        cancelled.set(true);
+        future.cancel(true);
+        if (started.compareAndSet(false, true)) {
+            stats.finished(clock.currentTimeMillis(), 0);
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Waits for a permit until the deadline, checking the deadline against the clock after each wait slice.
+     *
+     * @return true if the permit was acquired, false if the deadline passed.
+     */
+    private boolean acquire(Semaphore semaphore, long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - clock.currentTimeMillis()) > 0) {
+            if (semaphore.tryAcquire(Math.min(remaining, waitSliceMillis), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return semaphore.tryAcquire();
+    }
+
+    /**
+     * Waits for the discovery until the deadline, checking the deadline against the clock after each wait slice.
+     *
+     * @return true if the discovery completed, false if the deadline passed.
+     */
+    private boolean await(Future<?> future, long deadline) throws InterruptedException, ExecutionException {
+        long remaining;
+        while ((remaining = deadline - clock.currentTimeMillis()) > 0) {
+            try {
+                future.get(Math.min(remaining, waitSliceMillis), TimeUnit.MILLISECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                // check the deadline again
+            }
+        }
+        if (future.isDone()) {
+            future.get();
+            return true;
+        }
+        return false;
+    }
+
+    private void recordFailure(TargetStats stats) {
+        stats.failed(clock.currentTimeMillis(), TimeUnit.SECONDS.toMillis(backoffSeconds), TimeUnit.SECONDS.toMillis(maxBackoffSeconds));
+    }
+
+    private long getDeadlineSeconds(String type) {
+        Long seconds = deadlines.get(type);
+        return seconds != null ? seconds : defaultDeadlineSeconds;
+    }
+
+    private Semaphore getPermits(String type) {
+        synchronized (permits) {
+            DiscoveryPermits semaphore = permits.get(type);
+            if (semaphore == null) {
+                semaphore = new DiscoveryPermits(getConcurrencyLimit(type));
+                permits.put(type, semaphore);
+            }
+            return semaphore;
+        }
+    }
+
+    private int getConcurrencyLimit(String type) {
+        Integer limit = concurrencyLimits.get(type);
+        return Math.max(limit != null ? limit : defaultConcurrency, 1);
+    }
+
+    /**
+     * Applies the current limits to the slots of the types already discovered. Called holding the permits lock.
+     */
+    private void updateLimits() {
+        for (Map.Entry<String, DiscoveryPermits> entry : permits.entrySet()) {
+            entry.getValue().setLimit(getConcurrencyLimit(entry.getKey()));
+        }
+    }
+
+    /**
+     * Gets the discovery state and durations of a target.
+     *
+     * @param targetId
+     *            the ID of the target.
+     * @return the target stats.
+     */
+    public TargetStats getTargetStats(String targetId) {
+        TargetStats stats = targets.get(targetId);
+        if (stats == null) {
+            synchronized (targets) {
+                stats = targets.get(targetId);
+                if (stats == null) {
+                    stats = new TargetStats(targetId);
+                    targets.put(targetId, stats);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Drops the discovery state and durations of a target which was removed. The state of a target still being
+     * discovered is kept until it has been idle for longer than the maximum backoff.
+     *
+     * @param targetId
+     *            the ID of the target.
+     */
+    public void removeTarget(String targetId) {
+        TargetStats stats = targets.get(targetId);
+        if (stats != null && !stats.isRunning()) {
+            targets.remove(targetId, stats);
+        }
+    }
+
+    /**
+     * Gets the targets whose discovery took the longest the last time they were discovered.
+     *
+     * @param count
+     *            the maximum number of targets.
+     * @return the targets, slowest first.
+     */
+    public List<TargetStats> getSlowestTargets(int count) {
+        List<TargetStats> slowest = new ArrayList<TargetStats>(targets.values());
+        Collections.sort(slowest, new Comparator<TargetStats>() {
+            @Override
+            public int compare(TargetStats a, TargetStats b) {
+                return Long.compare(b.getLastDurationMillis(), a.getLastDurationMillis());
+            }
+        });
+        return slowest.subList(0, Math.min(count, slowest.size()));
+    }
+
+    private void logStats() {
+        long now = clock.currentTimeMillis();
+        if (lastStatsLog < 0) {
+            lastStatsLog = now;
+        }
+        if (now - lastStatsLog < STATS_LOG_INTERVAL) {
+            return;
+        }
+        lastStatsLog = now;
+        for (TargetStats stats : getSlowestTargets(STATS_LOG_TARGETS)) {
+            LOG.info("Slowest compute system discoveries: {}", stats);
+        }
+    }
+
+    /**
+     * Drops the state of the targets which were not discovered for longer than the maximum backoff, such as targets
+     * removed without {@link #removeTarget(String)} being called. Any backoff of such a target has expired, so
+     * nothing is lost but its durations.
+     */
+    private void evictIdleTargets() {
+        long now = clock.currentTimeMillis();
+        if (lastIdleEviction < 0) {
+            lastIdleEviction = now;
+        }
+        if (now - lastIdleEviction < IDLE_EVICTION_INTERVAL) {
+            return;
+        }
+        lastIdleEviction = now;
+        long maxIdleMillis = TimeUnit.SECONDS.toMillis(maxBackoffSeconds);
+        for (Map.Entry<String, TargetStats> entry : targets.entrySet()) {
+            if (entry.getValue().isIdle(now, maxIdleMillis)) {
+                targets.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
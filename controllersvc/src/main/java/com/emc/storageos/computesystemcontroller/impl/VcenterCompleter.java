@@ -10,6 +10,7 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.emc.storageos.computesystemcontroller.impl.adapter.VcenterDiscoveryAdapter;
 import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.constraint.NamedElementQueryResultList;
 import com.emc.storageos.db.client.model.VcenterDataCenter;
@@ -52,6 +53,7 @@ public class VcenterCompleter extends ComputeSystemCompleter {
             }
             vcenter.setRegistrationStatus(RegistrationStatus.UNREGISTERED.toString());
             dbClient.markForDeletion(vcenter);
+            VcenterDiscoveryAdapter.closeInventorySession(vcenter.getId());
             _logger.info("Deactivating Vcenter: " + this.getId());
         }
     }
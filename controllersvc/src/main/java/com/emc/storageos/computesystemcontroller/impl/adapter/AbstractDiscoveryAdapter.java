@@ -25,6 +25,7 @@ import com.emc.storageos.computesystemcontroller.ComputeSystemController;
 import com.emc.storageos.computesystemcontroller.ComputeSystemDialogProperties;
 import com.emc.storageos.computesystemcontroller.exceptions.ComputeSystemControllerException;
 import com.emc.storageos.computesystemcontroller.impl.ComputeSystemDiscoveryAdapter;
+import com.emc.storageos.computesystemcontroller.impl.ComputeSystemDiscoveryScheduler;
 import com.emc.storageos.computesystemcontroller.impl.ComputeSystemDiscoveryVersionValidator;
 import com.emc.storageos.computesystemcontroller.impl.ComputeSystemHelper;
 import com.emc.storageos.computesystemcontroller.impl.DiscoveryStatusUtils;
@@ -164,7 +165,7 @@ public abstract class AbstractDiscoveryAdapter implements ComputeSystemDiscovery
         for (IpInterface ipInterface : ipInterfaces) {
             if (ipInterface.getIsManualCreation() == null) {
                 ipInterface.setIsManualCreation(true);
-                modelClient.save(ipInterface);
+                save(ipInterface);
             }
         }
     }
@@ -344,6 +345,7 @@ public abstract class AbstractDiscoveryAdapter implements ComputeSystemDiscovery
     }
 
     protected void save(DataObject model) {
+        ComputeSystemDiscoveryScheduler.checkCancelled();
         if (model.getCreationTime() == null) {
             debug("Creating %s: %s", model.getClass().getSimpleName(), toString(model));
         } else {
@@ -353,6 +355,7 @@ public abstract class AbstractDiscoveryAdapter implements ComputeSystemDiscovery
     }
 
     protected void delete(DataObject model) {
+        ComputeSystemDiscoveryScheduler.checkCancelled();
         debug("Deactivating %s: %s", model.getClass().getSimpleName(), toString(model));
         model.setInactive(true);
         modelClient.save(model);
@@ -513,6 +516,7 @@ public abstract class AbstractDiscoveryAdapter implements ComputeSystemDiscovery
 
     @SuppressWarnings("unchecked")
     public void processHostChanges(List<HostStateChange> changes, List<URI> deletedHosts, List<URI> deletedClusters, boolean isVCenter) {
+        ComputeSystemDiscoveryScheduler.checkCancelled();
 
         log.info("There are " + changes.size() + " changes");
 
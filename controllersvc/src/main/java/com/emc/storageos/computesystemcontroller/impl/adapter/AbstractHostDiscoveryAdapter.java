@@ -240,7 +240,7 @@ public abstract class AbstractHostDiscoveryAdapter extends AbstractDiscoveryAdap
         cluster.setLabel(clusterName);
         cluster.setTenant(tenant);
 
-        getModelClient().save(cluster);
+        save(cluster);
 
         return cluster.getId();
     }
@@ -319,12 +319,35 @@ public class EsxHostDiscoveryAdapter extends AbstractHostDiscoveryAdapter {
     protected void discoverConnectedHostInitiators(HostSystem hostSystem,
             Host targetHost, List<Initiator> oldInitiators,
             List<Initiator> addedInitiators) {
+        discoverConnectedHostInitiators(getNics(hostSystem),
+                getHostBusAdapters(hostSystem), targetHost, oldInitiators,
+                addedInitiators);
+    }
+
+    /**
+     * Discovers connected Host's Initiators and Ipinterfaces from the virtual
+     * nics and host bus adapters already fetched for the host
+     * 
+     * @param nics
+     *            - virtual nics of the host
+     * @param hostBusAdapters
+     *            - host bus adapters of the host
+     * @param targetHost
+     *            - {@link Host} being discovered.
+     * @param oldInitiators
+     *            - old initiator list
+     * @param addedInitiators
+     *            - new/added initiator list
+     */
+    protected void discoverConnectedHostInitiators(List<HostVirtualNic> nics,
+            List<HostHostBusAdapter> hostBusAdapters, Host targetHost,
+            List<Initiator> oldInitiators, List<Initiator> addedInitiators) {
 
         // discover ipInterfaces
         info(String.format("Discovering IP interfaces for %s", targetHost.forDisplay()));
         List<IpInterface> oldIpInterfaces = new ArrayList<IpInterface>();
         Iterables.addAll(oldIpInterfaces, getIpInterfaces(targetHost));
-        for (HostVirtualNic nic : getNics(hostSystem)) {
+        for (HostVirtualNic nic : nics) {
             if (isIp6Interface(nic)) {
                 IpInterface ipInterface = getOrCreateIpInterface(
                         oldIpInterfaces, nic.spec.getIp().ipAddress);
@@ -340,7 +363,7 @@ public class EsxHostDiscoveryAdapter extends AbstractHostDiscoveryAdapter {
 
         info(String.format("Discovering initiators for %s", targetHost.forDisplay()));
         Iterables.addAll(oldInitiators, getInitiators(targetHost));
-        for (HostHostBusAdapter hba : getHostBusAdapters(hostSystem)) {
+        for (HostHostBusAdapter hba : hostBusAdapters) {
             if (hba instanceof HostFibreChannelHba) {
                 String port = SanUtils.normalizeWWN(((HostFibreChannelHba) hba)
                         .getPortWorldWideName());
@@ -410,10 +433,24 @@ public class EsxHostDiscoveryAdapter extends AbstractHostDiscoveryAdapter {
      *         found
      */
     protected Host findExistingHost(HostSystem hostSystem) {
+        return findExistingHost(hostSystem.getName(), getNics(hostSystem));
+    }
+
+    /**
+     * Find an existing host with matching label or ip address
+     * 
+     * @param name
+     *            the host system name
+     * @param nics
+     *            the virtual nics of the host system
+     * @return host that has a matching label or ip address, null if can't be
+     *         found
+     */
+    protected Host findExistingHost(String name, List<HostVirtualNic> nics) {
         List<Host> hosts = CustomQueryUtility.queryActiveResourcesByConstraint(
                 dbClient, Host.class, PrefixConstraint.Factory
                         .getFullMatchConstraint(Host.class, "label",
-                                hostSystem.getName()));
+                                name));
         for (Host host : hosts) {
             if (isEsxOtherOrNoOsHost(host)) {
                 return host;
@@ -421,14 +458,14 @@ public class EsxHostDiscoveryAdapter extends AbstractHostDiscoveryAdapter {
         }
 
         List<Host> results = CustomQueryUtility.queryActiveResourcesByAltId(
-                dbClient, Host.class, "hostName", hostSystem.getName());
+                dbClient, Host.class, "hostName", name);
         for (Host host : results) {
             if (isEsxOtherOrNoOsHost(host)) {
                 return host;
             }
         }
 
-        List<String> ipAddresses = getHostIpAddresses(hostSystem);
+        List<String> ipAddresses = getHostIpAddresses(nics);
         for (String ipAddress : ipAddresses) {
             hosts = CustomQueryUtility.queryActiveResourcesByConstraint(
                     dbClient, Host.class, PrefixConstraint.Factory
@@ -477,13 +514,13 @@ public class EsxHostDiscoveryAdapter extends AbstractHostDiscoveryAdapter {
     /**
      * Get list of IP addresses for the given host
      * 
-     * @param hostSystem
-     *            {@link HostSystem} vi sdk MO
+     * @param nics
+     *            virtual nics of the host
      * @return
      */
-    private List<String> getHostIpAddresses(HostSystem hostSystem) {
+    private List<String> getHostIpAddresses(List<HostVirtualNic> nics) {
         List<String> ipAddresses = Lists.newArrayList();
-        for (HostVirtualNic vnic : getNics(hostSystem)) {
+        for (HostVirtualNic vnic : nics) {
             if (vnic.getSpec() != null && vnic.getSpec().getIp() != null) {
                 String ipAddress = vnic.getSpec().getIp().getIpAddress();
                 if (!StringUtils.isEmpty(ipAddress)) {
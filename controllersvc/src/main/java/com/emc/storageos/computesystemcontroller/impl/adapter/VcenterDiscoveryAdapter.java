@@ -12,9 +12,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
@@ -40,19 +48,21 @@ import com.emc.storageos.db.client.model.util.EventUtils;
 import com.emc.storageos.db.client.util.CommonTransformerFunctions;
 import com.emc.storageos.db.client.util.NullColumnValueGetter;
 import com.emc.storageos.security.authorization.BasePermissionsHelper;
+import com.emc.storageos.services.util.NamedScheduledThreadPoolExecutor;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.iwave.ext.vmware.VCenterAPI;
+import com.iwave.ext.vmware.VCenterInventory;
+import com.iwave.ext.vmware.VCenterInventory.Entity;
+import com.iwave.ext.vmware.VCenterInventoryCollector;
 import com.iwave.ext.vmware.VcenterVersion;
 import com.vmware.vim25.AboutInfo;
-import com.vmware.vim25.HostHardwareInfo;
+import com.vmware.vim25.HostHostBusAdapter;
 import com.vmware.vim25.HostSystemConnectionState;
+import com.vmware.vim25.HostVirtualNic;
 import com.vmware.vim25.InvalidLogin;
-import com.vmware.vim25.mo.ClusterComputeResource;
-import com.vmware.vim25.mo.Datacenter;
-import com.vmware.vim25.mo.HostSystem;
 
 /**
  * Discovery adapter for vCenters.
@@ -61,6 +71,17 @@ import com.vmware.vim25.mo.HostSystem;
  */
 @Component
 public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
+    // vCenter sessions kept between discoveries, by vCenter id
+    private static final Map<URI, InventorySession> inventorySessions = new ConcurrentHashMap<URI, InventorySession>();
+
+    // vCenter logs out sessions idle for 30 minutes by default, less than the discovery interval
+    private static final long SESSION_KEEPALIVE_MINUTES = 10;
+    private static final long DEFAULT_MAX_SESSION_IDLE_MINUTES = 3 * 60;
+
+    private boolean incrementalDiscovery = true;
+    private long maxSessionIdleMinutes = DEFAULT_MAX_SESSION_IDLE_MINUTES;
+    private ScheduledExecutorService sessionKeeper;
+
     @Override
     public boolean isSupportedTarget(String targetId) {
         return URIUtil.isType(URI.create(targetId), Vcenter.class);
@@ -248,6 +269,145 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
         return new VCenterAPI(url, username, password);
     }
 
+    /**
+     * Gets the values identifying the connection to a vCenter, so a kept session is not reused once
+     * the address or the credentials of the vCenter change.
+     */
+    private static List<Object> getConnectionKey(Vcenter vcenter) {
+        return Lists.<Object> newArrayList(vcenter.getIpAddress(), vcenter.getPortNumber(), vcenter.getUsername(),
+                vcenter.getPassword());
+    }
+
+    /**
+     * Enables keeping the vCenter session and its inventory property filter between discoveries, so the
+     * next discovery of the vCenter only fetches the objects which changed. When disabled, the whole
+     * inventory is retrieved on each discovery.
+     * 
+     * @param incrementalDiscovery true to refresh the inventory incrementally
+     */
+    public void setIncrementalDiscovery(boolean incrementalDiscovery) {
+        this.incrementalDiscovery = incrementalDiscovery;
+    }
+
+    /**
+     * Sets how long the session of a vCenter is kept alive without being used by a discovery, for
+     * example when discovery of the vCenter is disabled.
+     * 
+     * @param maxSessionIdleMinutes the time after which an unused session is logged out
+     */
+    public void setMaxSessionIdleMinutes(long maxSessionIdleMinutes) {
+        this.maxSessionIdleMinutes = maxSessionIdleMinutes;
+    }
+
+    @PostConstruct
+    public void startSessionKeeper() {
+        sessionKeeper = new NamedScheduledThreadPoolExecutor("VcenterSessionKeeper", 1);
+        sessionKeeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    keepSessionsAlive();
+                } catch (RuntimeException e) {
+                    warn(e, "Problem keeping the vCenter sessions alive");
+                }
+            }
+        }, SESSION_KEEPALIVE_MINUTES, SESSION_KEEPALIVE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void closeSessions() {
+        if (sessionKeeper != null) {
+            sessionKeeper.shutdownNow();
+        }
+        for (URI vcenterId : inventorySessions.keySet()) {
+            closeInventorySession(vcenterId);
+        }
+    }
+
+    /**
+     * Logs out the session kept for the next discovery of a vCenter, if any. Called when the vCenter is deleted.
+     * 
+     * @param vcenterId the vCenter id
+     */
+    public static void closeInventorySession(URI vcenterId) {
+        InventorySession session = inventorySessions.remove(vcenterId);
+        if (session != null) {
+            session.closeQuietly();
+        }
+    }
+
+    /**
+     * Makes a call on each kept session so vCenter does not expire it between discoveries, and logs out the
+     * sessions of deleted vCenters and the sessions unused for maxSessionIdleMinutes.
+     */
+    protected void keepSessionsAlive() {
+        long maxIdleMillis = TimeUnit.MINUTES.toMillis(maxSessionIdleMinutes);
+        for (Map.Entry<URI, InventorySession> entry : inventorySessions.entrySet()) {
+            URI vcenterId = entry.getKey();
+            InventorySession session = entry.getValue();
+            // taken out of the map while in use, so a discovery starting meanwhile does not share it
+            if (!inventorySessions.remove(vcenterId, session)) {
+                continue;
+            }
+            Vcenter vcenter = getDbClient().queryObject(Vcenter.class, vcenterId);
+            if (vcenter == null || vcenter.getInactive()) {
+                info("Closing the session of deleted vCenter %s", vcenterId);
+                session.closeQuietly();
+                continue;
+            }
+            if (System.currentTimeMillis() - session.lastUsed > maxIdleMillis) {
+                info("Closing the session of vCenter %s, unused for %d minutes", vcenter.getLabel(),
+                        TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - session.lastUsed));
+                session.closeQuietly();
+                continue;
+            }
+            try {
+                session.vcenterAPI.getCurrentTime();
+            } catch (RuntimeException e) {
+                warn(e, "Unable to keep the session of vCenter %s alive", vcenter.getLabel());
+                session.closeQuietly();
+                continue;
+            }
+            InventorySession newer = inventorySessions.putIfAbsent(vcenterId, session);
+            if (newer != null) {
+                session.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * A logged in vCenter session, with the inventory collected through the property filter of the session.
+     */
+    protected static class InventorySession {
+        private final List<Object> connectionKey;
+        private final VCenterAPI vcenterAPI;
+        private final VCenterInventoryCollector collector;
+        private VCenterInventory inventory;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        public InventorySession(Vcenter vcenter) {
+            connectionKey = getConnectionKey(vcenter);
+            vcenterAPI = createVCenterAPI(vcenter);
+            collector = new VCenterInventoryCollector(vcenterAPI);
+        }
+
+        public void close() {
+            try {
+                collector.close();
+            } finally {
+                vcenterAPI.logout();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                close();
+            } catch (RuntimeException e) {
+                LoggerFactory.getLogger(VcenterDiscoveryAdapter.class).warn("Problem closing a vCenter session", e);
+            }
+        }
+    }
+
     /**
      * Discovery processor for VCenters.
      * 
@@ -256,13 +416,23 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
     protected class DiscoveryProcessor {
         private Vcenter vcenter;
         private VCenterAPI vcenterAPI;
+        private InventorySession session;
+        private VCenterInventory inventory;
 
         public DiscoveryProcessor(Vcenter vcenter) {
             this.vcenter = vcenter;
         }
 
         public void discover(List<HostStateChange> changes, List<URI> deletedHosts, List<URI> deletedClusters, Set<URI> discoveredHosts) {
-            vcenterAPI = createVCenterAPI(vcenter);
+            session = incrementalDiscovery ? inventorySessions.remove(vcenter.getId()) : null;
+            if (session != null && !session.connectionKey.equals(getConnectionKey(vcenter))) {
+                closeSession();
+            }
+            if (session == null) {
+                session = new InventorySession(vcenter);
+            }
+            vcenterAPI = session.vcenterAPI;
+            boolean keepSession = false;
             try {
                 AboutInfo aboutInfo = vcenterAPI.getAboutInfo();
                 if (!StringUtils.equals(aboutInfo.getApiType(), VCenterAPI.VCENTER_API_TYPE)) {
@@ -270,14 +440,75 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
                 }
                 checkDuplicateVcenter(vcenter, aboutInfo.getInstanceUuid());
                 vcenter.setNativeGuid(aboutInfo.getInstanceUuid());
+                inventory = collectInventory();
                 discoverDatacenters(changes, deletedHosts, deletedClusters, discoveredHosts);
+                keepSession = incrementalDiscovery;
             } finally {
-                vcenterAPI.logout();
+                if (keepSession) {
+                    session.lastUsed = System.currentTimeMillis();
+                    InventorySession previous = inventorySessions.put(vcenter.getId(), session);
+                    if (previous != null) {
+                        previous.closeQuietly();
+                    }
+                } else {
+                    closeSession();
+                }
             }
         }
 
-        private VcenterDataCenter findOrCreateDataCenter(List<VcenterDataCenter> datacenters, Datacenter sourceDatacenter) {
-            VcenterDataCenter dataCenter = findDatacenterByExternalId(datacenters, sourceDatacenter.getMOR().getVal());
+        /**
+         * Collects the inventory of the vCenter. A session kept from the previous discovery only fetches
+         * the objects which changed since; if that fails, for example because the session expired, the
+         * whole inventory is collected again on a new session.
+         */
+        private VCenterInventory collectInventory() {
+            if (!incrementalDiscovery) {
+                VCenterInventory retrieved = session.collector.retrieveInventory();
+                info("retrieved %d inventory objects", retrieved.size());
+                return retrieved;
+            }
+            if (session.inventory != null) {
+                try {
+                    int changed = session.collector.refreshInventory(session.inventory);
+                    info("refreshed inventory, %d of %d objects changed", changed, session.inventory.size());
+                    return session.inventory;
+                } catch (RuntimeException e) {
+                    warn(e, "Unable to refresh the inventory of vCenter %s, collecting it again", vcenter.getLabel());
+                    closeSession();
+                    session = new InventorySession(vcenter);
+                    vcenterAPI = session.vcenterAPI;
+                }
+            }
+            session.inventory = session.collector.startInventory();
+            info("collected %d inventory objects", session.inventory.size());
+            return session.inventory;
+        }
+
+        private void closeSession() {
+            try {
+                session.close();
+            } catch (RuntimeException e) {
+                warn(e, "Problem closing the session of vCenter %s", vcenter.getLabel());
+            } finally {
+                session = null;
+            }
+        }
+
+        private List<HostVirtualNic> getVirtualNics(Entity host) {
+            return host.getListProperty(VCenterInventory.HOST_VIRTUAL_NICS);
+        }
+
+        private List<HostHostBusAdapter> getHbas(Entity host) {
+            return host.getListProperty(VCenterInventory.HOST_BUS_ADAPTERS);
+        }
+
+        private String getHostUuid(Entity host) {
+            String uuid = host.getProperty(VCenterInventory.HOST_UUID);
+            return StringUtils.isNotBlank(uuid) ? uuid : null;
+        }
+
+        private VcenterDataCenter findOrCreateDataCenter(List<VcenterDataCenter> datacenters, Entity sourceDatacenter) {
+            VcenterDataCenter dataCenter = findDatacenterByExternalId(datacenters, sourceDatacenter.getId());
 
             if (dataCenter != null) {
                 datacenters.remove(dataCenter);
@@ -292,7 +523,7 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
             List<VcenterDataCenter> oldDatacenters = new ArrayList<VcenterDataCenter>();
             Iterables.addAll(oldDatacenters, getDatacenters(vcenter));
 
-            for (Datacenter sourceDatacenter : vcenterAPI.listAllDatacenters()) {
+            for (Entity sourceDatacenter : inventory.getDatacenters()) {
                 VcenterDataCenter targetDatacenter = findOrCreateDataCenter(oldDatacenters, sourceDatacenter);
                 discoverDatacenter(sourceDatacenter, targetDatacenter, changes, deletedHosts, deletedClusters, discoveredHosts);
             }
@@ -300,16 +531,12 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
             deleteDatacenters(oldDatacenters, deletedHosts, deletedClusters);
         }
 
-        private Cluster findClusterHostUuid(ClusterComputeResource cluster) {
+        private Cluster findClusterHostUuid(Entity cluster) {
             String hostUuid = null;
-            HostSystem[] hosts = cluster.getHosts();
-            if (hosts != null) {
-                for (HostSystem host : hosts) {
-                    HostHardwareInfo hw = host.getHardware();
-                    if (hw != null && hw.systemInfo != null && StringUtils.isNotBlank(hw.systemInfo.uuid)) {
-                        hostUuid = hw.systemInfo.uuid;
-                        break;
-                    }
+            for (Entity host : inventory.getClusterHosts(cluster)) {
+                hostUuid = getHostUuid(host);
+                if (hostUuid != null) {
+                    break;
                 }
             }
             if (hostUuid != null) {
@@ -331,12 +558,12 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
             return null;
         }
 
-        private void discoverDatacenter(Datacenter source, VcenterDataCenter target, List<HostStateChange> changes, List<URI> deletedHosts,
+        private void discoverDatacenter(Entity source, VcenterDataCenter target, List<HostStateChange> changes, List<URI> deletedHosts,
                 List<URI> deletedClusters, Set<URI> discoveredHosts) {
             info("processing datacenter %s", source.getName());
             target.setVcenter(vcenter.getId());
             setVcenterDataCenterTenant(target);
-            target.setExternalId(source.getMOR().getVal());
+            target.setExternalId(source.getId());
             target.setLabel(source.getName());
             save(target);
 
@@ -347,13 +574,11 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
 
             List<Host> oldHosts = new ArrayList<Host>();
             Iterables.addAll(oldHosts, getHosts(target));
-            for (HostSystem sourceHost : vcenterAPI.listHostSystems(source)) {
+            for (Entity sourceHost : inventory.getHostSystems(source)) {
                 Host targetHost = null;
-                HostHardwareInfo hw = sourceHost.getHardware();
-                String uuid = null;
-                if (hw != null && hw.systemInfo != null && StringUtils.isNotBlank(hw.systemInfo.uuid)) {
+                String uuid = getHostUuid(sourceHost);
+                if (uuid != null) {
                     // try finding host by UUID
-                    uuid = hw.systemInfo.uuid;
                     targetHost = findHostByUuid(uuid);
                 }
                 if (targetHost == null) {
@@ -361,7 +586,7 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
                         targetHost = getOrCreateHost(oldHosts, sourceHost.getName());
                     }
                     else {
-                        Host existingHost = findExistingHost(sourceHost);
+                        Host existingHost = findExistingHost(sourceHost.getName(), getVirtualNics(sourceHost));
                         if (existingHost != null) {
                             targetHost = existingHost;
                         }
@@ -378,10 +603,9 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
                         }
                     }
                 }
-                String bios = null;;
-                if (hw != null && hw.biosInfo != null
-                        && StringUtils.isNotBlank(hw.biosInfo.biosVersion)) {
-                    bios = hw.biosInfo.biosVersion;
+                String bios = sourceHost.getProperty(VCenterInventory.HOST_BIOS_VERSION);
+                if (StringUtils.isBlank(bios)) {
+                    bios = null;
                 }
                 if (deletedHosts != null && deletedHosts.contains(target.getId())) {
                     deletedHosts.remove(target.getId());
@@ -422,22 +646,22 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
          * Try find the cluster in Vipr by first by vcenter cluster ID, then by name, then by host membership.
          * If not found create new cluster.
          */
-        private void reconcileClusters(Datacenter source, VcenterDataCenter target, List<Cluster> oldClusters,
+        private void reconcileClusters(Entity source, VcenterDataCenter target, List<Cluster> oldClusters,
                 List<Cluster> newClusters) {
             List<ClusterHolder> allClusters = new ArrayList<ClusterHolder>();
             // get all clusters
-            List<ClusterComputeResource> vcClusters = vcenterAPI.listClusters(source);
+            List<Entity> vcClusters = inventory.getClusters(source);
             // put clusters in a sortable list
-            for (ClusterComputeResource vcCluster : vcClusters) {
-                allClusters.add(new ClusterHolder(vcCluster, vcCluster.getHosts().length));
+            for (Entity vcCluster : vcClusters) {
+                allClusters.add(new ClusterHolder(vcCluster, vcCluster.getListProperty(VCenterInventory.HOSTS).size()));
             }
             // sort clusters so that those with most host will be processed first
             Collections.sort(allClusters);
 
             // process clusters - try finding them first; if can't, create new one
             for (ClusterHolder clusterHolder : allClusters) {
-                ClusterComputeResource vcCluster = clusterHolder.cluster;
-                String vcenterClusterId = vcCluster.getMOR().getVal();
+                Entity vcCluster = clusterHolder.cluster;
+                String vcenterClusterId = vcCluster.getId();
                 info("processing cluster %s %s", vcCluster.getName(), vcenterClusterId);
 
                 // find this cluster
@@ -470,9 +694,9 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
          * c) Find Cluster that host is in.
          * d) Return that Cluster if its externalId is null - because otherwise it is related to another cluster.
          */
-        private Cluster findCluster(List<Cluster> oldClusters, ClusterComputeResource vcCluster, URI vCenterDataCenterId) {
+        private Cluster findCluster(List<Cluster> oldClusters, Entity vcCluster, URI vCenterDataCenterId) {
             // 1) find cluster by vcenter cluster id
-            Cluster targetCluster = findClusterByExternalId(oldClusters, vcCluster.getMOR().getVal());
+            Cluster targetCluster = findClusterByExternalId(oldClusters, vcCluster.getId());
             info("find by vcenter cluster id %s", targetCluster == null ? "NULL" : targetCluster.getLabel());
 
             if (targetCluster == null) {
@@ -510,7 +734,7 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
             return targetCluster;
         }
 
-        private void discoverHost(Datacenter sourceDatacenter, HostSystem source, String uuid, String bios, VcenterDataCenter targetDatacenter,
+        private void discoverHost(Entity sourceDatacenter, Entity source, String uuid, String bios, VcenterDataCenter targetDatacenter,
                 Host target, List<Cluster> clusters, List<HostStateChange> changes) {
             URI oldDatacenterURI = target.getVcenterDataCenter();
             URI newDatacenterURI = targetDatacenter.getId();
@@ -549,7 +773,10 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
                 target.setType(Host.HostType.Esx.name());
             }
             target.setHostName(target.getLabel());
-            target.setOsVersion(source.getConfig().getProduct().getVersion());
+            String osVersion = source.getProperty(VCenterInventory.HOST_PRODUCT_VERSION);
+            if (osVersion != null) {
+                target.setOsVersion(osVersion);
+            }
 
             if(bios != null) {
                 target.setBios(bios);
@@ -560,14 +787,14 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
             save(target);
 
             // Only attempt to update ip interfaces or initiators for connected hosts
-            HostSystemConnectionState connectionState = getConnectionState(source);
+            HostSystemConnectionState connectionState = source.getProperty(VCenterInventory.HOST_CONNECTION_STATE);
             info("Connection status for host %s is %s", target.forDisplay(), connectionState);
             if (connectionState == HostSystemConnectionState.connected) {
 
                 // discover initiators
                 List<Initiator> oldInitiators = new ArrayList<Initiator>();
                 List<Initiator> addedInitiators = new ArrayList<Initiator>();
-                discoverConnectedHostInitiators(source, target, oldInitiators, addedInitiators);
+                discoverConnectedHostInitiators(getVirtualNics(source), getHbas(source), target, oldInitiators, addedInitiators);
 
                 URI targetCluster = cluster != null ? cluster.getId() : NullColumnValueGetter.getNullURI();
 
@@ -592,9 +819,10 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
             }
         }
 
-        protected String getClusterName(HostSystem host) {
-            if (host.getParent() instanceof ClusterComputeResource) {
-                return host.getParent().getName();
+        protected String getClusterName(Entity host) {
+            Entity cluster = inventory.getCluster(host);
+            if (cluster != null) {
+                return cluster.getName();
             }
             else {
                 return null;
@@ -655,10 +883,10 @@ public class VcenterDiscoveryAdapter extends EsxHostDiscoveryAdapter {
          * This just to allow sorting of clusters by host count.
          */
         class ClusterHolder implements Comparable<ClusterHolder> {
-            public ClusterComputeResource cluster;
+            public Entity cluster;
             public int hostCount;
 
-            public ClusterHolder(ClusterComputeResource c, int num) {
+            public ClusterHolder(Entity c, int num) {
                 cluster = c;
                 hostCount = num;
             }
@@ -22,6 +22,7 @@ import org.apache.commons.lang.StringUtils;
 import org.springframework.stereotype.Component;
 
 import com.emc.storageos.computesystemcontroller.exceptions.ComputeSystemControllerException;
+import com.emc.storageos.computesystemcontroller.impl.ComputeSystemDiscoveryScheduler;
 import com.emc.storageos.computesystemcontroller.impl.ComputeSystemHelper;
 import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.model.Cluster;
@@ -142,6 +143,7 @@ public class WindowsHostDiscoveryAdapter extends AbstractHostDiscoveryAdapter {
         Cluster cluster = dbClient.queryObject(Cluster.class, clusterId);
         if (cluster != null) {
             cluster.setLabel(name);
+            ComputeSystemDiscoveryScheduler.checkCancelled();
             dbClient.updateObject(cluster);
             ComputeSystemHelper.updateInitiatorClusterName(dbClient, clusterId);
         }
@@ -7,14 +7,25 @@ package com.emc.storageos.locking;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 
 import com.emc.storageos.coordinator.client.service.CoordinatorClient;
 import com.emc.storageos.coordinator.client.service.DistributedAroundHook;
@@ -23,31 +34,30 @@ import com.emc.storageos.coordinator.client.service.DistributedLockQueueManager;
 import com.emc.storageos.coordinator.common.impl.ZkPath;
 import com.emc.storageos.exceptions.DeviceControllerException;
 
+/**
+ * DistributedOwner locks kept in ZK. All the locks of a request are acquired or released together
+ * in one ZK transaction, and an owner waiting for locks held by other owners is woken by a watch
+ * on the lock data node instead of polling.
+ */
+@ManagedResource(objectName = DistributedOwnerLockServiceImpl.MBEAN_NAME, description = "DistributedOwner lock service MBean")
 public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockService {
+    public static final String MBEAN_NAME = "com.emc.storageos.locking:name=DistributedOwnerLockService";
     /**
-     * 
+     * Longest time a waiting owner sleeps before checking the locks again, should a watch be lost
      */
-    private static final int SLEEP_MS_BETWEEN_ACQUIRE_ATTEMPTS = 10000;
+    private static final int MAX_MS_BETWEEN_ACQUIRE_ATTEMPTS = 10000;
+    private static final long LONG_LOCK_MS = 3600 * 1000;
+    private long maxMsBetweenAcquireAttempts = MAX_MS_BETWEEN_ACQUIRE_ATTEMPTS;
     private static final Logger log = LoggerFactory.getLogger(DistributedOwnerLockServiceImpl.class);
     private CoordinatorClient coordinator;
     private DistributedDataManager dataManager;
     private DistributedLockQueueManager lockQueueManager;
+    private final LockWaitStats waitStats = new LockWaitStats();
+    private volatile boolean lockRootCreated = false;
 
     @Override
     public boolean acquireLocks(List<String> lockKeys, String owner, long seconds) {
-        // Sort the lockKeys to maintain the same lock order.
-        Collections.sort(lockKeys);
-        for (int i = 0; i < lockKeys.size(); i++) {
-            boolean wasLocked = acquireLock(lockKeys.get(i), owner, seconds);
-            if (wasLocked == false) {
-                log.error("Error - Releasing all previously acquired locks");
-                for (int j = 0; j < i; j++) {
-                    releaseLock(lockKeys.get(j), owner);
-                }
-                return false;
-            }
-        }
-        return true;
+        return acquireAllLocks(lockKeys, owner, (System.currentTimeMillis() / 1000), seconds) == null;
     }
 
     @Override
@@ -60,37 +70,17 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
             log.info("Unable to acquire lock within the maximum waiting time {} seconds", maxLockWaitSeconds);
             return false;      // We've waited the maximum amount of time
         }
-        LockRetryException lockRetryThrowable = null;
-        // Sort the lockKeys to maintain the same lock order.
-        Collections.sort(lockKeys);
-        for (int i=0; i < lockKeys.size(); i++) {
-            // Poll, since we are going to throw an exception if cannot get lock.
-            boolean wasLocked = acquireLock(lockKeys.get(i), owner, lockingStartedTimeSeconds, 0);
-            if (wasLocked == false) {
-                String lockPath = getLockDataPath(lockKeys.get(i));
-                lockRetryThrowable = new LockRetryException(lockPath, remainingTimeSeconds);
-                log.error("Error - Releasing all previously acquired locks");
-                for (int j=0; j < i; j++) {
-                    releaseLock(lockKeys.get(j), owner);
-                }
-                throw lockRetryThrowable;
-            }
+        // Poll, since we are going to throw an exception if cannot get the locks.
+        String blockingKey = acquireAllLocks(lockKeys, owner, lockingStartedTimeSeconds, 0);
+        if (blockingKey != null) {
+            throw new LockRetryException(getLockDataPath(blockingKey), remainingTimeSeconds);
         }
         return true;
     }
 
     @Override
     public boolean releaseLocks(List<String> lockKeys, String owner) {
-        // Sort the lockKeys to maintain the same lock order.
-        Collections.sort(lockKeys);
-        boolean returnVal = true;
-        for (int i = 0; i < lockKeys.size(); i++) {
-            boolean returned = releaseLock(lockKeys.get(i), owner);
-            if (returned == false) {
-                returnVal = false;
-            }
-        }
-        return returnVal;
+        return releaseAllLocks(lockKeys, owner);
     }
 
     /*
@@ -148,97 +138,189 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
      */
     @Override
     public boolean acquireLock(String lockKey, String owner, long lockingStartedTimeSeconds, long maxWaitSeconds) {
-        boolean acquired = false;
-        long waitTime = 0;
-        InterProcessLock lock = null;
-        boolean reportedLongLock = false;
+        return acquireAllLocks(Collections.singletonList(lockKey), owner, lockingStartedTimeSeconds, maxWaitSeconds) == null;
+    }
+
+    /**
+     * Acquires all the locks for the owner, or none of them. While a lock is held by another
+     * owner, waits until that lock is released or until maxWaitSeconds after lockingStartedTimeSeconds.
+     * 
+     * @param lockKeys -- the lock keys; the order and duplicates do not matter
+     * @param owner -- Normally the workflow id or step id.
+     * @param lockingStartedTimeSeconds -- when the owner started trying to acquire the locks
+     * @param maxWaitSeconds -- maximum wait time from lockingStartedTimeSeconds, 0 to check once only
+     * @return null if all the locks were acquired, else the key of a lock which is held by
+     *         another owner or could not be checked
+     */
+    private String acquireAllLocks(List<String> lockKeys, String owner, long lockingStartedTimeSeconds, long maxWaitSeconds) {
+        List<String> keys = new ArrayList<String>(new TreeSet<String>(lockKeys));
+        if (keys.isEmpty()) {
+            return null;
+        }
+        long startTime = System.currentTimeMillis();
         boolean reportedBlocking = false;
-        do {
-            long currentTime = System.currentTimeMillis();
-            try {
-                // Get semaphore
-                lock = lockIPL(lockKey);
-                if (lock != null) {
-                    // Get the lock data.
-                    DistributedOwnerLockData data = loadLockData(lockKey);
-                    // If no data, then we got the lock
-                    if (data == null) {
-                        data = new DistributedOwnerLockData(owner, currentTime);
-                        persistLockData(lockKey, data);
-                        acquired = true;
-                    } else {
-                        // If we're already the owner, that's fine.
-                        if (data.owner.equals(owner)) {
-                            acquired = true;
-                        } else if (!reportedLongLock && currentTime / 1000 > data.timeAcquired + 3600) {
-                            reportedLongLock = true;
-                            log.info("Lock held more than 1 hour: " + lockKey + " owner: " + data.owner);
-                        }
-                    }
-                }
-            } finally {
-                unlockIPL(lock);
+        Set<String> reportedLongLocks = new HashSet<String>();
+        String blockingKey = null;
+        LockReleaseWatcher watcher = null;
+        while (true) {
+            // keep the watcher until it fires, so a retry does not register another watch on the same lock
+            if (maxWaitSeconds > 0 && (watcher == null || watcher.hasFired())) {
+                watcher = new LockReleaseWatcher();
             }
-            // Report the time to acquire the lock if acquired.
-            if (acquired) {
-                log.info(String.format("Lock %s owner %s acquired after %d seconds", lockKey, owner,
-                        (currentTime / 1000) - lockingStartedTimeSeconds));
+            blockingKey = tryAcquireLocks(keys, owner, watcher, reportedLongLocks);
+            long remainingMillis = (lockingStartedTimeSeconds + maxWaitSeconds) * 1000 - System.currentTimeMillis();
+            if (blockingKey == null || maxWaitSeconds <= 0 || remainingMillis <= 0) {
+                break;
+            }
+            if (!reportedBlocking) {
+                reportedBlocking = true;
+                log.info(String.format("Owner %s blocking to wait for lock %s maxWaitSeconds %d", owner, blockingKey, maxWaitSeconds));
             }
-            // Sleep if we did not acquire the lock and want to block
-            else if (maxWaitSeconds > 0) {
-                try {
-                    if (!reportedBlocking) {
-                        reportedBlocking = true;
-                        log.info(String.format("Owner %s blocking to wait for lock %s maxWaitSeconds %d", owner, lockKey, maxWaitSeconds));
+            watcher.await(Math.min(remainingMillis, maxMsBetweenAcquireAttempts));
+        }
+        long currentTime = System.currentTimeMillis();
+        if (blockingKey == null) {
+            waitStats.recordWait(keys, currentTime - startTime);
+            // Report the time to acquire the locks.
+            log.info(String.format("Locks %s owner %s acquired after %d seconds", keys, owner,
+                    (currentTime / 1000) - lockingStartedTimeSeconds));
+        } else {
+            waitStats.recordNotAcquired(Collections.singletonList(blockingKey));
+            if (maxWaitSeconds > 0) {
+                log.info("Timeout waiting on lock: " + blockingKey + " owner: " + owner);
+            }
+        }
+        return blockingKey;
+    }
+
+    /**
+     * Checks the locks once, and if none is held by another owner, stores the data of all
+     * the locks not yet held by the owner in one ZK transaction.
+     * 
+     * @param lockKeys -- sorted lock keys without duplicates
+     * @param owner -- the lock owner
+     * @param watcher -- if not null, set to watch the first lock held by another owner
+     * @param reportedLongLocks -- the locks already reported as held for a long time
+     * @return null if the locks were acquired, else the key of the first lock which is held
+     *         by another owner or could not be checked
+     */
+    private String tryAcquireLocks(List<String> lockKeys, String owner, LockReleaseWatcher watcher,
+            Set<String> reportedLongLocks) {
+        InterProcessLock lock = null;
+        try {
+            // Get semaphore
+            lock = lockIPL(null);
+            if (lock == null) {
+                return lockKeys.get(0);
+            }
+            long currentTime = System.currentTimeMillis();
+            List<String> locksToStore = new ArrayList<String>();
+            for (String lockKey : lockKeys) {
+                DistributedOwnerLockData data = loadLockData(lockKey);
+                if (data == null) {
+                    locksToStore.add(lockKey);
+                } else if (!data.owner.equals(owner)) {
+                    // Held by another owner; none of the locks can be acquired until it is released.
+                    if (currentTime - data.timeAcquired > LONG_LOCK_MS && reportedLongLocks.add(lockKey)) {
+                        log.info("Lock held more than 1 hour: " + lockKey + " owner: " + data.owner);
+                    }
+                    if (watcher != null) {
+                        watcher.watch(getLockDataPath(lockKey));
                     }
-                    Thread.sleep(SLEEP_MS_BETWEEN_ACQUIRE_ATTEMPTS);
-                } catch (Exception ex) {
-                    log.error(ex.getMessage(), ex);
+                    return lockKey;
                 }
+                // If we're already the owner, that's fine.
             }
-            waitTime = (System.currentTimeMillis() / 1000) - lockingStartedTimeSeconds;
-        } while (!acquired && waitTime < maxWaitSeconds);
-        if (!acquired && maxWaitSeconds > 0 && waitTime >= maxWaitSeconds) {
-            log.info("Timeout waiting on lock: " + lockKey + " owner: " + owner);
+            if (!locksToStore.isEmpty()) {
+                persistLockData(locksToStore, new DistributedOwnerLockData(owner, currentTime));
+            }
+            return null;
+        } catch (Exception ex) {
+            log.error("Can't store LockData: " + lockKeys + " owner: " + owner, ex);
+            return lockKeys.get(0);
+        } finally {
+            unlockIPL(lock);
         }
-        return acquired;
     }
 
-    /*
-     * (non-Javadoc)
+    /**
+     * Releases the locks held by the owner in one ZK transaction, and publishes a release event
+     * for any items of the DistributedLockQueue waiting for them.
      * 
-     * @see com.emc.storageos.volumecontroller.impl.DistributedOwnerLock#releaseLock(java.lang.String, java.lang.String)
+     * @param lockKeys -- the lock keys
+     * @param owner -- the lock owner
+     * @return true if no lock is held by another owner
      */
-    @Override
-    public boolean releaseLock(String lockName, String owner) {
-        log.info(String.format("releasing lockName: %s owner: %s", lockName, owner));
+    private boolean releaseAllLocks(List<String> lockKeys, String owner) {
+        log.info(String.format("releasing lockNames: %s owner: %s", lockKeys, owner));
+        List<String> keys = new ArrayList<String>(new TreeSet<String>(lockKeys));
         InterProcessLock lock = null;
-        boolean retval = false;
         try {
             // Get semaphore
-            lock = lockIPL(lockName);
-            DistributedOwnerLockData data = loadLockData(lockName);
-            if (data != null) {
-                if (!data.owner.equals(owner)) {
+            lock = lockIPL(null);
+            long currentTime = System.currentTimeMillis();
+            List<String> locksToRemove = new ArrayList<String>();
+            List<String> locksToDequeue = new ArrayList<String>();
+            String heldByOther = null;
+            for (String lockName : keys) {
+                DistributedOwnerLockData data = loadLockData(lockName);
+                if (data == null) {
+                    log.info(String.format("unable to unlock lockname: %s owner: %s lock not found in zk", lockName, owner));
+                    locksToDequeue.add(lockName);
+                } else if (!data.owner.equals(owner)) {
                     log.error(String.format("Failed to release lock: %s for owner: %s because lock held by another owner: %s",
                             lockName, owner, data.getOwner()));
-                    throw DeviceControllerException.exceptions.failedToReleaseLock(lockName);
+                    if (heldByOther == null) {
+                        heldByOther = lockName;
+                    }
+                } else {
+                    locksToRemove.add(lockName);
+                    locksToDequeue.add(lockName);
+                    Long heldTime = (currentTime - data.timeAcquired) / 1000;
+                    log.info(String.format("Lock %s released after %d seconds", lockName, heldTime));
                 }
-                // remove the lock data
-                removeLockData(lockName, data.getOwner());
-                Long heldTime = (System.currentTimeMillis() - data.timeAcquired) / 1000;
-                log.info(String.format("Lock %s released after %d seconds", lockName, heldTime));
-            } else {
-                log.info(String.format("unable to unlock lockname: %s owner: %s lock not found in zk", lockName, owner));
             }
-            retval = true;
+            // remove the lock data
+            removeLockData(locksToRemove, owner);
 
-            // Trigger a dequeue event for any items on the DistributedLockQueue waiting for this particular lock
-            checkLockQueueAndDequeue(lockName);
+            // Publish a release event for any items on the DistributedLockQueue waiting for these locks
+            for (String lockName : locksToDequeue) {
+                publishLockReleased(lockName);
+            }
+            if (heldByOther != null) {
+                throw DeviceControllerException.exceptions.failedToReleaseLock(heldByOther);
+            }
         } finally {
             unlockIPL(lock);
         }
-        return retval;
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.emc.storageos.volumecontroller.impl.DistributedOwnerLock#releaseLock(java.lang.String, java.lang.String)
+     */
+    @Override
+    public boolean releaseLock(String lockName, String owner) {
+        return releaseAllLocks(Collections.singletonList(lockName), owner);
+    }
+
+    /**
+     * @return one line per lock type with the number of acquires and the wait time percentiles
+     */
+    @ManagedAttribute(description = "Time spent acquiring DistributedOwner locks per lock type")
+    public String[] getLockWaitStats() {
+        return waitStats.getSummary();
+    }
+
+    @ManagedOperation(description = "Reset the DistributedOwner lock wait statistics")
+    public void resetLockWaitStats() {
+        waitStats.reset();
+    }
+
+    LockWaitStats getWaitStats() {
+        return waitStats;
     }
 
     @Override
@@ -283,6 +365,15 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
         return "distOwnerLock/globalLock";
     }
 
+    /**
+     * Return the parent path of the lock data.
+     * 
+     * @return
+     */
+    private String getLockDataRootPath() {
+        return ZkPath.LOCKDATA.toString() + "/distOwnerLock/locks";
+    }
+
     /**
      * Return the path for the lock data.
      * 
@@ -290,7 +381,7 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
      * @return
      */
     private String getLockDataPath(String lockKey) {
-        return ZkPath.LOCKDATA.toString() + "/distOwnerLock/locks/" + lockKey;
+        return getLockDataRootPath() + "/" + lockKey;
     }
 
     /**
@@ -373,7 +464,7 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
      * Retrieve lock data for a class.
      * 
      * @param lockName - The lock name.
-     * @return -- A Java serializable object or null;
+     * @return -- A Java serializable object or null, also when the node exists but is empty or unreadable
      */
     private DistributedOwnerLockData loadLockData(String lockName) {
         String path = getLockDataPath(lockName);
@@ -390,69 +481,131 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
     }
 
     /**
-     * Update the LockData in ZK.
+     * Store the LockData of the locks, and the references from the owner to the locks,
+     * in one ZK transaction. A lock data node left empty or unreadable is overwritten.
      * 
-     * @param lockName
+     * @param lockNames -- locks not held by any owner
      * @param data - LockData
+     * @throws Exception if any of the nodes could not be stored, in which case none is
      */
-    private void persistLockData(String lockName, DistributedOwnerLockData data) {
-        String path = getLockDataPath(lockName);
-        String ownerLockPath = getLockByOwnerPath(lockName, data.getOwner());
-        try {
-            // store a reference from the owner id to the lock id
-            Stat stat = dataManager.checkExists(ownerLockPath);
-            if (stat == null) {
-                dataManager.createNode(ownerLockPath, false);
+    private void persistLockData(List<String> lockNames, DistributedOwnerLockData data) throws Exception {
+        if (!lockRootCreated) {
+            dataManager.createNode(getLockDataRootPath(), false);
+            lockRootCreated = true;
+        }
+        Map<String, Object> nodes = new LinkedHashMap<String, Object>();
+        Set<String> newPaths = new HashSet<String>();
+        String ownerPath = getOwnerPath(data.getOwner());
+        List<String> ownerLocks = Collections.emptyList();
+        if (dataManager.checkExists(ownerPath) == null) {
+            nodes.put(ownerPath, null);
+            newPaths.add(ownerPath);
+        } else {
+            ownerLocks = dataManager.getChildren(ownerPath);
+        }
+        for (String lockName : lockNames) {
+            // store the lock data, replacing the data of a node which could not be loaded
+            String lockDataPath = getLockDataPath(lockName);
+            nodes.put(lockDataPath, data);
+            if (dataManager.checkExists(lockDataPath) == null) {
+                newPaths.add(lockDataPath);
+            } else {
+                log.warn("Overwriting empty or unreadable LockData: " + lockDataPath);
             }
-            // store the lock data
-            stat = dataManager.checkExists(path);
-            if (stat == null) {
-                dataManager.createNode(path, false);
+            // store a reference from the owner id to the lock id
+            if (!ownerLocks.contains(lockName)) {
+                String lockByOwnerPath = getLockByOwnerPath(lockName, data.getOwner());
+                nodes.put(lockByOwnerPath, null);
+                newPaths.add(lockByOwnerPath);
             }
-            dataManager.putData(path, data);
-        } catch (Exception ex) {
-            log.error("Can't storage LockData: " + lockName, ex);
         }
+        dataManager.putData(nodes, newPaths);
     }
 
     /**
-     * Remove LockData
+     * Remove the LockData of the locks, the references from the owner to the locks and the owner
+     * node if the owner has no remaining locks, in one ZK transaction.
      * 
-     * @param lockName
+     * @param lockNames -- locks held by the owner
+     * @param owner
      */
-    private void removeLockData(String lockName, String owner) {
+    private void removeLockData(List<String> lockNames, String owner) {
+        if (lockNames.isEmpty()) {
+            return;
+        }
         try {
-            // remove the lock data
-            String path = getLockDataPath(lockName);
-            Stat stat = dataManager.checkExists(path);
-            if (stat != null) {
-                dataManager.removeNode(path);
+            List<String> paths = new ArrayList<String>();
+            String ownerPath = getOwnerPath(owner);
+            List<String> remainingLocks = new ArrayList<String>();
+            if (dataManager.checkExists(ownerPath) != null) {
+                remainingLocks.addAll(dataManager.getChildren(ownerPath));
             }
-            // remove the owners reference to the lock
-            String ownerLockPath = getLockByOwnerPath(lockName, owner);
-            stat = dataManager.checkExists(ownerLockPath);
-            if (stat != null) {
-                dataManager.removeNode(ownerLockPath);
+            for (String lockName : lockNames) {
+                // remove the lock data
+                paths.add(getLockDataPath(lockName));
+                // remove the owners reference to the lock
+                if (remainingLocks.remove(lockName)) {
+                    paths.add(getLockByOwnerPath(lockName, owner));
+                }
             }
             // if the owner has no remaining locks, remove the owner node
-            String ownerPath = getOwnerPath(owner);
-            List<String> remainingLocks = dataManager.getChildren(ownerPath);
-            if (remainingLocks == null || remainingLocks.isEmpty()) {
-                dataManager.removeNode(ownerPath);
+            if (remainingLocks.isEmpty() && dataManager.checkExists(ownerPath) != null) {
+                paths.add(ownerPath);
             }
+            dataManager.removeNodes(paths);
         } catch (Exception ex) {
-            log.error("Can't remove LockData: " + lockName, ex);
+            log.error("Can't remove LockData: " + lockNames, ex);
+        }
+    }
+
+    /**
+     * Wakes an owner waiting for a lock held by another owner when the data node of the lock
+     * changes, which is normally when the node is removed as the lock is released.
+     */
+    private class LockReleaseWatcher implements Watcher {
+        private final CountDownLatch changed = new CountDownLatch(1);
+        private final Set<String> watchedPaths = new HashSet<String>();
+
+        void watch(String path) {
+            if (!watchedPaths.add(path)) {
+                // already watched, the watch fires once when the node changes
+                return;
+            }
+            try {
+                if (!dataManager.watchNode(path, this)) {
+                    // released since it was read
+                    changed.countDown();
+                }
+            } catch (Exception ex) {
+                watchedPaths.remove(path);
+                log.warn("Can't watch LockData: " + path, ex);
+            }
+        }
+
+        @Override
+        public void process(WatchedEvent event) {
+            changed.countDown();
+        }
+
+        boolean hasFired() {
+            return changed.getCount() == 0;
+        }
+
+        void await(long millis) {
+            try {
+                changed.await(millis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                log.error(ex.getMessage(), ex);
+            }
         }
     }
 
-    private void checkLockQueueAndDequeue(String lockKey) {
+    private void publishLockReleased(String lockKey) {
         if (lockKey == null) {
             return;
         }
-        boolean wasDequeued = lockQueueManager.dequeue(lockKey);
-        if (wasDequeued) {
-            log.info("A task from lock group {} was dequeued.", lockKey);
-        }
+        // Hands the lock to the head of the lock group, if any, without waiting for the periodic sweep
+        lockQueueManager.lockReleased(lockKey);
     }
 
     /**
@@ -486,4 +639,8 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
     public void setLockQueueManager(DistributedLockQueueManager lockQueueManager) {
         this.lockQueueManager = lockQueueManager;
     }
+
+    void setMaxMsBetweenAcquireAttempts(long maxMsBetweenAcquireAttempts) {
+        this.maxMsBetweenAcquireAttempts = maxMsBetweenAcquireAttempts;
+    }
 }
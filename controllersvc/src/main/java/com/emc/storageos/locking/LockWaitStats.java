@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.locking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.emc.storageos.db.client.impl.LatencyHistogram;
+
+/**
+ * Histograms of the time spent in acquiring DistributedOwner locks, and the number of attempts
+ * which ended without the locks, per lock type.
+ * Most lock keys are an entity (a host, consistency group or replication group name) and the
+ * native GUID of a storage system joined by "::". The type of such a key drops the entity and
+ * the serial number, so host1::SYMMETRIX+000195 is recorded as *::SYMMETRIX, and the number
+ * of histograms does not grow with the number of hosts or groups. The type of a URN key is
+ * the type of the URN. Only MAX_TYPES types are tracked, later ones are counted under OTHER_TYPE.
+ */
+public class LockWaitStats {
+    private static final String KEY_DELIMITER = "::";
+    private static final String ANY_ENTITY = "*";
+    private static final String NATIVE_GUID_DELIMITER = "+";
+    private static final String URN_START = "urn:";
+    static final String OTHER_TYPE = "other";
+    static final int MAX_TYPES = 256;
+
+    private final ConcurrentHashMap<String, TypeStats> types = new ConcurrentHashMap<String, TypeStats>();
+
+    /**
+     * Wait times and attempts not acquired of the locks of one type
+     */
+    public static class TypeStats {
+        // wait times in milliseconds
+        private final LatencyHistogram waitTimes = new LatencyHistogram();
+        private final LongAdder notAcquired = new LongAdder();
+
+        public LatencyHistogram getWaitTimes() {
+            return waitTimes;
+        }
+
+        public long getNotAcquired() {
+            return notAcquired.sum();
+        }
+
+        private void reset() {
+            waitTimes.reset();
+            notAcquired.reset();
+        }
+    }
+
+    /**
+     * Get the type the wait times of a lock are recorded under
+     *
+     * @param lockKey lock key
+     * @return the key without the entity and the storage system serial number, the type of a URN, or the whole key
+     */
+    static String getLockType(String lockKey) {
+        // the entity may be a URN without a VDC, which ends in ':', so look for the last delimiter
+        int delimiter = lockKey.lastIndexOf(KEY_DELIMITER);
+        if (delimiter >= 0) {
+            String storageKey = lockKey.substring(delimiter + KEY_DELIMITER.length());
+            if (storageKey.startsWith(URN_START)) {
+                storageKey = getUrnType(storageKey);
+            } else if (storageKey.contains(NATIVE_GUID_DELIMITER)) {
+                storageKey = storageKey.substring(0, storageKey.indexOf(NATIVE_GUID_DELIMITER));
+            }
+            return ANY_ENTITY + KEY_DELIMITER + storageKey;
+        }
+        if (lockKey.startsWith(URN_START)) {
+            return getUrnType(lockKey);
+        }
+        return lockKey;
+    }
+
+    private static String getUrnType(String urn) {
+        // urn:storageos:Host:<uuid>:<vdc> is recorded as urn:storageos:Host
+        int typeEnd = urn.indexOf(':', urn.indexOf(':', URN_START.length()) + 1);
+        return typeEnd > 0 ? urn.substring(0, typeEnd) : urn;
+    }
+
+    public TypeStats getTypeStats(String lockKey) {
+        String type = getLockType(lockKey);
+        TypeStats stats = types.get(type);
+        if (stats == null) {
+            if (types.size() >= MAX_TYPES) {
+                type = OTHER_TYPE;
+                stats = types.get(type);
+            }
+            if (stats == null) {
+                stats = new TypeStats();
+                TypeStats existing = types.putIfAbsent(type, stats);
+                if (existing != null) {
+                    stats = existing;
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Record the time spent acquiring a set of locks under the type of each lock,
+     * counting a type once when several of the locks have the same type.
+     *
+     * @param lockKeys keys of the locks acquired together
+     * @param waitMillis time from the first attempt of the acquire call until the locks were acquired
+     */
+    public void recordWait(List<String> lockKeys, long waitMillis) {
+        for (TypeStats stats : distinctStats(lockKeys)) {
+            stats.waitTimes.record(waitMillis);
+        }
+    }
+
+    /**
+     * Count an attempt which timed out, or polled without waiting, under the type of each lock
+     * which could not be acquired
+     *
+     * @param lockKeys keys of the locks held by other owners
+     */
+    public void recordNotAcquired(List<String> lockKeys) {
+        for (TypeStats stats : distinctStats(lockKeys)) {
+            stats.notAcquired.increment();
+        }
+    }
+
+    private List<TypeStats> distinctStats(List<String> lockKeys) {
+        List<TypeStats> result = new ArrayList<TypeStats>();
+        for (String lockKey : lockKeys) {
+            TypeStats stats = getTypeStats(lockKey);
+            if (!result.contains(stats)) {
+                result.add(stats);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return one line per lock type with the counts and the wait time percentiles
+     */
+    public String[] getSummary() {
+        List<String> lines = new ArrayList<String>();
+        for (Map.Entry<String, TypeStats> entry : new TreeMap<String, TypeStats>(types).entrySet()) {
+            LatencyHistogram waitTimes = entry.getValue().waitTimes;
+            lines.add(String.format("%s: acquired=%d notAcquired=%d mean=%dms p50=%dms p90=%dms p99=%dms max=%dms",
+                    entry.getKey(), waitTimes.getCount(), entry.getValue().getNotAcquired(), waitTimes.getMean(),
+                    waitTimes.getPercentile(50), waitTimes.getPercentile(90), waitTimes.getPercentile(99),
+                    waitTimes.getMax()));
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    public void reset() {
+        for (TypeStats stats : types.values()) {
+            stats.reset();
+        }
+    }
+}
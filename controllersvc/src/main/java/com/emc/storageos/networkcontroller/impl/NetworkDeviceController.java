@@ -121,6 +121,7 @@ public class NetworkDeviceController implements NetworkController {
     private CustomConfigHandler customConfigHandler;
 
     private RecordableEventManager _eventManager;
+    private NetworkZoningCoalescer _zoningCoalescer;
 
     public void setEventManager(RecordableEventManager eventManager) {
         _eventManager = eventManager;
@@ -142,6 +143,10 @@ public class NetworkDeviceController implements NetworkController {
         return _devices.get(deviceType);
     }
 
+    public void setZoningCoalescer(NetworkZoningCoalescer zoningCoalescer) {
+        _zoningCoalescer = zoningCoalescer;
+    }
+
     public void setNetworkScheduler(NetworkScheduler networkScheduler) {
         _networkScheduler = networkScheduler;
     }
@@ -407,11 +412,14 @@ public class NetworkDeviceController implements NetworkController {
                     networkSystem.getSystemType());
         }
 
-        // Lock to prevent concurrent operations on the same VSAN / FABRIC.
-        InterProcessLock fabricLock = NetworkFabricLocker.lockFabric(fabricId, _coordinator);
+        // Lock to prevent concurrent operations on the same VSAN / FABRIC. The zoning coalescer
+        // locks the fabric itself while it zones the requests gathered for the fabric.
+        InterProcessLock fabricLock = (_zoningCoalescer == null) ? NetworkFabricLocker.lockFabric(fabricId, _coordinator) : null;
         try {
         	if (doRemove) { /* Removing zones */
-        		result = networkDevice.removeZones(networkSystem, zones, fabricId, fabricWwn, true);
+        		result = (_zoningCoalescer != null)
+        		        ? _zoningCoalescer.removeZones(networkDevice, networkSystem, zones, fabricId, fabricWwn)
+        		        : networkDevice.removeZones(networkSystem, zones, fabricId, fabricWwn, true);
         		if (result.isCommandSuccess()) {
         			for (NetworkFCZoneInfo fabricInfo : fabricInfos) {
         				String refKey = fabricInfo.getZoneName() + " " + fabricInfo.getFcZoneReferenceId().toString();
@@ -428,7 +436,9 @@ public class NetworkDeviceController implements NetworkController {
         		}
         	} else { /* Adding zones */
                         _log.debug("Adding zones on network system {} ", networkSystem.getNativeGuid());
-        		result = networkDevice.addZones(networkSystem, zones, fabricId, fabricWwn, true);
+        		result = (_zoningCoalescer != null)
+        		        ? _zoningCoalescer.addZones(networkDevice, networkSystem, zones, fabricId, fabricWwn)
+        		        : networkDevice.addZones(networkSystem, zones, fabricId, fabricWwn, true);
         		if (result.isCommandSuccess()) {
         			for (NetworkFCZoneInfo fabricInfo : fabricInfos) {
         				String refKey = fabricInfo.getZoneName() + " " + fabricInfo.getVolumeId().toString();
@@ -841,9 +851,11 @@ public class NetworkDeviceController implements NetworkController {
                 }
             }
             List<URI> tzUriList = _dbClient.queryByType(Network.class, true);
+            NetworkSystemDevice device = getDevice(networkDevice.getSystemType());
+            // release the connections kept to the deleted network system
+            device.doDisconnect(networkDevice);
             NetworkDiscoveryWorker worker =
-                    new NetworkDiscoveryWorker(
-                            getDevice(networkDevice.getSystemType()), _dbClient);
+                    new NetworkDiscoveryWorker(device, _dbClient);
             worker.setCoordinator(_coordinator);
             for (URI tzUri : tzUriList) {
                 Network tz = _dbClient.queryObject(Network.class, tzUri);
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.networkcontroller.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.db.client.model.NetworkSystem;
+import com.emc.storageos.networkcontroller.exceptions.NetworkDeviceControllerException;
+import com.emc.storageos.networkcontroller.impl.mds.Zone;
+import com.emc.storageos.svcs.errorhandling.model.ServiceError;
+import com.emc.storageos.volumecontroller.impl.BiosCommandResult;
+
+/**
+ * NetworkZoningCoalescer -- Gathers the zones added to, or removed from, the same fabric (VSAN for MDS)
+ * through the same network system by concurrent workflows, and applies them with one call to the
+ * network device, so the device is logged in to, the zoning session is locked and committed, and the
+ * active zoneset is activated once for all of them instead of once per workflow step.
+ *
+ * The first request for a fabric and operation opens a batch and waits coalesceWindowMs for other
+ * requests to join it, then zones the batch holding the fabric lock. Every request gets back the
+ * results of its own zones, so each caller completes its own step or task as before.
+ * A zone requested by several requests of a batch is zoned once; the first request gets the
+ * device's result and the others get NO_CHANGE, as they would have if they had run one after
+ * the other, so only one of them rolls it back.
+ */
+public class NetworkZoningCoalescer {
+    private static final Logger _log = LoggerFactory.getLogger(NetworkZoningCoalescer.class);
+
+    private static final long DEFAULT_COALESCE_WINDOW_MS = 2000;
+    private static final int DEFAULT_MAX_ZONES_PER_BATCH = 200;
+
+    private CoordinatorClient _coordinator;
+    private long _coalesceWindowMs = DEFAULT_COALESCE_WINDOW_MS;
+    private int _maxZonesPerBatch = DEFAULT_MAX_ZONES_PER_BATCH;
+
+    // batches still accepting requests, keyed by network system, fabric and operation
+    private final Map<String, Batch> _openBatches = new HashMap<String, Batch>();
+
+    public void setCoordinator(CoordinatorClient coordinator) {
+        _coordinator = coordinator;
+    }
+
+    /**
+     * @param coalesceWindowMs how long the first request of a batch waits for other requests, 0 to zone
+     *            each request on its own
+     */
+    public void setCoalesceWindowMs(long coalesceWindowMs) {
+        _coalesceWindowMs = coalesceWindowMs;
+    }
+
+    public void setMaxZonesPerBatch(int maxZonesPerBatch) {
+        _maxZonesPerBatch = maxZonesPerBatch;
+    }
+
+    /**
+     * Add zones to a fabric and activate the active zoneset, together with the zones added to the same
+     * fabric by other requests made within the coalesce window.
+     *
+     * @param networkDevice device of the network system
+     * @param networkSystem network system used for zoning
+     * @param zones zones to be added
+     * @param fabricId fabric name, or VSAN id for MDS
+     * @param fabricWwn fabric WWN
+     * @return BiosCommandResult with the map of zone-name-to-result of the zones of this request
+     * @throws NetworkDeviceControllerException if the zones of the batch could not be added
+     */
+    public BiosCommandResult addZones(NetworkSystemDevice networkDevice, NetworkSystem networkSystem, List<Zone> zones,
+            String fabricId, String fabricWwn) throws NetworkDeviceControllerException {
+        return submit(false, networkDevice, networkSystem, zones, fabricId, fabricWwn);
+    }
+
+    /**
+     * Remove zones from a fabric and activate the active zoneset, together with the zones removed from
+     * the same fabric by other requests made within the coalesce window.
+     *
+     * @see #addZones(NetworkSystemDevice, NetworkSystem, List, String, String)
+     */
+    public BiosCommandResult removeZones(NetworkSystemDevice networkDevice, NetworkSystem networkSystem, List<Zone> zones,
+            String fabricId, String fabricWwn) throws NetworkDeviceControllerException {
+        return submit(true, networkDevice, networkSystem, zones, fabricId, fabricWwn);
+    }
+
+    private BiosCommandResult submit(boolean remove, NetworkSystemDevice networkDevice, NetworkSystem networkSystem,
+            List<Zone> zones, String fabricId, String fabricWwn) throws NetworkDeviceControllerException {
+        String key = networkSystem.getId() + "/" + fabricId + (remove ? "/remove" : "/add");
+        Batch batch = new Batch(key, remove, networkDevice, networkSystem, fabricId, fabricWwn);
+        Request request = new Request(zones);
+        if (_coalesceWindowMs <= 0 || zones.isEmpty()) {
+            batch.add(request);
+            batch.execute();
+            return batch.getResult(request);
+        }
+
+        boolean leader = false;
+        synchronized (_openBatches) {
+            Batch open = _openBatches.get(key);
+            if (open != null && open.zoneCount + zones.size() <= _maxZonesPerBatch) {
+                batch = open;
+            } else {
+                _openBatches.put(key, batch);
+                leader = true;
+            }
+            batch.add(request);
+        }
+
+        if (leader) {
+            try {
+                Thread.sleep(_coalesceWindowMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (_openBatches) {
+                if (_openBatches.get(key) == batch) {
+                    _openBatches.remove(key);
+                }
+            }
+            batch.execute();
+        } else {
+            batch.await();
+        }
+        return batch.getResult(request);
+    }
+
+    /**
+     * The zones of one caller
+     */
+    private static class Request {
+        private final List<Zone> zones;
+
+        Request(List<Zone> zones) {
+            this.zones = zones;
+        }
+    }
+
+    /**
+     * The requests for the same network system, fabric and operation, zoned with one device call
+     */
+    private class Batch {
+        private final String key;
+        private final boolean remove;
+        private final NetworkSystemDevice networkDevice;
+        private final NetworkSystem networkSystem;
+        private final String fabricId;
+        private final String fabricWwn;
+        private final List<Request> requests = new ArrayList<Request>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private int zoneCount = 0;
+
+        private Map<String, String> zoneResults;
+        // the request which gets the device's result of a zone, when several requests have it
+        private final Map<String, Request> zoneOwners = new HashMap<String, Request>();
+        private RuntimeException failure;
+
+        Batch(String key, boolean remove, NetworkSystemDevice networkDevice, NetworkSystem networkSystem,
+                String fabricId, String fabricWwn) {
+            this.key = key;
+            this.remove = remove;
+            this.networkDevice = networkDevice;
+            this.networkSystem = networkSystem;
+            this.fabricId = fabricId;
+            this.fabricWwn = fabricWwn;
+        }
+
+        // called holding the _openBatches monitor, or before the batch is shared
+        void add(Request request) {
+            requests.add(request);
+            zoneCount += request.zones.size();
+        }
+
+        void await() {
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw NetworkDeviceControllerException.exceptions.exceptionAcquiringFabricLock(fabricId, ex);
+            }
+        }
+
+        void execute() {
+            Map<String, Zone> zones = new LinkedHashMap<String, Zone>();
+            for (Request request : requests) {
+                for (Zone zone : request.zones) {
+                    if (!zones.containsKey(zone.getName())) {
+                        zones.put(zone.getName(), zone);
+                        zoneOwners.put(zone.getName(), request);
+                    }
+                }
+            }
+            _log.info("{} {} zones of {} requests on {}", new Object[] { remove ? "Removing" : "Adding", zones.size(),
+                    requests.size(), key });
+            InterProcessLock fabricLock = null;
+            try {
+                // Lock to prevent concurrent operations on the same VSAN / FABRIC.
+                fabricLock = NetworkFabricLocker.lockFabric(fabricId, _coordinator);
+                List<Zone> zoneList = new ArrayList<Zone>(zones.values());
+                BiosCommandResult result = remove
+                        ? networkDevice.removeZones(networkSystem, zoneList, fabricId, fabricWwn, true)
+                        : networkDevice.addZones(networkSystem, zoneList, fabricId, fabricWwn, true);
+                zoneResults = getZoneResults(result);
+            } catch (RuntimeException ex) {
+                failure = ex;
+            } finally {
+                try {
+                    NetworkFabricLocker.unlockFabric(fabricId, fabricLock);
+                } catch (RuntimeException ex) {
+                    _log.error("Could not unlock fabric " + fabricId, ex);
+                }
+                done.countDown();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, String> getZoneResults(BiosCommandResult result) {
+            if (result.getObjectList() != null && !result.getObjectList().isEmpty()) {
+                return (Map<String, String>) result.getObjectList().get(0);
+            }
+            // no per-zone results, every zone gets the outcome of the call
+            Map<String, String> results = new HashMap<String, String>();
+            String outcome = result.isCommandSuccess() ? NetworkSystemDevice.SUCCESS
+                    : NetworkSystemDevice.ERROR + ": " + result.getMessage();
+            for (String zoneName : zoneOwners.keySet()) {
+                results.put(zoneName, outcome);
+            }
+            return results;
+        }
+
+        BiosCommandResult getResult(Request request) {
+            if (failure != null) {
+                throw failure;
+            }
+            Map<String, String> results = new HashMap<String, String>();
+            boolean error = false;
+            for (Zone zone : request.zones) {
+                String result = zoneResults.get(zone.getName());
+                if (result == null) {
+                    continue;
+                }
+                if (zoneOwners.get(zone.getName()) != request && NetworkSystemDevice.SUCCESS.equals(result)) {
+                    result = NetworkSystemDevice.NO_CHANGE;
+                }
+                error |= result.startsWith(NetworkSystemDevice.ERROR);
+                results.put(zone.getName(), result);
+            }
+            BiosCommandResult result;
+            if (error) {
+                ServiceError serviceError = NetworkDeviceControllerException.errors.batchOperationFailed(results.toString());
+                result = BiosCommandResult.createErrorResult(serviceError);
+            } else {
+                result = BiosCommandResult.createSuccessfulResult();
+            }
+            result.setObjectList(Collections.singletonList((Object) results));
+            return result;
+        }
+    }
+}
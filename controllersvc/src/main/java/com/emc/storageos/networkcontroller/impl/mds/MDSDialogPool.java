@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.networkcontroller.impl.mds;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.db.client.model.NetworkSystem;
+import com.emc.storageos.services.util.NamedScheduledThreadPoolExecutor;
+
+/**
+ * Keeps a few logged in MDS dialogs per switch, so that zoning operations following each other
+ * do not each pay for the SSH login and the terminal setup. Only dialogs which ended their
+ * operation successfully, out of config mode and of any zoning session, are kept, and only for
+ * MAX_IDLE_MS since the switch may close idle sessions. Expired dialogs are logged out by a
+ * background reaper, and the dialogs of a switch are logged out when it is updated or deleted.
+ */
+public class MDSDialogPool {
+    private static final Logger _log = LoggerFactory.getLogger(MDSDialogPool.class);
+
+    static final int MAX_IDLE_PER_SWITCH = 2;
+    static final long MAX_IDLE_MS = 60 * 1000;
+
+    // idle dialogs by network system id, so that they can be found after the switch address changed
+    private final Map<String, Deque<IdleDialog>> idleDialogs = new HashMap<String, Deque<IdleDialog>>();
+
+    private final ScheduledExecutorService reaper = new NamedScheduledThreadPoolExecutor("MDSDialogReaper", 1);
+
+    private static class IdleDialog {
+        private final MDSDialog dialog;
+        private final String connection;
+        private final String password;
+        private final long idleSince;
+
+        IdleDialog(MDSDialog dialog, String connection, String password) {
+            this.dialog = dialog;
+            this.connection = connection;
+            this.password = password;
+            this.idleSince = System.currentTimeMillis();
+        }
+
+        boolean isExpired(long now) {
+            return now - idleSince > MAX_IDLE_MS;
+        }
+    }
+
+    public MDSDialogPool() {
+        reaper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reapIdle();
+                } catch (Exception ex) {
+                    _log.warn("Could not reap idle dialogs: " + ex.getMessage());
+                }
+            }
+        }, MAX_IDLE_MS, MAX_IDLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static String getKey(NetworkSystem networkSystem) {
+        return String.valueOf(networkSystem.getId());
+    }
+
+    private static String getConnection(NetworkSystem networkSystem) {
+        return networkSystem.getIpAddress() + ":" + networkSystem.getPortNumber() + ":" + networkSystem.getUsername();
+    }
+
+    /**
+     * Take an idle dialog logged in to the switch
+     *
+     * @param networkSystem the switch
+     * @return a dialog, or null if there is no usable idle dialog
+     */
+    public MDSDialog borrow(NetworkSystem networkSystem) {
+        String key = getKey(networkSystem);
+        while (true) {
+            IdleDialog idle;
+            synchronized (idleDialogs) {
+                Deque<IdleDialog> dialogs = idleDialogs.get(key);
+                idle = (dialogs != null) ? dialogs.pollFirst() : null;
+            }
+            if (idle == null) {
+                return null;
+            }
+            boolean expired = idle.isExpired(System.currentTimeMillis());
+            boolean credentialsChanged = !idle.connection.equals(getConnection(networkSystem))
+                    || !idle.password.equals(networkSystem.getPassword());
+            if (!expired && !credentialsChanged && idle.dialog.getSession().isConnected()) {
+                _log.debug("Reusing dialog to {}", key);
+                return idle.dialog;
+            }
+            close(idle.dialog);
+        }
+    }
+
+    /**
+     * Keep a dialog for the next operation on the switch, or log it out if it cannot be reused or
+     * enough dialogs to the switch are idle already
+     *
+     * @param networkSystem the switch
+     * @param dialog dialog which completed its operation
+     * @param reusable false if the operation failed, which may have left output or a session behind
+     */
+    public void giveBack(NetworkSystem networkSystem, MDSDialog dialog, boolean reusable) {
+        if (dialog == null) {
+            return;
+        }
+        if (reusable && networkSystem.getPassword() != null && !dialog.isInConfigMode() && !dialog.isInSession()
+                && dialog.getSession().isConnected()) {
+            String key = getKey(networkSystem);
+            synchronized (idleDialogs) {
+                Deque<IdleDialog> dialogs = idleDialogs.get(key);
+                if (dialogs == null) {
+                    dialogs = new ArrayDeque<IdleDialog>();
+                    idleDialogs.put(key, dialogs);
+                }
+                if (dialogs.size() < MAX_IDLE_PER_SWITCH) {
+                    // most recently used first, so the oldest dialogs expire
+                    dialogs.addFirst(new IdleDialog(dialog, getConnection(networkSystem), networkSystem.getPassword()));
+                    return;
+                }
+            }
+        }
+        close(dialog);
+    }
+
+    /**
+     * Log out the idle dialogs of a switch
+     *
+     * @param networkSystem the switch
+     */
+    public void clear(NetworkSystem networkSystem) {
+        Deque<IdleDialog> dialogs;
+        synchronized (idleDialogs) {
+            dialogs = idleDialogs.remove(getKey(networkSystem));
+        }
+        if (dialogs != null) {
+            for (IdleDialog idle : dialogs) {
+                close(idle.dialog);
+            }
+        }
+    }
+
+    /**
+     * Log out the dialogs which have been idle for more than MAX_IDLE_MS
+     */
+    void reapIdle() {
+        long now = System.currentTimeMillis();
+        List<IdleDialog> expired = new ArrayList<IdleDialog>();
+        synchronized (idleDialogs) {
+            Iterator<Deque<IdleDialog>> it = idleDialogs.values().iterator();
+            while (it.hasNext()) {
+                Deque<IdleDialog> dialogs = it.next();
+                // the oldest dialogs are last
+                while (!dialogs.isEmpty() && dialogs.peekLast().isExpired(now)) {
+                    expired.add(dialogs.pollLast());
+                }
+                if (dialogs.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+        for (IdleDialog idle : expired) {
+            close(idle.dialog);
+        }
+        if (!expired.isEmpty()) {
+            _log.debug("Logged out {} idle dialogs", expired.size());
+        }
+    }
+
+    private void close(MDSDialog dialog) {
+        try {
+            dialog.send("exit\n");
+            dialog.getSession().disconnect();
+        } catch (Exception ex) {
+            _log.warn("Could not disconnect dialog: " + ex.getMessage());
+        }
+    }
+}
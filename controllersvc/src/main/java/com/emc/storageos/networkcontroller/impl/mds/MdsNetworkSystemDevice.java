@@ -50,6 +50,9 @@ public class MdsNetworkSystemDevice extends NetworkSystemDeviceImpl implements N
     private static volatile CoordinatorClient _coordinator;
     private static volatile DbClient _dbClient;
 
+    // logged in dialogs kept between the zoning operations on a switch
+    private final MDSDialogPool _dialogPool = new MDSDialogPool();
+
     /**
      * Sets up a session. Gets session parameters from the NetworkSystem.
      * 
@@ -90,10 +93,37 @@ public class MdsNetworkSystemDevice extends NetworkSystemDeviceImpl implements N
         }
     }
 
+    /**
+     * Gets a dialog for a zoning operation, reusing a dialog of a previous zoning operation on the
+     * switch if one is still logged in.
+     * 
+     * @param networkSystem NetworkSystem
+     * @return MDSDialog representing the session
+     * @throws NetworkDeviceControllerException
+     */
+    private MDSDialog setUpZoningDialog(NetworkSystem networkSystem) throws NetworkDeviceControllerException {
+        MDSDialog dialog = _dialogPool.borrow(networkSystem);
+        return (dialog != null) ? dialog : setUpDialog(networkSystem);
+    }
+
+    /**
+     * Releases the dialog of a zoning operation, keeping it for the next zoning operation on the switch
+     * if the operation completed.
+     * 
+     * @param networkSystem NetworkSystem
+     * @param dialog MDSDialog
+     * @param completed false if the operation failed
+     */
+    private void releaseZoningDialog(NetworkSystem networkSystem, MDSDialog dialog, boolean completed) {
+        _dialogPool.giveBack(networkSystem, dialog, completed);
+    }
+
     @Override
     public BiosCommandResult doConnect(NetworkSystem network) {
         BiosCommandResult result = null;
         MDSDialog dialog = null;
+        // the switch may have been updated, do not reuse the dialogs logged in before
+        _dialogPool.clear(network);
         try {
             dialog = setUpDialog(network);
             String[] versInfo = dialog.showVersion();
@@ -116,8 +146,8 @@ public class MdsNetworkSystemDevice extends NetworkSystemDeviceImpl implements N
 
     @Override
     public BiosCommandResult doDisconnect(NetworkSystem network) {
-        // TODO Auto-generated method stub
-        return null;
+        _dialogPool.clear(network);
+        return BiosCommandResult.createSuccessfulResult();
     }
 
     @Override
@@ -253,9 +283,10 @@ public class MdsNetworkSystemDevice extends NetworkSystemDeviceImpl implements N
             boolean activateZones) throws NetworkDeviceControllerException {
         BiosCommandResult result = null;
         MDSDialog dialog = null;
+        boolean completed = false;
         Map<String, String> addedZoneNames = new HashMap<String, String>();
         try {
-            dialog = setUpDialog(networkSystem);
+            dialog = setUpZoningDialog(networkSystem);
 
             List<IvrZone> addingIvrZones = new ArrayList<IvrZone>();
             List<Zone> addingZones = new ArrayList<Zone>();
@@ -289,11 +320,12 @@ public class MdsNetworkSystemDevice extends NetworkSystemDeviceImpl implements N
 
             _log.info(msg);
             result = getBiosCommandResult(addedZoneNames);
+            completed = true;
         } catch (Exception ex) {
             _log.error("Cannot add zones: " + (ex.getCause() != null ? ex.getCause().getMessage() : ex.getLocalizedMessage()));
             throw ex;
         } finally {
-            disconnect(dialog);
+            releaseZoningDialog(networkSystem, dialog, completed);
         }
         return result;
     }
@@ -303,9 +335,10 @@ public class MdsNetworkSystemDevice extends NetworkSystemDeviceImpl implements N
             boolean activateZones) throws NetworkDeviceControllerException {
         BiosCommandResult result = null;
         MDSDialog dialog = null;
+        boolean completed = false;
         Map<String, String> removedZoneNames = new HashMap<String, String>();
         try {
-            dialog = setUpDialog(network);
+            dialog = setUpZoningDialog(network);
 
             List<IvrZone> removingIvrZones = new ArrayList<IvrZone>();
             List<Zone> removingZones = new ArrayList<Zone>();
@@ -336,11 +369,12 @@ public class MdsNetworkSystemDevice extends NetworkSystemDeviceImpl implements N
 
             _log.info("Remove VSAN zone results: " + toMessage(removedZoneNames));
             result = getBiosCommandResult(removedZoneNames);
+            completed = true;
         } catch (Exception ex) {
             _log.error("Cannot remove zones: " + (ex.getCause() != null ? ex.getCause().getMessage() : ex.getLocalizedMessage()));
             throw ex;
         } finally {
-            disconnect(dialog);
+            releaseZoningDialog(network, dialog, completed);
         }
         return result;
     }
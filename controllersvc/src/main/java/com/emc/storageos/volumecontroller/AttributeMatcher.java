@@ -36,6 +36,13 @@ public abstract class AttributeMatcher {
 
     protected CoordinatorClient _coordinator;
 
+    /**
+     * Context of the matcher invocation running on the current thread. Matchers are singleton
+     * beans shared by all threads, so the framework binds the cache and coordinator of each
+     * invocation here instead of setting them on the beans.
+     */
+    private static final ThreadLocal<MatcherContext> _invocationContext = new ThreadLocal<MatcherContext>();
+
     public static final String VPOOL_MATCHERS = "vpoolMatchers";
 
     public static final String PLACEMENT_MATCHERS = "placementMatchers";
@@ -46,6 +53,28 @@ public abstract class AttributeMatcher {
 
     public static final String ERROR_MESSAGE = "errorMessage";
 
+    /**
+     * Per invocation state of the matchers: the object cache and coordinator used by all the
+     * matchers run for one set of attributes.
+     */
+    public static class MatcherContext {
+        private final ObjectLocalCache objectCache;
+        private final CoordinatorClient coordinator;
+
+        public MatcherContext(ObjectLocalCache objectCache, CoordinatorClient coordinator) {
+            this.objectCache = objectCache;
+            this.coordinator = coordinator;
+        }
+
+        public ObjectLocalCache getObjectCache() {
+            return objectCache;
+        }
+
+        public CoordinatorClient getCoordinator() {
+            return coordinator;
+        }
+    }
+
     public static enum Attributes {
         vpool_type,
         varrays,
@@ -129,7 +158,7 @@ public abstract class AttributeMatcher {
         if (storageSystemMap.containsKey(storageSystemURI)) {
             return storageSystemMap.get(storageSystemURI);
         }
-        StorageSystem system = _objectCache.queryObject(StorageSystem.class, storageSystemURI);
+        StorageSystem system = getObjectCache().queryObject(StorageSystem.class, storageSystemURI);
         storageSystemMap.put(storageSystemURI, system);
         return system;
     }
@@ -180,6 +209,42 @@ public abstract class AttributeMatcher {
         return poolURIList;
     }
 
+    /**
+     * Bind the context of a matcher invocation to the current thread. Must be paired with
+     * {@link #unbindContext()} in a finally block.
+     * 
+     * @param context
+     */
+    public static void bindContext(MatcherContext context) {
+        _invocationContext.set(context);
+    }
+
+    public static void unbindContext() {
+        _invocationContext.remove();
+    }
+
+    /**
+     * Returns the cache of the invocation bound to the current thread, or the cache set on
+     * this matcher when it is used outside of the framework.
+     * 
+     * @return ObjectLocalCache
+     */
+    protected ObjectLocalCache getObjectCache() {
+        MatcherContext context = _invocationContext.get();
+        return context != null ? context.getObjectCache() : _objectCache;
+    }
+
+    /**
+     * Returns the coordinator of the invocation bound to the current thread, or the one set on
+     * this matcher when it is used outside of the framework.
+     * 
+     * @return CoordinatorClient
+     */
+    protected CoordinatorClient getCoordinator() {
+        MatcherContext context = _invocationContext.get();
+        return context != null ? context.getCoordinator() : _coordinator;
+    }
+
     /**
      * set Cache.
      * 
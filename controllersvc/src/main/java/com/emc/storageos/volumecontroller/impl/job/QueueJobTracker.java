@@ -6,6 +6,8 @@ package com.emc.storageos.volumecontroller.impl.job;
 
 import com.emc.storageos.coordinator.client.service.impl.DistributedQueueConsumer;
 import com.emc.storageos.coordinator.client.service.DistributedQueueItemProcessedCallback;
+import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.db.client.util.NullColumnValueGetter;
 import com.emc.storageos.exceptions.DeviceControllerException;
 import com.emc.storageos.svcs.errorhandling.model.ServiceError;
 import com.emc.storageos.volumecontroller.Job;
@@ -14,35 +16,79 @@ import com.emc.storageos.volumecontroller.impl.JobPollResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
+import com.emc.storageos.volumecontroller.impl.cinder.job.CinderJob;
+import com.emc.storageos.volumecontroller.impl.hds.prov.job.HDSJob;
+import com.emc.storageos.volumecontroller.impl.smis.job.SmisJob;
 import com.emc.storageos.vplexcontroller.job.VPlexMigrationJob;
 
 /**
- * QueueJobTracker tracks jobs in the job queue
+ * QueueJobTracker tracks jobs in the job queue.
+ * 
+ * Jobs are polled concurrently on a bounded pool of polling threads. The number of
+ * polls in flight against a single storage provider is also bounded, so that one
+ * slow provider cannot starve the others. Each job is polled on its own adaptive
+ * interval: it starts at the initial polling interval and backs off towards the
+ * maximum polling interval while the job makes no progress.
  */
 public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implements Runnable
 {
     private static final Logger _logger = LoggerFactory.getLogger(QueueJobTracker.class);
+    private static final long DISPATCH_PERIOD_IN_MILLIS = 500;
+    private static final String DEFAULT_POLLING_KEY = "default";
+
     private long _trackingPeriodInMillis;
     private long _trackingTimeoutInMillis;
+    private int _maxConcurrentPolls = 10;
+    private int _maxConcurrentPollsPerProvider = 2;
+    private long _initialPollingIntervalInMillis = 2000;
+    private long _maxPollingIntervalInMillis = 60000;
+    private double _pollingBackoffFactor = 1.5;
 
     private ExecutorService _trackerService = null;
+    private ExecutorService _pollingService = null;
     private ConcurrentLinkedQueue<JobWrapper> _activeJobs = new ConcurrentLinkedQueue<JobWrapper>();
+    private ConcurrentHashMap<String, Semaphore> _providerPermits = new ConcurrentHashMap<String, Semaphore>();
+    private ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> _jobProgressMap =
+            new ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>>();
     private JobContext _jobContext;
 
+    // polling metrics
+    private final AtomicLong _pollCount = new AtomicLong();
+    private final AtomicLong _dispatchCount = new AtomicLong();
+    private final AtomicLong _totalPollingLagInMillis = new AtomicLong();
+    private final AtomicLong _maxPollingLagInMillis = new AtomicLong();
+    private final AtomicInteger _pollsInFlight = new AtomicInteger();
+    private volatile int _jobsWaitingForPoll = 0;
+
     private class JobWrapper
     {
         Job _job;
         DistributedQueueItemProcessedCallback _cb;
+        String _pollingKey;
+        volatile long _pollingIntervalInMillis;
+        volatile long _nextPollTime;
+        volatile int _lastPercentComplete = -1;
+        final AtomicBoolean _polling = new AtomicBoolean(false);
 
         public JobWrapper(Job job, DistributedQueueItemProcessedCallback cb) {
             _job = job;
             _cb = cb;
+            _pollingKey = getPollingKey(job);
+            _pollingIntervalInMillis = getInitialPollingInterval();
+            _nextPollTime = System.currentTimeMillis() + _pollingIntervalInMillis;
         }
 
         public Job getJob() {
@@ -59,6 +105,7 @@ public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implemen
     }
 
     public void start() {
+        _pollingService = new NamedThreadPoolExecutor(QueueJobTracker.class.getSimpleName(), _maxConcurrentPolls);
         _trackerService = Executors.newSingleThreadExecutor();
         _trackerService.submit(this);
     }
@@ -73,67 +120,51 @@ public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implemen
         _activeJobs.add(new JobWrapper(job.getJob(), cb));
     }
 
+    /**
+     * Dispatch loop. Hands each job that is due for polling to the polling pool, as long as
+     * its provider has a free polling slot, and periodically logs job progress and polling metrics.
+     */
     public void run() {
-        HashMap<String, HashMap<String, Integer>> jobProgressMap = new HashMap<String, HashMap<String, Integer>>();
+        long lastReportTime = System.currentTimeMillis();
         while (true) {
-            JobWrapper jobWrapper = null;
-            _logger.debug("Tracker: Will check job status after {} ms...", _trackingPeriodInMillis);
             try {
-                ArrayList<String> completedJobs = new ArrayList<String>();
-                Thread.sleep(_trackingPeriodInMillis);
-                _logger.debug("Tracker: Checking status of {} jobs", _activeJobs.size());
-                for (Iterator<JobWrapper> iter = _activeJobs.iterator(); iter.hasNext();) {
-                    jobWrapper = iter.next();
-                    Job job = jobWrapper.getJob();
+                Thread.sleep(DISPATCH_PERIOD_IN_MILLIS);
+                long now = System.currentTimeMillis();
+                int waiting = 0;
+                for (JobWrapper jobWrapper : _activeJobs) {
+                    if (jobWrapper._polling.get() || jobWrapper._nextPollTime > now) {
+                        continue;
+                    }
+                    Semaphore permits = getProviderPermits(jobWrapper._pollingKey);
+                    if (!permits.tryAcquire()) {
+                        waiting++;
+                        continue;
+                    }
+                    jobWrapper._polling.set(true);
+                    recordPollingLag(now - jobWrapper._nextPollTime);
+                    _pollsInFlight.incrementAndGet();
                     try {
-                        setPollingStartTime(job);
-                        JobPollResult result = job.poll(_jobContext, _trackingPeriodInMillis);
-                        updateJobProgress(jobProgressMap, result);
-
-                        boolean stopJobTracking = false;
-                        String msg = null;
-                        // Check if we have to stop job tracking.
-                        if (result.isJobInTerminalState()) {
-                            // stop tracking jobs in final status and final post processing status
-                            msg = String.format("Tracker: Stopping tracking job %s with status: %s and post-processing status %s",
-                                    result.getJobId(), result.getJobStatus(), result.getJobPostProcessingStatus());
-                            stopJobTracking = true;
-                        } else {
-                            long trackingTime = System.currentTimeMillis() - job.getPollingStartTime();
-                            if (trackingTime > job.getTimeoutTimeMsec()) {
-                                // Stop tracking job if maximum job tracking time was reached.
-                                msg = String.format("Tracker: Stopping tracking job %s with status: %s and post-processing status %s .\n" +
-                                        "The job tracking time reached job tracking time limit %d hours, job tracking time %d hours.",
-                                        result.getJobId(), result.getJobStatus(), result.getJobPostProcessingStatus(),
-                                        job.getTimeoutTimeMsec() / (60 * 60 * 1000),
-                                        trackingTime / (60 * 60 * 1000));
-                                _logger.info(msg);
-                                String errorMsg = String.format(
-                                        "Could not execute job %s on backend device. Exceeded time limit for job status tracking.",
-                                        result.getJobName());
-                                if (job instanceof VPlexMigrationJob) {
-                                    errorMsg = String.format(
-                                            "Could not execute VPlex Migration Job %s on backend device. Exceeded time limit for VPLEX migration timeout.",
-                                            result.getJobName());
-                                }
-                                ServiceError error = DeviceControllerException.errors.unableToExecuteJob(errorMsg);
-                                job.getTaskCompleter().error(_jobContext.getDbClient(), error);
-                                stopJobTracking = true;
-                            }
-                        }
-                        if (stopJobTracking) {
-                            _logger.info(msg);
-                            stopTrackingJob(jobWrapper);
-                            completedJobs.add(result.getJobId());
-                        }
-                    } catch (Exception ex) {
-                        _logger.error("Tracker: Unexpected exception.", ex);
+                        _pollingService.submit(new JobPoller(jobWrapper, permits));
+                    } catch (RejectedExecutionException ex) {
+                        _pollsInFlight.decrementAndGet();
+                        jobWrapper._polling.set(false);
+                        permits.release();
+                        _logger.error("Tracker: Could not submit job for polling.", ex);
                     }
                 }
-                if (!jobProgressMap.isEmpty()) {
-                    _logger.info(String.format("Progress of jobs - %n %s", jobProgressMap.toString()));
+                _jobsWaitingForPoll = waiting;
+                if (now - lastReportTime >= _trackingPeriodInMillis) {
+                    lastReportTime = now;
+                    if (!_jobProgressMap.isEmpty()) {
+                        _logger.info(String.format("Progress of jobs - %n %s", _jobProgressMap.toString()));
+                    }
+                    if (!_activeJobs.isEmpty()) {
+                        _logger.info(String.format("Tracker: %d active jobs, %d polls in flight, %d jobs waiting for a provider slot, "
+                                + "average polling lag %d ms, max polling lag %d ms",
+                                getActiveJobCount(), getPollsInFlight(), getJobsWaitingForPoll(),
+                                getAveragePollingLagInMillis(), getMaxPollingLagInMillis()));
+                    }
                 }
-                removeCompletedJobProgressItems(jobProgressMap, completedJobs);
             } catch (InterruptedException ie) {
                 _logger.info("Tracker: Unexpected Interrupted exception.", ie);
             } catch (Exception e) {
@@ -142,28 +173,179 @@ public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implemen
         }
     }
 
-    private void updateJobProgress(HashMap<String, HashMap<String, Integer>> jobProgressMap, JobPollResult result) {
-        HashMap<String, Integer> jobInstancesForJobName = jobProgressMap.get(result.getJobName());
+    /**
+     * Polls a single job once and reschedules it, or stops tracking it if it reached a terminal state.
+     */
+    private class JobPoller implements Runnable {
+        private final JobWrapper _jobWrapper;
+        private final Semaphore _permits;
+
+        JobPoller(JobWrapper jobWrapper, Semaphore permits) {
+            _jobWrapper = jobWrapper;
+            _permits = permits;
+        }
+
+        @Override
+        public void run() {
+            try {
+                pollJob(_jobWrapper);
+            } finally {
+                _permits.release();
+                _pollsInFlight.decrementAndGet();
+                _jobWrapper._nextPollTime = System.currentTimeMillis() + _jobWrapper._pollingIntervalInMillis;
+                _jobWrapper._polling.set(false);
+            }
+        }
+    }
+
+    private void pollJob(JobWrapper jobWrapper) {
+        Job job = jobWrapper.getJob();
+        try {
+            setPollingStartTime(job);
+            // jobs account transient errors against the time elapsed since the previous poll
+            JobPollResult result = job.poll(_jobContext, jobWrapper._pollingIntervalInMillis);
+            _pollCount.incrementAndGet();
+            updateJobProgress(_jobProgressMap, result);
+            updatePollingInterval(jobWrapper, result);
+
+            boolean stopJobTracking = false;
+            String msg = null;
+            // Check if we have to stop job tracking.
+            if (result.isJobInTerminalState()) {
+                // stop tracking jobs in final status and final post processing status
+                msg = String.format("Tracker: Stopping tracking job %s with status: %s and post-processing status %s",
+                        result.getJobId(), result.getJobStatus(), result.getJobPostProcessingStatus());
+                stopJobTracking = true;
+            } else {
+                long trackingTime = System.currentTimeMillis() - job.getPollingStartTime();
+                if (trackingTime > job.getTimeoutTimeMsec()) {
+                    // Stop tracking job if maximum job tracking time was reached.
+                    msg = String.format("Tracker: Stopping tracking job %s with status: %s and post-processing status %s .\n" +
+                            "The job tracking time reached job tracking time limit %d hours, job tracking time %d hours.",
+                            result.getJobId(), result.getJobStatus(), result.getJobPostProcessingStatus(),
+                            job.getTimeoutTimeMsec() / (60 * 60 * 1000),
+                            trackingTime / (60 * 60 * 1000));
+                    _logger.info(msg);
+                    String errorMsg = String.format(
+                            "Could not execute job %s on backend device. Exceeded time limit for job status tracking.",
+                            result.getJobName());
+                    if (job instanceof VPlexMigrationJob) {
+                        errorMsg = String.format(
+                                "Could not execute VPlex Migration Job %s on backend device. Exceeded time limit for VPLEX migration timeout.",
+                                result.getJobName());
+                    }
+                    ServiceError error = DeviceControllerException.errors.unableToExecuteJob(errorMsg);
+                    job.getTaskCompleter().error(_jobContext.getDbClient(), error);
+                    stopJobTracking = true;
+                }
+            }
+            if (stopJobTracking) {
+                _logger.info(msg);
+                stopTrackingJob(jobWrapper);
+                removeCompletedJobProgressItem(_jobProgressMap, result.getJobId());
+            }
+        } catch (Exception ex) {
+            _logger.error("Tracker: Unexpected exception.", ex);
+        }
+    }
+
+    /**
+     * Keeps the polling interval of a job while it makes progress and backs it off
+     * towards the maximum polling interval while it does not.
+     */
+    private void updatePollingInterval(JobWrapper jobWrapper, JobPollResult result) {
+        int percentComplete = result.getJobPercentComplete();
+        if (percentComplete == jobWrapper._lastPercentComplete) {
+            long interval = (long) (jobWrapper._pollingIntervalInMillis * _pollingBackoffFactor);
+            jobWrapper._pollingIntervalInMillis = Math.min(interval, getMaxPollingInterval());
+        }
+        jobWrapper._lastPercentComplete = percentComplete;
+    }
+
+    /**
+     * Returns the key used to bound concurrent polls against the same storage provider: the active provider
+     * of the storage system of the job, so that the systems managed by one provider share its polling slots,
+     * or the storage system itself when it has no active provider or cannot be read.
+     */
+    String getPollingKey(Job job) {
+        URI storageSystemURI = null;
+        if (job instanceof SmisJob) {
+            storageSystemURI = ((SmisJob) job).getStorageSystemURI();
+        } else if (job instanceof HDSJob) {
+            storageSystemURI = ((HDSJob) job).getStorageSystemURI();
+        } else if (job instanceof CinderJob) {
+            storageSystemURI = ((CinderJob) job).getStorageSystemURI();
+        }
+        if (storageSystemURI == null) {
+            return DEFAULT_POLLING_KEY;
+        }
+        URI providerURI = null;
+        try {
+            StorageSystem storageSystem = _jobContext.getDbClient().queryObject(StorageSystem.class, storageSystemURI);
+            if (storageSystem != null) {
+                providerURI = storageSystem.getActiveProviderURI();
+            }
+        } catch (Exception e) {
+            _logger.warn(String.format("Tracker: Could not read the provider of storage system %s.", storageSystemURI), e);
+        }
+        return NullColumnValueGetter.isNullURI(providerURI) ? storageSystemURI.toString() : providerURI.toString();
+    }
+
+    Semaphore getProviderPermits(String pollingKey) {
+        Semaphore permits = _providerPermits.get(pollingKey);
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(DEFAULT_POLLING_KEY.equals(pollingKey) ? _maxConcurrentPolls
+                    : _maxConcurrentPollsPerProvider);
+            permits = _providerPermits.putIfAbsent(pollingKey, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    private void recordPollingLag(long lag) {
+        if (lag < 0) {
+            lag = 0;
+        }
+        _dispatchCount.incrementAndGet();
+        _totalPollingLagInMillis.addAndGet(lag);
+        long max = _maxPollingLagInMillis.get();
+        while (lag > max && !_maxPollingLagInMillis.compareAndSet(max, lag)) {
+            max = _maxPollingLagInMillis.get();
+        }
+    }
+
+    private long getInitialPollingInterval() {
+        return Math.min(_initialPollingIntervalInMillis, getMaxPollingInterval());
+    }
+
+    private long getMaxPollingInterval() {
+        return Math.max(_maxPollingIntervalInMillis, _initialPollingIntervalInMillis);
+    }
+
+    private void updateJobProgress(ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> jobProgressMap,
+            JobPollResult result) {
+        ConcurrentHashMap<String, Integer> jobInstancesForJobName = jobProgressMap.get(result.getJobName());
         if (jobInstancesForJobName == null) {
-            jobInstancesForJobName = new HashMap<String, Integer>();
-            jobProgressMap.put(result.getJobName(), jobInstancesForJobName);
+            ConcurrentHashMap<String, Integer> newInstances = new ConcurrentHashMap<String, Integer>();
+            jobInstancesForJobName = jobProgressMap.putIfAbsent(result.getJobName(), newInstances);
+            if (jobInstancesForJobName == null) {
+                jobInstancesForJobName = newInstances;
+            }
         }
         jobInstancesForJobName.put(result.getJobId(), Integer.valueOf(result.getJobPercentComplete()));
     }
 
-    private void removeCompletedJobProgressItems(HashMap<String, HashMap<String, Integer>> jobProgressMap,
-            ArrayList<String> completedJobs) {
-        for (String jobId : completedJobs) {
-            Iterator<String> jobProgressMapIter = jobProgressMap.keySet().iterator();
-            while (jobProgressMapIter.hasNext()) {
-                HashMap<String, Integer> jobProgressItemMap = jobProgressMap.get(jobProgressMapIter.next());
-                if (jobProgressItemMap.containsKey(jobId)) {
-                    jobProgressItemMap.remove(jobId);
-                    if (jobProgressItemMap.isEmpty()) {
-                        jobProgressMapIter.remove();
-                    }
-                    break;
+    private void removeCompletedJobProgressItem(ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> jobProgressMap,
+            String jobId) {
+        for (Map.Entry<String, ConcurrentHashMap<String, Integer>> entry : jobProgressMap.entrySet()) {
+            ConcurrentHashMap<String, Integer> jobProgressItemMap = entry.getValue();
+            if (jobProgressItemMap.remove(jobId) != null) {
+                if (jobProgressItemMap.isEmpty()) {
+                    jobProgressMap.remove(entry.getKey(), jobProgressItemMap);
                 }
+                break;
             }
         }
     }
@@ -204,4 +386,88 @@ public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implemen
     public long getTrackingTimeoutInMillis() {
         return _trackingTimeoutInMillis;
     }
+
+    public void setMaxConcurrentPolls(int maxConcurrentPolls) {
+        _maxConcurrentPolls = maxConcurrentPolls;
+    }
+
+    public int getMaxConcurrentPolls() {
+        return _maxConcurrentPolls;
+    }
+
+    public void setMaxConcurrentPollsPerProvider(int maxConcurrentPollsPerProvider) {
+        _maxConcurrentPollsPerProvider = maxConcurrentPollsPerProvider;
+    }
+
+    public int getMaxConcurrentPollsPerProvider() {
+        return _maxConcurrentPollsPerProvider;
+    }
+
+    public void setInitialPollingIntervalInMillis(long initialPollingIntervalInMillis) {
+        _initialPollingIntervalInMillis = initialPollingIntervalInMillis;
+    }
+
+    public long getInitialPollingIntervalInMillis() {
+        return _initialPollingIntervalInMillis;
+    }
+
+    public void setMaxPollingIntervalInMillis(long maxPollingIntervalInMillis) {
+        _maxPollingIntervalInMillis = maxPollingIntervalInMillis;
+    }
+
+    public long getMaxPollingIntervalInMillis() {
+        return _maxPollingIntervalInMillis;
+    }
+
+    public void setPollingBackoffFactor(double pollingBackoffFactor) {
+        _pollingBackoffFactor = pollingBackoffFactor;
+    }
+
+    public double getPollingBackoffFactor() {
+        return _pollingBackoffFactor;
+    }
+
+    /**
+     * @return the number of jobs currently tracked
+     */
+    public int getActiveJobCount() {
+        return _activeJobs.size();
+    }
+
+    /**
+     * @return the number of job polls currently executing
+     */
+    public int getPollsInFlight() {
+        return _pollsInFlight.get();
+    }
+
+    /**
+     * @return the number of due jobs that could not be polled in the last dispatch
+     *         cycle because their provider had no free polling slot
+     */
+    public int getJobsWaitingForPoll() {
+        return _jobsWaitingForPoll;
+    }
+
+    /**
+     * @return the total number of job polls since startup
+     */
+    public long getPollCount() {
+        return _pollCount.get();
+    }
+
+    /**
+     * @return the average time jobs waited past their scheduled poll time
+     */
+    public long getAveragePollingLagInMillis() {
+        long count = _dispatchCount.get();
+        return count == 0 ? 0 : _totalPollingLagInMillis.get() / count;
+    }
+
+    /**
+     * @return the longest time a job waited past its scheduled poll time
+     */
+    public long getMaxPollingLagInMillis() {
+        return _maxPollingLagInMillis.get();
+    }
 }
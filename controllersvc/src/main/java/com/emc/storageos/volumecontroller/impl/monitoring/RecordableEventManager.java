@@ -15,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.impl.TimeSeriesBatchWriter;
 import com.emc.storageos.db.client.model.Event;
 import com.emc.storageos.db.client.model.EventTimeSeries;
 import com.emc.storageos.db.exceptions.DatabaseException;
@@ -156,6 +157,9 @@ public class RecordableEventManager {
     // A reference to the database client.
     private DbClient _dbClient;
 
+    // write the events from a queue in batches instead of on the caller's thread
+    private boolean _asyncRecording = true;
+
     // The logger.
     private static Logger s_logger = LoggerFactory.getLogger(RecordableEventManager.class);
 
@@ -175,8 +179,22 @@ public class RecordableEventManager {
         _dbClient = dbClient;
     }
 
+    public void setAsyncRecording(boolean asyncRecording) {
+        _asyncRecording = asyncRecording;
+    }
+
+    /**
+     * Insert the events queued and not yet written into the database
+     */
+    public void stop() {
+        if (_asyncRecording && _dbClient != null) {
+            TimeSeriesBatchWriter.stopWriter(_dbClient, EventTimeSeries.class);
+        }
+    }
+
     /**
-     * Called to record events in the database.
+     * Called to record events in the database. With asynchronous recording, the events are queued
+     * and inserted with the events recorded by other threads at about the same time.
      * 
      * @param events references to recordable events.
      * @throws IOException thrown when insert events to database fails
@@ -202,6 +220,11 @@ public class RecordableEventManager {
             Event[] dbEvents = new Event[dbEventsList.size()];
             dbEventsList.toArray(dbEvents);
 
+            if (_asyncRecording) {
+                TimeSeriesBatchWriter.getWriter(_dbClient, EventTimeSeries.class, Event.class).add(dbEvents);
+                return;
+            }
+
             // Now insert the events into the database.
             try {
                 String bucketId = _dbClient.insertTimeSeries(EventTimeSeries.class, dbEvents);
@@ -14,6 +14,7 @@ import com.emc.storageos.computesystemcontroller.exceptions.ComputeSystemControl
 import com.emc.storageos.computesystemcontroller.impl.ComputeSystemDiscoveryEngine;
 import com.emc.storageos.plugins.AccessProfile;
 import com.emc.storageos.plugins.BaseCollectionException;
+import com.emc.storageos.plugins.common.Constants;
 import com.emc.storageos.svcs.errorhandling.resources.InternalException;
 
 public class ComputeSystemCommunicationInterface extends ExtendedCommunicationInterfaceImpl {
@@ -46,7 +47,10 @@ public class ComputeSystemCommunicationInterface extends ExtendedCommunicationIn
         try {
             _discoveryEngine.setDbClient(_dbClient);
             _discoveryEngine.setCoordinatorClient(_coordinator);
-            _discoveryEngine.discover(accessProfile.getSystemId().toString());
+            // explicit discovery requests are run even while the target backs off after failures
+            boolean scheduled = accessProfile.getProps() != null
+                    && Boolean.parseBoolean(accessProfile.getProps().get(Constants.SCHEDULER_JOB));
+            _discoveryEngine.discover(accessProfile.getSystemId().toString(), scheduled);
         } catch (InternalException ex) {
             throw ex;
         } catch (Exception e) {
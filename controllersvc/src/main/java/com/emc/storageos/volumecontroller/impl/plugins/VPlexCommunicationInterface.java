@@ -603,6 +603,19 @@ public class VPlexCommunicationInterface extends ExtendedCommunicationInterfaceI
                 tracker.virtualVolumeFetch = System.currentTimeMillis() - timer;
                 tracker.totalVolumesFetched = vvolMap.size();
 
+                // load the device inventory once for this discovery cycle, so that the
+                // backend device lookups for each unmanaged volume are answered from memory;
+                // without it they query the VPLEX per device
+                timer = System.currentTimeMillis();
+                try {
+                    client.refreshInventorySnapshot();
+                    s_logger.info("TIMER: loading the VPLEX inventory snapshot took {}ms",
+                            System.currentTimeMillis() - timer);
+                } catch (VPlexApiException ex) {
+                    s_logger.warn("Could not load the VPLEX inventory snapshot, the backend devices "
+                            + "will be queried per volume: {}", ex.getLocalizedMessage());
+                }
+
                 // discover unmanaged storage views
                 timer = System.currentTimeMillis();
                 Map<String, Set<UnManagedExportMask>> volumeToExportMasksMap = new HashMap<String, Set<UnManagedExportMask>>();
@@ -145,6 +145,7 @@ public class DataCollectionJobConsumer extends
                 completer.getId(),
                 jobType, job.getNamespace());
         profile.setProps(new HashMap<String, String>(_configInfo));
+        profile.getProps().put(Constants.SCHEDULER_JOB, Boolean.toString(job.isSchedulerJob()));
         if (job instanceof DataCollectionArrayAffinityJob) {
             List<URI> hostIds = ((DataCollectionArrayAffinityJob) job).getHostIds();
             if (hostIds != null && !hostIds.isEmpty()) {
@@ -67,28 +67,34 @@ public class FEAdaptStatsProcessor extends CommonStatsProcessor {
             List<String> metricSequence = (List<String>) keyMap.get(Constants.STORAGEOS_FEADAPT_MANIFEST);
             String[] feadaptMetricValues = ((String[]) outputArguments[0].getValue())[0].split("\n");
             Map<String, StorageHADomain> haDomains = getHADomainOfSystem(dbClient, profile.getSystemId());
+            PortMetricsModel model = new PortMetricsModel(dbClient, system);
             if (null == metricSequence || metricSequence.isEmpty()) {
                 _logger.error("No metric sequence for FEAdaptStatsProcessor; no processing will happen");
                 return;
             }
-            for (String metricValue : feadaptMetricValues) {
-                if (metricValue.isEmpty()) {
-                    continue;
-                }
-                String metrics[] = metricValue.split(Constants.SEMI_COLON);
-                String instanceId = metrics[0];
-                String instanceName;
-                if (instanceId.contains(Constants.SMIS80_DELIMITER)) {
-                    instanceName = instanceId.replaceAll(".*\\Q" + Constants.SMIS80_DELIMITER + "\\E", "");
-                } else {
-                    instanceName = instanceId.replaceAll(".*\\+", "");
-                }
-                StorageHADomain haDomain = haDomains.get(instanceName);
-                if (haDomain == null) {
-                    _logger.error("No StorageHADomain for instanceName: " + instanceName);
-                    continue;
+            // save the adapters already processed even if a later one fails
+            try {
+                for (String metricValue : feadaptMetricValues) {
+                    if (metricValue.isEmpty()) {
+                        continue;
+                    }
+                    String metrics[] = metricValue.split(Constants.SEMI_COLON);
+                    String instanceId = metrics[0];
+                    String instanceName;
+                    if (instanceId.contains(Constants.SMIS80_DELIMITER)) {
+                        instanceName = instanceId.replaceAll(".*\\Q" + Constants.SMIS80_DELIMITER + "\\E", "");
+                    } else {
+                        instanceName = instanceId.replaceAll(".*\\+", "");
+                    }
+                    StorageHADomain haDomain = haDomains.get(instanceName);
+                    if (haDomain == null) {
+                        _logger.error("No StorageHADomain for instanceName: " + instanceName);
+                        continue;
+                    }
+                    updateMetrics(metrics, metricSequence, haDomain, model, keyMap);
                 }
-                updateMetrics(metrics, metricSequence, haDomain, system, keyMap);
+            } finally {
+                model.save();
             }
         } catch (Exception e) {
             _logger.error("Failed while extracting stats for FEAdapts: ", e);
@@ -96,8 +102,9 @@ public class FEAdaptStatsProcessor extends CommonStatsProcessor {
     }
 
     private void updateMetrics(String[] metrics, List<String> metricSequence,
-            StorageHADomain haDomain, StorageSystem system,
+            StorageHADomain haDomain, PortMetricsModel model,
             Map<String, Object> keyMap) {
+        StorageSystem system = model.getStorageSystem();
         // Determine if there were previous metrics values
         boolean isVmax = StorageSystem.Type.vmax.name().equals(system.getSystemType());
         boolean isVnx = StorageSystem.Type.vnxblock.name().equals(system.getSystemType());
@@ -170,10 +177,10 @@ public class FEAdaptStatsProcessor extends CommonStatsProcessor {
         }
         if (isVmax && system.checkIfVmax3()) {
             // VMAX3 systems only return percent busy directly.
-            portMetricsProcessor.processFEAdaptMetrics(percentBusy, iops, haDomain, statisticTime);
+            portMetricsProcessor.processFEAdaptMetrics(percentBusy, iops, haDomain, statisticTime, true, model);
         } else {
             portMetricsProcessor.processFEAdaptMetrics(
-                    idleTicks, cumTicks, iops, haDomain, statisticTime);
+                    idleTicks, cumTicks, iops, haDomain, statisticTime, model);
         }
     }
 
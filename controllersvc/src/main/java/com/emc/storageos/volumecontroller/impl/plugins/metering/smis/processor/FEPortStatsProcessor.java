@@ -15,6 +15,7 @@ import org.slf4j.LoggerFactory;
 import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.model.Stat;
 import com.emc.storageos.db.client.model.StoragePort;
+import com.emc.storageos.db.client.model.StorageSystem;
 import com.emc.storageos.plugins.AccessProfile;
 import com.emc.storageos.plugins.common.Constants;
 import com.emc.storageos.plugins.common.domainmodel.Operation;
@@ -62,46 +63,57 @@ public class FEPortStatsProcessor extends CommonStatsProcessor {
             List<String> metricSequence = (List<String>) keyMap.get(Constants.STORAGEOS_FEPORT_MANIFEST);
             String[] feportsMetricValues = ((String[]) outputArguments[0].getValue())[0].split("\n");
             List<StoragePort> systemPorts = ControllerUtils.getSystemPortsOfSystem(dbClient, profile.getSystemId());
+            // All the ports of the array are processed in this cycle, so the masks of the array are
+            // read once into the model, and the ports are written back in batches.
+            StorageSystem system = dbClient.queryObject(StorageSystem.class, profile.getSystemId());
+            PortMetricsModel model = new PortMetricsModel(dbClient, system, true);
+            model.usePorts(systemPorts);
             _logger.debug("FEPort metricNames Sequence {}", metricSequence);
             // Step1: If there is no metric sequence, there is no need to
             // process the results.
             if (null != metricSequence && !metricSequence.isEmpty()) {
-                // Step2: For each feport metric record
-                for (String fePortMetricValue : feportsMetricValues) {
-                    if (fePortMetricValue.isEmpty()) {
-                        _logger.debug("Empty FEPort stats returned as part of Statistics Response");
-                        continue;
-                    }
-                    String metrics[] = fePortMetricValue.split(Constants.SEMI_COLON);
-                    // Step 3: For each port in db for a given system.
-                    for (StoragePort port : systemPorts) {
-                        // Step 4: if port in db is null just continue.
-                        if (null == port) {
+                // The metrics are written by model.save(). Save the ports already processed even
+                // if a later one fails, so that one bad record does not drop the metrics of the array.
+                try {
+                    // Step2: For each feport metric record
+                    for (String fePortMetricValue : feportsMetricValues) {
+                        if (fePortMetricValue.isEmpty()) {
+                            _logger.debug("Empty FEPort stats returned as part of Statistics Response");
                             continue;
-                        } else if (!port.getInactive() && metrics[0].endsWith(port.getPortName())) {
-                            // Step 5: Check whether provider returned port
-                            // exists in db or not. if port exists in db,
-                            // then create a PortStat object for it.
-                            _logger.debug("found FEPort in db for {}", port.getPortName());
-                            createPortStatMetric(metricSequence, port, keyMap, metricsObjList, metrics);
                         }
+                        String metrics[] = fePortMetricValue.split(Constants.SEMI_COLON);
+                        // Step 3: For each port in db for a given system.
+                        for (StoragePort port : systemPorts) {
+                            // Step 4: if port in db is null just continue.
+                            if (null == port) {
+                                continue;
+                            } else if (!port.getInactive() && metrics[0].endsWith(port.getPortName())) {
+                                // Step 5: Check whether provider returned port
+                                // exists in db or not. if port exists in db,
+                                // then create a PortStat object for it.
+                                _logger.debug("found FEPort in db for {}", port.getPortName());
+                                createPortStatMetric(metricSequence, port, keyMap, metricsObjList, metrics, model);
+                            }
+                        }
+
                     }
 
+                    //
+                    // compute port metric to trigger if any port allocation qualification changed. If there is
+                    // changes, run vpool matcher
+                    //
+                    portMetricsProcessor.triggerVpoolMatcherIfPortAllocationQualificationChanged(systemPorts, model);
+
+                    //
+                    // compute storage system's average of port metrics. Then, persist it into storage system object.
+                    //
+                    portMetricsProcessor.computeStorageSystemAvgPortMetrics(profile.getSystemId());
+
+                    // Compute port group's port metrics for vmax only
+                    portMetricsProcessor.computePortGroupMetrics(profile.getSystemId());
+                } finally {
+                    model.save();
                 }
-
-                //
-                // compute port metric to trigger if any port allocation qualification changed. If there is
-                // changes, run vpool matcher
-                //
-                portMetricsProcessor.triggerVpoolMatcherIfPortAllocationQualificationChanged(profile.getSystemId(), systemPorts);
-
-                //
-                // compute storage system's average of port metrics. Then, persist it into storage system object.
-                //
-                portMetricsProcessor.computeStorageSystemAvgPortMetrics(profile.getSystemId());
-
-                // Compute port group's port metrics for vmax only
-                portMetricsProcessor.computePortGroupMetrics(profile.getSystemId());
             } else {
                 _logger.error("failed processing FEPOrt Metric values as metric sequence is null.");
             }
@@ -118,9 +130,10 @@ public class FEPortStatsProcessor extends CommonStatsProcessor {
      * @param portStatsList
      * @param port
      * @param keyMap
+     * @param model
      */
     private void createPortStatMetric(List<String> metricSequence, StoragePort port, Map<String, Object> keyMap,
-            List<Stat> portStatsList, String metrics[]) {
+            List<Stat> portStatsList, String metrics[], PortMetricsModel model) {
         int count = 0;
         Stat portStat = new Stat();
 
@@ -159,7 +172,7 @@ public class FEPortStatsProcessor extends CommonStatsProcessor {
         portStatsList.add(portStat);
 
         // Process the port metrics.
-        portMetricsProcessor.processFEPortMetrics(kbytes, iops, port, convertCIMStatisticTime(statisticTime));
+        portMetricsProcessor.processFEPortMetrics(kbytes, iops, port, convertCIMStatisticTime(statisticTime), model);
     }
 
     public PortMetricsProcessor getPortMetricsProcessor() {
@@ -71,7 +71,11 @@ public enum MetricsKeys {
     /** Indicates whether the storage server is overloaded or not */
     overLoaded,
     /** The ViPR time this port/cpu was last processed. */
-    lastProcessingTime;
+    lastProcessingTime,
+    /** Offset in the VPlex director's perpetual performance file up to which the data lines were collected. */
+    perpetualFileOffset,
+    /** Time (UTC) of the last data line collected from the VPlex director's perpetual performance file. */
+    perpetualFileSampleTime;
 
     static public Long getLong(MetricsKeys key, StringMap map) {
         Long value = 0L;
@@ -0,0 +1,540 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.plugins.metering.smis.processor;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.constraint.AlternateIdConstraint;
+import com.emc.storageos.db.client.constraint.ContainmentConstraint;
+import com.emc.storageos.db.client.constraint.URIQueryResultList;
+import com.emc.storageos.db.client.model.BlockObject;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.ExportMask;
+import com.emc.storageos.db.client.model.StorageHADomain;
+import com.emc.storageos.db.client.model.StoragePort;
+import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.db.client.model.StringSet;
+import com.emc.storageos.db.client.model.Volume;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedExportMask;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume.SupportedVolumeInformation;
+import com.emc.storageos.db.client.util.NullColumnValueGetter;
+
+/**
+ * An in-memory snapshot of the ports, adapters, export masks and unmanaged export masks of one array,
+ * used by the {@link PortMetricsProcessor} to process the port and cpu metrics of a collection cycle
+ * without going back to the database for every port.
+ *
+ * When preloaded, all the export masks and unmanaged export masks of the array are read once, a batch
+ * at a time, and indexed by port. Otherwise they are read for the ports that ask for them, and kept for
+ * the other ports that share them. The ports, adapters and masks are read at most once either way.
+ *
+ * The metrics of the ports and adapters are updated on the model's objects, which are written back in
+ * batches by {@link #save()}. The model is meant to live for a single collection cycle; the masks it
+ * holds are not refreshed.
+ */
+public class PortMetricsModel {
+    private static final Logger _log = LoggerFactory.getLogger(PortMetricsModel.class);
+
+    private static final int SAVE_BATCH_SIZE = 100;
+
+    private final DbClient dbClient;
+    private final StorageSystem system;
+    private final boolean preload;
+
+    private Map<URI, StoragePort> ports;
+    private final Map<URI, StoragePort> usedPorts = new HashMap<URI, StoragePort>();
+    private Map<URI, StorageHADomain> haDomains;
+
+    private Map<URI, List<ExportMask>> masksByPort;
+    private final Map<URI, ExportMask> masks = new HashMap<URI, ExportMask>();
+    private Map<URI, List<UnManagedExportMask>> unmanagedMasksByPort;
+    private final Map<URI, UnManagedExportMask> unmanagedMasks = new HashMap<URI, UnManagedExportMask>();
+
+    /** the name and native id of the array's export masks, only set when preloaded */
+    private Set<String> exportMaskKeys;
+    private final Map<String, List<ExportMask>> masksByName = new HashMap<String, List<ExportMask>>();
+
+    private final Map<URI, Long> blockObjectMetaCounts = new HashMap<URI, Long>();
+    private final Map<URI, Long> unmanagedVolumeMetaCounts = new HashMap<URI, Long>();
+
+    private final Map<URI, DataObject> modified = new LinkedHashMap<URI, DataObject>();
+
+    /**
+     * Creates a model which reads the masks of the ports as they are asked for.
+     *
+     * @param dbClient -- the DbClient
+     * @param system -- the StorageSystem of the ports
+     */
+    public PortMetricsModel(DbClient dbClient, StorageSystem system) {
+        this(dbClient, system, false);
+    }
+
+    /**
+     * Creates a model.
+     *
+     * @param dbClient -- the DbClient
+     * @param system -- the StorageSystem of the ports
+     * @param preload -- if true, all the masks of the array are read on first use, which is cheaper
+     *            when most of the ports of the array are processed
+     */
+    public PortMetricsModel(DbClient dbClient, StorageSystem system, boolean preload) {
+        this.dbClient = dbClient;
+        this.system = system;
+        this.preload = preload;
+    }
+
+    public StorageSystem getStorageSystem() {
+        return system;
+    }
+
+    public DbClient getDbClient() {
+        return dbClient;
+    }
+
+    /**
+     * Makes the model use the caller's instance of the ports, so that the metrics the caller updates
+     * are seen by the usage computations and written back by {@link #save()}.
+     *
+     * @param callerPorts -- the ports
+     */
+    public void usePorts(Collection<StoragePort> callerPorts) {
+        for (StoragePort port : callerPorts) {
+            usePort(port);
+        }
+    }
+
+    /**
+     * Makes the model use the caller's instance of a port.
+     *
+     * @param port -- the port
+     */
+    public void usePort(StoragePort port) {
+        if (port == null) {
+            return;
+        }
+        usedPorts.put(port.getId(), port);
+        if (ports != null) {
+            ports.put(port.getId(), port);
+        }
+    }
+
+    /**
+     * Returns all the ports of the array, read once per model.
+     *
+     * @return the ports of the array
+     */
+    public Collection<StoragePort> getPorts() {
+        if (ports == null) {
+            ports = new LinkedHashMap<URI, StoragePort>();
+            URIQueryResultList portURIs = new URIQueryResultList();
+            dbClient.queryByConstraint(
+                    ContainmentConstraint.Factory.getStorageDeviceStoragePortConstraint(system.getId()), portURIs);
+            Iterator<StoragePort> portIter = dbClient.queryIterativeObjects(StoragePort.class, portURIs);
+            while (portIter.hasNext()) {
+                StoragePort port = portIter.next();
+                if (port != null) {
+                    ports.put(port.getId(), port);
+                }
+            }
+            ports.putAll(usedPorts);
+        }
+        return ports.values();
+    }
+
+    /**
+     * Returns a port of the array.
+     *
+     * @param portURI -- the port URI
+     * @return the port, or null if it is not found
+     */
+    public StoragePort getPort(URI portURI) {
+        StoragePort port = usedPorts.get(portURI);
+        if (port == null) {
+            getPorts();
+            port = ports.get(portURI);
+        }
+        return port;
+    }
+
+    /**
+     * Returns an adapter of the array. When preloaded, all the adapters are read the first time.
+     *
+     * @param haDomainURI -- the StorageHADomain URI
+     * @return the adapter, or null if it is not found
+     */
+    public StorageHADomain getHADomain(URI haDomainURI) {
+        if (haDomains == null) {
+            haDomains = new HashMap<URI, StorageHADomain>();
+            if (preload) {
+                URIQueryResultList haDomainURIs = new URIQueryResultList();
+                dbClient.queryByConstraint(
+                        ContainmentConstraint.Factory.getStorageDeviceStorageHADomainConstraint(system.getId()),
+                        haDomainURIs);
+                Iterator<StorageHADomain> haDomainIter = dbClient.queryIterativeObjects(StorageHADomain.class, haDomainURIs);
+                while (haDomainIter.hasNext()) {
+                    StorageHADomain haDomain = haDomainIter.next();
+                    if (haDomain != null) {
+                        haDomains.put(haDomain.getId(), haDomain);
+                    }
+                }
+            }
+        }
+        if (haDomainURI == null) {
+            return null;
+        }
+        if (!haDomains.containsKey(haDomainURI)) {
+            haDomains.put(haDomainURI, dbClient.queryObject(StorageHADomain.class, haDomainURI));
+        }
+        return haDomains.get(haDomainURI);
+    }
+
+    /**
+     * Makes the model use the caller's instance of an adapter.
+     *
+     * @param haDomain -- the adapter
+     */
+    public void useHADomain(StorageHADomain haDomain) {
+        getHADomain(null);
+        haDomains.put(haDomain.getId(), haDomain);
+    }
+
+    /**
+     * Returns the active export masks containing a port.
+     *
+     * @param portURI -- the port URI
+     * @return the export masks
+     */
+    public List<ExportMask> getExportMasks(URI portURI) {
+        if (masksByPort == null) {
+            masksByPort = new HashMap<URI, List<ExportMask>>();
+            if (preload) {
+                loadExportMasks();
+            }
+        }
+        List<ExportMask> portMasks = masksByPort.get(portURI);
+        if (portMasks == null) {
+            portMasks = preload ? Collections.<ExportMask> emptyList() : queryExportMasks(portURI);
+            masksByPort.put(portURI, portMasks);
+        }
+        return portMasks;
+    }
+
+    private void loadExportMasks() {
+        URIQueryResultList maskURIs = new URIQueryResultList();
+        dbClient.queryByConstraint(
+                ContainmentConstraint.Factory.getStorageDeviceExportMaskConstraint(system.getId()), maskURIs);
+        exportMaskKeys = new HashSet<String>();
+        Iterator<ExportMask> maskIter = dbClient.queryIterativeObjects(ExportMask.class, maskURIs);
+        while (maskIter.hasNext()) {
+            ExportMask mask = maskIter.next();
+            if (mask == null || mask.getInactive()) {
+                continue;
+            }
+            masks.put(mask.getId(), mask);
+            exportMaskKeys.add(exportMaskKey(mask.getMaskName(), mask.getNativeId()));
+            if (mask.getStoragePorts() != null) {
+                for (String portId : mask.getStoragePorts()) {
+                    addToIndex(masksByPort, URI.create(portId), mask);
+                }
+            }
+        }
+        _log.info(String.format("Loaded %d export masks of array %s", masks.size(), system.getLabel()));
+    }
+
+    private List<ExportMask> queryExportMasks(URI portURI) {
+        URIQueryResultList queryResult = new URIQueryResultList();
+        dbClient.queryByConstraint(AlternateIdConstraint.Factory.getExportMasksByPort(portURI.toString()), queryResult);
+        List<URI> maskURIs = new ArrayList<URI>();
+        for (URI maskURI : queryResult) {
+            maskURIs.add(maskURI);
+        }
+        return getObjects(ExportMask.class, maskURIs, masks);
+    }
+
+    /**
+     * Returns the active unmanaged export masks containing a port.
+     *
+     * @param portURI -- the port URI
+     * @return the unmanaged export masks
+     */
+    public List<UnManagedExportMask> getUnManagedExportMasks(URI portURI) {
+        if (unmanagedMasksByPort == null) {
+            unmanagedMasksByPort = new HashMap<URI, List<UnManagedExportMask>>();
+            if (preload) {
+                loadUnManagedExportMasks();
+            }
+        }
+        List<UnManagedExportMask> portMasks = unmanagedMasksByPort.get(portURI);
+        if (portMasks == null) {
+            portMasks = preload ? Collections.<UnManagedExportMask> emptyList() : queryUnManagedExportMasks(portURI);
+            unmanagedMasksByPort.put(portURI, portMasks);
+        }
+        return portMasks;
+    }
+
+    private void loadUnManagedExportMasks() {
+        URIQueryResultList maskURIs = new URIQueryResultList();
+        dbClient.queryByConstraint(
+                ContainmentConstraint.Factory.getStorageSystemUnManagedExportMaskConstraint(system.getId()), maskURIs);
+        Iterator<UnManagedExportMask> maskIter = dbClient.queryIterativeObjects(UnManagedExportMask.class, maskURIs);
+        while (maskIter.hasNext()) {
+            UnManagedExportMask umask = maskIter.next();
+            if (umask == null || umask.getInactive()) {
+                continue;
+            }
+            unmanagedMasks.put(umask.getId(), umask);
+            if (umask.getKnownStoragePortUris() != null) {
+                for (String portId : umask.getKnownStoragePortUris()) {
+                    addToIndex(unmanagedMasksByPort, URI.create(portId), umask);
+                }
+            }
+        }
+        _log.info(String.format("Loaded %d unmanaged export masks of array %s", unmanagedMasks.size(), system.getLabel()));
+    }
+
+    private List<UnManagedExportMask> queryUnManagedExportMasks(URI portURI) {
+        URIQueryResultList queryResult = new URIQueryResultList();
+        dbClient.queryByConstraint(AlternateIdConstraint.Factory.getUnManagedMaskByPort(portURI.toString()), queryResult);
+        List<URI> maskURIs = new ArrayList<URI>();
+        for (URI maskURI : queryResult) {
+            maskURIs.add(maskURI);
+        }
+        return getObjects(UnManagedExportMask.class, maskURIs, unmanagedMasks);
+    }
+
+    /**
+     * Checks to see if there is an active ExportMask of the given maskName and nativeId on the
+     * array of the unmanaged mask.
+     *
+     * @param umask -- the UnManagedExportMask
+     * @return true if there is a matching ExportMask, false otherwise
+     */
+    public boolean hasMatchingExportMask(UnManagedExportMask umask) {
+        String maskName = umask.getMaskName();
+        String nativeId = umask.getNativeId();
+        if (exportMaskKeys != null && system.getId().equals(umask.getStorageSystemUri())) {
+            return nativeId != null && exportMaskKeys.contains(exportMaskKey(maskName, nativeId));
+        }
+        List<ExportMask> namedMasks = masksByName.get(maskName);
+        if (namedMasks == null) {
+            URIQueryResultList queryResult = new URIQueryResultList();
+            dbClient.queryByConstraint(AlternateIdConstraint.Factory.getExportMaskByNameConstraint(maskName), queryResult);
+            List<URI> maskURIs = new ArrayList<URI>();
+            for (URI maskURI : queryResult) {
+                maskURIs.add(maskURI);
+            }
+            namedMasks = getObjects(ExportMask.class, maskURIs, masks);
+            masksByName.put(maskName, namedMasks);
+        }
+        for (ExportMask mask : namedMasks) {
+            if (mask.getNativeId() != null && mask.getNativeId().equals(nativeId)
+                    && mask.getStorageDevice().equals(umask.getStorageSystemUri())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String exportMaskKey(String maskName, String nativeId) {
+        return maskName + "|" + nativeId;
+    }
+
+    /**
+     * Returns the number of volumes to count for the given block objects: the meta member count of
+     * the volumes that have one, otherwise one. Inactive or missing block objects are not counted.
+     * A block object listed several times is counted each time.
+     *
+     * @param blockObjectURIs -- the block object URIs, as found in ExportMask volumes
+     * @return the sum of the counts
+     */
+    public long getMetaMemberCount(Collection<String> blockObjectURIs) {
+        List<URI> volumeURIs = new ArrayList<URI>();
+        for (String uri : blockObjectURIs) {
+            if (!NullColumnValueGetter.isNotNullValue(uri)) {
+                continue;
+            }
+            URI blockObjectURI = URI.create(uri);
+            if (blockObjectMetaCounts.containsKey(blockObjectURI)) {
+                continue;
+            }
+            if (URIUtil.isType(blockObjectURI, Volume.class)) {
+                blockObjectMetaCounts.put(blockObjectURI, 0L);
+                volumeURIs.add(blockObjectURI);
+            } else {
+                // snapshots and mirrors are rare in masks, and do not have meta members
+                BlockObject blockObject = BlockObject.fetch(dbClient, blockObjectURI);
+                blockObjectMetaCounts.put(blockObjectURI, (blockObject != null && !blockObject.getInactive()) ? 1L : 0L);
+            }
+        }
+        if (!volumeURIs.isEmpty()) {
+            Iterator<Volume> volumeIter = dbClient.queryIterativeObjects(Volume.class, volumeURIs);
+            while (volumeIter.hasNext()) {
+                Volume volume = volumeIter.next();
+                if (volume != null && !volume.getInactive()) {
+                    blockObjectMetaCounts.put(volume.getId(),
+                            volume.getMetaMemberCount() != null ? volume.getMetaMemberCount().longValue() : 1L);
+                }
+            }
+        }
+
+        long count = 0L;
+        for (String uri : blockObjectURIs) {
+            if (NullColumnValueGetter.isNotNullValue(uri)) {
+                count += blockObjectMetaCounts.get(URI.create(uri));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of volumes to count for each of the given unmanaged volumes: their meta
+     * member count if available, otherwise one.
+     *
+     * @param unmanagedVolumeURIs -- the UnManagedVolume URIs
+     * @return the sum of the counts
+     */
+    public long getUnManagedMetaMemberCount(Collection<String> unmanagedVolumeURIs) {
+        List<URI> toLoad = new ArrayList<URI>();
+        for (String uri : unmanagedVolumeURIs) {
+            URI unmanagedVolumeURI = URI.create(uri);
+            if (!unmanagedVolumeMetaCounts.containsKey(unmanagedVolumeURI)) {
+                unmanagedVolumeMetaCounts.put(unmanagedVolumeURI, 1L);
+                toLoad.add(unmanagedVolumeURI);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            Iterator<UnManagedVolume> volumeIter = dbClient.queryIterativeObjects(UnManagedVolume.class, toLoad);
+            while (volumeIter.hasNext()) {
+                UnManagedVolume umVolume = volumeIter.next();
+                Long metaMemberCount = getUnManagedVolumeMetaMemberCount(umVolume);
+                if (metaMemberCount != null) {
+                    unmanagedVolumeMetaCounts.put(umVolume.getId(), metaMemberCount);
+                }
+            }
+        }
+        long count = 0L;
+        for (String uri : unmanagedVolumeURIs) {
+            count += unmanagedVolumeMetaCounts.get(URI.create(uri));
+        }
+        return count;
+    }
+
+    /**
+     * Returns the MetaMemberCount of an unmanaged volume if available;
+     * otherwise returns null
+     *
+     * @param umVolume -- an UnManagedVolume
+     * @return Long meta member count or null if not available
+     */
+    private static Long getUnManagedVolumeMetaMemberCount(UnManagedVolume umVolume) {
+        Long retval = null;
+        if (umVolume != null && umVolume.getVolumeInformation() != null) {
+            StringSet availableValueSet = umVolume.getVolumeInformation()
+                    .get(SupportedVolumeInformation.META_MEMBER_COUNT.toString());
+            if (availableValueSet != null) {
+                for (String value : availableValueSet) {
+                    retval = Long.parseLong(value);
+                }
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * Records a port or adapter whose metrics changed, to be written by {@link #save()}.
+     *
+     * @param object -- the StoragePort or StorageHADomain
+     */
+    public void markModified(DataObject object) {
+        modified.put(object.getId(), object);
+    }
+
+    /**
+     * Writes the modified ports and adapters to the database, a batch at a time.
+     */
+    public void save() {
+        if (modified.isEmpty()) {
+            return;
+        }
+        List<StoragePort> portsToSave = new ArrayList<StoragePort>();
+        List<StorageHADomain> haDomainsToSave = new ArrayList<StorageHADomain>();
+        for (DataObject object : modified.values()) {
+            if (object instanceof StoragePort) {
+                portsToSave.add((StoragePort) object);
+            } else if (object instanceof StorageHADomain) {
+                haDomainsToSave.add((StorageHADomain) object);
+            } else {
+                dbClient.updateObject(object);
+            }
+        }
+        modified.clear();
+        saveInBatches(portsToSave);
+        saveInBatches(haDomainsToSave);
+    }
+
+    private <T extends DataObject> void saveInBatches(List<T> objects) {
+        for (int start = 0; start < objects.size(); start += SAVE_BATCH_SIZE) {
+            dbClient.updateObject(objects.subList(start, Math.min(start + SAVE_BATCH_SIZE, objects.size())));
+        }
+    }
+
+    /**
+     * Returns the objects for the URIs, reading from the database only those not already in the cache.
+     * Inactive objects are left out.
+     */
+    private <T extends DataObject> List<T> getObjects(Class<T> clazz, List<URI> uris, Map<URI, T> cache) {
+        List<URI> toLoad = new ArrayList<URI>();
+        for (URI uri : uris) {
+            if (!cache.containsKey(uri)) {
+                toLoad.add(uri);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            for (URI uri : toLoad) {
+                cache.put(uri, null);
+            }
+            Iterator<T> objectIter = dbClient.queryIterativeObjects(clazz, toLoad);
+            while (objectIter.hasNext()) {
+                T object = objectIter.next();
+                if (object != null && !object.getInactive()) {
+                    cache.put(object.getId(), object);
+                }
+            }
+        }
+        List<T> objects = new ArrayList<T>();
+        for (URI uri : uris) {
+            T object = cache.get(uri);
+            if (object != null) {
+                objects.add(object);
+            }
+        }
+        return objects;
+    }
+
+    private static <T> void addToIndex(Map<URI, List<T>> index, URI key, T value) {
+        List<T> values = index.get(key);
+        if (values == null) {
+            values = new ArrayList<T>();
+            index.put(key, values);
+        }
+        values.add(value);
+    }
+}
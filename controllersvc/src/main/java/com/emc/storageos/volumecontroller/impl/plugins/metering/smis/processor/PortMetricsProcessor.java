@@ -9,7 +9,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -47,8 +46,6 @@ import com.emc.storageos.db.client.model.Volume;
 import com.emc.storageos.db.client.model.ZoneInfo;
 import com.emc.storageos.db.client.model.ZoneInfoMap;
 import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedExportMask;
-import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume;
-import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume.SupportedVolumeInformation;
 import com.emc.storageos.db.client.util.NullColumnValueGetter;
 import com.emc.storageos.db.client.util.StringSetUtil;
 import com.emc.storageos.volumecontroller.impl.ControllerUtils;
@@ -123,7 +120,26 @@ public class PortMetricsProcessor {
      */
     public void processFEAdaptMetrics(Double percentBusy, Long iops, StorageHADomain haDomain, String statisticTime,
             boolean usingCIMTime) {
-        StorageSystem system = _dbClient.queryObject(StorageSystem.class, haDomain.getStorageDeviceURI());
+        PortMetricsModel model = createModel(haDomain.getStorageDeviceURI());
+        processFEAdaptMetrics(percentBusy, iops, haDomain, statisticTime, usingCIMTime, model);
+        model.save();
+    }
+
+    /**
+     * Process a cpu metric sample against the metrics model of the array. The adapter is written
+     * when the model is saved.
+     * 
+     * @param percentBusy -- double from 0 to 100.0 indicating percent busy
+     * @param iops -- a cumulative count of the I/O operations (read and write). This counter is ever increasing (but rolls over).
+     * @param haDomain -- the StorageHADomain corresponding to this cpu.
+     * @param statisticTime -- The statistic time that the collection was made on the array.
+     * @param usingCIMTime -- Indicates if 'statisticsTime' is in UTC.
+     * @param model -- the PortMetricsModel of the array
+     */
+    public void processFEAdaptMetrics(Double percentBusy, Long iops, StorageHADomain haDomain, String statisticTime,
+            boolean usingCIMTime, PortMetricsModel model) {
+        StorageSystem system = model.getStorageSystem();
+        model.useHADomain(haDomain);
         StringMap dbMetrics = haDomain.getMetrics();
         Long sampleTime = (usingCIMTime) ? convertCIMStatisticTime(statisticTime) : Long.valueOf(statisticTime);
         _log.info(String.format("FEAdaptMetrics %s %s percentBusy %f  iops %d sampleTime %d",
@@ -146,7 +162,7 @@ public class PortMetricsProcessor {
 
         MetricsKeys.putLong(MetricsKeys.lastSampleTime, sampleTime, dbMetrics);
         haDomain.setMetrics(dbMetrics);
-        _dbClient.updateObject(haDomain);
+        model.markModified(haDomain);
     }
 
     /**
@@ -161,7 +177,26 @@ public class PortMetricsProcessor {
      */
     public void processFEAdaptMetrics(Long idleTicks, Long cumTicks, Long iops,
             StorageHADomain haDomain, String statisticTime) {
-        StorageSystem system = _dbClient.queryObject(StorageSystem.class, haDomain.getStorageDeviceURI());
+        PortMetricsModel model = createModel(haDomain.getStorageDeviceURI());
+        processFEAdaptMetrics(idleTicks, cumTicks, iops, haDomain, statisticTime, model);
+        model.save();
+    }
+
+    /**
+     * Process a cpu metric sample against the metrics model of the array. The adapter is written
+     * when the model is saved.
+     * 
+     * @param idleTicks -- a cumulative idleTicks value reported in the metrics.
+     * @param cumTicks -- a cumulative ticks value (representing the time between samples in ticks).
+     * @param iops -- a cumulative count of the I/O operations (read and write).
+     * @param haDomain -- the StorageHADomain corresponding to this cpu.
+     * @param statisticTime -- The statistic time that the collection was made on the array.
+     * @param model -- the PortMetricsModel of the array
+     */
+    public void processFEAdaptMetrics(Long idleTicks, Long cumTicks, Long iops,
+            StorageHADomain haDomain, String statisticTime, PortMetricsModel model) {
+        StorageSystem system = model.getStorageSystem();
+        model.useHADomain(haDomain);
         StringMap dbMetrics = haDomain.getMetrics();
         Long sampleTime = convertCIMStatisticTime(statisticTime);
         _log.info(String.format("FEAdaptMetrics %s %s idleTicks %d cumTicks %d iops %d sampleTime %d",
@@ -199,7 +234,7 @@ public class PortMetricsProcessor {
 
         MetricsKeys.putLong(MetricsKeys.lastSampleTime, sampleTime, dbMetrics);
         haDomain.setMetrics(dbMetrics);
-        _dbClient.updateObject(haDomain);
+        model.markModified(haDomain);
     }
 
     /**
@@ -213,12 +248,29 @@ public class PortMetricsProcessor {
      * @param sampleTime -- The statistic time that the collection was made on the array. Given as a string, see convertCimStatisticTime.
      */
     public void processFEPortMetrics(Long kbytes, Long iops, StoragePort port, Long sampleTime) {
+        PortMetricsModel model = createModel(port.getStorageDevice());
+        processFEPortMetrics(kbytes, iops, port, sampleTime, model);
+        model.save();
+    }
+
+    /**
+     * Process a port metric sample against the metrics model of the array. The port is written
+     * when the model is saved.
+     * 
+     * @param kbytes -- a cumulative counter of the kilobytes transferred.
+     * @param iops -- a cumulative counter of the iops (I/O operations).
+     * @param port -- the StoragePort this port metric is for.
+     * @param sampleTime -- The statistic time that the collection was made on the array.
+     * @param model -- the PortMetricsModel of the array
+     */
+    public void processFEPortMetrics(Long kbytes, Long iops, StoragePort port, Long sampleTime, PortMetricsModel model) {
         StringMap dbMetrics = port.getMetrics();
         _log.info(String.format("FEPortMetrics %s %s kbytes %d iops %d sampleTime %d",
                 port.getNativeGuid(), portName(port), kbytes, iops, sampleTime));
 
         // Read the current value of the database variables
-        StorageSystem system = _dbClient.queryObject(StorageSystem.class, port.getStorageDevice());
+        StorageSystem system = model.getStorageSystem();
+        model.usePort(port);
         Long iopsValue = MetricsKeys.getLong(MetricsKeys.iopsValue, dbMetrics);
         Long kbytesValue = MetricsKeys.getLong(MetricsKeys.kbytesValue, dbMetrics);
         Long lastSampleTimeValue = MetricsKeys.getLong(MetricsKeys.lastSampleTime, dbMetrics);
@@ -253,10 +305,8 @@ public class PortMetricsProcessor {
             computePercentBusyAverages(kbytesDelta / secondsDelta, maxKBytesPerSecond, iopsDelta,
                     dbMetrics, port.getNativeGuid(), portName(port), sampleTime, system);
             // Compute the current port metric.
-            List<StoragePort> portList = new ArrayList<StoragePort>();
-            portList.add(port);
-            updateStaticPortUsage(portList);
-            Double portMetric = computePortMetric(port);
+            updateStaticPortUsage(Collections.singletonList(port), model);
+            Double portMetric = computePortMetric(port, model);
             MetricsKeys.putDouble(MetricsKeys.portMetric, portMetric, dbMetrics);
             MetricsKeys.putLong(MetricsKeys.lastProcessingTime, System.currentTimeMillis(), dbMetrics);
         }
@@ -270,9 +320,9 @@ public class PortMetricsProcessor {
         boolean countMetaMembers = (
                 system.getSystemType().equals(DiscoveredDataObject.Type.vmax.name())
                 && !system.checkIfVmax3());
-        updateUnmanagedVolumeAndInitiatorCounts(port, countMetaMembers, dbMetrics);
+        updateUnmanagedVolumeAndInitiatorCounts(port, countMetaMembers, dbMetrics, model);
         port.setMetrics(dbMetrics);
-        _dbClient.updateObject(port);
+        model.markModified(port);
     }
 
     /**
@@ -286,12 +336,29 @@ public class PortMetricsProcessor {
      * @param sampleTime -- The statistic time that the collection was made on the array. Given as a string, see convertCimStatisticTime.
      */
     public void processIPPortMetrics(Long kbytes, Long iops, StoragePort port, Long sampleTime) {
+        PortMetricsModel model = createModel(port.getStorageDevice());
+        processIPPortMetrics(kbytes, iops, port, sampleTime, model);
+        model.save();
+    }
+
+    /**
+     * Process an IP port metric sample against the metrics model of the array. The port is written
+     * when the model is saved.
+     * 
+     * @param kbytes -- a cumulative counter of the kilobytes transferred.
+     * @param iops -- a cumulative counter of the iops (I/O operations).
+     * @param port -- the StoragePort this port metric is for.
+     * @param sampleTime -- The statistic time that the collection was made on the array.
+     * @param model -- the PortMetricsModel of the array
+     */
+    public void processIPPortMetrics(Long kbytes, Long iops, StoragePort port, Long sampleTime, PortMetricsModel model) {
         StringMap dbMetrics = port.getMetrics();
         _log.info(String.format("IP PortMetrics %s %s kbytes %d iops %d sampleTime %d",
                 port.getNativeGuid(), portName(port), kbytes, iops, sampleTime));
 
         // Read the current value of the database variables
-        StorageSystem system = _dbClient.queryObject(StorageSystem.class, port.getStorageDevice());
+        StorageSystem system = model.getStorageSystem();
+        model.usePort(port);
         Long iopsValue = MetricsKeys.getLong(MetricsKeys.iopsValue, dbMetrics);
         Long kbytesValue = MetricsKeys.getLong(MetricsKeys.kbytesValue, dbMetrics);
         Long lastSampleTimeValue = MetricsKeys.getLong(MetricsKeys.lastSampleTime, dbMetrics);
@@ -326,10 +393,8 @@ public class PortMetricsProcessor {
             computePercentBusyAverages(kbytesDelta / secondsDelta, maxKBytesPerSecond, iopsDelta,
                     dbMetrics, port.getNativeGuid(), portName(port), sampleTime, system);
             // Compute the current port metric.
-            List<StoragePort> portList = new ArrayList<StoragePort>();
-            portList.add(port);
-            updateStaticPortUsage(portList);
-            Double portMetric = computePortMetric(port);
+            updateStaticPortUsage(Collections.singletonList(port), model);
+            Double portMetric = computePortMetric(port, model);
             MetricsKeys.putDouble(MetricsKeys.portMetric, portMetric, dbMetrics);
             MetricsKeys.putLong(MetricsKeys.lastProcessingTime, System.currentTimeMillis(), dbMetrics);
         }
@@ -340,7 +405,7 @@ public class PortMetricsProcessor {
         MetricsKeys.putLong(MetricsKeys.lastSampleTime, sampleTime, dbMetrics);
 
         port.setMetrics(dbMetrics);
-        _dbClient.updateObject(port);
+        model.markModified(port);
     }
 
     /**
@@ -355,7 +420,18 @@ public class PortMetricsProcessor {
      * @return Double indicating the dbMetric b/w 0.0 < value <= 100.0
      */
     Double computePortMetric(StoragePort port) {
-        StorageSystem system = _dbClient.queryObject(StorageSystem.class, port.getStorageDevice());
+        return computePortMetric(port, createModel(port.getStorageDevice()));
+    }
+
+    /**
+     * Compute the overall port metric given the port, reading its array and adapter from the metrics model.
+     * 
+     * @param port -- StoragePort the metric is to be computed for
+     * @param model -- the PortMetricsModel of the array
+     * @return Double indicating the dbMetric b/w 0.0 < value <= 100.0
+     */
+    Double computePortMetric(StoragePort port, PortMetricsModel model) {
+        StorageSystem system = model.getStorageSystem();
         DiscoveredDataObject.Type type = DiscoveredDataObject.Type.valueOf(system.getSystemType());
         StringMap portMap = port.getMetrics();
         double emaFactor = getEmaFactor(DiscoveredDataObject.Type.valueOf(system.getSystemType()));
@@ -388,7 +464,7 @@ public class PortMetricsProcessor {
         if (type == DiscoveredDataObject.Type.vmax ||
                 type == DiscoveredDataObject.Type.vnxblock ||
                 type == DiscoveredDataObject.Type.vplex) {
-            StorageHADomain haDomain = _dbClient.queryObject(StorageHADomain.class, port.getStorageHADomain());
+            StorageHADomain haDomain = model.getHADomain(port.getStorageHADomain());
             StringMap cpuMap = haDomain.getMetrics();
 
             cpuAvgBusy = MetricsKeys.getDouble(MetricsKeys.avgPercentBusy, cpuMap);
@@ -729,13 +805,33 @@ public class PortMetricsProcessor {
      */
     public Map<StoragePort, Long> computeStoragePortUsage(
             List<StoragePort> candidatePorts, StorageSystem system, boolean updatePortUsages) {
+        PortMetricsModel model = new PortMetricsModel(_dbClient, system);
+        model.usePorts(candidatePorts);
+        Map<StoragePort, Long> usages = computeStoragePortUsage(candidatePorts, model, updatePortUsages);
+        model.save();
+        return usages;
+    }
+
+    /**
+     * Computes the usage of a set of candidate StoragePorts against the metrics model of their array.
+     * The ports whose usage or qualification changed are written when the model is saved.
+     * 
+     * @param candidatePorts -- List of StoragePort
+     * @param model -- the PortMetricsModel of the array
+     * @param updatePortUsages -- If true, recomputes port initiator and volume count usages
+     * @return Map of StoragePort to Integer usage metric that is count of Initiators using port
+     * @see #computeStoragePortUsage(List, StorageSystem, boolean)
+     */
+    public Map<StoragePort, Long> computeStoragePortUsage(
+            List<StoragePort> candidatePorts, PortMetricsModel model, boolean updatePortUsages) {
+        StorageSystem system = model.getStorageSystem();
         Map<StoragePort, Long> usages = new HashMap<StoragePort, Long>();
         boolean metricsValid = metricsValid(system, candidatePorts);
         Double volumeCoefficient = getVolumeCoefficient(StorageSystem.Type.valueOf(system.getSystemType()));
 
         // Disqualify any ports over one of their ceilings. This will recalculate the volume counts and
         // initiator counts if updatePortUsages is true.
-        List<StoragePort> portsUnderCeiling = eliminatePortsOverCeiling(candidatePorts, system, updatePortUsages);
+        List<StoragePort> portsUnderCeiling = eliminatePortsOverCeiling(candidatePorts, model, updatePortUsages);
 
         for (StoragePort sp : portsUnderCeiling) {
             // only compute port metric for front end port
@@ -761,6 +857,16 @@ public class PortMetricsProcessor {
         return usages;
     }
 
+    /**
+     * Creates a metrics model of an array which reads the masks of the ports as they are processed.
+     * 
+     * @param storageSystemURI -- URI for the storage system
+     * @return the PortMetricsModel
+     */
+    private PortMetricsModel createModel(URI storageSystemURI) {
+        return new PortMetricsModel(_dbClient, _dbClient.queryObject(StorageSystem.class, storageSystemURI));
+    }
+
     public void setCoordinator(CoordinatorClient coordinator) {
         if (_coordinator == null) {
             _coordinator = coordinator;
@@ -785,19 +891,19 @@ public class PortMetricsProcessor {
      * Eliminates ports from the candidate list that are over one of their ceilings.
      * 
      * @param ports -- List<StoragePort> the allocation candidates
-     * @param system -- StorageSystem
+     * @param model -- the PortMetricsModel of the array
      * @param updatePortUsages -- if true, recomputes the static use counts for initiators and volumes
      * @return updated list of candidate ports
      */
     private List<StoragePort> eliminatePortsOverCeiling(
-            List<StoragePort> ports, StorageSystem system, boolean updatePortUsages) {
+            List<StoragePort> ports, PortMetricsModel model, boolean updatePortUsages) {
         List<StoragePort> portList = new ArrayList<StoragePort>();
         for (StoragePort sp : ports) {
             // since this method is invoked locally, port metrics are ready
             // updated. Hence, no need to update in its callee --set "false" to avoid
             // redundant update
             // COP-35850 In case of provisioning volume to new host we should set checkInitiatorCountOverCeiling flag as true
-            boolean overCeiling = isPortOverCeiling(sp, system, updatePortUsages, true);
+            boolean overCeiling = isPortOverCeiling(sp, model, updatePortUsages, true);
             if (!overCeiling) {
                 portList.add(sp);
             }
@@ -818,6 +924,25 @@ public class PortMetricsProcessor {
      */
     public boolean isPortOverCeiling(StoragePort sp, StorageSystem system, boolean updatePortUsages,
             boolean checkInitiatorCountOverCeiling) {
+        PortMetricsModel model = new PortMetricsModel(_dbClient, system);
+        model.usePort(sp);
+        boolean overCeiling = isPortOverCeiling(sp, model, updatePortUsages, checkInitiatorCountOverCeiling);
+        model.save();
+        return overCeiling;
+    }
+
+    /**
+     * Returns true if a port is over one or more ceilings. The port is written when the model is saved.
+     * 
+     * @param sp
+     * @param model -- the PortMetricsModel of the array
+     * @param updatePortUsages - update port usage computation
+     * @param checkInitiatorCountOverCeiling -- whether initiator count ceiling check is required or not
+     * @return
+     */
+    private boolean isPortOverCeiling(StoragePort sp, PortMetricsModel model, boolean updatePortUsages,
+            boolean checkInitiatorCountOverCeiling) {
+        StorageSystem system = model.getStorageSystem();
         boolean overCeiling = false;
         Integer ceiling;
         boolean metricsValid = metricsValid(system, Collections.singletonList(sp));
@@ -825,7 +950,7 @@ public class PortMetricsProcessor {
         // to optimize performance, avoid redundant update port usage. When this method invoked
         // locally, port usage is already computed. Hence, usage values generally do not need to update
         if (updatePortUsages) {
-            updateStaticPortUsage(Collections.singletonList(sp));
+            updateStaticPortUsage(Collections.singletonList(sp), model);
         }
 
         StringMap metrics = sp.getMetrics();
@@ -884,7 +1009,7 @@ public class PortMetricsProcessor {
 
         // Save the over ceiling value for display on the UI.
         MetricsKeys.putBoolean(MetricsKeys.allocationDisqualified, overCeiling, sp.getMetrics());
-        _dbClient.updateObject(sp);
+        model.markModified(sp);
         return overCeiling;
     }
 
@@ -1054,31 +1179,20 @@ public class PortMetricsProcessor {
     }
 
     /**
-     * Updates the static port usage parameters for a set of ports.
+     * Updates the static port usage parameters for a set of ports, from the masks in the metrics model.
      * 
      * @param candidatePorts List<StoragePort>
+     * @param model -- the PortMetricsModel of the array
      */
-    static private void updateStaticPortUsage(List<StoragePort> candidatePorts) {
+    static private void updateStaticPortUsage(List<StoragePort> candidatePorts, PortMetricsModel model) {
         _log.debug(String.format("updateStaticPortUsage: %s", candidatePorts.toString()));
-        StorageSystem system = null;
+        StorageSystem system = model.getStorageSystem();
         Map<StoragePort, Long> portCache = new HashMap<StoragePort, Long>();
-        if (!candidatePorts.isEmpty()) {
-            system = _dbClient.queryObject(StorageSystem.class, candidatePorts.get(0).getStorageDevice());
-        }
         for (StoragePort sp : candidatePorts) {
             Long initiatorCount = 0L;
             Long volumeCount = 0L;
             // Find all the Export Masks containing the port.
-            URIQueryResultList queryResult = new URIQueryResultList();
-            _dbClient.queryByConstraint(AlternateIdConstraint.Factory
-                    .getExportMasksByPort(sp.getId().toString()), queryResult);
-            Iterator<URI> maskIt = queryResult.iterator();
-            while (maskIt.hasNext()) {
-                URI maskURI = maskIt.next();
-                ExportMask mask = _dbClient.queryObject(ExportMask.class, maskURI);
-                if (mask == null || mask.getInactive()) {
-                    continue;
-                }
+            for (ExportMask mask : model.getExportMasks(sp.getId())) {
                 initiatorCount += computeInitiatorCountInMask(mask, sp.getId().toString());
                 // VMAX2 volume count is handled separately below.
                 // VMAX3 volume count is handled here. VMAX3 does not have a dependency on
@@ -1105,7 +1219,7 @@ public class PortMetricsProcessor {
             // Add volume counts for VMAX2.
             if (system.getSystemType().equals(DiscoveredDataObject.Type.vmax.name())
                     && !system.checkIfVmax3()) {
-                volumeCount += getVmax2VolumeCount(sp, system, portCache);
+                volumeCount += getVmax2VolumeCount(sp, model, portCache);
             } else { // VMAX3 and other arrays use the value computed above + unmanaged volumes
                 volumeCount += MetricsKeys.getLong(MetricsKeys.unmanagedVolumeCount, sp.getMetrics());
             }
@@ -1113,7 +1227,7 @@ public class PortMetricsProcessor {
             // Update the counts.
             MetricsKeys.putLong(MetricsKeys.initiatorCount, initiatorCount, sp.getMetrics());
             MetricsKeys.putLong(MetricsKeys.volumeCount, volumeCount, sp.getMetrics());
-            _dbClient.updateObject(sp);
+            model.markModified(sp);
 
             _log.debug(String.format("Port %s %s updated initiatorCount %d volumeCount %d",
                     sp.getNativeGuid(), portName(sp), initiatorCount, volumeCount));
@@ -1127,18 +1241,13 @@ public class PortMetricsProcessor {
      * for both ports on the cpu.
      * 
      * @param sp
-     * @param system
+     * @param model
      * @param portCache
      * @return
      */
-    static private long getVmax2VolumeCount(StoragePort sp, StorageSystem system, Map<StoragePort, Long> portCache) {
+    static private long getVmax2VolumeCount(StoragePort sp, PortMetricsModel model, Map<StoragePort, Long> portCache) {
         if (portCache.isEmpty()) {
-            URIQueryResultList storagePortURIs = new URIQueryResultList();
-            _dbClient.queryByConstraint(
-                    ContainmentConstraint.Factory.getStorageDeviceStoragePortConstraint(system.getId()),
-                    storagePortURIs);
-            List<StoragePort> storagePorts = _dbClient.queryObject(StoragePort.class, storagePortURIs);
-            for (StoragePort port : storagePorts) {
+            for (StoragePort port : model.getPorts()) {
                 portCache.put(port, -1L);
             }
         }
@@ -1160,18 +1269,12 @@ public class PortMetricsProcessor {
         // First, determine all the export masks to be visited. Note that
         // a single mask may include both paired ports, we only want to
         // visit it once.
-        Set<URI> masksToVisit = new HashSet<URI>();
+        Map<URI, ExportMask> masksToVisit = new HashMap<URI, ExportMask>();
         Long volumeCount = 0L;
-        for (URI portURI : portsToSum.keySet()) {
-            StoragePort portToSum = _dbClient.queryObject(StoragePort.class, portURI);
-
+        for (StoragePort portToSum : portsToSum.values()) {
             // Find all the Export Masks containing the port.
-            URIQueryResultList queryResult = new URIQueryResultList();
-            _dbClient.queryByConstraint(AlternateIdConstraint.Factory
-                    .getExportMasksByPort(portURI.toString()), queryResult);
-            Iterator<URI> maskIt = queryResult.iterator();
-            while (maskIt.hasNext()) {
-                masksToVisit.add(maskIt.next());
+            for (ExportMask mask : model.getExportMasks(portToSum.getId())) {
+                masksToVisit.put(mask.getId(), mask);
             }
 
             // Add in any ports in UnManagedExportMasks to the volume count for the port.
@@ -1179,42 +1282,20 @@ public class PortMetricsProcessor {
         }
 
         // Iterate through all the masks, finding the volumes. At the meta member counts for the volumes
-        // if available.
-        for (URI maskURI : masksToVisit) {
-            ExportMask mask = _dbClient.queryObject(ExportMask.class, maskURI);
-            if (mask == null || mask.getInactive()) {
-                continue;
-            }
+        // if available. The volumes of all the masks are read together.
+        List<String> maskVolumes = new ArrayList<String>();
+        for (ExportMask mask : masksToVisit.values()) {
             if (mask.getExistingVolumes() != null) {
                 long existingVolumeCount = mask.getExistingVolumes().size();
                 volumeCount += existingVolumeCount;
                 _log.debug(String.format("Mask %s existing volumes %d", mask.getMaskName(), existingVolumeCount));
             }
-
-            // Loop through all the volumes in the mask.
-            StringMap volumes = mask.getVolumes();
-            if (volumes == null) {
-                continue;
-            }
-            for (String volURI : volumes.keySet()) {
-                if (NullColumnValueGetter.isNotNullValue(volURI)) {
-                    BlockObject blkobj = BlockObject.fetch(_dbClient, URI.create(volURI));
-                    if (blkobj != null && !blkobj.getInactive()) {
-                        if (blkobj instanceof Volume) {
-                            Volume vol = (Volume) blkobj;
-                            if (vol.getMetaMemberCount() != null) {
-                                volumeCount += vol.getMetaMemberCount();
-                                _log.info(String.format("Volume %s meta count %d", vol.getLabel(), vol.getMetaMemberCount()));
-                            } else {
-                                volumeCount += 1;
-                            }
-                        } else {
-                            volumeCount += 1;
-                        }
-                    }
-                }
+            if (mask.getVolumes() != null) {
+                maskVolumes.addAll(mask.getVolumes().keySet());
             }
         }
+        volumeCount += model.getMetaMemberCount(maskVolumes);
+
         for (StoragePort port : portsToSum.values()) {
             portCache.put(port, volumeCount);
             _log.debug(String.format("Port %s count %d", port.getPortName(), volumeCount));
@@ -1231,33 +1312,21 @@ public class PortMetricsProcessor {
      * @param sp -- StoragePort
      * @param countMetaMembers -- count meta members instead of volumes
      * @param dbMetrics -- the MetricsKeys values from the database record to be updated
+     * @param model -- the PortMetricsModel of the array
      */
     private void updateUnmanagedVolumeAndInitiatorCounts(
-            StoragePort sp, boolean countMetaMembers, StringMap dbMetrics) {
+            StoragePort sp, boolean countMetaMembers, StringMap dbMetrics, PortMetricsModel model) {
         Long volumeCount = 0L;
         Long initiatorCount = 0L;
         // Find all the Export Masks containing the port.
-        URIQueryResultList queryResult = new URIQueryResultList();
-        _dbClient.queryByConstraint(AlternateIdConstraint.Factory
-                .getUnManagedMaskByPort(sp.getId().toString()), queryResult);
-        Iterator<URI> maskIt = queryResult.iterator();
-        while (maskIt.hasNext()) {
-            UnManagedExportMask umask = _dbClient.queryObject(UnManagedExportMask.class, maskIt.next());
-            if (umask != null && umask.getInactive() == false
-                    && !checkForMatchingExportMask(umask.getMaskName(),
-                            umask.getNativeId(), umask.getStorageSystemUri())) {
+        for (UnManagedExportMask umask : model.getUnManagedExportMasks(sp.getId())) {
+            if (!model.hasMatchingExportMask(umask)) {
 
                 StringSet unmanagedVolumeUris = umask.getUnmanagedVolumeUris();
                 Long unmanagedVolumes = (unmanagedVolumeUris != null ? unmanagedVolumeUris.size() : 0L);
                 if (countMetaMembers && unmanagedVolumeUris != null) {
-                    unmanagedVolumes = 0L;
                     // For VMAX2, count the meta-members instead of the volumes.
-                    for (String unmanagedVolumeUri : unmanagedVolumeUris) {
-                        UnManagedVolume uVolume = _dbClient.queryObject(
-                                UnManagedVolume.class, URI.create(unmanagedVolumeUri));
-                        Long metaMemberCount = getUnManagedVolumeMetaMemberCount(uVolume);
-                        unmanagedVolumes += (metaMemberCount != null ? metaMemberCount : 1L);
-                    }
+                    unmanagedVolumes = model.getUnManagedMetaMemberCount(unmanagedVolumeUris);
                 }
 
                 // Determine initiator count from zoning map in unmanaged export mask.
@@ -1287,52 +1356,6 @@ public class PortMetricsProcessor {
         MetricsKeys.putLong(MetricsKeys.unmanagedVolumeCount, volumeCount, dbMetrics);
     }
 
-    /**
-     * Checks to see if there is an ExportMask of the given maskName belonging
-     * to specified device with same nativeId.
-     * 
-     * @param maskName -- String mask name. It's an alternate index to ExportMask.
-     * @param nativeId -- String native id of mask.
-     * @param device -- URI of device
-     * @return true if there is a matching ExportMask, false otherwise
-     */
-    private boolean checkForMatchingExportMask(String maskName, String nativeId, URI device) {
-        URIQueryResultList uriQueryList = new URIQueryResultList();
-        _dbClient.queryByConstraint(AlternateIdConstraint.Factory
-                .getExportMaskByNameConstraint(maskName), uriQueryList);
-        while (uriQueryList.iterator().hasNext()) {
-            ExportMask exportMask = _dbClient.queryObject(ExportMask.class, uriQueryList.iterator().next());
-            if (exportMask != null && !exportMask.getInactive()
-                    && (exportMask.getNativeId() != null && exportMask.getNativeId().equals(nativeId))
-                    && exportMask.getStorageDevice().equals(device)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Returns the MetaMemberCount of an unmanaged volume if available;
-     * otherwise returns null
-     * 
-     * @param umVolume -- an UnManagedVolume
-     * @return Long meta member count or null if not available
-     */
-    private static Long getUnManagedVolumeMetaMemberCount(UnManagedVolume umVolume) {
-        Long retval = null;
-        if (umVolume != null && umVolume.getVolumeInformation() != null) {
-            StringSet availableValueSet = umVolume.getVolumeInformation()
-                    .get(SupportedVolumeInformation.META_MEMBER_COUNT.toString());
-            if (availableValueSet != null) {
-                for (String value : availableValueSet) {
-                    retval = Long.parseLong(value);
-                }
-
-            }
-        }
-        return retval;
-    }
-
     /**
      * Computes the usage of a port in an ExportMask
      * 
@@ -1672,7 +1695,11 @@ public class PortMetricsProcessor {
             for (URI storageSystemId : storageSysteIds) {
                 StorageSystem storageSystem = _dbClient.queryObject(StorageSystem.class, storageSystemId);
                 List<StoragePort> systemPorts = ControllerUtils.getSystemPortsOfSystem(_dbClient, storageSystemId);
-                computeStoragePortUsage(systemPorts, storageSystem, true);
+                // all the ports of the array are computed, so read all its masks at once
+                PortMetricsModel model = new PortMetricsModel(_dbClient, storageSystem, true);
+                model.usePorts(systemPorts);
+                computeStoragePortUsage(systemPorts, model, true);
+                model.save();
                 computeStorageSystemAvgPortMetrics(storageSystemId);
             }
         }
@@ -1687,14 +1714,28 @@ public class PortMetricsProcessor {
      * @param portMetricsProcessor
      */
     public void triggerVpoolMatcherIfPortAllocationQualificationChanged(URI storageSystemId, List<StoragePort> storagePorts) {
-        StorageSystem storageSystem = _dbClient.queryObject(StorageSystem.class, storageSystemId);
+        PortMetricsModel model = createModel(storageSystemId);
+        model.usePorts(storagePorts);
+        triggerVpoolMatcherIfPortAllocationQualificationChanged(storagePorts, model);
+    }
+
+    /**
+     * Run storage system vpool matcher if ports allocation qualification changed. The usages are computed
+     * against the metrics model of the array, which is saved before the matcher runs.
+     * 
+     * @param storagePorts
+     * @param model -- the PortMetricsModel of the array
+     */
+    public void triggerVpoolMatcherIfPortAllocationQualificationChanged(List<StoragePort> storagePorts, PortMetricsModel model) {
+        StorageSystem storageSystem = model.getStorageSystem();
 
         // get list of ports that are disqualified from allocation process before they are compute for
         // usage
         Set<StoragePort> disqualifiedPortBeforeCompute = filterAllocationDisqualifiedPorts(storagePorts);
 
         // compute ports usage which also determine whether their qualification changed
-        computeStoragePortUsage(storagePorts, storageSystem, true);
+        computeStoragePortUsage(storagePorts, model, true);
+        model.save();
 
         // get list of ports that are disqualified from allocation process after they are compute for
         // usage
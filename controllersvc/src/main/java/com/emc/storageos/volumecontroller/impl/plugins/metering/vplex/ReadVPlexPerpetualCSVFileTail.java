@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.volumecontroller.impl.plugins.metering.vplex;
+
+import com.iwave.ext.linux.command.LinuxResultsCommand;
+
+/**
+ * This class encapsulates reading the part of a VPlex perpetual performance log file that follows a given offset,
+ * along with the file size and the header line, into a VPlexPerpetualCSVFileTail object. If the file is smaller
+ * than the offset, it has been rotated, and it is read from the start.
+ */
+public class ReadVPlexPerpetualCSVFileTail extends LinuxResultsCommand<VPlexPerpetualCSVFileTail> {
+
+    // Outputs the file size, the header line and the offset the data is read from, each on its own line,
+    // followed by the file data from that offset
+    public static final String TAIL_DATA_FILE_CMD = "F='%s'; O=%d; S=`wc -c < \"$F\"`; "
+            + "if [ \"$S\" -lt \"$O\" ]; then O=0; fi; "
+            + "echo \"$S\"; head -n 1 \"$F\"; echo \"$O\"; tail -c +`expr $O + 1` \"$F\"";
+    private String filepath;
+
+    public ReadVPlexPerpetualCSVFileTail(String filepath, long offset) {
+        this.filepath = filepath;
+        setCommand(String.format(TAIL_DATA_FILE_CMD, filepath, offset));
+    }
+
+    @Override
+    public void parseOutput() {
+        String stdOut = getOutput().getStdout();
+        VPlexPerpetualCSVFileTail tail = new VPlexPerpetualCSVFileTail(filepath);
+        // Only the three lines preceding the data are split off, the data itself is left in place
+        int sizeEnd = stdOut.indexOf('\n');
+        int headerEnd = (sizeEnd >= 0) ? stdOut.indexOf('\n', sizeEnd + 1) : -1;
+        int offsetEnd = (headerEnd >= 0) ? stdOut.indexOf('\n', headerEnd + 1) : -1;
+        if (offsetEnd >= 0) {
+            try {
+                tail.setFileSize(Long.parseLong(stdOut.substring(0, sizeEnd).trim()));
+                tail.setStartOffset(Long.parseLong(stdOut.substring(headerEnd + 1, offsetEnd).trim()));
+                tail.setHeaders(stdOut.substring(sizeEnd + 1, headerEnd).split(","));
+                tail.setData(stdOut.substring(offsetEnd + 1));
+            } catch (NumberFormatException e) {
+                tail.setFileSize(-1);
+            }
+        }
+        results = tail;
+    }
+}
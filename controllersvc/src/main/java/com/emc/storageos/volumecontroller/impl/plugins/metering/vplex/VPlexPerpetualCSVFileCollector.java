@@ -41,6 +41,7 @@ import com.emc.storageos.db.client.model.StorageHADomain;
 import com.emc.storageos.db.client.model.StoragePort;
 import com.emc.storageos.db.client.model.StorageProvider;
 import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.db.client.model.StringMap;
 import com.emc.storageos.db.client.model.StringSet;
 import com.emc.storageos.plugins.AccessProfile;
 import com.emc.storageos.plugins.common.Constants;
@@ -64,6 +65,8 @@ public class VPlexPerpetualCSVFileCollector implements VPlexStatsCollector {
     private static Logger log = LoggerFactory.getLogger(VPlexPerpetualCSVFileCollector.class);
 
     private PortMetricsProcessor portMetricsProcessor;
+    // Read only the lines added to the files since the last collection
+    private boolean incrementalCollection = true;
 
     static {
         // Establish a set of metrics that we would like to process from the CSV data files
@@ -77,6 +80,10 @@ public class VPlexPerpetualCSVFileCollector implements VPlexStatsCollector {
         this.portMetricsProcessor = portMetricsProcessor;
     }
 
+    public void setIncrementalCollection(boolean incrementalCollection) {
+        this.incrementalCollection = incrementalCollection;
+    }
+
     public VPlexPerpetualCSVFileCollector() {
     }
 
@@ -102,42 +109,134 @@ public class VPlexPerpetualCSVFileCollector implements VPlexStatsCollector {
             List<String> fileNames = listDataFileNamesCmd.getResults();
             for (String fileName : fileNames) {
                 log.info("Processing VPLEX performance statistics file {}", fileName);
-                // Extract and hold the data for this data file
-                ReadAndParseVPlexPerpetualCSVFile readDataFile = new ReadAndParseVPlexPerpetualCSVFile(fileName);
-                cli.executeCommand(readDataFile);
-                VPlexPerpetualCSVFileData fileData = readDataFile.getResults();
-    
-                // Read the headers and extract those metric names that we're interested in and to which
-                // DataObject (StorageHADomain or StoragePort) that it should be associated with. This
-                // will be used as a way to look up the object when processing the actual metric data
-                Map<String, MetricHeaderInfo> metricNamesToHeaderInfo = processCSVFileDataHeader(dbClient, storageSystem,
-                        fileData.getDirectorName(), fileData.getHeaders());
-    
-                List<Map<String, String>> dataLines = fileData.getDataLines();
-                int lineCount = dataLines.size();
-                // There is at least one data point
-                if (lineCount > 1) {
-                    // Determine the last time that metrics were collected.
-                    Long lastCollectionTimeUTC = getLastCollectionTime(metricNamesToHeaderInfo);
-                    // Try to find the index into dataLines based on the last collection time.
-                    // What we're trying to do here is determine the maximum value for the metrics
-                    // from the last collection time in ViPR, until the last data line in the file.
-                    int start = fileData.getDataIndexForTime(lastCollectionTimeUTC);
-                    // Have a mapping of metrics to their maximum value found in the dataLines
-                    Map<String, Double> maxValues = findMaxMetricValues(dataLines, start, lineCount);
-                    // Process the metrics for this file
-                    Map<String, String> last = dataLines.get(lineCount - 1);
-                    processDirectorStats(metricNamesToHeaderInfo, maxValues, last);
-                    processPortStats(context, metricNamesToHeaderInfo, maxValues, last);
+                if (incrementalCollection) {
+                    collectFileTail(context, dbClient, storageSystem, cli, fileName);
+                } else {
+                    collectFile(context, dbClient, storageSystem, cli, fileName);
                 }
-                // Clean up fileData resources
-                fileData.close();
             }
             // Clean out the cache data, so that it's not laying around
             clearCaches();
         }
     }
 
+    /**
+     * Read the whole perpetual performance data file and process the metrics found from the last collection time
+     * until the end of the file.
+     *
+     * @param context [IN/OUT] - Metering context structure
+     * @param dbClient [IN] - DbClient used for DB access
+     * @param storageSystem [IN] - StorageSystem representing the VPlex array
+     * @param cli [IN] - CLI connected to the VPlex management station
+     * @param fileName [IN] - Name and path of the file
+     */
+    private void collectFile(Map<String, Object> context, DbClient dbClient, StorageSystem storageSystem, LinuxSystemCLI cli,
+            String fileName) {
+        // Extract and hold the data for this data file
+        ReadAndParseVPlexPerpetualCSVFile readDataFile = new ReadAndParseVPlexPerpetualCSVFile(fileName);
+        cli.executeCommand(readDataFile);
+        VPlexPerpetualCSVFileData fileData = readDataFile.getResults();
+
+        // Read the headers and extract those metric names that we're interested in and to which
+        // DataObject (StorageHADomain or StoragePort) that it should be associated with. This
+        // will be used as a way to look up the object when processing the actual metric data
+        Map<String, MetricHeaderInfo> metricNamesToHeaderInfo = processCSVFileDataHeader(dbClient, storageSystem,
+                fileData.getDirectorName(), fileData.getHeaders());
+
+        List<Map<String, String>> dataLines = fileData.getDataLines();
+        int lineCount = dataLines.size();
+        // There is at least one data point
+        if (lineCount > 1) {
+            // Determine the last time that metrics were collected.
+            Long lastCollectionTimeUTC = getLastCollectionTime(metricNamesToHeaderInfo);
+            // Try to find the index into dataLines based on the last collection time.
+            // What we're trying to do here is determine the maximum value for the metrics
+            // from the last collection time in ViPR, until the last data line in the file.
+            int start = fileData.getDataIndexForTime(lastCollectionTimeUTC);
+            // Have a mapping of metrics to their maximum value found in the dataLines
+            Map<String, Double> maxValues = findMaxMetricValues(dataLines, start, lineCount);
+            // Process the metrics for this file
+            Map<String, String> last = dataLines.get(lineCount - 1);
+            processDirectorStats(metricNamesToHeaderInfo, maxValues, last);
+            processPortStats(context, metricNamesToHeaderInfo, maxValues, last);
+        }
+        // Clean up fileData resources
+        fileData.close();
+    }
+
+    /**
+     * Read the perpetual performance data file from the offset up to which it was collected the last time, and
+     * process the metrics found in the lines added since. The offset and the time of the last line collected are
+     * saved in the metrics of the director to which the file applies.
+     *
+     * @param context [IN/OUT] - Metering context structure
+     * @param dbClient [IN] - DbClient used for DB access
+     * @param storageSystem [IN] - StorageSystem representing the VPlex array
+     * @param cli [IN] - CLI connected to the VPlex management station
+     * @param fileName [IN] - Name and path of the file
+     */
+    private void collectFileTail(Map<String, Object> context, DbClient dbClient, StorageSystem storageSystem, LinuxSystemCLI cli,
+            String fileName) {
+        String directorName = VPlexPerpetualCSVFileData.parseDirectorName(fileName);
+        StorageHADomain vplexDirector = (directorName != null) ? lookupVPlexDirectorByName(dbClient, storageSystem, directorName) : null;
+        if (vplexDirector == null) {
+            log.warn("Could not find the VPlex director of file {}", fileName);
+            return;
+        }
+        StringMap directorMetrics = vplexDirector.getMetrics();
+        long offset = MetricsKeys.getLong(MetricsKeys.perpetualFileOffset, directorMetrics);
+        long lastSampleTime = MetricsKeys.getLong(MetricsKeys.perpetualFileSampleTime, directorMetrics);
+
+        VPlexPerpetualCSVFileTail tail = readFileTail(cli, fileName, offset);
+        if (!tail.isValid()) {
+            log.warn("Could not read VPLEX performance statistics file {}", fileName);
+            return;
+        }
+        Map<String, MetricHeaderInfo> metricNamesToHeaderInfo = processCSVFileDataHeader(dbClient, storageSystem,
+                directorName, tail.getHeaders());
+        VPlexPerpetualCSVTailParser parser = new VPlexPerpetualCSVTailParser(tail.getHeaders(), metricNamesToHeaderInfo.keySet());
+        parser.parse(tail.getData(), tail.getStartOffset() == 0);
+
+        // The line at the offset has to follow the last line collected. If it does not, the file was rotated
+        // and has grown past the offset since, so all of it is new.
+        if (tail.getStartOffset() > 0 && parser.getLineCount() > 0 && parser.getFirstTime() <= lastSampleTime) {
+            log.info("VPLEX performance statistics file {} was rotated, reading it from the start", fileName);
+            tail = readFileTail(cli, fileName, 0);
+            if (!tail.isValid()) {
+                log.warn("Could not read VPLEX performance statistics file {}", fileName);
+                return;
+            }
+            parser = new VPlexPerpetualCSVTailParser(tail.getHeaders(), metricNamesToHeaderInfo.keySet());
+            parser.parse(tail.getData(), true);
+        }
+        log.info("Read {} new lines from {} starting at offset {}", parser.getLineCount(), fileName, tail.getStartOffset());
+
+        if (parser.getLineCount() > 0) {
+            Map<String, String> last = parser.getLastSample();
+            Map<String, Double> maxValues = parser.getMaxValues();
+            processDirectorStats(metricNamesToHeaderInfo, maxValues, last);
+            processPortStats(context, metricNamesToHeaderInfo, maxValues, last);
+            MetricsKeys.putLong(MetricsKeys.perpetualFileSampleTime, parser.getLastTime(), directorMetrics);
+        }
+        MetricsKeys.putLong(MetricsKeys.perpetualFileOffset, tail.getStartOffset() + parser.getConsumed(), directorMetrics);
+        vplexDirector.setMetrics(directorMetrics);
+        dbClient.updateObject(vplexDirector);
+    }
+
+    /**
+     * Read the content of the perpetual performance data file from 'offset'
+     *
+     * @param cli [IN] - CLI connected to the VPlex management station
+     * @param fileName [IN] - Name and path of the file
+     * @param offset [IN] - Offset to read from
+     * @return VPlexPerpetualCSVFileTail
+     */
+    private VPlexPerpetualCSVFileTail readFileTail(LinuxSystemCLI cli, String fileName, long offset) {
+        ReadVPlexPerpetualCSVFileTail readFileTail = new ReadVPlexPerpetualCSVFileTail(fileName, offset);
+        cli.executeCommand(readFileTail);
+        return readFileTail.getResults();
+    }
+
     /**
      * Examines the metricHeaderInfoMap to find an entry referencing a StorageHADomain's (i.e. VPlex director)
      * metrics. In the metrics, we will lookup the value for the lastSampleTime. We know that all stats are
@@ -48,10 +48,21 @@ public class VPlexPerpetualCSVFileData {
     public VPlexPerpetualCSVFileData(String name, int totalLines) {
         this.name = name;
         this.totalLines = totalLines;
-        Matcher matcher = FILENAME_PATTERN.matcher(this.name);
+        this.directorName = parseDirectorName(name);
+    }
+
+    /**
+     * Returns the name of the director to which a perpetual performance data file applies
+     *
+     * @param fileName [IN] - Name and path of the file
+     * @return String director name, null if the file name does not have the expected format
+     */
+    public static String parseDirectorName(String fileName) {
+        Matcher matcher = FILENAME_PATTERN.matcher(fileName);
         if (matcher.matches()) {
-            this.directorName = matcher.group(1);
+            return matcher.group(1);
         }
+        return null;
     }
 
     /**
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.volumecontroller.impl.plugins.metering.vplex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class to hold the part of a VPlex perpetual performance data file read after a given offset
+ */
+public class VPlexPerpetualCSVFileTail {
+    // Name of the file
+    private final String name;
+    // Size of the file when it was read, -1 if it could not be read
+    private long fileSize = -1;
+    // Offset in the file of the first character of 'data'. 0 means that the file is read from the start,
+    // in which case 'data' starts with the header line.
+    private long startOffset;
+    // Headers
+    private List<String> headers = Collections.emptyList();
+    // The file content from startOffset, the last line may not be complete yet
+    private String data = "";
+
+    public VPlexPerpetualCSVFileTail(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return the name and path of the file
+     *
+     * @return String name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the director to which this file applies
+     *
+     * @return String name
+     */
+    public String getDirectorName() {
+        return VPlexPerpetualCSVFileData.parseDirectorName(name);
+    }
+
+    /**
+     * @return true if the file size, header and data were read
+     */
+    public boolean isValid() {
+        return fileSize >= 0 && !headers.isEmpty();
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public void setStartOffset(long startOffset) {
+        this.startOffset = startOffset;
+    }
+
+    /**
+     * The values returned represent values that describe what the metrics are (Kb/sec, IOs/sec, etc.)
+     *
+     * @return List of String values presenting the headers
+     */
+    public List<String> getHeaders() {
+        return Collections.unmodifiableList(headers);
+    }
+
+    public void setHeaders(String[] headers) {
+        this.headers = new ArrayList<>(headers.length);
+        Collections.addAll(this.headers, headers);
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    public void setData(String data) {
+        this.data = data;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VPlexPerpetualCSVFileTail{name='%s', fileSize=%d, startOffset=%d, dataLength=%d}",
+                name, fileSize, startOffset, data.length());
+    }
+}
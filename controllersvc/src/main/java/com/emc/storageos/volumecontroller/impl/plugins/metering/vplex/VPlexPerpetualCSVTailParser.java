@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.volumecontroller.impl.plugins.metering.vplex;
+
+import static com.emc.storageos.volumecontroller.impl.plugins.metering.vplex.VPlexPerpetualCSVFileData.HEADER_KEY_TIME_UTC;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming parser for the data lines of a VPlex perpetual performance data file. The lines are scanned in
+ * place, one column at a time, and only the values of the metric columns asked for are parsed and folded into
+ * their maximum, so the memory used does not depend on the number of lines. Only complete lines, ending with a
+ * new line, are consumed; a partially written last line is left for the next collection.
+ */
+public class VPlexPerpetualCSVTailParser {
+    private static final char SEPARATOR = ',';
+    private static final char NEW_LINE = '\n';
+
+    private final List<String> headers;
+    // Index of the "Time (UTC)" column, -1 if the header has none
+    private final int timeColumn;
+    // Whether the maximum of the column values is computed
+    private final boolean[] aggregated;
+    // Maximum value of the aggregated columns, NaN until a numeric value is found
+    private final double[] maxValues;
+    // Last column index that has to be looked at on each line
+    private final int lastColumn;
+
+    private int lineCount = 0;
+    private long consumed = 0;
+    private long firstTime = -1;
+    private long lastTime = -1;
+    private CharSequence lastLineData;
+    private int lastLineStart = -1;
+    private int lastLineEnd = -1;
+
+    /**
+     * @param headers [IN] - Headers of the file, which name the columns
+     * @param metricHeaders [IN] - Headers of the columns for which the maximum value is computed
+     */
+    public VPlexPerpetualCSVTailParser(List<String> headers, Collection<String> metricHeaders) {
+        this.headers = headers;
+        this.timeColumn = headers.indexOf(HEADER_KEY_TIME_UTC);
+        this.aggregated = new boolean[headers.size()];
+        this.maxValues = new double[headers.size()];
+        Arrays.fill(maxValues, Double.NaN);
+        int last = timeColumn;
+        for (int index = 0; index < headers.size(); index++) {
+            if (metricHeaders.contains(headers.get(index))) {
+                aggregated[index] = true;
+                last = index;
+            }
+        }
+        this.lastColumn = last;
+    }
+
+    /**
+     * Parse the complete data lines in 'data'
+     *
+     * @param data [IN] - File content, starting at the beginning of a line
+     * @param skipFirstLine [IN] - true if the first line is the header line
+     */
+    public void parse(CharSequence data, boolean skipFirstLine) {
+        int length = data.length();
+        int lineStart = 0;
+        boolean skip = skipFirstLine;
+        while (lineStart < length) {
+            int lineEnd = indexOf(data, NEW_LINE, lineStart, length);
+            if (lineEnd < 0) {
+                // Partial line, which will be read again with the rest of it
+                break;
+            }
+            consumed += lineEnd + 1 - lineStart;
+            if (skip) {
+                skip = false;
+            } else {
+                parseLine(data, lineStart, trimLineEnd(data, lineStart, lineEnd));
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private void parseLine(CharSequence data, int start, int end) {
+        if (start == end) {
+            return;
+        }
+        long time = -1;
+        int column = 0;
+        int valueStart = start;
+        while (column <= lastColumn && valueStart <= end) {
+            int valueEnd = indexOf(data, SEPARATOR, valueStart, end);
+            if (valueEnd < 0) {
+                valueEnd = end;
+            }
+            if (column == timeColumn) {
+                time = parseLong(data, valueStart, valueEnd);
+            } else if (aggregated[column]) {
+                double value = parseDouble(data, valueStart, valueEnd);
+                // Skip over 'no data' and non-numeric values
+                if (!Double.isNaN(value) && !(value <= maxValues[column])) {
+                    maxValues[column] = value;
+                }
+            }
+            column++;
+            valueStart = valueEnd + 1;
+        }
+        lineCount++;
+        if (firstTime < 0) {
+            firstTime = time;
+        }
+        lastTime = time;
+        lastLineData = data;
+        lastLineStart = start;
+        lastLineEnd = end;
+    }
+
+    /**
+     * @return number of data lines parsed
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return number of characters of the complete lines consumed, including the header line if skipped
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+
+    /**
+     * @return "Time (UTC)" value of the first data line, -1 if there is none or it is not a number
+     */
+    public long getFirstTime() {
+        return firstTime;
+    }
+
+    /**
+     * @return "Time (UTC)" value of the last data line, -1 if there is none or it is not a number
+     */
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    /**
+     * @return Map of metric header to the maximum value found for that metric in the data lines parsed
+     */
+    public Map<String, Double> getMaxValues() {
+        Map<String, Double> result = new HashMap<>();
+        for (int index = 0; index < maxValues.length; index++) {
+            if (aggregated[index] && !Double.isNaN(maxValues[index])) {
+                result.put(headers.get(index), maxValues[index]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the values of the last data line for the metric columns and the time column
+     *
+     * @return Map of String (header) to String (value), empty if no data line was parsed
+     */
+    public Map<String, String> getLastSample() {
+        Map<String, String> sample = new HashMap<>();
+        if (lastLineData == null) {
+            return sample;
+        }
+        int column = 0;
+        int valueStart = lastLineStart;
+        while (column <= lastColumn && valueStart <= lastLineEnd) {
+            int valueEnd = indexOf(lastLineData, SEPARATOR, valueStart, lastLineEnd);
+            if (valueEnd < 0) {
+                valueEnd = lastLineEnd;
+            }
+            if (column == timeColumn || aggregated[column]) {
+                sample.put(headers.get(column), lastLineData.subSequence(valueStart, valueEnd).toString());
+            }
+            column++;
+            valueStart = valueEnd + 1;
+        }
+        return sample;
+    }
+
+    private static int indexOf(CharSequence data, char c, int from, int to) {
+        for (int index = from; index < to; index++) {
+            if (data.charAt(index) == c) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int trimLineEnd(CharSequence data, int start, int end) {
+        return (end > start && data.charAt(end - 1) == '\r') ? end - 1 : end;
+    }
+
+    /**
+     * Parse a value of the form "\d+\.?\d*"
+     *
+     * @return the value, NaN if the characters do not have that form
+     */
+    static double parseDouble(CharSequence data, int start, int end) {
+        long integer = 0;
+        long fraction = 0;
+        long scale = 1;
+        int index = start;
+        while (index < end && isDigit(data.charAt(index))) {
+            integer = integer * 10 + (data.charAt(index++) - '0');
+        }
+        if (index == start) {
+            return Double.NaN;
+        }
+        if (index < end && data.charAt(index) == '.') {
+            index++;
+            // digits past the precision of a double are ignored
+            while (index < end && isDigit(data.charAt(index))) {
+                if (scale < 1000000000000000L) {
+                    fraction = fraction * 10 + (data.charAt(index) - '0');
+                    scale *= 10;
+                }
+                index++;
+            }
+        }
+        if (index != end) {
+            return Double.NaN;
+        }
+        return integer + (double) fraction / scale;
+    }
+
+    /**
+     * Parse a value of the form "\d+"
+     *
+     * @return the value, -1 if the characters do not have that form
+     */
+    static long parseLong(CharSequence data, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        long value = 0;
+        for (int index = start; index < end; index++) {
+            char c = data.charAt(index);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
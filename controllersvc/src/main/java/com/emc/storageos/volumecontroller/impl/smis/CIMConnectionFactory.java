@@ -9,6 +9,8 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.cim.CIMObjectPath;
 import javax.wbem.WBEMException;
@@ -25,6 +27,7 @@ import com.emc.storageos.cimadapter.connections.cim.CimConnectionInfo;
 import com.emc.storageos.cimadapter.connections.cim.CimConstants;
 import com.emc.storageos.cimadapter.connections.cim.CimObjectPathCreator;
 import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.NodeListener;
 import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.model.DiscoveredDataObject.Type;
 import com.emc.storageos.db.client.model.StorageProvider;
@@ -59,6 +62,26 @@ public class CIMConnectionFactory {
 
     private CoordinatorClient coordinatorClient;
 
+    /**
+     * Set once the connection manager is configured and the system property listener is added,
+     * later property changes reconfigure it from the listener.
+     */
+    private volatile boolean _configured = false;
+    private SystemPropertyChangeListener _propertyListener;
+
+    /**
+     * Lock per provider key (host:port), held while the connection to the provider is created so
+     * the connection is created once, while lookups of connections to other providers go on.
+     */
+    private final ConcurrentHashMap<String, Object> _providerLocks = new ConcurrentHashMap<String, Object>();
+
+    // contention metrics of the connection lookups
+    private final AtomicLong _lookups = new AtomicLong();
+    private final AtomicLong _connectionsCreated = new AtomicLong();
+    private final AtomicLong _creationWaits = new AtomicLong();
+    private final AtomicLong _creationWaitNanos = new AtomicLong();
+
+    private static final String SYSTEM_PROPERTY_PATH = "/config/upgradetargetpropertyoverride/global";
     private static final String EVENT_SERVICE_TYPE = "StorageProvider";
     private static final String EVENT_SERVICE_SOURCE = "CIMConnectionFactory";
     private static final String STORAGE_PROVIDER_DOWN_DESCRIPTION = "Storage Provider is Down";
@@ -103,10 +126,11 @@ public class CIMConnectionFactory {
      *            : StorageDevice.
      * @return CimConnection.
      */
-    public synchronized CimConnection getConnection(final StorageSystem storageDevice) {
+    public CimConnection getConnection(final StorageSystem storageDevice) {
         CimConnection connection = null;
         try {
-            _connectionManager.configure(coordinatorClient.getPropertyInfo());
+            configureConnectionManager();
+            _lookups.incrementAndGet();
             /**
              * Check cimConnection already exist for vnxfile, if not create new one
              */
@@ -117,23 +141,35 @@ public class CIMConnectionFactory {
             }
 
             if (null == connection) {
-                final CimConnectionInfo connInfo = new CimConnectionInfo();
-                connInfo.setHost(storageDevice.getSmisProviderIP());
-                connInfo.setPort(storageDevice.getSmisPortNumber());
-                connInfo.setUser(storageDevice.getSmisUserName());
-                connInfo.setPassword(storageDevice.getSmisPassword());
-                connInfo.setUseSSL(storageDevice.getSmisUseSSL());
-                connInfo.setInteropNS(CimConstants.DFLT_CIM_CONNECTION_INTEROP_NS);
-
-                // Set the type of connection to be created.
-                connInfo.setType(getConnectionTypeForDevice(storageDevice.getSystemType()));
-
-                // Set the implementation namespace for this type of storage device
-                connInfo
-                        .setImplNS(getImplNamespaceForDevice(storageDevice.getSystemType()));
-
-                _connectionManager.addConnection(connInfo);
-                connection = getConnection(storageDevice.getSmisProviderIP(), storageDevice.getSmisPortNumber().toString());
+                String hostAndPort = ConnectionManager.generateConnectionCacheKey(storageDevice.getSmisProviderIP(),
+                        storageDevice.getSmisPortNumber());
+                long start = System.nanoTime();
+                synchronized (getProviderLock(hostAndPort)) {
+                    connection = getConnection(storageDevice.getSmisProviderIP(), storageDevice.getSmisPortNumber().toString());
+                    if (null != connection) {
+                        // created by another thread while this one waited
+                        recordCreationWait(start);
+                        return connection;
+                    }
+                    final CimConnectionInfo connInfo = new CimConnectionInfo();
+                    connInfo.setHost(storageDevice.getSmisProviderIP());
+                    connInfo.setPort(storageDevice.getSmisPortNumber());
+                    connInfo.setUser(storageDevice.getSmisUserName());
+                    connInfo.setPassword(storageDevice.getSmisPassword());
+                    connInfo.setUseSSL(storageDevice.getSmisUseSSL());
+                    connInfo.setInteropNS(CimConstants.DFLT_CIM_CONNECTION_INTEROP_NS);
+
+                    // Set the type of connection to be created.
+                    connInfo.setType(getConnectionTypeForDevice(storageDevice.getSystemType()));
+
+                    // Set the implementation namespace for this type of storage device
+                    connInfo
+                            .setImplNS(getImplNamespaceForDevice(storageDevice.getSystemType()));
+
+                    _connectionManager.addConnection(connInfo);
+                    _connectionsCreated.incrementAndGet();
+                    connection = getConnection(storageDevice.getSmisProviderIP(), storageDevice.getSmisPortNumber().toString());
+                }
             }
         } catch (final ConnectionManagerException ex) {
             _log.error("No CIMOM Connection found for ipaddress due to ",
@@ -142,6 +178,111 @@ public class CIMConnectionFactory {
         return connection;
     }
 
+    /**
+     * Configure the connection manager from the system properties the first time a connection is
+     * looked up, and watch the system properties to configure it again when they change.
+     */
+    private void configureConnectionManager() {
+        if (_configured) {
+            return;
+        }
+        synchronized (this) {
+            if (_configured) {
+                return;
+            }
+            _connectionManager.configure(coordinatorClient.getPropertyInfo());
+            addSystemPropertyChangeListener();
+            _configured = true;
+        }
+    }
+
+    private void addSystemPropertyChangeListener() {
+        try {
+            _propertyListener = new SystemPropertyChangeListener();
+            coordinatorClient.addNodeListener(_propertyListener);
+        } catch (Exception e) {
+            // the connection manager keeps the configuration it was given
+            _log.error("Fail to add node listener for system property znode", e);
+        }
+    }
+
+    /**
+     * Reconfigures the connection manager when the system properties change
+     */
+    private class SystemPropertyChangeListener implements NodeListener {
+        @Override
+        public String getPath() {
+            return SYSTEM_PROPERTY_PATH;
+        }
+
+        @Override
+        public void nodeChanged() {
+            _log.info("System property changed, reconfiguring CIM connection manager");
+            reconfigureConnectionManager();
+        }
+
+        @Override
+        public void connectionStateChanged(State state) {
+            _log.info("Coordinator connection state changed to {}", state);
+            if (state.equals(State.CONNECTED)) {
+                reconfigureConnectionManager();
+            }
+        }
+    }
+
+    private void reconfigureConnectionManager() {
+        try {
+            _connectionManager.reconfigure(coordinatorClient.getPropertyInfo());
+        } catch (Exception e) {
+            _log.error("Failed to reconfigure CIM connection manager", e);
+        }
+    }
+
+    private Object getProviderLock(String hostAndPort) {
+        Object lock = _providerLocks.get(hostAndPort);
+        if (lock == null) {
+            lock = new Object();
+            Object existing = _providerLocks.putIfAbsent(hostAndPort, lock);
+            if (existing != null) {
+                lock = existing;
+            }
+        }
+        return lock;
+    }
+
+    private void recordCreationWait(long start) {
+        _creationWaits.incrementAndGet();
+        _creationWaitNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * @return number of connection lookups
+     */
+    public long getLookupCount() {
+        return _lookups.get();
+    }
+
+    /**
+     * @return number of connections created through this factory
+     */
+    public long getConnectionsCreatedCount() {
+        return _connectionsCreated.get();
+    }
+
+    /**
+     * @return number of lookups that waited for another thread creating the same connection
+     */
+    public long getCreationWaitCount() {
+        return _creationWaits.get();
+    }
+
+    /**
+     * @return total time in milliseconds lookups waited for another thread creating the same connection
+     */
+    public long getCreationWaitMillis() {
+        return _creationWaitNanos.get() / 1000000;
+    }
+
     /**
      * Refresh the SMISProvider connections. This will be called after loading
      * the SMIS Provider information from DB.
@@ -176,6 +317,8 @@ public class CIMConnectionFactory {
                         ex);
             }
         }
+        _log.info("CIM connection lookups: {}, connections created: {}, lookups waiting for creation: {} ({} ms)",
+                new Object[] { getLookupCount(), getConnectionsCreatedCount(), getCreationWaitCount(), getCreationWaitMillis() });
         return activeProviderURIList;
     }
 
@@ -387,10 +530,11 @@ public class CIMConnectionFactory {
      * @return CimConnection.
      * @throws IOException
      */
-    public synchronized CimConnection getConnection(String ipAddress, String port) {
+    public CimConnection getConnection(String ipAddress, String port) {
         CimConnection connection = null;
         try {
-            _connectionManager.configure(coordinatorClient.getPropertyInfo());
+            configureConnectionManager();
+            _lookups.incrementAndGet();
             connection = _connectionManager.getConnection(ipAddress, Integer.parseInt(port));
             if (null == connection) {
                 connection = addConnection(ipAddress, port);
@@ -412,12 +556,22 @@ public class CIMConnectionFactory {
      * 
      * @param smisIPAddress
      */
-    private synchronized CimConnection addConnection(String smisIPAddress, String port) {
+    private CimConnection addConnection(String smisIPAddress, String port) {
+        long start = System.nanoTime();
+        synchronized (getProviderLock(ConnectionManager.generateConnectionCacheKey(smisIPAddress, Integer.parseInt(port)))) {
+            return addConnectionToProvider(smisIPAddress, port, start);
+        }
+    }
+
+    private CimConnection addConnectionToProvider(String smisIPAddress, String port, long start) {
         CimConnection connection = null;
         try {
             connection = _connectionManager
                     .getConnection(smisIPAddress, Integer.parseInt(port));
-            if (null == connection) {
+            if (null != connection) {
+                // created by another thread while this one waited
+                recordCreationWait(start);
+            } else {
                 String smisAltId = smisIPAddress + "-" + port;
                 List<StorageProvider> providers = CustomQueryUtility.getActiveStorageProvidersByProviderId(_dbClient, smisAltId);
                 if (providers.isEmpty()) {
@@ -443,6 +597,7 @@ public class CIMConnectionFactory {
 
                 connInfo.setInteropNS(CimConstants.DFLT_CIM_CONNECTION_INTEROP_NS);
                 _connectionManager.addConnection(connInfo);
+                _connectionsCreated.incrementAndGet();
                 connection = _connectionManager.getConnection(smisIPAddress, Integer.parseInt(port));
                 _log.info("Connection Added to Cache {}", ConnectionManager.generateConnectionCacheKey(
                         smisProvider.getIPAddress(), smisProvider.getPortNumber()));
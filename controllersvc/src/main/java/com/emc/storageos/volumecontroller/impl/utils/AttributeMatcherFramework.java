@@ -75,8 +75,10 @@ public class AttributeMatcherFramework implements ApplicationContextAware {
                 _logger.info("Starting execution of {} group matchers .", matcherGroupName);
                 @SuppressWarnings("unchecked")
                 List<AttributeMatcher> attrMatcherList = (List<AttributeMatcher>) getBeanFromContext(matcherGroupName);
+                // The matchers are shared by all threads, each invocation gets its own cache
+                // bound to the thread running it.
                 ObjectLocalCache cache = new ObjectLocalCache(dbClient);
-                initializeCommonReferencesForAllMatchers(cache, coordinator);
+                AttributeMatcher.bindContext(new AttributeMatcher.MatcherContext(cache, coordinator));
                 errorMessage.setLength(0); // Clear the existing content before matcher
                 for (AttributeMatcher matcher : attrMatcherList) {
                     int poolSizeAtTheStart = matchedPools.size();
@@ -101,6 +103,7 @@ public class AttributeMatcherFramework implements ApplicationContextAware {
                 matchedPools.clear();
                 _logger.error("Exception occurred while matching pools with vPools", ex);
             } finally {
+                AttributeMatcher.unbindContext();
                 _logger.info("Ended execution of {} group matchers .", matcherGroupName);
             }
         } else {
@@ -113,41 +116,6 @@ public class AttributeMatcherFramework implements ApplicationContextAware {
         return matchedPools;
     }
 
-    /**
-     * Method will iterate through all AttributeMatchers (not a subset) and apply common references to them.
-     *
-     * @param cache [IN] - ObjectLocalCache to be applied to matchers
-     * @param coordinator [IN] - Coordinator reference to be applied to matchers
-     */
-    private void initializeCommonReferencesForAllMatchers(ObjectLocalCache cache, CoordinatorClient coordinator) {
-        Map<String, AttributeMatcher> uniqueMatcherMap = new HashMap<>();
-
-        @SuppressWarnings("unchecked")
-        List<AttributeMatcher> vpoolMatchers = (List<AttributeMatcher>) getBeanFromContext(AttributeMatcher.VPOOL_MATCHERS);
-        for (AttributeMatcher matcher : vpoolMatchers) {
-            uniqueMatcherMap.put(matcher.getClass().getSimpleName(), matcher);
-        }
-
-        @SuppressWarnings("unchecked")
-        List<AttributeMatcher> basicMatchers = (List<AttributeMatcher>) getBeanFromContext(AttributeMatcher.BASIC_PLACEMENT_MATCHERS);
-        for (AttributeMatcher matcher : basicMatchers) {
-            uniqueMatcherMap.put(matcher.getClass().getSimpleName(), matcher);
-        }
-
-        @SuppressWarnings("unchecked")
-        List<AttributeMatcher> placementMatchers = (List<AttributeMatcher>) getBeanFromContext(AttributeMatcher.PLACEMENT_MATCHERS);
-        for (AttributeMatcher matcher : placementMatchers) {
-            uniqueMatcherMap.put(matcher.getClass().getSimpleName(), matcher);
-        }
-
-        // The matchers have been gathered in the Map by class name, making it a unique list of
-        // matchers. Now iterate through them applying there references ...
-        for (AttributeMatcher matcher : uniqueMatcherMap.values()) {
-            matcher.setCoordinatorClient(coordinator);
-            matcher.setObjectCache(cache);
-        }
-    }
-
     /**
      * Sometimes context is not loading properly resulting the beanFactory to null.
      * To avoid this, we should reload the context using refresh.
@@ -180,8 +148,8 @@ public class AttributeMatcherFramework implements ApplicationContextAware {
         try {
             @SuppressWarnings("unchecked")
             List<AttributeMatcher> attrMatcherList = (List<AttributeMatcher>) getBeanFromContext(matcherGroupName);
+            AttributeMatcher.bindContext(new AttributeMatcher.MatcherContext(cache, null));
             for (AttributeMatcher matcher : attrMatcherList) {
-                matcher.setObjectCache(cache);
                 Map<String, Set<String>> availableAttribute = matcher.getAvailableAttribute(neighborhoodPools,
                         vArrayId);
                 if (!availableAttribute.isEmpty()) {
@@ -196,6 +164,8 @@ public class AttributeMatcherFramework implements ApplicationContextAware {
             throw new ServiceCodeException(ServiceCode.CONTROLLER_STORAGE_ERROR,
                     "Exception occurred while getting available attributes for vArray.", new Object[] { vArrayId });
 
+        } finally {
+            AttributeMatcher.unbindContext();
         }
         return vArrayAvailableAttrs;
     }
@@ -8,10 +8,17 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +35,7 @@ import com.emc.storageos.db.client.model.VpoolProtectionVarraySettings;
 import com.emc.storageos.db.client.model.VpoolRemoteCopyProtectionSettings;
 import com.emc.storageos.exceptions.DeviceControllerException;
 import com.emc.storageos.plugins.common.Constants;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
 import com.emc.storageos.volumecontroller.AttributeMatcher;
 import com.emc.storageos.volumecontroller.impl.ControllerServiceImpl;
 import com.google.common.base.Joiner;
@@ -44,6 +52,15 @@ public class ImplicitPoolMatcher {
             .getLogger(ImplicitPoolMatcher.class);
     private static volatile AttributeMatcherFramework _matcherFramework = null;
 
+    private static final int DEFAULT_MATCHER_THREADS = 4;
+    // number of vpools matched ahead of the one being persisted, per matcher thread
+    private static final int MATCH_AHEAD_PER_THREAD = 4;
+    private static final int PERSIST_BATCH_SIZE = 100;
+    private static final long MATCHER_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private static int _matcherThreads = DEFAULT_MATCHER_THREADS;
+    private static ExecutorService _matcherExecutor = null;
+
     /**
      * Match block system pools with all VirtualPool. This method will be invoked only for block
      * storage systems. This method is written as per the plugin design.
@@ -201,15 +218,7 @@ public class ImplicitPoolMatcher {
             DbClient dbClient, CoordinatorClient coordinator, StringBuffer errorMessage) {
         List<URI> vpoolURIs = dbClient.queryByType(VirtualPool.class, true);
         Iterator<VirtualPool> vpoolListItr = dbClient.queryIterativeObjects(VirtualPool.class, vpoolURIs);
-        List<VirtualPool> vPoolsToUpdate = new ArrayList<VirtualPool>();
-        while (vpoolListItr.hasNext()) {
-            VirtualPool vpool = vpoolListItr.next();
-            matchvPoolWithStoragePools(vpool, updatedPoolList, dbClient, coordinator, null, errorMessage);
-            vPoolsToUpdate.add(vpool);
-        }
-        if (!vPoolsToUpdate.isEmpty()) {
-            persistUpdatedVpoolList(vPoolsToUpdate, dbClient);
-        }
+        matchVirtualPoolsWithStoragePools(vpoolListItr, updatedPoolList, dbClient, coordinator, null, errorMessage);
     }
 
     /**
@@ -225,14 +234,205 @@ public class ImplicitPoolMatcher {
     public static void matchModifiedStoragePoolsWithVirtualPools(List<StoragePool> updatedPoolList, List<URI> vpoolURIs,
             DbClient dbClient, CoordinatorClient coordinator, String matcherGroupName, StringBuffer errorMessage) {
         Iterator<VirtualPool> vpoolListItr = dbClient.queryIterativeObjects(VirtualPool.class, vpoolURIs);
+        matchVirtualPoolsWithStoragePools(vpoolListItr, updatedPoolList, dbClient, coordinator, matcherGroupName, errorMessage);
+    }
+
+    /**
+     * Matches each of the given virtual pools with the list of storage pools. The virtual pools
+     * are matched concurrently on the matcher threads, while the calling thread keeps loading the
+     * next virtual pools and persists, in batches and in the order they were loaded, the ones
+     * whose matched or invalid pools changed.
+     * 
+     * @param vpoolItr virtual pools to match
+     * @param pools storage pools to match
+     * @param dbClient
+     * @param coordinator
+     * @param matcherGroupName group name of attribute matchers to run
+     * @param errorMessage set to the error message of the last virtual pool matched
+     */
+    private static void matchVirtualPoolsWithStoragePools(Iterator<VirtualPool> vpoolItr, List<StoragePool> pools,
+            DbClient dbClient, CoordinatorClient coordinator, String matcherGroupName, StringBuffer errorMessage) {
+        if (!vpoolItr.hasNext()) {
+            return;
+        }
+        // The virtual pools previously matching each storage pool are the same for all the
+        // virtual pools, query them once instead of once for each virtual pool.
+        Map<URI, List<URI>> oldMatchedVpools = getOldMatchedVirtualPools(pools, dbClient);
+        ExecutorService executor = getMatcherExecutor();
+        int maxPending = getMatcherThreads() * MATCH_AHEAD_PER_THREAD;
+        LinkedList<Future<VpoolMatchResult>> pending = new LinkedList<Future<VpoolMatchResult>>();
         List<VirtualPool> vPoolsToUpdate = new ArrayList<VirtualPool>();
-        while (vpoolListItr.hasNext()) {
-            VirtualPool vpool = vpoolListItr.next();
-            matchvPoolWithStoragePools(vpool, updatedPoolList, dbClient, coordinator, matcherGroupName, errorMessage);
-            vPoolsToUpdate.add(vpool);
+        String initialErrorMessage = errorMessage.toString();
+        VpoolMatchResult lastResult = null;
+        int vpoolCount = 0;
+        int updatedCount = 0;
+        try {
+            while (vpoolItr.hasNext()) {
+                VpoolMatchTask task = new VpoolMatchTask(vpoolItr.next(), pools, oldMatchedVpools, dbClient, coordinator,
+                        matcherGroupName, initialErrorMessage);
+                vpoolCount++;
+                if (executor == null) {
+                    lastResult = task.call();
+                } else {
+                    pending.add(executor.submit(task));
+                    if (pending.size() < maxPending) {
+                        continue;
+                    }
+                    lastResult = pending.removeFirst().get();
+                }
+                updatedCount += addUpdatedVpool(lastResult, vPoolsToUpdate, dbClient);
+            }
+            while (!pending.isEmpty()) {
+                lastResult = pending.removeFirst().get();
+                updatedCount += addUpdatedVpool(lastResult, vPoolsToUpdate, dbClient);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeviceControllerException(e, "Interrupted while matching pools. Caused by : {0}",
+                    new Object[] { e.getMessage() });
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new DeviceControllerException(cause, "Failed to match pools. Caused by : {0}",
+                    new Object[] { cause.getMessage() });
+        } finally {
+            for (Future<VpoolMatchResult> future : pending) {
+                future.cancel(true);
+            }
+        }
+        persistUpdatedVpoolList(vPoolsToUpdate, dbClient);
+        if (lastResult != null) {
+            errorMessage.setLength(0);
+            errorMessage.append(lastResult.errorMessage);
         }
-        if (!vPoolsToUpdate.isEmpty()) {
+        _logger.info("Matched {} virtual pools with {} storage pools, {} virtual pools updated",
+                new Object[] { vpoolCount, pools.size(), updatedCount });
+    }
+
+    /**
+     * Adds the virtual pool of the given result to the next batch to persist if its matched or
+     * invalid pools changed, persisting the batch when it is full.
+     * 
+     * @return 1 if the virtual pool was changed, otherwise 0
+     */
+    private static int addUpdatedVpool(VpoolMatchResult result, List<VirtualPool> vPoolsToUpdate, DbClient dbClient) {
+        if (!result.changed) {
+            return 0;
+        }
+        vPoolsToUpdate.add(result.vpool);
+        if (vPoolsToUpdate.size() >= PERSIST_BATCH_SIZE) {
             persistUpdatedVpoolList(vPoolsToUpdate, dbClient);
+            vPoolsToUpdate.clear();
+        }
+        return 1;
+    }
+
+    /**
+     * Matches one virtual pool on a matcher thread. The error message of the matchers is kept in
+     * the result so that concurrent matches do not write to the same buffer.
+     */
+    private static class VpoolMatchTask implements Callable<VpoolMatchResult> {
+        private final VirtualPool vpool;
+        private final List<StoragePool> pools;
+        private final Map<URI, List<URI>> oldMatchedVpools;
+        private final DbClient dbClient;
+        private final CoordinatorClient coordinator;
+        private final String matcherGroupName;
+        private final String initialErrorMessage;
+
+        VpoolMatchTask(VirtualPool vpool, List<StoragePool> pools, Map<URI, List<URI>> oldMatchedVpools,
+                DbClient dbClient, CoordinatorClient coordinator, String matcherGroupName, String initialErrorMessage) {
+            this.vpool = vpool;
+            this.pools = pools;
+            this.oldMatchedVpools = oldMatchedVpools;
+            this.dbClient = dbClient;
+            this.coordinator = coordinator;
+            this.matcherGroupName = matcherGroupName;
+            this.initialErrorMessage = initialErrorMessage;
+        }
+
+        @Override
+        public VpoolMatchResult call() {
+            StringBuffer errorMessage = new StringBuffer(initialErrorMessage);
+            boolean changed = matchvPoolWithStoragePools(vpool, pools, oldMatchedVpools, dbClient, coordinator,
+                    matcherGroupName, errorMessage);
+            return new VpoolMatchResult(vpool, changed, errorMessage.toString());
+        }
+    }
+
+    private static class VpoolMatchResult {
+        private final VirtualPool vpool;
+        private final boolean changed;
+        private final String errorMessage;
+
+        VpoolMatchResult(VirtualPool vpool, boolean changed, String errorMessage) {
+            this.vpool = vpool;
+            this.changed = changed;
+            this.errorMessage = errorMessage;
+        }
+    }
+
+    /**
+     * Returns the virtual pools each of the given storage pools is currently matched with.
+     * 
+     * @param pools storage pools
+     * @param dbClient
+     * @return map of storage pool id to the ids of the virtual pools it is matched with
+     */
+    private static Map<URI, List<URI>> getOldMatchedVirtualPools(List<StoragePool> pools, DbClient dbClient) {
+        Map<URI, List<URI>> oldMatchedVpools = new HashMap<URI, List<URI>>();
+        for (StoragePool pool : pools) {
+            URIQueryResultList queryResult = new URIQueryResultList();
+            dbClient.queryByConstraint(
+                    ContainmentConstraint.Factory.getMatchedPoolVirtualPoolConstraint(pool.getId()), queryResult);
+            List<URI> vpoolURIs = new ArrayList<URI>();
+            Iterator<URI> vpoolItr = queryResult.iterator();
+            while (vpoolItr != null && vpoolItr.hasNext()) {
+                vpoolURIs.add(vpoolItr.next());
+            }
+            oldMatchedVpools.put(pool.getId(), vpoolURIs);
+        }
+        return oldMatchedVpools;
+    }
+
+    /**
+     * Returns the executor matching virtual pools, or null to match them on the calling thread.
+     */
+    private static synchronized ExecutorService getMatcherExecutor() {
+        if (_matcherThreads <= 1) {
+            return null;
+        }
+        if (_matcherExecutor == null) {
+            NamedThreadPoolExecutor executor = new NamedThreadPoolExecutor(ImplicitPoolMatcher.class.getSimpleName(),
+                    _matcherThreads);
+            executor.setKeepAliveTime(MATCHER_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            _matcherExecutor = executor;
+        }
+        return _matcherExecutor;
+    }
+
+    private static synchronized int getMatcherThreads() {
+        return Math.max(_matcherThreads, 1);
+    }
+
+    /**
+     * Sets the number of threads matching virtual pools with storage pools, 1 to match them on
+     * the calling thread.
+     * 
+     * @param matcherThreads
+     */
+    public static synchronized void setMatcherThreads(int matcherThreads) {
+        if (matcherThreads == _matcherThreads) {
+            return;
+        }
+        _matcherThreads = matcherThreads;
+        if (_matcherExecutor != null) {
+            // tasks already submitted are allowed to complete
+            _matcherExecutor.shutdown();
+            _matcherExecutor = null;
         }
     }
 
@@ -250,11 +450,25 @@ public class ImplicitPoolMatcher {
      */
     public static void matchvPoolWithStoragePools(VirtualPool vpool, List<StoragePool> pools, DbClient dbClient,
             CoordinatorClient coordinator, String matcherGroupName, StringBuffer errorMessage) {
+        matchvPoolWithStoragePools(vpool, pools, getOldMatchedVirtualPools(pools, dbClient), dbClient, coordinator,
+                matcherGroupName, errorMessage);
+    }
+
+    /**
+     * Matches given VirtualPool with list of pools provided and update matched/invalid pools in
+     * VirtualPool.
+     * 
+     * @param oldMatchedVpools virtual pools each of the pools is currently matched with
+     * @return true if the matched or invalid pools of the VirtualPool changed
+     */
+    private static boolean matchvPoolWithStoragePools(VirtualPool vpool, List<StoragePool> pools,
+            Map<URI, List<URI>> oldMatchedVpools, DbClient dbClient, CoordinatorClient coordinator,
+            String matcherGroupName, StringBuffer errorMessage) {
         List<StoragePool> filterPools = getMatchedPoolWithStoragePools(vpool, pools,
                 VirtualPool.getProtectionSettings(vpool, dbClient),
                 VirtualPool.getRemoteProtectionSettings(vpool, dbClient),
                 VirtualPool.getFileRemoteProtectionSettings(vpool, dbClient), dbClient, coordinator, matcherGroupName, errorMessage);
-        updateInvalidAndMatchedPoolsForVpool(vpool, filterPools, pools, dbClient);
+        return updateInvalidAndMatchedPoolsForVpool(vpool, filterPools, pools, oldMatchedVpools);
     }
 
     /**
@@ -302,11 +516,12 @@ public class ImplicitPoolMatcher {
      *            : List of pools matched after running attribute matchers.
      * @param storagePools
      *            : List of processed pools.
-     * @param dbClient
-     *            : dbClient reference.
+     * @param oldMatchedVpools
+     *            : virtual pools each of the processed pools is currently matched with.
+     * @return true if the matched or invalid pools of the vpool changed.
      */
-    private static void updateInvalidAndMatchedPoolsForVpool(VirtualPool vpool, List<StoragePool> matchedPools,
-            List<StoragePool> storagePools, DbClient dbClient) {
+    private static boolean updateInvalidAndMatchedPoolsForVpool(VirtualPool vpool, List<StoragePool> matchedPools,
+            List<StoragePool> storagePools, Map<URI, List<URI>> oldMatchedVpools) {
         URI currentVpoolId = vpool.getId();
         StringSet newMatchedPools = new StringSet();
         StringSet newInvalidPools = new StringSet();
@@ -316,14 +531,12 @@ public class ImplicitPoolMatcher {
         if (null != vpool.getInvalidMatchedPools()) {
             newInvalidPools.addAll(vpool.getInvalidMatchedPools());
         }
+        Set<StoragePool> matchedPoolSet = new HashSet<StoragePool>(matchedPools);
         for (StoragePool pool : storagePools) {
             String poolIdStr = pool.getId().toString();
-            URIQueryResultList queryResult = new URIQueryResultList();
-            dbClient.queryByConstraint(
-                    ContainmentConstraint.Factory.getMatchedPoolVirtualPoolConstraint(pool.getId()), queryResult);
-            Iterator<URI> oldMatchedVpoolItr = queryResult.iterator();
-            if (!oldMatchedVpoolItr.hasNext()) {
-                if (matchedPools.contains(pool)) {
+            List<URI> oldMatchedVpoolURIs = oldMatchedVpools.get(pool.getId());
+            if (oldMatchedVpoolURIs.isEmpty()) {
+                if (matchedPoolSet.contains(pool)) {
                     _logger.debug("New pool found {}", poolIdStr);
                     newMatchedPools.add(poolIdStr);
                     // current vpool is already active but check whether the invalid pool became
@@ -332,10 +545,9 @@ public class ImplicitPoolMatcher {
                 }
             }
             // If the processed pool is in matched pools.
-            if (matchedPools.contains(pool)) {
+            if (matchedPoolSet.contains(pool)) {
                 // Get the previously matched VirtualPool for this pool.
-                while (oldMatchedVpoolItr.hasNext()) {
-                    URI oldMatchedVpoolURI = oldMatchedVpoolItr.next();
+                for (URI oldMatchedVpoolURI : oldMatchedVpoolURIs) {
                     // current vpool is already active but check whether the invalid pool became
                     // active.
                     removeInvalidPools(vpool, newInvalidPools, poolIdStr);
@@ -355,12 +567,15 @@ public class ImplicitPoolMatcher {
                 }
             }
         }
+        boolean changed = checkPoolPropertiesChanged(vpool.getMatchedStoragePools(), newMatchedPools)
+                || checkPoolPropertiesChanged(vpool.getInvalidMatchedPools(), newInvalidPools);
         _logger.info(MessageFormatter.arrayFormat(
                 "Updating VPool {} with Matched Pools:{}, Invalid pools:{}", new Object[] { vpool.getId(),
                         newMatchedPools.size(), newInvalidPools.size() })
                 .getMessage());
         vpool.addMatchedStoragePools(newMatchedPools);
         vpool.addInvalidMatchedPools(newInvalidPools);
+        return changed;
     }
 
     /**
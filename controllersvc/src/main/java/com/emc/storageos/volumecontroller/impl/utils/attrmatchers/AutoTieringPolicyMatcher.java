@@ -124,7 +124,7 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
                 // First verify whether system has autoTieringEnabled.
                 // If FAST is enabled on System then check Whether pool has
                 // policies with FAST enabled.
-                StorageSystem system = _objectCache.queryObject(StorageSystem.class, pool.getStorageDevice());
+                StorageSystem system = getObjectCache().queryObject(StorageSystem.class, pool.getStorageDevice());
                 if (null != system && system.getAutoTieringEnabled()) {
                     if (Type.vmax.toString().equalsIgnoreCase(system.getSystemType())) {
                         policyNameSet.addAll(fetchFastPoliciesForVMAX(pool.getId()));
@@ -185,7 +185,7 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
         URIQueryResultList result = getAutoTierPolicies(attributeMap, policyName);
         Iterator<URI> iterator = result.iterator();
         while (iterator.hasNext()) {
-            AutoTieringPolicy policy = _objectCache.queryObject(AutoTieringPolicy.class,
+            AutoTieringPolicy policy = getObjectCache().queryObject(AutoTieringPolicy.class,
                     iterator.next());
             if (isValidAutoTieringPolicy(policy)
                     && isAutoTieringEnabledOnStorageSystem(policy.getStorageSystem())
@@ -227,7 +227,7 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
         }
         boolean uniquePolicyNames = (boolean) attributeMap.get(Attributes.unique_policy_names.toString());
         for (URI storage: storageToPoolMap.keySet()) {
-            StorageSystem system =  _objectCache.queryObject(StorageSystem.class, storage);
+            StorageSystem system =  getObjectCache().queryObject(StorageSystem.class, storage);
             if(system == null || system.getInactive()) {
                 continue;
             }
@@ -241,7 +241,7 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
             }
 
             // Get SLO policies from Elm array
-            List<AutoTieringPolicy> systemDbPolicies = DiscoveryUtils.getAllVMAXSloPolicies(_objectCache.getDbClient(), system);
+            List<AutoTieringPolicy> systemDbPolicies = DiscoveryUtils.getAllVMAXSloPolicies(getObjectCache().getDbClient(), system);
             for (AutoTieringPolicy policy: systemDbPolicies) {
                 if(policy.getVmaxSLO() != null && policy.getVmaxSLO().equalsIgnoreCase(DIAMONDSLO)){
                     if (isValidAutoTieringPolicy(policy)
@@ -308,7 +308,7 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
         // Iterate through the policies
         Iterator<URI> iterator = result.iterator();
         while (iterator.hasNext()) {
-            AutoTieringPolicy policy = _objectCache.queryObject(AutoTieringPolicy.class, iterator.next());
+            AutoTieringPolicy policy = getObjectCache().queryObject(AutoTieringPolicy.class, iterator.next());
             // If policy is tiering capable.
             if (policy.getPolicyEnabled() && !systemURIs.contains(policy.getStorageSystem())) {
                 systemURIs.add(policy.getStorageSystem());
@@ -324,7 +324,7 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
     }
 
     private boolean isAutoTieringEnabledOnStorageSystem(URI storageSystemURI) {
-        StorageSystem system = _objectCache.queryObject(StorageSystem.class,
+        StorageSystem system = getObjectCache().queryObject(StorageSystem.class,
                 storageSystemURI);
         // if fast is disabled then skip it too.
         if (null != system && system.getAutoTieringEnabled()) {
@@ -376,12 +376,12 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
     private Set<String> fetchTieringPoliciesForHDS(StorageSystem device) {
         Set<String> policyNameSet = new HashSet<String>();
         URIQueryResultList tieringPolicyResult = new URIQueryResultList();
-        _objectCache.getDbClient().queryByConstraint(ContainmentConstraint.Factory
+        getObjectCache().getDbClient().queryByConstraint(ContainmentConstraint.Factory
                 .getStorageDeviceFASTPolicyConstraint(device.getId()),
                 tieringPolicyResult);
         Iterator<URI> tieringPolicyItr = tieringPolicyResult.iterator();
         while (tieringPolicyItr.hasNext()) {
-            AutoTieringPolicy tierPolicy = _objectCache.queryObject(
+            AutoTieringPolicy tierPolicy = getObjectCache().queryObject(
                     AutoTieringPolicy.class, tieringPolicyItr.next());
             if (null != tierPolicy && tierPolicy.getPolicyEnabled()) {
                 policyNameSet.add(tierPolicy.getPolicyName());
@@ -401,11 +401,11 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
     private Set<String> fetchFastPoliciesForVMAX(URI poolID) {
         Set<String> policyNameSet = new HashSet<String>();
         URIQueryResultList fastPolicyResult = new URIQueryResultList();
-        _objectCache.getDbClient().queryByConstraint(AlternateIdConstraint.Factory.getPoolFASTPolicyConstraint(poolID.toString()),
+        getObjectCache().getDbClient().queryByConstraint(AlternateIdConstraint.Factory.getPoolFASTPolicyConstraint(poolID.toString()),
                 fastPolicyResult);
         Iterator<URI> fastPolicyItr = fastPolicyResult.iterator();
         while (fastPolicyItr.hasNext()) {
-            AutoTieringPolicy tierPolicy = _objectCache.queryObject(AutoTieringPolicy.class, fastPolicyItr.next());
+            AutoTieringPolicy tierPolicy = getObjectCache().queryObject(AutoTieringPolicy.class, fastPolicyItr.next());
             if (null != tierPolicy && tierPolicy.getPolicyEnabled()) {
                 policyNameSet.add(tierPolicy.getPolicyName());
             }
@@ -425,10 +425,10 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
         boolean uniquePolicyNames = (boolean) attributeMap.get(Attributes.unique_policy_names.toString());
         // check if pool fast policy name is not
         if (!uniquePolicyNames) {
-            _objectCache.getDbClient().queryByConstraint(
+            getObjectCache().getDbClient().queryByConstraint(
                     AlternateIdConstraint.Factory.getAutoTieringPolicyByNativeGuidConstraint(policyName), result);
         } else {
-            _objectCache.getDbClient().queryByConstraint(
+            getObjectCache().getDbClient().queryByConstraint(
                     AlternateIdConstraint.Factory.getFASTPolicyByNameConstraint(policyName),
                     result);
         }
@@ -449,7 +449,7 @@ public class AutoTieringPolicyMatcher extends AttributeMatcher {
         URIQueryResultList result = getAutoTierPolicies(attributeMap, policyName);
         Iterator<URI> iterator = result.iterator();
         while (iterator.hasNext()) {
-            AutoTieringPolicy policy = _objectCache.queryObject(AutoTieringPolicy.class, iterator.next());
+            AutoTieringPolicy policy = getObjectCache().queryObject(AutoTieringPolicy.class, iterator.next());
             if (isValidAutoTieringPolicy(policy)
                     && isAutoTieringEnabledOnStorageSystem(policy.getStorageSystem())
                     && doesGivenProvisionTypeMatchFastPolicy(attributeMap.get(
@@ -167,7 +167,7 @@ public class CapacityMatcher extends AttributeMatcher {
         }
         
         // Step 3: Check whether StoragePool is Thin or not.
-        return isPoolMatchesCapacityForThinProvisioning(pool, sizeInKB, preAllocationSizeInKB, _coordinator);
+        return isPoolMatchesCapacityForThinProvisioning(pool, sizeInKB, preAllocationSizeInKB, getCoordinator());
     }
 
     /**
@@ -213,11 +213,11 @@ public class CapacityMatcher extends AttributeMatcher {
                             requiredCapacityInKB));
             return false;
         }
-        if (!checkThickPoolCandidacy(pool, requiredCapacityInKB, _coordinator)) {
+        if (!checkThickPoolCandidacy(pool, requiredCapacityInKB, getCoordinator())) {
             String msg = String
                     .format("Pool %s is not matching as it will have utilization of %s percent after allocation. Pool's max utilization percentage is %s percent .",
                             pool.getId(), 100 - getThickPoolFreeCapacityPercentage(pool, requiredCapacityInKB),
-                            getMaxPoolUtilizationPercentage(pool, _coordinator));
+                            getMaxPoolUtilizationPercentage(pool, getCoordinator()));
             _log.info(msg);
             return false;
         }
@@ -289,7 +289,7 @@ public class CapacityMatcher extends AttributeMatcher {
 
             return false;
         }
-        DbClient dbClient = _objectCache.getDbClient();
+        DbClient dbClient = getObjectCache().getDbClient();
         StorageSystem storageSystem = dbClient.queryObject(StorageSystem.class, pool.getStorageDevice());
 
         if (DiscoveredDataObject.Type.isThinPoolSubscribedCheckNeeded(storageSystem.getSystemType())
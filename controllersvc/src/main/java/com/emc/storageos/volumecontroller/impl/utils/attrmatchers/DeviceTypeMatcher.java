@@ -58,7 +58,7 @@ public class DeviceTypeMatcher extends AttributeMatcher {
             }
         }
 
-        List<StorageSystem> devices = _objectCache.queryObject(StorageSystem.class, systems);
+        List<StorageSystem> devices = getObjectCache().queryObject(StorageSystem.class, systems);
         for (StorageSystem system : devices) {
             if (deviceTypes.contains(system.getSystemType())) {
                 filteredPools.addAll(systemMap.get(system.getId()));
@@ -87,7 +87,7 @@ public class DeviceTypeMatcher extends AttributeMatcher {
                 }
             }
 
-            List<StorageSystem> devices = _objectCache.queryObject(StorageSystem.class, systems);
+            List<StorageSystem> devices = getObjectCache().queryObject(StorageSystem.class, systems);
             for (StorageSystem system : devices) {
                 availableAttrValues.add(system.getSystemType());
             }
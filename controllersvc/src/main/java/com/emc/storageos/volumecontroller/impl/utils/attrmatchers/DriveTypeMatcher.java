@@ -55,7 +55,7 @@ public class DriveTypeMatcher extends ConditionalAttributeMatcher {
             if (null == pool || null == pool.getSupportedDriveTypes()) {
                 continue;
             }
-            StorageSystem system = _objectCache.getDbClient().queryObject(StorageSystem.class, pool.getStorageDevice());
+            StorageSystem system = getObjectCache().getDbClient().queryObject(StorageSystem.class, pool.getStorageDevice());
             // If pool belongs to a HDS system and contains External storage, then add the pools to matched list.
             if (Type.isHDSStorageSystem(StorageSystem.Type.valueOf(system.getSystemType()))) {
                 if (pool.getSupportedDriveTypes().contains(SupportedDriveTypes.UNKNOWN.toString())) {
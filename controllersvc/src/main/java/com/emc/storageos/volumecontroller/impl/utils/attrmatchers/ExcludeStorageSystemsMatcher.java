@@ -92,7 +92,7 @@ public class ExcludeStorageSystemsMatcher extends AttributeMatcher {
             if (builder.length() != 0) {
                 builder.append(", ");
             }
-            StorageSystem excludedSystem = _objectCache.queryObject(StorageSystem.class, URI.create(excludedSystemId));
+            StorageSystem excludedSystem = getObjectCache().queryObject(StorageSystem.class, URI.create(excludedSystemId));
             if (excludedSystem != null) {
                 builder.append(excludedSystem.forDisplay());
             } else {
@@ -111,7 +111,7 @@ public class FileReplicationAttrMatcher extends AttributeMatcher {
             // Group the remote storage system based on storage device type!!!
             for (Entry<String, Collection<URI>> storageToPoolsEntry : remotestorageToPoolMap
                     .asMap().entrySet()) {
-                StorageSystem system = _objectCache.queryObject(StorageSystem.class, URI.create(storageToPoolsEntry.getKey()));
+                StorageSystem system = getObjectCache().queryObject(StorageSystem.class, URI.create(storageToPoolsEntry.getKey()));
                 if (system != null) {
                     remotestorageTypeMap.put(system.getSystemType(), system.getId());
                 }
@@ -120,7 +120,7 @@ public class FileReplicationAttrMatcher extends AttributeMatcher {
 
         for (Entry<URI, Collection<StoragePool>> storageToPoolsEntry : storageToPoolMap
                 .asMap().entrySet()) {
-            StorageSystem system = _objectCache.queryObject(StorageSystem.class, storageToPoolsEntry.getKey());
+            StorageSystem system = getObjectCache().queryObject(StorageSystem.class, storageToPoolsEntry.getKey());
             if (null == system.getSupportedReplicationTypes() ||
                     system.getSupportedReplicationTypes().isEmpty()) {
                 _logger.debug("Storage system {} does not support replication, skipping the pools of the device",
@@ -193,7 +193,7 @@ public class FileReplicationAttrMatcher extends AttributeMatcher {
 
             for (Entry<URI, Collection<StoragePool>> storageToPoolsEntry : storageToPoolMap
                     .asMap().entrySet()) {
-                StorageSystem system = _objectCache.queryObject(StorageSystem.class, storageToPoolsEntry.getKey());
+                StorageSystem system = getObjectCache().queryObject(StorageSystem.class, storageToPoolsEntry.getKey());
                 if (null == system.getSupportedReplicationTypes() ||
                         system.getSupportedReplicationTypes().isEmpty()) {
                     continue;
@@ -243,7 +243,7 @@ public class FileReplicationAttrMatcher extends AttributeMatcher {
         if (remotestorageTypeMap != null && !remotestorageTypeMap.isEmpty()) {
             List<URI> remoteSystems = remotestorageTypeMap.get(sourceSystem.getSystemType());
             if (remoteSystems != null && !remoteSystems.isEmpty()) {
-                List<StorageSystem> targetSystems = _objectCache.queryObject(StorageSystem.class, remoteSystems);
+                List<StorageSystem> targetSystems = getObjectCache().queryObject(StorageSystem.class, remoteSystems);
                 for (StorageSystem targetSystem : targetSystems) {
                     if (!targetSystem.getInactive() &&
                             !targetSystem.getNativeGuid().equalsIgnoreCase(sourceSystem.getNativeGuid())) {
@@ -265,7 +265,7 @@ public class FileReplicationAttrMatcher extends AttributeMatcher {
     private Set<String> returnRemotePoolsAssociatedWithRemoteCopySettings(URI remotePool, Set<String> poolUris) {
         Set<String> remotePoolUris = new HashSet<String>();
 
-        VirtualPool vPool = _objectCache.queryObject(VirtualPool.class, remotePool);
+        VirtualPool vPool = getObjectCache().queryObject(VirtualPool.class, remotePool);
         if (null == vPool) {
             remotePoolUris.addAll(poolUris);
         } else if (null != vPool.getUseMatchedPools() && vPool.getUseMatchedPools()) {
@@ -291,7 +291,7 @@ public class FileReplicationAttrMatcher extends AttributeMatcher {
         columnNames.add(STORAGE_DEVICE);
         columnNames.add(SUPPORTED_COPY_TYPES);
         String copyType = getPoolCopyTypeFromCopyModes(copyMode);
-        Collection<StoragePool> storagePools = _objectCache.getDbClient().queryObjectFields(StoragePool.class, columnNames,
+        Collection<StoragePool> storagePools = getObjectCache().getDbClient().queryObjectFields(StoragePool.class, columnNames,
                 new ArrayList<URI>(
                         Collections2.transform(allPoolUris, CommonTransformerFunctions.FCTN_STRING_TO_URI)));
         ListMultimap<String, URI> storageToPoolMap = ArrayListMultimap.create();
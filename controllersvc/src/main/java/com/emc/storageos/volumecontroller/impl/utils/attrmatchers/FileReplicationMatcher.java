@@ -59,7 +59,7 @@ public class FileReplicationMatcher extends AttributeMatcher {
     }
 
     private boolean isReplicationSupportedPool(StoragePool pool) {
-        StorageSystem system = _objectCache.queryObject(StorageSystem.class, pool.getStorageDevice());
+        StorageSystem system = getObjectCache().queryObject(StorageSystem.class, pool.getStorageDevice());
         if (null == system.getSupportedReplicationTypes() ||
                 system.getSupportedReplicationTypes().isEmpty()) {
             return false;
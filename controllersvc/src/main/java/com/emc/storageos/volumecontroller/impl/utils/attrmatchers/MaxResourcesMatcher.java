@@ -43,7 +43,7 @@ public class MaxResourcesMatcher extends AttributeMatcher {
 
         while (poolIterator.hasNext()) {
             StoragePool pool = poolIterator.next();
-            if (checkPoolMaximumResourcesApproached(pool, _objectCache.getDbClient(), 0)) {
+            if (checkPoolMaximumResourcesApproached(pool, getObjectCache().getDbClient(), 0)) {
                 filteredPoolList.remove(pool);
             }
         }
@@ -85,7 +85,7 @@ public class MultiVolumeConsistencyMatcher extends AttributeMatcher {
         // Remove duplicates using a Set
         ImmutableSet<URI> uniqueURIs = ImmutableSet.copyOf(systemURIs);
         // Query all systems in one call (need to convert back to a List)
-        List<StorageSystem> storageSystems = _objectCache.queryObject(StorageSystem.class, newArrayList(uniqueURIs));
+        List<StorageSystem> storageSystems = getObjectCache().queryObject(StorageSystem.class, newArrayList(uniqueURIs));
 
         // Finally, create a map of StorageSystemURI -> StorageSystem
         Map<URI, StorageSystem> result = new HashMap<>();
@@ -76,7 +76,7 @@ public class NeighborhoodsMatcher extends AttributeMatcher {
         Iterator<String> vArrayItr = vArrays.iterator();
         while (vArrayItr.hasNext()) {
             URIQueryResultList vArrayPoolsQueryResult = new URIQueryResultList();
-            _objectCache.getDbClient().queryByConstraint(AlternateIdConstraint.Factory
+            getObjectCache().getDbClient().queryByConstraint(AlternateIdConstraint.Factory
                     .getVirtualArrayStoragePoolsConstraint(vArrayItr.next()),
                     vArrayPoolsQueryResult);
             Iterator<URI> poolIterator = vArrayPoolsQueryResult.iterator();
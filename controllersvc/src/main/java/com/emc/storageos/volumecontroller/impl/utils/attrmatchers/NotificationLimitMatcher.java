@@ -32,7 +32,7 @@ public class NotificationLimitMatcher extends AttributeMatcher {
         List<StoragePool> filteredPools = new ArrayList<StoragePool>();
         _logger.info("started matching pools with notification limit.");
         for (StoragePool pool : allPools) {
-            StorageSystem system = _objectCache.getDbClient().queryObject(StorageSystem.class, pool.getStorageDevice());
+            StorageSystem system = getObjectCache().getDbClient().queryObject(StorageSystem.class, pool.getStorageDevice());
             if (system.getSupportNotificationLimit() != null
                     && system.getSupportNotificationLimit().equals(attributeMap.get(Attributes.support_notification_limit.name()))) {
                 filteredPools.add(pool);
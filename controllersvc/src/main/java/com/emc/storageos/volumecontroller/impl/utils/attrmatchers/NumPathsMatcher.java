@@ -191,7 +191,7 @@ public class NumPathsMatcher extends AttributeMatcher {
         } else {
             usable = 0;
         }
-        StorageSystem storageDevice = _objectCache.queryObject(StorageSystem.class, storageDeviceURI);
+        StorageSystem storageDevice = getObjectCache().queryObject(StorageSystem.class, storageDeviceURI);
         if (storageDevice == null || storageDevice.getInactive() == true) {
             cachedUsablePorts.put(storageDeviceURI, new Integer(0));
             cachedUsableHADomains.put(storageDeviceURI, new Integer(0));
@@ -200,11 +200,11 @@ public class NumPathsMatcher extends AttributeMatcher {
 
         Set<URI> haDomains = new HashSet<URI>();
         URIQueryResultList storagePortURIs = new URIQueryResultList();
-        _objectCache.getDbClient().queryByConstraint(
+        getObjectCache().getDbClient().queryByConstraint(
                 ContainmentConstraint.Factory.getStorageDeviceStoragePortConstraint(
                         storageDeviceURI),
                 storagePortURIs);
-        List<StoragePort> storagePorts = _objectCache.queryObject(StoragePort.class,
+        List<StoragePort> storagePorts = getObjectCache().queryObject(StoragePort.class,
                 storagePortURIs);
 
         // CTRL-10769. If ports part of selected vArrays are of RDF type only, skip that system's pools.
@@ -72,8 +72,8 @@ public class ProtectionAttrMatcher extends AttributeMatcher {
                 
                 List<StoragePool> haVpoolPoolList = new ArrayList<StoragePool>();
                 if (haVpoolId != null) {                    
-                    VirtualPool haVpool = _objectCache.queryObject(VirtualPool.class, URI.create(haVpoolId));                    
-                    haVpoolPoolList = VirtualPool.getValidStoragePools(haVpool, _objectCache.getDbClient(), true);
+                    VirtualPool haVpool = getObjectCache().queryObject(VirtualPool.class, URI.create(haVpoolId));                    
+                    haVpoolPoolList = VirtualPool.getValidStoragePools(haVpool, getObjectCache().getDbClient(), true);
                     _logger.info(String.format("HA Virtual Pool exists [%s](%s), consider Storage Pools from it.", 
                             haVpool.getLabel(), haVpool.getId()));
                     
@@ -114,7 +114,7 @@ public class ProtectionAttrMatcher extends AttributeMatcher {
             }
             
             // Get the RP systems for this pool.
-            Set<ProtectionSystem> protectionSystems = ConnectivityUtil.getProtectionSystemsForStoragePool(_objectCache.getDbClient(),
+            Set<ProtectionSystem> protectionSystems = ConnectivityUtil.getProtectionSystemsForStoragePool(getObjectCache().getDbClient(),
                     storagePool, null, isRPVPlex);
 
             // Only pools connected to an RP system can potentially match.
@@ -164,8 +164,8 @@ public class ProtectionAttrMatcher extends AttributeMatcher {
                         break;
                     }
 
-                    VirtualPool targetVpool = _objectCache.queryObject(VirtualPool.class, URI.create(targetVpoolId));
-                    List<StoragePool> targetPoolList = VirtualPool.getValidStoragePools(targetVpool, _objectCache.getDbClient(), true);
+                    VirtualPool targetVpool = getObjectCache().queryObject(VirtualPool.class, URI.create(targetVpoolId));
+                    List<StoragePool> targetPoolList = VirtualPool.getValidStoragePools(targetVpool, getObjectCache().getDbClient(), true);
                     boolean targetVpoolSpecifiesVPlex = VirtualPool.vPoolSpecifiesHighAvailability(targetVpool);
                     
                     // Check the target virtual pool for all valid storage pools. But only consider
@@ -179,7 +179,7 @@ public class ProtectionAttrMatcher extends AttributeMatcher {
                                 && tgtPool.getTaggedVirtualArrays().contains(targetVarrayId)) {
                             _logger.info(String.format("Checking target storage pool [%s](%s)...", tgtPool.getLabel(), tgtPool.getId() ));                            
                             // Get the RP systems for this target pool                           
-                            Set<ProtectionSystem> targetProtectionSystems = ConnectivityUtil.getProtectionSystemsForStoragePool(_objectCache.getDbClient(),
+                            Set<ProtectionSystem> targetProtectionSystems = ConnectivityUtil.getProtectionSystemsForStoragePool(getObjectCache().getDbClient(),
                                     tgtPool, URI.create(targetVarrayId), targetVpoolSpecifiesVPlex);
                             // Check to see if the protection systems line up between the source storage pool
                             // and at least one target storage pool.
@@ -311,7 +311,7 @@ public class ProtectionAttrMatcher extends AttributeMatcher {
      */
     private boolean validRPVPlexStoragePool(StoragePool storagePool) {
         // Get the VPLEXs connected to this pool
-        List<String> vplexSystemsForPool = VPlexHighAvailabilityMatcher.getVPlexStorageSystemsForStorageSystem(_objectCache.getDbClient(),
+        List<String> vplexSystemsForPool = VPlexHighAvailabilityMatcher.getVPlexStorageSystemsForStorageSystem(getObjectCache().getDbClient(),
                 storagePool.getStorageDevice(), null);
 
         // The Storage Pool needs to have a VPLEX connected to it to be valid, and that's
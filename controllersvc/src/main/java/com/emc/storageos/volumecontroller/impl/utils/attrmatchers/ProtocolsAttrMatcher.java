@@ -171,13 +171,13 @@ public class ProtocolsAttrMatcher extends AttributeMatcher {
             }
             Set<String> portProtocols = new HashSet<String>();
             URIQueryResultList storagePortURIs = new URIQueryResultList();
-            _objectCache.getDbClient().queryByConstraint(
+            getObjectCache().getDbClient().queryByConstraint(
                     ContainmentConstraint.Factory.getStorageDeviceStoragePortConstraint(arrayUri),
                     storagePortURIs);
             Iterator<URI> storagePortsIter = storagePortURIs.iterator();
             while (storagePortsIter.hasNext()) {
                 URI storagePortURI = storagePortsIter.next();
-                StoragePort storagePort = _objectCache.queryObject(StoragePort.class,
+                StoragePort storagePort = getObjectCache().queryObject(StoragePort.class,
                         storagePortURI);
 
                 // only usable storage port will be checked
@@ -253,7 +253,7 @@ public class ProtocolsAttrMatcher extends AttributeMatcher {
             if (arrayId == null) {
                 continue;
             }
-            StorageSystem storageSystem = _objectCache.queryObject(StorageSystem.class,
+            StorageSystem storageSystem = getObjectCache().queryObject(StorageSystem.class,
                     arrayId);
             if (storageSystem == null) {
                 continue;
@@ -281,14 +281,14 @@ public class ProtocolsAttrMatcher extends AttributeMatcher {
         for (Map.Entry<URI, Set<StoragePool>> entry : arrayPoolMap.entrySet()) {
             URI arrayUri = entry.getKey();
             URIQueryResultList storagePortURIs = new URIQueryResultList();
-            _objectCache.getDbClient().queryByConstraint(
+            getObjectCache().getDbClient().queryByConstraint(
                     ContainmentConstraint.Factory.getStorageDeviceStoragePortConstraint(arrayUri),
                     storagePortURIs);
             Iterator<URI> storagePortsIter = storagePortURIs.iterator();
             boolean isMatching = false;
             while (storagePortsIter.hasNext()) {
                 URI storagePortURI = storagePortsIter.next();
-                StoragePort storagePort = _objectCache.queryObject(StoragePort.class, storagePortURI);
+                StoragePort storagePort = getObjectCache().queryObject(StoragePort.class, storagePortURI);
 
                 // only usable storage port will be checked
                 if (!isPortUsable(storagePort, vArrays)) {
@@ -72,7 +72,7 @@ public class RemoteMirrorProtectionMatcher extends AttributeMatcher {
         _logger.info("Grouped Remote Storage Devices : {}", remotestorageToPoolMap.asMap().keySet());
         for (Entry<URI, Collection<StoragePool>> storageToPoolsEntry : storageToPoolMap
                 .asMap().entrySet()) {
-            StorageSystem system = _objectCache.queryObject(StorageSystem.class, storageToPoolsEntry.getKey());
+            StorageSystem system = getObjectCache().queryObject(StorageSystem.class, storageToPoolsEntry.getKey());
             if (null == system.getSupportedReplicationTypes()) {
                 continue;
             }
@@ -116,13 +116,13 @@ public class RemoteMirrorProtectionMatcher extends AttributeMatcher {
     }
 
     private boolean isRemotelyConnectedViaExpectedCopyMode(StorageSystem system, Map<String, List<String>> remoteCopySettings) {
-        List<URI> raGroupUris = _objectCache.getDbClient().queryByConstraint(
+        List<URI> raGroupUris = getObjectCache().getDbClient().queryByConstraint(
                 ContainmentConstraint.Factory.getStorageDeviceRemoteGroupsConstraint(system.getId()));
         _logger.info("List of RA Groups {}", Joiner.on("\t").join(raGroupUris));
         Set<String> copyModes = getSupportedCopyModesFromGivenRemoteSettings(remoteCopySettings);
         _logger.info("Supported Copy Modes from Given Settings {}", Joiner.on("\t").join(copyModes));
         for (URI raGroupUri : raGroupUris) {
-            RemoteDirectorGroup raGroup = _objectCache.queryObject(RemoteDirectorGroup.class, raGroupUri);
+            RemoteDirectorGroup raGroup = getObjectCache().queryObject(RemoteDirectorGroup.class, raGroupUri);
             if (null == raGroup || raGroup.getInactive()) {
                 continue;
             }
@@ -149,7 +149,7 @@ public class RemoteMirrorProtectionMatcher extends AttributeMatcher {
             Set<String> poolUris) {
         Set<String> remotePoolUris = new HashSet<String>();
         for (Entry<String, List<String>> entry : remoteCopySettings.entrySet()) {
-            VirtualPool vPool = _objectCache.queryObject(VirtualPool.class,
+            VirtualPool vPool = getObjectCache().queryObject(VirtualPool.class,
                     URI.create(entry.getKey()));
             if (null == vPool) {
                 remotePoolUris.addAll(poolUris);
@@ -173,7 +173,7 @@ public class RemoteMirrorProtectionMatcher extends AttributeMatcher {
     private ListMultimap<String, URI> groupStoragePoolsByStorageSystem(Set<String> allPoolUris) {
         Set<String> columnNames = new HashSet<String>();
         columnNames.add(STORAGE_DEVICE);
-        Collection<StoragePool> storagePools = _objectCache.getDbClient().queryObjectFields(StoragePool.class, columnNames,
+        Collection<StoragePool> storagePools = getObjectCache().getDbClient().queryObjectFields(StoragePool.class, columnNames,
                 new ArrayList<URI>(
                         Collections2.transform(allPoolUris, CommonTransformerFunctions.FCTN_STRING_TO_URI)));
         ListMultimap<String, URI> storageToPoolMap = ArrayListMultimap.create();
@@ -195,16 +195,16 @@ public class RemoteMirrorProtectionMatcher extends AttributeMatcher {
             boolean foundCopyModeAll = false;
             for (Entry<URI, Collection<StoragePool>> storageToPoolsEntry : storageToPoolMap
                     .asMap().entrySet()) {
-                StorageSystem system = _objectCache.queryObject(StorageSystem.class, storageToPoolsEntry.getKey());
+                StorageSystem system = getObjectCache().queryObject(StorageSystem.class, storageToPoolsEntry.getKey());
                 if (null == system.getSupportedReplicationTypes()) {
                     continue;
                 }
                 if (system.getSupportedReplicationTypes().contains(SupportedReplicationTypes.SRDF.toString()) &&
                         null != system.getRemotelyConnectedTo()) {
-                    List<URI> raGroupUris = _objectCache.getDbClient().queryByConstraint(
+                    List<URI> raGroupUris = getObjectCache().getDbClient().queryByConstraint(
                             ContainmentConstraint.Factory.getStorageDeviceRemoteGroupsConstraint(system
                                     .getId()));
-                    List<RemoteDirectorGroup> RemoteDirectorGroup = _objectCache.queryObject(RemoteDirectorGroup.class, raGroupUris);
+                    List<RemoteDirectorGroup> RemoteDirectorGroup = getObjectCache().queryObject(RemoteDirectorGroup.class, raGroupUris);
                     Set<String> copyModes = new HashSet<String>();
                     for (RemoteDirectorGroup rg : RemoteDirectorGroup) {
                         if (SupportedCopyModes.ALL.toString().equalsIgnoreCase(rg.getSupportedCopyMode())) {
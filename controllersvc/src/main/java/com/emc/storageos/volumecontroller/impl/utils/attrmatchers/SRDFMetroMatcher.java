@@ -76,7 +76,7 @@ public class SRDFMetroMatcher extends AttributeMatcher {
                 continue;
             } else {
                 if (storageSystemMap.get(pool.getStorageDevice()) == null) {
-                    storageSystem = _objectCache.queryObject(StorageSystem.class, pool.getStorageDevice());
+                    storageSystem = getObjectCache().queryObject(StorageSystem.class, pool.getStorageDevice());
                     storageSystemMap.put(pool.getStorageDevice(), storageSystem);
                 }
                 storageSystem = storageSystemMap.get(pool.getStorageDevice());
@@ -32,7 +32,7 @@ public class SoftLimitMatcher extends AttributeMatcher {
         List<StoragePool> filteredPools = new ArrayList<StoragePool>();
         _logger.info("started matching pools with soft limit.");
         for (StoragePool pool : allPools) {
-            StorageSystem system = _objectCache.getDbClient().queryObject(StorageSystem.class, pool.getStorageDevice());
+            StorageSystem system = getObjectCache().getDbClient().queryObject(StorageSystem.class, pool.getStorageDevice());
             if (system.getSupportSoftLimit() != null
                     && system.getSupportSoftLimit().equals(attributeMap.get(Attributes.support_soft_limit.name()))) {
                 filteredPools.add(pool);
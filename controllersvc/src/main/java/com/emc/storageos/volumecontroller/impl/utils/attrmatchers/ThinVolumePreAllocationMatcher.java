@@ -52,7 +52,7 @@ public class ThinVolumePreAllocationMatcher extends AttributeMatcher {
                     filteredPoolList.remove(pool);
                 }
             } else {
-                StorageSystem storageDevice = _objectCache.getDbClient().queryObject(StorageSystem.class, pool.getStorageDevice());
+                StorageSystem storageDevice = getObjectCache().getDbClient().queryObject(StorageSystem.class, pool.getStorageDevice());
                 if (storageDevice.checkIfVmax3() && thinVolumePreAllocationPercentage != Constants.VMAX3_FULLY_ALLOCATED_VOLUME_PERCENTAGE) {
                     _logger.info("Ignoring pool {} as it belongs to VMAX3 storage system and to qualify this pool, "
                             + "Virtual pool should have Thin Volume preallocation of {} but its set to {}. ",
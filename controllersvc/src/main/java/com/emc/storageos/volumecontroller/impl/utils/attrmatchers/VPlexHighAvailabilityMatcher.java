@@ -72,8 +72,8 @@ public class VPlexHighAvailabilityMatcher extends AttributeMatcher {
             if (NullColumnValueGetter.isNullURI(haCosURI)) {
                 haVpoolId = null;
             } else {
-                haVpool = _objectCache.queryObject(VirtualPool.class, URI.create(haVpoolId));
-                haVpoolPoolList = VirtualPool.getValidStoragePools(haVpool, _objectCache.getDbClient(), true);
+                haVpool = getObjectCache().queryObject(VirtualPool.class, URI.create(haVpoolId));
+                haVpoolPoolList = VirtualPool.getValidStoragePools(haVpool, getObjectCache().getDbClient(), true);
             }
         }
 
@@ -89,7 +89,7 @@ public class VPlexHighAvailabilityMatcher extends AttributeMatcher {
             if (systemVPlexMap.containsKey(poolSystemURI)) {
                 vplexSystemsForPool = systemVPlexMap.get(poolSystemURI);
             } else {
-                vplexSystemsForPool = getVPlexStorageSystemsForStorageSystem(_objectCache.getDbClient(),
+                vplexSystemsForPool = getVPlexStorageSystemsForStorageSystem(getObjectCache().getDbClient(),
                         poolSystemURI, matchVarrays);
                 systemVPlexMap.put(poolSystemURI, vplexSystemsForPool);
             }
@@ -117,7 +117,7 @@ public class VPlexHighAvailabilityMatcher extends AttributeMatcher {
                     vplexVarrays = vplexVarrayMap.get(vplexSystemId);
                 } else {
                     vplexVarrays = ConnectivityUtil
-                            .getVPlexSystemVarrays(_objectCache.getDbClient(), URI.create(vplexSystemId));
+                            .getVPlexSystemVarrays(getObjectCache().getDbClient(), URI.create(vplexSystemId));
                     vplexVarrayMap.put(vplexSystemId, vplexVarrays);
                 }
 
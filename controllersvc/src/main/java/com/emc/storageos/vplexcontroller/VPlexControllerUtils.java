@@ -267,7 +267,8 @@ public class VPlexControllerUtils {
 
     /**
      * Returns a VPlexResourceInfo object for the given device name based
-     * on its virtual volume type (local or distributed).
+     * on its virtual volume type (local or distributed). The device is looked
+     * up in the VPLEX inventory snapshot first.
      * 
      * @param deviceName the name of the device
      * @param virtualVolumeType the type of virtual volume (local or distributed)
@@ -290,7 +291,7 @@ public class VPlexControllerUtils {
         }
 
         if (null != client) {
-            device = client.getDeviceStructure(deviceName, virtualVolumeType);
+            device = client.getDeviceStructure(deviceName, virtualVolumeType, true);
         }
 
         return device;
@@ -301,7 +302,8 @@ public class VPlexControllerUtils {
      * object for a given device name, virtual volume type, and cluster name. If
      * hasMirror is true, this indicates the top-level device is composed of a
      * RAID-1 mirror, so there's an extra layers of components to traverse in finding
-     * the lowest-level storage-volume resources.
+     * the lowest-level storage-volume resources. The device is looked up in the
+     * VPLEX inventory snapshot first.
      * 
      * @param deviceName the name of the top-level device to look at
      * @param virtualVolumeType the type of virtual volume (local or distributed)
@@ -329,7 +331,7 @@ public class VPlexControllerUtils {
 
         if (null != client) {
             storageVolumeInfo = client.getStorageVolumeInfoForDevice(
-                    deviceName, virtualVolumeType, clusterName, hasMirror);
+                    deviceName, virtualVolumeType, clusterName, hasMirror, true);
         }
 
         log.info("Backend storage volume wwns for {} are {}", deviceName, storageVolumeInfo);
@@ -381,7 +383,8 @@ public class VPlexControllerUtils {
 
     /**
      * Returns a Map of distributed device component context
-     * paths from the VPLEX API to VPLEX cluster names.
+     * paths from the VPLEX API to VPLEX cluster names, taken from
+     * the VPLEX inventory snapshot when it is available.
      * 
      * @param vplexUri the VPLEX to query
      * @param dbClient a reference to the database client
@@ -404,7 +407,7 @@ public class VPlexControllerUtils {
         Map<String, String> distributedDevicePathToClusterMap = Collections.emptyMap();
         if (null != client) {
             distributedDevicePathToClusterMap =
-                    client.getDistributedDevicePathToClusterMap();
+                    client.getDistributedDevicePathToClusterMap(true);
         }
 
         return distributedDevicePathToClusterMap;
@@ -11,6 +11,7 @@ import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -68,6 +69,16 @@ public class Workflow implements Serializable {
     Set<URI> _suspendSteps = new HashSet<URI>(); // Steps that initiate workflow suspend
     private Boolean _rollingBackFromSuspend = false;
     private Boolean _treatSuspendRollbackAsTerminate = false;
+
+    // The fields below are not persisted in ZK.
+    // Maps a stepId to the ids of the steps waiting on it, directly or through its step group.
+    private Map<String, List<String>> _successorMap;
+    private int _successorMapStepCount;
+    // Maps the stepId of a BLOCKED step to the ids of the steps it waits on that are not terminal.
+    private Map<String, Set<String>> _remainingDependencyMap;
+    // Ids of the steps known to have a ZK node, and the token last written to the workflow version node.
+    private Set<String> _persistedStepIds;
+    private String _zkVersion;
     
 
     // Define the serializable, persistent fields save in ZK
@@ -1015,6 +1026,121 @@ public class Workflow implements Serializable {
         return error;
     }
 
+    /**
+     * Returns the ids of the steps the given step waits on: the step named by its waitFor,
+     * or the members of the step group named by its waitFor. Empty if the step does not wait,
+     * or if the waitFor is neither a stepId nor a stepGroup name.
+     * 
+     * @param step
+     * @return Collection of stepIds
+     */
+    Collection<String> getStepDependencies(Step step) {
+        if (step.waitFor == null) {
+            return Collections.emptySet();
+        }
+        if (getStepStatusMap().containsKey(step.waitFor)) {
+            return Collections.singleton(step.waitFor);
+        }
+        Set<String> stepGroup = getStepGroupMap().get(step.waitFor);
+        return (stepGroup != null) ? stepGroup : Collections.<String> emptySet();
+    }
+
+    /**
+     * Returns the ids of the steps waiting on the given step, either directly or through
+     * the step group of the step. The index is rebuilt when steps have been added to or
+     * removed from the Workflow since it was built.
+     * 
+     * @param stepId
+     * @return List of stepIds
+     */
+    List<String> getSuccessors(String stepId) {
+        if (_successorMap == null || _successorMapStepCount != getStepMap().size()) {
+            Map<String, List<String>> successorMap = new HashMap<String, List<String>>();
+            for (Step step : getStepMap().values()) {
+                for (String dependency : getStepDependencies(step)) {
+                    List<String> successors = successorMap.get(dependency);
+                    if (successors == null) {
+                        successors = new ArrayList<String>();
+                        successorMap.put(dependency, successors);
+                    }
+                    successors.add(step.stepId);
+                }
+            }
+            _successorMap = successorMap;
+            _successorMapStepCount = getStepMap().size();
+            _remainingDependencyMap = null;
+        }
+        List<String> successors = _successorMap.get(stepId);
+        return (successors != null) ? successors : Collections.<String> emptyList();
+    }
+
+    /**
+     * Returns the ids of the steps a BLOCKED step waits on that have not reached a terminal
+     * state. The set is computed from the step states the first time it is requested, and
+     * then kept up to date by the caller as the steps it waits on complete.
+     * 
+     * @param step
+     * @return modifiable Set of stepIds
+     */
+    Set<String> getRemainingDependencies(Step step) {
+        if (_remainingDependencyMap == null) {
+            _remainingDependencyMap = new HashMap<String, Set<String>>();
+        }
+        Set<String> remaining = _remainingDependencyMap.get(step.stepId);
+        if (remaining == null) {
+            remaining = new HashSet<String>();
+            for (String dependency : getStepDependencies(step)) {
+                StepStatus status = getStepStatusMap().get(dependency);
+                if (status != null && !status.isTerminalState()) {
+                    remaining.add(dependency);
+                }
+            }
+            _remainingDependencyMap.put(step.stepId, remaining);
+        }
+        return remaining;
+    }
+
+    /**
+     * Forgets the remaining dependencies of a step that is no longer BLOCKED.
+     * 
+     * @param stepId
+     */
+    void clearRemainingDependencies(String stepId) {
+        if (_remainingDependencyMap != null) {
+            _remainingDependencyMap.remove(stepId);
+        }
+    }
+
+    /**
+     * Forgets the remaining dependencies of all the steps, to be called when step states
+     * are reset (such as on resume) so they are recomputed.
+     */
+    void clearRemainingDependencies() {
+        _remainingDependencyMap = null;
+    }
+
+    /**
+     * @return the ids of the steps known to have been saved in ZK
+     */
+    Set<String> getPersistedStepIds() {
+        if (_persistedStepIds == null) {
+            _persistedStepIds = new HashSet<String>();
+        }
+        return _persistedStepIds;
+    }
+
+    /**
+     * @return the token last read from or written to the ZK version node of this Workflow,
+     *         or null if not known
+     */
+    String getZkVersion() {
+        return _zkVersion;
+    }
+
+    void setZkVersion(String zkVersion) {
+        _zkVersion = zkVersion;
+    }
+
     public Map<String, Step> getStepMap() {
         return _stepMap;
     }
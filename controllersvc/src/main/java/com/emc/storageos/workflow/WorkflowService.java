@@ -6,18 +6,23 @@
 package com.emc.storageos.workflow;
 
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.curator.framework.CuratorFramework;
@@ -25,6 +30,7 @@ import org.apache.curator.framework.recipes.locks.InterProcessLock;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,6 +108,26 @@ public class WorkflowService implements WorkflowController {
     // Other constants
     private static final String WORKFLOW_URI_Match = "urn:storageos:Workflow.*";
     private static final int WORKFLOW_DESTROY_MAX_RETRIES = 5;
+    // Child of each workflow node holding a token that is replaced every time the workflow
+    // or one of its steps is saved, used to check whether a cached workflow is current.
+    private static final String ZK_WORKFLOW_VERSION_NODE = "_version";
+    // Maximum number of steps saved in one ZK transaction.
+    private static final int STEP_PERSIST_BATCH_SIZE = 100;
+    // Maximum number of workflows kept in the workflow cache.
+    private static final int WORKFLOW_CACHE_SIZE = 25;
+
+    // Workflows loaded by updateStepStatus keyed by ZK workflow path, so that the step completer
+    // callbacks of a workflow do not reload all of its steps from ZK and the DB. An entry is only
+    // used with the workflow locked and after checking its ZK version node.
+    private final Map<String, Workflow> _workflowCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, Workflow>(WORKFLOW_CACHE_SIZE, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Workflow> eldest) {
+                    return size() > WORKFLOW_CACHE_SIZE;
+                }
+            });
 
     // Test-provided suspend variables that override system variables during unit testing.
     private String _suspendClassMethodTestOnly = null;
@@ -592,8 +618,12 @@ public class WorkflowService implements WorkflowController {
             if (workflowPath == null) {
                 return;
             }
-            // Load the Workflow state from ZK
-            workflow = (Workflow) _dataManager.getData(workflowPath, false);
+            // Load the Workflow state from ZK, unless it is cached. The cached copy
+            // is only used to lock the Workflow until it has been checked.
+            workflow = _workflowCache.get(workflowPath);
+            if (workflow == null) {
+                workflow = (Workflow) _dataManager.getData(workflowPath, false);
+            }
             if (workflow == null) {
                 WorkflowException ex = WorkflowException.exceptions.workflowNotFound(workflowPath);
                 _log.info("Workflow not found: " + workflowPath, ex);
@@ -602,7 +632,7 @@ public class WorkflowService implements WorkflowController {
             // Lock the Workflow
             lock = lockWorkflow(workflow);
             // Load the entire workflow state including the steps
-            workflow = loadWorkflow(workflow);
+            workflow = loadLockedWorkflow(workflowPath);
             if (workflow == null) {
                 WorkflowException ex = WorkflowException.exceptions.workflowNotFound(workflowPath);
                 _log.info("Workflow not found: " + workflowPath, ex);
@@ -699,9 +729,15 @@ public class WorkflowService implements WorkflowController {
                         // lock is released by end processing if the workflow is deleted
                         lock = null;
                     }
+                    // No more step updates are expected unless rollback was initiated
+                    if (workflowDeleted || workflow.allStatesTerminal()) {
+                        _workflowCache.remove(workflowPath);
+                    }
                 }
             }
         } catch (Exception ex) {
+            // The cached workflow may not match what was saved in ZK
+            _workflowCache.remove(workflowPath);
             String exMsg = "Exception processing updateStepStatus stepId: " + stepId + ": " + ex.getMessage();
             _log.error(exMsg, ex);
             throw new WorkflowException(exMsg, ex);
@@ -978,6 +1014,7 @@ public class WorkflowService implements WorkflowController {
 
             // Destroy the workflow under /workflow/workflows
             String path = getZKWorkflowPath(workflow);
+            _workflowCache.remove(path);
             Stat stat = _dataManager.checkExists(path);
             if (stat != null) {
                 _dataManager.removeNode(path);
@@ -1044,37 +1081,117 @@ public class WorkflowService implements WorkflowController {
      */
     private void persistWorkflowStep(Workflow workflow, Step step)
             throws WorkflowException {
-        Workflow.Method executeMethod = step.executeMethod;
-        Workflow.Method rollbackMethod = step.rollbackMethod;
+        persistWorkflowSteps(workflow, Collections.singletonList(step));
+    }
+
+    /**
+     * Saves the state of several Steps of a Workflow in Zookeeper, in one transaction
+     * per STEP_PERSIST_BATCH_SIZE steps rather than several ZK requests per step.
+     *
+     * @param workflow
+     * @param steps
+     * @throws WorkflowException
+     */
+    private void persistWorkflowSteps(Workflow workflow, Collection<Step> steps)
+            throws WorkflowException {
+        List<Step> batch = new ArrayList<Step>(Math.min(steps.size(), STEP_PERSIST_BATCH_SIZE));
+        for (Step step : steps) {
+            batch.add(step);
+            if (batch.size() == STEP_PERSIST_BATCH_SIZE) {
+                persistWorkflowStepBatch(workflow, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            persistWorkflowStepBatch(workflow, batch);
+        }
+    }
+
+    /**
+     * Saves the Steps in one ZK transaction, which also creates the stepToWorkflowPath node of
+     * the steps saved for the first time and replaces the token of the workflow version node.
+     * If the transaction fails, because a node was created or removed by another process,
+     * each node is saved on its own.
+     *
+     * @param workflow
+     * @param steps
+     * @throws WorkflowException
+     */
+    private void persistWorkflowStepBatch(Workflow workflow, List<Step> steps)
+            throws WorkflowException {
+        List<Workflow.Method> executeMethods = new ArrayList<Workflow.Method>(steps.size());
+        List<Workflow.Method> rollbackMethods = new ArrayList<Workflow.Method>(steps.size());
         try {
-            logStep(workflow, step);
-            // Temporarily null out the executeMethod, and rollbackMethod.
-            // These will no longer be saved in ZK.
-            step.executeMethod = null;
-            step.rollbackMethod = null;
+            for (Step step : steps) {
+                logStep(workflow, step);
+                // Temporarily null out the executeMethod, and rollbackMethod.
+                // These will no longer be saved in ZK.
+                executeMethods.add(step.executeMethod);
+                rollbackMethods.add(step.rollbackMethod);
+                step.executeMethod = null;
+                step.rollbackMethod = null;
+            }
             // Make sure the workflow path exists.
             String workflowPath = getZKWorkflowPath(workflow);
-            Stat stat = _dataManager.checkExists(workflowPath);
-            if (stat == null) {
+            if (workflow.getZkVersion() == null && _dataManager.checkExists(workflowPath) == null) {
                 _dataManager.createNode(workflowPath, false);
             }
-            // Save the step state.
-            String path = getZKStepPath(workflow, step);
-            _dataManager.putData(path, step);
-            stat = _dataManager.checkExists(path);
-            _log.debug("Created path " + path + " bytes " + stat.getDataLength());
-            // Make a stepToWorkflowPath node
-            path = getZKStep2WorkflowPath(step.stepId);
-            _dataManager.putData(path, workflowPath);
-            _log.debug("Created step path: " + path);
+            Map<String, Object> nodes = new LinkedHashMap<String, Object>();
+            Set<String> newPaths = new HashSet<String>();
+            for (Step step : steps) {
+                String path = getZKStepPath(workflow, step);
+                nodes.put(path, step);
+                if (!workflow.getPersistedStepIds().contains(step.stepId)) {
+                    // Make a stepToWorkflowPath node
+                    String step2WorkflowPath = getZKStep2WorkflowPath(step.stepId);
+                    nodes.put(step2WorkflowPath, workflowPath);
+                    newPaths.add(path);
+                    newPaths.add(step2WorkflowPath);
+                }
+            }
+            String versionPath = workflowPath + "/" + ZK_WORKFLOW_VERSION_NODE;
+            String version = UUID.randomUUID().toString();
+            nodes.put(versionPath, version);
+            if (workflow.getZkVersion() == null) {
+                newPaths.add(versionPath);
+            }
+            try {
+                _dataManager.putData(nodes, newPaths);
+            } catch (KeeperException ex) {
+                _log.info(String.format("Saving %d steps of workflow %s one at a time: %s",
+                        steps.size(), workflow.getWorkflowURI(), ex.getMessage()));
+                for (Map.Entry<String, Object> node : nodes.entrySet()) {
+                    _dataManager.putData(node.getKey(), node.getValue());
+                }
+            }
+            for (Step step : steps) {
+                workflow.getPersistedStepIds().add(step.stepId);
+            }
+            workflow.setZkVersion(version);
+            _log.debug(String.format("Saved %d steps in %s", steps.size(), workflowPath));
         } catch (Exception ex) {
             throw new WorkflowException("Cannot persist step in ZK", ex);
         } finally {
-            step.executeMethod = executeMethod;
-            step.rollbackMethod = rollbackMethod;
+            for (int i = 0; i < executeMethods.size(); i++) {
+                steps.get(i).executeMethod = executeMethods.get(i);
+                steps.get(i).rollbackMethod = rollbackMethods.get(i);
+            }
         }
     }
 
+    /**
+     * Replaces the token of the version node of a Workflow, so that cached copies of the
+     * Workflow are reloaded.
+     *
+     * @param workflow
+     * @throws Exception
+     */
+    private void persistWorkflowVersion(Workflow workflow) throws Exception {
+        String version = UUID.randomUUID().toString();
+        _dataManager.putData(getZKWorkflowPath(workflow) + "/" + ZK_WORKFLOW_VERSION_NODE, version);
+        workflow.setZkVersion(version);
+    }
+
     /**
      * Returns false if this workflow doesn't exist.
      *
@@ -1133,12 +1250,16 @@ public class WorkflowService implements WorkflowController {
             for (String child : children) {
                 String childPath = zkWorkflowPath + "/" + child;
                 Object stepObj = _dataManager.getData(childPath, false);
+                if (ZK_WORKFLOW_VERSION_NODE.equals(child) && stepObj instanceof String) {
+                    workflow.setZkVersion((String) stepObj);
+                }
                 if (stepObj == null || false == (stepObj instanceof Step)) {
                     continue;
                 }
                 Step step = (Step) stepObj;
                 restoreStepDataFromDB(step);
                 workflow.getStepMap().put(step.stepId, step);
+                workflow.getPersistedStepIds().add(step.stepId);
                 if (step.stepGroup != null) {
                     if (workflow.getStepGroupMap().get(step.stepGroup) == null) {
                         workflow.getStepGroupMap().put(step.stepGroup,
@@ -1159,6 +1280,33 @@ public class WorkflowService implements WorkflowController {
         }
     }
 
+    /**
+     * Loads a Workflow the caller has locked, using the cached copy if the token in the
+     * ZK version node of the workflow is the one the copy was loaded or last saved with.
+     * This is called from updateStepStatus().
+     *
+     * @param zkWorkflowPath -- zookeeper path of the Workflow
+     * @return Workflow -- returns fully reconstructed workflow
+     * @throws WorkflowNotFound exception if cannot load workflow
+     */
+    private Workflow loadLockedWorkflow(String zkWorkflowPath) throws WorkflowException {
+        Workflow workflow = _workflowCache.get(zkWorkflowPath);
+        if (workflow != null && workflow.getZkVersion() != null) {
+            try {
+                Object version = _dataManager.getData(zkWorkflowPath + "/" + ZK_WORKFLOW_VERSION_NODE, false);
+                if (workflow.getZkVersion().equals(version)) {
+                    return workflow;
+                }
+            } catch (Exception ex) {
+                _log.info("Unable to check version of cached workflow: " + zkWorkflowPath, ex);
+            }
+        }
+        _workflowCache.remove(zkWorkflowPath);
+        workflow = loadWorkflow(zkWorkflowPath);
+        _workflowCache.put(zkWorkflowPath, workflow);
+        return workflow;
+    }
+
     /**
      * Persits the workflow to Zookeeper.
      *
@@ -1177,11 +1325,14 @@ public class WorkflowService implements WorkflowController {
 
             // Persist the workflow in ZK.
             String path = getZKWorkflowPath(workflow);
-            _dataManager.putData(path, workflow);
-
-            // Restore the values
-            workflow.setStepMap(stepMap);
-            workflow.setStepStatusMap(stepStatusMap);
+            try {
+                _dataManager.putData(path, workflow);
+            } finally {
+                // Restore the values
+                workflow.setStepMap(stepMap);
+                workflow.setStepStatusMap(stepStatusMap);
+            }
+            persistWorkflowVersion(workflow);
         } catch (Exception ex) {
             throw new WorkflowException("Cannot persist workflow data in ZK", ex);
         }
@@ -1207,10 +1358,7 @@ public class WorkflowService implements WorkflowController {
                 workflow._nested = associateToParentWorkflow(workflow);
 
                 persistWorkflow(workflow);
-
-                for (Step step : workflow.getStepMap().values()) {
-                    persistWorkflowStep(workflow, step);
-                }
+                persistWorkflowSteps(workflow, workflow.getStepMap().values());
 
                 // Check suspended state and modify states
                 if (checkSuspendedSteps(workflow)) {
@@ -1230,11 +1378,13 @@ public class WorkflowService implements WorkflowController {
                     /**
                      * Queue any steps that have not been queued.
                      */
+                    List<Step> createdSteps = new ArrayList<Step>();
                     for (Step step : workflow.getStepMap().values()) {
                         if (step.status.state == StepState.CREATED) {
-                            queueWorkflowStep(workflow, step);
+                            createdSteps.add(step);
                         }
                     }
+                    queueWorkflowSteps(workflow, createdSteps);
                 }
             } else {
                 _log.info("Workflow executed with no steps: " + workflow.getWorkflowURI());
@@ -1317,35 +1467,62 @@ public class WorkflowService implements WorkflowController {
      */
     public void queueWorkflowStep(Workflow workflow, Step step)
             throws WorkflowException {
+        queueWorkflowSteps(workflow, Collections.singletonList(step));
+    }
+
+    /**
+     * Queue steps on the Dispatcher to execute. The new state of every step is saved
+     * in Zookeeper before any of the steps is dispatched.
+     *
+     * @param workflow
+     *            -- The Workflow containing the steps
+     * @param steps
+     *            -- Steps to be queued for execution, in order
+     */
+    private void queueWorkflowSteps(Workflow workflow, Collection<Step> steps)
+            throws WorkflowException {
         synchronized (workflow) {
-            StepState state = StepState.QUEUED; // default is to go into QUEUED state
-            try {
-                if (isBlocked(workflow, step)) {
-                    // We are blocked waiting on a prerequisite step
-                    state = StepState.BLOCKED;
-                } else if (isStepMarkedForSuspend(workflow, step)) {
-                    state = StepState.SUSPENDED_NO_ERROR;
-                    step.suspendStep = false;
+            // Steps are being (re)queued, so what the blocked steps wait on is recomputed.
+            workflow.clearRemainingDependencies();
+            for (Step step : steps) {
+                StepState state = StepState.QUEUED; // default is to go into QUEUED state
+                try {
+                    if (isBlocked(workflow, step)) {
+                        // We are blocked waiting on a prerequisite step
+                        state = StepState.BLOCKED;
+                    } else if (isStepMarkedForSuspend(workflow, step)) {
+                        state = StepState.SUSPENDED_NO_ERROR;
+                        step.suspendStep = false;
+                    }
+                } catch (CancelledException cancelEx) {
+                    state = StepState.CANCELLED;
                 }
-            } catch (CancelledException cancelEx) {
-                state = StepState.CANCELLED;
+                workflow.getStepStatus(step.stepId).updateState(state, null, "");
+                _log.info(String.format("%s step: %s queued state %s", step.description,
+                        step.stepId, state));
             }
 
-            // Persist the Workflow and the Steps in Zookeeper
-            workflow.getStepStatus(step.stepId).updateState(state, null, "");
-            persistWorkflowStep(workflow, step);
-            _log.info(String.format("%s step: %s queued state %s", step.description,
-                    step.stepId, state));
-
-            // If step is suspended, call the update status to initiate other steps to be cancelled
-            if (state == StepState.SUSPENDED_NO_ERROR) {
-                // A suspended step doesn't actually run, so call the update status here.
-                completerStepSuspendedNoError(step.stepId);
-            }
+            // Persist the Steps in Zookeeper
+            persistWorkflowSteps(workflow, steps);
 
-            // If step is ready to run, send it to the Dispatcher.
-            if (state == StepState.QUEUED) {
-                dispatchStep(step, workflow._nested);
+            for (Step step : steps) {
+                switch (step.status.state) {
+                    case SUSPENDED_NO_ERROR:
+                        // A suspended step doesn't actually run, so call the update status here
+                        // to initiate other steps to be cancelled.
+                        completerStepSuspendedNoError(step.stepId);
+                        break;
+                    case CANCELLED:
+                        // Cancel the steps that were already blocked on this step.
+                        checkBlockedSteps(workflow, step.stepId);
+                        break;
+                    case QUEUED:
+                        // If step is ready to run, send it to the Dispatcher.
+                        dispatchStep(step, workflow._nested);
+                        break;
+                    default:
+                        break;
+                }
             }
         }
     }
@@ -1392,7 +1569,10 @@ public class WorkflowService implements WorkflowController {
 
     /**
      * Checks the workflow for any BLOCKED steps that have become unblocked,
-     * and dispatches them or cancels them if necessary.
+     * and dispatches them or cancels them if necessary. Only the steps waiting on the
+     * step that changed state are checked, and a waiting step is only checked once all
+     * the steps it waits on are terminal, or one of them did not succeed. Steps that
+     * are cancelled or suspended here are checked for waiting steps in turn.
      *
      * @param workflow
      *            -- The Workflow to be checked.
@@ -1400,39 +1580,61 @@ public class WorkflowService implements WorkflowController {
      *            -- The Step that has changed state.
      */
     private void checkBlockedSteps(Workflow workflow, String fromStepId) {
-        boolean again;
         Set<String> suspendedSteps = new HashSet<String>();
-        do {
-            again = false; // only loop again if made change
-            for (Step step : workflow.getStepMap().values()) {
+        List<Step> changedSteps = new ArrayList<Step>();
+        List<Step> unblockedSteps = new ArrayList<Step>();
+        Deque<String> terminalStepIds = new ArrayDeque<String>();
+        terminalStepIds.add(fromStepId);
+        while (!terminalStepIds.isEmpty()) {
+            String terminalStepId = terminalStepIds.poll();
+            StepStatus terminalStatus = workflow.getStepStatusMap().get(terminalStepId);
+            boolean succeeded = terminalStatus != null && terminalStatus.state == StepState.SUCCESS;
+            for (String stepId : workflow.getSuccessors(terminalStepId)) {
+                Step step = workflow.getStepMap().get(stepId);
                 if (step.status.state != StepState.BLOCKED) {
                     continue;
                 }
+                Set<String> remaining = workflow.getRemainingDependencies(step);
+                remaining.remove(terminalStepId);
+                if (succeeded && !remaining.isEmpty()) {
+                    continue;
+                }
                 try {
                     try {
                         if (!isBlocked(workflow, step)) {
-                            again = true;
+                            workflow.clearRemainingDependencies(stepId);
                             if (isStepMarkedForSuspend(workflow, step)) {
                                 changeStepToSuspendedNoErrorState(workflow, suspendedSteps, step);
+                                terminalStepIds.add(stepId);
                             } else {
                                 step.status.updateState(StepState.QUEUED, null, "Unblocked by step: " + fromStepId);
-                                persistWorkflowStep(workflow, step);
                                 _log.info(String.format("Step %s has been unblocked by step %s", step.stepId, fromStepId));
-                                dispatchStep(step, workflow._nested);
+                                changedSteps.add(step);
+                                unblockedSteps.add(step);
                             }
                         }
                     } catch (CancelledException ex) {
-                        again = true;
+                        workflow.clearRemainingDependencies(stepId);
                         // If we got a CancelledException, this step needs to be cancelled.
                         step.status.updateState(StepState.CANCELLED, null, "Cancelled by step: " + fromStepId);
                         _log.info(String.format("Step %s has been cancelled by step %s", step.stepId, fromStepId));
-                        persistWorkflowStep(workflow, step);
+                        changedSteps.add(step);
+                        terminalStepIds.add(stepId);
                     }
                 } catch (Exception ex) {
                     _log.error("Exception" + ex.getMessage());
                 }
             }
-        } while (again == true);
+        }
+        try {
+            // Save the new states before dispatching any unblocked step.
+            persistWorkflowSteps(workflow, changedSteps);
+            for (Step step : unblockedSteps) {
+                dispatchStep(step, workflow._nested);
+            }
+        } catch (Exception ex) {
+            _log.error("Exception" + ex.getMessage());
+        }
     }
 
     /**
@@ -1739,9 +1941,7 @@ public class WorkflowService implements WorkflowController {
         logWorkflow(workflow, true);
 
         // Now queue all the new steps.
-        for (Step step : rollbackStepMap.values()) {
-            queueWorkflowStep(workflow, step);
-        }
+        queueWorkflowSteps(workflow, rollbackStepMap.values());
         return true;
     }
 
@@ -2424,13 +2624,13 @@ public class WorkflowService implements WorkflowController {
         }
 
         // Queue the newly recreated steps
-        for (String stepId : workflow.getStepMap().keySet()) {
-            Step step = workflow.getStepMap().get(stepId);
+        List<Step> createdSteps = new ArrayList<Step>();
+        for (Step step : workflow.getStepMap().values()) {
             if (step.status.state == StepState.CREATED) {
-                queueWorkflowStep(workflow, step);
-                persistWorkflowStep(workflow, step);
+                createdSteps.add(step);
             }
         }
+        queueWorkflowSteps(workflow, createdSteps);
         workflow.setWorkflowState(WorkflowState.RUNNING);
         persistWorkflow(workflow);
         logWorkflow(workflow, true);
@@ -2628,13 +2828,15 @@ public class WorkflowService implements WorkflowController {
             }
         }
         // Now queue all the steps to be restarted.
+        List<Step> createdSteps = new ArrayList<Step>();
         for (Step step : stepMap.values()) {
             if (step.isRollbackStep() && step.status.state == StepState.CREATED) {
                 _log.info(String.format("Retrying previous rollback step %s : %s",
                         step.stepId, step.description));
-                queueWorkflowStep(workflow, step);
+                createdSteps.add(step);
             }
         }
+        queueWorkflowSteps(workflow, createdSteps);
         return true;
     }
 
@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.computesystemcontroller.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.model.Host;
+
+public class ComputeSystemDiscoverySchedulerTest {
+    private static final long START_TIME = 1000000L;
+
+    private ComputeSystemDiscoveryScheduler scheduler;
+    private ExecutorService callers;
+    private final AtomicLong now = new AtomicLong(START_TIME);
+
+    @Before
+    public void setUp() {
+        scheduler = new ComputeSystemDiscoveryScheduler();
+        scheduler.setClock(new ComputeSystemDiscoveryScheduler.Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return now.get();
+            }
+        });
+        scheduler.setWaitSliceMillis(10);
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        callers.shutdownNow();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testConcurrencyLimitPerType() throws Exception {
+        scheduler.setConcurrencyLimits(Collections.singletonMap(Host.HostType.Linux.name(), 2));
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> linuxDiscoveries = new ArrayList<Future<?>>();
+        for (int i = 0; i < 6; i++) {
+            final Host host = createHost("linux" + i, Host.HostType.Linux);
+            linuxDiscoveries.add(callers.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    scheduler.discover(host, new Runnable() {
+                        @Override
+                        public void run() {
+                            int now = running.incrementAndGet();
+                            synchronized (maxRunning) {
+                                maxRunning.set(Math.max(maxRunning.get(), now));
+                            }
+                            started.countDown();
+                            await(release);
+                            running.decrementAndGet();
+                        }
+                    }, true);
+                    return null;
+                }
+            }));
+        }
+
+        // the Linux slots are taken, a Windows host is still discovered right away
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        final CountDownLatch windowsDiscovered = new CountDownLatch(1);
+        scheduler.discover(createHost("windows", Host.HostType.Windows), new Runnable() {
+            @Override
+            public void run() {
+                windowsDiscovered.countDown();
+            }
+        }, true);
+        Assert.assertEquals(0, windowsDiscovered.getCount());
+        Assert.assertEquals(2, running.get());
+
+        release.countDown();
+        for (Future<?> discovery : linuxDiscoveries) {
+            discovery.get(10, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void testLoweringConcurrencyLimitWhileRunning() throws Exception {
+        scheduler.setConcurrencyLimits(Collections.singletonMap(Host.HostType.Linux.name(), 2));
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch releaseFirst = new CountDownLatch(1);
+        final CountDownLatch releaseSecond = new CountDownLatch(1);
+        Future<?> first = submitBlockingDiscovery(createHost("first", Host.HostType.Linux), started, releaseFirst);
+        Future<?> second = submitBlockingDiscovery(createHost("second", Host.HostType.Linux), started, releaseSecond);
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // the running discoveries keep their slots, the next one waits until only one is left running
+        scheduler.setConcurrencyLimits(Collections.singletonMap(Host.HostType.Linux.name(), 1));
+        final CountDownLatch thirdStarted = new CountDownLatch(1);
+        Future<?> third = submitBlockingDiscovery(createHost("third", Host.HostType.Linux), thirdStarted,
+                new CountDownLatch(0));
+        releaseFirst.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        Assert.assertFalse(thirdStarted.await(200, TimeUnit.MILLISECONDS));
+
+        releaseSecond.countDown();
+        second.get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(thirdStarted.await(10, TimeUnit.SECONDS));
+        third.get(10, TimeUnit.SECONDS);
+
+        // raising the limit frees slots right away
+        scheduler.setConcurrencyLimits(Collections.singletonMap(Host.HostType.Linux.name(), 3));
+        final CountDownLatch allStarted = new CountDownLatch(3);
+        final CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> discoveries = new ArrayList<Future<?>>();
+        for (int i = 0; i < 3; i++) {
+            discoveries.add(submitBlockingDiscovery(createHost("linux" + i, Host.HostType.Linux), allStarted, release));
+        }
+        Assert.assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        for (Future<?> discovery : discoveries) {
+            discovery.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testIdleAndRemovedTargetsAreEvicted() {
+        scheduler.setMaxBackoffSeconds(60);
+        Runnable discovery = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        Host idle = createHost("idle", Host.HostType.Linux);
+        scheduler.discover(idle, discovery, true);
+        Assert.assertEquals(1, scheduler.getSlowestTargets(10).size());
+
+        // the state of a target not discovered for longer than the maximum backoff is dropped
+        now.addAndGet(TimeUnit.MINUTES.toMillis(16));
+        Host active = createHost("active", Host.HostType.Linux);
+        scheduler.discover(active, discovery, true);
+        Assert.assertEquals(1, scheduler.getSlowestTargets(10).size());
+        Assert.assertEquals(1, scheduler.getTargetStats(active.getId().toString()).getDiscoveries());
+
+        scheduler.removeTarget(active.getId().toString());
+        Assert.assertTrue(scheduler.getSlowestTargets(10).isEmpty());
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        scheduler.setDeadlines(Collections.singletonMap(Host.HostType.Linux.name(), 1L));
+        final Host host = createHost("slow", Host.HostType.Linux);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Throwable> writeAfterDeadline = new AtomicReference<Throwable>();
+
+        Future<?> discovery = callers.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                scheduler.discover(host, new Runnable() {
+                    @Override
+                    public void run() {
+                        started.countDown();
+                        awaitUninterruptibly(release);
+                        // the discovery adapters check for cancellation before each write
+                        try {
+                            ComputeSystemDiscoveryScheduler.checkCancelled();
+                        } catch (CancellationException e) {
+                            writeAfterDeadline.set(e);
+                        }
+                    }
+                }, true);
+                return null;
+            }
+        });
+
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        now.addAndGet(2000);
+        try {
+            discovery.get(10, TimeUnit.SECONDS);
+            Assert.fail("The discovery should have timed out");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            Assert.assertTrue(e.getCause().getMessage().contains("did not complete"));
+        }
+
+        // the discovery which timed out is still running, the host is not discovered twice at once
+        try {
+            scheduler.discover(host, new Runnable() {
+                @Override
+                public void run() {
+                    Assert.fail("Discovered while the previous discovery was running");
+                }
+            }, false);
+            Assert.fail("The discovery should have been skipped");
+        } catch (ComputeSystemDiscoveryScheduler.DiscoverySkippedException e) {
+            Assert.assertTrue(e.getMessage().contains("still running"));
+        }
+
+        release.countDown();
+        scheduler.shutdown();
+        Assert.assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertTrue(writeAfterDeadline.get() instanceof CancellationException);
+
+        ComputeSystemDiscoveryScheduler.TargetStats stats = scheduler.getTargetStats(host.getId().toString());
+        Assert.assertFalse(stats.isRunning());
+        Assert.assertEquals(1, stats.getConsecutiveFailures());
+        // the duration of the discovery is recorded when it actually ends
+        Assert.assertEquals(2000, stats.getLastDurationMillis());
+        Assert.assertSame(stats, scheduler.getSlowestTargets(1).get(0));
+    }
+
+    @Test
+    public void testNoFreeSlotIsNotAFailure() throws Exception {
+        scheduler.setConcurrencyLimits(Collections.singletonMap(Host.HostType.Linux.name(), 1));
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Host busy = createHost("busy", Host.HostType.Linux);
+        Future<?> busyDiscovery = callers.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                scheduler.discover(busy, new Runnable() {
+                    @Override
+                    public void run() {
+                        started.countDown();
+                        await(release);
+                    }
+                }, true);
+                return null;
+            }
+        });
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // the deadline applies to the discoveries started after it is set
+        scheduler.setDeadlines(Collections.singletonMap(Host.HostType.Linux.name(), 0L));
+        Host waiting = createHost("waiting", Host.HostType.Linux);
+        try {
+            scheduler.discover(waiting, new Runnable() {
+                @Override
+                public void run() {
+                    Assert.fail("Discovered without a free slot");
+                }
+            }, true);
+            Assert.fail("The discovery should have been skipped");
+        } catch (ComputeSystemDiscoveryScheduler.DiscoverySkippedException e) {
+            Assert.assertTrue(e.getMessage().contains("No Linux discovery slot"));
+        }
+        Assert.assertEquals(0, scheduler.getTargetStats(waiting.getId().toString()).getConsecutiveFailures());
+        Assert.assertEquals(0, scheduler.getTargetStats(waiting.getId().toString()).getBackoffUntil());
+
+        release.countDown();
+        busyDiscovery.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testBackoffAfterFailures() {
+        Host host = createHost("unreachable", Host.HostType.Linux);
+        final AtomicInteger attempts = new AtomicInteger();
+        Runnable failingDiscovery = new Runnable() {
+            @Override
+            public void run() {
+                attempts.incrementAndGet();
+                throw new IllegalArgumentException("Connection refused");
+            }
+        };
+
+        for (int i = 0; i < ComputeSystemDiscoveryScheduler.FAILURES_BEFORE_BACKOFF; i++) {
+            discoverAndFail(host, failingDiscovery, true);
+        }
+        ComputeSystemDiscoveryScheduler.TargetStats stats = scheduler.getTargetStats(host.getId().toString());
+        long backoffMillis = TimeUnit.SECONDS.toMillis(ComputeSystemDiscoveryScheduler.DEFAULT_BACKOFF_SECONDS);
+        Assert.assertEquals(START_TIME + backoffMillis, stats.getBackoffUntil());
+
+        // scheduled scans skip the target while it backs off, without counting another failure
+        now.addAndGet(backoffMillis - 1);
+        try {
+            scheduler.discover(host, failingDiscovery, true);
+            Assert.fail("The discovery should have been deferred");
+        } catch (ComputeSystemDiscoveryScheduler.DiscoverySkippedException e) {
+            Assert.assertTrue(e.getMessage().contains("deferred"));
+        }
+        Assert.assertEquals(ComputeSystemDiscoveryScheduler.FAILURES_BEFORE_BACKOFF, attempts.get());
+        Assert.assertEquals(ComputeSystemDiscoveryScheduler.FAILURES_BEFORE_BACKOFF, stats.getConsecutiveFailures());
+
+        // once the backoff expires the target is discovered again, and the next backoff is doubled
+        now.addAndGet(1);
+        discoverAndFail(host, failingDiscovery, true);
+        Assert.assertEquals(ComputeSystemDiscoveryScheduler.FAILURES_BEFORE_BACKOFF + 1, attempts.get());
+        Assert.assertEquals(now.get() + 2 * backoffMillis, stats.getBackoffUntil());
+    }
+
+    @Test
+    public void testExplicitDiscoveryClearsBackoff() {
+        Host host = createHost("repaired", Host.HostType.Esx);
+        for (int i = 0; i < ComputeSystemDiscoveryScheduler.FAILURES_BEFORE_BACKOFF; i++) {
+            discoverAndFail(host, new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalArgumentException("Connection reset");
+                }
+            }, true);
+        }
+        ComputeSystemDiscoveryScheduler.TargetStats stats = scheduler.getTargetStats(host.getId().toString());
+        Assert.assertTrue(stats.getBackoffUntil() > now.get());
+
+        final CountDownLatch discovered = new CountDownLatch(1);
+        scheduler.discover(host, new Runnable() {
+            @Override
+            public void run() {
+                discovered.countDown();
+            }
+        }, false);
+        Assert.assertEquals(0, discovered.getCount());
+        Assert.assertEquals(0, stats.getConsecutiveFailures());
+        Assert.assertEquals(0, stats.getBackoffUntil());
+    }
+
+    @Test
+    public void testSuccessClearsFailures() {
+        scheduler.setBackoffSeconds(0);
+        scheduler.setMaxBackoffSeconds(0);
+        Host host = createHost("flaky", Host.HostType.Esx);
+        for (int i = 0; i < ComputeSystemDiscoveryScheduler.FAILURES_BEFORE_BACKOFF; i++) {
+            discoverAndFail(host, new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalArgumentException("Connection reset");
+                }
+            }, true);
+        }
+        ComputeSystemDiscoveryScheduler.TargetStats stats = scheduler.getTargetStats(host.getId().toString());
+        Assert.assertEquals(ComputeSystemDiscoveryScheduler.FAILURES_BEFORE_BACKOFF, stats.getConsecutiveFailures());
+
+        scheduler.discover(host, new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, true);
+        Assert.assertEquals(0, stats.getConsecutiveFailures());
+        Assert.assertEquals(0, stats.getBackoffUntil());
+        Assert.assertEquals(ComputeSystemDiscoveryScheduler.FAILURES_BEFORE_BACKOFF + 1, stats.getDiscoveries());
+        Assert.assertEquals(1, scheduler.getSlowestTargets(10).size());
+    }
+
+    private Future<?> submitBlockingDiscovery(final Host host, final CountDownLatch started, final CountDownLatch release) {
+        return callers.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                scheduler.discover(host, new Runnable() {
+                    @Override
+                    public void run() {
+                        started.countDown();
+                        await(release);
+                    }
+                }, true);
+                return null;
+            }
+        });
+    }
+
+    private void discoverAndFail(Host host, Runnable discovery, boolean scheduled) {
+        try {
+            scheduler.discover(host, discovery, scheduled);
+            Assert.fail("The discovery failure should be thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static Host createHost(String label, Host.HostType type) {
+        Host host = new Host();
+        host.setId(URIUtil.createId(Host.class));
+        host.setLabel(label);
+        host.setType(type.name());
+        return host;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                    return;
+                } catch (InterruptedException e) {
+                    // keep running like a discovery blocked in a socket read
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
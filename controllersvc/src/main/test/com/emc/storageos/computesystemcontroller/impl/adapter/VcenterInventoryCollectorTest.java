@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.computesystemcontroller.impl.adapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.iwave.ext.vmware.VCenterInventory;
+import com.iwave.ext.vmware.VCenterInventory.Entity;
+import com.iwave.ext.vmware.VCenterInventoryCollector;
+import com.iwave.ext.vmware.VMWareException;
+import com.vmware.vim25.ArrayOfHostHostBusAdapter;
+import com.vmware.vim25.ArrayOfManagedObjectReference;
+import com.vmware.vim25.DynamicProperty;
+import com.vmware.vim25.HostFibreChannelHba;
+import com.vmware.vim25.HostHostBusAdapter;
+import com.vmware.vim25.HostSystemConnectionState;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectContent;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyChangeOp;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.RetrieveOptions;
+import com.vmware.vim25.RetrieveResult;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.WaitOptions;
+import com.vmware.vim25.mo.PropertyCollector;
+import com.vmware.vim25.mo.PropertyFilter;
+
+/**
+ * Tests the vCenter inventory used by the vCenter discovery against a property collector replaying recorded
+ * responses: a datacenter holding a cluster of two hosts and a standalone host.
+ */
+public class VcenterInventoryCollectorTest {
+    private static final ManagedObjectReference ROOT_FOLDER = mor(VCenterInventory.FOLDER, "group-d1");
+    private static final ManagedObjectReference DATACENTER = mor(VCenterInventory.DATACENTER, "datacenter-2");
+    private static final ManagedObjectReference HOST_FOLDER = mor(VCenterInventory.FOLDER, "group-h4");
+    private static final ManagedObjectReference CLUSTER = mor(VCenterInventory.CLUSTER_COMPUTE_RESOURCE, "domain-c7");
+    private static final ManagedObjectReference STANDALONE = mor(VCenterInventory.COMPUTE_RESOURCE, "domain-s9");
+    private static final ManagedObjectReference HOST1 = mor(VCenterInventory.HOST_SYSTEM, "host-10");
+    private static final ManagedObjectReference HOST2 = mor(VCenterInventory.HOST_SYSTEM, "host-11");
+    private static final ManagedObjectReference HOST3 = mor(VCenterInventory.HOST_SYSTEM, "host-12");
+    private static final ManagedObjectReference HOST4 = mor(VCenterInventory.HOST_SYSTEM, "host-13");
+
+    /**
+     * Property collector returning recorded results, in order.
+     */
+    private static class RecordedPropertyCollector extends PropertyCollector {
+        private final LinkedList<RetrieveResult> results = new LinkedList<RetrieveResult>();
+        private final LinkedList<UpdateSet> updateSets = new LinkedList<UpdateSet>();
+        private final List<String> tokens = new ArrayList<String>();
+        private final List<String> versions = new ArrayList<String>();
+        private RetrieveOptions retrieveOptions;
+        private int filters;
+
+        public RecordedPropertyCollector() {
+            super(null, mor("PropertyCollector", "propertyCollector"));
+        }
+
+        @Override
+        public RetrieveResult retrievePropertiesEx(PropertyFilterSpec[] specSet, RetrieveOptions options) {
+            retrieveOptions = options;
+            return results.poll();
+        }
+
+        @Override
+        public RetrieveResult continueRetrievePropertiesEx(String token) {
+            tokens.add(token);
+            return results.poll();
+        }
+
+        @Override
+        public PropertyFilter createFilter(PropertyFilterSpec spec, boolean partialUpdates) {
+            filters++;
+            return new PropertyFilter(null, mor("PropertyFilter", "filter-" + filters));
+        }
+
+        @Override
+        public UpdateSet waitForUpdatesEx(String version, WaitOptions options) {
+            versions.add(version);
+            return updateSets.poll();
+        }
+    }
+
+    @Test
+    public void testRetrieveInventory() {
+        RecordedPropertyCollector propertyCollector = new RecordedPropertyCollector();
+        List<ObjectContent> objects = createInventoryObjects();
+        propertyCollector.results.add(retrieveResult(objects.subList(0, 5), "page-2"));
+        propertyCollector.results.add(retrieveResult(objects.subList(5, objects.size()), null));
+
+        VCenterInventoryCollector collector = new VCenterInventoryCollector(propertyCollector, ROOT_FOLDER);
+        collector.setPageSize(5);
+        VCenterInventory inventory = collector.retrieveInventory();
+
+        Assert.assertEquals(Integer.valueOf(5), propertyCollector.retrieveOptions.getMaxObjects());
+        Assert.assertEquals(Arrays.asList("page-2"), propertyCollector.tokens);
+        Assert.assertEquals(objects.size(), inventory.size());
+        Assert.assertNull(inventory.getVersion());
+
+        List<Entity> datacenters = inventory.getDatacenters();
+        Assert.assertEquals(1, datacenters.size());
+        Entity datacenter = datacenters.get(0);
+        Assert.assertEquals("datacenter-2", datacenter.getId());
+        Assert.assertEquals("DC1", datacenter.getName());
+
+        List<Entity> clusters = inventory.getClusters(datacenter);
+        Assert.assertEquals(1, clusters.size());
+        Entity cluster = clusters.get(0);
+        Assert.assertEquals("Cluster1", cluster.getName());
+        Assert.assertEquals(2, cluster.getListProperty(VCenterInventory.HOSTS).size());
+        Assert.assertEquals(Arrays.asList("host-10", "host-11"), ids(inventory.getClusterHosts(cluster)));
+
+        Assert.assertEquals(Arrays.asList("host-10", "host-11", "host-12"), ids(inventory.getHostSystems(datacenter)));
+        Entity host1 = inventory.getEntity(HOST1);
+        Assert.assertEquals("Cluster1", inventory.getCluster(host1).getName());
+        Assert.assertEquals("uuid-10", host1.getProperty(VCenterInventory.HOST_UUID));
+        Assert.assertEquals("5.5.0", host1.getProperty(VCenterInventory.HOST_PRODUCT_VERSION));
+        Assert.assertEquals(HostSystemConnectionState.connected, host1.getProperty(VCenterInventory.HOST_CONNECTION_STATE));
+        List<HostHostBusAdapter> hbas = host1.getListProperty(VCenterInventory.HOST_BUS_ADAPTERS);
+        Assert.assertEquals(1, hbas.size());
+        Assert.assertEquals("vmhba1", hbas.get(0).getDevice());
+
+        Entity host3 = inventory.getEntity(HOST3);
+        Assert.assertNull(inventory.getCluster(host3));
+        Assert.assertEquals(datacenter.getId(), inventory.getDatacenter(host3).getId());
+        Assert.assertTrue(host3.getListProperty(VCenterInventory.HOST_BUS_ADAPTERS).isEmpty());
+    }
+
+    @Test
+    public void testRefreshInventory() {
+        RecordedPropertyCollector propertyCollector = new RecordedPropertyCollector();
+        List<ObjectContent> objects = createInventoryObjects();
+        // the initial updates are truncated and come in two sets
+        propertyCollector.updateSets.add(enterUpdateSet(objects.subList(0, 4), "1_1", true));
+        propertyCollector.updateSets.add(enterUpdateSet(objects.subList(4, objects.size()), "1", false));
+
+        VCenterInventoryCollector collector = new VCenterInventoryCollector(propertyCollector, ROOT_FOLDER);
+        VCenterInventory inventory = collector.startInventory();
+        Assert.assertEquals(1, propertyCollector.filters);
+        Assert.assertEquals(Arrays.asList("", "1_1"), propertyCollector.versions);
+        Assert.assertEquals("1", inventory.getVersion());
+        Assert.assertEquals(objects.size(), inventory.size());
+
+        // host-10 is renamed, host-11 is removed and host-13 joins the cluster
+        propertyCollector.updateSets.add(updateSet("2", false,
+                objectUpdate(ObjectUpdateKind.modify, HOST1, change(VCenterInventory.NAME, "esx10.renamed.com")),
+                objectUpdate(ObjectUpdateKind.leave, HOST2),
+                objectUpdate(ObjectUpdateKind.enter, HOST4, change(VCenterInventory.NAME, "esx13.example.com"),
+                        change(VCenterInventory.PARENT, CLUSTER), change(VCenterInventory.HOST_UUID, "uuid-13")),
+                objectUpdate(ObjectUpdateKind.modify, CLUSTER, change(VCenterInventory.HOSTS, hosts(HOST1, HOST4)))));
+        Assert.assertEquals(4, collector.refreshInventory(inventory));
+        Assert.assertEquals("2", inventory.getVersion());
+        Assert.assertEquals("1", propertyCollector.versions.get(2));
+
+        Entity datacenter = inventory.getEntity(DATACENTER);
+        Entity cluster = inventory.getEntity(CLUSTER);
+        Assert.assertEquals("esx10.renamed.com", inventory.getEntity(HOST1).getName());
+        Assert.assertNull(inventory.getEntity(HOST2));
+        Assert.assertEquals(Arrays.asList("host-10", "host-13"), ids(inventory.getClusterHosts(cluster)));
+        Assert.assertEquals(Arrays.asList("host-10", "host-12", "host-13"), ids(inventory.getHostSystems(datacenter)));
+        Assert.assertEquals("uuid-13", inventory.getEntity(HOST4).getProperty(VCenterInventory.HOST_UUID));
+
+        // nothing changed since
+        propertyCollector.updateSets.add(null);
+        Assert.assertEquals(0, collector.refreshInventory(inventory));
+        Assert.assertEquals("2", inventory.getVersion());
+
+        collector.close();
+    }
+
+    @Test(expected = VMWareException.class)
+    public void testRefreshWithoutFilter() {
+        VCenterInventoryCollector collector = new VCenterInventoryCollector(new RecordedPropertyCollector(), ROOT_FOLDER);
+        collector.refreshInventory(new VCenterInventory());
+    }
+
+    private static List<ObjectContent> createInventoryObjects() {
+        HostFibreChannelHba hba = new HostFibreChannelHba();
+        hba.setDevice("vmhba1");
+        hba.setPortWorldWideName(0x2100001b32000001L);
+        hba.setNodeWorldWideName(0x2000001b32000001L);
+        ArrayOfHostHostBusAdapter hbas = new ArrayOfHostHostBusAdapter();
+        hbas.setHostHostBusAdapter(new HostHostBusAdapter[] { hba });
+
+        List<ObjectContent> objects = new ArrayList<ObjectContent>();
+        objects.add(objectContent(ROOT_FOLDER, property(VCenterInventory.NAME, "Datacenters")));
+        objects.add(objectContent(DATACENTER, property(VCenterInventory.NAME, "DC1"),
+                property(VCenterInventory.PARENT, ROOT_FOLDER)));
+        objects.add(objectContent(HOST_FOLDER, property(VCenterInventory.NAME, "host"),
+                property(VCenterInventory.PARENT, DATACENTER)));
+        objects.add(objectContent(CLUSTER, property(VCenterInventory.NAME, "Cluster1"),
+                property(VCenterInventory.PARENT, HOST_FOLDER), property(VCenterInventory.HOSTS, hosts(HOST1, HOST2))));
+        objects.add(objectContent(STANDALONE, property(VCenterInventory.NAME, "esx12.example.com"),
+                property(VCenterInventory.PARENT, HOST_FOLDER), property(VCenterInventory.HOSTS, hosts(HOST3))));
+        objects.add(objectContent(HOST1, property(VCenterInventory.NAME, "esx10.example.com"),
+                property(VCenterInventory.PARENT, CLUSTER), property(VCenterInventory.HOST_UUID, "uuid-10"),
+                property(VCenterInventory.HOST_PRODUCT_VERSION, "5.5.0"),
+                property(VCenterInventory.HOST_CONNECTION_STATE, HostSystemConnectionState.connected),
+                property(VCenterInventory.HOST_BUS_ADAPTERS, hbas)));
+        objects.add(objectContent(HOST2, property(VCenterInventory.NAME, "esx11.example.com"),
+                property(VCenterInventory.PARENT, CLUSTER), property(VCenterInventory.HOST_UUID, "uuid-11")));
+        objects.add(objectContent(HOST3, property(VCenterInventory.NAME, "esx12.example.com"),
+                property(VCenterInventory.PARENT, STANDALONE), property(VCenterInventory.HOST_UUID, "uuid-12")));
+        return objects;
+    }
+
+    private static ManagedObjectReference mor(String type, String value) {
+        ManagedObjectReference mor = new ManagedObjectReference();
+        mor.setType(type);
+        mor.setVal(value);
+        return mor;
+    }
+
+    private static ArrayOfManagedObjectReference hosts(ManagedObjectReference... hosts) {
+        ArrayOfManagedObjectReference array = new ArrayOfManagedObjectReference();
+        array.setManagedObjectReference(hosts);
+        return array;
+    }
+
+    private static DynamicProperty property(String name, Object value) {
+        DynamicProperty property = new DynamicProperty();
+        property.setName(name);
+        property.setVal(value);
+        return property;
+    }
+
+    private static ObjectContent objectContent(ManagedObjectReference mor, DynamicProperty... properties) {
+        ObjectContent content = new ObjectContent();
+        content.setObj(mor);
+        content.setPropSet(properties);
+        return content;
+    }
+
+    private static RetrieveResult retrieveResult(List<ObjectContent> objects, String token) {
+        RetrieveResult result = new RetrieveResult();
+        result.setObjects(objects.toArray(new ObjectContent[objects.size()]));
+        result.setToken(token);
+        return result;
+    }
+
+    private static PropertyChange change(String name, Object value) {
+        PropertyChange change = new PropertyChange();
+        change.setName(name);
+        change.setOp(PropertyChangeOp.assign);
+        change.setVal(value);
+        return change;
+    }
+
+    private static ObjectUpdate objectUpdate(ObjectUpdateKind kind, ManagedObjectReference mor,
+            PropertyChange... changes) {
+        ObjectUpdate update = new ObjectUpdate();
+        update.setKind(kind);
+        update.setObj(mor);
+        update.setChangeSet(changes);
+        return update;
+    }
+
+    private static UpdateSet enterUpdateSet(List<ObjectContent> objects, String version, boolean truncated) {
+        List<ObjectUpdate> updates = new ArrayList<ObjectUpdate>();
+        for (ObjectContent object : objects) {
+            List<PropertyChange> changes = new ArrayList<PropertyChange>();
+            for (DynamicProperty property : object.getPropSet()) {
+                changes.add(change(property.getName(), property.getVal()));
+            }
+            updates.add(objectUpdate(ObjectUpdateKind.enter, object.getObj(),
+                    changes.toArray(new PropertyChange[changes.size()])));
+        }
+        return updateSet(version, truncated, updates.toArray(new ObjectUpdate[updates.size()]));
+    }
+
+    private static UpdateSet updateSet(String version, boolean truncated, ObjectUpdate... updates) {
+        PropertyFilterUpdate filterUpdate = new PropertyFilterUpdate();
+        filterUpdate.setFilter(mor("PropertyFilter", "filter-1"));
+        filterUpdate.setObjectSet(updates);
+        UpdateSet updateSet = new UpdateSet();
+        updateSet.setVersion(version);
+        updateSet.setTruncated(truncated);
+        updateSet.setFilterSet(new PropertyFilterUpdate[] { filterUpdate });
+        return updateSet;
+    }
+
+    private static List<String> ids(List<Entity> entities) {
+        List<String> ids = new ArrayList<String>();
+        for (Entity entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.locking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.api.CuratorListener;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.DistributedDataManager;
+import com.emc.storageos.coordinator.client.service.DistributedLockQueueManager;
+
+/**
+ * Runs the DistributedOwner lock service against an in memory ZK tree, checking that a set of
+ * locks is acquired all or nothing in one transaction, and that a waiting owner is woken as
+ * soon as the lock it waits for is released.
+ */
+public class DistributedOwnerLockServiceTest {
+    private static final Logger _log = LoggerFactory.getLogger(DistributedOwnerLockServiceTest.class);
+    private static final int EXPORT_LOCK_COUNT = 50;
+
+    private InMemoryDataManager dataManager;
+    private DistributedOwnerLockServiceImpl lockService;
+
+    @Before
+    public void setup() throws Exception {
+        dataManager = new InMemoryDataManager();
+        final InterProcessLock globalLock = new SemaphoreLock();
+        CoordinatorClient coordinator = EasyMock.createNiceMock(CoordinatorClient.class);
+        EasyMock.expect(coordinator.getLock(EasyMock.anyObject(String.class))).andReturn(globalLock).anyTimes();
+        EasyMock.replay(coordinator);
+        DistributedLockQueueManager lockQueueManager = EasyMock.createNiceMock(DistributedLockQueueManager.class);
+        EasyMock.replay(lockQueueManager);
+
+        lockService = new DistributedOwnerLockServiceImpl();
+        lockService.setCoordinator(coordinator);
+        lockService.setDataManager(dataManager);
+        lockService.setLockQueueManager(lockQueueManager);
+    }
+
+    @Test
+    public void testAcquireAllOrNothing() throws Exception {
+        Assert.assertTrue(lockService.acquireLock("host2::SYMMETRIX+000195", "owner1", 0));
+
+        List<String> keys = Arrays.asList("host1::SYMMETRIX+000195", "host2::SYMMETRIX+000195", "host3::SYMMETRIX+000195");
+        Assert.assertFalse(lockService.acquireLocks(new ArrayList<String>(keys), "owner2", 0));
+        Assert.assertTrue(lockService.getLocksForOwner("owner2").isEmpty());
+
+        try {
+            lockService.acquireLocks(new ArrayList<String>(keys), "owner2", System.currentTimeMillis() / 1000, 60);
+            Assert.fail("Expected a LockRetryException");
+        } catch (LockRetryException ex) {
+            Assert.assertTrue(ex.getLockPath().endsWith("/host2::SYMMETRIX+000195"));
+        }
+
+        Assert.assertTrue(lockService.releaseLocks("owner1"));
+        Assert.assertTrue(lockService.acquireLocks(new ArrayList<String>(keys), "owner2", 0));
+        Assert.assertEquals(3, lockService.getLocksForOwner("owner2").size());
+        // acquiring locks already held by the owner again succeeds
+        Assert.assertTrue(lockService.acquireLocks(new ArrayList<String>(keys), "owner2", 0));
+        Assert.assertTrue(lockService.releaseLocks(new ArrayList<String>(keys), "owner2"));
+        Assert.assertTrue(lockService.getLocksForOwner("owner2").isEmpty());
+        Assert.assertFalse(dataManager.nodes.containsKey(dataManager.ownerPath("owner2")));
+    }
+
+    @Test
+    public void testOneTransactionPerAcquire() throws Exception {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < EXPORT_LOCK_COUNT; i++) {
+            keys.add("host" + i + "::SYMMETRIX+000195");
+        }
+        Assert.assertTrue(lockService.acquireLocks(keys, "export", 0));
+        Assert.assertEquals(1, dataManager.transactions.get());
+        Assert.assertEquals(EXPORT_LOCK_COUNT, lockService.getLocksForOwner("export").size());
+        Assert.assertTrue(lockService.releaseLocks("export"));
+        Assert.assertEquals(2, dataManager.transactions.get());
+    }
+
+    @Test
+    public void testWaiterWokenOnRelease() throws Exception {
+        Assert.assertTrue(lockService.acquireLock("cg1::VPLEX+FNM0001", "owner1", 0));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> waiter = executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    long start = System.nanoTime();
+                    Assert.assertTrue(lockService.acquireLocks(
+                            new ArrayList<String>(Arrays.asList("cg1::VPLEX+FNM0001", "cg2::VPLEX+FNM0001")), "owner2", 60));
+                    return System.nanoTime() - start;
+                }
+            });
+            Thread.sleep(500);
+            Assert.assertFalse(waiter.isDone());
+            long releaseNanos = System.nanoTime();
+            Assert.assertTrue(lockService.releaseLock("cg1::VPLEX+FNM0001", "owner1"));
+            long waitNanos = waiter.get(30, TimeUnit.SECONDS);
+            long wakeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - releaseNanos);
+            // well below the time between attempts when no watch fires
+            Assert.assertTrue("woken after " + wakeMillis + " ms", wakeMillis < 5000);
+            Assert.assertEquals(2, lockService.getLocksForOwner("owner2").size());
+            _log.info("Owner waited {} ms for the lock, acquired {} ms after the release",
+                    TimeUnit.NANOSECONDS.toMillis(waitNanos), wakeMillis);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LockWaitStats.TypeStats cg1 = lockService.getWaitStats().getTypeStats("cg1::VPLEX+FNM0001");
+        Assert.assertTrue(cg1.getWaitTimes().getCount() >= 2);
+        Assert.assertTrue(cg1.getWaitTimes().getMax() >= 500);
+        for (String line : lockService.getLockWaitStats()) {
+            _log.info(line);
+        }
+    }
+
+    @Test
+    public void testEmptyLockDataIsOverwritten() throws Exception {
+        // a lock data node left without data, e.g. by an interrupted write
+        Assert.assertTrue(lockService.acquireLock("refreshLock", "owner1", 0));
+        Assert.assertTrue(lockService.releaseLock("refreshLock", "owner1"));
+        String lockDataPath = "/lockdata/distOwnerLock/locks/refreshLock";
+        dataManager.nodes.put(lockDataPath, null);
+
+        Assert.assertTrue(lockService.acquireLock("refreshLock", "owner2", 0));
+        Assert.assertEquals("owner2", ((DistributedOwnerLockData) dataManager.nodes.get(lockDataPath)).getOwner());
+        Assert.assertEquals(Arrays.asList("refreshLock"), lockService.getLocksForOwner("owner2"));
+        Assert.assertFalse(lockService.acquireLock("refreshLock", "owner3", 0));
+    }
+
+    @Test
+    public void testOneWatchPerBlockingLock() throws Exception {
+        Assert.assertTrue(lockService.acquireLock("cg1::VPLEX+FNM0001", "owner1", 0));
+        lockService.setMaxMsBetweenAcquireAttempts(20);
+
+        Assert.assertFalse(lockService.acquireLock("cg1::VPLEX+FNM0001", "owner2", 1));
+        Assert.assertEquals(1, dataManager.watchers.get("/lockdata/distOwnerLock/locks/cg1::VPLEX+FNM0001").size());
+    }
+
+    @Test
+    public void testLockType() {
+        Assert.assertEquals("*::SYMMETRIX", LockWaitStats.getLockType("host1::SYMMETRIX+000195"));
+        Assert.assertEquals("*::SYMMETRIX", LockWaitStats.getLockType("cg1::SYMMETRIX+000196"));
+        Assert.assertEquals("*::VPLEX", LockWaitStats.getLockType(
+                "urn:storageos:BlockConsistencyGroup:2b4fd5a4-0e2f-4a8a-9b3c-37f3a5b7d1c2:::VPLEX+FNM0001"));
+        Assert.assertEquals("*::urn:storageos:ProtectionSystem", LockWaitStats.getLockType(
+                "host1::urn:storageos:ProtectionSystem:2b4fd5a4-0e2f-4a8a-9b3c-37f3a5b7d1c2:vdc1"));
+        Assert.assertEquals("*::", LockWaitStats.getLockType("host1::"));
+        Assert.assertEquals("urn:storageos:Host",
+                LockWaitStats.getLockType("urn:storageos:Host:2b4fd5a4-0e2f-4a8a-9b3c-37f3a5b7d1c2:vdc1"));
+        Assert.assertEquals("refreshLock", LockWaitStats.getLockType("refreshLock"));
+
+        // the locks of every host share one histogram
+        LockWaitStats stats = new LockWaitStats();
+        for (int i = 0; i < LockWaitStats.MAX_TYPES + 10; i++) {
+            stats.recordWait(Arrays.asList("host" + i + "::SYMMETRIX+000195"), i);
+        }
+        Assert.assertEquals(1, stats.getSummary().length);
+        Assert.assertEquals(LockWaitStats.MAX_TYPES + 10, stats.getTypeStats("host1::SYMMETRIX+000195").getWaitTimes().getCount());
+
+        for (int i = 0; i < LockWaitStats.MAX_TYPES + 10; i++) {
+            stats.recordWait(Arrays.asList("lock" + i), i);
+        }
+        Assert.assertEquals(LockWaitStats.MAX_TYPES + 1, stats.getSummary().length);
+        Assert.assertSame(stats.getTypeStats("otherLock"), stats.getTypeStats("anotherLock"));
+    }
+
+    /**
+     * Non reentrant stand-in for the global InterProcessLock
+     */
+    private static class SemaphoreLock implements InterProcessLock {
+        private final Semaphore semaphore = new Semaphore(1);
+
+        @Override
+        public void acquire() throws Exception {
+            semaphore.acquire();
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws Exception {
+            return semaphore.tryAcquire(time, unit);
+        }
+
+        @Override
+        public void release() throws Exception {
+            semaphore.release();
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return semaphore.availablePermits() == 0;
+        }
+    }
+
+    /**
+     * ZK tree kept in a map, with transactions and watches of single nodes
+     */
+    private static class InMemoryDataManager implements DistributedDataManager {
+        private final Map<String, Object> nodes = new HashMap<String, Object>();
+        private final Map<String, List<Watcher>> watchers = new HashMap<String, List<Watcher>>();
+        private final AtomicInteger transactions = new AtomicInteger();
+
+        String ownerPath(String owner) {
+            return "/lockdata/distOwnerLock/" + owner;
+        }
+
+        @Override
+        public void setListener(CuratorListener listener) throws Exception {
+        }
+
+        @Override
+        public void setConnectionStateListener(ConnectionStateListener listener) throws Exception {
+        }
+
+        @Override
+        public synchronized Stat checkExists(String path) throws Exception {
+            return nodes.containsKey(path) ? new Stat() : null;
+        }
+
+        @Override
+        public synchronized void createNode(String path, boolean watch) throws Exception {
+            for (int i = path.indexOf('/', 1); i > 0; i = path.indexOf('/', i + 1)) {
+                if (!nodes.containsKey(path.substring(0, i))) {
+                    nodes.put(path.substring(0, i), null);
+                }
+            }
+            if (!nodes.containsKey(path)) {
+                nodes.put(path, null);
+            }
+        }
+
+        @Override
+        public synchronized void createNodes(Map<String, Object> newNodes) throws Exception {
+            transactions.incrementAndGet();
+            Map<String, Object> created = new HashMap<String, Object>();
+            for (Map.Entry<String, Object> node : newNodes.entrySet()) {
+                String parent = node.getKey().substring(0, node.getKey().lastIndexOf('/'));
+                if (nodes.containsKey(node.getKey()) || created.containsKey(node.getKey())) {
+                    throw new KeeperException.NodeExistsException(node.getKey());
+                }
+                if (!nodes.containsKey(parent) && !created.containsKey(parent)) {
+                    throw new KeeperException.NoNodeException(parent);
+                }
+                created.put(node.getKey(), node.getValue());
+            }
+            nodes.putAll(created);
+        }
+
+        @Override
+        public void removeNode(String path) throws Exception {
+            removeNode(path, true);
+        }
+
+        @Override
+        public void removeNode(String path, boolean recursive) throws Exception {
+            List<String> removed = new ArrayList<String>();
+            synchronized (this) {
+                for (String child : getChildren(path)) {
+                    removed.add(path + "/" + child);
+                }
+                removed.add(path);
+                nodes.keySet().removeAll(removed);
+            }
+            notifyWatchers(removed);
+        }
+
+        @Override
+        public void removeNodes(List<String> paths) throws Exception {
+            synchronized (this) {
+                transactions.incrementAndGet();
+                for (String path : paths) {
+                    if (!nodes.containsKey(path)) {
+                        throw new KeeperException.NoNodeException(path);
+                    }
+                    if (!getChildren(path).isEmpty() && !paths.containsAll(childPaths(path))) {
+                        throw new KeeperException.NotEmptyException(path);
+                    }
+                }
+                nodes.keySet().removeAll(paths);
+            }
+            notifyWatchers(paths);
+        }
+
+        @Override
+        public synchronized boolean watchNode(String path, Watcher watcher) throws Exception {
+            List<Watcher> pathWatchers = watchers.get(path);
+            if (pathWatchers == null) {
+                pathWatchers = new ArrayList<Watcher>();
+                watchers.put(path, pathWatchers);
+            }
+            pathWatchers.add(watcher);
+            return nodes.containsKey(path);
+        }
+
+        private void notifyWatchers(List<String> paths) {
+            List<Watcher> triggered = new ArrayList<Watcher>();
+            synchronized (this) {
+                for (String path : paths) {
+                    List<Watcher> pathWatchers = watchers.remove(path);
+                    if (pathWatchers != null) {
+                        triggered.addAll(pathWatchers);
+                    }
+                }
+            }
+            for (Watcher watcher : triggered) {
+                watcher.process(new WatchedEvent(Watcher.Event.EventType.NodeDeleted,
+                        Watcher.Event.KeeperState.SyncConnected, null));
+            }
+        }
+
+        @Override
+        public synchronized void putData(String path, Object data) throws Exception {
+            createNode(path, false);
+            nodes.put(path, data);
+        }
+
+        @Override
+        public synchronized void putData(Map<String, Object> newData, Set<String> newPaths) throws Exception {
+            transactions.incrementAndGet();
+            for (String path : newData.keySet()) {
+                String parent = path.substring(0, path.lastIndexOf('/'));
+                if (newPaths.contains(path) && nodes.containsKey(path)) {
+                    throw new KeeperException.NodeExistsException(path);
+                }
+                if (!newPaths.contains(path) && !nodes.containsKey(path)) {
+                    throw new KeeperException.NoNodeException(path);
+                }
+                if (!nodes.containsKey(parent) && !newPaths.contains(parent)) {
+                    throw new KeeperException.NoNodeException(parent);
+                }
+            }
+            nodes.putAll(newData);
+        }
+
+        @Override
+        public synchronized Object getData(String path, boolean watch) throws Exception {
+            return nodes.get(path);
+        }
+
+        @Override
+        public synchronized List<String> getChildren(String path) throws Exception {
+            List<String> children = new ArrayList<String>();
+            for (String child : childPaths(path)) {
+                children.add(child.substring(path.length() + 1));
+            }
+            return children;
+        }
+
+        private List<String> childPaths(String path) {
+            List<String> children = new ArrayList<String>();
+            for (String node : nodes.keySet()) {
+                if (node.startsWith(path + "/") && node.indexOf('/', path.length() + 1) < 0) {
+                    children.add(node);
+                }
+            }
+            return children;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.networkcontroller.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.db.client.model.NetworkSystem;
+import com.emc.storageos.networkcontroller.impl.mds.Zone;
+import com.emc.storageos.volumecontroller.impl.BiosCommandResult;
+
+/**
+ * Checks that concurrent zoning requests on a fabric are zoned with one device call and that
+ * every caller gets the results of its own zones.
+ */
+public class NetworkZoningCoalescerTest {
+    private static final String FABRIC_ID = "10";
+    private static final int REQUEST_COUNT = 8;
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced() throws Exception {
+        StubDevice device = new StubDevice(false);
+        final NetworkZoningCoalescer coalescer = createCoalescer(500);
+        List<Future<BiosCommandResult>> results = submit(coalescer, device.create(), REQUEST_COUNT, false);
+
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            BiosCommandResult result = results.get(i).get();
+            Assert.assertTrue(result.isCommandSuccess());
+            Map<String, String> zoneResults = getZoneResults(result);
+            Assert.assertEquals(Collections.singletonMap("zone_" + i, NetworkSystemDevice.SUCCESS), zoneResults);
+        }
+        Assert.assertEquals(1, device.calls.get());
+        Assert.assertEquals(REQUEST_COUNT, device.zones.get());
+    }
+
+    @Test
+    public void testSharedZoneHasOneOwner() throws Exception {
+        StubDevice device = new StubDevice(false);
+        NetworkZoningCoalescer coalescer = createCoalescer(500);
+        List<Future<BiosCommandResult>> results = submit(coalescer, device.create(), 2, true);
+
+        int successes = 0;
+        for (Future<BiosCommandResult> result : results) {
+            String zoneResult = getZoneResults(result.get()).get("zone_shared");
+            successes += NetworkSystemDevice.SUCCESS.equals(zoneResult) ? 1 : 0;
+            Assert.assertTrue(NetworkSystemDevice.SUCCESS.equals(zoneResult) || NetworkSystemDevice.NO_CHANGE.equals(zoneResult));
+        }
+        Assert.assertEquals(1, successes);
+        Assert.assertEquals(1, device.zones.get());
+    }
+
+    @Test
+    public void testFailureIsThrownToEveryCaller() throws Exception {
+        StubDevice device = new StubDevice(true);
+        NetworkZoningCoalescer coalescer = createCoalescer(500);
+        List<Future<BiosCommandResult>> results = submit(coalescer, device.create(), REQUEST_COUNT, false);
+
+        for (Future<BiosCommandResult> result : results) {
+            try {
+                result.get();
+                Assert.fail("zoning should have failed");
+            } catch (ExecutionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+            }
+        }
+        Assert.assertEquals(1, device.calls.get());
+    }
+
+    @Test
+    public void testNoWindow() throws Exception {
+        StubDevice device = new StubDevice(false);
+        NetworkZoningCoalescer coalescer = createCoalescer(0);
+        List<Future<BiosCommandResult>> results = submit(coalescer, device.create(), REQUEST_COUNT, false);
+        for (Future<BiosCommandResult> result : results) {
+            Assert.assertTrue(result.get().isCommandSuccess());
+        }
+        Assert.assertEquals(REQUEST_COUNT, device.calls.get());
+    }
+
+    private List<Future<BiosCommandResult>> submit(final NetworkZoningCoalescer coalescer, final NetworkSystemDevice device,
+            int count, final boolean sharedZone) throws Exception {
+        final NetworkSystem networkSystem = new NetworkSystem();
+        networkSystem.setId(URI.create("urn:storageos:NetworkSystem:" + FABRIC_ID));
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<BiosCommandResult>> results = new ArrayList<Future<BiosCommandResult>>();
+            for (int i = 0; i < count; i++) {
+                final Zone zone = new Zone(sharedZone ? "zone_shared" : "zone_" + i);
+                results.add(executor.submit(new Callable<BiosCommandResult>() {
+                    @Override
+                    public BiosCommandResult call() throws Exception {
+                        return coalescer.addZones(device, networkSystem, Arrays.asList(zone), FABRIC_ID, null);
+                    }
+                }));
+            }
+            for (Future<BiosCommandResult> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException ex) {
+                    // checked by the caller
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private NetworkZoningCoalescer createCoalescer(long windowMs) throws Exception {
+        InterProcessLock lock = EasyMock.createNiceMock(InterProcessLock.class);
+        EasyMock.expect(lock.acquire(EasyMock.anyLong(), EasyMock.anyObject(TimeUnit.class))).andReturn(true).anyTimes();
+        CoordinatorClient coordinator = EasyMock.createNiceMock(CoordinatorClient.class);
+        EasyMock.expect(coordinator.getLock(EasyMock.anyObject(String.class))).andReturn(lock).anyTimes();
+        EasyMock.replay(lock, coordinator);
+
+        NetworkZoningCoalescer coalescer = new NetworkZoningCoalescer();
+        coalescer.setCoordinator(coordinator);
+        coalescer.setCoalesceWindowMs(windowMs);
+        return coalescer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> getZoneResults(BiosCommandResult result) {
+        return (Map<String, String>) result.getObjectList().get(0);
+    }
+
+    /**
+     * Network device adding every zone successfully, or failing every call
+     */
+    private static class StubDevice {
+        private final boolean fail;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger zones = new AtomicInteger();
+
+        StubDevice(boolean fail) {
+            this.fail = fail;
+        }
+
+        NetworkSystemDevice create() {
+            return (NetworkSystemDevice) Proxy.newProxyInstance(NetworkSystemDevice.class.getClassLoader(),
+                    new Class<?>[] { NetworkSystemDevice.class }, new InvocationHandler() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if (!method.getName().equals("addZones")) {
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                            calls.incrementAndGet();
+                            if (fail) {
+                                throw new IllegalStateException("switch unreachable");
+                            }
+                            Map<String, String> results = new HashMap<String, String>();
+                            for (Zone zone : (List<Zone>) args[1]) {
+                                zones.incrementAndGet();
+                                results.put(zone.getName(), NetworkSystemDevice.SUCCESS);
+                            }
+                            BiosCommandResult result = BiosCommandResult.createSuccessfulResult();
+                            result.setObjectList(Collections.singletonList((Object) results));
+                            return result;
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.job;
+
+import java.net.URI;
+import java.util.concurrent.Semaphore;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.volumecontroller.Job;
+import com.emc.storageos.volumecontroller.JobContext;
+import com.emc.storageos.volumecontroller.TaskCompleter;
+import com.emc.storageos.volumecontroller.impl.JobPollResult;
+import com.emc.storageos.volumecontroller.impl.hds.prov.job.HDSJob;
+import com.emc.storageos.volumecontroller.impl.smis.job.SmisJob;
+
+public class QueueJobTrackerTest {
+    private static final URI PROVIDER = URI.create("urn:storageos:StorageProvider:provider1:vdc1");
+    private static final URI SYSTEM_A = URI.create("urn:storageos:StorageSystem:a:vdc1");
+    private static final URI SYSTEM_B = URI.create("urn:storageos:StorageSystem:b:vdc1");
+    private static final URI SYSTEM_NO_PROVIDER = URI.create("urn:storageos:StorageSystem:c:vdc1");
+    private static final URI SYSTEM_UNKNOWN = URI.create("urn:storageos:StorageSystem:d:vdc1");
+
+    private QueueJobTracker tracker;
+
+    private static StorageSystem newStorageSystem(URI id, URI provider) {
+        StorageSystem storageSystem = new StorageSystem();
+        storageSystem.setId(id);
+        storageSystem.setActiveProviderURI(provider);
+        return storageSystem;
+    }
+
+    @Before
+    public void setup() {
+        DbClient dbClient = EasyMock.createMock(DbClient.class);
+        EasyMock.expect(dbClient.queryObject(StorageSystem.class, SYSTEM_A))
+                .andReturn(newStorageSystem(SYSTEM_A, PROVIDER)).anyTimes();
+        EasyMock.expect(dbClient.queryObject(StorageSystem.class, SYSTEM_B))
+                .andReturn(newStorageSystem(SYSTEM_B, PROVIDER)).anyTimes();
+        EasyMock.expect(dbClient.queryObject(StorageSystem.class, SYSTEM_NO_PROVIDER))
+                .andReturn(newStorageSystem(SYSTEM_NO_PROVIDER, null)).anyTimes();
+        EasyMock.expect(dbClient.queryObject(StorageSystem.class, SYSTEM_UNKNOWN))
+                .andReturn(null).anyTimes();
+        EasyMock.replay(dbClient);
+
+        tracker = new QueueJobTracker();
+        tracker.setJobContext(new JobContext(dbClient, null, null, null, null, null, null));
+        tracker.setMaxConcurrentPolls(5);
+        tracker.setMaxConcurrentPollsPerProvider(2);
+    }
+
+    @Test
+    public void testPollingKeyIsActiveProvider() {
+        String keyA = tracker.getPollingKey(new SmisJob(null, SYSTEM_A, null, "jobA"));
+        String keyB = tracker.getPollingKey(new HDSJob(null, SYSTEM_B, null, "jobB"));
+
+        // systems managed by the same provider share its polling slots
+        Assert.assertEquals(PROVIDER.toString(), keyA);
+        Assert.assertEquals(keyA, keyB);
+        Assert.assertSame(tracker.getProviderPermits(keyA), tracker.getProviderPermits(keyB));
+    }
+
+    @Test
+    public void testPollingKeyWithoutProvider() {
+        Assert.assertEquals(SYSTEM_NO_PROVIDER.toString(),
+                tracker.getPollingKey(new SmisJob(null, SYSTEM_NO_PROVIDER, null, "job")));
+        Assert.assertEquals(SYSTEM_UNKNOWN.toString(),
+                tracker.getPollingKey(new SmisJob(null, SYSTEM_UNKNOWN, null, "job")));
+
+        String defaultKey = tracker.getPollingKey(new Job() {
+            @Override
+            public JobPollResult poll(JobContext jobContext, long trackingPeriodInMillis) {
+                return null;
+            }
+
+            @Override
+            public TaskCompleter getTaskCompleter() {
+                return null;
+            }
+        });
+        Assert.assertFalse(defaultKey.equals(SYSTEM_NO_PROVIDER.toString()));
+        Assert.assertFalse(defaultKey.equals(PROVIDER.toString()));
+    }
+
+    @Test
+    public void testPermitsPerKey() {
+        Semaphore providerPermits = tracker.getProviderPermits(PROVIDER.toString());
+        Semaphore systemPermits = tracker.getProviderPermits(SYSTEM_NO_PROVIDER.toString());
+        Assert.assertNotSame(providerPermits, systemPermits);
+        Assert.assertEquals(2, providerPermits.availablePermits());
+
+        // a busy provider does not hold back the polls of the others
+        Assert.assertTrue(providerPermits.tryAcquire(2));
+        Assert.assertFalse(providerPermits.tryAcquire());
+        Assert.assertTrue(systemPermits.tryAcquire());
+
+        // jobs without a storage system share the overall polling limit
+        Semaphore defaultPermits = tracker.getProviderPermits(tracker.getPollingKey(new SmisJob(null, null, null, "job")));
+        Assert.assertEquals(5, defaultPermits.availablePermits());
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.plugins.metering.smis.processor;
+
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.cim.CIMArgument;
+import javax.cim.CIMDataType;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.customconfigcontroller.CustomConfigConstants;
+import com.emc.storageos.customconfigcontroller.DataSource;
+import com.emc.storageos.customconfigcontroller.impl.CustomConfigHandler;
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.constraint.AlternateIdConstraint;
+import com.emc.storageos.db.client.constraint.Constraint;
+import com.emc.storageos.db.client.constraint.ContainmentConstraint;
+import com.emc.storageos.db.client.constraint.QueryResultList;
+import com.emc.storageos.db.client.constraint.impl.AlternateIdConstraintImpl;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.Stat;
+import com.emc.storageos.db.client.model.ExportMask;
+import com.emc.storageos.db.client.model.StorageHADomain;
+import com.emc.storageos.db.client.model.StoragePort;
+import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.db.client.model.StringMap;
+import com.emc.storageos.db.client.model.StringSet;
+import com.emc.storageos.db.client.model.Volume;
+import com.emc.storageos.db.client.model.ZoneInfo;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedExportMask;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume.SupportedVolumeInformation;
+import com.emc.storageos.db.common.VdcUtil;
+import com.emc.storageos.plugins.AccessProfile;
+import com.emc.storageos.plugins.common.Constants;
+import com.emc.storageos.util.DummyDbClient;
+
+/**
+ * Processes a collection cycle of port metrics for a VMAX2 array with 2000 ports, 1000 export masks
+ * and 500 unmanaged export masks, once with a metrics model per port sample as the single port entry
+ * points do, and once with one model for the cycle, comparing the database reads and the results.
+ */
+public class PortMetricsModelPerfTest {
+    private static final Logger _log = LoggerFactory.getLogger(PortMetricsModelPerfTest.class);
+
+    private static final int PORT_COUNT = 2000;
+    private static final int MASK_COUNT = 1000;
+    private static final int UNMANAGED_MASK_COUNT = 500;
+    private static final int PORTS_PER_MASK = 4;
+    private static final int VOLUMES_PER_MASK = 8;
+    private static final int VOLUMES_PER_UNMANAGED_MASK = 4;
+    private static final int ITERATIVE_PAGE_SIZE = 100;
+    private static final long SAMPLE_INTERVAL_MSEC = 5 * 60 * 1000L;
+
+    private static PortMetricsProcessor processor;
+
+    @BeforeClass
+    public static void setup() {
+        VdcUtil.setDbClient(new DummyDbClient());
+        processor = new PortMetricsProcessor();
+        processor.setCustomConfigHandler(new TestConfigHandler());
+    }
+
+    @Test
+    public void testCycleModelReducesReads() {
+        long sampleTime = System.currentTimeMillis();
+
+        MetricsDbClient perSampleDb = createArray(11);
+        for (StoragePort port : perSampleDb.ports) {
+            PortMetricsModel model = new PortMetricsModel(perSampleDb, perSampleDb.system);
+            processor.processFEPortMetrics(1000000L, 5000L, port, sampleTime, model);
+            model.save();
+        }
+        PortMetricsModel usageModel = new PortMetricsModel(perSampleDb, perSampleDb.system);
+        usageModel.usePorts(perSampleDb.ports);
+        Map<StoragePort, Long> perSampleUsages = processor.computeStoragePortUsage(perSampleDb.ports, usageModel, true);
+        usageModel.save();
+
+        MetricsDbClient cycleDb = createArray(11);
+        PortMetricsModel cycleModel = new PortMetricsModel(cycleDb, cycleDb.system, true);
+        cycleModel.usePorts(cycleDb.ports);
+        for (StoragePort port : cycleDb.ports) {
+            processor.processFEPortMetrics(1000000L, 5000L, port, sampleTime, cycleModel);
+        }
+        Map<StoragePort, Long> cycleUsages = processor.computeStoragePortUsage(cycleDb.ports, cycleModel, true);
+        cycleModel.save();
+
+        for (int i = 0; i < PORT_COUNT; i++) {
+            StringMap perSampleMetrics = perSampleDb.ports.get(i).getMetrics();
+            StringMap cycleMetrics = cycleDb.ports.get(i).getMetrics();
+            for (MetricsKeys key : new MetricsKeys[] { MetricsKeys.volumeCount, MetricsKeys.initiatorCount,
+                    MetricsKeys.unmanagedVolumeCount, MetricsKeys.unmanagedInitiatorCount }) {
+                Assert.assertEquals(key.name(), MetricsKeys.getLong(key, perSampleMetrics), MetricsKeys.getLong(key, cycleMetrics));
+            }
+            Assert.assertEquals(MetricsKeys.getDouble(MetricsKeys.portMetric, perSampleMetrics),
+                    MetricsKeys.getDouble(MetricsKeys.portMetric, cycleMetrics));
+            Assert.assertEquals(perSampleUsages.get(perSampleDb.ports.get(i)), cycleUsages.get(cycleDb.ports.get(i)));
+        }
+        Assert.assertTrue(MetricsKeys.getLong(MetricsKeys.volumeCount, cycleDb.ports.get(0).getMetrics()) > 0);
+        Assert.assertTrue(MetricsKeys.getLong(MetricsKeys.unmanagedVolumeCount, cycleDb.ports.get(0).getMetrics()) > 0);
+
+        // every port is written once per cycle, in batches
+        Assert.assertEquals(PORT_COUNT, cycleDb.updated);
+        Assert.assertTrue(cycleDb.updateCalls <= PORT_COUNT / 50);
+
+        _log.info("{} ports: {} reads and {} writes with a model per sample, {} reads and {} writes with a model per cycle",
+                new Object[] { PORT_COUNT, perSampleDb.reads, perSampleDb.updateCalls, cycleDb.reads, cycleDb.updateCalls });
+        Assert.assertTrue(cycleDb.reads * 10 < perSampleDb.reads);
+    }
+
+    @Test
+    public void testMatchingExportMaskHidesUnmanagedMask() {
+        MetricsDbClient db = createArray(5);
+        PortMetricsModel lazyModel = new PortMetricsModel(db, db.system);
+        PortMetricsModel preloadedModel = new PortMetricsModel(db, db.system, true);
+        // loads the export masks of the array
+        preloadedModel.getExportMasks(db.ports.get(0).getId());
+        for (UnManagedExportMask umask : db.unmanagedMasks) {
+            boolean imported = db.masksByName.containsKey(umask.getMaskName());
+            Assert.assertEquals(imported, lazyModel.hasMatchingExportMask(umask));
+            Assert.assertEquals(imported, preloadedModel.hasMatchingExportMask(umask));
+        }
+    }
+
+    @Test
+    public void testFailedPortKeepsMetricsOfEarlierPorts() throws Exception {
+        final MetricsDbClient db = createArray(7);
+        PortMetricsProcessor failingProcessor = new PortMetricsProcessor() {
+            @Override
+            public void processFEPortMetrics(Long kbytes, Long iops, StoragePort port, Long sampleTime, PortMetricsModel model) {
+                if (port == db.ports.get(1)) {
+                    throw new IllegalStateException("Bad sample for " + port.getPortName());
+                }
+                super.processFEPortMetrics(kbytes, iops, port, sampleTime, model);
+            }
+        };
+        failingProcessor.setCustomConfigHandler(new TestConfigHandler());
+        FEPortStatsProcessor statsProcessor = new FEPortStatsProcessor();
+        statsProcessor.setPortMetricsProcessor(failingProcessor);
+
+        AccessProfile profile = new AccessProfile();
+        profile.setSystemId(db.system.getId());
+        Map<String, Object> keyMap = new HashMap<String, Object>();
+        keyMap.put(Constants.dbClient, db);
+        keyMap.put(Constants.ACCESSPROFILE, profile);
+        keyMap.put(Constants._Stats, new ArrayList<Stat>());
+        keyMap.put(Constants.STORAGEOS_FEPORT_MANIFEST, Arrays.asList("InstanceID", "TotalIOs", "KBytesTransferred", "StatisticTime"));
+        keyMap.put(Constants._TimeCollected, System.currentTimeMillis());
+        String statisticTime = new SimpleDateFormat("yyyyMMddHHmmss.SSS000+000").format(new Date());
+        StringBuilder records = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            records.append("SYMMETRIX+000195701234+").append(db.ports.get(i).getPortName())
+                    .append(";5000;1000000;").append(statisticTime).append("\n");
+        }
+        CIMArgument<?>[] outputArguments = new CIMArgument<?>[] { new CIMArgument<String[]>("Statistics",
+                CIMDataType.STRING_ARRAY_T, new String[] { records.toString() }) };
+
+        statsProcessor.processResult(null, outputArguments, keyMap);
+
+        // the metrics of the port processed before the failure are written
+        Assert.assertTrue(db.updated >= 1);
+    }
+
+    /**
+     * Creates a VMAX2 array with two ports per director. Every fifth unmanaged mask has been imported.
+     */
+    private static MetricsDbClient createArray(long seed) {
+        Random random = new Random(seed);
+        MetricsDbClient db = new MetricsDbClient();
+        StorageSystem system = new StorageSystem();
+        system.setId(URIUtil.createId(StorageSystem.class));
+        system.setLabel("vmax2");
+        system.setSystemType(StorageSystem.Type.vmax.name());
+        system.setFirmwareVersion("5876.268.174");
+        db.system = system;
+        db.add(system);
+
+        long lastSampleTime = System.currentTimeMillis() - SAMPLE_INTERVAL_MSEC;
+        StorageHADomain director = null;
+        for (int i = 0; i < PORT_COUNT; i++) {
+            if (i % 2 == 0) {
+                director = new StorageHADomain();
+                director.setId(URIUtil.createId(StorageHADomain.class));
+                director.setStorageDeviceURI(system.getId());
+                director.setAdapterName("FA-" + (i / 2));
+                MetricsKeys.putDouble(MetricsKeys.avgPercentBusy, 20.0 + random.nextInt(60), director.getMetrics());
+                MetricsKeys.putDouble(MetricsKeys.emaPercentBusy, 20.0 + random.nextInt(60), director.getMetrics());
+                db.add(director);
+            }
+            StoragePort port = new StoragePort();
+            port.setId(URIUtil.createId(StoragePort.class));
+            port.setStorageDevice(system.getId());
+            port.setStorageHADomain(director.getId());
+            port.setPortGroup(director.getAdapterName());
+            port.setPortName(director.getAdapterName() + ":" + (i % 2));
+            port.setNativeGuid("SYMMETRIX+000195701234+PORT+" + i);
+            port.setPortNetworkId(String.format("50:00:09:73:00:%02X:%02X:%02X", i >> 16 & 0xff, i >> 8 & 0xff, i & 0xff));
+            port.setPortType(StoragePort.PortType.frontend.name());
+            port.setPortSpeed(8L);
+            MetricsKeys.putLong(MetricsKeys.kbytesValue, 0L, port.getMetrics());
+            MetricsKeys.putLong(MetricsKeys.lastSampleTime, lastSampleTime, port.getMetrics());
+            MetricsKeys.putLong(MetricsKeys.avgStartTime, lastSampleTime, port.getMetrics());
+            db.ports.add(port);
+            db.add(port);
+        }
+
+        for (int i = 0; i < MASK_COUNT; i++) {
+            ExportMask mask = new ExportMask();
+            mask.setId(URIUtil.createId(ExportMask.class));
+            mask.setStorageDevice(system.getId());
+            mask.setMaskName("mask" + i);
+            mask.setNativeId("native" + i);
+            StringSet maskPorts = new StringSet();
+            while (maskPorts.size() < PORTS_PER_MASK) {
+                maskPorts.add(db.ports.get(random.nextInt(PORT_COUNT)).getId().toString());
+            }
+            mask.setStoragePorts(maskPorts);
+            StringSet initiators = new StringSet();
+            initiators.add("initiator" + i + "a");
+            initiators.add("initiator" + i + "b");
+            mask.setInitiators(initiators);
+            StringMap volumes = new StringMap();
+            for (int v = 0; v < VOLUMES_PER_MASK; v++) {
+                Volume volume = new Volume();
+                volume.setId(URIUtil.createId(Volume.class));
+                volume.setLabel("volume" + i + "-" + v);
+                if (random.nextBoolean()) {
+                    volume.setMetaMemberCount(2 + random.nextInt(4));
+                }
+                db.add(volume);
+                volumes.put(volume.getId().toString(), String.valueOf(v));
+            }
+            mask.setVolumes(volumes);
+            StringMap existingVolumes = new StringMap();
+            existingVolumes.put("60000970000195701234533030" + i, "");
+            mask.setExistingVolumes(existingVolumes);
+            db.add(mask);
+            db.masksByName.put(mask.getMaskName(), mask);
+        }
+
+        for (int i = 0; i < UNMANAGED_MASK_COUNT; i++) {
+            UnManagedExportMask umask = new UnManagedExportMask();
+            umask.setId(URIUtil.createId(UnManagedExportMask.class));
+            umask.setStorageSystemUri(system.getId());
+            // every fifth unmanaged mask has the name and native id of an export mask
+            umask.setMaskName(i % 5 == 0 ? "mask" + i : "umask" + i);
+            umask.setNativeId(i % 5 == 0 ? "native" + i : "unative" + i);
+            for (int p = 0; p < PORTS_PER_MASK; p++) {
+                StoragePort port = db.ports.get((i * 7 + p) % PORT_COUNT);
+                umask.getKnownStoragePortUris().add(port.getId().toString());
+                ZoneInfo zoneInfo = new ZoneInfo();
+                zoneInfo.setInitiatorWwn("10:00:00:00:c9:00:00:" + p);
+                zoneInfo.setPortWwn(port.getPortNetworkId());
+                umask.getZoningMap().put(zoneInfo.getInitiatorWwn() + port.getPortNetworkId(), zoneInfo);
+            }
+            for (int v = 0; v < VOLUMES_PER_UNMANAGED_MASK; v++) {
+                UnManagedVolume umVolume = new UnManagedVolume();
+                umVolume.setId(URIUtil.createId(UnManagedVolume.class));
+                StringSet metaMemberCount = new StringSet();
+                metaMemberCount.add(String.valueOf(1 + random.nextInt(4)));
+                umVolume.putVolumeInfo(SupportedVolumeInformation.META_MEMBER_COUNT.toString(), metaMemberCount);
+                db.add(umVolume);
+                umask.getUnmanagedVolumeUris().add(umVolume.getId().toString());
+            }
+            db.add(umask);
+            db.unmanagedMasks.add(umask);
+        }
+        db.reads = 0;
+        return db;
+    }
+
+    /**
+     * Keeps the objects in memory and counts the round trips to the database, iterative queries
+     * counting one read per page.
+     */
+    private static class MetricsDbClient extends DummyDbClient {
+        private final Map<URI, DataObject> objects = new LinkedHashMap<URI, DataObject>();
+        private final List<StoragePort> ports = new ArrayList<StoragePort>();
+        private final List<UnManagedExportMask> unmanagedMasks = new ArrayList<UnManagedExportMask>();
+        private final Map<String, ExportMask> masksByName = new LinkedHashMap<String, ExportMask>();
+        private StorageSystem system;
+        private int reads;
+        private int updateCalls;
+        private int updated;
+
+        void add(DataObject object) {
+            objects.put(object.getId(), object);
+        }
+
+        @Override
+        public <T extends DataObject> T queryObject(Class<T> clazz, URI id) {
+            reads++;
+            return clazz.cast(objects.get(id));
+        }
+
+        @Override
+        public <T extends DataObject> Iterator<T> queryIterativeObjects(Class<T> clazz, Collection<URI> ids) {
+            List<T> result = new ArrayList<T>();
+            for (URI id : ids) {
+                DataObject object = objects.get(id);
+                if (clazz.isInstance(object)) {
+                    result.add(clazz.cast(object));
+                }
+            }
+            reads += Math.max(1, (result.size() + ITERATIVE_PAGE_SIZE - 1) / ITERATIVE_PAGE_SIZE);
+            return result.iterator();
+        }
+
+        @Override
+        public <T> void queryByConstraint(Constraint constraint, QueryResultList<T> result) {
+            reads++;
+            List<T> hits = new ArrayList<T>();
+            if (constraint instanceof ContainmentConstraint) {
+                URI parent = (URI) constraint.toConstraintDescriptor().getArguments().get(0);
+                for (DataObject object : objects.values()) {
+                    if (constraint.getDataObjectType().isInstance(object) && parent.equals(getParent(object))) {
+                        hits.add(result.createQueryHit(object.getId()));
+                    }
+                }
+            } else if (constraint instanceof AlternateIdConstraint) {
+                String altId = getAltId(constraint);
+                for (DataObject object : objects.values()) {
+                    if (constraint.getDataObjectType().isInstance(object) && matches(object, altId)) {
+                        hits.add(result.createQueryHit(object.getId()));
+                    }
+                }
+            }
+            result.setResult(hits.iterator());
+        }
+
+        private static URI getParent(DataObject object) {
+            if (object instanceof StoragePort) {
+                return ((StoragePort) object).getStorageDevice();
+            } else if (object instanceof StorageHADomain) {
+                return ((StorageHADomain) object).getStorageDeviceURI();
+            } else if (object instanceof ExportMask) {
+                return ((ExportMask) object).getStorageDevice();
+            } else if (object instanceof UnManagedExportMask) {
+                return ((UnManagedExportMask) object).getStorageSystemUri();
+            }
+            return null;
+        }
+
+        /**
+         * The port alternate ids are StoragePort URIs, the other ones used here are mask names.
+         */
+        private static boolean matches(DataObject object, String altId) {
+            if (object instanceof ExportMask) {
+                ExportMask mask = (ExportMask) object;
+                return URIUtil.isType(URI.create(altId), StoragePort.class) ? mask.getStoragePorts().contains(altId)
+                        : altId.equals(mask.getMaskName());
+            } else if (object instanceof UnManagedExportMask) {
+                return ((UnManagedExportMask) object).getKnownStoragePortUris().contains(altId);
+            }
+            return false;
+        }
+
+        private static String getAltId(Constraint constraint) {
+            try {
+                Field altId = AlternateIdConstraintImpl.class.getDeclaredField("_altId");
+                altId.setAccessible(true);
+                return (String) altId.get(constraint);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public <T extends DataObject> void updateObject(T object) {
+            updateCalls++;
+            updated++;
+        }
+
+        @Override
+        public <T extends DataObject> void updateObject(Collection<T> objects) {
+            updateCalls++;
+            updated += objects.size();
+        }
+    }
+
+    private static class TestConfigHandler extends CustomConfigHandler {
+        @Override
+        public String getComputedCustomConfigValue(String name, String scope, DataSource sources) {
+            if (CustomConfigConstants.PORT_ALLOCATION_METRICS_ENABLED.equals(name)) {
+                return Boolean.TRUE.toString();
+            }
+            if (CustomConfigConstants.PORT_ALLOCATION_VOLUME_COEFFICIENT.equals(name)) {
+                return "1.0";
+            }
+            // the processor uses its defaults
+            return "0";
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.plugins.metering.vplex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks the streaming parse of the VPlex perpetual performance data file tail, and compares its time
+ * with splitting each line into a map of header to value.
+ */
+public class VPlexPerpetualCSVTailParserTest {
+    private static final Logger _log = LoggerFactory.getLogger(VPlexPerpetualCSVTailParserTest.class);
+
+    private static final String BUSY = VPlexPerpetualCSVFileData.HEADER_KEY_DIRECTOR_BUSY;
+    private static final String PORT_OPS = "fe-prt.ops A0-FC00 (counts/s)";
+    private static final List<String> HEADERS = Arrays.asList("Time", VPlexPerpetualCSVFileData.HEADER_KEY_TIME_UTC, BUSY,
+            "be-prt.ops A1-FC00 (counts/s)", PORT_OPS, "fe-prt.read A0-FC00 (KB/s)");
+    private static final String HEADER_LINE = "Time,Time (UTC),director.busy (%),be-prt.ops A1-FC00 (counts/s),"
+            + "fe-prt.ops A0-FC00 (counts/s),fe-prt.read A0-FC00 (KB/s)\n";
+    private static final int PERF_LINES = 200000;
+
+    @Test
+    public void testMaxValuesAndLastSample() {
+        String data = HEADER_LINE
+                + "2016-05-02 10:00:00,1462183200,12.5,100,300,1\n"
+                + "2016-05-02 10:00:30,1462183230,no data,900,250.75,2\n"
+                + "2016-05-02 10:01:00,1462183260,40,100,no data,3\r\n";
+        VPlexPerpetualCSVTailParser parser = new VPlexPerpetualCSVTailParser(HEADERS, Arrays.asList(BUSY, PORT_OPS));
+        parser.parse(data, true);
+
+        Assert.assertEquals(3, parser.getLineCount());
+        Assert.assertEquals(data.length(), parser.getConsumed());
+        Assert.assertEquals(1462183200L, parser.getFirstTime());
+        Assert.assertEquals(1462183260L, parser.getLastTime());
+        Map<String, Double> maxValues = parser.getMaxValues();
+        Assert.assertEquals(2, maxValues.size());
+        Assert.assertEquals(40.0, maxValues.get(BUSY), 0.0);
+        Assert.assertEquals(300.0, maxValues.get(PORT_OPS), 0.0);
+        Map<String, String> last = parser.getLastSample();
+        Assert.assertEquals("1462183260", last.get(VPlexPerpetualCSVFileData.HEADER_KEY_TIME_UTC));
+        Assert.assertEquals("40", last.get(BUSY));
+        Assert.assertEquals("no data", last.get(PORT_OPS));
+        Assert.assertFalse(last.containsKey("Time"));
+    }
+
+    @Test
+    public void testPartialLineIsNotConsumed() {
+        String complete = "2016-05-02 10:00:00,1462183200,12.5,100,300,1\n";
+        VPlexPerpetualCSVTailParser parser = new VPlexPerpetualCSVTailParser(HEADERS, Arrays.asList(BUSY, PORT_OPS));
+        parser.parse(complete + "2016-05-02 10:00:30,1462183230,99", false);
+
+        Assert.assertEquals(1, parser.getLineCount());
+        Assert.assertEquals(complete.length(), parser.getConsumed());
+        Assert.assertEquals(12.5, parser.getMaxValues().get(BUSY), 0.0);
+    }
+
+    @Test
+    public void testHeaderOnly() {
+        VPlexPerpetualCSVTailParser parser = new VPlexPerpetualCSVTailParser(HEADERS, Arrays.asList(BUSY));
+        parser.parse(HEADER_LINE, true);
+
+        Assert.assertEquals(0, parser.getLineCount());
+        Assert.assertEquals(HEADER_LINE.length(), parser.getConsumed());
+        Assert.assertEquals(-1, parser.getFirstTime());
+        Assert.assertTrue(parser.getMaxValues().isEmpty());
+        Assert.assertTrue(parser.getLastSample().isEmpty());
+    }
+
+    @Test
+    public void testParseNumbers() {
+        Assert.assertEquals(0.0, parse("0"), 0.0);
+        Assert.assertEquals(12.0, parse("12."), 0.0);
+        Assert.assertEquals(12.25, parse("12.25"), 0.0);
+        Assert.assertEquals(0.1, parse("0.1000000000000000000001"), 1e-15);
+        Assert.assertTrue(Double.isNaN(parse("")));
+        Assert.assertTrue(Double.isNaN(parse(".5")));
+        Assert.assertTrue(Double.isNaN(parse("-1")));
+        Assert.assertTrue(Double.isNaN(parse("1e3")));
+        Assert.assertTrue(Double.isNaN(parse("no data")));
+        Assert.assertEquals(1462183200L, VPlexPerpetualCSVTailParser.parseLong("1462183200", 0, 10));
+        Assert.assertEquals(-1, VPlexPerpetualCSVTailParser.parseLong("", 0, 0));
+        Assert.assertEquals(-1, VPlexPerpetualCSVTailParser.parseLong("14a", 0, 3));
+    }
+
+    @Test
+    public void testParseTime() {
+        StringBuilder data = new StringBuilder(HEADER_LINE);
+        for (int i = 0; i < PERF_LINES; i++) {
+            data.append("2016-05-02 10:00:00,").append(1462183200 + i * 30).append(',').append(i % 100).append(".5,")
+                    .append(i).append(',').append(i % 1000).append(",no data\n");
+        }
+        String content = data.toString();
+
+        long start = System.nanoTime();
+        Map<String, Double> splitMax = splitAndFindMax(content);
+        long splitNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        VPlexPerpetualCSVTailParser parser = new VPlexPerpetualCSVTailParser(HEADERS, Arrays.asList(BUSY, PORT_OPS));
+        parser.parse(content, true);
+        long streamNanos = System.nanoTime() - start;
+
+        Assert.assertEquals(PERF_LINES, parser.getLineCount());
+        Assert.assertEquals(splitMax, parser.getMaxValues());
+        _log.info("{} lines: split into maps {} ms, streaming parse {} ms",
+                new Object[] { PERF_LINES, splitNanos / 1000000, streamNanos / 1000000 });
+    }
+
+    private static double parse(String value) {
+        return VPlexPerpetualCSVTailParser.parseDouble(value, 0, value.length());
+    }
+
+    // the parse done before the streaming parser: a map of header to value per line, then the maximum
+    private static Map<String, Double> splitAndFindMax(String content) {
+        String[] lines = content.split("\n");
+        Map<String, Double> maxValues = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] values = lines[i].split(",");
+            Map<String, String> line = new HashMap<>();
+            for (int column = 0; column < values.length; column++) {
+                line.put(HEADERS.get(column), values[column]);
+            }
+            for (String metric : Arrays.asList(BUSY, PORT_OPS)) {
+                String value = line.get(metric);
+                if (value != null && value.matches("\\d+\\.?\\d*")) {
+                    Double current = maxValues.get(metric);
+                    double parsed = Double.valueOf(value);
+                    if (current == null || parsed > current) {
+                        maxValues.put(metric, parsed);
+                    }
+                }
+            }
+        }
+        return maxValues;
+    }
+}
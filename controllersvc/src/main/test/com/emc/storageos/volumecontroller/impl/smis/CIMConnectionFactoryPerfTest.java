@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.smis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.cimadapter.connections.ConnectionManager;
+import com.emc.storageos.cimadapter.connections.ConnectionManagerConfiguration;
+import com.emc.storageos.cimadapter.connections.ConnectionManagerException;
+import com.emc.storageos.cimadapter.connections.cim.CimConnection;
+import com.emc.storageos.cimadapter.connections.cim.CimConnectionInfo;
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.NodeListener;
+import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.model.property.PropertyInfo;
+
+/**
+ * Drives block operations on many threads through the CIM connection factory with a stubbed
+ * connection manager, checking every provider connection is created once and comparing the
+ * time of the lookups with lookups serialized through one monitor and a coordinator read.
+ */
+public class CIMConnectionFactoryPerfTest {
+    private static final Logger _log = LoggerFactory.getLogger(CIMConnectionFactoryPerfTest.class);
+
+    private static final int PROVIDER_COUNT = 20;
+    private static final int THREAD_COUNT = 32;
+    private static final int OPERATIONS_PER_THREAD = 2000;
+    private static final long CONNECT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long PROPERTY_READ_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        List<StorageSystem> systems = createSystems();
+
+        StubConnectionManager serializedManager = new StubConnectionManager();
+        final CIMConnectionFactory serializedFactory = createFactory(serializedManager);
+        final CoordinatorClient serializedCoordinator = createCoordinator();
+        long serializedNanos = run(systems, new Lookup() {
+            @Override
+            public CimConnection getConnection(StorageSystem system) {
+                // the lookup before the connection factory stopped synchronizing it
+                synchronized (serializedFactory) {
+                    serializedCoordinator.getPropertyInfo();
+                    return serializedFactory.getConnection(system);
+                }
+            }
+        });
+
+        StubConnectionManager manager = new StubConnectionManager();
+        final CIMConnectionFactory factory = createFactory(manager);
+        long concurrentNanos = run(systems, new Lookup() {
+            @Override
+            public CimConnection getConnection(StorageSystem system) {
+                return factory.getConnection(system);
+            }
+        });
+
+        Assert.assertEquals(PROVIDER_COUNT, manager.connections.size());
+        for (AtomicInteger count : manager.created.values()) {
+            Assert.assertEquals(1, count.get());
+        }
+        Assert.assertEquals(1, manager.configured.get());
+        Assert.assertEquals(PROVIDER_COUNT, factory.getConnectionsCreatedCount());
+        Assert.assertTrue(factory.getLookupCount() >= THREAD_COUNT * OPERATIONS_PER_THREAD);
+        _log.info("{} lookups on {} threads: serialized {} ms, concurrent {} ms, {} lookups waited {} ms for creation",
+                new Object[] { THREAD_COUNT * OPERATIONS_PER_THREAD, THREAD_COUNT, serializedNanos / 1000000,
+                        concurrentNanos / 1000000, factory.getCreationWaitCount(), factory.getCreationWaitMillis() });
+    }
+
+    private long run(final List<StorageSystem> systems, final Lookup lookup) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        try {
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                final Random random = new Random(t);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            startLatch.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            Assert.assertNotNull(lookup.getConnection(systems.get(random.nextInt(PROVIDER_COUNT))));
+                        }
+                    }
+                }));
+            }
+            long start = System.nanoTime();
+            startLatch.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CIMConnectionFactory createFactory(StubConnectionManager manager) {
+        CIMConnectionFactory factory = new CIMConnectionFactory();
+        factory.setConnectionManager(manager);
+        factory.setCoordinator(createCoordinator());
+        return factory;
+    }
+
+    private CoordinatorClient createCoordinator() {
+        CoordinatorClient coordinator = EasyMock.createNiceMock(CoordinatorClient.class);
+        EasyMock.expect(coordinator.getPropertyInfo()).andAnswer(new IAnswer<PropertyInfo>() {
+            @Override
+            public PropertyInfo answer() throws Throwable {
+                LockSupport.parkNanos(PROPERTY_READ_NANOS);
+                return new PropertyInfo();
+            }
+        }).anyTimes();
+        try {
+            coordinator.addNodeListener(EasyMock.anyObject(NodeListener.class));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        EasyMock.expectLastCall().anyTimes();
+        EasyMock.replay(coordinator);
+        return coordinator;
+    }
+
+    private List<StorageSystem> createSystems() {
+        List<StorageSystem> systems = new ArrayList<StorageSystem>();
+        for (int i = 0; i < PROVIDER_COUNT; i++) {
+            StorageSystem system = new StorageSystem();
+            system.setSystemType(StorageSystem.Type.vmax.name());
+            system.setSmisProviderIP("10.0.0." + i);
+            system.setSmisPortNumber(5988);
+            system.setSmisUserName("admin");
+            system.setSmisPassword("password");
+            system.setSmisUseSSL(false);
+            systems.add(system);
+        }
+        return systems;
+    }
+
+    private interface Lookup {
+        CimConnection getConnection(StorageSystem system);
+    }
+
+    /**
+     * Keeps mocked connections in memory, taking a fixed time to connect to a provider, and counts
+     * the connections created per provider.
+     */
+    private static class StubConnectionManager extends ConnectionManager {
+        private final ConcurrentHashMap<String, CimConnection> connections = new ConcurrentHashMap<String, CimConnection>();
+        private final ConcurrentHashMap<String, AtomicInteger> created = new ConcurrentHashMap<String, AtomicInteger>();
+        private final AtomicInteger configured = new AtomicInteger();
+
+        StubConnectionManager() throws Exception {
+            super(new ConnectionManagerConfiguration());
+        }
+
+        @Override
+        public void configure(PropertyInfo propertyInfo) {
+            configured.incrementAndGet();
+        }
+
+        @Override
+        public void reconfigure(PropertyInfo propertyInfo) {
+            configured.incrementAndGet();
+        }
+
+        @Override
+        public void addConnection(CimConnectionInfo connectionInfo) throws ConnectionManagerException {
+            String key = generateConnectionCacheKey(connectionInfo.getHost(), connectionInfo.getPort());
+            LockSupport.parkNanos(CONNECT_NANOS);
+            CimConnection connection = EasyMock.createNiceMock(CimConnection.class);
+            EasyMock.replay(connection);
+            created.putIfAbsent(key, new AtomicInteger());
+            created.get(key).incrementAndGet();
+            connections.put(key, connection);
+        }
+
+        @Override
+        public CimConnection getConnection(String host, Integer port) throws ConnectionManagerException {
+            return connections.get(generateConnectionCacheKey(host, port));
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.utils;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.StaticApplicationContext;
+
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.constraint.Constraint;
+import com.emc.storageos.db.client.constraint.QueryResultList;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.StoragePool;
+import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.db.client.model.StringSet;
+import com.emc.storageos.db.client.model.VirtualArray;
+import com.emc.storageos.db.client.model.VirtualPool;
+import com.emc.storageos.db.common.VdcUtil;
+import com.emc.storageos.db.exceptions.DatabaseException;
+import com.emc.storageos.util.DummyDbClient;
+import com.emc.storageos.volumecontroller.AttributeMatcher;
+
+/**
+ * Matches 500 virtual pools with 2000 storage pools through the attribute matcher framework,
+ * comparing the results and the time of matching on the calling thread and on the matcher threads.
+ */
+public class ImplicitPoolMatcherPerfTest {
+    private static final Logger _log = LoggerFactory.getLogger(ImplicitPoolMatcherPerfTest.class);
+
+    private static final int VPOOL_COUNT = 500;
+    private static final int POOL_COUNT = 2000;
+    private static final int SYSTEM_COUNT = 20;
+    private static final int VARRAY_COUNT = 10;
+    private static final int PARALLEL_THREADS = 8;
+    private static final long QUERY_LATENCY_NANOS = 200000L;
+    private static final String[] PROTOCOLS = { "FC", "iSCSI", "NFS", "CIFS" };
+
+    private static List<StoragePool> pools;
+    private static List<URI> systemIds;
+    private static List<String> varrayIds;
+
+    @BeforeClass
+    public static void setup() {
+        VdcUtil.setDbClient(new DummyDbClient());
+        Random random = new Random(42);
+        varrayIds = new ArrayList<String>();
+        for (int i = 0; i < VARRAY_COUNT; i++) {
+            varrayIds.add(URIUtil.createId(VirtualArray.class).toString());
+        }
+        systemIds = new ArrayList<URI>();
+        for (int i = 0; i < SYSTEM_COUNT; i++) {
+            systemIds.add(URIUtil.createId(StorageSystem.class));
+        }
+        pools = new ArrayList<StoragePool>();
+        for (int i = 0; i < POOL_COUNT; i++) {
+            StoragePool pool = new StoragePool();
+            pool.setId(URIUtil.createId(StoragePool.class));
+            pool.setStorageDevice(systemIds.get(random.nextInt(SYSTEM_COUNT)));
+            pool.setAssignedVirtualArrays(randomSet(random, varrayIds, 3));
+            pool.setProtocols(randomSet(random, Arrays.asList(PROTOCOLS), 2));
+            pools.add(pool);
+        }
+
+        StaticApplicationContext context = new StaticApplicationContext();
+        List<AttributeMatcher> matchers = new ArrayList<AttributeMatcher>();
+        matchers.add(new VarrayTestMatcher());
+        matchers.add(new ProtocolTestMatcher());
+        context.getBeanFactory().registerSingleton(AttributeMatcher.VPOOL_MATCHERS, matchers);
+        context.refresh();
+        AttributeMatcherFramework framework = new AttributeMatcherFramework();
+        framework.setApplicationContext(context);
+        ImplicitPoolMatcher.setMatcherFramework(framework);
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        ImplicitPoolMatcher.setMatcherThreads(4);
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        PoolMatcherDbClient sequentialDb = new PoolMatcherDbClient(createVpools());
+        ImplicitPoolMatcher.setMatcherThreads(1);
+        long start = System.nanoTime();
+        ImplicitPoolMatcher.matchModifiedStoragePoolsWithAllVirtualPool(pools, sequentialDb, null, new StringBuffer());
+        long sequentialNanos = System.nanoTime() - start;
+
+        PoolMatcherDbClient parallelDb = new PoolMatcherDbClient(createVpools());
+        ImplicitPoolMatcher.setMatcherThreads(PARALLEL_THREADS);
+        start = System.nanoTime();
+        ImplicitPoolMatcher.matchModifiedStoragePoolsWithAllVirtualPool(pools, parallelDb, null, new StringBuffer());
+        long parallelNanos = System.nanoTime() - start;
+
+        Assert.assertTrue(sequentialDb.persisted.get() > 0);
+        Assert.assertEquals(sequentialDb.persisted.get(), parallelDb.persisted.get());
+        for (int i = 0; i < VPOOL_COUNT; i++) {
+            Assert.assertEquals(sequentialDb.vpools.get(i).getMatchedStoragePools(),
+                    parallelDb.vpools.get(i).getMatchedStoragePools());
+        }
+        _log.info("Matched {} vpools with {} pools: 1 thread {} ms, {} threads {} ms",
+                new Object[] { VPOOL_COUNT, POOL_COUNT, sequentialNanos / 1000000, PARALLEL_THREADS,
+                        parallelNanos / 1000000 });
+    }
+
+    @Test
+    public void testUnchangedVpoolsNotPersisted() {
+        PoolMatcherDbClient dbClient = new PoolMatcherDbClient(createVpools());
+        ImplicitPoolMatcher.setMatcherThreads(PARALLEL_THREADS);
+        ImplicitPoolMatcher.matchModifiedStoragePoolsWithAllVirtualPool(pools, dbClient, null, new StringBuffer());
+        Assert.assertTrue(dbClient.persisted.get() > 0);
+        Assert.assertTrue(dbClient.maxBatch.get() < dbClient.persisted.get());
+
+        dbClient.persisted.set(0);
+        ImplicitPoolMatcher.matchModifiedStoragePoolsWithAllVirtualPool(pools, dbClient, null, new StringBuffer());
+        Assert.assertEquals(0, dbClient.persisted.get());
+    }
+
+    private List<VirtualPool> createVpools() {
+        Random random = new Random(7);
+        List<VirtualPool> vpools = new ArrayList<VirtualPool>();
+        for (int i = 0; i < VPOOL_COUNT; i++) {
+            VirtualPool vpool = new VirtualPool();
+            vpool.setId(URI.create("urn:storageos:VirtualPool:perf-" + i + ":vdc1"));
+            vpool.setType(VirtualPool.Type.block.name());
+            vpool.setVirtualArrays(randomSet(random, varrayIds, 2));
+            vpool.setProtocols(randomSet(random, Arrays.asList(PROTOCOLS), 1));
+            vpools.add(vpool);
+        }
+        return vpools;
+    }
+
+    private static StringSet randomSet(Random random, List<String> values, int count) {
+        StringSet set = new StringSet();
+        for (int i = 0; i < count; i++) {
+            set.add(values.get(random.nextInt(values.size())));
+        }
+        return set;
+    }
+
+    /**
+     * Serves the virtual pools and storage systems from memory, with a fixed latency for every
+     * storage system read, and counts the virtual pools persisted.
+     */
+    private static class PoolMatcherDbClient extends DummyDbClient {
+        private final List<VirtualPool> vpools;
+        private final Map<URI, StorageSystem> systems = new HashMap<URI, StorageSystem>();
+        private final AtomicInteger persisted = new AtomicInteger();
+        private final AtomicInteger maxBatch = new AtomicInteger();
+
+        PoolMatcherDbClient(List<VirtualPool> vpools) {
+            this.vpools = vpools;
+            for (URI systemId : systemIds) {
+                StorageSystem system = new StorageSystem();
+                system.setId(systemId);
+                system.setInactive(false);
+                systems.put(systemId, system);
+            }
+        }
+
+        @Override
+        public <T extends DataObject> List<URI> queryByType(Class<T> clazz, boolean activeOnly) throws DatabaseException {
+            if (clazz.equals(VirtualPool.class)) {
+                List<URI> ids = new ArrayList<URI>();
+                for (VirtualPool vpool : vpools) {
+                    ids.add(vpool.getId());
+                }
+                return ids;
+            }
+            return super.queryByType(clazz, activeOnly);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T extends DataObject> Iterator<T> queryIterativeObjects(Class<T> clazz, Collection<URI> ids)
+                throws DatabaseException {
+            if (clazz.equals(VirtualPool.class)) {
+                return (Iterator<T>) vpools.iterator();
+            }
+            return super.queryIterativeObjects(clazz, ids);
+        }
+
+        @Override
+        public <T extends DataObject> T queryObject(Class<T> clazz, URI id) throws DatabaseException {
+            if (clazz.equals(StorageSystem.class)) {
+                LockSupport.parkNanos(QUERY_LATENCY_NANOS);
+                return clazz.cast(systems.get(id));
+            }
+            return null;
+        }
+
+        @Override
+        public <T> void queryByConstraint(Constraint constraint, QueryResultList<T> result) throws DatabaseException {
+            result.setResult(new ArrayList<T>().iterator());
+        }
+
+        @Override
+        public <T extends DataObject> void updateAndReindexObject(Collection<T> objects) throws DatabaseException {
+            persisted.addAndGet(objects.size());
+            if (objects.size() > maxBatch.get()) {
+                maxBatch.set(objects.size());
+            }
+        }
+    }
+
+    /**
+     * Keeps the pools assigned to one of the virtual arrays of the vpool.
+     */
+    private static class VarrayTestMatcher extends AttributeMatcher {
+        @Override
+        protected boolean isAttributeOn(Map<String, Object> attributeMap) {
+            return attributeMap.get(Attributes.varrays.toString()) != null;
+        }
+
+        @Override
+        protected List<StoragePool> matchStoragePoolsWithAttributeOn(List<StoragePool> allPools,
+                Map<String, Object> attributeMap, StringBuffer errorMessage) {
+            @SuppressWarnings("unchecked")
+            Collection<String> varrays = (Collection<String>) attributeMap.get(Attributes.varrays.toString());
+            List<StoragePool> matchedPools = new ArrayList<StoragePool>();
+            for (StoragePool pool : allPools) {
+                for (String varray : varrays) {
+                    if (pool.getAssignedVirtualArrays().contains(varray)) {
+                        matchedPools.add(pool);
+                        break;
+                    }
+                }
+            }
+            return matchedPools;
+        }
+    }
+
+    /**
+     * Keeps the pools supporting the protocols of the vpool, on storage systems read through the
+     * object cache of the invocation.
+     */
+    private static class ProtocolTestMatcher extends AttributeMatcher {
+        @Override
+        protected boolean isAttributeOn(Map<String, Object> attributeMap) {
+            return attributeMap.get(Attributes.protocols.toString()) != null;
+        }
+
+        @Override
+        protected List<StoragePool> matchStoragePoolsWithAttributeOn(List<StoragePool> allPools,
+                Map<String, Object> attributeMap, StringBuffer errorMessage) {
+            @SuppressWarnings("unchecked")
+            Collection<String> protocols = (Collection<String>) attributeMap.get(Attributes.protocols.toString());
+            List<StoragePool> matchedPools = new ArrayList<StoragePool>();
+            Map<URI, StorageSystem> systemMap = new HashMap<URI, StorageSystem>();
+            for (StoragePool pool : allPools) {
+                if (getStorageSystem(systemMap, pool) != null && pool.getProtocols().containsAll(protocols)) {
+                    matchedPools.add(pool);
+                }
+            }
+            return matchedPools;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.workflow;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.utils.ZKPaths;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.Controller;
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.impl.WorkflowDataManagerImpl;
+import com.emc.storageos.coordinator.common.impl.ZkConnection;
+import com.emc.storageos.coordinator.common.impl.ZkPath;
+import com.emc.storageos.coordinator.service.impl.CoordinatorImpl;
+import com.emc.storageos.coordinator.service.impl.SpringQuorumPeerConfig;
+import com.emc.storageos.db.client.constraint.Constraint;
+import com.emc.storageos.db.client.constraint.QueryResultList;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.util.NullColumnValueGetter;
+import com.emc.storageos.locking.DistributedOwnerLockService;
+import com.emc.storageos.model.property.PropertyInfo;
+import com.emc.storageos.util.DummyDbClient;
+import com.emc.storageos.volumecontroller.ControllerException;
+import com.emc.storageos.volumecontroller.impl.Dispatcher;
+
+/**
+ * Runs synthetic workflows of STEP_COUNT steps (2000 by default, set with -DworkflowPerf.steps) through
+ * the WorkflowService against an embedded ZooKeeper, completing every step as soon as it is dispatched,
+ * and logs the time taken by each workflow. The steps are split in GROUP_COUNT step groups that each
+ * wait on the previous group, like the fan out of the export steps of a large VPLEX or RP export.
+ */
+public class WorkflowSchedulerPerfTest implements Controller {
+    private static final Logger _log = LoggerFactory.getLogger(WorkflowSchedulerPerfTest.class);
+
+    private static final int STEP_COUNT = Integer.getInteger("workflowPerf.steps", 2000);
+    private static final int GROUP_COUNT = 20;
+    private static final int COMPLETER_THREADS = 8;
+    private static final int ZK_PORT = 2182;
+    private static final long WORKFLOW_TIMEOUT_MINUTES = 30;
+
+    private static final Map<String, CountDownLatch> _completionLatches = new ConcurrentHashMap<String, CountDownLatch>();
+    private static final Map<String, WorkflowState> _completionStates = new ConcurrentHashMap<String, WorkflowState>();
+
+    private static File _dataDir;
+    private static ZkConnection _zkConnection;
+    private static WorkflowService _workflowService;
+    private static ExecutorService _completers;
+    private static final BlockingQueue<String> _dispatchedSteps = new LinkedBlockingQueue<String>();
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        _dataDir = new File("./workflowperftest");
+        cleanDirectory(_dataDir);
+        startZooKeeper();
+
+        _zkConnection = new ZkConnection();
+        _zkConnection.setServer(Arrays.asList(URI.create("coordinator://localhost:" + ZK_PORT)));
+        _zkConnection.setTimeoutMs(30 * 1000);
+        _zkConnection.setSiteId("fake-site-id");
+        _zkConnection.setSiteIdFile("fake-site-id-file");
+        _zkConnection.build();
+        _zkConnection.connect();
+
+        CoordinatorClient coordinator = EasyMock.createNiceMock(CoordinatorClient.class);
+        EasyMock.expect(coordinator.getWorkflowDataManager()).andReturn(new WorkflowDataManagerImpl(_zkConnection)).anyTimes();
+        EasyMock.expect(coordinator.getPropertyInfo()).andReturn(new PropertyInfo()).anyTimes();
+        EasyMock.expect(coordinator.getLock(EasyMock.anyObject(String.class))).andAnswer(new IAnswer<InterProcessLock>() {
+            @Override
+            public InterProcessLock answer() throws Throwable {
+                String name = (String) EasyMock.getCurrentArguments()[0];
+                return new InterProcessMutex(_zkConnection.curator(), ZKPaths.makePath(ZkPath.MUTEX.toString(), name));
+            }
+        }).anyTimes();
+        EasyMock.replay(coordinator);
+        DistributedOwnerLockService ownerLocker = EasyMock.createNiceMock(DistributedOwnerLockService.class);
+        EasyMock.replay(ownerLocker);
+
+        Dispatcher dispatcher = new Dispatcher() {
+            @Override
+            public void queue(QueueName queueName, URI deviceURI, String deviceType, boolean lockDevice,
+                    Object target, String method, Object... args) throws ControllerException {
+                // the stepId is the last argument of every step
+                _dispatchedSteps.add((String) args[args.length - 1]);
+            }
+        };
+        dispatcher.setController(Collections.<Controller> singleton(new WorkflowSchedulerPerfTest()));
+
+        _workflowService = new WorkflowService();
+        _workflowService.setCoordinator(coordinator);
+        _workflowService.setDbClient(new WorkflowDbClient());
+        _workflowService.setDispatcher(dispatcher);
+        _workflowService.setOwnerLocker(ownerLocker);
+        _workflowService.setScrubber(new WorkflowScrubberExecutor() {
+            @Override
+            public void start() {
+            }
+        });
+        _workflowService.setSuspendOnErrorTestOnly(false);
+        _workflowService.start();
+
+        // Complete the dispatched steps the way the step completers of the controllers do
+        _completers = Executors.newFixedThreadPool(COMPLETER_THREADS);
+        for (int i = 0; i < COMPLETER_THREADS; i++) {
+            _completers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            WorkflowService.completerStepSucceded(_dispatchedSteps.take());
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+    }
+
+    @AfterClass
+    public static void teardown() {
+        if (_completers != null) {
+            _completers.shutdownNow();
+        }
+        if (_zkConnection != null) {
+            _zkConnection.disconnect();
+        }
+    }
+
+    @Test
+    public void testLargeWorkflow() throws Exception {
+        // warm up
+        runWorkflow(STEP_COUNT / 10);
+
+        long elapsedMs = runWorkflow(STEP_COUNT);
+        _log.info("Executed a workflow of {} steps in {} groups in {} ms ({} ms per step)",
+                new Object[] { STEP_COUNT, GROUP_COUNT, elapsedMs, (double) elapsedMs / STEP_COUNT });
+    }
+
+    /**
+     * Executes a workflow of stepCount steps and waits until it completes.
+     *
+     * @param stepCount the number of steps
+     * @return the time taken in milliseconds
+     */
+    private long runWorkflow(int stepCount) throws Exception {
+        String taskId = UUID.randomUUID().toString();
+        _completionLatches.put(taskId, new CountDownLatch(1));
+        Workflow workflow = _workflowService.getNewWorkflow(this, "runWorkflow", false, taskId);
+        URI nullURI = NullColumnValueGetter.getNullURI();
+        int stepsPerGroup = Math.max(1, stepCount / GROUP_COUNT);
+        for (int i = 0; i < stepCount; i++) {
+            int group = i / stepsPerGroup;
+            String waitFor = (group == 0) ? null : "group" + (group - 1);
+            workflow.createStep("group" + group, "step " + i, waitFor, nullURI, getClass().getName(), false,
+                    getClass(), new Workflow.Method("nop", i), null, false, null);
+        }
+
+        long start = System.currentTimeMillis();
+        workflow.executePlan(null, "success", new CompletionCallback(), new Object[] { taskId }, null, null);
+        Assert.assertTrue("Workflow did not complete",
+                _completionLatches.get(taskId).await(WORKFLOW_TIMEOUT_MINUTES, TimeUnit.MINUTES));
+        long elapsedMs = System.currentTimeMillis() - start;
+        Assert.assertEquals(WorkflowState.SUCCESS, _completionStates.get(taskId));
+        return elapsedMs;
+    }
+
+    /**
+     * Step method; the steps are completed by the completer threads as soon as they are dispatched.
+     */
+    public void nop(int index, String stepId) {
+    }
+
+    /**
+     * Releases the thread waiting on a workflow once it completes.
+     */
+    public static class CompletionCallback implements Workflow.WorkflowCallbackHandler, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void workflowComplete(Workflow workflow, Object[] args) throws WorkflowException {
+            String taskId = (String) args[0];
+            _completionStates.put(taskId, workflow.getWorkflowState());
+            _completionLatches.get(taskId).countDown();
+        }
+    }
+
+    /**
+     * Keeps the workflow and step records in memory.
+     */
+    private static class WorkflowDbClient extends DummyDbClient {
+        private final Map<URI, DataObject> _objects = new ConcurrentHashMap<URI, DataObject>();
+
+        @Override
+        public <T extends DataObject> T queryObject(Class<T> clazz, URI id) {
+            DataObject object = _objects.get(id);
+            return clazz.isInstance(object) ? clazz.cast(object) : null;
+        }
+
+        @Override
+        public <T extends DataObject> List<T> queryObject(Class<T> clazz, Collection<URI> ids) {
+            List<T> objects = new ArrayList<T>();
+            for (URI id : ids) {
+                T object = queryObject(clazz, id);
+                if (object != null) {
+                    objects.add(object);
+                }
+            }
+            return objects;
+        }
+
+        @Override
+        public <T> void queryByConstraint(Constraint constraint, QueryResultList<T> result) {
+            result.setResult(Collections.<T> emptyList().iterator());
+        }
+
+        @Override
+        public <T extends DataObject> void createObject(T object) {
+            _objects.put(object.getId(), object);
+        }
+
+        @Override
+        public <T extends DataObject> void updateObject(T object) {
+            _objects.put(object.getId(), object);
+        }
+
+        @Override
+        public <T extends DataObject> void updateObject(Collection<T> objects) {
+            for (T object : objects) {
+                updateObject(object);
+            }
+        }
+    }
+
+    private static void startZooKeeper() throws Exception {
+        SpringQuorumPeerConfig config = new SpringQuorumPeerConfig();
+        config.setMachineId(1);
+        Properties zkprop = new Properties();
+        zkprop.setProperty("tickTime", "2000");
+        zkprop.setProperty("dataDir", _dataDir.getAbsolutePath());
+        zkprop.setProperty("clientPort", String.valueOf(ZK_PORT));
+        zkprop.setProperty("initLimit", "5");
+        zkprop.setProperty("syncLimit", "2");
+        zkprop.setProperty("maxClientCnxns", "0");
+        config.setProperties(zkprop);
+        config.init();
+
+        final CoordinatorImpl coordinator = new CoordinatorImpl();
+        coordinator.setConfig(config);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.start();
+                } catch (IOException e) {
+                    _log.error("coordinator start failure", e);
+                }
+            }
+        }).start();
+    }
+
+    private static void cleanDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                cleanDirectory(file);
+            } else {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -5,7 +5,10 @@
 package com.emc.storageos.coordinator.client.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.Stat;
 import org.apache.curator.framework.api.CuratorListener;
 import org.apache.curator.framework.state.ConnectionStateListener;
@@ -76,6 +79,39 @@ public interface DistributedDataManager {
      */
     public void removeNode(String path, boolean recursive) throws Exception;
 
+    /**
+     * Creates PERSISTENT nodes at the given paths in one zookeeper transaction, in the
+     * iteration order of the map: either all the nodes are created, or none is and the
+     * KeeperException of the failed create is thrown (NodeExistsException if one of the
+     * nodes already exists, NoNodeException if a parent is missing).
+     * 
+     * @param nodes -- zookeeper paths mapped to the Serializable data of each node,
+     *            or to null for an empty node
+     * @throws Exception
+     */
+    public void createNodes(Map<String, Object> nodes) throws Exception;
+
+    /**
+     * Removes the nodes given by the paths in one zookeeper transaction, in list order:
+     * either all the nodes are removed, or none is and the KeeperException of the failed
+     * delete is thrown (NoNodeException if one of the nodes does not exist).
+     * 
+     * @param paths -- List of zookeeper paths of nodes without children.
+     * @throws Exception
+     */
+    public void removeNodes(List<String> paths) throws Exception;
+
+    /**
+     * Sets a one time watch on the node given by path, which is triggered when the node
+     * is created, removed or its data changes, or when the connection state changes.
+     * 
+     * @param path -- String zookeeper path.
+     * @param watcher -- the zookeeper Watcher to notify
+     * @return true if the node exists at the time the watch is set
+     * @throws Exception
+     */
+    public boolean watchNode(String path, Watcher watcher) throws Exception;
+
     /**
      * Stores the Java object given by data (which must be Serializable) as data of the
      * zookeeper node give by path (will create the node if necessary).
@@ -86,6 +122,21 @@ public interface DistributedDataManager {
      */
     public void putData(String path, Object data) throws Exception;
 
+    /**
+     * Stores the Java objects given by the map values (which must be Serializable) as data of the
+     * zookeeper nodes given by the map keys in one zookeeper transaction, in the iteration order of
+     * the map. The nodes whose paths are in newPaths are created (their parent must exist), and the
+     * data of the other nodes is replaced: either all the nodes are stored, or none is and the
+     * KeeperException of the failed operation is thrown (NodeExistsException if a new node already
+     * exists, NoNodeException if a node to update does not exist).
+     * 
+     * @param nodes -- zookeeper paths mapped to the Serializable data of each node,
+     *            or to null for an empty node
+     * @param newPaths -- the paths of the nodes that must be created
+     * @throws Exception
+     */
+    public void putData(Map<String, Object> nodes, Set<String> newPaths) throws Exception;
+
     /**
      * Returns the data in the zookeeper node given by path. If the node does not exist,
      * or there is no data present in the node, null is returned. The data is returned
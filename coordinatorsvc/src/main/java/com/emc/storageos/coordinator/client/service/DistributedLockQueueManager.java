@@ -51,6 +51,29 @@ public interface DistributedLockQueueManager<T> {
      */
     List<DistributedLockQueueEventListener<T>> getListeners();
 
+    /**
+     * Signal that the lock represented by lockKey has been released.  If items are queued for the lock, the
+     * {@link DistributedLockQueueReleaseListener}s are notified so the head of the queue can be handed the lock,
+     * or, when there is no such listener, the head of the queue is de-queued right away.
+     *
+     * @param lockKey   Name of the queue.
+     */
+    void lockReleased(String lockKey);
+
+    /**
+     * Return a modifiable list of {@link DistributedLockQueueReleaseListener}.
+     *
+     * @return  List of {@link DistributedLockQueueReleaseListener}
+     */
+    List<DistributedLockQueueReleaseListener> getReleaseListeners();
+
+    /**
+     * Return one line per lock key with the queue depth and the time items waited in the queue.
+     *
+     * @return  Queue statistics.
+     */
+    String[] getQueueStats();
+
     /**
      * Return all currently available lock keys that represent queues of items.
      *
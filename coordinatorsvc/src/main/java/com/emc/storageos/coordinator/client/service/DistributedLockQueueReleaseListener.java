@@ -0,0 +1,14 @@
+package com.emc.storageos.coordinator.client.service;
+
+/**
+ * Interface for listening to lock release events published through a {@link DistributedLockQueueManager}, so the
+ * item at the head of the queue of a released lock can be handed the lock without waiting for the periodic sweep.
+ */
+public interface DistributedLockQueueReleaseListener {
+    /**
+     * Event handler method, called on the thread releasing the lock, so implementations must not block.
+     *
+     * @param lockKey Name of the queue of the released lock.
+     */
+    void lockReleased(String lockKey);
+}
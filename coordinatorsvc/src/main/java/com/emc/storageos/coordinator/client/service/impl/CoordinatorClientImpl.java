@@ -30,6 +30,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
@@ -144,6 +145,8 @@ public class CoordinatorClientImpl implements CoordinatorClient {
 
     private NodeCacheWatcher nodeWatcher = new NodeCacheWatcher();
 
+    private final PropertyInfoCache propertyInfoCache = new PropertyInfoCache();
+
     private DistributedAroundHook ownerLockAroundHook;
     
     // ThreadLocal variable to hold zk transaction handler
@@ -633,6 +636,7 @@ public class CoordinatorClientImpl implements CoordinatorClient {
             CuratorTransactionFinal tx = (CuratorTransactionFinal) handler;
             tx.commit();
             zkTransactionHandler.remove();
+            propertyInfoCache.invalidate();
         } catch (Exception ex) {
             throw CoordinatorException.fatals.unableToPersistTheConfiguration(ex);
         }
@@ -676,6 +680,11 @@ public class CoordinatorClientImpl implements CoordinatorClient {
                         _zkConnection.curator().create().forPath(servicePath, config.serialize());
                     }
                 }
+                // invalidated once the new value is in ZK, so a concurrent read cannot cache the old value
+                // again; a transaction invalidates the cache when it is committed
+                if (handler == null) {
+                    propertyInfoCache.invalidateIfTargetProperty(config.getKind());
+                }
             }
         } catch (final Exception e) {
             log.error("Failed to persist service configuration e=",e);
@@ -705,6 +714,7 @@ public class CoordinatorClientImpl implements CoordinatorClient {
                     zkTransactionHandler.set(tx);
                 } else {
                     _zkConnection.curator().delete().forPath(servicePath);
+                    propertyInfoCache.invalidateIfTargetProperty(config.getKind());
                 }
             } catch (KeeperException.NoNodeException ignore) {
                 // Ignore exception, don't re-throw
@@ -1170,6 +1180,17 @@ public class CoordinatorClientImpl implements CoordinatorClient {
      */
     @Override
     public PropertyInfo getPropertyInfo() throws CoordinatorException {
+        return propertyInfoCache.get();
+    }
+
+    /**
+     * Reads the target property information from coordinator and merges it with the
+     * defaults, the site specific properties and the ovf properties
+     * 
+     * @return property object
+     * @throws CoordinatorException
+     */
+    private PropertyInfo loadPropertyInfo() throws CoordinatorException {
         PropertyInfo info = new PropertyInfo();
         Map<String, String> defaults = new HashMap<String, String>((Map) defaultProperties);
         final Configuration config = queryConfiguration(TARGET_PROPERTY, TARGET_PROPERTY_ID);
@@ -1179,9 +1200,12 @@ public class CoordinatorClientImpl implements CoordinatorClient {
         } else {
             final String infoStr = config.getConfig(TARGET_INFO);
             try {
-                Map<String,String> coordinatorProperties = new HashMap<>(decodeFromString(infoStr).getProperties());
-                log.debug("getPropertyInfo(): properties saved in coordinator=" + filterProp(coordinatorProperties));
-                info.setProperties(mergeProps(defaults, decodeFromString(infoStr).getProperties()));
+                Map<String, String> coordinatorProperties = decodeFromString(infoStr).getProperties();
+                if (log.isDebugEnabled()) {
+                    log.debug("getPropertyInfo(): properties saved in coordinator="
+                            + filterProp(new HashMap<>(coordinatorProperties)));
+                }
+                info.setProperties(mergeProps(defaults, coordinatorProperties));
             } catch (final Exception e) {
                 throw CoordinatorException.fatals.unableToDecodeDataFromCoordinator(e);
             }
@@ -1948,6 +1972,153 @@ public class CoordinatorClientImpl implements CoordinatorClient {
         return stat == null;
     }
 
+    /**
+     * @return number of getPropertyInfo() calls served from the property cache
+     */
+    public long getPropertyInfoCacheHits() {
+        return propertyInfoCache.hits.get();
+    }
+
+    /**
+     * @return number of getPropertyInfo() calls that read the properties from ZK
+     */
+    public long getPropertyInfoCacheMisses() {
+        return propertyInfoCache.misses.get();
+    }
+
+    /**
+     * @return number of times the property cache was invalidated by a watch or a local update
+     */
+    public long getPropertyInfoCacheRefreshes() {
+        return propertyInfoCache.refreshes.get();
+    }
+
+    /**
+     * Caches the merged PropertyInfo returned by getPropertyInfo(). The cache is invalidated by
+     * NodeCache watches on the target property node and the site scoped property node, by local
+     * updates of those nodes, and whenever the ZK connection is suspended or lost. While the
+     * watches are not in place, every call reads the properties from ZK.
+     */
+    class PropertyInfoCache {
+        private final AtomicLong generation = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong refreshes = new AtomicLong();
+        private final List<NodeCache> nodeCaches = new ArrayList<>();
+        private volatile CachedProperties cached;
+        private volatile boolean watching = false;
+        private volatile boolean connected = true;
+
+        public PropertyInfo get() throws CoordinatorException {
+            if (!ensureWatching()) {
+                misses.incrementAndGet();
+                return loadPropertyInfo();
+            }
+            long currentGeneration = generation.get();
+            CachedProperties current = cached;
+            if (current != null && current.generation == currentGeneration) {
+                hits.incrementAndGet();
+                return current.toPropertyInfo();
+            }
+            misses.incrementAndGet();
+            PropertyInfo info = loadPropertyInfo();
+            if (generation.get() == currentGeneration) {
+                // only cache what was read if no change was signalled while reading it
+                cached = new CachedProperties(currentGeneration, info.getProperties());
+            }
+            return info;
+        }
+
+        public void invalidate() {
+            generation.incrementAndGet();
+            cached = null;
+            refreshes.incrementAndGet();
+        }
+
+        public void invalidateIfTargetProperty(String kind) {
+            if (TARGET_PROPERTY.equals(kind)) {
+                invalidate();
+            }
+        }
+
+        private boolean ensureWatching() {
+            if (watching) {
+                return connected;
+            }
+            synchronized (this) {
+                if (watching) {
+                    return connected;
+                }
+                if (_zkConnection == null || !_zkConnection.curator().isStarted()) {
+                    return false;
+                }
+                try {
+                    _zkConnection.curator().getConnectionStateListenable()
+                            .addListener(new org.apache.curator.framework.state.ConnectionStateListener() {
+                                @Override
+                                public void stateChanged(CuratorFramework client, ConnectionState newState) {
+                                    connected = newState == ConnectionState.CONNECTED || newState == ConnectionState.RECONNECTED;
+                                    invalidate();
+                                }
+                            });
+                    watch(String.format("%s/%s", getKindPath(null, TARGET_PROPERTY), TARGET_PROPERTY_ID));
+                    watch(String.format("%s/%s", getKindPath(getSiteId(), TARGET_PROPERTY), TARGET_PROPERTY_ID));
+                    invalidate();
+                    watching = true;
+                    log.info("Started watching target properties for the property cache");
+                } catch (Exception e) {
+                    log.warn("Failed to watch target properties, property cache disabled for now", e);
+                    closeWatches();
+                    return false;
+                }
+            }
+            return connected;
+        }
+
+        private void watch(String path) throws Exception {
+            NodeCache nodeCache = new NodeCache(_zkConnection.curator(), path);
+            nodeCache.getListenable().addListener(new NodeCacheListener() {
+                @Override
+                public void nodeChanged() throws Exception {
+                    invalidate();
+                }
+            });
+            nodeCaches.add(nodeCache);
+            nodeCache.start();
+        }
+
+        private void closeWatches() {
+            for (NodeCache nodeCache : nodeCaches) {
+                try {
+                    nodeCache.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close property NodeCache", e);
+                }
+            }
+            nodeCaches.clear();
+        }
+    }
+
+    /**
+     * Immutable snapshot of the merged properties. Each caller gets its own copy since
+     * callers are free to modify the returned PropertyInfo.
+     */
+    private static class CachedProperties {
+        private final long generation;
+        private final Map<String, String> properties;
+
+        CachedProperties(long generation, Map<String, String> properties) {
+            this.generation = generation;
+            this.properties = new HashMap<>(properties);
+        }
+
+        PropertyInfo toPropertyInfo() {
+            PropertyInfo info = new PropertyInfo();
+            info.setProperties(new HashMap<>(properties));
+            return info;
+        }
+    }
+
     /**
      * To share NodeCache for listeners listening same path.
      * The empty NodeCache (counter zero) means the NodeCache should be closed.
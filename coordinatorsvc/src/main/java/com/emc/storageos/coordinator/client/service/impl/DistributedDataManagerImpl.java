@@ -8,10 +8,13 @@ package com.emc.storageos.coordinator.client.service.impl;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +26,8 @@ import com.emc.storageos.coordinator.exceptions.CoordinatorException;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.CuratorListener;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.PathChildrenCache;
 import org.apache.curator.framework.state.ConnectionStateListener;
@@ -126,6 +131,41 @@ public class DistributedDataManagerImpl implements DistributedDataManager {
         }
     }
 
+    @Override
+    public void createNodes(Map<String, Object> nodes) throws Exception {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        checkLimit();
+        CuratorTransaction tx = _zkClient.inTransaction();
+        for (Map.Entry<String, Object> node : nodes.entrySet()) {
+            checkPath(node.getKey());
+            byte[] data = (node.getValue() == null) ? new byte[0]
+                    : GenericSerializer.serialize(node.getValue(), node.getKey(), true);
+            tx = tx.create().withMode(CreateMode.PERSISTENT).forPath(node.getKey(), data).and();
+        }
+        ((CuratorTransactionFinal) tx).commit();
+    }
+
+    @Override
+    public void removeNodes(List<String> paths) throws Exception {
+        if (paths.isEmpty()) {
+            return;
+        }
+        CuratorTransaction tx = _zkClient.inTransaction();
+        for (String path : paths) {
+            checkPath(path);
+            tx = tx.delete().forPath(path).and();
+        }
+        ((CuratorTransactionFinal) tx).commit();
+    }
+
+    @Override
+    public boolean watchNode(String path, Watcher watcher) throws Exception {
+        checkPath(path);
+        return _zkClient.checkExists().usingWatcher(watcher).forPath(path) != null;
+    }
+
     @Override
     public void putData(String path, Object object) throws Exception {
         checkPath(path);
@@ -139,6 +179,28 @@ public class DistributedDataManagerImpl implements DistributedDataManager {
         }
     }
 
+    @Override
+    public void putData(Map<String, Object> nodes, Set<String> newPaths) throws Exception {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        if (!newPaths.isEmpty()) {
+            checkLimit();
+        }
+        CuratorTransaction tx = _zkClient.inTransaction();
+        for (Map.Entry<String, Object> node : nodes.entrySet()) {
+            checkPath(node.getKey());
+            byte[] data = (node.getValue() == null) ? new byte[0]
+                    : GenericSerializer.serialize(node.getValue(), node.getKey(), true);
+            if (newPaths.contains(node.getKey())) {
+                tx = tx.create().withMode(CreateMode.PERSISTENT).forPath(node.getKey(), data).and();
+            } else {
+                tx = tx.setData().forPath(node.getKey(), data).and();
+            }
+        }
+        ((CuratorTransactionFinal) tx).commit();
+    }
+
     @Override
     public Object getData(String path, boolean watch) throws Exception {
         checkPath(path);
@@ -2,6 +2,7 @@ package com.emc.storageos.coordinator.client.service.impl;
 
 import com.emc.storageos.coordinator.client.service.DistributedLockQueueEventListener;
 import com.emc.storageos.coordinator.client.service.DistributedLockQueueManager;
+import com.emc.storageos.coordinator.client.service.DistributedLockQueueReleaseListener;
 import com.emc.storageos.coordinator.common.impl.ZkConnection;
 import com.emc.storageos.coordinator.exceptions.CoordinatorException;
 import com.emc.storageos.services.util.NamedThreadPoolExecutor;
@@ -15,10 +16,14 @@ import org.apache.curator.utils.CloseableUtils;
 import org.apache.curator.utils.EnsurePath;
 import org.apache.curator.utils.ZKPaths;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -30,6 +35,9 @@ public class DistributedLockQueueManagerImpl<T> implements DistributedLockQueueM
 
     private static final Logger log = LoggerFactory.getLogger(DistributedLockQueueManagerImpl.class);
     private static final int DEFAULT_MAX_THREADS = 10;
+    // Items handed to the consumer are not handed out again by this node until this time has passed,
+    // in case the TreeCache has not seen their deletion yet
+    private static final long DISPATCHED_ITEM_RETRY_MILLIS = 10 * 60 * 1000;
 
     private String rootPath;
     private DistributedLockQueueTaskConsumer<T> consumer;
@@ -38,6 +46,12 @@ public class DistributedLockQueueManagerImpl<T> implements DistributedLockQueueM
     private TreeCache treeCache;
     private ThreadPoolExecutor workers;
     private List<DistributedLockQueueEventListener<T>> listeners;
+    private List<DistributedLockQueueReleaseListener> releaseListeners;
+    private final DistributedLockQueueStats stats = new DistributedLockQueueStats();
+    // lock key -> time of the last release of the lock, until the head of its queue is de-queued
+    private final Map<String, Long> releaseTimes = new ConcurrentHashMap<>();
+    // item path -> time the item was handed to the consumer
+    private final Map<String, Long> dispatchedItems = new ConcurrentHashMap<>();
 
     public enum Event {
         ADDED, REMOVED
@@ -113,6 +127,7 @@ public class DistributedLockQueueManagerImpl<T> implements DistributedLockQueueM
                     .withMode(CreateMode.PERSISTENT_SEQUENTIAL)
                     .forPath(taskPath, data);
 
+            stats.recordQueued(lockKey);
             notifyListeners(task, Event.ADDED);
 
             return true;
@@ -128,21 +143,34 @@ public class DistributedLockQueueManagerImpl<T> implements DistributedLockQueueM
         String lockPath = ZKPaths.makePath(rootPath, lockKey);
 
         log.info("Attempting to de-queue from {}", lockPath);
-        Map<String, ChildData> children = treeCache.getCurrentChildren(lockPath);
+        Map<String, ChildData> children = getItems(lockPath);
 
-        if (children == null || children.isEmpty()) {
+        String first = (children == null) ? null : getFirstItem(lockPath, children);
+        if (first == null) {
             log.info("Nothing to de-queue");
             return false;
         }
 
-        String first = getFirstItem(children);
         log.info("Dequeueing {}", first);
         final String fullPath = ZKPaths.makePath(lockPath, first);
-        ChildData childData = treeCache.getCurrentData(fullPath);
+        ChildData childData = getItemData(fullPath);
+        if (childData == null) {
+            log.info("{} has already been de-queued", fullPath);
+            return false;
+        }
 
         final T task = (T) GenericSerializer.deserialize(childData.getData());
         log.info("Deserialized {}", task.toString());
 
+        long now = System.currentTimeMillis();
+        dispatchedItems.put(fullPath, now);
+        stats.recordDequeued(lockKey, children.size(),
+                (childData.getStat() != null) ? now - childData.getStat().getCtime() : 0);
+        Long releaseTime = releaseTimes.remove(lockKey);
+        if (releaseTime != null) {
+            stats.recordHandoff(lockKey, now - releaseTime);
+        }
+
         consumer.startConsumeTask(task, new DistributedLockQueueTaskConsumerCallback() {
 
             @Override
@@ -156,6 +184,46 @@ public class DistributedLockQueueManagerImpl<T> implements DistributedLockQueueM
         return true;
     }
 
+    @Override
+    public void lockReleased(String lockKey) {
+        String lockPath = ZKPaths.makePath(rootPath, lockKey);
+        Map<String, ChildData> children = getItems(lockPath);
+        if (children == null || children.isEmpty()) {
+            return;
+        }
+
+        releaseTimes.put(lockKey, System.currentTimeMillis());
+        if (releaseListeners == null || releaseListeners.isEmpty()) {
+            dequeue(lockKey);
+            return;
+        }
+        for (DistributedLockQueueReleaseListener listener : releaseListeners) {
+            try {
+                listener.lockReleased(lockKey);
+            } catch (Exception e) {
+                log.error("Error occurred whilst executing a lock release listener", e);
+            }
+        }
+    }
+
+    @Override
+    public List<DistributedLockQueueReleaseListener> getReleaseListeners() {
+        if (releaseListeners == null) {
+            releaseListeners = new CopyOnWriteArrayList<>();
+        }
+        return releaseListeners;
+    }
+
+    @Override
+    public String[] getQueueStats() {
+        Map<String, Integer> depths = new HashMap<>();
+        for (String lockKey : getLockKeys()) {
+            Map<String, ChildData> children = treeCache.getCurrentChildren(ZKPaths.makePath(rootPath, lockKey));
+            depths.put(lockKey, (children == null) ? 0 : children.size());
+        }
+        return stats.getSummary(depths);
+    }
+
     @Override
     public List<DistributedLockQueueEventListener<T>> getListeners() {
         if (listeners == null) {
@@ -184,9 +252,20 @@ public class DistributedLockQueueManagerImpl<T> implements DistributedLockQueueM
     @Override
     public void removeLockKey(String lockKey) {
         String lockPath = ZKPaths.makePath(rootPath, lockKey);
+        releaseTimes.remove(lockKey);
         try {
             log.info("Deleting empty lock key path: {}", lockPath);
             zkClient.delete().guaranteed().forPath(lockPath);
+            stats.removeLockKey(lockKey);
+            String prefix = lockPath + ZKPaths.PATH_SEPARATOR;
+            Iterator<String> it = dispatchedItems.keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().startsWith(prefix)) {
+                    it.remove();
+                }
+            }
+        } catch (KeeperException.NotEmptyException e) {
+            log.info("Lock key path {} is not empty", lockPath);
         } catch (Exception e) {
             log.error("Error removing lock path: {}", lockPath, e);
         }
@@ -205,14 +284,104 @@ public class DistributedLockQueueManagerImpl<T> implements DistributedLockQueueM
      * - the sequence number is automatically generated by Zookeeper and used to prevent duplicate entries (likely
      * impossible) but will also represent the number of items added to the lock group since it was last created.
      *
-     * @param children
-     * @return the key containing the oldest timestamp in its name.
+     * Items stay in the queue until the consumer is done with them, so when the first item was recently handed to the
+     * consumer by this node, nothing is handed out: the items behind it wait for it to be consumed.  A handed out
+     * item already deleted in Zookeeper, which the TreeCache has not seen yet, is skipped.
+     *
+     * @param lockPath  Path of the queue.
+     * @param children  Items of the queue.
+     * @return the key containing the oldest timestamp in its name, or null if there is no item to hand out.
      */
-    protected String getFirstItem(Map<String, ChildData> children) {
-        SortedSet<String> sortedChildren = new TreeSet<>();
-        sortedChildren.addAll(children.keySet());
+    protected String getFirstItem(String lockPath, Map<String, ChildData> children) {
+        long now = System.currentTimeMillis();
+        String prefix = lockPath + ZKPaths.PATH_SEPARATOR;
+        Iterator<Map.Entry<String, Long>> it = dispatchedItems.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getKey().startsWith(prefix) && (!children.containsKey(ZKPaths.getNodeFromPath(entry.getKey()))
+                    || now - entry.getValue() > DISPATCHED_ITEM_RETRY_MILLIS)) {
+                it.remove();
+            }
+        }
 
-        return sortedChildren.first();
+        if (children.isEmpty()) {
+            return null;
+        }
+        SortedSet<String> sortedChildren = new TreeSet<>(children.keySet());
+        for (String child : sortedChildren) {
+            String childPath = ZKPaths.makePath(lockPath, child);
+            if (!dispatchedItems.containsKey(childPath)) {
+                return child;
+            }
+            if (itemExists(childPath)) {
+                log.info("{} is still being consumed", childPath);
+                return null;
+            }
+            dispatchedItems.remove(childPath);
+        }
+        return null;
+    }
+
+    /**
+     * @param fullPath  Path of the item.
+     * @return false if the item is known to be deleted from Zookeeper.
+     */
+    private boolean itemExists(String fullPath) {
+        try {
+            return zkClient.checkExists().forPath(fullPath) != null;
+        } catch (Exception e) {
+            log.error("Failed to read lock queue item: {}", fullPath, e);
+        }
+        return true;
+    }
+
+    /**
+     * Return the items of a queue from the TreeCache, or from Zookeeper when the TreeCache has none, since it may not
+     * have seen yet an item just queued by another node.  Items read from Zookeeper have no data in the returned Map.
+     *
+     * @param lockPath  Path of the queue.
+     * @return Map of item names to their data, or null if the queue does not exist.
+     */
+    private Map<String, ChildData> getItems(String lockPath) {
+        Map<String, ChildData> children = treeCache.getCurrentChildren(lockPath);
+        if (children != null && !children.isEmpty()) {
+            return children;
+        }
+        try {
+            Map<String, ChildData> items = new HashMap<>();
+            for (String child : zkClient.getChildren().forPath(lockPath)) {
+                items.put(child, null);
+            }
+            return items;
+        } catch (KeeperException.NoNodeException e) {
+            return null;
+        } catch (Exception e) {
+            log.error("Failed to read lock queue: {}", lockPath, e);
+            return children;
+        }
+    }
+
+    /**
+     * Return the data of an item from the TreeCache, or from Zookeeper if the TreeCache does not have it yet.
+     *
+     * @param fullPath  Path of the item.
+     * @return the item data, or null if the item does not exist.
+     */
+    private ChildData getItemData(String fullPath) {
+        ChildData childData = treeCache.getCurrentData(fullPath);
+        if (childData != null) {
+            return childData;
+        }
+        try {
+            Stat stat = new Stat();
+            byte[] data = zkClient.getData().storingStatIn(stat).forPath(fullPath);
+            return new ChildData(fullPath, stat, data);
+        } catch (KeeperException.NoNodeException e) {
+            return null;
+        } catch (Exception e) {
+            log.error("Failed to read lock queue item: {}", fullPath, e);
+        }
+        return null;
     }
 
     private boolean deleteTask(String fullPath) {
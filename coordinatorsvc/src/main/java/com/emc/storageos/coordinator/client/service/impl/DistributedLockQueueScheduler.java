@@ -3,16 +3,25 @@ package com.emc.storageos.coordinator.client.service.impl;
 import com.emc.storageos.coordinator.client.service.CoordinatorClient;
 import com.emc.storageos.coordinator.client.service.DistributedAroundHook;
 import com.emc.storageos.coordinator.client.service.DistributedLockQueueManager;
+import com.emc.storageos.coordinator.client.service.DistributedLockQueueReleaseListener;
 import com.emc.storageos.coordinator.client.service.LeaderSelectorListenerForPeriodicTask;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
 import org.apache.curator.framework.recipes.leader.LeaderSelector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
- * Scheduled periodic task runner for a {@link DistributedLockQueueManager}, to be executed exclusively on a leader
- * using leader-election.
+ * Hands the head of the queue of a released lock the lock, when the release is signalled through
+ * {@link DistributedLockQueueManager#lockReleased(String)}.  A scheduled periodic task, executed exclusively on a
+ * leader using leader-election, sweeps up to MAX_LOCK_KEYS_PER_SWEEP queues as a safety net for releases that were
+ * not signalled.
  *
  * @author Ian Bibby
  */
@@ -22,6 +31,7 @@ public class DistributedLockQueueScheduler {
     private static final String LOCKQUEUE_LEADER_PATH = "lockqueueleader";
     private static final int INITIAL_DELAY = 300; // 5 minutes
     private static final int INTERVAL = 300;
+    private static final int MAX_LOCK_KEYS_PER_SWEEP = 200;
 
     private CoordinatorClient coordinator;
     private DistributedLockQueueManager lockQueue;
@@ -29,6 +39,15 @@ public class DistributedLockQueueScheduler {
     private LeaderSelector leaderSelector;
     private LeaderSelectorListenerForPeriodicTask listener;
     private DequeueValidator validator;
+    private ThreadPoolExecutor handoffExecutor;
+    // lock keys with a handoff pending on the handoff executor
+    private final Set<String> pendingHandoffs = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final DistributedLockQueueReleaseListener releaseListener = new DistributedLockQueueReleaseListener() {
+        @Override
+        public void lockReleased(String lockKey) {
+            scheduleHandoff(lockKey);
+        }
+    };
 
     public void setCoordinator(CoordinatorClient coordinator) {
         this.coordinator = coordinator;
@@ -43,6 +62,9 @@ public class DistributedLockQueueScheduler {
     }
 
     public void start() {
+        handoffExecutor = new NamedThreadPoolExecutor("LockQueueHandoff", 1);
+        lockQueue.getReleaseListeners().add(releaseListener);
+
         listener = new LeaderSelectorListenerForPeriodicTask(new LockQueuePeriodicTask(), INITIAL_DELAY, INTERVAL);
         leaderSelector = coordinator.getLeaderSelector(LOCKQUEUE_LEADER_PATH, listener);
         leaderSelector.autoRequeue();
@@ -51,6 +73,8 @@ public class DistributedLockQueueScheduler {
 
     public void stop() {
         leaderSelector.close();
+        lockQueue.getReleaseListeners().remove(releaseListener);
+        handoffExecutor.shutdownNow();
     }
 
     public DequeueValidator getValidator() {
@@ -66,6 +90,62 @@ public class DistributedLockQueueScheduler {
         }
     }
 
+    /**
+     * Queue a handoff for the lock key, unless one is already pending.
+     *
+     * @param lockKey the lock key of the released lock
+     */
+    private void scheduleHandoff(final String lockKey) {
+        if (!pendingHandoffs.add(lockKey)) {
+            return;
+        }
+        try {
+            handoffExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    pendingHandoffs.remove(lockKey);
+                    handOff(lockKey);
+                }
+            });
+        } catch (Exception e) {
+            pendingHandoffs.remove(lockKey);
+            log.error("Failed to schedule the handoff of lock {}", lockKey, e);
+        }
+    }
+
+    /**
+     * De-queue the head of the queue of a lock key if the lock is available, or remove the lock key if its queue
+     * is empty.
+     *
+     * @param lockKey the lock key
+     */
+    private void handOff(final String lockKey) {
+        try {
+            log.info("Dequeueing HEAD from lock group: {}", lockKey);
+            DistributedAroundHook aroundHook = coordinator.getDistributedOwnerLockAroundHook();
+
+            aroundHook.run(new DistributedAroundHook.Action<Void>() {
+                @Override
+                public Void run() {
+                    // Before this method runs, the globalLock will be acquired
+                    if (getValidator().validate(lockKey)) {
+                        if (!lockQueue.dequeue(lockKey)) {
+                            // Nothing was de-queued (empty) so try and remove it
+                            lockQueue.removeLockKey(lockKey);
+                        }
+                    } else {
+                        log.info("Skipping as lock is unavailable");
+                    }
+                    // After this method runs, the globalLock will be released
+                    return null;
+                }
+            });
+
+        } catch (Exception e) {
+            log.error("Error occurred whilst processing locks", e);
+        }
+    }
+
     private class LockQueuePeriodicTask implements Runnable {
 
         @Override
@@ -79,32 +159,20 @@ public class DistributedLockQueueScheduler {
                     return;
                 }
 
-                log.info("Number of locks to process: {}", lockKeys.size());
-                for (final String lockKey : lockKeys) {
-                    try {
-                        log.info("Dequeueing HEAD from lock group: {}", lockKey);
-                        DistributedAroundHook aroundHook = coordinator.getDistributedOwnerLockAroundHook();
-
-                        aroundHook.run(new DistributedAroundHook.Action<Void>() {
-                            @Override
-                            public Void run() {
-                                // Before this method runs, the globalLock will be acquired
-                                if (getValidator().validate(lockKey)) {
-                                    if (!lockQueue.dequeue(lockKey)) {
-                                        // Nothing was de-queued (empty) so try and remove it
-                                        lockQueue.removeLockKey(lockKey);
-                                    }
-                                } else {
-                                    log.info("Skipping as lock is unavailable");
-                                }
-                                // After this method runs, the globalLock will be released
-                                return null;
-                            }
-                        });
-
-                    } catch (Exception e) {
-                        log.error("Error occurred whilst processing locks", e);
-                    }
+                List<String> keys = new ArrayList<String>(lockKeys);
+                if (keys.size() > MAX_LOCK_KEYS_PER_SWEEP) {
+                    // Released locks are handed off when the release is signalled, so only sweep a random subset
+                    Collections.shuffle(keys);
+                    keys = keys.subList(0, MAX_LOCK_KEYS_PER_SWEEP);
+                }
+
+                log.info("Number of locks to process: {} of {}", keys.size(), lockKeys.size());
+                for (String lockKey : keys) {
+                    handOff(lockKey);
+                }
+
+                for (String line : lockQueue.getQueueStats()) {
+                    log.info("Lock queue stats {}", line);
                 }
             } catch (Exception e) {
                 log.error("Unexpected exception", e);
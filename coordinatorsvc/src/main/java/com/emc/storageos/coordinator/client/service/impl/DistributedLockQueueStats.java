@@ -0,0 +1,159 @@
+package com.emc.storageos.coordinator.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per lock key statistics of a {@link DistributedLockQueueManagerImpl}: the number of items queued and de-queued,
+ * the largest queue depth seen, the time items waited in the queue, and the time from a lock release to the
+ * de-queue of the next item. The statistics of a lock key are dropped when its queue is removed; at most
+ * MAX_LOCK_KEYS lock keys are tracked at a time, the others are counted under OTHER_KEY.
+ */
+public class DistributedLockQueueStats {
+    static final String OTHER_KEY = "other";
+    static final int MAX_LOCK_KEYS = 256;
+
+    private final ConcurrentHashMap<String, KeyStats> keys = new ConcurrentHashMap<String, KeyStats>();
+
+    /**
+     * Statistics of the queue of one lock key
+     */
+    public static class KeyStats {
+        private long queued;
+        private long dequeued;
+        private long maxDepth;
+        private long totalWaitMillis;
+        private long maxWaitMillis;
+        private long handoffs;
+        private long totalHandoffMillis;
+        private long maxHandoffMillis;
+
+        public synchronized long getQueued() {
+            return queued;
+        }
+
+        public synchronized long getDequeued() {
+            return dequeued;
+        }
+
+        public synchronized long getMaxDepth() {
+            return maxDepth;
+        }
+
+        public synchronized long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public synchronized long getMeanWaitMillis() {
+            return dequeued == 0 ? 0 : totalWaitMillis / dequeued;
+        }
+
+        public synchronized long getHandoffs() {
+            return handoffs;
+        }
+
+        public synchronized long getMaxHandoffMillis() {
+            return maxHandoffMillis;
+        }
+
+        public synchronized long getMeanHandoffMillis() {
+            return handoffs == 0 ? 0 : totalHandoffMillis / handoffs;
+        }
+
+        private synchronized void recordQueued() {
+            queued++;
+        }
+
+        private synchronized void recordDequeued(int depth, long waitMillis) {
+            dequeued++;
+            maxDepth = Math.max(maxDepth, depth);
+            totalWaitMillis += waitMillis;
+            maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+        }
+
+        private synchronized void recordHandoff(long handoffMillis) {
+            handoffs++;
+            totalHandoffMillis += handoffMillis;
+            maxHandoffMillis = Math.max(maxHandoffMillis, handoffMillis);
+        }
+    }
+
+    public KeyStats getKeyStats(String lockKey) {
+        KeyStats stats = keys.get(lockKey);
+        if (stats == null) {
+            String key = lockKey;
+            if (keys.size() >= MAX_LOCK_KEYS) {
+                key = OTHER_KEY;
+                stats = keys.get(key);
+            }
+            if (stats == null) {
+                stats = new KeyStats();
+                KeyStats existing = keys.putIfAbsent(key, stats);
+                if (existing != null) {
+                    stats = existing;
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Count an item added to the queue of a lock key
+     *
+     * @param lockKey lock key
+     */
+    public void recordQueued(String lockKey) {
+        getKeyStats(lockKey).recordQueued();
+    }
+
+    /**
+     * Record the de-queue of the head of the queue of a lock key
+     *
+     * @param lockKey lock key
+     * @param depth number of items in the queue, including the de-queued one
+     * @param waitMillis time since the item was queued
+     */
+    public void recordDequeued(String lockKey, int depth, long waitMillis) {
+        getKeyStats(lockKey).recordDequeued(depth, Math.max(0, waitMillis));
+    }
+
+    /**
+     * Record the time from the release of a lock until the head of its queue was de-queued
+     *
+     * @param lockKey lock key
+     * @param handoffMillis time since the lock was released
+     */
+    public void recordHandoff(String lockKey, long handoffMillis) {
+        getKeyStats(lockKey).recordHandoff(Math.max(0, handoffMillis));
+    }
+
+    /**
+     * @param depths current queue depth per lock key, may be null
+     * @return one line per lock key with the counts, the queue depths and the wait times
+     */
+    public String[] getSummary(Map<String, Integer> depths) {
+        List<String> lines = new ArrayList<String>();
+        for (Map.Entry<String, KeyStats> entry : new TreeMap<String, KeyStats>(keys).entrySet()) {
+            KeyStats stats = entry.getValue();
+            Integer depth = (depths != null) ? depths.get(entry.getKey()) : null;
+            lines.add(String.format("%s: depth=%d maxDepth=%d queued=%d dequeued=%d meanWait=%dms maxWait=%dms " +
+                    "handoffs=%d meanHandoff=%dms maxHandoff=%dms",
+                    entry.getKey(), depth == null ? 0 : depth, stats.getMaxDepth(), stats.getQueued(),
+                    stats.getDequeued(), stats.getMeanWaitMillis(), stats.getMaxWaitMillis(), stats.getHandoffs(),
+                    stats.getMeanHandoffMillis(), stats.getMaxHandoffMillis()));
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Drop the statistics of a lock key whose queue was removed
+     *
+     * @param lockKey lock key
+     */
+    public void removeLockKey(String lockKey) {
+        keys.remove(lockKey);
+    }
+}
@@ -6,8 +6,11 @@
 package com.emc.storageos.coordinator.client.service.impl;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +19,8 @@ import com.emc.storageos.coordinator.client.service.DistributedDataManager;
 import com.emc.storageos.coordinator.common.impl.ZkConnection;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.CuratorListener;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.framework.state.ConnectionStateListener;
 
 /**
@@ -83,6 +88,37 @@ public class WorkflowDataManagerImpl implements DistributedDataManager {
         }
     }
 
+    @Override
+    public void createNodes(Map<String, Object> nodes) throws Exception {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        CuratorTransaction tx = _zkClient.inTransaction();
+        for (Map.Entry<String, Object> node : nodes.entrySet()) {
+            byte[] data = (node.getValue() == null) ? new byte[0]
+                    : GenericSerializer.serialize(node.getValue(), node.getKey(), true);
+            tx = tx.create().withMode(CreateMode.PERSISTENT).forPath(node.getKey(), data).and();
+        }
+        ((CuratorTransactionFinal) tx).commit();
+    }
+
+    @Override
+    public void removeNodes(List<String> paths) throws Exception {
+        if (paths.isEmpty()) {
+            return;
+        }
+        CuratorTransaction tx = _zkClient.inTransaction();
+        for (String path : paths) {
+            tx = tx.delete().forPath(path).and();
+        }
+        ((CuratorTransactionFinal) tx).commit();
+    }
+
+    @Override
+    public boolean watchNode(String path, Watcher watcher) throws Exception {
+        return _zkClient.checkExists().usingWatcher(watcher).forPath(path) != null;
+    }
+
     @Override
     public void putData(String path, Object object) throws Exception {
         Stat stat = checkExists(path);
@@ -94,6 +130,24 @@ public class WorkflowDataManagerImpl implements DistributedDataManager {
         }
     }
 
+    @Override
+    public void putData(Map<String, Object> nodes, Set<String> newPaths) throws Exception {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        CuratorTransaction tx = _zkClient.inTransaction();
+        for (Map.Entry<String, Object> node : nodes.entrySet()) {
+            byte[] data = (node.getValue() == null) ? new byte[0]
+                    : GenericSerializer.serialize(node.getValue(), node.getKey(), true);
+            if (newPaths.contains(node.getKey())) {
+                tx = tx.create().withMode(CreateMode.PERSISTENT).forPath(node.getKey(), data).and();
+            } else {
+                tx = tx.setData().forPath(node.getKey(), data).and();
+            }
+        }
+        ((CuratorTransactionFinal) tx).commit();
+    }
+
     @Override
     public Object getData(String path, boolean watch) throws Exception {
         Stat stat = checkExists(path);
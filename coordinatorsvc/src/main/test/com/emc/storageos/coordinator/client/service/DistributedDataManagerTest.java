@@ -5,6 +5,12 @@
 
 package com.emc.storageos.coordinator.client.service;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import junit.framework.Assert;
 import org.junit.After;
 import org.junit.Before;
@@ -45,4 +51,33 @@ public class DistributedDataManagerTest extends CoordinatorTestBase {
         }
         Assert.assertTrue(isExpected);
     }
+
+    @Test
+    public void testWorkflowDataManagerPutDataWithNullValues() throws Exception {
+        DistributedDataManager workflowDataManager = client.getWorkflowDataManager();
+        String parentPath = "/workflowdatamanagertest";
+        String emptyPath = parentPath + "/empty";
+        String valuePath = parentPath + "/value";
+        workflowDataManager.createNode(parentPath, false);
+        try {
+            // new nodes with and without a value are created in one transaction
+            Map<String, Object> nodes = new HashMap<String, Object>();
+            nodes.put(emptyPath, null);
+            nodes.put(valuePath, "value");
+            Set<String> newPaths = new HashSet<String>(nodes.keySet());
+            workflowDataManager.putData(nodes, newPaths);
+            Assert.assertNotNull(workflowDataManager.checkExists(emptyPath));
+            Assert.assertNull(workflowDataManager.getData(emptyPath, false));
+            Assert.assertEquals("value", workflowDataManager.getData(valuePath, false));
+
+            // and a null value overwrites an existing node with an empty one
+            nodes.put(emptyPath, "value");
+            nodes.put(valuePath, null);
+            workflowDataManager.putData(nodes, Collections.<String> emptySet());
+            Assert.assertEquals("value", workflowDataManager.getData(emptyPath, false));
+            Assert.assertNull(workflowDataManager.getData(valuePath, false));
+        } finally {
+            workflowDataManager.removeNode(parentPath, true);
+        }
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.coordinator.client.service;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.coordinator.client.service.impl.DistributedLockQueueScheduler;
+import com.emc.storageos.coordinator.client.service.impl.DistributedLockQueueTaskConsumer;
+import com.emc.storageos.coordinator.client.service.impl.DistributedLockQueueTaskConsumerCallback;
+
+/**
+ * Queues items on a lock key and measures the time from each release of the lock to the de-queue of the next
+ * item, which is handed off on the release event rather than by the periodic sweep.
+ */
+public class DistributedLockQueueHandoffTest extends CoordinatorTestBase {
+    private static final Logger _logger = LoggerFactory.getLogger(DistributedLockQueueHandoffTest.class);
+    private static final String LOCK_KEY = "handoffTestLock";
+    private static final int ITEM_COUNT = 20;
+    private static final int DEQUEUE_TIMEOUT_SECONDS = 30;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReleaseToDequeueLatency() throws Exception {
+        CoordinatorClient client = connectClient();
+        setAroundHook(client);
+
+        final AtomicBoolean lockAvailable = new AtomicBoolean(false);
+        final BlockingQueue<String> dequeued = new LinkedBlockingQueue<String>();
+        DistributedLockQueueTaskConsumer<String> consumer = new DistributedLockQueueTaskConsumer<String>() {
+            @Override
+            public void consumeTask(String task, DistributedLockQueueTaskConsumerCallback callback) {
+                // the dequeued item takes the lock, and leaves the queue before the next release
+                lockAvailable.set(false);
+                callback.taskConsumed();
+                dequeued.add(task);
+            }
+        };
+        consumer.start();
+        DistributedLockQueueManager<String> lockQueue = client.getLockQueue(consumer);
+
+        DistributedLockQueueScheduler scheduler = new DistributedLockQueueScheduler();
+        scheduler.setCoordinator(client);
+        scheduler.setLockQueue(lockQueue);
+        scheduler.setValidator(new DistributedLockQueueScheduler.DequeueValidator() {
+            @Override
+            public boolean validate(String lockKey) {
+                return lockAvailable.get();
+            }
+        });
+        scheduler.start();
+
+        try {
+            for (int i = 0; i < ITEM_COUNT; i++) {
+                Assert.assertTrue(lockQueue.queue(LOCK_KEY, String.format("item%04d", i)));
+            }
+
+            long totalNanos = 0;
+            long maxNanos = 0;
+            for (int i = 0; i < ITEM_COUNT; i++) {
+                lockAvailable.set(true);
+                long start = System.nanoTime();
+                lockQueue.lockReleased(LOCK_KEY);
+                String item = dequeued.poll(DEQUEUE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                long latency = System.nanoTime() - start;
+                Assert.assertNotNull("No item was de-queued after the lock release", item);
+                // items are handed off in the order they were queued, once each
+                Assert.assertTrue(item.startsWith(String.format("item%04d", i)));
+                totalNanos += latency;
+                maxNanos = Math.max(maxNanos, latency);
+            }
+            _logger.info("Release to de-queue latency over {} releases: mean {} ms, max {} ms", new Object[] { ITEM_COUNT,
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos / ITEM_COUNT), TimeUnit.NANOSECONDS.toMillis(maxNanos) });
+
+            // the queue is drained, a release hands nothing off
+            lockAvailable.set(true);
+            lockQueue.lockReleased(LOCK_KEY);
+            Assert.assertNull(dequeued.poll(1, TimeUnit.SECONDS));
+
+            String[] stats = lockQueue.getQueueStats();
+            boolean found = false;
+            for (String line : stats) {
+                _logger.info("Lock queue stats {}", line);
+                if (line.startsWith(LOCK_KEY + ":")) {
+                    Assert.assertTrue(line.contains("dequeued=" + ITEM_COUNT));
+                    Assert.assertTrue(line.contains("handoffs=" + ITEM_COUNT));
+                    found = true;
+                }
+            }
+            Assert.assertTrue(found);
+        } finally {
+            scheduler.stop();
+            lockQueue.stop();
+            consumer.stop();
+        }
+    }
+
+    /**
+     * An item handed off stays at the head of the queue until consumed, the items behind it are not handed off before.
+     * The statistics of a lock key are dropped with its queue.
+     */
+    @Test
+    public void testHeadBeingConsumedBlocksQueue() throws Exception {
+        CoordinatorClient client = connectClient();
+        setAroundHook(client);
+
+        final String lockKey = "fifoTestLock";
+        final BlockingQueue<String> dequeued = new LinkedBlockingQueue<String>();
+        final BlockingQueue<DistributedLockQueueTaskConsumerCallback> callbacks =
+                new LinkedBlockingQueue<DistributedLockQueueTaskConsumerCallback>();
+        DistributedLockQueueTaskConsumer<String> consumer = new DistributedLockQueueTaskConsumer<String>() {
+            @Override
+            public void consumeTask(String task, DistributedLockQueueTaskConsumerCallback callback) {
+                callbacks.add(callback);
+                dequeued.add(task);
+            }
+        };
+        consumer.start();
+        DistributedLockQueueManager<String> lockQueue = client.getLockQueue(consumer);
+
+        try {
+            Assert.assertTrue(lockQueue.queue(lockKey, "item0000"));
+            Assert.assertTrue(lockQueue.queue(lockKey, "item0001"));
+
+            lockQueue.lockReleased(lockKey);
+            String item = dequeued.poll(DEQUEUE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Assert.assertNotNull(item);
+            Assert.assertTrue(item.startsWith("item0000"));
+
+            // the first item is not consumed yet
+            lockQueue.lockReleased(lockKey);
+            Assert.assertNull(dequeued.poll(1, TimeUnit.SECONDS));
+
+            callbacks.take().taskConsumed();
+            lockQueue.lockReleased(lockKey);
+            item = dequeued.poll(DEQUEUE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Assert.assertNotNull(item);
+            Assert.assertTrue(item.startsWith("item0001"));
+            callbacks.take().taskConsumed();
+
+            lockQueue.removeLockKey(lockKey);
+            for (String line : lockQueue.getQueueStats()) {
+                Assert.assertFalse(line.startsWith(lockKey + ":"));
+            }
+        } finally {
+            lockQueue.stop();
+            consumer.stop();
+        }
+    }
+
+    private static void setAroundHook(CoordinatorClient client) {
+        client.setDistributedOwnerLockAroundHook(new DistributedAroundHook<Void>() {
+            @Override
+            public boolean before() {
+                return true;
+            }
+
+            @Override
+            public void after() {
+            }
+        });
+    }
+}
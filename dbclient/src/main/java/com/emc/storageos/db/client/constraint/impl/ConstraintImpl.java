@@ -8,11 +8,13 @@ package com.emc.storageos.db.client.constraint.impl;
 import java.net.URI;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
 import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.model.ColumnList;
 import com.netflix.astyanax.query.RowQuery;
@@ -37,6 +39,11 @@ public abstract class ConstraintImpl <T extends CompositeIndexColumnName> implem
     protected int pageCount = DEFAULT_PAGE_SIZE;
     protected boolean returnOnePage;
 
+    // largest page of an auto paginated query, whose pages grow as they are consumed; pages are fixed
+    // when not larger than pageCount
+    protected int maxPageCount;
+    protected Executor prefetchExecutor;
+
     protected AnnotatedCompositeSerializer<T> indexSerializer;
 
     public ConstraintImpl(Object... arguments) {
@@ -103,6 +110,18 @@ public abstract class ConstraintImpl <T extends CompositeIndexColumnName> implem
         return pageCount;
     }
 
+    /**
+     * Let the auto paginated query grow its page size from pageCount up to maxPageCount
+     * as the caller consumes the pages, for the constraints which support it, see genRange
+     *
+     * @param maxPageCount the largest page size
+     * @param prefetchExecutor executor fetching the next page while the caller consumes the current one, or null
+     */
+    public void setAdaptivePaging(int maxPageCount, Executor prefetchExecutor) {
+        this.maxPageCount = maxPageCount;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
     @Override
     public <T> void execute(final Constraint.QueryResult<T> result) {
         try {
@@ -122,9 +141,24 @@ public abstract class ConstraintImpl <T extends CompositeIndexColumnName> implem
 
     protected abstract RowQuery<String, T> genQuery();
 
+    /**
+     * The column range of the query made by genQuery, for the constraints which can be paged
+     * adaptively
+     *
+     * @return the column range, or null
+     */
+    protected ByteBufferRange genRange() {
+        return null;
+    }
+
     protected <T1> void queryWithAutoPaginate(RowQuery<String, T> query, final QueryResult<T1> result) {
-        query.autoPaginate(true);
         QueryHitIterator<T1, T> it = getQueryHitIterator(query, result);
+        ByteBufferRange range = (maxPageCount > pageCount) ? genRange() : null;
+        if (range != null) {
+            it.setAdaptivePaging(range, maxPageCount, prefetchExecutor);
+        } else {
+            query.autoPaginate(true);
+        }
         it.prime();
         result.setResult(it);
     }
@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
 import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.query.RowQuery;
 import com.emc.storageos.db.client.constraint.ContainmentConstraint;
@@ -46,14 +47,19 @@ public class ContainmentConstraintImpl extends ConstraintImpl<IndexColumnName> i
         RowQuery<String, IndexColumnName> query = _keyspace
                 .prepareQuery(_field.getIndexCF())
                 .getKey(_indexKey.toString())
-                .withColumnRange(
-                        CompositeColumnNameSerializer.get().buildRange()
-                                .greaterThanEquals(_entryType.getSimpleName())
-                                .lessThanEquals(_entryType.getSimpleName())
-                                .limit(pageCount));
+                .withColumnRange(genRange());
         return query;
     }
 
+    @Override
+    protected ByteBufferRange genRange() {
+        return CompositeColumnNameSerializer.get().buildRange()
+                .greaterThanEquals(_entryType.getSimpleName())
+                .lessThanEquals(_entryType.getSimpleName())
+                .limit(pageCount)
+                .build();
+    }
+
     @Override
     protected <T> void queryOnePage(final QueryResult<T> result) throws ConnectionException {
         RowQuery<String, IndexColumnName> query = _keyspace.prepareQuery(_field.getIndexCF()).getKey(_indexKey.toString());
@@ -10,6 +10,7 @@ import com.emc.storageos.db.client.impl.IndexColumnNameSerializer;
 
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
 import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.query.RowQuery;
 
@@ -59,11 +60,16 @@ public class ContainmentLabelConstraintImpl extends ConstraintImpl<IndexColumnNa
     protected RowQuery<String, IndexColumnName> genQuery() {
         RowQuery<String, IndexColumnName> query = _keyspace.prepareQuery(_field.getIndexCF())
                 .getKey(_indexKey.toString())
-                .withColumnRange(_field.buildMatchRange(_prefix, pageCount));
+                .withColumnRange(genRange());
 
         return query;
     }
 
+    @Override
+    protected ByteBufferRange genRange() {
+        return _field.buildMatchRange(_prefix, pageCount);
+    }
+
     @Override
     public Class<? extends DataObject> getDataObjectType() {
         return _field.getDataObjectType();
@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
 import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.query.RowQuery;
 
@@ -55,11 +56,16 @@ public class ContainmentPrefixConstraintImpl extends ConstraintImpl<IndexColumnN
     protected RowQuery<String, IndexColumnName> genQuery() {
         RowQuery<String, IndexColumnName> query = _keyspace.prepareQuery(_field.getIndexCF())
                 .getKey(_indexKey.toString())
-                .withColumnRange(_field.buildPrefixRange(_prefix, pageCount));
+                .withColumnRange(genRange());
 
         return query;
     }
 
+    @Override
+    protected ByteBufferRange genRange() {
+        return _field.buildPrefixRange(_prefix, pageCount);
+    }
+
     @Override
     protected URI getURI(Column<IndexColumnName> col) {
         return URI.create(col.getName().getFour());
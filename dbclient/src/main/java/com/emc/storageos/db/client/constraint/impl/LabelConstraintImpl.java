@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
 import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.query.RowQuery;
 import com.emc.storageos.db.client.constraint.PrefixConstraint;
@@ -73,11 +74,16 @@ public class LabelConstraintImpl extends ConstraintImpl<IndexColumnName> impleme
     protected RowQuery<String, IndexColumnName> genQuery() {
         RowQuery<String, IndexColumnName> query = _keyspace.prepareQuery(_field.getIndexCF())
                 .getKey(_field.getPrefixIndexRowKey(_label))
-                .withColumnRange(_field.buildMatchRange(_label.getLabel(), pageCount));
+                .withColumnRange(genRange());
 
         return query;
     }
 
+    @Override
+    protected ByteBufferRange genRange() {
+        return _field.buildMatchRange(_label.getLabel(), pageCount);
+    }
+
     @Override
     public Class<? extends DataObject> getDataObjectType() {
         return _field.getDataObjectType();
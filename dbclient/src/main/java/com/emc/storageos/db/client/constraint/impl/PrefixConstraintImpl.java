@@ -9,6 +9,7 @@ import java.net.URI;
 
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
 import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.query.RowQuery;
 
@@ -61,11 +62,16 @@ public class PrefixConstraintImpl extends ConstraintImpl<IndexColumnName> implem
     protected RowQuery<String, IndexColumnName> genQuery() {
         RowQuery<String, IndexColumnName> query = _keyspace.prepareQuery(_field.getIndexCF())
                 .getKey(_field.getPrefixIndexRowKey(_label))
-                .withColumnRange(_field.buildPrefixRange(_label.getLabel(), pageCount));
+                .withColumnRange(genRange());
 
         return query;
     }
 
+    @Override
+    protected ByteBufferRange genRange() {
+        return _field.buildPrefixRange(_label.getLabel(), pageCount);
+    }
+
     @Override
     protected URI getURI(Column<IndexColumnName> col) {
         return URI.create(col.getName().getFour());
@@ -5,10 +5,19 @@
 
 package com.emc.storageos.db.client.constraint.impl;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
 import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.model.ColumnList;
 import com.netflix.astyanax.query.RowQuery;
@@ -18,16 +27,46 @@ import com.emc.storageos.db.exceptions.DatabaseException;
 
 /**
  * QueryHit iterator
+ *
+ * By default the query auto paginates with the page size of its range. With adaptive paging, the iterator
+ * pages through the range itself: the first page has the size of the range limit, and the page size doubles
+ * with each page the caller goes through, up to a maximum, so short scans stay cheap and long scans make
+ * few round trips. The next page may also be fetched by a prefetch executor while the caller consumes the
+ * current one.
  */
 public abstract class QueryHitIterator<T1, T2 extends CompositeIndexColumnName>
         implements Iterator<T1> {
     protected RowQuery<String, T2> _query;
     protected Iterator<Column<T2>> _currentIt;
 
+    // adaptive paging, when _range is set
+    private ByteBufferRange _range;
+    private int _pageSize;
+    private int _maxPageSize;
+    private Executor _prefetchExecutor;
+    private ByteBuffer _lastColumnName;
+    private boolean _lastPage;
+    private FutureTask<List<Column<T2>>> _nextPage;
+
     public QueryHitIterator(RowQuery<String, T2> query) {
         _query = query;
     }
 
+    /**
+     * Page through the given range instead of letting the query auto paginate.
+     * Must be called before prime.
+     *
+     * @param range the column range of the query, whose limit is the size of the first page
+     * @param maxPageSize the largest page size
+     * @param prefetchExecutor executor fetching the next page ahead of the caller, or null
+     */
+    public void setAdaptivePaging(ByteBufferRange range, int maxPageSize, Executor prefetchExecutor) {
+        _range = range;
+        _pageSize = range.getLimit();
+        _maxPageSize = Math.max(maxPageSize, _pageSize);
+        _prefetchExecutor = prefetchExecutor;
+    }
+
     public void prime() {
         runQuery();
     }
@@ -35,6 +74,14 @@ public abstract class QueryHitIterator<T1, T2 extends CompositeIndexColumnName>
     protected void runQuery() {
         _currentIt = null;
 
+        if (_range != null) {
+            List<Column<T2>> page = nextPage();
+            if (!page.isEmpty()) {
+                _currentIt = page.iterator();
+            }
+            return;
+        }
+
         ColumnList<T2> result;
 
         try {
@@ -48,6 +95,89 @@ public abstract class QueryHitIterator<T1, T2 extends CompositeIndexColumnName>
         }
     }
 
+    /**
+     * Get the next page, prefetched or not, and start prefetching the one after
+     */
+    private List<Column<T2>> nextPage() {
+        List<Column<T2>> page;
+        // the paging state is updated by the prefetch, so it is only read once the prefetch is done
+        if (_nextPage != null) {
+            page = getPrefetchedPage();
+        } else if (_lastPage) {
+            return new ArrayList<Column<T2>>();
+        } else {
+            page = fetchPage();
+        }
+
+        if (!_lastPage && _prefetchExecutor != null) {
+            _nextPage = new FutureTask<List<Column<T2>>>(new Callable<List<Column<T2>>>() {
+                @Override
+                public List<Column<T2>> call() {
+                    return fetchPage();
+                }
+            });
+            try {
+                _prefetchExecutor.execute(_nextPage);
+            } catch (RejectedExecutionException e) {
+                // fetched by the caller when needed
+                _nextPage = null;
+            }
+        }
+        return page;
+    }
+
+    private List<Column<T2>> getPrefetchedPage() {
+        FutureTask<List<Column<T2>>> nextPage = _nextPage;
+        _nextPage = null;
+        try {
+            return nextPage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            nextPage.cancel(true);
+            throw new IllegalStateException("Interrupted while fetching the next page of query hits", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Fetch the page after the last column fetched, then double the page size
+     */
+    private List<Column<T2>> fetchPage() {
+        boolean firstPage = (_lastColumnName == null);
+        // the pages after the first one start with the last column of the previous page
+        int count = firstPage ? _pageSize : _pageSize + 1;
+        ByteBuffer start = firstPage ? _range.getStart() : _lastColumnName;
+
+        ColumnList<T2> result;
+        try {
+            result = _query.withColumnRange(start, _range.getEnd(), _range.isReversed(), count).execute().getResult();
+        } catch (final ConnectionException e) {
+            throw DatabaseException.retryables.connectionFailed(e);
+        }
+
+        List<Column<T2>> page = new ArrayList<Column<T2>>(result.size());
+        boolean first = true;
+        for (Column<T2> column : result) {
+            if (first && !firstPage && _lastColumnName.equals(column.getRawName())) {
+                first = false;
+                continue;
+            }
+            first = false;
+            page.add(column);
+        }
+
+        _lastPage = result.size() < count;
+        if (!result.isEmpty()) {
+            _lastColumnName = result.getColumnByIndex(result.size() - 1).getRawName().duplicate();
+        }
+        _pageSize = Math.min(_pageSize * 2, _maxPageSize);
+        return page;
+    }
+
     @Override
     public boolean hasNext() {
         if (_currentIt == null) {
@@ -87,6 +87,7 @@ public class ColumnField <T extends CompositeIndexColumnName> {
 
     private final DataObjectType _parentType;
     private final PropertyDescriptor _property;
+    private final PropertyAccessor _accessor;
     private String _name;
     private ColumnType _colType;
     private final Class _valueType;
@@ -140,6 +141,7 @@ public class ColumnField <T extends CompositeIndexColumnName> {
         _parentType = doType;
         _property = pd;
         _valueType = _property.getPropertyType();
+        _accessor = new PropertyAccessor(pd);
         processProperty();
     }
 
@@ -152,6 +154,15 @@ public class ColumnField <T extends CompositeIndexColumnName> {
         return _property;
     }
 
+    /**
+     * Get the accessor used to read and write this field of data objects
+     * 
+     * @return
+     */
+    public PropertyAccessor getAccessor() {
+        return _accessor;
+    }
+
     /**
      * Column type
      * 
@@ -306,7 +317,7 @@ public class ColumnField <T extends CompositeIndexColumnName> {
         if (_encrypt && _parentType.getEncryptionProvider() != null) {
             deserializeEncryptedColumn(column, obj, _parentType.getEncryptionProvider());
         } else {
-            ColumnValue.setField(column, _property, obj);
+            ColumnValue.setField(column, _accessor, obj);
         }
     }
 
@@ -327,7 +338,7 @@ public class ColumnField <T extends CompositeIndexColumnName> {
         if (encryptionProvider == null) {
             throw new IllegalArgumentException("null encryption provider");
         }
-        ColumnValue.setEncryptedStringField(column, _property, obj, encryptionProvider);
+        ColumnValue.setEncryptedStringField(column, _accessor, obj, encryptionProvider);
     }
 
     /**
@@ -428,11 +439,11 @@ public class ColumnField <T extends CompositeIndexColumnName> {
         try {
             String id = obj.getId().toString();
 
-            if (isLazyLoaded() || _property.getReadMethod() == null) {
+            if (isLazyLoaded() || !_accessor.isReadable()) {
                 return false;
             }
 
-            Object val = _property.getReadMethod().invoke(obj);
+            Object val = _accessor.get(obj);
             if (val == null) {
                 return false;
             }
@@ -560,8 +571,6 @@ public class ColumnField <T extends CompositeIndexColumnName> {
             return changed;
         } catch (final InvocationTargetException e) {
             throw DatabaseException.fatals.serializationFailedId(obj.getId(), e);
-        } catch (final IllegalAccessException e) {
-            throw DatabaseException.fatals.serializationFailedId(obj.getId(), e);
         }
     }
 
@@ -647,7 +656,7 @@ public class ColumnField <T extends CompositeIndexColumnName> {
      */
     public void setChanged(DataObject obj) {
         try {
-            Object val = _property.getReadMethod().invoke(obj);
+            Object val = _accessor.get(obj);
             if (val == null) {
                 return;
             }
@@ -678,8 +687,6 @@ public class ColumnField <T extends CompositeIndexColumnName> {
             }
         } catch (final InvocationTargetException e) {
             throw DatabaseException.fatals.serializationFailedId(obj.getId(), e);
-        } catch (final IllegalAccessException e) {
-            throw DatabaseException.fatals.serializationFailedId(obj.getId(), e);
         }
     }
 
@@ -838,11 +845,9 @@ public class ColumnField <T extends CompositeIndexColumnName> {
 
     private Object getFieldValue(DataObject obj) {
         try {
-            return _property.getReadMethod().invoke(obj);
+            return _accessor.get(obj);
         } catch (final InvocationTargetException e) {
             throw DatabaseException.fatals.serializationFailedId(obj.getId(), e);
-        } catch (final IllegalAccessException e) {
-            throw DatabaseException.fatals.serializationFailedId(obj.getId(), e);
         }
     }
 
@@ -902,12 +907,12 @@ public class ColumnField <T extends CompositeIndexColumnName> {
             try {
                 if (java.util.List.class.isAssignableFrom(_valueType)) {
                     LazyLoadedList list = new LazyLoadedList(_name, obj, lazyLoader, mappedBy);
-                    _property.getWriteMethod().invoke(obj, list);
+                    _accessor.set(obj, list);
                 } else if (java.util.Set.class.isAssignableFrom(_valueType)) {
                     LazyLoadedSet list = new LazyLoadedSet(_name, obj, lazyLoader, mappedBy);
-                    _property.getWriteMethod().invoke(obj, list);
+                    _accessor.set(obj, list);
                 }
-            } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+            } catch (IllegalArgumentException | InvocationTargetException e) {
                 _log.error(e.getMessage(), e);
             }
         }
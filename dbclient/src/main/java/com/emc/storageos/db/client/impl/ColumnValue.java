@@ -47,13 +47,78 @@ public class ColumnValue {
         }
     }
 
+    /**
+     * Decrypts and sets data object field value
+     * 
+     * @param column encrypted column value
+     * @param accessor property accessor
+     * @param obj wrapper object
+     * @param provider encryption provider
+     */
+    public static void setEncryptedStringField(Column<CompositeColumnName> column,
+            PropertyAccessor accessor, Object obj, EncryptionProvider provider) {
+        byte[] encrypted = column.getByteArrayValue();
+        String val = provider.decrypt(encrypted);
+        try {
+            accessor.set(obj, val);
+        } catch (final InvocationTargetException e) {
+            throw DatabaseException.fatals.deserializationFailedEncryptedProperty(accessor.getName(), e);
+        }
+    }
+
     public static void setField(Column<CompositeColumnName> column, PropertyDescriptor pd,
             Object obj) {
         try {
             Class type = pd.getPropertyType();
-            Object objValue = null;
+            Object current = isTrackingType(type) ? pd.getReadMethod().invoke(obj) : null;
+            pd.getWriteMethod().invoke(obj, getFieldValue(column, type, current, pd.getName()));
+        } catch (IllegalAccessException e) {
+            // should never get here
+            throw DatabaseException.fatals.deserializationFailedProperty(pd.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw DatabaseException.fatals.deserializationFailedProperty(pd.getName(), e);
+        }
+    }
+
+    /**
+     * Sets data object field value through the accessor of the column field
+     * 
+     * @param column column value
+     * @param accessor property accessor
+     * @param obj wrapper object
+     */
+    public static void setField(Column<CompositeColumnName> column, PropertyAccessor accessor,
+            Object obj) {
+        try {
+            Class type = accessor.getPropertyType();
+            Object current = isTrackingType(type) ? accessor.get(obj) : null;
+            accessor.set(obj, getFieldValue(column, type, current, accessor.getName()));
+        } catch (InvocationTargetException e) {
+            throw DatabaseException.fatals.deserializationFailedProperty(accessor.getName(), e);
+        }
+    }
+
+    private static boolean isTrackingType(Class type) {
+        return AbstractChangeTrackingSetMap.class.isAssignableFrom(type)
+                || AbstractChangeTrackingMap.class.isAssignableFrom(type)
+                || AbstractChangeTrackingSet.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Returns the field value after applying the column, which for tracking collections is the
+     * current collection of the field with the column entry added or removed
+     * 
+     * @param column column value
+     * @param type field type
+     * @param current current field value, only used for tracking collections
+     * @param name field name
+     * @return field value
+     */
+    private static Object getFieldValue(Column<CompositeColumnName> column, Class type, Object current,
+            String name) {
+        try {
+            Object objValue = current;
             if (AbstractChangeTrackingSetMap.class.isAssignableFrom(type)) {
-                objValue = pd.getReadMethod().invoke(obj);
                 if (objValue == null) {
                     objValue = type.newInstance();
                 }
@@ -65,7 +130,6 @@ public class ColumnValue {
                     trackingMap.putNoTrack(column.getName().getTwo(), entryValue);
                 }
             } else if (AbstractChangeTrackingMap.class.isAssignableFrom(type)) {
-                objValue = pd.getReadMethod().invoke(obj);
                 if (objValue == null) {
                     objValue = type.newInstance();
                 }
@@ -77,7 +141,6 @@ public class ColumnValue {
                     trackingMap.putNoTrack(column.getName().getTwo(), column.getByteArrayValue());
                 }
             } else if (AbstractChangeTrackingSet.class.isAssignableFrom(type)) {
-                objValue = pd.getReadMethod().invoke(obj);
                 if (objValue == null) {
                     objValue = type.newInstance();
                 }
@@ -89,23 +152,24 @@ public class ColumnValue {
                     trackingSet.addNoTrack(entryValue);
                 }
             } else {
-                objValue = getPrimitiveColumnValue(column, pd);
+                objValue = getPrimitiveColumnValue(column, type, name);
             }
-            pd.getWriteMethod().invoke(obj, objValue);
+            return objValue;
         } catch (IllegalAccessException e) {
             // should never get here
-            throw DatabaseException.fatals.deserializationFailedProperty(pd.getName(), e);
-        } catch (InvocationTargetException e) {
-            throw DatabaseException.fatals.deserializationFailedProperty(pd.getName(), e);
+            throw DatabaseException.fatals.deserializationFailedProperty(name, e);
         } catch (InstantiationException e) {
-            throw DatabaseException.fatals.deserializationFailedProperty(pd.getName(), e);
+            throw DatabaseException.fatals.deserializationFailedProperty(name, e);
         }
     }
 
     public static <T> Object getPrimitiveColumnValue(Column<T> column, PropertyDescriptor pd) {
+        return getPrimitiveColumnValue(column, pd.getPropertyType(), pd.getName());
+    }
+
+    public static <T> Object getPrimitiveColumnValue(Column<T> column, Class type, String name) {
         Object objValue = null;
         try {
-            Class type = pd.getPropertyType();
             if (AbstractSerializableNestedObject.class.isAssignableFrom(type)) {
                 objValue = type.newInstance();
                 AbstractSerializableNestedObject value = (AbstractSerializableNestedObject) objValue;
@@ -147,9 +211,9 @@ public class ColumnValue {
             }
         } catch (IllegalAccessException e) {
             // should never get here
-            throw DatabaseException.fatals.deserializationFailedProperty(pd.getName(), e);
+            throw DatabaseException.fatals.deserializationFailedProperty(name, e);
         } catch (InstantiationException e) {
-            throw DatabaseException.fatals.deserializationFailedProperty(pd.getName(), e);
+            throw DatabaseException.fatals.deserializationFailedProperty(name, e);
         }
         return objValue;
     }
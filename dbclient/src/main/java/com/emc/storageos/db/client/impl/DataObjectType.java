@@ -292,7 +292,7 @@ public class DataObjectType {
         }
         try {
             boolean indexFieldsModified = false;
-            URI id = (URI) _idField.getPropertyDescriptor().getReadMethod().invoke(val);
+            URI id = (URI) _idField.getAccessor().get(val);
             if (id == null) {
                 throw new IllegalArgumentException();
             }
@@ -304,8 +304,6 @@ public class DataObjectType {
             setLazyLoaders(val, lazyLoader);
 
             return indexFieldsModified;
-        } catch (final IllegalAccessException e) {
-            throw DatabaseException.fatals.serializationFailedId(val.getId(), e);
         } catch (final InvocationTargetException e) {
             throw DatabaseException.fatals.serializationFailedId(val.getId(), e);
         }
@@ -520,10 +518,10 @@ public class DataObjectType {
             if (mappedByField != null) {
                 try {
                     if (StringSet.class.isAssignableFrom(mappedByField.getPropertyDescriptor().getPropertyType())) {
-                        Object mappedByFieldValue = mappedByField.getPropertyDescriptor().getReadMethod().invoke(obj);
+                        Object mappedByFieldValue = mappedByField.getAccessor().get(obj);
                         if (mappedByFieldValue == null) {
                             mappedBy = (StringSet) mappedByField.getPropertyDescriptor().getPropertyType().newInstance();
-                            mappedByField.getPropertyDescriptor().getWriteMethod().invoke(obj, mappedBy);
+                            mappedByField.getAccessor().set(obj, mappedBy);
                         } else {
                             mappedBy = (StringSet) mappedByFieldValue;
                         }
@@ -14,7 +14,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.cassandra.service.StorageProxy;
 import org.apache.cassandra.thrift.Cassandra;
@@ -28,7 +28,6 @@ import com.emc.storageos.coordinator.client.service.DrUtil;
 import com.emc.storageos.db.exceptions.DatabaseException;
 import com.emc.storageos.services.util.NamedScheduledThreadPoolExecutor;
 import com.netflix.astyanax.AstyanaxContext;
-import com.netflix.astyanax.CassandraOperationCategory;
 import com.netflix.astyanax.CassandraOperationTracer;
 import com.netflix.astyanax.CassandraOperationType;
 import com.netflix.astyanax.Cluster;
@@ -48,7 +47,6 @@ import com.netflix.astyanax.model.ConsistencyLevel;
 import com.netflix.astyanax.partitioner.Murmur3Partitioner;
 import com.netflix.astyanax.partitioner.Partitioner;
 import com.netflix.astyanax.retry.RetryPolicy;
-import com.netflix.astyanax.shallows.EmptyKeyspaceTracer;
 import com.netflix.astyanax.shallows.EmptyKeyspaceTracerFactory;
 import com.netflix.astyanax.thrift.AbstractOperationImpl;
 import com.netflix.astyanax.thrift.ThriftFamilyFactory;
@@ -614,46 +612,46 @@ public class DbClientContext {
     }
     
     class KeyspaceTracerFactoryImpl implements KeyspaceTracerFactory {
-        private AtomicLong readOperations = new AtomicLong(0);
-        private AtomicLong writeOperations = new AtomicLong(0);
-        private AtomicLong otherOperations = new AtomicLong(0);
+        private LongAdder readOperations = new LongAdder();
+        private LongAdder writeOperations = new LongAdder();
+        private LongAdder otherOperations = new LongAdder();
+        private DbClientStats.KeyspaceStats stats = DbClientStats.getInstance().getKeyspaceStats(keyspaceName);
         private ScheduledExecutorService executor = new NamedScheduledThreadPoolExecutor("DbClientPerformance", 1);
         
         public KeyspaceTracerFactoryImpl() {
             executor.scheduleAtFixedRate(new Runnable() {
                 @Override
                 public void run() {
-                    long total = readOperations.get() + writeOperations.get() + otherOperations.get();
                     log.info("Performance data of DbClient for last {} seconds", logInterval);
                     log.info("{} read operations, {} write operations, {} other operations",
-                            readOperations.get(), writeOperations.get(), otherOperations.get());
-
-                    readOperations.set(0);
-                    writeOperations.set(0);
-                    otherOperations.set(0);
+                            readOperations.sumThenReset(), writeOperations.sumThenReset(), otherOperations.sumThenReset());
                 }
             }, logInterval, logInterval, TimeUnit.SECONDS);
         }
         
         @Override
         public CassandraOperationTracer newTracer(CassandraOperationType type) {
-            increaseCountByType(type);
-            return EmptyKeyspaceTracer.getInstance();
+            return newTracer(type, DbClientStats.KEYSPACE_OPERATIONS);
         }
 
         @Override
         public CassandraOperationTracer newTracer(CassandraOperationType type, ColumnFamily<?, ?> columnFamily) {
-            increaseCountByType(type);
-            return EmptyKeyspaceTracer.getInstance();
+            return newTracer(type, columnFamily.getName());
+        }
+
+        private CassandraOperationTracer newTracer(CassandraOperationType type, String columnFamily) {
+            DbClientStats.Operation operation = DbClientStats.Operation.fromType(type);
+            increaseCountByType(operation);
+            return stats.getOperationStats(columnFamily, operation);
         }
         
-        private void increaseCountByType(CassandraOperationType type) {
-            if (type.getCategory() == CassandraOperationCategory.READ) {
-                readOperations.getAndIncrement();
-            } else if (type.getCategory() == CassandraOperationCategory.WRITE) {
-                writeOperations.getAndIncrement();
+        private void increaseCountByType(DbClientStats.Operation operation) {
+            if (operation == DbClientStats.Operation.READ) {
+                readOperations.increment();
+            } else if (operation == DbClientStats.Operation.WRITE) {
+                writeOperations.increment();
             } else {
-                otherOperations.getAndIncrement();
+                otherOperations.increment();
             }
         }
     }
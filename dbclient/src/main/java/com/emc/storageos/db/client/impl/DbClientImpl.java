@@ -12,9 +12,9 @@ import java.net.URI;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicLong;
 
 import com.emc.storageos.services.util.NamedScheduledThreadPoolExecutor;
+import com.emc.storageos.services.util.NamedThreadFactory;
 import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -68,6 +68,7 @@ import com.emc.storageos.db.exceptions.DatabaseException;
 import com.emc.storageos.db.exceptions.FatalDatabaseException;
 import com.emc.storageos.model.ResourceOperationTypeEnum;
 import com.emc.storageos.svcs.errorhandling.model.ServiceCoded;
+import com.emc.vipr.model.sys.healthmonitor.DbClientStatsRestRep;
 import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.netflix.astyanax.ColumnListMutation;
@@ -106,6 +107,8 @@ public class DbClientImpl implements DbClient {
     private static final int DEFAULT_TS_PAGE_SIZE = 100;
     private static final int DEFAULT_BATCH_SIZE = 1000;
     protected static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_QUERY_MAX_PAGE_SIZE = 1000;
+    private static final long QUERY_PREFETCH_KEEP_ALIVE_SECONDS = 60;
 
     static private final List<Class<? extends DataObject>> excludeClasses = Arrays.asList(Token.class,
             StorageOSUserDAO.class, VirtualDataCenter.class, PropertyListDataObject.class, PasswordHistory.class,
@@ -136,6 +139,13 @@ public class DbClientImpl implements DbClient {
     private int logCount = 5;
     private KeyspaceTracerFactoryImpl tracer;
 
+    // constraint queries start with pages of DEFAULT_PAGE_SIZE hits, doubled up to queryMaxPageSize
+    // as they are consumed
+    private int queryMaxPageSize = DEFAULT_QUERY_MAX_PAGE_SIZE;
+    // threads fetching the next page of constraint queries while the callers go through the current one, 0 to disable
+    private int queryPrefetchThreads = 0;
+    private ThreadPoolExecutor queryPrefetchExecutor;
+
     public String getGeoVersion() {
         if (this._geoVersion == null) {
             this._geoVersion = VdcUtil.getMinimalVdcVersion();
@@ -159,6 +169,34 @@ public class DbClientImpl implements DbClient {
         return geoContext;
     }
 
+    /**
+     * @param queryMaxPageSize the largest page fetched by constraint queries, DEFAULT_PAGE_SIZE or less for fixed pages
+     */
+    public void setQueryMaxPageSize(int queryMaxPageSize) {
+        this.queryMaxPageSize = queryMaxPageSize;
+    }
+
+    /**
+     * @param queryPrefetchThreads the number of threads prefetching the pages of constraint queries, 0 to disable prefetching
+     */
+    public void setQueryPrefetchThreads(int queryPrefetchThreads) {
+        this.queryPrefetchThreads = queryPrefetchThreads;
+    }
+
+    private synchronized Executor getQueryPrefetchExecutor() {
+        if (queryPrefetchThreads <= 0) {
+            return null;
+        }
+        if (queryPrefetchExecutor == null) {
+            // the query falls back to fetching its pages itself when the queue is full
+            queryPrefetchExecutor = new ThreadPoolExecutor(queryPrefetchThreads, queryPrefetchThreads,
+                    QUERY_PREFETCH_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queryPrefetchThreads * 10),
+                    new NamedThreadFactory("DbQueryPrefetch"));
+            queryPrefetchExecutor.allowCoreThreadTimeOut(true);
+        }
+        return queryPrefetchExecutor;
+    }
+
     public int getLogInterval() {
         return logInterval;
     }
@@ -381,6 +419,11 @@ public class DbClientImpl implements DbClient {
             geoContext = null;
         }
 
+        if (queryPrefetchExecutor != null) {
+            queryPrefetchExecutor.shutdownNow();
+            queryPrefetchExecutor = null;
+        }
+
         _log.info("stop coordinator");
         _coordinator.stop();
         initDone = false;
@@ -724,6 +767,7 @@ public class DbClientImpl implements DbClient {
         } catch (ConnectionException e) {
             throw DatabaseException.retryables.connectionFailed(e);
         }
+        recordRows(ks, doType.getCF(), DbClientStats.Operation.READ, result.getResult().size());
         Iterator<Row<String, CompositeColumnName>> it = result.getResult().iterator();
         while (it.hasNext()) {
             Row<String, CompositeColumnName> row = it.next();
@@ -987,6 +1031,7 @@ public class DbClientImpl implements DbClient {
         if (!constraintImpl.isValid()) {
             throw new IllegalArgumentException("invalid constraint: the key can't be null or empty");
         }
+        constraintImpl.setAdaptivePaging(queryMaxPageSize, getQueryPrefetchExecutor());
         constraint.setKeyspace(getKeyspace(constraint.getDataObjectType()));
         constraint.execute(result);
     }
@@ -1035,6 +1080,52 @@ public class DbClientImpl implements DbClient {
         }
     }
 
+    /**
+     * Queries the relation index of a field for several keys at once, as a ContainmentConstraint
+     * would for each key, but with a single multi row query.
+     * 
+     * @param entryType the type of the objects referencing the keys
+     * @param field the indexed field of entryType
+     * @param indexKeys the referenced ids
+     * @param maxCount the most entries returned per key
+     * @return map of key to the ids of the objects referencing it; keys without references are not in the map
+     */
+    public Map<URI, List<URI>> queryContainedObjects(Class<? extends DataObject> entryType, ColumnField field,
+            Collection<URI> indexKeys, int maxCount) {
+        tracer.newTracer("read");
+        Map<URI, List<URI>> entries = new HashMap<URI, List<URI>>();
+        if (indexKeys.isEmpty()) {
+            return entries;
+        }
+        Keyspace ks = getKeyspace(field.getDataObjectType());
+        ColumnFamily<String, IndexColumnName> indexCF = field.getIndexCF();
+        OperationResult<Rows<String, IndexColumnName>> result;
+        try {
+            result = ks.prepareQuery(indexCF)
+                    .getKeySlice(convertUriCollection(indexKeys))
+                    .withColumnRange(CompositeColumnNameSerializer.get().buildRange()
+                            .greaterThanEquals(entryType.getSimpleName())
+                            .lessThanEquals(entryType.getSimpleName())
+                            .limit(maxCount))
+                    .execute();
+        } catch (ConnectionException e) {
+            throw DatabaseException.retryables.connectionFailed(e);
+        }
+        recordRows(ks, indexCF, DbClientStats.Operation.READ, result.getResult().size());
+        // the referencing id is in the same column name component as in ContainmentConstraintImpl
+        boolean idInSecond = (field.getIndex() instanceof RelationDbIndex) || (field.getIndex() instanceof AltIdDbIndex);
+        for (Row<String, IndexColumnName> row : result.getResult()) {
+            List<URI> ids = new ArrayList<URI>();
+            for (Column<IndexColumnName> column : row.getColumns()) {
+                ids.add(URI.create(idInSecond ? column.getName().getTwo() : column.getName().getFour()));
+            }
+            if (!ids.isEmpty()) {
+                entries.put(URI.create(row.getKey()), ids);
+            }
+        }
+        return entries;
+    }
+
     @Override
     public <T extends DataObject> void createObject(T object) {
         tracer.newTracer("write");
@@ -1478,7 +1569,12 @@ public class DbClientImpl implements DbClient {
             // for reads, clients should expect read-after-write is
             // not guaranteed for time series data.
             mutation.setConsistencyLevel(ConsistencyLevel.CL_ONE);
-            mutation.putValue(type.getSerializer().serialize(data), type.getTtl()).execute();
+            byte[] value = type.getSerializer().serialize(data);
+            mutation.putValue(value, type.getTtl()).execute();
+            DbClientStats.OperationStats stats = DbClientStats.getInstance().getOperationStats(
+                    getLocalKeyspace().getKeyspaceName(), type.getCf().getName(), DbClientStats.Operation.WRITE);
+            stats.addRows(1);
+            stats.addBytes(value.length);
             return rowId;
         } catch (ConnectionException e) {
             throw DatabaseException.retryables.connectionFailed(e);
@@ -1518,13 +1614,18 @@ public class DbClientImpl implements DbClient {
                             .getKey(rowKey)
                             .autoPaginate(true)
                             .withColumnRange(type.getColumnRange(timeBucket, granularity, DEFAULT_TS_PAGE_SIZE));
+                    DbClientStats.OperationStats stats = DbClientStats.getInstance().getOperationStats(
+                            getLocalKeyspace().getKeyspaceName(), type.getCf().getName(), DbClientStats.Operation.READ);
                     do {
                         columns = query.execute().getResult();
                         for (Column<UUID> c : columns) {
-                            result.data(type.getSerializer().deserialize(c.getByteArrayValue()),
+                            byte[] value = c.getByteArrayValue();
+                            stats.addBytes(value.length);
+                            result.data(type.getSerializer().deserialize(value),
                                     TimeUUIDUtils.getTimeFromUUID(c.getName()));
                         }
                     } while (!columns.isEmpty());
+                    stats.addRows(1);
                     return null;
                 }
             }));
@@ -1580,6 +1681,7 @@ public class DbClientImpl implements DbClient {
             OperationResult<Rows<String, CompositeColumnName>> result = keyspace.prepareQuery(cf)
                     .getKeySlice(convertUriCollection(ids))
                     .execute();
+            recordRows(keyspace, cf, DbClientStats.Operation.READ, result.getResult().size());
             return result.getResult();
         } catch (ConnectionException e) {
             throw DatabaseException.retryables.connectionFailed(e);
@@ -1607,12 +1709,20 @@ public class DbClientImpl implements DbClient {
                             .greaterThanEquals(column.getName())
                             .lessThanEquals(column.getName()))
                     .execute();
+            recordRows(keyspace, cf, DbClientStats.Operation.READ, result.getResult().size());
             return result.getResult();
         } catch (ConnectionException e) {
             throw DatabaseException.retryables.connectionFailed(e);
         }
     }
 
+    /**
+     * Adds the rows read or written to the statistics of the column family
+     */
+    private void recordRows(Keyspace keyspace, ColumnFamily<String, ?> cf, DbClientStats.Operation operation, int rows) {
+        DbClientStats.getInstance().getOperationStats(keyspace.getKeyspaceName(), cf.getName(), operation).addRows(rows);
+    }
+
     /**
      * Convernts from List<URI> to List<String>.
      *
@@ -2116,52 +2226,34 @@ public class DbClientImpl implements DbClient {
     }
 
     class KeyspaceTracerFactoryImpl {
-        private ConcurrentHashMap<String, AtomicLong> counterMap = new ConcurrentHashMap<String, AtomicLong>();
-        private Map<String, AtomicLong> sortedMap;
+        private DbClientStats stats = DbClientStats.getInstance();
         private ScheduledExecutorService executor = new NamedScheduledThreadPoolExecutor("DbClientPerformance", 1);
-        private AtomicLong total = new AtomicLong(0);
+
         public KeyspaceTracerFactoryImpl() {
             executor.scheduleAtFixedRate(new Runnable() {
                 @Override
                 public void run() {
-                    _log.info("Total dbclient calls: {} for last {} seconds. Top {} caller are: ", total, logInterval, logCount);
-                    sortedMap = desendSortByValue(counterMap);
-                    int i=1;
-                    for (Entry<String, AtomicLong> entry : sortedMap.entrySet()) {
-                        _log.info("{} -> {}", entry.getKey(), entry.getValue().get());
-                        if (i >= logCount) break;
-                        i++;
+                    if (stats.getCallSiteSampleRate() <= 0) {
+                        return;
                     }
-                    counterMap.clear();
-                    total.set(0);
+                    _log.info("Sampled 1 in {} dbclient calls for last {} seconds. Top {} caller are: ",
+                            stats.getCallSiteSampleRate(), logInterval, logCount);
+                    for (DbClientStatsRestRep.CallSiteStats site : stats.getTopCallSites(logCount)) {
+                        _log.info("{} -> {}", site.getCallSite(), site.getCount());
+                    }
+                    stats.clearCallSites();
                 }
             }, logInterval, logInterval, TimeUnit.SECONDS);
         }
 
-        private Map<String, AtomicLong> desendSortByValue(Map<String, AtomicLong> map) {
-            List<Map.Entry<String, AtomicLong>> entryList = new LinkedList<Entry<String, AtomicLong>>(map.entrySet());
-            Collections.sort(entryList, new Comparator<Map.Entry<String, AtomicLong>>() {
-                @Override
-                public int compare(Map.Entry<String, AtomicLong> o1, Map.Entry<String, AtomicLong> o2) {
-                    return (int) ((o2.getValue().get()) - (o1.getValue().get()));
-                }
-            });
-            Map<String, AtomicLong> sortMap = new LinkedHashMap<>();
-            for (Map.Entry<String, AtomicLong> entry : entryList) {
-                sortMap.put(entry.getKey(), entry.getValue());
-            }
-            return sortMap;
-        }
-
+        /**
+         * Records the caller of the DbClient method when call site sampling is on. The column family
+         * statistics are recorded by the astyanax tracers of DbClientContext.
+         *
+         * @param type read or write
+         */
         public void newTracer(String type) {
-            StackTraceElement stackTraceElement = Thread.currentThread().getStackTrace()[3];
-            if (stackTraceElement.getClassName().startsWith("com.emc.storageos.db.client")) {
-                return;
-            }
-            total.getAndIncrement();
-            String key = String.format("%s.%s:%s:%s", stackTraceElement.getClassName(), stackTraceElement.getMethodName(), stackTraceElement.getLineNumber(),type);
-            counterMap.putIfAbsent(key, new AtomicLong(0));
-            counterMap.get(key).getAndIncrement();
+            stats.sampleCallSite(type);
         }
     }
 }
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.emc.storageos.management.jmx.dbclient.DbClientStatsMBean;
+import com.emc.vipr.model.sys.healthmonitor.DbClientStatsRestRep;
+import com.netflix.astyanax.CassandraOperationCategory;
+import com.netflix.astyanax.CassandraOperationTracer;
+import com.netflix.astyanax.CassandraOperationType;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+
+/**
+ * Operation statistics of the DbClient of this process: count, errors, rows, bytes and a
+ * latency histogram per keyspace, column family and operation type. The statistics of an
+ * operation are created the first time the operation runs and are then updated without
+ * locking or allocation, so the astyanax tracers can record every operation.
+ *
+ * Call sites of the DbClient calls are only recorded when call site sampling is turned on,
+ * for 1 in callSiteSampleRate calls, since walking the stack is too costly for every call.
+ */
+@ManagedResource(objectName = DbClientStatsMBean.MBEAN_NAME, description = "DbClient statistics MBean")
+public class DbClientStats implements DbClientStatsMBean {
+    private static final String DB_CLIENT_PACKAGE = "com.emc.storageos.db.client";
+    // operations of a keyspace with no column family, e.g. describe keyspace
+    public static final String KEYSPACE_OPERATIONS = "_keyspace";
+    // frames of sampleCallSite, of the DbClientImpl tracer and of the DbClient method called
+    private static final int CALLER_FRAME = 3;
+
+    private static final DbClientStats instance = new DbClientStats();
+
+    // start time of the operation running on the current thread; astyanax starts and completes
+    // an operation tracer on the thread executing the operation
+    private static final ThreadLocal<long[]> startNanos = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    public enum Operation {
+        READ, WRITE, OTHER;
+
+        public static Operation fromType(CassandraOperationType type) {
+            if (type.getCategory() == CassandraOperationCategory.READ) {
+                return READ;
+            } else if (type.getCategory() == CassandraOperationCategory.WRITE) {
+                return WRITE;
+            }
+            return OTHER;
+        }
+    }
+
+    private final ConcurrentHashMap<String, KeyspaceStats> keyspaces = new ConcurrentHashMap<String, KeyspaceStats>();
+    private final ConcurrentHashMap<String, LongAdder> callSites = new ConcurrentHashMap<String, LongAdder>();
+    private volatile int callSiteSampleRate = 0;
+
+    public static DbClientStats getInstance() {
+        return instance;
+    }
+
+    /**
+     * Statistics of the column families of one keyspace
+     */
+    public static class KeyspaceStats {
+        private final String name;
+        private final ConcurrentHashMap<String, OperationStats[]> columnFamilies = new ConcurrentHashMap<String, OperationStats[]>();
+
+        KeyspaceStats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the statistics of an operation type on a column family, creating them the first time
+         *
+         * @param columnFamily column family name
+         * @param operation operation type
+         * @return operation statistics, which are also the tracer of the operation
+         */
+        public OperationStats getOperationStats(String columnFamily, Operation operation) {
+            OperationStats[] stats = columnFamilies.get(columnFamily);
+            if (stats == null) {
+                stats = new OperationStats[Operation.values().length];
+                for (Operation op : Operation.values()) {
+                    stats[op.ordinal()] = new OperationStats(name, columnFamily, op);
+                }
+                OperationStats[] existing = columnFamilies.putIfAbsent(columnFamily, stats);
+                if (existing != null) {
+                    stats = existing;
+                }
+            }
+            return stats[operation.ordinal()];
+        }
+
+        private void collect(List<DbClientStatsRestRep.OperationStats> result) {
+            for (OperationStats[] stats : columnFamilies.values()) {
+                for (OperationStats op : stats) {
+                    if (op.count.sum() > 0 || op.rows.sum() > 0) {
+                        result.add(op.toRestRep());
+                    }
+                }
+            }
+        }
+
+        private void reset() {
+            for (OperationStats[] stats : columnFamilies.values()) {
+                for (OperationStats op : stats) {
+                    op.reset();
+                }
+            }
+        }
+    }
+
+    /**
+     * Statistics of one operation type on one column family. The same instance is the astyanax
+     * tracer of every operation it counts, the start time being kept per thread.
+     */
+    public static class OperationStats implements CassandraOperationTracer {
+        private final String keyspace;
+        private final String columnFamily;
+        private final Operation operation;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        OperationStats(String keyspace, String columnFamily, Operation operation) {
+            this.keyspace = keyspace;
+            this.columnFamily = columnFamily;
+            this.operation = operation;
+        }
+
+        @Override
+        public CassandraOperationTracer start() {
+            startNanos.get()[0] = System.nanoTime();
+            return this;
+        }
+
+        @Override
+        public void success() {
+            count.increment();
+            latency.record(elapsedMicros());
+        }
+
+        @Override
+        public void failure(ConnectionException e) {
+            count.increment();
+            errors.increment();
+            latency.record(elapsedMicros());
+        }
+
+        private long elapsedMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos.get()[0]);
+        }
+
+        public void addRows(long n) {
+            rows.add(n);
+        }
+
+        public void addBytes(long n) {
+            bytes.add(n);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        private DbClientStatsRestRep.OperationStats toRestRep() {
+            DbClientStatsRestRep.OperationStats rep = new DbClientStatsRestRep.OperationStats();
+            rep.setKeyspace(keyspace);
+            rep.setColumnFamily(columnFamily);
+            rep.setOperation(operation.name());
+            rep.setCount(count.sum());
+            rep.setErrors(errors.sum());
+            rep.setRows(rows.sum());
+            rep.setBytes(bytes.sum());
+            rep.setMeanLatency(latency.getMean());
+            rep.setP50Latency(latency.getPercentile(50));
+            rep.setP90Latency(latency.getPercentile(90));
+            rep.setP99Latency(latency.getPercentile(99));
+            rep.setMaxLatency(latency.getMax());
+            return rep;
+        }
+
+        private void reset() {
+            count.reset();
+            errors.reset();
+            rows.reset();
+            bytes.reset();
+            latency.reset();
+        }
+    }
+
+    public KeyspaceStats getKeyspaceStats(String keyspaceName) {
+        KeyspaceStats stats = keyspaces.get(keyspaceName);
+        if (stats == null) {
+            stats = new KeyspaceStats(keyspaceName);
+            KeyspaceStats existing = keyspaces.putIfAbsent(keyspaceName, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    public OperationStats getOperationStats(String keyspaceName, String columnFamily, Operation operation) {
+        return getKeyspaceStats(keyspaceName).getOperationStats(columnFamily, operation);
+    }
+
+    /**
+     * Record the call site of a DbClient call, if call site sampling is on and the call is sampled.
+     * Must be called from the DbClientImpl tracer called by the DbClient method.
+     *
+     * @param type read or write
+     */
+    public void sampleCallSite(String type) {
+        int rate = callSiteSampleRate;
+        if (rate <= 0 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0)) {
+            return;
+        }
+        StackTraceElement[] elements = new Throwable().getStackTrace();
+        if (elements.length <= CALLER_FRAME || elements[CALLER_FRAME].getClassName().startsWith(DB_CLIENT_PACKAGE)) {
+            // nested call of the DbClient, the outer call was already counted
+            return;
+        }
+        StackTraceElement caller = elements[CALLER_FRAME];
+        String key = caller.getClassName() + "." + caller.getMethodName() + ":" + caller.getLineNumber() + ":" + type;
+        LongAdder counter = callSites.get(key);
+        if (counter == null) {
+            counter = new LongAdder();
+            LongAdder existing = callSites.putIfAbsent(key, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        counter.increment();
+    }
+
+    /**
+     * Get the call sites with the most sampled calls
+     *
+     * @param max maximum number of call sites
+     * @return call sites with their estimated number of calls, most called first
+     */
+    public List<DbClientStatsRestRep.CallSiteStats> getTopCallSites(int max) {
+        int rate = Math.max(callSiteSampleRate, 1);
+        List<DbClientStatsRestRep.CallSiteStats> sites = new ArrayList<DbClientStatsRestRep.CallSiteStats>();
+        for (Map.Entry<String, LongAdder> entry : callSites.entrySet()) {
+            sites.add(new DbClientStatsRestRep.CallSiteStats(entry.getKey(), entry.getValue().sum() * rate));
+        }
+        Collections.sort(sites, new Comparator<DbClientStatsRestRep.CallSiteStats>() {
+            @Override
+            public int compare(DbClientStatsRestRep.CallSiteStats o1, DbClientStatsRestRep.CallSiteStats o2) {
+                return Long.compare(o2.getCount(), o1.getCount());
+            }
+        });
+        return sites.size() > max ? new ArrayList<DbClientStatsRestRep.CallSiteStats>(sites.subList(0, max)) : sites;
+    }
+
+    public void clearCallSites() {
+        callSites.clear();
+    }
+
+    @Override
+    public DbClientStatsRestRep getStats() {
+        DbClientStatsRestRep rep = new DbClientStatsRestRep();
+        rep.setCallSiteSampleRate(callSiteSampleRate);
+        for (KeyspaceStats stats : keyspaces.values()) {
+            stats.collect(rep.getOperations());
+        }
+        rep.setCallSites(getTopCallSites(Integer.MAX_VALUE));
+        return rep;
+    }
+
+    @Override
+    public void resetStats() {
+        for (KeyspaceStats stats : keyspaces.values()) {
+            stats.reset();
+        }
+        callSites.clear();
+    }
+
+    @Override
+    public int getCallSiteSampleRate() {
+        return callSiteSampleRate;
+    }
+
+    @Override
+    public void setCallSiteSampleRate(int rate) {
+        callSiteSampleRate = rate < 0 ? 0 : rate;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Reads and writes a data object property through method handles resolved once when the
+ * column field is created, instead of invoking the reflected getter and setter on every
+ * serialization and deserialization.
+ *
+ * Failures of the getter or setter are reported as InvocationTargetException, as with
+ * reflection, so callers keep their error handling.
+ */
+public final class PropertyAccessor {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final String _name;
+    private final Class _propertyType;
+    private final MethodHandle _getter;
+    private final MethodHandle _setter;
+
+    /**
+     * Constructor
+     *
+     * @param pd property to access
+     */
+    public PropertyAccessor(PropertyDescriptor pd) {
+        _name = pd.getName();
+        _propertyType = pd.getPropertyType();
+        _getter = unreflect(pd.getReadMethod(), GETTER_TYPE);
+        _setter = unreflect(pd.getWriteMethod(), SETTER_TYPE);
+    }
+
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        if (method == null) {
+            return null;
+        }
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            return lookup.unreflect(method).asType(type);
+        } catch (IllegalAccessException e) {
+            // accessor declared in a class not visible from here, e.g. a package private base class
+            method.setAccessible(true);
+            try {
+                return lookup.unreflect(method).asType(type);
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException("Cannot access " + method, ex);
+            }
+        }
+    }
+
+    public String getName() {
+        return _name;
+    }
+
+    public Class getPropertyType() {
+        return _propertyType;
+    }
+
+    public boolean isReadable() {
+        return _getter != null;
+    }
+
+    public boolean isWritable() {
+        return _setter != null;
+    }
+
+    /**
+     * Invokes the getter of the property
+     *
+     * @param obj data object
+     * @return property value
+     * @throws InvocationTargetException if the getter fails
+     */
+    public Object get(Object obj) throws InvocationTargetException {
+        try {
+            return (Object) _getter.invokeExact(obj);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Invokes the setter of the property
+     *
+     * @param obj data object
+     * @param value property value
+     * @throws InvocationTargetException if the setter fails
+     */
+    public void set(Object obj, Object value) throws InvocationTargetException {
+        try {
+            _setter.invokeExact(obj, value);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+}
@@ -126,6 +126,15 @@ public class RowMutator<T extends CompositeIndexColumnName> {
         } catch (ConnectionException e) {
             throw DatabaseException.retryables.connectionFailed(e);
         }
+        recordRows(_cfRowMap);
+        recordRows(_cfIndexMap);
+    }
+
+    private void recordRows(Map<String, ? extends Map<String, ?>> cfRowMap) {
+        DbClientStats.KeyspaceStats stats = DbClientStats.getInstance().getKeyspaceStats(keyspace.getKeyspaceName());
+        for (Map.Entry<String, ? extends Map<String, ?>> entry : cfRowMap.entrySet()) {
+            stats.getOperationStats(entry.getKey(), DbClientStats.Operation.WRITE).addRows(entry.getValue().size());
+        }
     }
 
     /**
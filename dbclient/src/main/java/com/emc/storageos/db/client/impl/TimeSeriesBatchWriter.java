@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.model.TimeSeries;
+import com.emc.storageos.db.client.model.TimeSeriesSerializer;
+import com.emc.storageos.db.exceptions.DatabaseException;
+
+/**
+ * Writes time series data points (audit logs, events) from a bounded queue on one writer thread,
+ * inserting the points queued by all callers within maxBatchDelayMs, up to maxBatchSize points,
+ * with one insertTimeSeries call. Callers only wait when the queue is full: when the points of a
+ * call cannot be queued within offerTimeoutMs, the rest of them are inserted on the caller's thread,
+ * which slows the callers down to the rate the database takes.
+ *
+ * A batch which cannot be inserted is retried BATCH_ATTEMPTS times. When it still fails, the points
+ * are counted as failed and the callers insert their points on their own threads, and get the
+ * DatabaseException, until an insert succeeds again.
+ *
+ * There is one writer per DbClient and time series type, shared by the managers recording the
+ * data points, see getWriter. The managers flush the queued points with stopWriter when they are
+ * destroyed.
+ */
+public class TimeSeriesBatchWriter<T extends TimeSeriesSerializer.DataPoint> {
+    private static final Logger _log = LoggerFactory.getLogger(TimeSeriesBatchWriter.class);
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    public static final long DEFAULT_MAX_BATCH_DELAY_MS = 200;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final long DEFAULT_OFFER_TIMEOUT_MS = 1000;
+    public static final int BATCH_ATTEMPTS = 3;
+    public static final long DEFAULT_RETRY_DELAY_MS = 1000;
+    private static final long STOP_TIMEOUT_MS = 30000;
+
+    private static final ConcurrentHashMap<List<Object>, TimeSeriesBatchWriter<?>> writers =
+            new ConcurrentHashMap<List<Object>, TimeSeriesBatchWriter<?>>();
+
+    private final DbClient _dbClient;
+    private final Class<? extends TimeSeries> _tsType;
+    private final Class<T> _dataType;
+    private final int _maxBatchSize;
+    private final long _maxBatchDelayMs;
+    private final long _offerTimeoutMs;
+    private final BlockingQueue<T> _queue;
+    private final Thread _writerThread;
+    private volatile boolean _stopped = false;
+    // held for reading while points are queued, so that none is queued once stop() has drained the queue
+    private final ReadWriteLock _stopLock = new ReentrantReadWriteLock();
+    // set when a batch could not be inserted, the callers insert their points until an insert succeeds
+    private volatile boolean _failing = false;
+    private long _retryDelayMs = DEFAULT_RETRY_DELAY_MS;
+
+    private final AtomicLong _written = new AtomicLong();
+    private final AtomicLong _batches = new AtomicLong();
+    private final AtomicLong _callerWritten = new AtomicLong();
+    private final AtomicLong _failed = new AtomicLong();
+
+    /**
+     * Get the writer of a time series type for a DbClient, creating and starting it with the
+     * default batch size, batch delay and queue capacity the first time
+     *
+     * @param dbClient DbClient inserting the data points
+     * @param tsType time series class, such as AuditLogTimeSeries
+     * @param dataType class of the data points, such as AuditLog
+     * @return the shared writer
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends TimeSeriesSerializer.DataPoint> TimeSeriesBatchWriter<T> getWriter(DbClient dbClient,
+            Class<? extends TimeSeries> tsType, Class<T> dataType) {
+        List<Object> key = Arrays.<Object> asList(dbClient, tsType);
+        TimeSeriesBatchWriter<?> writer = writers.get(key);
+        if (writer == null) {
+            synchronized (writers) {
+                writer = writers.get(key);
+                if (writer == null) {
+                    TimeSeriesBatchWriter<T> newWriter = new TimeSeriesBatchWriter<T>(dbClient, tsType, dataType,
+                            DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_DELAY_MS, DEFAULT_QUEUE_CAPACITY, DEFAULT_OFFER_TIMEOUT_MS);
+                    newWriter.start();
+                    writers.put(key, newWriter);
+                    writer = newWriter;
+                }
+            }
+        }
+        return (TimeSeriesBatchWriter<T>) writer;
+    }
+
+    /**
+     * Stop the writer of a time series type for a DbClient, if it was created, inserting the points
+     * it has queued. The points recorded afterwards are inserted by the callers.
+     *
+     * @param dbClient DbClient inserting the data points
+     * @param tsType time series class, such as AuditLogTimeSeries
+     */
+    public static void stopWriter(DbClient dbClient, Class<? extends TimeSeries> tsType) {
+        TimeSeriesBatchWriter<?> writer = writers.get(Arrays.<Object> asList(dbClient, tsType));
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    public TimeSeriesBatchWriter(DbClient dbClient, Class<? extends TimeSeries> tsType, Class<T> dataType,
+            int maxBatchSize, long maxBatchDelayMs, int queueCapacity, long offerTimeoutMs) {
+        _dbClient = dbClient;
+        _tsType = tsType;
+        _dataType = dataType;
+        _maxBatchSize = maxBatchSize;
+        _maxBatchDelayMs = maxBatchDelayMs;
+        _offerTimeoutMs = offerTimeoutMs;
+        _queue = new ArrayBlockingQueue<T>(queueCapacity);
+        _writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeBatches();
+            }
+        }, tsType.getSimpleName() + "-writer");
+        _writerThread.setDaemon(true);
+    }
+
+    public void start() {
+        _dbClient.start();
+        _writerThread.start();
+    }
+
+    public void setRetryDelayMs(long retryDelayMs) {
+        _retryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * Queue data points to be inserted. The points which cannot be queued, because the queue stays
+     * full, the writer is stopped or its last batch failed, are inserted before returning.
+     *
+     * @param data data points
+     * @throws DatabaseException if the points inserted on the caller's thread could not be inserted
+     */
+    public void add(T... data) throws DatabaseException {
+        List<T> notQueued = null;
+        _stopLock.readLock().lock();
+        try {
+            // the queue is only waited for once per call, the points following one that could not be
+            // queued in time are inserted by the caller
+            boolean full = _stopped || _failing;
+            for (T point : data) {
+                if (!full && !_queue.offer(point)) {
+                    try {
+                        full = !_queue.offer(point, _offerTimeoutMs, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        full = true;
+                    }
+                }
+                if (full) {
+                    if (notQueued == null) {
+                        notQueued = new ArrayList<T>();
+                    }
+                    notQueued.add(point);
+                }
+            }
+        } finally {
+            _stopLock.readLock().unlock();
+        }
+        if (notQueued != null) {
+            insert(notQueued);
+            _failing = false;
+            _callerWritten.addAndGet(notQueued.size());
+        }
+    }
+
+    /**
+     * Stop the writer thread once it has inserted the points queued, waiting for it at most
+     * STOP_TIMEOUT_MS, then insert the points left in the queue on this thread.
+     * Points added after the writer stopped are inserted by the callers.
+     */
+    public void stop() {
+        _stopLock.writeLock().lock();
+        try {
+            if (_stopped) {
+                return;
+            }
+            _stopped = true;
+        } finally {
+            _stopLock.writeLock().unlock();
+        }
+        try {
+            _writerThread.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<T> remaining = new ArrayList<T>();
+        _queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            insertBatch(remaining);
+        }
+        _log.info("{} writer stopped: {} points written in {} batches, {} written by callers, {} failed",
+                new Object[] { _tsType.getSimpleName(), _written.get(), _batches.get(), _callerWritten.get(), _failed.get() });
+    }
+
+    public int getQueueSize() {
+        return _queue.size();
+    }
+
+    public long getWrittenCount() {
+        return _written.get();
+    }
+
+    public long getBatchCount() {
+        return _batches.get();
+    }
+
+    public long getCallerWrittenCount() {
+        return _callerWritten.get();
+    }
+
+    public long getFailedCount() {
+        return _failed.get();
+    }
+
+    private void writeBatches() {
+        List<T> batch = new ArrayList<T>(_maxBatchSize);
+        try {
+            while (!_stopped || !_queue.isEmpty()) {
+                T first = _queue.poll(_maxBatchDelayMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // gather the points queued by other callers in the meantime
+                long deadline = System.currentTimeMillis() + _maxBatchDelayMs;
+                while (batch.size() < _maxBatchSize) {
+                    _queue.drainTo(batch, _maxBatchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= _maxBatchSize || remaining <= 0 || _stopped) {
+                        break;
+                    }
+                    T next = _queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                insertBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            _log.warn("{} writer interrupted", _tsType.getSimpleName());
+            if (!batch.isEmpty()) {
+                insertBatch(batch);
+            }
+        }
+    }
+
+    public boolean isFailing() {
+        return _failing;
+    }
+
+    /**
+     * Insert a batch, retrying it BATCH_ATTEMPTS times, waiting _retryDelayMs between the attempts
+     */
+    void insertBatch(List<T> batch) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                insert(batch);
+                _failing = false;
+                _batches.incrementAndGet();
+                _written.addAndGet(batch.size());
+                return;
+            } catch (Exception e) {
+                if (attempt >= BATCH_ATTEMPTS) {
+                    _failing = true;
+                    _failed.addAndGet(batch.size());
+                    _log.error(String.format("Error inserting %d %s points into the database after %d attempts",
+                            batch.size(), _dataType.getSimpleName(), attempt), e);
+                    return;
+                }
+                _log.warn(String.format("Error inserting %d %s points into the database, retrying",
+                        batch.size(), _dataType.getSimpleName()), e);
+            }
+            try {
+                Thread.sleep(_retryDelayMs);
+            } catch (InterruptedException e) {
+                // insert the batch once more before the writer thread ends
+                Thread.currentThread().interrupt();
+                attempt = BATCH_ATTEMPTS - 1;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void insert(List<T> points) throws DatabaseException {
+        T[] data = points.toArray((T[]) Array.newInstance(_dataType, points.size()));
+        String bucketId = _dbClient.insertTimeSeries(_tsType, data);
+        _log.debug("{} {} point(s) persisted into Cassandra with bucketId/rowId : {}",
+                new Object[] { data.length, _dataType.getSimpleName(), bucketId });
+    }
+}
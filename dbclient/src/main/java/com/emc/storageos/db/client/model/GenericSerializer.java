@@ -14,6 +14,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -32,10 +33,12 @@ public class GenericSerializer {
 
     private class PropertiesMap {
         private PropertyDescriptor[] _array;
+        private Method[] _writers;
         private ArrayList<Integer> _indices;
 
         public PropertiesMap() {
             _array = new PropertyDescriptor[MAX_PROPERTIES];
+            _writers = new Method[MAX_PROPERTIES];
             Arrays.fill(_array, null);
             _indices = new ArrayList<Integer>();
         }
@@ -45,8 +48,9 @@ public class GenericSerializer {
          * 
          * @param index Serialization index for the property
          * @param pd PropertyDescriptor
+         * @param writer write method for the property, may be null
          */
-        public void add(int index, PropertyDescriptor pd) {
+        public void add(int index, PropertyDescriptor pd, Method writer) {
             if (index >= MAX_PROPERTIES) {
                 throw DatabaseException.fatals.serializationFailedIndexGreaterThanMax(pd.getName(), index, MAX_PROPERTIES);
             }
@@ -54,6 +58,7 @@ public class GenericSerializer {
                 throw DatabaseException.fatals.serializationFailedIndexReused(pd.getName(), index);
             }
             _array[index] = pd;
+            _writers[index] = writer;
             _indices.add(index);
         }
 
@@ -64,6 +69,10 @@ public class GenericSerializer {
         public PropertyDescriptor get(int index) {
             return _array[index];
         }
+
+        public Method getWriter(int index) {
+            return _writers[index];
+        }
     }
 
     private ConcurrentMap<Class<?>, PropertiesMap> _typeCache;
@@ -105,11 +114,42 @@ public class GenericSerializer {
                     index = ((SerializationIndex) a).value();
                 }
             }
-            properties.add(index, pd);
+            properties.add(index, pd, getWriteMethod(clazz, pd));
         }
         _typeCache.putIfAbsent(clazz, properties);
     }
 
+    /**
+     * Returns the write method of the property. Properties exposed through a boxed getter
+     * (e.g. Long getX()) and a primitive setter (e.g. setX(long)) are not paired by the
+     * Introspector, so the primitive setter is looked up explicitly.
+     * 
+     * @param clazz
+     * @param pd
+     * @return write method or null if the property is read only
+     */
+    private Method getWriteMethod(Class<?> clazz, PropertyDescriptor pd) {
+        if (pd.getWriteMethod() != null) {
+            return pd.getWriteMethod();
+        }
+        Class<?> primitiveType = null;
+        if (pd.getPropertyType() == Long.class) {
+            primitiveType = long.class;
+        } else if (pd.getPropertyType() == Integer.class) {
+            primitiveType = int.class;
+        }
+        if (primitiveType == null) {
+            return null;
+        }
+        String name = pd.getName();
+        String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        try {
+            return clazz.getMethod(setterName, primitiveType);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
     public PropertiesMap getProperties(Class<?> clazz) {
         if (!_typeCache.containsKey(clazz)) {
             // init the map for this type
@@ -198,9 +238,15 @@ public class GenericSerializer {
                         continue;
                     }
                     value = uri.toString().getBytes(ENCODING);
-                } else if (type == long.class) {
-                    long lvalue = (Long) pd.getReadMethod().invoke(obj);
+                } else if (type == long.class || type == int.class) {
+                    long lvalue = ((Number) pd.getReadMethod().invoke(obj)).longValue();
                     value = encodeVariantLong(lvalue);
+                } else if (type == Long.class || type == Integer.class) {
+                    Number number = (Number) pd.getReadMethod().invoke(obj);
+                    if (number == null) {
+                        continue;
+                    }
+                    value = encodeVariantLong(number.longValue());
                 } else if (type == boolean.class) {
                     boolean lvalue = (Boolean) pd.getReadMethod().invoke(obj);
                     value = new byte[1];
@@ -246,9 +292,25 @@ public class GenericSerializer {
     public <T>
             T fromByteArray(Class<T> clazz, byte[] bytes)
                     throws DatabaseException {
+        return fromByteArray(clazz, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Create object of specified type, from the given range of a byte[]
+     * 
+     * @param clazz
+     * @param bytes
+     * @param offset offset of the first encoded field
+     * @param length number of bytes to decode
+     * @param <T>
+     * @return
+     */
+    public <T>
+            T fromByteArray(Class<T> clazz, byte[] bytes, int offset, int length)
+                    throws DatabaseException {
 
         PropertiesMap propertiesMap = getProperties(clazz);
-        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes, offset, length);
         try {
             T retObj = clazz.newInstance();
             // at least, 3 bytes expected
@@ -265,22 +327,25 @@ public class GenericSerializer {
                 }
                 // now, set value to the respective field
                 PropertyDescriptor pd = propertiesMap.get(index);
-                if (pd == null) {
+                Method writer = propertiesMap.getWriter(index);
+                if (pd == null || writer == null) {
                     // old field we don't have anymore, ignore
                     continue;
                 }
                 Class<?> type = pd.getPropertyType();
                 if (type == String.class) {
-                    pd.getWriteMethod().invoke(retObj, new String(value));
+                    writer.invoke(retObj, new String(value));
                 } else if (type == URI.class) {
                     URI uri = URI.create(new String(value));
-                    pd.getWriteMethod().invoke(retObj, uri);
-                } else if (type == long.class) {
-                    pd.getWriteMethod().invoke(retObj, decodeVariantLong(value));
+                    writer.invoke(retObj, uri);
+                } else if (type == long.class || type == Long.class) {
+                    writer.invoke(retObj, decodeVariantLong(value));
+                } else if (type == int.class || type == Integer.class) {
+                    writer.invoke(retObj, (int) decodeVariantLong(value));
                 } else if (type == boolean.class) {
-                    pd.getWriteMethod().invoke(retObj, value[0] == (byte) 1 ? true : false);
+                    writer.invoke(retObj, value[0] == (byte) 1 ? true : false);
                 } else if (type == byte[].class) {
-                    pd.getWriteMethod().invoke(retObj, value);
+                    writer.invoke(retObj, value);
                 } else {
                     // throw -- implement value for this type
                     throw DatabaseException.fatals.deserializationFailedUnsupportedType(clazz, pd.getName(), type);
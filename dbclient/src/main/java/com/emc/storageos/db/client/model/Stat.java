@@ -146,6 +146,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "resource_id")
     @JsonProperty("resource_id")
+    @SerializationIndex(2)
     public URI getResourceId() {
         return _resourceId;
     }
@@ -156,6 +157,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "provisioned_capacity")
     @JsonProperty("provisioned_capacity")
+    @SerializationIndex(3)
     public Long getProvisionedCapacity() {
         if (_provisionedCapacity < 0) {
             return null;
@@ -170,6 +172,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "allocated_capacity")
     @JsonProperty("allocated_capacity")
+    @SerializationIndex(4)
     public Long getAllocatedCapacity() {
         if (_allocatedCapacity < 0) {
             return null;
@@ -184,6 +187,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "snapshot_capacity")
     @JsonProperty("snapshot_capacity")
+    @SerializationIndex(5)
     public Long getSnapshotCapacity() {
         if (_snapshotCapacity < 0) {
             return null;
@@ -198,6 +202,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "snapshot_count")
     @JsonProperty("snapshot_count")
+    @SerializationIndex(6)
     public Integer getSnapshotCount() {
         if (_snapshotCount < 0) {
             return null;
@@ -212,6 +217,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "bandwidth_in")
     @JsonProperty("bandwidth_in")
+    @SerializationIndex(7)
     public Long getBandwidthIn() {
         if (_bandwidthIn < 0) {
             return null;
@@ -226,6 +232,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "bandwidth_out")
     @JsonProperty("bandwidth_out")
+    @SerializationIndex(8)
     public Long getBandwidthOut() {
         if (_bandwidthOut < 0) {
             return null;
@@ -240,6 +247,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "object_count")
     @JsonProperty("object_count")
+    @SerializationIndex(9)
     public Long getObjCount() {
         if (_objCount < 0) {
             return null;
@@ -254,6 +262,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "user_size")
     @JsonProperty("user_size")
+    @SerializationIndex(10)
     public Long getUserSize() {
         if (_userSize < 0) {
             return null;
@@ -268,6 +277,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "real_size")
     @JsonProperty("real_size")
+    @SerializationIndex(11)
     public Long getRealSize() {
         if (_realSize < 0) {
             return null;
@@ -282,6 +292,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "user_metadata_size")
     @JsonProperty("user_metadata_size")
+    @SerializationIndex(12)
     public Long getUmdSize() {
         if (_umdSize < 0) {
             return null;
@@ -296,6 +307,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "system_metadata_size")
     @JsonProperty("system_metadata_size")
+    @SerializationIndex(13)
     public Long getSmdSize() {
         if (_smdSize < 0) {
             return null;
@@ -310,6 +322,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "virtual_pool_id")
     @JsonProperty("virtual_pool_id")
+    @SerializationIndex(14)
     public URI getVirtualPool() {
         return _virtualPool;
     }
@@ -320,6 +333,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "project_id")
     @JsonProperty("project_id")
+    @SerializationIndex(15)
     public URI getProject() {
         return _project;
     }
@@ -330,6 +344,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "tenant_id")
     @JsonProperty("tenant_id")
+    @SerializationIndex(16)
     public URI getTenant() {
         return _tenant;
     }
@@ -340,6 +355,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "user_id")
     @JsonProperty("user_id")
+    @SerializationIndex(17)
     public URI getUser() {
         return _user;
     }
@@ -350,6 +366,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "service_type")
     @JsonProperty("service_type")
+    @SerializationIndex(18)
     public String getServiceType() {
         return _serviceType;
     }
@@ -368,6 +385,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
      */
     @XmlElement(name = "time_collected")
     @JsonProperty("time_collected")
+    @SerializationIndex(19)
     public long getTimeCollected() {
         return _timeCollected;
     }
@@ -397,6 +415,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
     @Override
     @XmlElement(name = "time_measured")
     @JsonProperty("time_measured")
+    @SerializationIndex(1)
     public long getTimeInMillis() {
         return super.getTimeInMillis();
     }
@@ -421,6 +440,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
      */
     @XmlElement(name = "native_guid")
     @JsonProperty("native_guid")
+    @SerializationIndex(20)
     public String getNativeGuid() {
         return _nativeGuid;
     }
@@ -436,6 +456,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "total_ios")
     @JsonProperty("total_ios")
+    @SerializationIndex(21)
     public Long getTotalIOs() {
         return (_totalIOs < 0) ? null : _totalIOs;
     }
@@ -446,6 +467,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "read_ios")
     @JsonProperty("read_ios")
+    @SerializationIndex(22)
     public Long getReadIOs() {
         return (_readIOs < 0) ? null : _readIOs;
     }
@@ -456,6 +478,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "write_ios")
     @JsonProperty("write_ios")
+    @SerializationIndex(23)
     public Long getWriteIOs() {
         return (_writeIOs < 0) ? null : _writeIOs;
     }
@@ -466,6 +489,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "kbytes_transferred")
     @JsonProperty("kbytes_transferred")
+    @SerializationIndex(24)
     public Long getKbytesTransferred() {
         return (_kbytesTransferred < 0) ? null : _kbytesTransferred;
     }
@@ -476,6 +500,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "idle_time_counter")
     @JsonProperty("idle_time_counter")
+    @SerializationIndex(25)
     public Long getIdleTimeCounter() {
         return (_idleTimeCounter < 0) ? null : _idleTimeCounter;
     }
@@ -486,6 +511,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "io_time_counter")
     @JsonProperty("io_time_counter")
+    @SerializationIndex(26)
     public Long getIoTimeCounter() {
         return (_ioTimeCounter < 0) ? null : _ioTimeCounter;
     }
@@ -496,6 +522,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "queue_length")
     @JsonProperty("queue_length")
+    @SerializationIndex(27)
     public Long getQueueLength() {
         return (_queueLength < 0) ? null : _queueLength;
     }
@@ -506,6 +533,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "read_hit_ios")
     @JsonProperty("read_hit_ios")
+    @SerializationIndex(28)
     public Long getReadHitIOs() {
         return (_readHitIOs < 0) ? null : _readHitIOs;
     }
@@ -516,6 +544,7 @@ public class Stat extends TimeSeriesSerializer.DataPoint implements
 
     @XmlElement(nillable = true, name = "write_hit_ios")
     @JsonProperty("write_hit_ios")
+    @SerializationIndex(29)
     public Long getWriteHitIOs() {
         return (_writeHitIOs < 0) ? null : _writeHitIOs;
     }
@@ -5,12 +5,9 @@
 package com.emc.storageos.db.client.model;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 
 import com.emc.storageos.db.client.TimeSeriesMetadata;
 import org.slf4j.Logger;
@@ -35,36 +32,50 @@ public class StatTimeSeries implements TimeSeries<Stat> {
     }
 
     /**
-     * Stat serializer implementation ;Default Serialization is not efficient (version problems),
-     * but till we finalize Serializer Implementation, this code remains.
-     * For demo purpose, will use Default Serialization
-     * To-Do: use Protocol Buffers
+     * Stat serializer implementation. Stats are encoded with the {@link SerializationIndex}
+     * driven {@link GenericSerializer} format, prefixed with a codec version byte.
+     * Stats written with default Java serialization by earlier releases are still read
+     * transparently; they are recognized by the Java serialization stream magic.
      */
     public static class StatSerializer implements TimeSeriesSerializer<Stat> {
+        private static final byte CODEC_VERSION = 1;
+        private static final byte JAVA_STREAM_MAGIC_HIGH = (byte) 0xAC;
+        private static final byte JAVA_STREAM_MAGIC_LOW = (byte) 0xED;
+
+        private GenericSerializer _genericSerializer = new GenericSerializer();
+
         @Override
         public byte[] serialize(Stat data) {
-            byte[] Objbytes = null;
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            ObjectOutput out = null;
-            try {
-                out = new ObjectOutputStream(bos);
-                out.writeObject(data);
-                Objbytes = bos.toByteArray();
-            } catch (Exception e) {
-                _logger.error("Serializing Object to byte Array Exception  :" + e);
-            } finally {
-                try {
-                    out.close();
-                    bos.close();
-                } catch (IOException e) {
-                    _logger.error("Error while closing Streams " + e);
-                }
-            }
-            return Objbytes;
+            byte[] encoded = _genericSerializer.toByteArray(Stat.class, data);
+            byte[] objBytes = new byte[encoded.length + 1];
+            objBytes[0] = CODEC_VERSION;
+            System.arraycopy(encoded, 0, objBytes, 1, encoded.length);
+            return objBytes;
         }
 
         @Override
         public Stat deserialize(byte[] data) {
+            if (data == null || data.length == 0) {
+                return null;
+            }
+            if (isJavaSerialized(data)) {
+                return deserializeJavaSerialized(data);
+            }
+            if (data[0] != CODEC_VERSION) {
+                _logger.error("Unsupported Stat codec version {}", data[0]);
+                return null;
+            }
+            return _genericSerializer.fromByteArray(Stat.class, data, 1, data.length - 1);
+        }
+
+        private boolean isJavaSerialized(byte[] data) {
+            return data.length > 1 && data[0] == JAVA_STREAM_MAGIC_HIGH && data[1] == JAVA_STREAM_MAGIC_LOW;
+        }
+
+        /**
+         * Reads a Stat written with default Java serialization by earlier releases
+         */
+        private Stat deserializeJavaSerialized(byte[] data) {
             Object statsObj = null;
             ByteArrayInputStream bis = null;
             ObjectInput in = null;
@@ -76,7 +87,9 @@ public class StatTimeSeries implements TimeSeries<Stat> {
                 _logger.error("DeSerializing Object to byte Array Exception  :" + e1);
             } finally {
                 try {
-                    in.close();
+                    if (in != null) {
+                        in.close();
+                    }
                     bis.close();
                 } catch (IOException e1) {
                     _logger.error("Error while closing Streams " + e1);
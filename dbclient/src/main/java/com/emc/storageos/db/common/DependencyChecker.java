@@ -8,14 +8,21 @@ import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.constraint.ContainmentConstraint;
 import com.emc.storageos.db.client.constraint.URIQueryResultList;
 import com.emc.storageos.db.client.constraint.impl.ContainmentConstraintImpl;
+import com.emc.storageos.db.client.impl.DbClientImpl;
 import com.emc.storageos.db.client.model.DataObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Class provides method for checking dependencies
@@ -23,6 +30,10 @@ import java.util.List;
  */
 public class DependencyChecker {
     private static final Logger _log = LoggerFactory.getLogger(DependencyChecker.class);
+    // index rows read by one query of checkDependencies(Collection...)
+    private static final int MAX_KEYS_PER_QUERY = 100;
+    // references read per index row when only active references count, rows with more are read again in full
+    private static final int MAX_REFERENCES_PER_QUERY = 1000;
     final private DependencyTracker _dependencyTracker;
     final private DbClient _dbClient;
 
@@ -101,6 +112,139 @@ public class DependencyChecker {
         return null;
     }
 
+    /**
+     * Batched variant of checkDependencies() for a page of objects of the same type.
+     * Each dependency index is read once per slice of uris that have no dependency found yet,
+     * with a multi row query, and the active state of the references found for the whole page
+     * is resolved with bulk queries.
+     * 
+     * @param uris ids of the DataObjects
+     * @param type DataObject class name
+     * @param onlyActive if true, checks for active references only (expensive)
+     * @return map of uri to the type of the dependency found; uris without references are not in the map
+     */
+    public Map<URI, String> checkDependencies(Collection<URI> uris, Class<? extends DataObject> type, boolean onlyActive) {
+        Map<URI, String> dependents = new HashMap<URI, String>();
+        List<DependencyTracker.Dependency> dependencies = _dependencyTracker.getDependencies(type);
+        // no dependencies - nothing to do
+        if (dependencies.isEmpty() || uris.isEmpty()) {
+            return dependents;
+        }
+
+        for (DependencyTracker.Dependency dependency : dependencies) {
+            List<URI> remaining = new ArrayList<URI>();
+            for (URI uri : uris) {
+                if (!dependents.containsKey(uri)) {
+                    remaining.add(uri);
+                }
+            }
+            if (remaining.isEmpty()) {
+                break;
+            }
+            // any reference is a dependency unless only active ones count, then one index entry is enough
+            int maxReferences = onlyActive ? MAX_REFERENCES_PER_QUERY : 1;
+            Map<URI, List<URI>> references = queryReferences(remaining, dependency, maxReferences);
+            if (!onlyActive) {
+                for (URI uri : references.keySet()) {
+                    dependents.put(uri, dependency.getType().getSimpleName());
+                }
+                continue;
+            }
+
+            if (!references.isEmpty()) {
+                Set<URI> allReferences = new HashSet<URI>();
+                for (List<URI> referenceList : references.values()) {
+                    allReferences.addAll(referenceList);
+                }
+                Set<URI> activeReferences = getActive(allReferences, dependency.getType());
+                for (Map.Entry<URI, List<URI>> entry : references.entrySet()) {
+                    URI uri = entry.getKey();
+                    boolean found = !Collections.disjoint(entry.getValue(), activeReferences);
+                    if (!found && entry.getValue().size() >= maxReferences) {
+                        // more references than fetched, check them all
+                        found = checkDependency(uri, dependency, true);
+                    }
+                    if (found) {
+                        _log.info("{}: active references of type {} found",
+                                uri.toString(), dependency.getType().getSimpleName());
+                        dependents.put(uri, dependency.getType().getSimpleName());
+                    }
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Reads the index of a dependency for the given uris, MAX_KEYS_PER_QUERY uris per query
+     * 
+     * @param uris ids of the referenced DataObjects
+     * @param dependency the dependency to look up
+     * @param maxReferences the most references returned per uri
+     * @return map of uri to the references found; uris without references are not in the map
+     */
+    private Map<URI, List<URI>> queryReferences(List<URI> uris, DependencyTracker.Dependency dependency, int maxReferences) {
+        Map<URI, List<URI>> references = new HashMap<URI, List<URI>>();
+        if (!(_dbClient instanceof DbClientImpl)) {
+            for (URI uri : uris) {
+                ContainmentConstraint constraint =
+                        new ContainmentConstraintImpl(uri, dependency.getType(), dependency.getColumnField());
+                URIQueryResultList list = new URIQueryResultList();
+                _dbClient.queryByConstraint(constraint, list, null, maxReferences);
+                List<URI> referenceList = new ArrayList<URI>();
+                for (URI reference : list) {
+                    referenceList.add(reference);
+                }
+                if (!referenceList.isEmpty()) {
+                    references.put(uri, referenceList);
+                }
+            }
+            return references;
+        }
+        DbClientImpl dbClient = (DbClientImpl) _dbClient;
+        for (int i = 0; i < uris.size(); i += MAX_KEYS_PER_QUERY) {
+            List<URI> keys = uris.subList(i, Math.min(i + MAX_KEYS_PER_QUERY, uris.size()));
+            references.putAll(dbClient.queryContainedObjects(dependency.getType(), dependency.getColumnField(),
+                    keys, maxReferences));
+        }
+        return references;
+    }
+
+    private boolean checkDependency(URI uri, DependencyTracker.Dependency dependency, boolean onlyActive) {
+        ContainmentConstraint constraint =
+                new ContainmentConstraintImpl(uri, dependency.getType(), dependency.getColumnField());
+        URIQueryResultList list = new URIQueryResultList();
+        _dbClient.queryByConstraint(constraint, list);
+        return list.iterator().hasNext() && (!onlyActive || checkIfAnyActive(list, dependency.getType()));
+    }
+
+    /**
+     * Returns the uris from the given set that are active. Uris of objects that could not be
+     * loaded are considered active, as in checkIfAnyActive().
+     * 
+     * @param uris
+     * @param type
+     * @return active uris
+     */
+    private Set<URI> getActive(Set<URI> uris, Class<? extends DataObject> type) {
+        Set<URI> active = new HashSet<URI>(uris);
+        List<URI> urisToQuery = new ArrayList<URI>();
+        Iterator<URI> uriIterator = uris.iterator();
+        while (uriIterator.hasNext()) {
+            urisToQuery.add(uriIterator.next());
+            if (urisToQuery.size() == 100 || !uriIterator.hasNext()) {
+                List<? extends DataObject> results = _dbClient.queryObjectField(type, "inactive", urisToQuery);
+                for (DataObject obj : results) {
+                    if (obj.getInactive()) {
+                        active.remove(obj.getId());
+                    }
+                }
+                urisToQuery.clear();
+            }
+        }
+        return active;
+    }
+
     /**
      * Checks if any of the uris from the list are active
      * 
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.db.client.impl;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.ExportMask;
+import com.emc.storageos.db.client.model.NamedURI;
+import com.emc.storageos.db.client.model.StoragePool;
+import com.emc.storageos.db.client.model.StringMap;
+import com.emc.storageos.db.client.model.StringSet;
+import com.emc.storageos.db.client.model.StringSetMap;
+import com.emc.storageos.db.client.model.Volume;
+import com.netflix.astyanax.Serializer;
+import com.netflix.astyanax.model.Column;
+import com.netflix.astyanax.model.ColumnList;
+
+/**
+ * Deserializes synthetic Volume, ExportMask and StoragePool rows through the column field
+ * accessors and through the reflected setters, checking both give the same objects and
+ * comparing the time per row.
+ */
+public class ColumnFieldAccessorPerfTest {
+    private static Logger _log = LoggerFactory.getLogger(ColumnFieldAccessorPerfTest.class);
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 100000;
+    private static final int COLLECTION_SIZE = 4;
+
+    @Test
+    public void testVolume() throws Exception {
+        compare(Volume.class);
+    }
+
+    @Test
+    public void testExportMask() throws Exception {
+        compare(ExportMask.class);
+    }
+
+    @Test
+    public void testStoragePool() throws Exception {
+        compare(StoragePool.class);
+    }
+
+    private <T extends DataObject> void compare(Class<T> clazz) throws Exception {
+        DataObjectType doType = TypeMap.getDoType(clazz);
+        List<Column<CompositeColumnName>> row = createRow(doType);
+
+        T reflected = deserializeWithReflection(clazz, doType, row);
+        T accessed = deserializeWithAccessors(clazz, doType, row);
+        for (ColumnField field : doType.getColumnFields()) {
+            if (field.isLazyLoaded()) {
+                continue;
+            }
+            Assert.assertEquals(field.getName(), ColumnField.getFieldValue(field, reflected),
+                    ColumnField.getFieldValue(field, accessed));
+        }
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            deserializeWithReflection(clazz, doType, row);
+            deserializeWithAccessors(clazz, doType, row);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            deserializeWithReflection(clazz, doType, row);
+        }
+        long reflectionNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            deserializeWithAccessors(clazz, doType, row);
+        }
+        long accessorNanos = System.nanoTime() - start;
+        _log.info("{}: {} columns, ns per row: reflection {}, accessors {}", new Object[] { clazz.getSimpleName(),
+                row.size(), reflectionNanos / ITERATIONS, accessorNanos / ITERATIONS });
+    }
+
+    private <T extends DataObject> T deserializeWithReflection(Class<T> clazz, DataObjectType doType,
+            List<Column<CompositeColumnName>> row) throws Exception {
+        T obj = clazz.cast(DataObject.createInstance(clazz, URI.create("urn:storageos:" + clazz.getSimpleName() + ":perf:")));
+        for (Column<CompositeColumnName> column : row) {
+            ColumnField field = doType.getColumnField(column.getName().getOne());
+            ColumnValue.setField(column, field.getPropertyDescriptor(), obj);
+        }
+        return obj;
+    }
+
+    private <T extends DataObject> T deserializeWithAccessors(Class<T> clazz, DataObjectType doType,
+            List<Column<CompositeColumnName>> row) throws Exception {
+        T obj = clazz.cast(DataObject.createInstance(clazz, URI.create("urn:storageos:" + clazz.getSimpleName() + ":perf:")));
+        for (Column<CompositeColumnName> column : row) {
+            doType.getColumnField(column.getName().getOne()).deserialize(column, obj);
+        }
+        return obj;
+    }
+
+    /**
+     * Creates a column for every primitive field, and a few entries for every string set and
+     * string map field of the type.
+     */
+    private List<Column<CompositeColumnName>> createRow(DataObjectType doType) {
+        List<Column<CompositeColumnName>> row = new ArrayList<Column<CompositeColumnName>>();
+        for (ColumnField field : doType.getColumnFields()) {
+            if (field.isLazyLoaded() || field.getType() == null) {
+                continue;
+            }
+            String name = field.getName();
+            Class type = field.getPropertyDescriptor().getPropertyType();
+            switch (field.getType()) {
+                case Primitive:
+                case NamedURI: {
+                    Object value = createValue(name, type);
+                    if (value != null) {
+                        row.add(new TestColumn(new CompositeColumnName(name), value));
+                    }
+                    break;
+                }
+                case TrackingSet:
+                    if (type == StringSet.class) {
+                        for (int i = 0; i < COLLECTION_SIZE; i++) {
+                            String entry = name + "-" + i;
+                            row.add(new TestColumn(new CompositeColumnName(name, entry), entry));
+                        }
+                    }
+                    break;
+                case TrackingMap:
+                    if (type == StringMap.class) {
+                        for (int i = 0; i < COLLECTION_SIZE; i++) {
+                            row.add(new TestColumn(new CompositeColumnName(name, "key" + i),
+                                    ("value" + i).getBytes(Charset.forName("UTF-8"))));
+                        }
+                    }
+                    break;
+                case TrackingSetMap:
+                    if (type == StringSetMap.class) {
+                        for (int i = 0; i < COLLECTION_SIZE; i++) {
+                            String entry = "value" + i;
+                            row.add(new TestColumn(new CompositeColumnName(name, "key" + i % 2, entry), entry));
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return row;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object createValue(String name, Class type) {
+        if (type == String.class) {
+            return name + "-value";
+        } else if (type == URI.class) {
+            return "urn:storageos:" + name + ":" + UUID.randomUUID() + ":";
+        } else if (type == NamedURI.class) {
+            return new NamedURI(URI.create("urn:storageos:" + name + ":1:"), name).toString();
+        } else if (type == Boolean.class) {
+            return Boolean.TRUE;
+        } else if (type == Integer.class || type == Short.class || type == Byte.class) {
+            return 7;
+        } else if (type == Long.class || type == Calendar.class) {
+            return 1400000000000L;
+        } else if (type == Double.class || type == Float.class) {
+            return 0.5d;
+        } else if (type == Date.class) {
+            return new Date(1400000000000L);
+        } else if (type.isEnum() && type.getEnumConstants().length > 0) {
+            return ((Enum) type.getEnumConstants()[0]).name();
+        }
+        return null;
+    }
+
+    /**
+     * In memory column holding the value read by deserialization
+     */
+    private static class TestColumn implements Column<CompositeColumnName> {
+        private final CompositeColumnName name;
+        private final Object value;
+
+        TestColumn(CompositeColumnName name, Object value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public CompositeColumnName getName() {
+            return name;
+        }
+
+        @Override
+        public ByteBuffer getRawName() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getTimestamp() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <V> V getValue(Serializer<V> valSer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getStringValue() {
+            return (String) value;
+        }
+
+        @Override
+        public int getIntegerValue() {
+            return ((Number) value).intValue();
+        }
+
+        @Override
+        public double getDoubleValue() {
+            return ((Number) value).doubleValue();
+        }
+
+        @Override
+        public long getLongValue() {
+            return ((Number) value).longValue();
+        }
+
+        @Override
+        public byte[] getByteArrayValue() {
+            return (byte[]) value;
+        }
+
+        @Override
+        public boolean getBooleanValue() {
+            return (Boolean) value;
+        }
+
+        @Override
+        public ByteBuffer getByteBufferValue() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Date getDateValue() {
+            return (Date) value;
+        }
+
+        @Override
+        public UUID getUUIDValue() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <C2> ColumnList<C2> getSubColumns(Serializer<C2> ser) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isParentColumn() {
+            return false;
+        }
+
+        @Override
+        public int getTtl() {
+            return 0;
+        }
+
+        @Override
+        public boolean hasValue() {
+            return value != null;
+        }
+
+        @Override
+        public byte getByteValue() {
+            return ((Number) value).byteValue();
+        }
+
+        @Override
+        public String getCompressedStringValue() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public float getFloatValue() {
+            return ((Number) value).floatValue();
+        }
+
+        @Override
+        public short getShortValue() {
+            return ((Number) value).shortValue();
+        }
+    }
+}
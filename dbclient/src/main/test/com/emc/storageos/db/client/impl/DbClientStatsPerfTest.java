@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.db.client.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.vipr.model.sys.healthmonitor.DbClientStatsRestRep;
+
+/**
+ * Checks the latency histogram and the operation statistics, and compares the time per call of
+ * the stack trace call site counter with the column family statistics and sampled call sites.
+ */
+public class DbClientStatsPerfTest {
+    private static Logger _log = LoggerFactory.getLogger(DbClientStatsPerfTest.class);
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 200000;
+    private static final String KEYSPACE = "PerfTest";
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(5000, histogram.getMean());
+        Assert.assertEquals(10000, histogram.getMax());
+        assertWithin(5000, histogram.getPercentile(50));
+        assertWithin(9000, histogram.getPercentile(90));
+        assertWithin(9900, histogram.getPercentile(99));
+        Assert.assertEquals(10000, histogram.getPercentile(100));
+
+        for (long value = 0; value < 1L << 34; value = value * 3 + 1) {
+            int index = LatencyHistogram.bucketIndex(value);
+            Assert.assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+            Assert.assertTrue(index == 0 || LatencyHistogram.bucketUpperBound(index - 1) < value);
+        }
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void testOperationStats() {
+        DbClientStats stats = DbClientStats.getInstance();
+        DbClientStats.OperationStats volumeReads = stats.getOperationStats(KEYSPACE, "Volume", DbClientStats.Operation.READ);
+        Assert.assertSame(volumeReads, stats.getOperationStats(KEYSPACE, "Volume", DbClientStats.Operation.READ));
+        long count = volumeReads.getCount();
+        volumeReads.start();
+        volumeReads.success();
+        volumeReads.start();
+        volumeReads.failure(null);
+        volumeReads.addRows(3);
+        Assert.assertEquals(count + 2, volumeReads.getCount());
+
+        boolean found = false;
+        for (DbClientStatsRestRep.OperationStats op : stats.getStats().getOperations()) {
+            if (KEYSPACE.equals(op.getKeyspace()) && "Volume".equals(op.getColumnFamily())
+                    && DbClientStats.Operation.READ.name().equals(op.getOperation())) {
+                Assert.assertTrue(op.getErrors() >= 1);
+                Assert.assertTrue(op.getRows() >= 3);
+                found = true;
+            }
+        }
+        Assert.assertTrue(found);
+    }
+
+    @Test
+    public void testCallSiteSampling() throws Exception {
+        final DbClientStats stats = DbClientStats.getInstance();
+        // the caller has to be outside of the dbclient packages, which this test is in
+        Callable<Object> caller = Executors.callable(new Runnable() {
+            @Override
+            public void run() {
+                tracer(stats);
+            }
+        });
+        stats.clearCallSites();
+        stats.setCallSiteSampleRate(1);
+        try {
+            for (int i = 0; i < 10; i++) {
+                caller.call();
+                // nested calls of the dbclient are not counted
+                dbClientMethod(stats);
+            }
+        } finally {
+            stats.setCallSiteSampleRate(0);
+        }
+        Assert.assertEquals(1, stats.getTopCallSites(5).size());
+        Assert.assertEquals(10, stats.getTopCallSites(5).get(0).getCount());
+        Assert.assertTrue(stats.getTopCallSites(5).get(0).getCallSite().startsWith(Executors.class.getName()));
+        stats.clearCallSites();
+    }
+
+    @Test
+    public void testPerCallOverhead() {
+        DbClientStats stats = DbClientStats.getInstance();
+        DbClientStats.OperationStats tracer = stats.getOperationStats(KEYSPACE, "Volume", DbClientStats.Operation.READ);
+        StackTraceCounter counter = new StackTraceCounter();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            counter.newTracer("read");
+            instrumented(stats, tracer);
+        }
+        stats.setCallSiteSampleRate(100);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            instrumented(stats, tracer);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            counter.newTracer("read");
+        }
+        long stackTraceNanos = System.nanoTime() - start;
+
+        stats.setCallSiteSampleRate(0);
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            instrumented(stats, tracer);
+        }
+        long statsNanos = System.nanoTime() - start;
+
+        stats.setCallSiteSampleRate(100);
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            instrumented(stats, tracer);
+        }
+        long sampledNanos = System.nanoTime() - start;
+        stats.setCallSiteSampleRate(0);
+        stats.clearCallSites();
+
+        Assert.assertTrue(counter.total.get() >= ITERATIONS);
+        _log.info("ns per call: stack trace counter {}, column family stats {}, with 1/100 call sites sampled {}",
+                new Object[] { stackTraceNanos / ITERATIONS, statsNanos / ITERATIONS, sampledNanos / ITERATIONS });
+    }
+
+    private void instrumented(DbClientStats stats, DbClientStats.OperationStats tracer) {
+        dbClientMethod(stats);
+        tracer.start();
+        tracer.success();
+    }
+
+    // stands for the DbClient method, which calls the DbClientImpl tracer
+    private void dbClientMethod(DbClientStats stats) {
+        tracer(stats);
+    }
+
+    private void tracer(DbClientStats stats) {
+        stats.sampleCallSite("read");
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+
+    /**
+     * The call site counter that ran on every DbClient call before the column family statistics
+     */
+    private static class StackTraceCounter {
+        private final ConcurrentHashMap<String, AtomicLong> counterMap = new ConcurrentHashMap<String, AtomicLong>();
+        private final AtomicLong total = new AtomicLong(0);
+
+        public void newTracer(String type) {
+            StackTraceElement stackTraceElement = Thread.currentThread().getStackTrace()[3];
+            total.getAndIncrement();
+            String key = String.format("%s.%s:%s:%s", stackTraceElement.getClassName(), stackTraceElement.getMethodName(),
+                    stackTraceElement.getLineNumber(), type);
+            counterMap.putIfAbsent(key, new AtomicLong(0));
+            counterMap.get(key).getAndIncrement();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.db.client.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.model.Event;
+import com.emc.storageos.db.client.model.EventTimeSeries;
+import com.emc.storageos.db.exceptions.DatabaseException;
+
+/**
+ * Records events on many threads through the batch writer with a stubbed DbClient taking a fixed time
+ * per insert, checking every event is inserted once, and compares the time spent by the callers with
+ * inserting the events on the callers' threads.
+ */
+public class TimeSeriesBatchWriterTest {
+    private static final Logger _log = LoggerFactory.getLogger(TimeSeriesBatchWriterTest.class);
+
+    private static final int THREAD_COUNT = 16;
+    private static final int EVENTS_PER_THREAD = 100;
+    private static final long INSERT_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    @Test
+    public void testEventsAreBatched() throws Exception {
+        StubInserts inserts = new StubInserts();
+        final DbClient dbClient = inserts.createDbClient();
+
+        long syncNanos = run(new Recorder() {
+            @Override
+            public void record(Event event) {
+                dbClient.insertTimeSeries(EventTimeSeries.class, event);
+            }
+        });
+        Assert.assertEquals(THREAD_COUNT * EVENTS_PER_THREAD, inserts.points.get());
+
+        inserts.reset();
+        final TimeSeriesBatchWriter<Event> writer = new TimeSeriesBatchWriter<Event>(dbClient, EventTimeSeries.class, Event.class,
+                100, 50, 10000, 1000);
+        writer.start();
+        long asyncNanos = run(new Recorder() {
+            @Override
+            public void record(Event event) {
+                writer.add(event);
+            }
+        });
+        writer.stop();
+
+        Assert.assertEquals(THREAD_COUNT * EVENTS_PER_THREAD, inserts.points.get());
+        Assert.assertEquals(THREAD_COUNT * EVENTS_PER_THREAD, writer.getWrittenCount());
+        Assert.assertEquals(0, writer.getCallerWrittenCount());
+        Assert.assertTrue(inserts.calls.get() <= THREAD_COUNT * EVENTS_PER_THREAD / 10);
+        _log.info("{} events on {} threads: inserted by callers {} ms, batched {} ms in {} inserts",
+                new Object[] { THREAD_COUNT * EVENTS_PER_THREAD, THREAD_COUNT, syncNanos / 1000000, asyncNanos / 1000000,
+                        inserts.calls.get() });
+    }
+
+    @Test
+    public void testFullQueueIsWrittenByCallers() throws Exception {
+        StubInserts inserts = new StubInserts();
+        final TimeSeriesBatchWriter<Event> writer = new TimeSeriesBatchWriter<Event>(inserts.createDbClient(),
+                EventTimeSeries.class, Event.class, 5, 10, 10, 1);
+        writer.start();
+        run(new Recorder() {
+            @Override
+            public void record(Event event) {
+                writer.add(event);
+            }
+        });
+        writer.stop();
+
+        Assert.assertEquals(THREAD_COUNT * EVENTS_PER_THREAD, inserts.points.get());
+        Assert.assertEquals(THREAD_COUNT * EVENTS_PER_THREAD, writer.getWrittenCount() + writer.getCallerWrittenCount());
+        Assert.assertTrue(writer.getCallerWrittenCount() > 0);
+    }
+
+    @Test
+    public void testStopFlushesQueue() {
+        StubInserts inserts = new StubInserts();
+        DbClient dbClient = inserts.createDbClient();
+        // not started, so the events stay queued until the writer is stopped
+        TimeSeriesBatchWriter<Event> writer = new TimeSeriesBatchWriter<Event>(dbClient, EventTimeSeries.class, Event.class,
+                100, 1000, 100, 1000);
+        writer.add(new Event(), new Event(), new Event());
+        Assert.assertEquals(3, writer.getQueueSize());
+        Assert.assertEquals(0, inserts.points.get());
+
+        writer.stop();
+        Assert.assertEquals(3, inserts.points.get());
+        Assert.assertEquals(1, inserts.calls.get());
+
+        // inserted right away once stopped
+        writer.add(new Event());
+        Assert.assertEquals(4, inserts.points.get());
+        Assert.assertEquals(1, writer.getCallerWrittenCount());
+    }
+
+    @Test
+    public void testFullQueueIsWaitedForOncePerCall() {
+        StubInserts inserts = new StubInserts();
+        long offerTimeoutMs = 300;
+        // not started, the queue stays full
+        TimeSeriesBatchWriter<Event> writer = new TimeSeriesBatchWriter<Event>(inserts.createDbClient(), EventTimeSeries.class,
+                Event.class, 100, 1000, 1, offerTimeoutMs);
+
+        long start = System.nanoTime();
+        writer.add(new Event(), new Event(), new Event(), new Event(), new Event());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertEquals(1, writer.getQueueSize());
+        Assert.assertEquals(4, writer.getCallerWrittenCount());
+        Assert.assertEquals(1, inserts.calls.get());
+        Assert.assertTrue("waited " + elapsedMs + " ms", elapsedMs < 2 * offerTimeoutMs);
+    }
+
+    /**
+     * Points added while the writer stops are either flushed by stop() or inserted by the callers, none is left queued
+     */
+    @Test
+    public void testNoPointIsLostWhenStopping() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            StubInserts inserts = new StubInserts();
+            final TimeSeriesBatchWriter<Event> writer = new TimeSeriesBatchWriter<Event>(inserts.createDbClient(),
+                    EventTimeSeries.class, Event.class, 100, 10, 10000, 1000);
+            writer.start();
+            final CountDownLatch started = new CountDownLatch(THREAD_COUNT);
+            ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            try {
+                for (int t = 0; t < THREAD_COUNT; t++) {
+                    futures.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            started.countDown();
+                            for (int e = 0; e < EVENTS_PER_THREAD; e++) {
+                                writer.add(new Event());
+                            }
+                        }
+                    }));
+                }
+                started.await();
+                writer.stop();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            Assert.assertEquals(0, writer.getQueueSize());
+            Assert.assertEquals(THREAD_COUNT * EVENTS_PER_THREAD, inserts.points.get());
+        }
+    }
+
+    @Test
+    public void testFailedBatchIsRetried() {
+        StubInserts inserts = new StubInserts();
+        TimeSeriesBatchWriter<Event> writer = new TimeSeriesBatchWriter<Event>(inserts.createDbClient(), EventTimeSeries.class,
+                Event.class, 100, 1000, 100, 1000);
+        writer.setRetryDelayMs(0);
+        inserts.failures.set(TimeSeriesBatchWriter.BATCH_ATTEMPTS - 1);
+
+        writer.insertBatch(Arrays.asList(new Event(), new Event(), new Event()));
+        Assert.assertEquals(3, inserts.points.get());
+        Assert.assertEquals(3, writer.getWrittenCount());
+        Assert.assertEquals(0, writer.getFailedCount());
+        Assert.assertFalse(writer.isFailing());
+    }
+
+    @Test
+    public void testCallersInsertWhileBatchesFail() {
+        StubInserts inserts = new StubInserts();
+        TimeSeriesBatchWriter<Event> writer = new TimeSeriesBatchWriter<Event>(inserts.createDbClient(), EventTimeSeries.class,
+                Event.class, 100, 1000, 100, 1000);
+        writer.setRetryDelayMs(0);
+        inserts.failures.set(TimeSeriesBatchWriter.BATCH_ATTEMPTS);
+
+        writer.insertBatch(Arrays.asList(new Event(), new Event()));
+        Assert.assertEquals(2, writer.getFailedCount());
+        Assert.assertTrue(writer.isFailing());
+
+        // the callers get the database errors instead of queueing points which would be lost
+        inserts.failures.set(1);
+        try {
+            writer.add(new Event());
+            Assert.fail("The insert failure should be thrown to the caller");
+        } catch (DatabaseException e) {
+            // expected
+        }
+        Assert.assertEquals(0, writer.getQueueSize());
+
+        // once an insert succeeds the points are queued again
+        writer.add(new Event());
+        Assert.assertEquals(1, writer.getCallerWrittenCount());
+        Assert.assertFalse(writer.isFailing());
+        writer.add(new Event());
+        Assert.assertEquals(1, writer.getQueueSize());
+    }
+
+    private long run(final Recorder recorder) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        try {
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            startLatch.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                            recorder.record(new Event());
+                        }
+                    }
+                }));
+            }
+            long start = System.nanoTime();
+            startLatch.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Recorder {
+        void record(Event event);
+    }
+
+    /**
+     * Counts the insertTimeSeries calls and points of a stubbed DbClient, which takes INSERT_NANOS
+     * per call and allows one call at a time, as the mutations of one row would
+     */
+    private static class StubInserts {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger points = new AtomicInteger();
+        // number of the next calls which fail
+        private final AtomicInteger failures = new AtomicInteger();
+
+        void reset() {
+            calls.set(0);
+            points.set(0);
+        }
+
+        DbClient createDbClient() {
+            return (DbClient) Proxy.newProxyInstance(DbClient.class.getClassLoader(), new Class<?>[] { DbClient.class },
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if (method.getName().equals("insertTimeSeries")) {
+                                if (failures.getAndDecrement() > 0) {
+                                    throw DatabaseException.retryables.connectionFailed();
+                                }
+                                synchronized (this) {
+                                    LockSupport.parkNanos(INSERT_NANOS);
+                                    calls.incrementAndGet();
+                                    points.addAndGet(((Object[]) args[1]).length);
+                                }
+                                return "row";
+                            }
+                            return null;
+                        }
+                    });
+        }
+    }
+}
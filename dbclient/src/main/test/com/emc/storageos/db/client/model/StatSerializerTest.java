@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.db.client.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.db.client.URIUtil;
+
+/**
+ * Tests the StatTimeSeries.StatSerializer codec, including reading stats written with
+ * default Java serialization, and compares size and throughput of both formats.
+ */
+public class StatSerializerTest {
+    private static Logger _log = LoggerFactory.getLogger(StatSerializerTest.class);
+    private static final int ITERATIONS = 100000;
+
+    private StatTimeSeries.StatSerializer serializer = new StatTimeSeries.StatSerializer();
+
+    @Test
+    public void testSerializeDeserialize() {
+        Stat stat = createStat();
+        byte[] encoded = serializer.serialize(stat);
+        Stat decoded = serializer.deserialize(encoded);
+        assertStatEquals(stat, decoded);
+    }
+
+    @Test
+    public void testUnsetValuesRemainUnset() {
+        Stat stat = new Stat();
+        stat.setTimeInMillis(System.currentTimeMillis());
+        stat.setResourceId(URIUtil.createId(Volume.class));
+        Stat decoded = serializer.deserialize(serializer.serialize(stat));
+        Assert.assertNull(decoded.getProvisionedCapacity());
+        Assert.assertNull(decoded.getSnapshotCount());
+        Assert.assertNull(decoded.getVirtualPool());
+        Assert.assertEquals(stat.getResourceId(), decoded.getResourceId());
+    }
+
+    @Test
+    public void testDeserializeJavaSerialized() throws IOException {
+        Stat stat = createStat();
+        Stat decoded = serializer.deserialize(javaSerialize(stat));
+        assertStatEquals(stat, decoded);
+    }
+
+    @Test
+    public void testCompareWithJavaSerialization() throws IOException {
+        Stat stat = createStat();
+        byte[] legacy = javaSerialize(stat);
+        byte[] encoded = serializer.serialize(stat);
+        _log.info("Bytes per point: java serialization {}, codec {}", legacy.length, encoded.length);
+        Assert.assertTrue(encoded.length < legacy.length);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            javaSerialize(stat);
+        }
+        long legacyEncodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.serialize(stat);
+        }
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.deserialize(legacy);
+        }
+        long legacyDecodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.deserialize(encoded);
+        }
+        long decodeNanos = System.nanoTime() - start;
+        _log.info("Encode ns per point: java serialization {}, codec {}",
+                legacyEncodeNanos / ITERATIONS, encodeNanos / ITERATIONS);
+        _log.info("Decode ns per point: java serialization {}, codec {}",
+                legacyDecodeNanos / ITERATIONS, decodeNanos / ITERATIONS);
+    }
+
+    private Stat createStat() {
+        long time = System.currentTimeMillis();
+        Stat stat = new Stat();
+        stat.setTimeInMillis(time);
+        stat.setTimeCollected(time);
+        stat.setResourceId(URIUtil.createId(Volume.class));
+        stat.setVirtualPool(URIUtil.createId(VirtualPool.class));
+        stat.setProject(URIUtil.createId(Project.class));
+        stat.setTenant(URIUtil.createId(TenantOrg.class));
+        stat.setServiceType("block");
+        stat.setNativeGuid("SYMMETRIX+000195701573+VOLUME+01A2B");
+        stat.setProvisionedCapacity(107374182400L);
+        stat.setAllocatedCapacity(53687091200L);
+        stat.setSnapshotCapacity(0);
+        stat.setSnapshotCount(2);
+        stat.setBandwidthIn(123456789L);
+        stat.setBandwidthOut(987654321L);
+        stat.setTotalIOs(4567890L);
+        stat.setReadIOs(3456789L);
+        stat.setWriteIOs(1111101L);
+        stat.setKbytesTransferred(77777777L);
+        stat.setIdleTimeCounter(1000L);
+        stat.setIoTimeCounter(2000L);
+        stat.setQueueLength(3L);
+        stat.setReadHitIOs(12345L);
+        stat.setWriteHitIOs(54321L);
+        return stat;
+    }
+
+    private byte[] javaSerialize(Stat stat) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bos);
+        try {
+            out.writeObject(stat);
+        } finally {
+            out.close();
+        }
+        return bos.toByteArray();
+    }
+
+    private void assertStatEquals(Stat expected, Stat actual) {
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(expected.getTimeInMillis(), actual.getTimeInMillis());
+        Assert.assertEquals(expected.getTimeCollected(), actual.getTimeCollected());
+        Assert.assertEquals(expected.getResourceId(), actual.getResourceId());
+        Assert.assertEquals(expected.getVirtualPool(), actual.getVirtualPool());
+        Assert.assertEquals(expected.getProject(), actual.getProject());
+        Assert.assertEquals(expected.getTenant(), actual.getTenant());
+        Assert.assertEquals(expected.getServiceType(), actual.getServiceType());
+        Assert.assertEquals(expected.getNativeGuid(), actual.getNativeGuid());
+        Assert.assertEquals(expected.getProvisionedCapacity(), actual.getProvisionedCapacity());
+        Assert.assertEquals(expected.getAllocatedCapacity(), actual.getAllocatedCapacity());
+        Assert.assertEquals(expected.getSnapshotCapacity(), actual.getSnapshotCapacity());
+        Assert.assertEquals(expected.getSnapshotCount(), actual.getSnapshotCount());
+        Assert.assertEquals(expected.getBandwidthIn(), actual.getBandwidthIn());
+        Assert.assertEquals(expected.getBandwidthOut(), actual.getBandwidthOut());
+        Assert.assertEquals(expected.getTotalIOs(), actual.getTotalIOs());
+        Assert.assertEquals(expected.getReadIOs(), actual.getReadIOs());
+        Assert.assertEquals(expected.getWriteIOs(), actual.getWriteIOs());
+        Assert.assertEquals(expected.getKbytesTransferred(), actual.getKbytesTransferred());
+        Assert.assertEquals(expected.getIdleTimeCounter(), actual.getIdleTimeCounter());
+        Assert.assertEquals(expected.getIoTimeCounter(), actual.getIoTimeCounter());
+        Assert.assertEquals(expected.getQueueLength(), actual.getQueueLength());
+        Assert.assertEquals(expected.getReadHitIOs(), actual.getReadHitIOs());
+        Assert.assertEquals(expected.getWriteHitIOs(), actual.getWriteHitIOs());
+    }
+}
@@ -41,8 +41,15 @@ abstract class GarbageCollectionExecutorLoop implements Runnable {
     protected CoordinatorClient coordinator;
     protected String dbServiceId;
 
+    /**
+     * Number of types collected concurrently
+     */
+    private static final int DEFAULT_GC_THREAD_COUNT = 5;
+    private int gcThreadCount = DEFAULT_GC_THREAD_COUNT;
+
     private List<Future> futures = new ArrayList();
-    private ExecutorService executorPool = new NamedThreadPoolExecutor(GarbageCollectionExecutorLoop.class.getSimpleName(), 5);
+    private List<GarbageCollectionRunnable> tasks = new ArrayList<GarbageCollectionRunnable>();
+    private ExecutorService executorPool;
 
     GarbageCollectionExecutorLoop() {
     }
@@ -67,6 +74,17 @@ abstract class GarbageCollectionExecutorLoop implements Runnable {
         this.dbServiceId = dbServiceId;
     }
 
+    public void setGcThreadCount(int gcThreadCount) {
+        this.gcThreadCount = gcThreadCount;
+    }
+
+    private synchronized ExecutorService getExecutorPool() {
+        if (executorPool == null) {
+            executorPool = new NamedThreadPoolExecutor(GarbageCollectionExecutorLoop.class.getSimpleName(), gcThreadCount);
+        }
+        return executorPool;
+    }
+
     // return true if this GC thread could be run now
     protected abstract boolean preGC();
 
@@ -125,7 +143,8 @@ abstract class GarbageCollectionExecutorLoop implements Runnable {
                 for (Class<? extends DataObject> clazz : list) {
                     if (canRunGCOnClass(clazz)) {
                         GarbageCollectionRunnable gc = genGCTask(clazz);
-                        futures.add(executorPool.submit(gc));
+                        tasks.add(gc);
+                        futures.add(getExecutorPool().submit(gc));
                     }
                 }
 
@@ -157,8 +176,25 @@ abstract class GarbageCollectionExecutorLoop implements Runnable {
         }
 
         futures.clear();
+        logTaskStats();
+        tasks.clear();
         log.info("GC tasks are done");
     }
+
+    /**
+     * Logs processed/deleted counts and throughput of each type collected in this level
+     */
+    private void logTaskStats() {
+        for (GarbageCollectionRunnable task : tasks) {
+            if (task.getFound() == 0) {
+                continue;
+            }
+            long duration = task.getDurationMillis();
+            log.info("GC stats: type: {}, processed {}, deleted {}, {} ms, {} objects/s",
+                    task.getType().getSimpleName(), task.getFound(), task.getDeleted(), duration,
+                    duration > 0 ? task.getFound() * 1000L / duration : task.getFound());
+        }
+    }
     
     private InterProcessLock getLockForGC() {
         InterProcessLock lock = null;
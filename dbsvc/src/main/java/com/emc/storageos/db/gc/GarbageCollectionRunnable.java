@@ -5,7 +5,10 @@
 package com.emc.storageos.db.gc;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,12 +30,19 @@ abstract class GarbageCollectionRunnable implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(GarbageCollectionRunnable.class);
     final static String GC_LOCK_PREFIX = "gc/";
     final static long MIN_TO_MICROSECS = 60 * 1000 * 1000;
+    // number of inactive objects checked, loaded and removed together
+    final static int GC_BATCH_SIZE = 100;
+    final static int PROGRESS_LOG_PAGES = 100;
     final protected Class<? extends DataObject> type;
     final protected DbClient dbClient;
     final private long timeStartMarker;
     final protected DependencyChecker dependencyChecker;
     final private CoordinatorClient coordinator;
 
+    private volatile int found;
+    private volatile int deleted;
+    private volatile long durationMillis;
+
     GarbageCollectionRunnable(DbClient dbClient, Class<? extends DataObject> type,
             DependencyTracker dependencyTracker, int gcDelayMins,
             CoordinatorClient coordinator) {
@@ -70,41 +80,123 @@ abstract class GarbageCollectionRunnable implements Runnable {
         return list;
     }
 
+    /**
+     * Returns the ids from the page that could be deleted from DB.
+     * By default each id is checked with canBeGC(URI).
+     * 
+     * @param ids the resource IDs of one page
+     * @return the IDs that can be deleted
+     */
+    protected Collection<URI> canBeGC(List<URI> ids) {
+        List<URI> gcIds = new ArrayList<URI>();
+        for (URI id : ids) {
+            log.debug("GC checks dependencies for {}", id);
+            try {
+                if (canBeGC(id)) {
+                    gcIds.add(id);
+                }
+            } catch (DatabaseException ex) {
+                log.warn("Exception from database access: ", ex);
+            }
+        }
+        return gcIds;
+    }
+
+    /**
+     * @return number of inactive objects processed in the last run
+     */
+    public int getFound() {
+        return found;
+    }
+
+    /**
+     * @return number of objects deleted in the last run
+     */
+    public int getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return duration of the last run in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public Class<? extends DataObject> getType() {
+        return type;
+    }
+
     @Override
     public void run() {
-    	log.info("Starting GC loop: type: {}", type.getSimpleName());
-    	
+        log.info("Starting GC loop: type: {}", type.getSimpleName());
+        long startTime = System.currentTimeMillis();
+        found = 0;
+        deleted = 0;
+
         try {
-        	URIQueryResultList list = getDecommissionedObjectsOfType(type);
+            URIQueryResultList list = getDecommissionedObjectsOfType(type);
 
-            int found = 0, deleted = 0;
+            List<URI> page = new ArrayList<URI>(GC_BATCH_SIZE);
+            int pages = 0;
             for (Iterator<URI> iterator = list.iterator(); iterator.hasNext();) {
-                URI uri = iterator.next();
-                found++;
-                log.debug("GC checks dependencies for {}", uri);
-                try {
-                    if (!canBeGC(uri)) {
-                        continue;
-                    }
-
-                    DataObject obj = dbClient.queryObject(type, uri);
-                    if (obj != null) {
-                        log.info("No dependencies found. Removing {}", uri);
-                        ((DbClientImpl)dbClient).internalRemoveObjects(obj);
-                        deleted++;
+                page.add(iterator.next());
+                if (page.size() == GC_BATCH_SIZE || !iterator.hasNext()) {
+                    found += page.size();
+                    deleted += collectPage(page);
+                    page.clear();
+                    if (++pages % PROGRESS_LOG_PAGES == 0) {
+                        log.info("GC progress: type: {}, processed {}, deleted {}, {} objects/s",
+                                type.getSimpleName(), found, deleted, getThroughput(found, startTime));
                     }
-                } catch (DatabaseException ex) {
-                    log.warn("Exception from database access: ", ex);
-                    // To Do - we should skip the whole loop and retry later?
                 }
             }
 
+            durationMillis = System.currentTimeMillis() - startTime;
             if (found > 0) {
-                log.info(String.format("Done GC loop: type: %s, processed %s, deleted %s",
-                        type.getSimpleName(), found, deleted));
+                log.info(String.format("Done GC loop: type: %s, processed %s, deleted %s in %d ms, %d objects/s",
+                        type.getSimpleName(), found, deleted, durationMillis, getThroughput(found, startTime)));
             }
         } catch (Exception e) {
+            durationMillis = System.currentTimeMillis() - startTime;
             log.error("Exception e=", e);
         }
     }
+
+    /**
+     * Checks the dependencies of one page of inactive objects, loads the ones that can
+     * be deleted with a single query and removes them in one mutation batch.
+     * 
+     * @param page the IDs of one page
+     * @return number of objects deleted
+     */
+    private int collectPage(List<URI> page) {
+        try {
+            Collection<URI> gcIds = canBeGC(page);
+            if (gcIds.isEmpty()) {
+                return 0;
+            }
+
+            List<? extends DataObject> objs = dbClient.queryObject(type, gcIds);
+            if (objs.isEmpty()) {
+                return 0;
+            }
+            if (log.isInfoEnabled()) {
+                for (DataObject obj : objs) {
+                    log.info("No dependencies found. Removing {}", obj.getId());
+                }
+            }
+            ((DbClientImpl) dbClient).internalRemoveObjects(objs.toArray(new DataObject[objs.size()]));
+            return objs.size();
+        } catch (DatabaseException ex) {
+            log.warn("Exception from database access: ", ex);
+            // To Do - we should skip the whole loop and retry later?
+            return 0;
+        }
+    }
+
+    private long getThroughput(int count, long startTime) {
+        long elapsed = System.currentTimeMillis() - startTime;
+        return elapsed > 0 ? count * 1000L / elapsed : count;
+    }
 }
@@ -5,6 +5,10 @@
 package com.emc.storageos.db.gc;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,4 +41,20 @@ public class LocalGCRunnable extends GarbageCollectionRunnable {
 
         return dependency == null;
     }
+
+    @Override
+    protected Collection<URI> canBeGC(List<URI> ids) {
+        Map<URI, String> dependencies = dependencyChecker.checkDependencies(ids, type, false);
+
+        List<URI> gcIds = new ArrayList<URI>(ids.size());
+        for (URI id : ids) {
+            String dependency = dependencies.get(id);
+            if (dependency != null) {
+                log.debug("{} has dependencies {}", id, dependency);
+            } else {
+                gcIds.add(id);
+            }
+        }
+        return gcIds;
+    }
 }
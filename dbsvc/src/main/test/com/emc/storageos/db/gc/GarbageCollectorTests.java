@@ -257,6 +257,7 @@ public class GarbageCollectorTests extends DbsvcTestBase {
                 Assert.assertNull(checker.checkDependencies(activeProjects.get(i), Project.class, true));
             }
         }
+        assertBatchedDependencies(checker, activeProjects);
 
         List<URI> inactiveRefProjects = new ArrayList<URI>();
         List<URI> lastRefProjects = new ArrayList<URI>();
@@ -285,6 +286,7 @@ public class GarbageCollectorTests extends DbsvcTestBase {
         }
 
         Assert.assertNotNull(checker.checkDependencies(vpool.getId(), VirtualPool.class, true));
+        assertBatchedDependencies(checker, activeProjects);
         for (int i = 0; i < num_projects; i++) {
             URI p = activeProjects.get(i);
             if (inactiveRefProjects.contains(p)) {
@@ -307,6 +309,7 @@ public class GarbageCollectorTests extends DbsvcTestBase {
                 }
             }
         }
+        assertBatchedDependencies(checker, activeProjects);
 
         Assert.assertNull(checker.checkDependencies(vpool.getId(), VirtualPool.class, true));
         for (int i = 0; i < num_projects; i++) {
@@ -326,4 +329,15 @@ public class GarbageCollectorTests extends DbsvcTestBase {
         Assert.assertNull(_dbClient.queryObject(VirtualPool.class, vpool.getId()));
     }
 
+    /**
+     * The batched dependency check must find the same dependencies as the check of each project
+     */
+    private void assertBatchedDependencies(DependencyChecker checker, List<URI> projects) {
+        for (boolean onlyActive : new boolean[] { true, false }) {
+            Map<URI, String> dependencies = checker.checkDependencies(projects, Project.class, onlyActive);
+            for (URI p : projects) {
+                Assert.assertEquals(checker.checkDependencies(p, Project.class, onlyActive), dependencies.get(p));
+            }
+        }
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.server;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.constraint.ContainmentConstraint;
+import com.emc.storageos.db.client.constraint.URIQueryResultList;
+import com.emc.storageos.db.client.model.StoragePool;
+import com.emc.storageos.db.client.model.Volume;
+import com.emc.storageos.db.client.upgrade.InternalDbClient;
+
+/**
+ * Scans the volumes of a storage pool indexed with ENTRY_COUNT entries (1M by default, set with
+ * -DconstraintQueryPerf.entries) in the embedded DB, with fixed pages of 100 hits, with adaptive pages
+ * and with adaptive pages prefetched, and logs the time taken by each scan.
+ */
+public class ConstraintQueryPagingPerfTest extends DbsvcTestBase {
+    private static final Logger _logger = LoggerFactory.getLogger(ConstraintQueryPagingPerfTest.class);
+
+    private static final int ENTRY_COUNT = Integer.getInteger("constraintQueryPerf.entries", 1000000);
+    private static final int INSERT_BATCH_SIZE = 1000;
+    // time the caller spends on each hit, so prefetching has something to overlap with
+    private static final long HIT_PROCESSING_NANOS = TimeUnit.MICROSECONDS.toNanos(5);
+
+    private static URI _poolId;
+
+    @BeforeClass
+    public static void insertVolumes() {
+        InternalDbClient dbClient = createDbClient(100, 0);
+        _poolId = URIUtil.createId(StoragePool.class);
+        long start = System.currentTimeMillis();
+        List<Volume> volumes = new ArrayList<Volume>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            Volume volume = new Volume();
+            volume.setId(URIUtil.createId(Volume.class));
+            volume.setLabel("volume" + i);
+            volume.setPool(_poolId);
+            volumes.add(volume);
+            if (volumes.size() == INSERT_BATCH_SIZE || i == ENTRY_COUNT - 1) {
+                dbClient.createObject(volumes);
+                volumes.clear();
+            }
+        }
+        _logger.info("Inserted {} volumes in {} ms", ENTRY_COUNT, System.currentTimeMillis() - start);
+    }
+
+    @Test
+    public void testScanStoragePoolVolumes() {
+        InternalDbClient fixedPages = createDbClient(100, 0);
+        InternalDbClient adaptivePages = createDbClient(5000, 0);
+        InternalDbClient prefetchedPages = createDbClient(5000, 2);
+
+        // warm up
+        scan(fixedPages);
+        scan(adaptivePages);
+
+        long fixedMs = scan(fixedPages);
+        long adaptiveMs = scan(adaptivePages);
+        long prefetchedMs = scan(prefetchedPages);
+        _logger.info("Scanned {} index entries: fixed pages {} ms, adaptive pages {} ms, adaptive pages prefetched {} ms",
+                new Object[] { ENTRY_COUNT, fixedMs, adaptiveMs, prefetchedMs });
+    }
+
+    @Test
+    public void testPartialScan() {
+        InternalDbClient dbClient = createDbClient(5000, 2);
+        URIQueryResultList result = new URIQueryResultList();
+        dbClient.queryByConstraint(ContainmentConstraint.Factory.getStoragePoolVolumeConstraint(_poolId), result);
+        Iterator<URI> it = result.iterator();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(it.hasNext());
+            Assert.assertNotNull(it.next());
+        }
+    }
+
+    private long scan(InternalDbClient dbClient) {
+        long start = System.nanoTime();
+        URIQueryResultList result = new URIQueryResultList();
+        dbClient.queryByConstraint(ContainmentConstraint.Factory.getStoragePoolVolumeConstraint(_poolId), result);
+        int count = 0;
+        for (URI uri : result) {
+            Assert.assertNotNull(uri);
+            LockSupport.parkNanos(HIT_PROCESSING_NANOS);
+            count++;
+        }
+        Assert.assertEquals(ENTRY_COUNT, count);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static InternalDbClient createDbClient(int maxPageSize, int prefetchThreads) {
+        InternalDbClient dbClient = (InternalDbClient) getDbClientBase();
+        dbClient.setQueryMaxPageSize(maxPageSize);
+        dbClient.setQueryPrefetchThreads(prefetchThreads);
+        dbClient.setBypassMigrationLock(false);
+        dbClient.start();
+        return dbClient;
+    }
+}
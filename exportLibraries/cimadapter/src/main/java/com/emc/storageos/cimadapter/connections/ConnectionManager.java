@@ -14,8 +14,10 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -48,7 +50,7 @@ public class ConnectionManager {
     private static final int ONE_MINUTE = 1;
     private static final int INITIAL_DELAY = ONE_MINUTE;
     private static final long MS_IN_SECONDS = 1000; // # Milliseconds in a second
-    private static long maxConnectionTTL = 0;
+    private static volatile long maxConnectionTTL = 0;
     private static final String CIM_CONNECTION_MAX_INACTIVE_TIME = "cim_connection_max_inactive_time";
     private static boolean configured = false;
 
@@ -58,8 +60,9 @@ public class ConnectionManager {
     // A reference to the CIM listener;
     private CimListener _listener;
 
-    // A map of cache keys (host/port) to their connections
-    private Map<String, CimConnection> _connections = new HashMap<String, CimConnection>();
+    // A map of cache keys (host/port) to their connections. Lookups do not take the
+    // connectionLock, changes to the map are still made holding it.
+    private Map<String, CimConnection> _connections = new ConcurrentHashMap<String, CimConnection>();
 
     // A synchronization object to control access to shared objects
     private Lock connectionLock = new ReentrantLock();
@@ -67,8 +70,11 @@ public class ConnectionManager {
     // A scheduled execution service that cleans up connections
     private ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
 
+    // The CimConnection reaper, when it is enabled
+    private ScheduledFuture<?> reaperFuture;
+
     // A map of cache keys in _connections to the last time the connection was retrieved
-    private Map<String, Long> connectionLastTouch = new HashMap<>();
+    private Map<String, Long> connectionLastTouch = new ConcurrentHashMap<>();
 
     // This map will be used to keep track of connections that are pinned. These are connections
     // that should not be reaped. We will be keeping a count since you can have multiple arrays
@@ -184,29 +190,57 @@ public class ConnectionManager {
                 return;
             }
             s_logger.info("Configuring ConnectionManager");
-            Long maxTTLSeconds = 0L; // Default value ==> disabled
-            String maxTTLString = propertyInfo.getProperty(CIM_CONNECTION_MAX_INACTIVE_TIME);
-            // If there is a value specified for the configuration properties and it's a number ...
-            if (maxTTLString != null && maxTTLString.matches("\\d+")) {
-                maxTTLSeconds = Long.valueOf(maxTTLString);
-                // Value's unit should be N seconds
-                maxConnectionTTL = maxTTLSeconds * MS_IN_SECONDS;
-            }
-            if (maxTTLSeconds != 0) {
-                // Start up the CimConnection reaper: checks connection times every minute ...
-                executorService.scheduleAtFixedRate(new CimConnectionReaper(), INITIAL_DELAY, ONE_MINUTE, TimeUnit.MINUTES);
-                s_logger.info("ConnectionManager config: CimConnections that have been inactive for more than {} seconds will be reaped",
-                        maxTTLSeconds);
-            } else {
-                s_logger.info("ConnectionManager config: {} was set to {}, CIMConnection reaper is disabled",
-                        CIM_CONNECTION_MAX_INACTIVE_TIME, maxTTLString);
-            }
+            applyConfiguration(propertyInfo);
             configured = true;
         } finally {
             connectionLock.unlock();
         }
     }
 
+    /**
+     * Apply the configuration parameters again after they changed in the CoordinatorClient,
+     * starting or stopping the CimConnection reaper as needed.
+     *
+     * @param propertyInfo [IN] - PropertyInfo representing configuration parameters
+     */
+    public void reconfigure(PropertyInfo propertyInfo) {
+        connectionLock.lock();
+        try {
+            s_logger.info("Reconfiguring ConnectionManager");
+            applyConfiguration(propertyInfo);
+            configured = true;
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    private void applyConfiguration(PropertyInfo propertyInfo) {
+        Long maxTTLSeconds = 0L; // Default value ==> disabled
+        String maxTTLString = propertyInfo.getProperty(CIM_CONNECTION_MAX_INACTIVE_TIME);
+        // If there is a value specified for the configuration properties and it's a number ...
+        if (maxTTLString != null && maxTTLString.matches("\\d+")) {
+            maxTTLSeconds = Long.valueOf(maxTTLString);
+        }
+        // Value's unit should be N seconds
+        maxConnectionTTL = maxTTLSeconds * MS_IN_SECONDS;
+        if (maxTTLSeconds != 0) {
+            if (reaperFuture == null) {
+                // Start up the CimConnection reaper: checks connection times every minute ...
+                reaperFuture = executorService.scheduleAtFixedRate(new CimConnectionReaper(), INITIAL_DELAY, ONE_MINUTE,
+                        TimeUnit.MINUTES);
+            }
+            s_logger.info("ConnectionManager config: CimConnections that have been inactive for more than {} seconds will be reaped",
+                    maxTTLSeconds);
+        } else {
+            if (reaperFuture != null) {
+                reaperFuture.cancel(false);
+                reaperFuture = null;
+            }
+            s_logger.info("ConnectionManager config: {} was set to {}, CIMConnection reaper is disabled",
+                    CIM_CONNECTION_MAX_INACTIVE_TIME, maxTTLString);
+        }
+    }
+
     /**
      * Creates a new connection for which indications are to be monitored based
      * on the passed connection information.
@@ -357,22 +391,11 @@ public class ConnectionManager {
      * @throws ConnectionManagerException When the passed host is null or blank.
      */
     public boolean isConnected(String hostAndPort) throws ConnectionManagerException {
-        connectionLock.lock();
-        boolean isConnected = false;
-        try {
-            // Verify the passed host/port is not null or blank.
-            if ((hostAndPort == null) || (hostAndPort.length() == 0)) {
-                throw new ConnectionManagerException("Passed host/port is null or blank.");
-            }
-
-            CimConnection connection = _connections.get(hostAndPort);
-            if (connection != null) {
-                isConnected = true;
-            }
-        } finally {
-            connectionLock.unlock();
+        // Verify the passed host/port is not null or blank.
+        if ((hostAndPort == null) || (hostAndPort.length() == 0)) {
+            throw new ConnectionManagerException("Passed host/port is null or blank.");
         }
-        return isConnected;
+        return _connections.containsKey(hostAndPort);
     }
 
     /**
@@ -398,21 +421,17 @@ public class ConnectionManager {
      */
     public CimConnection getConnection(String host, Integer port)
             throws ConnectionManagerException {
-        connectionLock.lock();
-        CimConnection connection = null;
-        try {
-            String hostAndPort = generateConnectionCacheKey(host, port);
-            // Verify the passed host/port is not null or blank.
-            if ((hostAndPort == null) || (hostAndPort.length() == 0)) {
-                throw new ConnectionManagerException("Passed host/port is null or blank.");
-            }
-            connection = _connections.get(hostAndPort);
-            if (connection != null) {
-                // Every time the connection is returned, update the last get time
-                connectionLastTouch.put(hostAndPort, System.currentTimeMillis());
-            }
-        } finally {
-            connectionLock.unlock();
+        String hostAndPort = generateConnectionCacheKey(host, port);
+        // Verify the passed host/port is not null or blank.
+        if ((hostAndPort == null) || (hostAndPort.length() == 0)) {
+            throw new ConnectionManagerException("Passed host/port is null or blank.");
+        }
+        // Lookups do not wait for connections being added or reaped
+        CimConnection connection = _connections.get(hostAndPort);
+        if (connection != null) {
+            // Every time the connection is returned, update the last get time, unless the
+            // connection was removed meanwhile
+            connectionLastTouch.replace(hostAndPort, System.currentTimeMillis());
         }
         return connection;
     }
@@ -641,6 +660,9 @@ public class ConnectionManager {
                         continue;
                     }
                     Long lastTime = connectionLastTouch.get(hostAndPort);
+                    if (lastTime == null) {
+                        continue;
+                    }
                     Long diff = System.currentTimeMillis() - lastTime;
                     String timeAndDate = new Date(lastTime).toString();
                     if (diff >= maxConnectionTTL) {
@@ -258,6 +258,7 @@ public class Constants {
     public static final String SYSTEM_SERIAL_IDS = "systemSerialIds";
     public static final String SYSTEM_IDS = "systemIds";
     public static final String ID_DELIMITER = ",";
+    public static final String SCHEDULER_JOB = "schedulerJob";
     public static final String HOST_EXPORT_MASKS_MAP = "hostExportMasksMap";
     public static final String EXPORT_MASK_HOSTS_MAP = "exportMaskHostsMap";
     public static final String EXPORT_MASK_VOLUMES_MAP = "exportMaskVolumesMap";
@@ -21,10 +21,20 @@ import javax.cim.CIMProperty;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 /**
  * SMIExecutor- responsible for executing SMICommands
@@ -57,6 +67,18 @@ public abstract class Executor {
      */
     protected Map<String, Object> _keyMap;
 
+    private static final String DEFAULT_PROVIDER = "default";
+    private static final int DEFAULT_MAX_COMMANDS_PER_PROVIDER = 4;
+    /**
+     * Permits limiting the Commands of parallel operations running against each Provider, shared by all Executors.
+     */
+    private static final ConcurrentMap<String, Semaphore> _providerPermits = new ConcurrentHashMap<String, Semaphore>();
+    private int _maxCommandsPerProvider = DEFAULT_MAX_COMMANDS_PER_PROVIDER;
+    /**
+     * Time spent in each operation of the namespace being executed.
+     */
+    private final Map<String, OperationTiming> _operationTimings = new LinkedHashMap<String, OperationTiming>();
+
     public void setUtil(Util _util) {
         this._util = _util;
     }
@@ -89,6 +111,20 @@ public abstract class Executor {
         return execService;
     }
 
+    /**
+     * Set the maximum number of Commands of parallel operations running against the same Provider.
+     * Takes effect for Providers not used by a parallel operation yet.
+     * 
+     * @param maxCommandsPerProvider
+     */
+    public void setMaxCommandsPerProvider(int maxCommandsPerProvider) {
+        _maxCommandsPerProvider = maxCommandsPerProvider;
+    }
+
+    public int getMaxCommandsPerProvider() {
+        return _maxCommandsPerProvider;
+    }
+
     /**
      * This execute method is common for all the plugins. It checks whether each
      * operation in Domain Logic has to get executed, then execute and move it
@@ -102,9 +138,14 @@ public abstract class Executor {
      */
     public void execute(Namespace ns) throws BaseCollectionException {
         assert ns != null;
-        for (Object operationobj : ns.getOperations()) {
-            Operation operation = (Operation) operationobj;
-            executeOperation(operation);
+        _operationTimings.clear();
+        try {
+            for (Object operationobj : ns.getOperations()) {
+                Operation operation = (Operation) operationobj;
+                executeOperation(operation);
+            }
+        } finally {
+            logOperationTimings();
         }
     }
 
@@ -162,42 +203,228 @@ public abstract class Executor {
      * @throws BaseCollectionException
      */
     private void executeOperation(Operation operation) throws BaseCollectionException {
+        long start = System.currentTimeMillis();
+        int commandCount = 0;
+        boolean supported = false;
         try {
             if (!isSupportedOperation(operation)) {
                 _LOGGER.info("Filtered the operation {} as per instructions", operation.getMessage());
                 return;
             }
+            supported = true;
             _LOGGER.info(null == operation.getMessage() ? "START Executing operation"
                     : "START :" + operation.getMessage());
             _commandObjects = _generator.returnCommandObjects(operation, _keyMap);
-            // only sequential processing allowed. also avoiding too many calls to the Provider at
-            // the same time.
-            for (Command commandObj : _commandObjects) {
-                printArgs(commandObj);
-                Object resultObj = null;
-                try {
-                    resultObj = commandObj.execute();
-                    processResult(operation, resultObj, commandObj);
-                } catch (Exception e) {
-                    _LOGGER.error("Execution failed for :", e);
-                    // We do not want 'Provider/Firmware Not Supported Error' to get suppressed. check and throw again.
-                    if (e instanceof SMIPluginException) {
-                        int errorCode = ((SMIPluginException) e).getErrorCode();
-                        if (errorCode == SMIPluginException.ERRORCODE_PROVIDER_NOT_SUPPORTED ||
-                                errorCode == SMIPluginException.ERRORCODE_FIRMWARE_NOT_SUPPORTED ||
-                                errorCode == SMIPluginException.ERRORCODE_OPERATIONFAILED) {
-                            throw e;
-                        }
+            commandCount = _commandObjects.size();
+            if (operation.getParallelism() > 1 && commandCount > 1) {
+                executeCommandsInParallel(operation, _commandObjects);
+            } else {
+                // sequential processing by default, avoiding too many calls to the Provider at
+                // the same time.
+                for (Command commandObj : _commandObjects) {
+                    printArgs(commandObj);
+                    try {
+                        Object resultObj = commandObj.execute();
+                        processResult(operation, resultObj, commandObj);
+                    } catch (Exception e) {
+                        handleCommandFailure(e);
                     }
                 }
             }
         } catch (final Exception e) {
             _LOGGER.error("Operation Execution failed : ", e);
             customizeException(e, operation);
+        } finally {
+            if (supported) {
+                recordTiming(operation, commandCount, System.currentTimeMillis() - start);
+            }
         }
         _LOGGER.debug(null == operation.getMessage() ? "END Executing operation" : "END :" + operation.getMessage());
     }
 
+    /**
+     * Execute the Commands of an operation concurrently, with at most operation.getParallelism()
+     * Commands outstanding and at most maxCommandsPerProvider Commands running against the same
+     * Provider across all Executors. Results are processed on the calling thread in Command order,
+     * so Processors and the keyMap see exactly the same sequence of calls as in sequential mode.
+     * 
+     * @param operation
+     * @param commands
+     * @throws Exception
+     */
+    private void executeCommandsInParallel(Operation operation, List<Command> commands) throws Exception {
+        final Semaphore providerPermits = getProviderPermits();
+        int window = Math.min(operation.getParallelism(), commands.size());
+        _LOGGER.info("Executing {} commands with parallelism {}", commands.size(), window);
+        LinkedList<Future<Object>> pending = new LinkedList<Future<Object>>();
+        int next = 0;
+        try {
+            for (Command commandObj : commands) {
+                while (next < commands.size() && pending.size() < window) {
+                    pending.add(submitCommand(commands.get(next++), providerPermits));
+                }
+                printArgs(commandObj);
+                try {
+                    Object resultObj = getResult(pending.removeFirst());
+                    processResult(operation, resultObj, commandObj);
+                } catch (Exception e) {
+                    handleCommandFailure(e);
+                }
+            }
+        } finally {
+            for (Future<Object> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Future<Object> submitCommand(final Command commandObj, final Semaphore providerPermits) {
+        return execService.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                providerPermits.acquire();
+                try {
+                    return commandObj.execute();
+                } finally {
+                    providerPermits.release();
+                }
+            }
+        });
+    }
+
+    private Object getResult(Future<Object> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Log a failed Command, and rethrow the errors which must fail the operation.
+     * 
+     * @param e
+     * @throws Exception
+     */
+    private void handleCommandFailure(Exception e) throws Exception {
+        _LOGGER.error("Execution failed for :", e);
+        // We do not want 'Provider/Firmware Not Supported Error' to get suppressed. check and throw again.
+        if (e instanceof SMIPluginException) {
+            int errorCode = ((SMIPluginException) e).getErrorCode();
+            if (errorCode == SMIPluginException.ERRORCODE_PROVIDER_NOT_SUPPORTED ||
+                    errorCode == SMIPluginException.ERRORCODE_FIRMWARE_NOT_SUPPORTED ||
+                    errorCode == SMIPluginException.ERRORCODE_OPERATIONFAILED) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Permits shared by all Executors running Commands against the Provider of the current keyMap.
+     */
+    private Semaphore getProviderPermits() {
+        String providerKey = DEFAULT_PROVIDER;
+        Object profile = null == _keyMap ? null : _keyMap.get(Constants.ACCESSPROFILE);
+        if (profile instanceof AccessProfile) {
+            AccessProfile accessProfile = (AccessProfile) profile;
+            providerKey = accessProfile.getIpAddress() + ":" + accessProfile.getProviderPort();
+        }
+        Semaphore permits = _providerPermits.get(providerKey);
+        if (null == permits) {
+            Semaphore newPermits = new Semaphore(_maxCommandsPerProvider);
+            permits = _providerPermits.putIfAbsent(providerKey, newPermits);
+            if (null == permits) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    private void recordTiming(Operation operation, int commandCount, long elapsedMillis) {
+        String name = getOperationName(operation);
+        _LOGGER.info("Operation {} executed {} commands in {} ms", new Object[] { name, commandCount, elapsedMillis });
+        OperationTiming timing = _operationTimings.get(name);
+        if (null == timing) {
+            timing = new OperationTiming(name);
+            _operationTimings.put(name, timing);
+        }
+        timing.add(commandCount, elapsedMillis);
+    }
+
+    private static String getOperationName(Operation operation) {
+        if (null != operation.getMessage()) {
+            return operation.getMessage();
+        }
+        return operation.getMethod() + " " + operation.getResult();
+    }
+
+    /**
+     * Log the operations of the last executed namespace, slowest first.
+     */
+    private void logOperationTimings() {
+        if (_operationTimings.isEmpty()) {
+            return;
+        }
+        List<OperationTiming> timings = new ArrayList<OperationTiming>(_operationTimings.values());
+        Collections.sort(timings, new Comparator<OperationTiming>() {
+            @Override
+            public int compare(OperationTiming t1, OperationTiming t2) {
+                return Long.compare(t2.getElapsedMillis(), t1.getElapsedMillis());
+            }
+        });
+        long total = 0;
+        StringBuilder summary = new StringBuilder();
+        for (OperationTiming timing : timings) {
+            total += timing.getElapsedMillis();
+            summary.append(NEWLINE).append(TAB).append(timing.getElapsedMillis()).append(" ms")
+                    .append(SEMICOLON).append(timing.getCommandCount()).append(" commands")
+                    .append(SEMICOLON).append(timing.getName());
+        }
+        _LOGGER.info("Executed {} operations in {} ms, slowest first:{}",
+                new Object[] { timings.size(), total, summary });
+    }
+
+    /**
+     * @return time spent in each operation of the last executed namespace
+     */
+    public List<OperationTiming> getOperationTimings() {
+        return new ArrayList<OperationTiming>(_operationTimings.values());
+    }
+
+    /**
+     * Time spent executing an operation, and the number of Commands it generated.
+     */
+    public static class OperationTiming {
+        private final String name;
+        private int commandCount;
+        private long elapsedMillis;
+
+        OperationTiming(String name) {
+            this.name = name;
+        }
+
+        void add(int commands, long millis) {
+            commandCount += commands;
+            elapsedMillis += millis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCommandCount() {
+            return commandCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
     /**
      * Method to print arguments for debug purpose
      * 
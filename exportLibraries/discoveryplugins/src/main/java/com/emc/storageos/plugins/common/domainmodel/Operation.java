@@ -16,6 +16,7 @@ public class Operation {
     private Processor _processor;
     private String message;
     private String supportedVersion;
+    private int _parallelism = 1;
     /**
      * instance to execute to all operations. It will depend on the interface
      * type. Ex. for SMI : WBEMClient, for REST : httpClient.
@@ -124,4 +125,18 @@ public class Operation {
     public void setSupportedVersion(String supportedVersion) {
         this.supportedVersion = supportedVersion;
     }
+
+    /**
+     * Maximum number of Commands of this operation executed at the same time.
+     * Results are still processed one at a time, in Command order.
+     * 
+     * @return the parallelism, 1 for sequential execution
+     */
+    public int getParallelism() {
+        return _parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        _parallelism = parallelism;
+    }
 }
@@ -89,6 +89,31 @@ public class VPlexApiClient {
     private volatile List<VPlexClusterInfo> _vplexClusterInfoLiteCache = new ArrayList<VPlexClusterInfo>();
     private volatile Map<String, Map<String, String>> _vplexClusterInitiatorWwnToNameCache = new HashMap<String, Map<String, String>>();
 
+    // A snapshot of the device inventory, loaded once per discovery cycle or on
+    // the first ingestion lookup, and dropped when this client changes the VPLEX.
+    private volatile VPlexInventorySnapshot _inventorySnapshot = null;
+
+    // The age after which the inventory snapshot is reloaded, which bounds how stale
+    // it can get through changes made to the VPLEX outside of this client.
+    private static final long INVENTORY_SNAPSHOT_MAX_AGE_MS = 10 * 60 * 1000;
+
+    // The time the inventory snapshot last failed to load. The lookups go to the VPLEX
+    // per device until INVENTORY_SNAPSHOT_MAX_AGE_MS later, rather than retrying the
+    // load for every device.
+    private volatile long _inventorySnapshotFailedAt = 0;
+
+    // Guards the loading of the inventory snapshot. It is separate from the monitor
+    // of this client so that the cluster and initiator cache lookups do not wait on
+    // the queries of a snapshot load.
+    private final Object _inventorySnapshotLock = new Object();
+
+    // Bumped whenever the inventory snapshot is invalidated. A snapshot whose load
+    // overlapped an invalidation may miss the change and is discarded. Guarded by
+    // _inventorySnapshotGenerationLock, which is only held briefly, so invalidating
+    // does not wait for a load in progress.
+    private long _inventorySnapshotGeneration = 0;
+    private final Object _inventorySnapshotGenerationLock = new Object();
+
     /**
      * Constructor
      * 
@@ -468,14 +493,18 @@ public class VPlexApiClient {
             boolean findVirtualVolume, boolean thinEnabled, boolean searchAllClustersForStorageVolumes)
                     throws VPlexApiException {
         s_logger.info("Request for virtual volume creation on VPlex at {}", _baseURI);
-        String clusterName = null;
-        if (!searchAllClustersForStorageVolumes && (null != winningClusterId)) {
-            // if all the volumes in the whole request are local volumes, 
-            // we can restrict work to just the local cluster
-            clusterName = getClusterNameForId(winningClusterId);
+        try {
+            String clusterName = null;
+            if (!searchAllClustersForStorageVolumes && (null != winningClusterId)) {
+                // if all the volumes in the whole request are local volumes, 
+                // we can restrict work to just the local cluster
+                clusterName = getClusterNameForId(winningClusterId);
+            }
+            return _virtualVolumeMgr.createVirtualVolume(nativeVolumeInfoList, isDistributed,
+                    discoveryRequired, preserveData, winningClusterId, clusterInfoList, findVirtualVolume, thinEnabled, clusterName);
+        } finally {
+            invalidateInventorySnapshot();
         }
-        return _virtualVolumeMgr.createVirtualVolume(nativeVolumeInfoList, isDistributed,
-                discoveryRequired, preserveData, winningClusterId, clusterInfoList, findVirtualVolume, thinEnabled, clusterName);
     }
 
     /**
@@ -490,7 +519,11 @@ public class VPlexApiClient {
      */
     public <T extends VPlexResourceInfo> T renameResource(T resourceInfo, String newName)
             throws VPlexApiException {
-        return _virtualVolumeMgr.renameVPlexResource(resourceInfo, newName);
+        try {
+            return _virtualVolumeMgr.renameVPlexResource(resourceInfo, newName);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -511,7 +544,11 @@ public class VPlexApiClient {
             List<VolumeInfo> nativeVolumeInfoList, boolean discoveryRequired, boolean preserveData)
                     throws VPlexApiException {
         s_logger.info("Request for mirror creation on VPlex at {}", _baseURI);
-        return _virtualVolumeMgr.createDeviceAndAttachAsMirror(virtualVolume, nativeVolumeInfoList, discoveryRequired, preserveData);
+        try {
+            return _virtualVolumeMgr.createDeviceAndAttachAsMirror(virtualVolume, nativeVolumeInfoList, discoveryRequired, preserveData);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -526,7 +563,11 @@ public class VPlexApiClient {
      */
     public void attachMirror(String locality, String sourceVirtualVolumeName, String mirrorDeviceName)
             throws VPlexApiException {
-        _virtualVolumeMgr.attachMirror(locality, sourceVirtualVolumeName, mirrorDeviceName);
+        try {
+            _virtualVolumeMgr.attachMirror(locality, sourceVirtualVolumeName, mirrorDeviceName);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -543,7 +584,11 @@ public class VPlexApiClient {
     public void deleteVirtualVolume(List<VolumeInfo> nativeVolumeInfoList)
             throws VPlexApiException {
         s_logger.info("Request for virtual volume deletion on VPlex at {}", _baseURI);
-        _virtualVolumeMgr.deleteVirtualVolume(nativeVolumeInfoList);
+        try {
+            _virtualVolumeMgr.deleteVirtualVolume(nativeVolumeInfoList);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -564,8 +609,12 @@ public class VPlexApiClient {
     public void deleteVirtualVolume(String virtualVolumeName,
             boolean unclaimVolumes, boolean retryOnDismantleFailure) throws VPlexApiException {
         s_logger.info("Request for virtual volume deletion on VPlex at {}", _baseURI);
-        _virtualVolumeMgr.deleteVirtualVolume(virtualVolumeName, unclaimVolumes,
-                retryOnDismantleFailure);
+        try {
+            _virtualVolumeMgr.deleteVirtualVolume(virtualVolumeName, unclaimVolumes,
+                    retryOnDismantleFailure);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -578,7 +627,11 @@ public class VPlexApiClient {
      */
     public void destroyVirtualVolume(String virtualVolumeName) throws VPlexApiException {
         s_logger.info("Request for virtual volume destroy on VPlex at {}", _baseURI);
-        _virtualVolumeMgr.destroyVirtualVolume(virtualVolumeName);
+        try {
+            _virtualVolumeMgr.destroyVirtualVolume(virtualVolumeName);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -611,8 +664,12 @@ public class VPlexApiClient {
             int expansionStatusRetryCount, long expansionStatusSleepTime)
                     throws VPlexApiException {
         s_logger.info("Request for virtual volume expansion on VPlex at {}", _baseURI);
-        return _virtualVolumeMgr.expandVirtualVolume(virtualVolumeName, expansionStatusRetryCount,
-                expansionStatusSleepTime);
+        try {
+            return _virtualVolumeMgr.expandVirtualVolume(virtualVolumeName, expansionStatusRetryCount,
+                    expansionStatusSleepTime);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -643,8 +700,12 @@ public class VPlexApiClient {
             boolean isRemote, boolean useDeviceMigration, boolean discoveryRequired,
             boolean startNow, String transferSize) throws VPlexApiException {
         s_logger.info("Request for virtual volume migration on VPlex at {}", _baseURI);
-        return _migrationMgr.migrateVirtualVolume(migrationName, virtualVolumeName,
-                nativeVolumeInfoList, isRemote, useDeviceMigration, discoveryRequired, startNow, transferSize);
+        try {
+            return _migrationMgr.migrateVirtualVolume(migrationName, virtualVolumeName,
+                    nativeVolumeInfoList, isRemote, useDeviceMigration, discoveryRequired, startNow, transferSize);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -709,7 +770,11 @@ public class VPlexApiClient {
     public List<VPlexMigrationInfo> commitMigrations(String virtualVolumeName, List<String> migrationNames,
             boolean cleanup, boolean remove, boolean rename) throws VPlexApiException {
         s_logger.info("Request to commit migrations on VPlex at {}", _baseURI);
-        return _migrationMgr.commitMigrations(virtualVolumeName, migrationNames, cleanup, remove, rename);
+        try {
+            return _migrationMgr.commitMigrations(virtualVolumeName, migrationNames, cleanup, remove, rename);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -722,7 +787,11 @@ public class VPlexApiClient {
      */
     public void cleanMigrations(List<String> migrationNames) throws VPlexApiException {
         s_logger.info("Request to clean migrations on VPlex at {}", _baseURI);
-        _migrationMgr.cleanMigrations(migrationNames);
+        try {
+            _migrationMgr.cleanMigrations(migrationNames);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -739,7 +808,11 @@ public class VPlexApiClient {
     public void cancelMigrations(List<String> migrationNames, boolean cleanup,
             boolean remove) throws VPlexApiException {
         s_logger.info("Request to cancel migrations on VPlex at {}", _baseURI);
-        _migrationMgr.cancelMigrations(migrationNames, cleanup, remove);
+        try {
+            _migrationMgr.cancelMigrations(migrationNames, cleanup, remove);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -1240,7 +1313,11 @@ public class VPlexApiClient {
     public void deleteLocalDevice(VolumeInfo deviceInfo) throws VPlexApiException {
         s_logger.info("Request to delete local VPLex device at {}",
                 _baseURI);
-        _virtualVolumeMgr.deleteLocalDevice(deviceInfo);
+        try {
+            _virtualVolumeMgr.deleteLocalDevice(deviceInfo);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -1254,7 +1331,11 @@ public class VPlexApiClient {
     public void deleteLocalDevice(String localDeviceName) throws VPlexApiException {
         s_logger.info("Request to delete local VPLex device at {}",
                 _baseURI);
-        _virtualVolumeMgr.deleteLocalDevice(localDeviceName);
+        try {
+            _virtualVolumeMgr.deleteLocalDevice(localDeviceName);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -1271,7 +1352,11 @@ public class VPlexApiClient {
             String mirrorDeviceName, boolean discard) throws VPlexApiException {
         s_logger.info("Request to detach a mirror from a local virtual volume at {}",
                 _baseURI);
-        _virtualVolumeMgr.detachMirrorFromLocalVirtualVolume(virtualVolumeName, mirrorDeviceName, discard);
+        try {
+            _virtualVolumeMgr.detachMirrorFromLocalVirtualVolume(virtualVolumeName, mirrorDeviceName, discard);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -1288,7 +1373,11 @@ public class VPlexApiClient {
             String mirrorDeviceName, boolean discard) throws VPlexApiException {
         s_logger.info("Request to detach a mirror from a local virtual volume at {}",
                 _baseURI);
-        _virtualVolumeMgr.detachLocalMirrorFromDistributedVirtualVolume(virtualVolumeName, mirrorDeviceName, discard);
+        try {
+            _virtualVolumeMgr.detachLocalMirrorFromDistributedVirtualVolume(virtualVolumeName, mirrorDeviceName, discard);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -1309,7 +1398,11 @@ public class VPlexApiClient {
             String clusterId) throws VPlexApiException {
         s_logger.info("Request to detach a mirror from a distributed volume at {}",
                 _baseURI);
-        return _virtualVolumeMgr.detachMirrorFromDistributedVolume(virtualVolumeName, clusterId);
+        try {
+            return _virtualVolumeMgr.detachMirrorFromDistributedVolume(virtualVolumeName, clusterId);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
     
     /**
@@ -1342,13 +1435,21 @@ public class VPlexApiClient {
             String detachedDeviceName) throws VPlexApiException {
         s_logger.info("Request to reattach mirror to distributed volume on VPLEX at {}",
                 _baseURI);
-        _virtualVolumeMgr.reattachMirrorToDistributedVolume(virtualVolumeName, detachedDeviceName);
+        try {
+            _virtualVolumeMgr.reattachMirrorToDistributedVolume(virtualVolumeName, detachedDeviceName);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     public VPlexVirtualVolumeInfo upgradeVirtualVolumeToDistributed(VPlexVirtualVolumeInfo virtualVolume,
             VolumeInfo newRemoteVolume, boolean discoveryRequired, String clusterId, String transferSize) throws VPlexApiException {
-        return _virtualVolumeMgr.createDistributedVirtualVolume(
-                virtualVolume, newRemoteVolume, discoveryRequired, clusterId, transferSize);
+        try {
+            return _virtualVolumeMgr.createDistributedVirtualVolume(
+                    virtualVolume, newRemoteVolume, discoveryRequired, clusterId, transferSize);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     public WaitOnRebuildResult waitOnRebuildCompletion(String virtualVolume)
@@ -1782,11 +1883,32 @@ public class VPlexApiClient {
     public Map<String, VPlexStorageVolumeInfo> getStorageVolumeInfoForDevice(
             String deviceName, String virtualVolumeType,
             String clusterName, boolean hasMirror) throws VPlexApiException {
+        return getStorageVolumeInfoForDevice(deviceName, virtualVolumeType, clusterName, hasMirror, false);
+    }
+
+    /**
+     * Returns a Map of lowest-level storage-volume resource's WWN to its VPlexStorageVolumeInfo
+     * object for a given device name, virtual volume type, and cluster name, optionally
+     * answered from the inventory snapshot rather than by querying the VPLEX.
+     * 
+     * @param deviceName the name of the top-level device to look at
+     * @param virtualVolumeType the type of virtual volume (local or distributed)
+     * @param clusterName the cluster name
+     * @param hasMirror indicates if the top-level device is a RAID-1 mirror
+     * @param useInventorySnapshot true to look the device up in the inventory snapshot first
+     * 
+     * @return a map of WWNs to VPlexStorageVolumeInfo objects
+     * @throws VPlexApiException
+     */
+    public Map<String, VPlexStorageVolumeInfo> getStorageVolumeInfoForDevice(
+            String deviceName, String virtualVolumeType, String clusterName,
+            boolean hasMirror, boolean useInventorySnapshot) throws VPlexApiException {
         s_logger.info("Request to find storage volume wwns for {} on VPLEX at {}",
                 deviceName, _baseURI);
 
         List<VPlexStorageVolumeInfo> storageVolumes = getDiscoveryManager()
-                .getStorageVolumesForDevice(deviceName, virtualVolumeType, clusterName, hasMirror);
+                .getStorageVolumesForDevice(deviceName, virtualVolumeType, clusterName, hasMirror,
+                        useInventorySnapshot ? getInventorySnapshot() : null);
 
         if (!storageVolumes.isEmpty()) {
             s_logger.info("storage volumes found:");
@@ -1809,12 +1931,7 @@ public class VPlexApiClient {
                 s_logger.error(reason);
                 throw VPlexApiException.exceptions.failedGettingStorageVolumeInfoForIngestion(reason);
             }
-            String wwn = info.getWwn();
-            if (wwn != null && !wwn.isEmpty()) {
-                wwn = wwn.replaceAll("[^A-Fa-f0-9]", "");
-                wwn = wwn.toUpperCase();
-            }
-            storageVolumeWwns.put(wwn, info);
+            storageVolumeWwns.put(VPlexInventorySnapshot.normalizeWwn(info.getWwn()), info);
         }
 
         return storageVolumeWwns;
@@ -1852,19 +1969,37 @@ public class VPlexApiClient {
      */
     public VPlexResourceInfo getDeviceStructure(String deviceName, String virtualVolumeType)
             throws VPlexApiException {
+        return getDeviceStructure(deviceName, virtualVolumeType, false);
+    }
+
+    /**
+     * Returns a VPlexResourceInfo object for the given device name based
+     * on its virtual volume type (local or distributed), optionally answered
+     * from the inventory snapshot rather than by querying the VPLEX.
+     * 
+     * @param deviceName the name of the device
+     * @param virtualVolumeType the type of virtual volume (local or distributed)
+     * @param useInventorySnapshot true to look the device up in the inventory snapshot first
+     * 
+     * @return a VPlexResourceInfo object for the device name
+     * @throws VPlexApiException
+     */
+    public VPlexResourceInfo getDeviceStructure(String deviceName, String virtualVolumeType,
+            boolean useInventorySnapshot) throws VPlexApiException {
         s_logger.info("Request to find {} device structure for {} on VPLEX at " + _baseURI,
                 virtualVolumeType, deviceName);
 
         VPlexResourceInfo device = null;
+        VPlexInventorySnapshot snapshot = useInventorySnapshot ? getInventorySnapshot() : null;
 
         switch (virtualVolumeType) {
             case VPlexApiConstants.DISTRIBUTED_VIRTUAL_VOLUME:
                 device = getDiscoveryManager()
-                        .getDeviceStructureForDistributedIngestion(deviceName);
+                        .getDeviceStructureForDistributedIngestion(deviceName, snapshot);
                 break;
             case VPlexApiConstants.LOCAL_VIRTUAL_VOLUME:
                 device = getDiscoveryManager()
-                        .getDeviceStructureForLocalIngestion(deviceName);
+                        .getDeviceStructureForLocalIngestion(deviceName, snapshot);
                 break;
         }
 
@@ -1882,9 +2017,113 @@ public class VPlexApiClient {
      */
     public Map<String, String> getDistributedDevicePathToClusterMap()
             throws VPlexApiException {
+        return getDistributedDevicePathToClusterMap(false);
+    }
+
+    /**
+     * Returns a Map of distributed device component context
+     * paths from the VPLEX API to VPLEX cluster names, optionally
+     * taken from the inventory snapshot.
+     * 
+     * @param useInventorySnapshot true to take the map from the inventory snapshot
+     * 
+     * @return a Map of distributed device component context
+     *         paths from the VPLEX API to VPLEX cluster names
+     * 
+     * @throws VPlexApiException
+     */
+    public Map<String, String> getDistributedDevicePathToClusterMap(boolean useInventorySnapshot)
+            throws VPlexApiException {
+        VPlexInventorySnapshot snapshot = useInventorySnapshot ? getInventorySnapshot() : null;
+        if (null != snapshot) {
+            return snapshot.getDistributedDevicePathToClusterMap();
+        }
         return _discoveryMgr.getDistributedDevicePathToClusterMap();
     }
 
+    /**
+     * Returns the device inventory snapshot for the VPLEX, loading it if there is
+     * none or the current one has expired. If the snapshot cannot be loaded null is
+     * returned, so that callers fall back to querying the VPLEX per device, and no
+     * load is attempted again until INVENTORY_SNAPSHOT_MAX_AGE_MS later.
+     * 
+     * @return the inventory snapshot or null
+     */
+    public VPlexInventorySnapshot getInventorySnapshot() {
+        VPlexInventorySnapshot snapshot = _inventorySnapshot;
+        if (null != snapshot && snapshot.getAge() < INVENTORY_SNAPSHOT_MAX_AGE_MS) {
+            return snapshot;
+        }
+
+        synchronized (_inventorySnapshotLock) {
+            snapshot = _inventorySnapshot;
+            if (null == snapshot && System.currentTimeMillis() - _inventorySnapshotFailedAt < INVENTORY_SNAPSHOT_MAX_AGE_MS) {
+                return null;
+            }
+            if (null == snapshot || snapshot.getAge() >= INVENTORY_SNAPSHOT_MAX_AGE_MS) {
+                try {
+                    snapshot = refreshInventorySnapshot();
+                } catch (Exception e) {
+                    s_logger.warn("Could not load the inventory snapshot for VPLEX at {}: {}",
+                            _baseURI, e.getLocalizedMessage());
+                    snapshot = null;
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Reloads the device inventory snapshot for the VPLEX. Called once per
+     * discovery cycle so the lookups made while discovering and ingesting
+     * unmanaged volumes do not have to query the VPLEX per device. If the
+     * snapshot is invalidated while it is loading, the loaded snapshot may
+     * miss the change that caused it, so it is discarded and null is returned.
+     * 
+     * @return the new inventory snapshot or null
+     * 
+     * @throws VPlexApiException When an error occurs querying the VPLEX.
+     */
+    public VPlexInventorySnapshot refreshInventorySnapshot() throws VPlexApiException {
+        synchronized (_inventorySnapshotLock) {
+            s_logger.info("Request to load the inventory snapshot for VPLEX at {}", _baseURI);
+            long generation;
+            synchronized (_inventorySnapshotGenerationLock) {
+                generation = _inventorySnapshotGeneration;
+                _inventorySnapshot = null;
+            }
+            VPlexInventorySnapshot snapshot;
+            try {
+                snapshot = _discoveryMgr.getInventorySnapshot();
+            } catch (RuntimeException e) {
+                _inventorySnapshotFailedAt = System.currentTimeMillis();
+                throw e;
+            }
+            _inventorySnapshotFailedAt = 0;
+            synchronized (_inventorySnapshotGenerationLock) {
+                if (generation != _inventorySnapshotGeneration) {
+                    s_logger.info("The inventory snapshot for VPLEX at {} was invalidated while loading, discarding it",
+                            _baseURI);
+                    return null;
+                }
+                _inventorySnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Drops the device inventory snapshot, so the next lookup reloads it.
+     * Called after any request that changes the devices on the VPLEX.
+     */
+    public void invalidateInventorySnapshot() {
+        synchronized (_inventorySnapshotGenerationLock) {
+            _inventorySnapshotGeneration++;
+            _inventorySnapshot = null;
+        }
+    }
+
     /**
      * This method finds virtual volume on the VPLEX and then updates virtual volume info.
      * 
@@ -1904,7 +2143,11 @@ public class VPlexApiClient {
      */
     public void deviceCollapse(String sourceDeviceNameOrPath, String collapseType) throws VPlexApiException {
         s_logger.info("Request to collapse device {} with collapse type {}", sourceDeviceNameOrPath, collapseType);
-        _virtualVolumeMgr.deviceCollapse(sourceDeviceNameOrPath, collapseType);
+        try {
+            _virtualVolumeMgr.deviceCollapse(sourceDeviceNameOrPath, collapseType);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -1915,7 +2158,11 @@ public class VPlexApiClient {
      */
     public void setDeviceVisibility(String sourceDeviceName) throws VPlexApiException {
         s_logger.info("Request to set device visibility {}", _baseURI);
-        _virtualVolumeMgr.setDeviceVisibility(sourceDeviceName);
+        try {
+            _virtualVolumeMgr.setDeviceVisibility(sourceDeviceName);
+        } finally {
+            invalidateInventorySnapshot();
+        }
     }
 
     /**
@@ -2127,6 +2374,7 @@ public class VPlexApiClient {
         _vplexClusterInfoLiteCache.clear();
         _vplexClusterInitiatorWwnToNameCache.clear();
         _discoveryMgr.clearInitiatorCache();
+        invalidateInventorySnapshot();
     }
 
     /**
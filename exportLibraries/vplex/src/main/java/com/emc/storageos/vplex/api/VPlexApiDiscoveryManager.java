@@ -3491,11 +3491,41 @@ public class VPlexApiDiscoveryManager {
      */
     public List<VPlexStorageVolumeInfo> getStorageVolumesForDevice(
             String deviceName, String virtualVolumeType, String clusterName, boolean hasMirror) throws VPlexApiException {
+        return getStorageVolumesForDevice(deviceName, virtualVolumeType, clusterName, hasMirror, null);
+    }
+
+    /**
+     * Returns a List of VPlexStorageVolumeInfo storage volumes for the given
+     * device name, locality (virtual volume type), and cluster name, taking
+     * them from the passed inventory snapshot when it has the device.
+     * 
+     * @param deviceName the top-level device name to query on
+     * @param virtualVolumeType the virtual volume type (local or distributed)
+     * @param clusterName the cluster name
+     * @param hasMirror if the top level device is mirrored
+     * @param snapshot the inventory snapshot to look in first, or null
+     * 
+     * @return a list of VPlexStorageVolumeInfo storage volumes comprising the device
+     * @throws VPlexApiException
+     */
+    public List<VPlexStorageVolumeInfo> getStorageVolumesForDevice(String deviceName, String virtualVolumeType,
+            String clusterName, boolean hasMirror, VPlexInventorySnapshot snapshot) throws VPlexApiException {
 
         long start = System.currentTimeMillis();
         s_logger.info("Getting backend storage volume wwn info for {} volume {} from VPLEX at "
                 + _vplexApiClient.getBaseURI().toString(), virtualVolumeType, deviceName);
 
+        if (null != snapshot) {
+            List<VPlexStorageVolumeInfo> storageVolumeInfoList = snapshot.getStorageVolumesForDevice(
+                    deviceName, virtualVolumeType, clusterName, hasMirror);
+            if (null != storageVolumeInfoList) {
+                s_logger.info("TIMER: getStorageVolumesForDevice took {}ms (inventory snapshot)",
+                        System.currentTimeMillis() - start);
+                return storageVolumeInfoList;
+            }
+            s_logger.info("Device {} not found in the inventory snapshot, querying the VPLEX", deviceName);
+        }
+
         StringBuilder uriBuilder = new StringBuilder();
         if (VPlexApiConstants.LOCAL_VIRTUAL_VOLUME.equals(virtualVolumeType)) {
             // format /vplex/clusters/*/devices
@@ -3712,40 +3742,62 @@ public class VPlexApiDiscoveryManager {
      */
     public VPlexDistributedDeviceInfo getDeviceStructureForDistributedIngestion(
             String deviceName) throws VPlexApiException {
+        return getDeviceStructureForDistributedIngestion(deviceName, null);
+    }
+
+    /**
+     * Returns a VPlexDistributedDeviceInfo object for the given device, taking
+     * the device components from the passed inventory snapshot when it has them.
+     * 
+     * @param deviceName the name of the device
+     * @param snapshot the inventory snapshot to look in first, or null
+     * 
+     * @return a VPlexResourceInfo object for the device name
+     * @throws VPlexApiException
+     */
+    public VPlexDistributedDeviceInfo getDeviceStructureForDistributedIngestion(
+            String deviceName, VPlexInventorySnapshot snapshot) throws VPlexApiException {
 
         long start = System.currentTimeMillis();
         s_logger.info("Getting device structure info for device {} from VPLEX at "
                 + _vplexApiClient.getBaseURI().toString(), deviceName);
 
-        StringBuilder uriBuilder = new StringBuilder();
-        // format /vplex/distributed-storage/distributed-devices
-        // /DEVICE_NAME/distributed-device-components/*
-        uriBuilder.append(VPlexApiConstants.URI_DISTRIBUTED_DEVICES.toString());
-        uriBuilder.append(deviceName);
-        uriBuilder.append(VPlexApiConstants.URI_DISTRIBUTED_DEVICE_COMP.toString());
-        uriBuilder.append(VPlexApiConstants.WILDCARD.toString());
+        List<VPlexDeviceInfo> deviceInfoList = null;
+        if (null != snapshot) {
+            deviceInfoList = snapshot.getComponents(VPlexInventorySnapshot.getDistributedDevicePath(deviceName));
+        }
 
-        URI requestURI = _vplexApiClient.getBaseURI().resolve(URI.create(uriBuilder.toString()));
-        s_logger.info("Distributed Device Info Request URI is {}", requestURI.toString());
+        if (null == deviceInfoList) {
+            StringBuilder uriBuilder = new StringBuilder();
+            // format /vplex/distributed-storage/distributed-devices
+            // /DEVICE_NAME/distributed-device-components/*
+            uriBuilder.append(VPlexApiConstants.URI_DISTRIBUTED_DEVICES.toString());
+            uriBuilder.append(deviceName);
+            uriBuilder.append(VPlexApiConstants.URI_DISTRIBUTED_DEVICE_COMP.toString());
+            uriBuilder.append(VPlexApiConstants.WILDCARD.toString());
 
-        ClientResponse response = _vplexApiClient.get(requestURI,
-                VPlexApiConstants.ACCEPT_JSON_FORMAT_1,
-                VPlexApiConstants.CACHE_CONTROL_MAXAGE_DEFAULT_VALUE);
-        String responseStr = response.getEntity(String.class);
-        int status = response.getStatus();
-        response.close();
+            URI requestURI = _vplexApiClient.getBaseURI().resolve(URI.create(uriBuilder.toString()));
+            s_logger.info("Distributed Device Info Request URI is {}", requestURI.toString());
 
-        if (status != VPlexApiConstants.SUCCESS_STATUS) {
-            throw VPlexApiException.exceptions.failedGettingDeviceStructure(String.valueOf(status));
+            ClientResponse response = _vplexApiClient.get(requestURI,
+                    VPlexApiConstants.ACCEPT_JSON_FORMAT_1,
+                    VPlexApiConstants.CACHE_CONTROL_MAXAGE_DEFAULT_VALUE);
+            String responseStr = response.getEntity(String.class);
+            int status = response.getStatus();
+            response.close();
+
+            if (status != VPlexApiConstants.SUCCESS_STATUS) {
+                throw VPlexApiException.exceptions.failedGettingDeviceStructure(String.valueOf(status));
+            }
+
+            // Successful Response
+            deviceInfoList = VPlexApiUtils.getResourcesFromResponseContext(uriBuilder.toString(),
+                    responseStr, VPlexDeviceInfo.class);
         }
 
         VPlexDistributedDeviceInfo parentDevice = new VPlexDistributedDeviceInfo();
         parentDevice.setName(deviceName);
 
-        // Successful Response
-        List<VPlexDeviceInfo> deviceInfoList = VPlexApiUtils.getResourcesFromResponseContext(uriBuilder.toString(),
-                responseStr, VPlexDeviceInfo.class);
-
         for (VPlexDeviceInfo componentDevice : deviceInfoList) {
             switch (componentDevice.getGeometry().toLowerCase()) {
                 case VPlexApiConstants.ARG_GEOMETRY_RAID0:
@@ -3755,7 +3807,7 @@ public class VPlexApiDiscoveryManager {
                 case VPlexApiConstants.ARG_GEOMETRY_RAID1:
                     s_logger.info("top-level device geometry is raid-1 for component {}, need to find mirror info",
                             componentDevice.getName());
-                    List<VPlexDeviceInfo> childDeviceInfos = getDeviceComponentInfoForIngestion(componentDevice);
+                    List<VPlexDeviceInfo> childDeviceInfos = getDeviceComponentInfoForIngestion(componentDevice, snapshot);
                     componentDevice.setChildDeviceInfo(childDeviceInfos);
                     break;
                 case VPlexApiConstants.ARG_GEOMETRY_RAIDC:
@@ -3797,37 +3849,59 @@ public class VPlexApiDiscoveryManager {
      */
     public VPlexDeviceInfo getDeviceStructureForLocalIngestion(
             String deviceName) throws VPlexApiException {
+        return getDeviceStructureForLocalIngestion(deviceName, null);
+    }
+
+    /**
+     * Returns a VPlexDeviceInfo object for the given device, taking the device
+     * and its components from the passed inventory snapshot when it has them.
+     * 
+     * @param deviceName the name of the device
+     * @param snapshot the inventory snapshot to look in first, or null
+     * 
+     * @return a VPlexResourceInfo object for the device name
+     * @throws VPlexApiException
+     */
+    public VPlexDeviceInfo getDeviceStructureForLocalIngestion(
+            String deviceName, VPlexInventorySnapshot snapshot) throws VPlexApiException {
 
         long start = System.currentTimeMillis();
         s_logger.info("Getting device structure info for device {} from VPLEX at "
                 + _vplexApiClient.getBaseURI().toString(), deviceName);
 
-        StringBuilder uriBuilder = new StringBuilder();
-        // format /vplex/clusters/*/devices/DEVICE_NAME
-        uriBuilder.append(VPlexApiConstants.URI_CLUSTERS.toString());
-        uriBuilder.append(VPlexApiConstants.WILDCARD.toString());
-        uriBuilder.append(VPlexApiConstants.URI_DEVICES.toString());
-        uriBuilder.append(deviceName);
+        List<VPlexDeviceInfo> deviceInfoList = null;
+        if (null != snapshot) {
+            deviceInfoList = snapshot.getLocalDevices(deviceName);
+        }
 
-        URI requestURI = _vplexApiClient.getBaseURI().resolve(URI.create(uriBuilder.toString()));
-        s_logger.info("Local Device Info Request URI is {}", requestURI.toString());
+        if (null == deviceInfoList) {
+            StringBuilder uriBuilder = new StringBuilder();
+            // format /vplex/clusters/*/devices/DEVICE_NAME
+            uriBuilder.append(VPlexApiConstants.URI_CLUSTERS.toString());
+            uriBuilder.append(VPlexApiConstants.WILDCARD.toString());
+            uriBuilder.append(VPlexApiConstants.URI_DEVICES.toString());
+            uriBuilder.append(deviceName);
 
-        ClientResponse response = _vplexApiClient.get(requestURI,
-                VPlexApiConstants.ACCEPT_JSON_FORMAT_1,
-                VPlexApiConstants.CACHE_CONTROL_MAXAGE_DEFAULT_VALUE);
-        String responseStr = response.getEntity(String.class);
-        int status = response.getStatus();
-        response.close();
+            URI requestURI = _vplexApiClient.getBaseURI().resolve(URI.create(uriBuilder.toString()));
+            s_logger.info("Local Device Info Request URI is {}", requestURI.toString());
 
-        if (status != VPlexApiConstants.SUCCESS_STATUS) {
-            throw VPlexApiException.exceptions.failedGettingDeviceStructure(String.valueOf(status));
+            ClientResponse response = _vplexApiClient.get(requestURI,
+                    VPlexApiConstants.ACCEPT_JSON_FORMAT_1,
+                    VPlexApiConstants.CACHE_CONTROL_MAXAGE_DEFAULT_VALUE);
+            String responseStr = response.getEntity(String.class);
+            int status = response.getStatus();
+            response.close();
+
+            if (status != VPlexApiConstants.SUCCESS_STATUS) {
+                throw VPlexApiException.exceptions.failedGettingDeviceStructure(String.valueOf(status));
+            }
+
+            // Successful Response
+            deviceInfoList = VPlexApiUtils.getResourcesFromResponseContext(uriBuilder.toString(),
+                    responseStr, VPlexDeviceInfo.class);
         }
 
         VPlexDeviceInfo device = null;
-
-        // Successful Response
-        List<VPlexDeviceInfo> deviceInfoList = VPlexApiUtils.getResourcesFromResponseContext(uriBuilder.toString(),
-                responseStr, VPlexDeviceInfo.class);
         if (deviceInfoList.size() == 1) {
             device = deviceInfoList.get(0);
 
@@ -3839,7 +3913,7 @@ public class VPlexApiDiscoveryManager {
                 case VPlexApiConstants.ARG_GEOMETRY_RAID1:
                     s_logger.info("top-level device geometry is raid-1 for device {}, finding children",
                             device.getName());
-                    List<VPlexDeviceInfo> componentDeviceInfoList = getDeviceComponentInfoForIngestion(device);
+                    List<VPlexDeviceInfo> componentDeviceInfoList = getDeviceComponentInfoForIngestion(device, snapshot);
                     device.setChildDeviceInfo(componentDeviceInfoList);
                     break;
                 case VPlexApiConstants.ARG_GEOMETRY_RAIDC:
@@ -3882,35 +3956,58 @@ public class VPlexApiDiscoveryManager {
      */
     public List<VPlexDeviceInfo> getDeviceComponentInfoForIngestion(
             VPlexDeviceInfo parentDevice) throws VPlexApiException {
+        return getDeviceComponentInfoForIngestion(parentDevice, null);
+    }
+
+    /**
+     * Returns a List of child VPlexDeviceInfo components for a given
+     * VPlexDeviceInfo parent device, taking them from the passed inventory
+     * snapshot when it has them.
+     * 
+     * @param parentDevice the parent VPlexDeviceInfo
+     * @param snapshot the inventory snapshot to look in first, or null
+     * 
+     * @return a List of child VPlexDeviceInfo objects for the parent
+     * @throws VPlexApiException
+     */
+    public List<VPlexDeviceInfo> getDeviceComponentInfoForIngestion(
+            VPlexDeviceInfo parentDevice, VPlexInventorySnapshot snapshot) throws VPlexApiException {
 
         long start = System.currentTimeMillis();
         s_logger.info("Getting device component info for {} from VPLEX at "
                 + _vplexApiClient.getBaseURI().toString(), parentDevice.getName());
 
-        StringBuilder uriBuilder = new StringBuilder();
-        // /vplex/clusters/cluster-1/devices/device_VAPM00140844981-01736/components/*
-        uriBuilder.append(VPlexApiConstants.VPLEX_PATH);
-        uriBuilder.append(parentDevice.getPath());
-        uriBuilder.append(VPlexApiConstants.URI_COMPONENTS.toString());
-        uriBuilder.append(VPlexApiConstants.WILDCARD.toString());
+        List<VPlexDeviceInfo> deviceInfoList = null;
+        if (null != snapshot) {
+            deviceInfoList = snapshot.getComponents(parentDevice.getPath());
+        }
 
-        URI requestURI = _vplexApiClient.getBaseURI().resolve(URI.create(uriBuilder.toString()));
-        s_logger.info("Child Device Component Info Request URI is {}", requestURI.toString());
+        if (null == deviceInfoList) {
+            StringBuilder uriBuilder = new StringBuilder();
+            // /vplex/clusters/cluster-1/devices/device_VAPM00140844981-01736/components/*
+            uriBuilder.append(VPlexApiConstants.VPLEX_PATH);
+            uriBuilder.append(parentDevice.getPath());
+            uriBuilder.append(VPlexApiConstants.URI_COMPONENTS.toString());
+            uriBuilder.append(VPlexApiConstants.WILDCARD.toString());
 
-        ClientResponse response = _vplexApiClient.get(requestURI,
-                VPlexApiConstants.ACCEPT_JSON_FORMAT_1,
-                VPlexApiConstants.CACHE_CONTROL_MAXAGE_DEFAULT_VALUE);
-        String responseStr = response.getEntity(String.class);
-        int status = response.getStatus();
-        response.close();
+            URI requestURI = _vplexApiClient.getBaseURI().resolve(URI.create(uriBuilder.toString()));
+            s_logger.info("Child Device Component Info Request URI is {}", requestURI.toString());
 
-        if (status != VPlexApiConstants.SUCCESS_STATUS) {
-            throw VPlexApiException.exceptions.failedGettingDeviceStructure(String.valueOf(status));
-        }
+            ClientResponse response = _vplexApiClient.get(requestURI,
+                    VPlexApiConstants.ACCEPT_JSON_FORMAT_1,
+                    VPlexApiConstants.CACHE_CONTROL_MAXAGE_DEFAULT_VALUE);
+            String responseStr = response.getEntity(String.class);
+            int status = response.getStatus();
+            response.close();
 
-        // Successful Response
-        List<VPlexDeviceInfo> deviceInfoList = VPlexApiUtils.getResourcesFromResponseContext(uriBuilder.toString(),
-                responseStr, VPlexDeviceInfo.class);
+            if (status != VPlexApiConstants.SUCCESS_STATUS) {
+                throw VPlexApiException.exceptions.failedGettingDeviceStructure(String.valueOf(status));
+            }
+
+            // Successful Response
+            deviceInfoList = VPlexApiUtils.getResourcesFromResponseContext(uriBuilder.toString(),
+                    responseStr, VPlexDeviceInfo.class);
+        }
 
         for (VPlexDeviceInfo device : deviceInfoList) {
             switch (device.getGeometry().toLowerCase()) {
@@ -3997,6 +4094,113 @@ public class VPlexApiDiscoveryManager {
         return distributedDevicePathToClusterMap;
     }
 
+    /**
+     * Loads a snapshot of the device inventory of the VPLEX with one wildcard
+     * request per level of the local and distributed device trees, rather than
+     * several requests per device.
+     * 
+     * @return the inventory snapshot
+     * 
+     * @throws VPlexApiException When an error occurs querying the VPLEX.
+     */
+    public VPlexInventorySnapshot getInventorySnapshot() throws VPlexApiException {
+
+        long start = System.currentTimeMillis();
+        s_logger.info("Getting device inventory snapshot from VPLEX at "
+                + _vplexApiClient.getBaseURI().toString());
+
+        VPlexInventorySnapshot snapshot = new VPlexInventorySnapshot();
+
+        // format /vplex/clusters/*/devices/*
+        StringBuilder uriBuilder = new StringBuilder();
+        uriBuilder.append(VPlexApiConstants.URI_CLUSTERS.toString());
+        uriBuilder.append(VPlexApiConstants.WILDCARD);
+        uriBuilder.append(VPlexApiConstants.URI_DEVICES.toString());
+        uriBuilder.append(VPlexApiConstants.WILDCARD);
+        snapshot.addLocalDevices(getResourcesForContext(uriBuilder.toString(), VPlexDeviceInfo.class));
+
+        // format /vplex/clusters/*/devices/*/components/*
+        appendComponentsWildcard(uriBuilder);
+        snapshot.addComponents(getResourcesForContext(uriBuilder.toString(), VPlexDeviceInfo.class), false);
+
+        // format /vplex/clusters/*/devices/*/components/*/components/*
+        appendComponentsWildcard(uriBuilder);
+        snapshot.addStorageVolumes(getResourcesForContext(uriBuilder.toString(), VPlexStorageVolumeInfo.class), false);
+
+        // format /vplex/clusters/*/devices/*/components/*/components/*/components/*
+        appendComponentsWildcard(uriBuilder);
+        snapshot.addStorageVolumes(getResourcesForContext(uriBuilder.toString(), VPlexStorageVolumeInfo.class), true);
+
+        // format /vplex/distributed-storage/distributed-devices/*/distributed-device-components/*
+        uriBuilder = new StringBuilder();
+        uriBuilder.append(VPlexApiConstants.URI_DISTRIBUTED_DEVICES.toString());
+        uriBuilder.append(VPlexApiConstants.WILDCARD);
+        uriBuilder.append(VPlexApiConstants.URI_DISTRIBUTED_DEVICE_COMP.toString());
+        uriBuilder.append(VPlexApiConstants.WILDCARD);
+        snapshot.addComponents(getResourcesForContext(uriBuilder.toString(), VPlexDeviceInfo.class), true);
+
+        // format /vplex/distributed-storage/distributed-devices/*/distributed-device-components/*/components/*
+        appendComponentsWildcard(uriBuilder);
+        snapshot.addComponents(getResourcesForContext(uriBuilder.toString(), VPlexDeviceInfo.class), false);
+
+        // format /vplex/distributed-storage/distributed-devices/*/distributed-device-components/*/components/*/components/*
+        appendComponentsWildcard(uriBuilder);
+        snapshot.addStorageVolumes(getResourcesForContext(uriBuilder.toString(), VPlexStorageVolumeInfo.class), false);
+
+        // format /vplex/distributed-storage/distributed-devices/*/distributed-device-components/*/components/*/components/*/components/*
+        appendComponentsWildcard(uriBuilder);
+        snapshot.addStorageVolumes(getResourcesForContext(uriBuilder.toString(), VPlexStorageVolumeInfo.class), true);
+
+        s_logger.info("TIMER: getInventorySnapshot took {}ms",
+                System.currentTimeMillis() - start);
+
+        return snapshot;
+    }
+
+    /**
+     * Appends a wildcard components context to the passed context path.
+     * 
+     * @param uriBuilder the context path being built
+     */
+    private void appendComponentsWildcard(StringBuilder uriBuilder) {
+        uriBuilder.append(VPlexApiConstants.URI_COMPONENTS.toString());
+        uriBuilder.append(VPlexApiConstants.WILDCARD);
+    }
+
+    /**
+     * Returns the resources found at the passed, typically wildcarded, context path.
+     * A context that does not exist, such as the distributed devices of a local
+     * VPLEX, returns an empty list.
+     * 
+     * @param contextPath the context path to query
+     * @param clazz the type of the resources
+     * 
+     * @return the resources found at the context path
+     * 
+     * @throws VPlexApiException When an error occurs querying the VPLEX.
+     */
+    private <T extends VPlexResourceInfo> List<T> getResourcesForContext(String contextPath, Class<T> clazz)
+            throws VPlexApiException {
+        URI requestURI = _vplexApiClient.getBaseURI().resolve(URI.create(contextPath));
+        s_logger.info("Inventory Snapshot Request URI is {}", requestURI.toString());
+
+        ClientResponse response = _vplexApiClient.get(requestURI,
+                VPlexApiConstants.ACCEPT_JSON_FORMAT_1,
+                VPlexApiConstants.CACHE_CONTROL_MAXAGE_DEFAULT_VALUE);
+        String responseStr = response.getEntity(String.class);
+        int status = response.getStatus();
+        response.close();
+
+        if (status == VPlexApiConstants.NOT_FOUND_STATUS) {
+            s_logger.info("VPLEX returned a 404 Not Found for this context, returning an empty list instead.");
+            return new ArrayList<T>();
+        } else if (status != VPlexApiConstants.SUCCESS_STATUS) {
+            throw VPlexApiException.exceptions.failedGettingDeviceStructure(String.valueOf(status));
+        }
+
+        return VPlexApiUtils.getResourcesFromResponseContext(contextPath, responseStr, clazz);
+    }
+
     /**
      * Calls the VPLEX CLI "drill-down" command for the given device name.
      * 
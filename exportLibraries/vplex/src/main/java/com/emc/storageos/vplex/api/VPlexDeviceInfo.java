@@ -35,7 +35,34 @@ public class VPlexDeviceInfo extends VPlexResourceInfo {
     private String serviceStatus = null;
     
     private String virtualVolume = null;
-    
+
+    /**
+     * Default constructor.
+     */
+    public VPlexDeviceInfo() {
+    }
+
+    /**
+     * Copy constructor. The child devices are copied as well, so that the
+     * copy can be changed without affecting the device info it was made from.
+     * 
+     * @param info The device info to copy.
+     */
+    public VPlexDeviceInfo(VPlexDeviceInfo info) {
+        super(info);
+        extentInfoList = new ArrayList<VPlexExtentInfo>(info.extentInfoList);
+        for (VPlexDeviceInfo childDeviceInfo : info.childDeviceInfoList) {
+            childDeviceInfoList.add(new VPlexDeviceInfo(childDeviceInfo));
+        }
+        cluster = info.cluster;
+        geometry = info.geometry;
+        healthState = info.healthState;
+        operationalStatus = info.operationalStatus;
+        slotNumber = info.slotNumber;
+        serviceStatus = info.serviceStatus;
+        virtualVolume = info.virtualVolume;
+    }
+
     /**
      * Getter for the extent info for the device.
      * 
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.vplex.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A point in time view of the device inventory of a VPLEX, loaded with a handful
+ * of wildcard context requests rather than several requests per device. The
+ * local devices, the device components, and the storage volumes at the bottom of
+ * each top-level device are indexed in memory by device name and context path, so that
+ * the ingestion lookups for a device can be answered without going back to the VPLEX.
+ * A lookup for a device that is not in the snapshot returns null, and the caller is
+ * expected to fall back to querying the VPLEX for that device. The snapshot is shared
+ * by the threads using the VPLEX client, so the lookups return copies of the resource
+ * info that the caller is free to change.
+ */
+public class VPlexInventorySnapshot {
+
+    private static final String CLUSTERS_CONTEXT = "clusters";
+
+    // The time the snapshot was loaded.
+    private final long _loadTime = System.currentTimeMillis();
+
+    // The top-level local devices keyed by device name.
+    private final Map<String, List<VPlexDeviceInfo>> _localDevicesByName = new HashMap<String, List<VPlexDeviceInfo>>();
+
+    // The components of local devices and distributed devices keyed by the context path of their parent.
+    private final Map<String, List<VPlexDeviceInfo>> _componentsByParentPath = new HashMap<String, List<VPlexDeviceInfo>>();
+
+    // The resources two component levels below each top-level device, keyed by the device context path.
+    private final Map<String, List<VPlexStorageVolumeInfo>> _storageVolumesByDevicePath = new HashMap<String, List<VPlexStorageVolumeInfo>>();
+
+    // The resources three component levels below each top-level device, keyed by the device context path.
+    private final Map<String, List<VPlexStorageVolumeInfo>> _mirrorStorageVolumesByDevicePath = new HashMap<String, List<VPlexStorageVolumeInfo>>();
+
+    // The cluster of each distributed device component keyed by the component context path.
+    private final Map<String, String> _distributedDevicePathToClusterMap = new HashMap<String, String>();
+
+    /**
+     * Returns the number of milliseconds since this snapshot was loaded.
+     *
+     * @return the age of the snapshot in milliseconds
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - _loadTime;
+    }
+
+    /**
+     * Returns the top-level local devices with the passed name, or null
+     * if there is no such device in the snapshot.
+     *
+     * @param deviceName the local device name
+     *
+     * @return the local devices with the passed name or null
+     */
+    public List<VPlexDeviceInfo> getLocalDevices(String deviceName) {
+        return copyDevices(_localDevicesByName.get(deviceName));
+    }
+
+    /**
+     * Returns the components of the resource at the passed context path,
+     * or null if the snapshot has no components for it.
+     *
+     * @param parentPath the context path of the parent device, such as
+     *            /clusters/cluster-1/devices/device_1 or
+     *            /distributed-storage/distributed-devices/dd_1
+     *
+     * @return the components of the device or null
+     */
+    public List<VPlexDeviceInfo> getComponents(String parentPath) {
+        return copyDevices(_componentsByParentPath.get(parentPath));
+    }
+
+    /**
+     * Returns the resources found two component levels below the passed
+     * top-level device, or three levels below it when the device is mirrored,
+     * which is the same set of resources returned by the storage volume
+     * wildcard request of VPlexApiDiscoveryManager.getStorageVolumesForDevice.
+     *
+     * @param deviceName the top-level device name
+     * @param virtualVolumeType the virtual volume type (local or distributed)
+     * @param clusterName the cluster name for a local device, or null for any cluster
+     * @param hasMirror if the top level device is mirrored
+     *
+     * @return the storage volumes of the device or null if the device is not in the snapshot
+     */
+    public List<VPlexStorageVolumeInfo> getStorageVolumesForDevice(String deviceName,
+            String virtualVolumeType, String clusterName, boolean hasMirror) {
+        Map<String, List<VPlexStorageVolumeInfo>> storageVolumesByDevicePath =
+                hasMirror ? _mirrorStorageVolumesByDevicePath : _storageVolumesByDevicePath;
+
+        List<String> devicePaths = new ArrayList<String>();
+        if (VPlexApiConstants.LOCAL_VIRTUAL_VOLUME.equals(virtualVolumeType)) {
+            List<VPlexDeviceInfo> devices = _localDevicesByName.get(deviceName);
+            if (devices == null) {
+                return null;
+            }
+            for (VPlexDeviceInfo device : devices) {
+                if (null == clusterName || clusterName.isEmpty() || clusterName.equals(device.getCluster())) {
+                    devicePaths.add(device.getPath());
+                }
+            }
+        } else if (VPlexApiConstants.DISTRIBUTED_VIRTUAL_VOLUME.equals(virtualVolumeType)) {
+            String devicePath = getDistributedDevicePath(deviceName);
+            if (!_componentsByParentPath.containsKey(devicePath)) {
+                return null;
+            }
+            devicePaths.add(devicePath);
+        } else {
+            return null;
+        }
+
+        List<VPlexStorageVolumeInfo> storageVolumes = null;
+        for (String devicePath : devicePaths) {
+            List<VPlexStorageVolumeInfo> deviceStorageVolumes = storageVolumesByDevicePath.get(devicePath);
+            if (deviceStorageVolumes != null) {
+                if (storageVolumes == null) {
+                    storageVolumes = new ArrayList<VPlexStorageVolumeInfo>();
+                }
+                for (VPlexStorageVolumeInfo storageVolume : deviceStorageVolumes) {
+                    storageVolumes.add(new VPlexStorageVolumeInfo(storageVolume));
+                }
+            }
+        }
+
+        return storageVolumes;
+    }
+
+    /**
+     * Returns a Map of distributed device component context
+     * paths to VPLEX cluster names.
+     *
+     * @return a Map of distributed device component context
+     *         paths to VPLEX cluster names
+     */
+    public Map<String, String> getDistributedDevicePathToClusterMap() {
+        return new HashMap<String, String>(_distributedDevicePathToClusterMap);
+    }
+
+    /**
+     * Returns the context path of the distributed device with the passed name.
+     *
+     * @param deviceName the distributed device name
+     *
+     * @return the context path of the distributed device
+     */
+    static String getDistributedDevicePath(String deviceName) {
+        return VPlexApiConstants.URI_DISTRIBUTED_DEVICES.toString()
+                .substring(VPlexApiConstants.VPLEX_PATH.length()) + deviceName;
+    }
+
+    /**
+     * Indexes the passed top-level local devices by name.
+     *
+     * @param devices the devices from /clusters/(*)/devices/(*)
+     */
+    void addLocalDevices(List<VPlexDeviceInfo> devices) {
+        for (VPlexDeviceInfo device : devices) {
+            addToIndex(_localDevicesByName, device.getName(), device);
+        }
+    }
+
+    /**
+     * Indexes the passed device components by the context path of their parent.
+     *
+     * @param components the components of local devices, distributed devices,
+     *            or distributed device legs
+     * @param distributed true if the components are the legs of distributed devices
+     */
+    void addComponents(List<VPlexDeviceInfo> components, boolean distributed) {
+        for (VPlexDeviceInfo component : components) {
+            addToIndex(_componentsByParentPath, getParentPath(component.getPath()), component);
+            if (distributed) {
+                _distributedDevicePathToClusterMap.put(component.getPath(), component.getCluster());
+            }
+        }
+    }
+
+    /**
+     * Indexes the passed storage volumes by the context path of their top-level device.
+     *
+     * @param storageVolumes the resources two or three component levels below a top-level device
+     * @param mirrored true if these are the resources three levels down
+     */
+    void addStorageVolumes(List<VPlexStorageVolumeInfo> storageVolumes, boolean mirrored) {
+        Map<String, List<VPlexStorageVolumeInfo>> storageVolumesByDevicePath =
+                mirrored ? _mirrorStorageVolumesByDevicePath : _storageVolumesByDevicePath;
+        for (VPlexStorageVolumeInfo storageVolume : storageVolumes) {
+            addToIndex(storageVolumesByDevicePath, getTopLevelDevicePath(storageVolume.getPath()), storageVolume);
+        }
+    }
+
+    /**
+     * Returns the passed WWN in upper case without separators, the form used for
+     * the backend volume WWNs during ingestion.
+     *
+     * @param wwn the WWN
+     *
+     * @return the normalized WWN
+     */
+    static String normalizeWwn(String wwn) {
+        return wwn.replaceAll("[^A-Fa-f0-9]", "").toUpperCase();
+    }
+
+    /**
+     * Returns the context path of the resource owning the passed component, e.g.
+     * /clusters/cluster-1/devices/device_1 for
+     * /clusters/cluster-1/devices/device_1/components/extent_1.
+     *
+     * @param path the component context path
+     *
+     * @return the context path of the parent resource
+     */
+    static String getParentPath(String path) {
+        int index = path.lastIndexOf(VPlexApiConstants.SLASH);
+        index = path.lastIndexOf(VPlexApiConstants.SLASH, index - 1);
+        return index > 0 ? path.substring(0, index) : path;
+    }
+
+    /**
+     * Returns the context path of the top-level device a component belongs to, e.g.
+     * /clusters/cluster-1/devices/device_1 or /distributed-storage/distributed-devices/dd_1.
+     *
+     * @param path the component context path
+     *
+     * @return the context path of the top-level device
+     */
+    static String getTopLevelDevicePath(String path) {
+        String[] contextParts = path.split(VPlexApiConstants.SLASH);
+        // the first token is the empty string, the device name is at index 4
+        // for /clusters/cluster-1/devices/device_1 and at index 3 for
+        // /distributed-storage/distributed-devices/dd_1
+        int deviceIndex = CLUSTERS_CONTEXT.equals(contextParts[1]) ? 4 : 3;
+        StringBuilder devicePath = new StringBuilder();
+        for (int i = 1; i <= deviceIndex && i < contextParts.length; i++) {
+            devicePath.append(VPlexApiConstants.SLASH).append(contextParts[i]);
+        }
+        return devicePath.toString();
+    }
+
+    private static List<VPlexDeviceInfo> copyDevices(List<VPlexDeviceInfo> devices) {
+        if (devices == null) {
+            return null;
+        }
+        List<VPlexDeviceInfo> copies = new ArrayList<VPlexDeviceInfo>(devices.size());
+        for (VPlexDeviceInfo device : devices) {
+            copies.add(new VPlexDeviceInfo(device));
+        }
+        return copies;
+    }
+
+    private static <T> void addToIndex(Map<String, List<T>> index, String key, T value) {
+        List<T> values = index.get(key);
+        if (values == null) {
+            values = new ArrayList<T>();
+            index.put(key, values);
+        }
+        values.add(value);
+    }
+}
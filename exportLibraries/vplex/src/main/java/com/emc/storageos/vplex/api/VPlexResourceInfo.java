@@ -75,6 +75,23 @@ public class VPlexResourceInfo {
     // Resource path
     private String contextPath;
 
+    /**
+     * Default constructor.
+     */
+    public VPlexResourceInfo() {
+    }
+
+    /**
+     * Copy constructor.
+     * 
+     * @param info The resource info to copy.
+     */
+    protected VPlexResourceInfo(VPlexResourceInfo info) {
+        type = info.type;
+        name = info.name;
+        contextPath = info.contextPath;
+    }
+
     /**
      * Getter for the resource type.
      * 
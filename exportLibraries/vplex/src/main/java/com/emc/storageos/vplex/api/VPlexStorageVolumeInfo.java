@@ -26,6 +26,26 @@ public class VPlexStorageVolumeInfo extends VPlexResourceInfo {
     private List<String> itls = new ArrayList<>();
     private boolean isItlsFormatted = false;
 
+    /**
+     * Default constructor.
+     */
+    public VPlexStorageVolumeInfo() {
+    }
+
+    /**
+     * Copy constructor.
+     * 
+     * @param info The storage volume info to copy.
+     */
+    public VPlexStorageVolumeInfo(VPlexStorageVolumeInfo info) {
+        super(info);
+        clusterId = info.clusterId;
+        systemId = info.systemId;
+        componentType = info.componentType;
+        itls.addAll(info.itls);
+        isItlsFormatted = info.isItlsFormatted;
+    }
+
     /**
      * Getter for the storage system cluster id.
      * 
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.vplex.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VPlexInventorySnapshotTest {
+
+    private static final String LOCAL_DEVICE_PATH = "/clusters/cluster-1/devices/device_1";
+    private static final String DISTRIBUTED_DEVICE_PATH = "/distributed-storage/distributed-devices/dd_1";
+    private static final String LEG_PATH = DISTRIBUTED_DEVICE_PATH + "/distributed-device-components/leg_1";
+    private static final String LOCAL_WWN = "60000970000195701573533030373341";
+    private static final String DISTRIBUTED_WWN = "6006016011A02A00D2AE6A4D5DB4E511";
+
+    @Test
+    public void testGetParentPath() {
+        Assert.assertEquals(LOCAL_DEVICE_PATH,
+                VPlexInventorySnapshot.getParentPath(LOCAL_DEVICE_PATH + "/components/extent_1"));
+        Assert.assertEquals(DISTRIBUTED_DEVICE_PATH, VPlexInventorySnapshot.getParentPath(LEG_PATH));
+        Assert.assertEquals(LEG_PATH, VPlexInventorySnapshot.getParentPath(LEG_PATH + "/components/extent_2"));
+        Assert.assertEquals("/clusters", VPlexInventorySnapshot.getParentPath("/clusters"));
+    }
+
+    @Test
+    public void testGetTopLevelDevicePath() {
+        Assert.assertEquals(LOCAL_DEVICE_PATH, VPlexInventorySnapshot.getTopLevelDevicePath(
+                LOCAL_DEVICE_PATH + "/components/extent_1/components/sv_1"));
+        Assert.assertEquals(LOCAL_DEVICE_PATH, VPlexInventorySnapshot.getTopLevelDevicePath(LOCAL_DEVICE_PATH));
+        Assert.assertEquals(DISTRIBUTED_DEVICE_PATH, VPlexInventorySnapshot.getTopLevelDevicePath(
+                LEG_PATH + "/components/extent_2/components/sv_2"));
+        Assert.assertEquals(DISTRIBUTED_DEVICE_PATH, VPlexInventorySnapshot.getTopLevelDevicePath(DISTRIBUTED_DEVICE_PATH));
+    }
+
+    @Test
+    public void testGetDistributedDevicePath() {
+        Assert.assertEquals(DISTRIBUTED_DEVICE_PATH, VPlexInventorySnapshot.getDistributedDevicePath("dd_1"));
+    }
+
+    @Test
+    public void testLocalDeviceIndexing() {
+        VPlexInventorySnapshot snapshot = createSnapshot();
+
+        List<VPlexDeviceInfo> devices = snapshot.getLocalDevices("device_1");
+        Assert.assertEquals(1, devices.size());
+        Assert.assertEquals(LOCAL_DEVICE_PATH, devices.get(0).getPath());
+        Assert.assertNull(snapshot.getLocalDevices("device_2"));
+
+        List<VPlexDeviceInfo> components = snapshot.getComponents(LOCAL_DEVICE_PATH);
+        Assert.assertEquals(1, components.size());
+        Assert.assertEquals("extent_1", components.get(0).getName());
+
+        List<VPlexStorageVolumeInfo> storageVolumes = snapshot.getStorageVolumesForDevice("device_1",
+                VPlexApiConstants.LOCAL_VIRTUAL_VOLUME, "cluster-1", false);
+        Assert.assertEquals(1, storageVolumes.size());
+        Assert.assertEquals("sv_1", storageVolumes.get(0).getName());
+        Assert.assertNull(snapshot.getStorageVolumesForDevice("device_1",
+                VPlexApiConstants.LOCAL_VIRTUAL_VOLUME, "cluster-2", false));
+        Assert.assertNull(snapshot.getStorageVolumesForDevice("device_1",
+                VPlexApiConstants.LOCAL_VIRTUAL_VOLUME, "cluster-1", true));
+        Assert.assertNull(snapshot.getStorageVolumesForDevice("device_2",
+                VPlexApiConstants.LOCAL_VIRTUAL_VOLUME, null, false));
+    }
+
+    @Test
+    public void testDistributedDeviceIndexing() {
+        VPlexInventorySnapshot snapshot = createSnapshot();
+
+        List<VPlexDeviceInfo> legs = snapshot.getComponents(DISTRIBUTED_DEVICE_PATH);
+        Assert.assertEquals(1, legs.size());
+        Assert.assertEquals(LEG_PATH, legs.get(0).getPath());
+
+        Map<String, String> legToCluster = snapshot.getDistributedDevicePathToClusterMap();
+        Assert.assertEquals(Collections.singletonMap(LEG_PATH, "cluster-2"), legToCluster);
+
+        List<VPlexStorageVolumeInfo> storageVolumes = snapshot.getStorageVolumesForDevice("dd_1",
+                VPlexApiConstants.DISTRIBUTED_VIRTUAL_VOLUME, null, false);
+        Assert.assertEquals(1, storageVolumes.size());
+        Assert.assertEquals("sv_2", storageVolumes.get(0).getName());
+        Assert.assertNull(snapshot.getStorageVolumesForDevice("dd_2",
+                VPlexApiConstants.DISTRIBUTED_VIRTUAL_VOLUME, null, false));
+    }
+
+    @Test
+    public void testLookupsReturnCopies() {
+        VPlexInventorySnapshot snapshot = createSnapshot();
+
+        // the callers fill in the structure of the devices they look up,
+        // which must not show through to the other users of the snapshot
+        VPlexDeviceInfo device = snapshot.getLocalDevices("device_1").get(0);
+        device.setChildDeviceInfo(snapshot.getComponents(LOCAL_DEVICE_PATH));
+        Assert.assertTrue(snapshot.getLocalDevices("device_1").get(0).getChildDeviceInfo().isEmpty());
+
+        VPlexDeviceInfo leg = snapshot.getComponents(DISTRIBUTED_DEVICE_PATH).get(0);
+        leg.setCluster("cluster-1");
+        Assert.assertEquals("cluster-2", snapshot.getComponents(DISTRIBUTED_DEVICE_PATH).get(0).getCluster());
+
+        VPlexStorageVolumeInfo storageVolume = snapshot.getStorageVolumesForDevice("device_1",
+                VPlexApiConstants.LOCAL_VIRTUAL_VOLUME, null, false).get(0);
+        storageVolume.setClusterId("cluster-1");
+        Assert.assertEquals(LOCAL_WWN, storageVolume.getWwn());
+        Assert.assertNull(snapshot.getStorageVolumesForDevice("device_1",
+                VPlexApiConstants.LOCAL_VIRTUAL_VOLUME, null, false).get(0).getClusterId());
+    }
+
+    private static VPlexInventorySnapshot createSnapshot() {
+        VPlexInventorySnapshot snapshot = new VPlexInventorySnapshot();
+        snapshot.addLocalDevices(Arrays.asList(createDevice(LOCAL_DEVICE_PATH)));
+        snapshot.addComponents(Arrays.asList(createDevice(LOCAL_DEVICE_PATH + "/components/extent_1")), false);
+        snapshot.addStorageVolumes(Arrays.asList(
+                createStorageVolume(LOCAL_DEVICE_PATH + "/components/extent_1/components/sv_1",
+                        VPlexApiConstants.STORAGE_VOLUME_TYPE, LOCAL_WWN)), false);
+
+        VPlexDeviceInfo leg = createDevice(LEG_PATH);
+        leg.setCluster("cluster-2");
+        snapshot.addComponents(Arrays.asList(leg), true);
+        snapshot.addStorageVolumes(Arrays.asList(createStorageVolume(LEG_PATH + "/components/extent_2/components/sv_2",
+                VPlexApiConstants.STORAGE_VOLUME_TYPE, DISTRIBUTED_WWN.toLowerCase())), false);
+        return snapshot;
+    }
+
+    private static VPlexDeviceInfo createDevice(String path) {
+        VPlexDeviceInfo device = new VPlexDeviceInfo();
+        device.setPath(path);
+        device.setName(path.substring(path.lastIndexOf(VPlexApiConstants.SLASH) + 1));
+        return device;
+    }
+
+    private static VPlexStorageVolumeInfo createStorageVolume(String path, String componentType, String wwn) {
+        VPlexStorageVolumeInfo storageVolume = new VPlexStorageVolumeInfo();
+        storageVolume.setPath(path);
+        storageVolume.setName(path.substring(path.lastIndexOf(VPlexApiConstants.SLASH) + 1));
+        storageVolume.setComponentType(componentType);
+        storageVolume.setSystemId(VPlexApiConstants.VOLUME_WWN_PREFIX + wwn);
+        return storageVolume;
+    }
+}
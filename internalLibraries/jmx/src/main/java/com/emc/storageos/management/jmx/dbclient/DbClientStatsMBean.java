@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.management.jmx.dbclient;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+
+import com.emc.vipr.model.sys.healthmonitor.DbClientStatsRestRep;
+
+public interface DbClientStatsMBean {
+    public static final String MBEAN_NAME = "com.emc.storageos.db.client.impl:name=DbClientStats";
+
+    /**
+     * Get the operation statistics per column family and operation type, and the sampled call sites.
+     *
+     * @return statistics since the service started or the last reset
+     */
+    @ManagedAttribute(description = "Get DbClient operation statistics per column family and operation type")
+    DbClientStatsRestRep getStats();
+
+    /**
+     * Clear all the operation statistics and sampled call sites.
+     */
+    @ManagedOperation(description = "Reset DbClient operation statistics")
+    void resetStats();
+
+    /**
+     * @return 1 in how many DbClient calls record their call site, 0 if call sites are not sampled
+     */
+    @ManagedAttribute(description = "1 in how many DbClient calls record their call site, 0 to disable")
+    int getCallSiteSampleRate();
+
+    /**
+     * Set 1 in how many DbClient calls record their call site.
+     *
+     * @param rate sample rate, 0 to disable call site sampling
+     */
+    @ManagedAttribute(description = "1 in how many DbClient calls record their call site, 0 to disable")
+    void setCallSiteSampleRate(int rate);
+}
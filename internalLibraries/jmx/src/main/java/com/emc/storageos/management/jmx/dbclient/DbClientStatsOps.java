@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.management.jmx.dbclient;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.management.JMX;
+import javax.management.MBeanServerConnection;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.services.util.PlatformUtils;
+import com.emc.vipr.model.sys.healthmonitor.DbClientStatsRestRep;
+import com.sun.tools.attach.AgentInitializationException;
+import com.sun.tools.attach.AgentLoadException;
+import com.sun.tools.attach.AttachNotSupportedException;
+import com.sun.tools.attach.VirtualMachine;
+
+/**
+ * Reads the DbClient statistics of a service on the local node through JMX.
+ */
+public class DbClientStatsOps implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DbClientStatsOps.class);
+    private static final String CONNECTOR_ADDRESS = "com.sun.management.jmxremote.localConnectorAddress";
+
+    private JMXConnector conn;
+    private DbClientStatsMBean mbean;
+
+    /**
+     * Create a DbClientStatsOps object that connects to specified service on localhost.
+     *
+     * @param svcName The name of the service, which should have pid file as /var/run/svcName.pid
+     */
+    public DbClientStatsOps(String svcName) {
+        try {
+            this.conn = initJMXConnector(svcName);
+            initMbean(this.conn.getMBeanServerConnection());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Create a DbClientStatsOps object using given MBeanServerConnection.
+     *
+     * @param mbsc The MBeanServerConnection caller has made.
+     * @throws MalformedObjectNameException
+     */
+    public DbClientStatsOps(MBeanServerConnection mbsc) throws MalformedObjectNameException {
+        initMbean(mbsc);
+    }
+
+    private void initMbean(MBeanServerConnection mbsc) throws MalformedObjectNameException {
+        this.mbean = JMX.newMBeanProxy(mbsc, new ObjectName(DbClientStatsMBean.MBEAN_NAME), DbClientStatsMBean.class);
+    }
+
+    private JMXConnector initJMXConnector(String svcName) throws IOException, AttachNotSupportedException, AgentLoadException,
+            AgentInitializationException {
+        int pid = PlatformUtils.getServicePid(svcName);
+        log.info("Connecting to JMX of {} service with pid {}", svcName, pid);
+
+        VirtualMachine vm = VirtualMachine.attach(String.valueOf(pid));
+        try {
+            String connectorAddress = vm.getAgentProperties().getProperty(CONNECTOR_ADDRESS);
+            if (connectorAddress == null) {
+                String javaHome = vm.getSystemProperties().getProperty("java.home");
+                String agent = StringUtils.join(new String[] { javaHome, "lib", "management-agent.jar" }, File.separator);
+                vm.loadAgent(agent);
+
+                connectorAddress = vm.getAgentProperties().getProperty(CONNECTOR_ADDRESS);
+            }
+
+            JMXServiceURL serviceURL = new JMXServiceURL(connectorAddress);
+            return JMXConnectorFactory.connect(serviceURL);
+        } finally {
+            vm.detach();
+        }
+    }
+
+    public DbClientStatsRestRep getStats() {
+        return mbean.getStats();
+    }
+
+    public void resetStats() {
+        mbean.resetStats();
+    }
+
+    public int getCallSiteSampleRate() {
+        return mbean.getCallSiteSampleRate();
+    }
+
+    public void setCallSiteSampleRate(int rate) {
+        mbean.setCallSiteSampleRate(rate);
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (this.conn != null) {
+                this.conn.close();
+                this.conn = null;
+            }
+        } catch (IOException e) {
+            log.error("failed to close DbClientStatsOps", e);
+        }
+    }
+}
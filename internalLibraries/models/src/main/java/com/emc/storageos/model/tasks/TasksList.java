@@ -13,6 +13,7 @@ import java.util.List;
 @XmlRootElement(name = "tasks_ids")
 public class TasksList {
     private List<NamedRelatedResourceRep> tasks;
+    private String continuationToken;
 
     public TasksList() {
     }
@@ -21,6 +22,11 @@ public class TasksList {
         this.tasks = tasks;
     }
 
+    public TasksList(List<NamedRelatedResourceRep> tasks, String continuationToken) {
+        this.tasks = tasks;
+        this.continuationToken = continuationToken;
+    }
+
     /**
      * List of projects
      * 
@@ -37,4 +43,18 @@ public class TasksList {
     public void setTasks(List<NamedRelatedResourceRep> tasks) {
         this.tasks = tasks;
     }
+
+    /**
+     * Token to pass back to retrieve the next page of tasks, not set when there are no more tasks
+     * 
+     * @return The continuation token
+     */
+    @XmlElement(name = "continuation_token")
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.vipr.model.sys.healthmonitor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Represents the DbClient operation statistics of a service, per column family and
+ * operation type, and the sampled call sites of the DbClient calls.
+ */
+@XmlRootElement(name = "dbclient_stats")
+public class DbClientStatsRestRep implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String serviceName;
+    private int callSiteSampleRate;
+    private List<OperationStats> operations = new ArrayList<OperationStats>();
+    private List<CallSiteStats> callSites = new ArrayList<CallSiteStats>();
+
+    public DbClientStatsRestRep() {
+    }
+
+    /**
+     * Statistics of one operation type on one column family, latencies are in microseconds
+     */
+    public static class OperationStats implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String keyspace;
+        private String columnFamily;
+        private String operation;
+        private long count;
+        private long errors;
+        private long rows;
+        private long bytes;
+        private long meanLatency;
+        private long p50Latency;
+        private long p90Latency;
+        private long p99Latency;
+        private long maxLatency;
+
+        public OperationStats() {
+        }
+
+        @XmlElement(name = "keyspace")
+        public String getKeyspace() {
+            return keyspace;
+        }
+
+        public void setKeyspace(String keyspace) {
+            this.keyspace = keyspace;
+        }
+
+        @XmlElement(name = "column_family")
+        public String getColumnFamily() {
+            return columnFamily;
+        }
+
+        public void setColumnFamily(String columnFamily) {
+            this.columnFamily = columnFamily;
+        }
+
+        @XmlElement(name = "operation")
+        public String getOperation() {
+            return operation;
+        }
+
+        public void setOperation(String operation) {
+            this.operation = operation;
+        }
+
+        @XmlElement(name = "count")
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+
+        @XmlElement(name = "errors")
+        public long getErrors() {
+            return errors;
+        }
+
+        public void setErrors(long errors) {
+            this.errors = errors;
+        }
+
+        @XmlElement(name = "rows")
+        public long getRows() {
+            return rows;
+        }
+
+        public void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        @XmlElement(name = "bytes")
+        public long getBytes() {
+            return bytes;
+        }
+
+        public void setBytes(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @XmlElement(name = "mean_latency_us")
+        public long getMeanLatency() {
+            return meanLatency;
+        }
+
+        public void setMeanLatency(long meanLatency) {
+            this.meanLatency = meanLatency;
+        }
+
+        @XmlElement(name = "p50_latency_us")
+        public long getP50Latency() {
+            return p50Latency;
+        }
+
+        public void setP50Latency(long p50Latency) {
+            this.p50Latency = p50Latency;
+        }
+
+        @XmlElement(name = "p90_latency_us")
+        public long getP90Latency() {
+            return p90Latency;
+        }
+
+        public void setP90Latency(long p90Latency) {
+            this.p90Latency = p90Latency;
+        }
+
+        @XmlElement(name = "p99_latency_us")
+        public long getP99Latency() {
+            return p99Latency;
+        }
+
+        public void setP99Latency(long p99Latency) {
+            this.p99Latency = p99Latency;
+        }
+
+        @XmlElement(name = "max_latency_us")
+        public long getMaxLatency() {
+            return maxLatency;
+        }
+
+        public void setMaxLatency(long maxLatency) {
+            this.maxLatency = maxLatency;
+        }
+    }
+
+    /**
+     * Number of sampled DbClient calls from one call site, multiplied by the sample rate
+     */
+    public static class CallSiteStats implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String callSite;
+        private long count;
+
+        public CallSiteStats() {
+        }
+
+        public CallSiteStats(String callSite, long count) {
+            this.callSite = callSite;
+            this.count = count;
+        }
+
+        @XmlElement(name = "call_site")
+        public String getCallSite() {
+            return callSite;
+        }
+
+        public void setCallSite(String callSite) {
+            this.callSite = callSite;
+        }
+
+        @XmlElement(name = "count")
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+
+    @XmlElement(name = "service_name")
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public void setServiceName(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    @XmlElement(name = "call_site_sample_rate")
+    public int getCallSiteSampleRate() {
+        return callSiteSampleRate;
+    }
+
+    public void setCallSiteSampleRate(int callSiteSampleRate) {
+        this.callSiteSampleRate = callSiteSampleRate;
+    }
+
+    @XmlElementWrapper(name = "operations")
+    @XmlElement(name = "operation")
+    public List<OperationStats> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<OperationStats> operations) {
+        this.operations = operations;
+    }
+
+    @XmlElementWrapper(name = "call_sites")
+    @XmlElement(name = "call_site")
+    public List<CallSiteStats> getCallSites() {
+        return callSites;
+    }
+
+    public void setCallSites(List<CallSiteStats> callSites) {
+        this.callSites = callSites;
+    }
+}
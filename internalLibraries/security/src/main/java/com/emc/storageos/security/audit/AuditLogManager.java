@@ -18,6 +18,7 @@ import com.emc.storageos.coordinator.client.service.CoordinatorClient;
 import com.emc.storageos.coordinator.client.service.DrUtil;
 import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.impl.DbClientImpl;
+import com.emc.storageos.db.client.impl.TimeSeriesBatchWriter;
 import com.emc.storageos.db.client.model.AuditLog;
 import com.emc.storageos.db.client.model.AuditLogTimeSeries;
 import com.emc.storageos.db.exceptions.DatabaseException;
@@ -49,6 +50,8 @@ public class AuditLogManager {
             Arrays.asList(SiteState.ACTIVE, SiteState.STANDBY_FAILING_OVER, SiteState.STANDBY_SWITCHING_OVER, SiteState.ACTIVE_SWITCHING_OVER);
 
     private static final String SYSLOG_ENALBE="system_syslog_enable";
+    // how long the syslog setting read from the coordinator is used before reading it again
+    private static final long SYSLOG_SETTING_REFRESH_MS = 30000;
     // auditlog version, to compatible with the possible changes in the future.
     public static final String AUDITLOG_VERSION = "1";
 
@@ -63,6 +66,17 @@ public class AuditLogManager {
 
     private DrUtil drUtil;
 
+    // write the auditlogs from a queue in batches instead of on the caller's thread
+    private boolean _asyncRecording = true;
+
+    // syslog setting shared by the managers, which are also created per audited operation
+    private static volatile boolean syslogEnabled;
+    private static volatile long syslogCheckedAt = 0;
+
+    private static class SyslogResources {
+        static final ResourceBundle BUNDLE = ResourceBundle.getBundle("SDSAuditlogRes", new Locale("en", "US"));
+    }
+
     /**
      * Default constructor.
      */
@@ -89,6 +103,19 @@ public class AuditLogManager {
         drUtil = new DrUtil(_coordinator);
     }
 
+    public void setAsyncRecording(boolean asyncRecording) {
+        _asyncRecording = asyncRecording;
+    }
+
+    /**
+     * Insert the auditlogs queued and not yet written into the database
+     */
+    public void stop() {
+        if (_asyncRecording && _dbClient != null) {
+            TimeSeriesBatchWriter.stopWriter(_dbClient, AuditLogTimeSeries.class);
+        }
+    }
+
     /**
      * Called to record auditlogs in the database.
      * 
@@ -102,20 +129,23 @@ public class AuditLogManager {
         
         AuditLog dbAuditLogs[] = new AuditLog[auditlogs.length];
         int i = 0;
+        boolean syslog = isSyslogEnabled();
         for (RecordableAuditLog auditlog : auditlogs) {
             AuditLog dbAuditlog = AuditLogUtils.convertToAuditLog(auditlog);
             dbAuditLogs[i++] = dbAuditlog;
             AuditLog auditSyslog = dbAuditlog;
-            PropertyInfo propInfo = _coordinator.getPropertyInfo();
-            if (propInfo.getProperty(SYSLOG_ENALBE).equalsIgnoreCase("true")) {
-                Locale locale = new Locale("en", "US");
-                ResourceBundle resb = ResourceBundle.getBundle("SDSAuditlogRes", locale);
-                AuditLogUtils.resetDesc(auditSyslog,resb);
+            if (syslog) {
+                AuditLogUtils.resetDesc(auditSyslog, SyslogResources.BUNDLE);
                 logger.info("audit log is " + dbAuditlog.getServiceType() + " " + dbAuditlog.getUserId()
                         + " " + dbAuditlog.getOperationalStatus() + " " + dbAuditlog.getDescription());
             }
         }
-        
+
+        if (_asyncRecording) {
+            TimeSeriesBatchWriter.getWriter(_dbClient, AuditLogTimeSeries.class, AuditLog.class).add(dbAuditLogs);
+            return;
+        }
+
         // Now insert the events into the database.
         try {
             _dbClient.start();
@@ -127,6 +157,20 @@ public class AuditLogManager {
         }
     }
 
+    /**
+     * @return whether the auditlogs are also written to the syslog, as last read from the coordinator
+     *         at most SYSLOG_SETTING_REFRESH_MS ago
+     */
+    private boolean isSyslogEnabled() {
+        long now = System.currentTimeMillis();
+        if (now - syslogCheckedAt > SYSLOG_SETTING_REFRESH_MS) {
+            PropertyInfo propInfo = _coordinator.getPropertyInfo();
+            syslogEnabled = "true".equalsIgnoreCase(propInfo.getProperty(SYSLOG_ENALBE));
+            syslogCheckedAt = now;
+        }
+        return syslogEnabled;
+    }
+
     /**
      * Record auditlog for the completed operations
      * 
@@ -7,14 +7,24 @@ package com.emc.storageos.security.authentication;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.NodeListener;
+import com.emc.storageos.coordinator.common.Configuration;
+import com.emc.storageos.coordinator.common.impl.ConfigurationImpl;
+import com.emc.storageos.coordinator.common.impl.ZkPath;
 import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.URIUtil;
 import com.emc.storageos.db.client.constraint.AlternateIdConstraint;
@@ -23,6 +33,7 @@ import com.emc.storageos.db.client.constraint.URIQueryResultList;
 import com.emc.storageos.db.client.model.BaseToken;
 import com.emc.storageos.db.client.model.ProxyToken;
 import com.emc.storageos.db.client.model.StorageOSUserDAO;
+import com.emc.storageos.db.client.model.StringSet;
 import com.emc.storageos.db.client.model.Token;
 import com.emc.storageos.db.common.VdcUtil;
 import com.emc.storageos.db.exceptions.DatabaseException;
@@ -31,6 +42,7 @@ import com.emc.storageos.security.geo.GeoClientCacheManager;
 import com.emc.storageos.security.geo.InterVDCTokenCacheHelper;
 import com.emc.storageos.security.geo.TokenResponseBuilder;
 import com.emc.storageos.security.geo.TokenResponseBuilder.TokenResponseArtifacts;
+import com.emc.storageos.security.authentication.TokenValidationCache.CachedToken;
 
 import com.emc.storageos.security.validator.Validator;
 import com.emc.storageos.svcs.errorhandling.resources.APIException;
@@ -66,6 +78,27 @@ public class CassandraTokenValidator implements TokenValidator {
     @Autowired
     protected GeoClientCacheManager geoClientCacheMgt;
 
+    protected static final String TOKEN_INVALIDATION_CONFIG_KIND = "tokeninvalidation";
+    protected static final String TOKEN_INVALIDATION_CONFIG_ID = "global";
+    private static final String TOKEN_INVALIDATION_LOCK = "tokeninvalidationlock";
+    private static final String TOKEN_INVALIDATION_SEQUENCE = "sequence";
+    private static final String TOKEN_INVALIDATION_ENTRIES = "entries";
+    private static final String TOKEN_INVALIDATION_SEPARATOR = ",";
+    private static final String TOKEN_PREFIX = "t:";
+    private static final String USER_PREFIX = "u:";
+    // number of recent invalidations kept in the signal, a listener which missed more clears its whole cache
+    private static final int MAX_INVALIDATION_ENTRIES = 100;
+    private static final int DEFAULT_TOKEN_CACHE_SIZE = 10000;
+    private static final int DEFAULT_TOKEN_CACHE_TTL_IN_MINS = 5;
+
+    private volatile int _tokenCacheSize = DEFAULT_TOKEN_CACHE_SIZE;
+    private int _tokenCacheTtlInMins = DEFAULT_TOKEN_CACHE_TTL_IN_MINS;
+    private volatile TokenValidationCache _tokenCache;
+    private TokenInvalidationListener _invalidationListener;
+    // the cache is only used while invalidations from other nodes are received
+    private volatile boolean _invalidationListening = false;
+    private long _lastInvalidationSequence = -1;
+
     /**
      * Setter for coordinator client. Needed for testing. Otherwise
      * gets autowired.
@@ -92,6 +125,24 @@ public class CassandraTokenValidator implements TokenValidator {
         interVDCTokenCacheHelper = helper;
     }
 
+    /**
+     * Set the maximum number of validated tokens cached by this validator, 0 disables the cache
+     * 
+     * @param size
+     */
+    public void setTokenCacheSize(int size) {
+        _tokenCacheSize = size;
+    }
+
+    /**
+     * Set the maximum time a validated token is cached before it is read from the db again
+     * 
+     * @param mins
+     */
+    public void setTokenCacheTtlInMins(int mins) {
+        _tokenCacheTtlInMins = mins;
+    }
+
     /**
      * get current time in minutes
      * 
@@ -197,6 +248,7 @@ public class CassandraTokenValidator implements TokenValidator {
     protected void deleteTokenInternal(Token token) {
         URI userId = token.getUserId();
         _dbClient.removeObject(token);
+        applyInvalidations(Collections.singletonList(TOKEN_PREFIX + token.getId()));
         List<Token> tokens = getTokensForUserId(userId);
         List<ProxyToken> pTokens = getProxyTokensForUserId(userId);
         if (CollectionUtils.isEmpty(tokens) && CollectionUtils.isEmpty(pTokens)) {
@@ -260,7 +312,43 @@ public class CassandraTokenValidator implements TokenValidator {
             return getForeignToken(tw, tokenIn);
         }
 
-        return resolveUser(fetchTokenLocal(tw));
+        CachedToken cached = fetchTokenCached(tw);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.getUser() == null) {
+            cached.setUser(resolveUser(cached.getToken()));
+        }
+        // the cached record is shared by all the requests carrying the token
+        return copyUser(cached.getUser());
+    }
+
+    /**
+     * Copies a user record, so that callers can not change the record held in the validated token cache
+     * 
+     * @param user
+     * @return the copy, null if user is null
+     */
+    private static StorageOSUserDAO copyUser(StorageOSUserDAO user) {
+        if (user == null) {
+            return null;
+        }
+        StorageOSUserDAO copy = new StorageOSUserDAO();
+        copy.setId(user.getId());
+        copy.setLabel(user.getLabel());
+        copy.setInactive(user.getInactive());
+        copy.setCreationTime(user.getCreationTime());
+        copy.setUserName(user.getUserName());
+        copy.setTenantId(user.getTenantId());
+        copy.setDistinguishedName(user.getDistinguishedName());
+        copy.setIsLocal(user.getIsLocal());
+        if (user.getGroups() != null) {
+            copy.setGroups(new StringSet(user.getGroups()));
+        }
+        if (user.getAttributes() != null) {
+            copy.setAttributes(new StringSet(user.getAttributes()));
+        }
+        return copy;
     }
 
     /**
@@ -334,7 +422,8 @@ public class CassandraTokenValidator implements TokenValidator {
     }
 
     /**
-     * Fetches a token without consideration for cache expiration
+     * Fetches a token without consideration for cache expiration.
+     * The token is always read from the db, callers update and persist it.
      */
     @Override
     public BaseToken verifyToken(String tokenIn) {
@@ -346,6 +435,278 @@ public class CassandraTokenValidator implements TokenValidator {
         return this.fetchTokenLocal(tw);
     }
 
+    /**
+     * Retrieves a local token and its user from the validated token cache, or from the db
+     * when it is not cached, caching it if it is valid.
+     * 
+     * @param tw
+     * @return the token and its user, null if the token is not valid
+     */
+    private CachedToken fetchTokenCached(TokenOnWire tw) {
+        TokenValidationCache cache = getTokenCache();
+        URI tkId = tw.getTokenId();
+        if (cache != null) {
+            CachedToken cached = cache.get(tkId);
+            if (cached != null && cached.getToken() instanceof ProxyToken == tw.isProxyToken()) {
+                return cached;
+            }
+        }
+        BaseToken token = fetchTokenLocal(tw);
+        if (token == null) {
+            return null;
+        }
+        if (cache == null) {
+            return new CachedToken(token, null, null, 0);
+        }
+        StorageOSUserDAO user = resolveUser(token);
+        String userName = user != null ? user.getUserName() : null;
+        if (token instanceof ProxyToken) {
+            userName = ((ProxyToken) token).getUserName();
+        }
+        CachedToken cached = new CachedToken(token, user, userName, getCacheExpirationTime(token));
+        if (user != null && cached.getExpirationTimeInMillis() > System.currentTimeMillis()) {
+            cache.put(tkId, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Computes how long a validated token can be served from the cache: until the configured ttl,
+     * and no later than the next time its last access time must be updated, or it expires, or it
+     * must be validated again.
+     * 
+     * @param token
+     * @return expiration time in milliseconds
+     */
+    private long getCacheExpirationTime(BaseToken token) {
+        long timeNow = getCurrentTimeInMins();
+        long expiry = timeNow + _tokenCacheTtlInMins;
+        if (token instanceof Token) {
+            Token tokenObj = (Token) token;
+            expiry = Math.min(expiry, tokenObj.getLastAccessTime() + _maxLifeValuesHolder.getTokenIdleTimeGraceInMins());
+            if (tokenObj.getExpirationTime() != null) {
+                expiry = Math.min(expiry, tokenObj.getExpirationTime());
+            }
+        } else if (token instanceof ProxyToken) {
+            Long lastValidatedTime = ((ProxyToken) token).getLastValidatedTime();
+            if (lastValidatedTime != null) {
+                expiry = Math.min(expiry, lastValidatedTime + _maxLifeValuesHolder.getMaxTokenLifeTimeInMins());
+            }
+        }
+        return expiry * MIN_TO_MSECS;
+    }
+
+    /**
+     * Returns the validated token cache, registering the listener for invalidations from other
+     * nodes on first use. Returns null if the cache is disabled or invalidations can not be received.
+     */
+    private TokenValidationCache getTokenCache() {
+        if (_tokenCacheSize <= 0 || _coordinator == null) {
+            return null;
+        }
+        if (_tokenCache == null) {
+            synchronized (this) {
+                if (_tokenCache == null) {
+                    try {
+                        _invalidationListener = new TokenInvalidationListener();
+                        _coordinator.addNodeListener(_invalidationListener);
+                        _invalidationListening = true;
+                    } catch (Exception e) {
+                        _log.warn("Failed to listen for token invalidations, validated tokens will not be cached", e);
+                        _tokenCacheSize = 0;
+                        return null;
+                    }
+                    _tokenCache = new TokenValidationCache(_tokenCacheSize);
+                }
+            }
+        }
+        return _invalidationListening ? _tokenCache : null;
+    }
+
+    /**
+     * Removes tokens from the validated token cache of every node.
+     * 
+     * @param tokenIds
+     */
+    public void invalidateCachedTokens(Collection<URI> tokenIds) {
+        if (tokenIds.isEmpty()) {
+            return;
+        }
+        List<String> entries = new ArrayList<String>(tokenIds.size());
+        for (URI tokenId : tokenIds) {
+            entries.add(TOKEN_PREFIX + tokenId);
+        }
+        signalInvalidations(entries);
+    }
+
+    /**
+     * Removes all the tokens of a user from the validated token cache of every node.
+     * 
+     * @param userName
+     */
+    public void invalidateCachedUserTokens(String userName) {
+        signalInvalidations(Collections.singletonList(USER_PREFIX + userName));
+    }
+
+    /**
+     * Applies the invalidations locally, and appends them to the coordinator signal listened to by all nodes
+     */
+    private void signalInvalidations(List<String> entries) {
+        applyInvalidations(entries);
+        if (_coordinator == null || _tokenCacheSize <= 0) {
+            return;
+        }
+        InterProcessLock lock = null;
+        try {
+            lock = _coordinator.getLock(TOKEN_INVALIDATION_LOCK);
+            lock.acquire();
+            Configuration config = _coordinator.queryConfiguration(TOKEN_INVALIDATION_CONFIG_KIND,
+                    TOKEN_INVALIDATION_CONFIG_ID);
+            ConfigurationImpl configImpl = null;
+            long sequence = 0;
+            LinkedList<String> recent = new LinkedList<String>();
+            if (config == null) {
+                configImpl = new ConfigurationImpl();
+                configImpl.setKind(TOKEN_INVALIDATION_CONFIG_KIND);
+                configImpl.setId(TOKEN_INVALIDATION_CONFIG_ID);
+            } else {
+                configImpl = (ConfigurationImpl) config;
+                sequence = Long.parseLong(configImpl.getConfig(TOKEN_INVALIDATION_SEQUENCE));
+                recent.addAll(splitEntries(configImpl.getConfig(TOKEN_INVALIDATION_ENTRIES)));
+            }
+            for (String entry : entries) {
+                sequence++;
+                recent.add(entry);
+            }
+            while (recent.size() > MAX_INVALIDATION_ENTRIES) {
+                recent.removeFirst();
+            }
+            configImpl.setConfig(TOKEN_INVALIDATION_SEQUENCE, String.valueOf(sequence));
+            configImpl.setConfig(TOKEN_INVALIDATION_ENTRIES, StringUtils.join(recent, TOKEN_INVALIDATION_SEPARATOR));
+            _coordinator.persistServiceConfiguration(configImpl);
+        } catch (Exception e) {
+            _log.error("Failed to signal token invalidation to other nodes", e);
+        } finally {
+            if (lock != null) {
+                try {
+                    lock.release();
+                } catch (Exception e) {
+                    _log.error("Failed to release the token invalidation lock", e);
+                }
+            }
+        }
+    }
+
+    private void applyInvalidations(Collection<String> entries) {
+        TokenValidationCache cache = _tokenCache;
+        if (cache == null) {
+            return;
+        }
+        for (String entry : entries) {
+            if (entry.startsWith(TOKEN_PREFIX)) {
+                cache.invalidate(URI.create(entry.substring(TOKEN_PREFIX.length())));
+            } else if (entry.startsWith(USER_PREFIX)) {
+                cache.invalidateUser(entry.substring(USER_PREFIX.length()));
+            }
+        }
+    }
+
+    private static List<String> splitEntries(String value) {
+        if (value == null || value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(value.split(TOKEN_INVALIDATION_SEPARATOR));
+    }
+
+    /**
+     * Reads the invalidations signaled by other nodes. The signal holds the sequence number of the
+     * last invalidation and the most recent invalidations; if some were missed, the whole cache is cleared.
+     */
+    private synchronized void readInvalidations() {
+        TokenValidationCache cache = _tokenCache;
+        if (cache == null) {
+            return;
+        }
+        try {
+            Configuration config = _coordinator.queryConfiguration(TOKEN_INVALIDATION_CONFIG_KIND,
+                    TOKEN_INVALIDATION_CONFIG_ID);
+            if (config == null) {
+                return;
+            }
+            long sequence = Long.parseLong(config.getConfig(TOKEN_INVALIDATION_SEQUENCE));
+            List<String> recent = splitEntries(config.getConfig(TOKEN_INVALIDATION_ENTRIES));
+            if (_lastInvalidationSequence < 0 || sequence - _lastInvalidationSequence > recent.size()) {
+                cache.clear();
+            } else if (sequence > _lastInvalidationSequence) {
+                int newEntries = (int) (sequence - _lastInvalidationSequence);
+                applyInvalidations(recent.subList(recent.size() - newEntries, recent.size()));
+            }
+            _lastInvalidationSequence = sequence;
+        } catch (Exception e) {
+            _log.error("Failed to read token invalidations, clearing the token cache", e);
+            cache.clear();
+        }
+    }
+
+    /**
+     * Listens to the token invalidation signal. While the coordinator connection is down
+     * invalidations may be missed, so the cache is cleared and bypassed until it is back.
+     */
+    private class TokenInvalidationListener implements NodeListener {
+        @Override
+        public String getPath() {
+            return String.format("%1$s/%2$s/%3$s", ZkPath.CONFIG, TOKEN_INVALIDATION_CONFIG_KIND,
+                    TOKEN_INVALIDATION_CONFIG_ID);
+        }
+
+        @Override
+        public void nodeChanged() {
+            readInvalidations();
+        }
+
+        @Override
+        public void connectionStateChanged(State state) {
+            _log.info("Token invalidation listener connection state changed to {}", state);
+            _invalidationListening = state == State.CONNECTED;
+            TokenValidationCache cache = _tokenCache;
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * @return number of token validations served from the cache
+     */
+    public long getTokenCacheHits() {
+        TokenValidationCache cache = _tokenCache;
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    /**
+     * @return number of token validations which read the token from the db
+     */
+    public long getTokenCacheMisses() {
+        TokenValidationCache cache = _tokenCache;
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    /**
+     * @return number of tokens dropped from the cache, because it was full or they expired
+     */
+    public long getTokenCacheEvictions() {
+        TokenValidationCache cache = _tokenCache;
+        return cache == null ? 0 : cache.getEvictions() + cache.getExpirations();
+    }
+
+    /**
+     * @return number of cached tokens removed by logout, deletion or a connection loss
+     */
+    public long getTokenCacheInvalidations() {
+        TokenValidationCache cache = _tokenCache;
+        return cache == null ? 0 : cache.getInvalidations();
+    }
+
     /**
      * Retrieves a token and checks expiration
      * 
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.security.authentication;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.emc.storageos.db.client.model.BaseToken;
+import com.emc.storageos.db.client.model.StorageOSUserDAO;
+
+/**
+ * Bounded LRU of validated local tokens and their user records, keyed by token id.
+ * Every entry carries its own expiration time, which the validator caps at the time
+ * the token would need to be checked against the database again.
+ */
+public class TokenValidationCache {
+    private final int maxSize;
+    private final LinkedHashMap<URI, CachedToken> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * A validated token with the user record it resolves to
+     */
+    public static class CachedToken {
+        private final BaseToken token;
+        private volatile StorageOSUserDAO user;
+        private final String userName;
+        private final long expirationTimeInMillis;
+
+        public CachedToken(BaseToken token, StorageOSUserDAO user, String userName, long expirationTimeInMillis) {
+            this.token = token;
+            this.user = user;
+            this.userName = userName;
+            this.expirationTimeInMillis = expirationTimeInMillis;
+        }
+
+        public BaseToken getToken() {
+            return token;
+        }
+
+        public StorageOSUserDAO getUser() {
+            return user;
+        }
+
+        public void setUser(StorageOSUserDAO user) {
+            this.user = user;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public long getExpirationTimeInMillis() {
+            return expirationTimeInMillis;
+        }
+    }
+
+    public TokenValidationCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<URI, CachedToken>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<URI, CachedToken> eldest) {
+                if (size() > TokenValidationCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the cached token, or null if it is not cached or expired
+     *
+     * @param tokenId
+     * @return the cached token
+     */
+    public synchronized CachedToken get(URI tokenId) {
+        CachedToken entry = entries.get(tokenId);
+        if (entry != null && entry.getExpirationTimeInMillis() <= System.currentTimeMillis()) {
+            entries.remove(tokenId);
+            expirations.incrementAndGet();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    public synchronized void put(URI tokenId, CachedToken entry) {
+        entries.put(tokenId, entry);
+    }
+
+    public synchronized void invalidate(URI tokenId) {
+        if (entries.remove(tokenId) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove all the tokens of the given user
+     *
+     * @param userName
+     */
+    public synchronized void invalidateUser(String userName) {
+        Iterator<CachedToken> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (userName.equalsIgnoreCase(it.next().getUserName())) {
+                it.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entries dropped to keep the cache within its maximum size
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+}
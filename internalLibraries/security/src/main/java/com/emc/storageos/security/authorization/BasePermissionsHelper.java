@@ -641,6 +641,7 @@ public class BasePermissionsHelper {
         }
         if (ret == null) {
             ret = _dbClient.queryObject(clazz, id);
+            QueriedObjectCache.recordDbRead();
             if (ret != null && usingCache) {
                 QueriedObjectCache.setObject(ret);
             }
@@ -648,6 +649,46 @@ public class BasePermissionsHelper {
         return ret;
     }
 
+    /**
+     * Get the objects with the given ids with a single query, bypassing the cache
+     * 
+     * @param ids the object ids
+     * @param clazz the object type
+     * @return the active and inactive objects found, in no particular order
+     */
+    public <T extends DataObject> List<T> getObjectsById(Collection<URI> ids, Class<T> clazz) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> ret = _dbClient.queryObject(clazz, ids);
+        QueriedObjectCache.recordDbRead();
+        return ret;
+    }
+
+    /**
+     * Loads the objects with the given ids that are not cached yet with a single
+     * query and caches them, so that the role and acl checks which follow for
+     * these objects do not read them one at a time. Does nothing when not using
+     * the cache.
+     * 
+     * @param ids the object ids
+     * @param clazz the object type
+     */
+    public <T extends DataObject> void prefetchObjects(Collection<URI> ids, Class<T> clazz) {
+        if (!_usingCache) {
+            return;
+        }
+        List<URI> missingIds = new ArrayList<URI>();
+        for (URI id : ids) {
+            if (QueriedObjectCache.getObject(id, clazz) == null) {
+                missingIds.add(id);
+            }
+        }
+        for (T object : getObjectsById(missingIds, clazz)) {
+            QueriedObjectCache.setObject(object);
+        }
+    }
+
     /**
      * Same as queryObjectById(URI, Class). Takes NamedURI instead.
      */
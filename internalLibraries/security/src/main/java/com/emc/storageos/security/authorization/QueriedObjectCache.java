@@ -26,6 +26,16 @@ public class QueriedObjectCache {
         }
     };
 
+    /**
+     * ThreadLocal - number of DB reads made by the permission checks of this thread.
+     * Never reset, callers report the difference between two readings.
+     */
+    private static final ThreadLocal<int[]> DB_READ_COUNT = new ThreadLocal<int[]>() {
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
     /**
      * Returns thread local map instance
      * 
@@ -79,4 +89,20 @@ public class QueriedObjectCache {
     public static void clearCache() {
         get().clear();
     }
+
+    /**
+     * Records a DB read made by a permission check
+     */
+    public static void recordDbRead() {
+        DB_READ_COUNT.get()[0]++;
+    }
+
+    /**
+     * Returns the number of DB reads made by the permission checks of this thread
+     * 
+     * @return the DB read count
+     */
+    public static int getDbReadCount() {
+        return DB_READ_COUNT.get()[0];
+    }
 }
@@ -20,7 +20,8 @@ import com.emc.vipr.model.sys.logging.LogRequest;
 
 /**
  * This class is responsible to read one line from each logstream and sort them based on timestamp.
- * This is done on per host basis.
+ * This is done on per host basis. The head of each stream is kept in a priority queue so that
+ * picking the oldest message is O(log k) for k streams.
  * 
  */
 public abstract class AbstractLogStreamMerger {
@@ -34,6 +35,31 @@ public abstract class AbstractLogStreamMerger {
     private AtomicLong logCounter = new AtomicLong(0);
     private int finishedCount = 0; // finished streams
     private long prevLogTime; // defaults to 0
+    private PriorityQueue<StreamHead> heads; // current message of each unfinished stream
+    private int lastIndex = -1; // stream the last returned message was taken from
+
+    // oldest first; on equal time the stream with the lower index wins, as in a linear scan
+    private static final Comparator<StreamHead> HEAD_COMPARATOR = new Comparator<StreamHead>() {
+        @Override
+        public int compare(StreamHead h1, StreamHead h2) {
+            long t1 = h1.message.getTime();
+            long t2 = h2.message.getTime();
+            if (t1 != t2) {
+                return t1 < t2 ? -1 : 1;
+            }
+            return h1.index < h2.index ? -1 : (h1.index == h2.index ? 0 : 1);
+        }
+    };
+
+    private static class StreamHead {
+        private final LogMessage message;
+        private final int index;
+
+        StreamHead(LogMessage message, int index) {
+            this.message = message;
+            this.index = index;
+        }
+    }
 
     // Logger reference.
     private static final Logger logger = LoggerFactory.getLogger(AbstractLogStreamMerger.class);
@@ -45,45 +71,54 @@ public abstract class AbstractLogStreamMerger {
      * @throws org.apache.commons.compress.compressors.CompressorException
      */
     public LogMessage readNextMergedLogMessage() throws IOException, CompressorException {
-        LogMessage oldestResult = null;
-        LogMessage oldest = null;
-        int index = -1;
+        if (heads == null) {
+            // first call, read the head of every stream
+            heads = new PriorityQueue<>(Math.max(1, logStreamList.length), HEAD_COMPARATOR);
+            for (int i = 0; i < logStreamList.length; i++) {
+                readHead(i);
+            }
+        } else if (lastIndex >= 0) {
+            // refill the stream the previous message was taken from
+            readHead(lastIndex);
+            lastIndex = -1;
+        }
         if (finishedCount == logStreamList.length) {
             setFinished(true);
             return null;
         }
-        // poll the streams to get the oldest log message
-        for (int i = 0; i < logStreamList.length; i++) {
-            if (finishedList.contains(i)) {
-                continue;
-            }
-            if (logHeads[i] == null) {
-                logHeads[i] = logStreamList[i].readNextLogMessage();
-                if (logHeads[i] == null) { // finished
-                    addFinishedStream(i);
-                    finishedCount++;
-                    logger.debug("merger counter={}", logCounter);
-                    continue;
-                }
-            }
-            // logs[i] should not be null now
-            if (oldest == null || logHeads[i].getTime() < oldest.getTime()) {
-                oldest = logHeads[i];
-                index = i;
-            }
-        }
-        if (oldest != null) {
-            logHeads[index] = null;
-            logCounter.addAndGet(1);
-            if (LogUtil.permitCurrentLog(request.getMaxCount(), logCounter.get(),
-                    oldest.getTime(), prevLogTime)) {
-                oldestResult = oldest;
-            }
-            prevLogTime = oldest.getTime();
+        LogMessage oldestResult = null;
+        StreamHead head = heads.poll();
+        LogMessage oldest = head.message;
+        lastIndex = head.index;
+        logHeads[lastIndex] = null;
+        logCounter.addAndGet(1);
+        if (LogUtil.permitCurrentLog(request.getMaxCount(), logCounter.get(),
+                oldest.getTime(), prevLogTime)) {
+            oldestResult = oldest;
         }
+        prevLogTime = oldest.getTime();
         return oldestResult;
     }
 
+    /**
+     * Read the next message of the given stream into the heap, or mark the stream as finished
+     */
+    private void readHead(int i) {
+        if (finishedList.contains(i)) {
+            return;
+        }
+        if (logHeads[i] == null) {
+            logHeads[i] = logStreamList[i].readNextLogMessage();
+        }
+        if (logHeads[i] == null) { // finished
+            addFinishedStream(i);
+            finishedCount++;
+            logger.debug("merger counter={}", logCounter);
+            return;
+        }
+        heads.add(new StreamHead(logHeads[i], i));
+    }
+
     protected void addFinishedStream(int i) {
         finishedList.add(i);
     }
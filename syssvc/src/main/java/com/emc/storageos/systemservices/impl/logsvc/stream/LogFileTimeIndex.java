@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.systemservices.impl.logsvc.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.compress.compressors.CompressorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.systemservices.impl.logsvc.LogMessage;
+import com.emc.storageos.systemservices.impl.logsvc.parse.LogParser;
+import com.emc.storageos.systemservices.impl.logsvc.util.LogUtil;
+import com.emc.vipr.model.sys.logging.LogRequest;
+
+/**
+ * Sidecar index of a log file which records the byte offset (in the decompressed stream)
+ * of the first log message in every time interval, so that a reader can skip straight to
+ * the requested start time instead of parsing the whole file.
+ *
+ * The index is stored outside the log directories globs, keyed by the absolute path of the
+ * log file. It is validated against the first line of the file so that rotation is detected,
+ * and extended incrementally while a plain log file is still growing.
+ */
+public class LogFileTimeIndex {
+    private static final Logger logger = LoggerFactory.getLogger(LogFileTimeIndex.class);
+
+    public static final String DEFAULT_INDEX_DIR = "/opt/storageos/logs/.timeindex";
+    public static final long DEFAULT_INTERVAL_MILLIS = 60 * 1000L;
+
+    private static final int MAGIC = 0x4c544958;
+    private static final int VERSION = 1;
+    private static final String INDEX_SUFFIX = ".tidx";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static volatile String indexDir = DEFAULT_INDEX_DIR;
+    private static volatile long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+
+    // unfiltered request used to parse the time of every log message while indexing
+    private static final LogRequest INDEX_REQUEST = new LogRequest.Builder().build();
+
+    private final String filePath;
+    private long fileLength;
+    private int firstLineHash;
+    private long indexedBytes;
+    private int indexedLines;
+    private long interval;
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Position of the first log message of a time interval.
+     */
+    public static class Entry {
+        private final long time;
+        private final long offset;
+        private final int lineNumber;
+
+        Entry(long time, long offset, int lineNumber) {
+            this.time = time;
+            this.offset = offset;
+            this.lineNumber = lineNumber;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return byte offset of the first line of the log message
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return number of lines before the log message
+         */
+        public int getLineNumber() {
+            return lineNumber;
+        }
+    }
+
+    private LogFileTimeIndex(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Set the directory the indexes are stored in, null disables indexing.
+     */
+    public static void setIndexDir(String dir) {
+        indexDir = dir;
+    }
+
+    public static String getIndexDir() {
+        return indexDir;
+    }
+
+    /**
+     * Set the time span covered by each index entry.
+     */
+    public static void setIntervalMillis(long millis) {
+        intervalMillis = millis;
+    }
+
+    public static long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Load the index of the given log file, building or extending it if it is missing or stale.
+     *
+     * @param path log file path
+     * @param parsers parsers used to find the time of each log message
+     * @return the index, or null if indexing is disabled or the index could not be built
+     */
+    public static LogFileTimeIndex getIndex(String path, List<LogParser> parsers) {
+        File dir = getIndexDirectory();
+        if (dir == null) {
+            return null;
+        }
+        File logFile = new File(path);
+        File indexFile = new File(dir, getIndexFileName(logFile));
+        try {
+            Integer hash = readFirstLineHash(path);
+            if (hash == null) { // empty file
+                return null;
+            }
+            LogFileTimeIndex index = load(path, indexFile);
+            if (index != null && !index.isValid(hash, logFile.length())) {
+                logger.debug("Discarding stale time index of {}", path);
+                index = null;
+            }
+            if (index == null) {
+                index = new LogFileTimeIndex(path);
+                index.firstLineHash = hash;
+                index.interval = intervalMillis;
+                purgeStaleIndexes(dir);
+            } else if (index.fileLength == logFile.length()) {
+                return index;
+            }
+            long start = System.currentTimeMillis();
+            long indexedBefore = index.indexedBytes;
+            index.fileLength = logFile.length();
+            index.scan(parsers);
+            index.save(indexFile);
+            logger.debug("Indexed {} bytes of {} in {} ms", index.indexedBytes - indexedBefore, path,
+                    System.currentTimeMillis() - start);
+            return index;
+        } catch (IOException | CompressorException e) {
+            logger.warn("Failed to build time index of {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Find the position to start reading from for the given start time. The returned entry
+     * is at least one interval earlier than the start time, so that log messages which are
+     * slightly out of order are not lost.
+     *
+     * @param startTime requested start time
+     * @return entry to seek to, or null if the file must be read from the beginning
+     */
+    public Entry findSeekEntry(long startTime) {
+        long threshold = startTime - interval;
+        Entry result = null;
+        for (Entry entry : entries) {
+            if (entry.getTime() >= threshold) {
+                break;
+            }
+            result = entry;
+        }
+        return result;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Skip the given number of bytes of the stream, reading through it when the stream
+     * does not support seeking.
+     */
+    public static void skipFully(InputStream in, long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Unexpected end of stream while skipping");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    static InputStream openStream(String path) throws IOException, CompressorException {
+        if (LogUtil.logFileZipped(path)) {
+            return LogUtil.getInputStreamForZippedFile(path);
+        }
+        return new FileInputStream(path);
+    }
+
+    private boolean isValid(int hash, long length) {
+        if (hash != firstLineHash || interval != intervalMillis) {
+            return false;
+        }
+        // compressed files are never appended to, plain files only grow until rotated
+        return LogUtil.logFileZipped(filePath) ? length == fileLength : length >= fileLength;
+    }
+
+    /**
+     * Scan the log file from the end of the indexed part, adding an entry for the first log
+     * message of every interval.
+     */
+    private void scan(List<LogParser> parsers) throws IOException, CompressorException {
+        long lastEntryTime = entries.isEmpty() ? Long.MIN_VALUE : entries.get(entries.size() - 1).getTime();
+        LogParser parser = null;
+        InputStream in = openStream(filePath);
+        try {
+            skipFully(in, indexedBytes);
+            LineScanner scanner = new LineScanner(in);
+            while (true) {
+                long lineOffset = indexedBytes;
+                String line = scanner.readLine();
+                if (line == null) {
+                    break;
+                }
+                indexedBytes += scanner.getLastLineBytes();
+                indexedLines++;
+
+                LogMessage message = null;
+                if (parser != null) {
+                    message = parser.parseLine(line, INDEX_REQUEST);
+                } else {
+                    for (LogParser candidate : parsers) {
+                        message = candidate.parseLine(line, INDEX_REQUEST);
+                        if (!message.isContinuation()) {
+                            parser = candidate;
+                            break;
+                        }
+                    }
+                }
+                if (message == null || message.isContinuation() || message.isRejected()
+                        || message.isRejectedLast()) {
+                    continue;
+                }
+                long time = message.getTime();
+                if (lastEntryTime == Long.MIN_VALUE || time >= lastEntryTime + interval) {
+                    entries.add(new Entry(time, lineOffset, indexedLines - 1));
+                    lastEntryTime = time;
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private void save(File indexFile) throws IOException {
+        File tmp = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+        boolean saved = false;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(filePath);
+                out.writeLong(fileLength);
+                out.writeInt(firstLineHash);
+                out.writeLong(interval);
+                out.writeLong(indexedBytes);
+                out.writeInt(indexedLines);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeLong(entry.getTime());
+                    out.writeLong(entry.getOffset());
+                    out.writeInt(entry.getLineNumber());
+                }
+            } finally {
+                out.close();
+            }
+            saved = tmp.renameTo(indexFile);
+        } finally {
+            if (!saved && !tmp.delete()) {
+                logger.debug("Failed to delete {}", tmp);
+            }
+        }
+    }
+
+    private static LogFileTimeIndex load(String path, File indexFile) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || !path.equals(in.readUTF())) {
+                    return null;
+                }
+                LogFileTimeIndex index = new LogFileTimeIndex(path);
+                index.fileLength = in.readLong();
+                index.firstLineHash = in.readInt();
+                index.interval = in.readLong();
+                index.indexedBytes = in.readLong();
+                index.indexedLines = in.readInt();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    index.entries.add(new Entry(in.readLong(), in.readLong(), in.readInt()));
+                }
+                return index;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to load time index {}", indexFile, e);
+            return null;
+        }
+    }
+
+    private static Integer readFirstLineHash(String path) throws IOException, CompressorException {
+        InputStream in = openStream(path);
+        try {
+            String line = new LineScanner(in).readLine();
+            return line == null ? null : line.hashCode();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static File getIndexDirectory() {
+        String dirName = indexDir;
+        if (dirName == null) {
+            return null;
+        }
+        File dir = new File(dirName);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            logger.debug("Time index directory {} is not available", dirName);
+            return null;
+        }
+        return dir.canWrite() ? dir : null;
+    }
+
+    private static String getIndexFileName(File logFile) {
+        return logFile.getAbsolutePath().replace(File.separatorChar, '_') + INDEX_SUFFIX;
+    }
+
+    /**
+     * Remove the indexes of log files which no longer exist, e.g. rotated out.
+     */
+    private static void purgeStaleIndexes(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.getName().endsWith(INDEX_SUFFIX)) {
+                continue;
+            }
+            String path = readIndexedPath(file);
+            if (path != null && !new File(path).exists() && !file.delete()) {
+                logger.debug("Failed to delete stale time index {}", file);
+            }
+        }
+    }
+
+    private static String readIndexedPath(File indexFile) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return null;
+                }
+                return in.readUTF();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Splits a byte stream into complete lines, keeping track of the number of bytes consumed.
+     * A trailing line without terminator is not returned since it may still be being written.
+     */
+    private static class LineScanner {
+        private final InputStream in;
+        private final byte[] buffer = new byte[READ_BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        private long lastLineBytes;
+
+        LineScanner(InputStream in) {
+            this.in = in;
+        }
+
+        String readLine() throws IOException {
+            line.reset();
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit < 0) {
+                        limit = 0;
+                        return null;
+                    }
+                }
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                line.write(buffer, start, position - start);
+                if (position < limit) {
+                    position++; // consume the terminator
+                    lastLineBytes = line.size() + 1;
+                    byte[] bytes = line.toByteArray();
+                    int length = bytes.length;
+                    if (length > 0 && bytes[length - 1] == '\r') {
+                        length--;
+                    }
+                    return new String(bytes, 0, length);
+                }
+            }
+        }
+
+        long getLastLineBytes() {
+            return lastLineBytes;
+        }
+    }
+}
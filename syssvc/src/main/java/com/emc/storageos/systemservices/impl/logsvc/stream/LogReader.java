@@ -5,8 +5,9 @@
 package com.emc.storageos.systemservices.impl.logsvc.stream;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -60,11 +61,16 @@ public class LogReader implements LogStream {
 
     public LogReader(String path, LogRequest req, LogStatusInfo status, String service) throws IOException,
             CompressorException {
-        if (LogUtil.logFileZipped(path)) {
-            reader = LogUtil.getBufferedReaderForBZ2File(path);
-        } else {
-            reader = new BufferedReader(new FileReader(path));
+        InputStream in = LogFileTimeIndex.openStream(path);
+        if (req.getStartTime() != null) {
+            try {
+                seekToStartTime(in, path, req.getStartTime().getTime());
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
         }
+        reader = new BufferedReader(new InputStreamReader(in));
         request = req;
         if (req.getRegex() != null) {
             pattern = Pattern.compile(req.getRegex(), Pattern.DOTALL | Pattern.MULTILINE);
@@ -74,6 +80,22 @@ public class LogReader implements LogStream {
         this.service = service;
     }
 
+    /**
+     * Skip the part of the file which is earlier than the start time, using the time index of the file
+     */
+    private void seekToStartTime(InputStream in, String path, long startTime) throws IOException {
+        LogFileTimeIndex index = LogFileTimeIndex.getIndex(path, parserTable);
+        if (index == null) {
+            return;
+        }
+        LogFileTimeIndex.Entry entry = index.findSeekEntry(startTime);
+        if (entry != null) {
+            logger.debug("Skipping {} bytes of {}", entry.getOffset(), path);
+            LogFileTimeIndex.skipFully(in, entry.getOffset());
+            fileLineNumber = entry.getLineNumber();
+        }
+    }
+
     /**
      * Read one log message from log file
      * 
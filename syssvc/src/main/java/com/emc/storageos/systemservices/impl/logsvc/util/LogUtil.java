@@ -198,17 +198,30 @@ public class LogUtil {
      */
     public static BufferedReader getBufferedReaderForBZ2File(String fileIn)
             throws FileNotFoundException, CompressorException {
-        CompressorStreamFactory factory = new CompressorStreamFactory();
-
-        FileInputStream fin = new FileInputStream(fileIn);
-        BufferedInputStream bis = new BufferedInputStream(fin);
-        CompressorInputStream input = factory.createCompressorInputStream(bis);
+        CompressorInputStream input = getInputStreamForZippedFile(fileIn);
 
         BufferedReader br = new BufferedReader(new InputStreamReader(input));
 
         return br;
     }
 
+    /**
+     * Opens the decompressed byte stream of a zip(bz2/xz/gzip) file.
+     * 
+     * @param fileIn
+     * @return
+     * @throws FileNotFoundException
+     * @throws CompressorException
+     */
+    public static CompressorInputStream getInputStreamForZippedFile(String fileIn)
+            throws FileNotFoundException, CompressorException {
+        CompressorStreamFactory factory = new CompressorStreamFactory();
+
+        FileInputStream fin = new FileInputStream(fileIn);
+        BufferedInputStream bis = new BufferedInputStream(fin);
+        return factory.createCompressorInputStream(bis);
+    }
+
     /**
      * Check for a compressed file extension - for now, .bz2, .xz and .gz
      * 
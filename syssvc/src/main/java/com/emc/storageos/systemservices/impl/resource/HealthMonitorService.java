@@ -10,6 +10,7 @@ import javax.ws.rs.core.MediaType;
 
 import com.emc.storageos.coordinator.client.service.CoordinatorClient.LicenseType;
 import com.emc.storageos.coordinator.client.service.impl.DualInetAddress;
+import com.emc.storageos.management.jmx.dbclient.DbClientStatsOps;
 import com.emc.storageos.model.vpool.ManagedResourcesCapacity;
 import com.emc.storageos.model.vpool.ManagedResourcesCapacity.ManagedResourceCapacity;
 import com.emc.storageos.security.authorization.CheckPermission;
@@ -25,6 +26,7 @@ import com.emc.storageos.systemservices.impl.resource.util.NodeInfo;
 import com.emc.storageos.systemservices.impl.upgrade.CoordinatorClientExt;
 import com.emc.storageos.systemservices.impl.resource.util.NodeDataCollector.Action;
 import com.emc.vipr.model.sys.healthmonitor.DataDiskStats;
+import com.emc.vipr.model.sys.healthmonitor.DbClientStatsRestRep;
 import com.emc.vipr.model.sys.healthmonitor.DiagRequestParams;
 import com.emc.vipr.model.sys.healthmonitor.DiagnosticsRestRep;
 import com.emc.vipr.model.sys.healthmonitor.DiagTest;
@@ -326,6 +328,35 @@ public class HealthMonitorService extends BaseLogSvcResource {
         return new StorageStats(controllerStats);
     }
 
+    /**
+     * Get the DbClient operation statistics of a service on this node: count, errors, rows, bytes
+     * and latency percentiles per column family and operation type, and the sampled call sites
+     * when call site sampling is turned on for the service.
+     * 
+     * @brief Show DbClient statistics of a service
+     * @param service name of the service, e.g. controllersvc
+     * @prereq none
+     * @return DbClient stats of the service
+     */
+    @GET
+    @Path("/dbclient-stats")
+    @CheckPermission(roles = { Role.SYSTEM_ADMIN, Role.SYSTEM_MONITOR })
+    @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+    public DbClientStatsRestRep getDbClientStats(@QueryParam("service") String service) {
+        if (service == null || service.isEmpty()) {
+            throw APIException.badRequests.parameterIsNullOrEmpty("service");
+        }
+        _log.info("Getting dbclient stats of {}", service);
+        try (DbClientStatsOps ops = new DbClientStatsOps(service)) {
+            DbClientStatsRestRep stats = ops.getStats();
+            stats.setServiceName(service);
+            return stats;
+        } catch (Exception e) {
+            _log.error("Internal error occurred while getting dbclient stats of {}", service, e);
+            throw APIException.internalServerErrors.getObjectFromError("dbclient stats", service, e);
+        }
+    }
+
     /**
      * Returns IP address of the node
      * 
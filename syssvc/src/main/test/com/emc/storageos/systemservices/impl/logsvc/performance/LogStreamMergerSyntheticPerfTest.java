@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.systemservices.impl.logsvc.performance;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.emc.storageos.systemservices.impl.logsvc.LogConstants;
+import com.emc.storageos.systemservices.impl.logsvc.LogMessage;
+import com.emc.storageos.systemservices.impl.logsvc.LogSvcPropertiesLoader;
+import com.emc.storageos.systemservices.impl.logsvc.merger.LogStreamMerger;
+import com.emc.storageos.systemservices.impl.logsvc.stream.LogFileTimeIndex;
+import com.emc.vipr.model.sys.logging.LogRequest;
+
+/**
+ * Merges synthetic logs of many services, comparing the results and the time of reading
+ * a narrow time window with and without the per-file time index.
+ */
+public class LogStreamMergerSyntheticPerfTest {
+    private static final int SERVICE_COUNT = 20;
+    private static final int LINES_PER_SERVICE = 50000;
+    private static final long START_TIME = 1400000000000L;
+    private static final long SPAN_MILLIS = 4 * 60 * 60 * 1000L;
+
+    private static File dataDir;
+    private static File indexDir;
+    private static String savedIndexDir;
+    private static LogSvcPropertiesLoader propertiesLoader;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        dataDir = new File(System.getProperty("java.io.tmpdir"), "logmerger-" + System.nanoTime());
+        indexDir = new File(dataDir, ".timeindex");
+        Assert.assertTrue(dataDir.mkdirs());
+        Random random = new Random(42);
+        SimpleDateFormat format = new SimpleDateFormat(LogConstants.DATE_FORMAT);
+        for (int s = 0; s < SERVICE_COUNT; s++) {
+            writeServiceLog(new File(dataDir, "svc" + s + ".log"), random, format);
+        }
+        final String glob = dataDir.getAbsolutePath() + "/*.log";
+        propertiesLoader = new LogSvcPropertiesLoader() {
+            public List<String> getLogFilePaths() {
+                return Arrays.asList(glob);
+            }
+
+            public List<String> getExcludedLogFilePaths() {
+                return new ArrayList<>();
+            }
+        };
+        savedIndexDir = LogFileTimeIndex.getIndexDir();
+    }
+
+    @AfterClass
+    public static void cleanup() throws IOException {
+        LogFileTimeIndex.setIndexDir(savedIndexDir);
+        FileUtils.deleteDirectory(dataDir);
+    }
+
+    @Test
+    public void testMergeOrder() throws Exception {
+        LogFileTimeIndex.setIndexDir(null);
+        List<String> logs = merge(new LogRequest.Builder().build());
+        Assert.assertEquals(SERVICE_COUNT * LINES_PER_SERVICE, logs.size());
+        long prev = 0;
+        for (String log : logs) {
+            long time = Long.parseLong(log.substring(0, log.indexOf(' ')));
+            Assert.assertTrue(time >= prev);
+            prev = time;
+        }
+    }
+
+    @Test
+    public void testTimeWindowWithIndex() throws Exception {
+        Date start = new Date(START_TIME + SPAN_MILLIS * 3 / 4);
+        Date end = new Date(START_TIME + SPAN_MILLIS * 3 / 4 + 5 * 60 * 1000L);
+        LogRequest req = new LogRequest.Builder().startTime(start).endTime(end).build();
+
+        LogFileTimeIndex.setIndexDir(null);
+        long begin = System.nanoTime();
+        List<String> expected = merge(req);
+        long fullScanNanos = System.nanoTime() - begin;
+
+        LogFileTimeIndex.setIndexDir(indexDir.getAbsolutePath());
+        begin = System.nanoTime();
+        List<String> firstIndexed = merge(req);
+        long buildNanos = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        List<String> indexed = merge(req);
+        long seekNanos = System.nanoTime() - begin;
+
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, firstIndexed);
+        Assert.assertEquals(expected, indexed);
+        System.out.println("Merged " + expected.size() + " logs of " + SERVICE_COUNT + " services: full scan "
+                + fullScanNanos / 1000000 + " ms, building index " + buildNanos / 1000000
+                + " ms, with index " + seekNanos / 1000000 + " ms");
+    }
+
+    private List<String> merge(LogRequest req) throws Exception {
+        LogStreamMerger merger = new LogStreamMerger(req, propertiesLoader);
+        List<String> logs = new ArrayList<>();
+        while (!merger.isFinished()) {
+            LogMessage log = merger.readNextMergedLogMessage();
+            if (log != null) {
+                logs.add(log.getTime() + " " + new String(log.getLogContent()));
+            }
+        }
+        return logs;
+    }
+
+    private static void writeServiceLog(File file, Random random, SimpleDateFormat format) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        try {
+            long step = SPAN_MILLIS / LINES_PER_SERVICE;
+            long time = START_TIME;
+            for (int i = 0; i < LINES_PER_SERVICE; i++) {
+                time += random.nextInt((int) step * 2);
+                writer.write(format.format(new Date(time)) + " [pool-" + random.nextInt(10)
+                        + "]  INFO  SyntheticService.java (line " + i + ") message " + i + " of "
+                        + file.getName());
+                writer.newLine();
+                if (i % 10 == 0) {
+                    writer.write("\tat com.emc.storageos.Synthetic.run(Synthetic.java:" + i + ")");
+                    writer.newLine();
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
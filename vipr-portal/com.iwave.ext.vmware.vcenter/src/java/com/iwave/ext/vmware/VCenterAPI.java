@@ -7,6 +7,7 @@ package com.iwave.ext.vmware;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.rmi.RemoteException;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.List;
 
@@ -26,6 +27,7 @@ import com.vmware.vim25.mo.HostSystem;
 import com.vmware.vim25.mo.InventoryNavigator;
 import com.vmware.vim25.mo.ManagedEntity;
 import com.vmware.vim25.mo.ManagedObject;
+import com.vmware.vim25.mo.PropertyCollector;
 import com.vmware.vim25.mo.ServiceInstance;
 import com.vmware.vim25.mo.StorageResourceManager;
 import com.vmware.vim25.mo.VirtualMachine;
@@ -136,6 +138,33 @@ public class VCenterAPI {
         return aboutInfo;
     }
 
+    /**
+     * Gets the current time of the vCenter. This is a call to the server, which also keeps the
+     * session from expiring while it is idle.
+     * 
+     * @return the current time of the vCenter.
+     */
+    public Calendar getCurrentTime() {
+        checkConnected();
+        try {
+            return service.currentTime();
+        } catch (RuntimeFault e) {
+            throw new VMWareException(e);
+        } catch (RemoteException e) {
+            throw new VMWareException(e);
+        }
+    }
+
+    /**
+     * Gets the property collector of the session.
+     * 
+     * @return the property collector.
+     */
+    public PropertyCollector getPropertyCollector() {
+        checkConnected();
+        return service.getPropertyCollector();
+    }
+
     /**
      * Gets the root folder.
      * 
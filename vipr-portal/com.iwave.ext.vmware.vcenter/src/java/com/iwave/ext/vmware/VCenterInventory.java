@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.iwave.ext.vmware;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.vmware.vim25.DynamicProperty;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectContent;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyChangeOp;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.mo.util.PropertyCollectorUtil;
+
+/**
+ * A snapshot of the datacenters, clusters and host systems of a vCenter, holding the properties collected by
+ * {@link VCenterInventoryCollector} for each object, so the discovery can walk the inventory without a round trip
+ * to the vCenter for every property. The snapshot can be brought up to date with the updates of a property filter.
+ *
+ * @see VCenterInventoryCollector
+ */
+public class VCenterInventory {
+    public static final String FOLDER = "Folder";
+    public static final String DATACENTER = "Datacenter";
+    public static final String COMPUTE_RESOURCE = "ComputeResource";
+    public static final String CLUSTER_COMPUTE_RESOURCE = "ClusterComputeResource";
+    public static final String HOST_SYSTEM = "HostSystem";
+
+    public static final String NAME = "name";
+    public static final String PARENT = "parent";
+    public static final String HOSTS = "host";
+    public static final String HOST_UUID = "hardware.systemInfo.uuid";
+    public static final String HOST_BIOS_VERSION = "hardware.biosInfo.biosVersion";
+    public static final String HOST_PRODUCT_VERSION = "config.product.version";
+    public static final String HOST_CONNECTION_STATE = "runtime.connectionState";
+    public static final String HOST_VIRTUAL_NICS = "config.network.vnic";
+    public static final String HOST_BUS_ADAPTERS = "config.storageDevice.hostBusAdapter";
+
+    /** The properties collected for the folders, datacenters and compute resources. */
+    static final String[] ENTITY_PROPERTIES = { NAME, PARENT };
+    /** The properties collected for the compute resources and clusters. */
+    static final String[] COMPUTE_RESOURCE_PROPERTIES = { NAME, PARENT, HOSTS };
+    /** The properties collected for the host systems. */
+    static final String[] HOST_PROPERTIES = { NAME, PARENT, HOST_UUID, HOST_BIOS_VERSION, HOST_PRODUCT_VERSION,
+            HOST_CONNECTION_STATE, HOST_VIRTUAL_NICS, HOST_BUS_ADAPTERS };
+
+    /**
+     * The collected properties of one managed object.
+     */
+    public static class Entity {
+        private final ManagedObjectReference mor;
+        private final Map<String, Object> properties = new HashMap<String, Object>();
+
+        Entity(ManagedObjectReference mor) {
+            this.mor = mor;
+        }
+
+        public ManagedObjectReference getMOR() {
+            return mor;
+        }
+
+        /**
+         * @return the managed object id, such as host-42.
+         */
+        public String getId() {
+            return mor.getVal();
+        }
+
+        public String getType() {
+            return mor.getType();
+        }
+
+        public String getName() {
+            return (String) properties.get(NAME);
+        }
+
+        public ManagedObjectReference getParent() {
+            return (ManagedObjectReference) properties.get(PARENT);
+        }
+
+        /**
+         * Gets a collected property.
+         *
+         * @param path the property path.
+         * @return the property value, or null if it is not set.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getProperty(String path) {
+            return (T) properties.get(path);
+        }
+
+        /**
+         * Gets a collected array property as a list.
+         *
+         * @param path the property path.
+         * @return the property values, or an empty list if it is not set.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> List<T> getListProperty(String path) {
+            Object value = properties.get(path);
+            if (value instanceof Object[]) {
+                return Lists.newArrayList((T[]) value);
+            }
+            return Lists.newArrayList();
+        }
+
+        void setProperty(String path, Object value) {
+            if (value == null) {
+                properties.remove(path);
+            }
+            else {
+                properties.put(path, PropertyCollectorUtil.convertProperty(value));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return getType() + ":" + getId() + " (" + getName() + ")";
+        }
+    }
+
+    private final Map<String, Entity> entities = new LinkedHashMap<String, Entity>();
+    private String version;
+
+    /**
+     * Gets the version of the property filter updates the inventory is up to date with.
+     *
+     * @return the version, or null if the inventory was not collected through a property filter.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    /**
+     * Adds the objects returned by a property retrieval to the inventory.
+     *
+     * @param objects the retrieved objects.
+     */
+    public void addObjects(ObjectContent[] objects) {
+        if (objects == null) {
+            return;
+        }
+        for (ObjectContent object : objects) {
+            Entity entity = getOrCreateEntity(object.getObj());
+            if (object.getPropSet() != null) {
+                for (DynamicProperty property : object.getPropSet()) {
+                    entity.setProperty(property.getName(), property.getVal());
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the updates of a property filter to the inventory.
+     *
+     * @param updateSet the updates, may be null when nothing changed.
+     * @return the number of objects which entered, changed or left the inventory.
+     */
+    public int applyUpdates(UpdateSet updateSet) {
+        if (updateSet == null) {
+            return 0;
+        }
+        int changed = 0;
+        if (updateSet.getFilterSet() != null) {
+            for (PropertyFilterUpdate filterUpdate : updateSet.getFilterSet()) {
+                if (filterUpdate.getObjectSet() == null) {
+                    continue;
+                }
+                for (ObjectUpdate update : filterUpdate.getObjectSet()) {
+                    applyUpdate(update);
+                    changed++;
+                }
+            }
+        }
+        version = updateSet.getVersion();
+        return changed;
+    }
+
+    private void applyUpdate(ObjectUpdate update) {
+        if (update.getKind() == ObjectUpdateKind.leave) {
+            entities.remove(update.getObj().getVal());
+            return;
+        }
+        Entity entity = getOrCreateEntity(update.getObj());
+        if (update.getChangeSet() != null) {
+            for (PropertyChange change : update.getChangeSet()) {
+                if (change.getOp() == PropertyChangeOp.remove || change.getOp() == PropertyChangeOp.indirectRemove) {
+                    entity.setProperty(change.getName(), null);
+                }
+                else {
+                    entity.setProperty(change.getName(), change.getVal());
+                }
+            }
+        }
+    }
+
+    private Entity getOrCreateEntity(ManagedObjectReference mor) {
+        Entity entity = entities.get(mor.getVal());
+        if (entity == null) {
+            entity = new Entity(mor);
+            entities.put(mor.getVal(), entity);
+        }
+        return entity;
+    }
+
+    /**
+     * Looks up an object of the inventory.
+     *
+     * @param mor the object reference.
+     * @return the object, or null if it is not in the inventory.
+     */
+    public Entity getEntity(ManagedObjectReference mor) {
+        return (mor != null) ? entities.get(mor.getVal()) : null;
+    }
+
+    /**
+     * Lists the objects of a type, clusters being listed as compute resources as well.
+     *
+     * @param type the managed object type.
+     * @return the objects of the type.
+     */
+    public List<Entity> getEntities(String type) {
+        List<Entity> result = Lists.newArrayList();
+        for (Entity entity : entities.values()) {
+            if (type.equals(entity.getType())
+                    || (COMPUTE_RESOURCE.equals(type) && CLUSTER_COMPUTE_RESOURCE.equals(entity.getType()))) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    public List<Entity> getDatacenters() {
+        return getEntities(DATACENTER);
+    }
+
+    /**
+     * Finds the datacenter an object belongs to, walking up its parents.
+     *
+     * @param entity the object.
+     * @return the datacenter, or null if the object is not in a datacenter.
+     */
+    public Entity getDatacenter(Entity entity) {
+        Entity parent = getEntity(entity.getParent());
+        // the depth is bounded in case the parents of a partially updated inventory form a cycle
+        for (int depth = 0; parent != null && depth < entities.size(); depth++) {
+            if (DATACENTER.equals(parent.getType())) {
+                return parent;
+            }
+            parent = getEntity(parent.getParent());
+        }
+        return null;
+    }
+
+    /**
+     * Lists the clusters of a datacenter.
+     *
+     * @param datacenter the datacenter.
+     * @return the clusters.
+     */
+    public List<Entity> getClusters(Entity datacenter) {
+        return getEntities(CLUSTER_COMPUTE_RESOURCE, datacenter);
+    }
+
+    /**
+     * Lists the host systems of a datacenter.
+     *
+     * @param datacenter the datacenter.
+     * @return the host systems.
+     */
+    public List<Entity> getHostSystems(Entity datacenter) {
+        return getEntities(HOST_SYSTEM, datacenter);
+    }
+
+    private List<Entity> getEntities(String type, Entity datacenter) {
+        List<Entity> result = Lists.newArrayList();
+        for (Entity entity : getEntities(type)) {
+            Entity entityDatacenter = getDatacenter(entity);
+            if (entityDatacenter != null && entityDatacenter.getId().equals(datacenter.getId())) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists the host systems of a cluster.
+     *
+     * @param cluster the cluster.
+     * @return the host systems which are in the inventory.
+     */
+    public List<Entity> getClusterHosts(Entity cluster) {
+        List<Entity> hosts = Lists.newArrayList();
+        for (ManagedObjectReference hostMor : cluster.<ManagedObjectReference> getListProperty(HOSTS)) {
+            Entity host = getEntity(hostMor);
+            if (host != null) {
+                hosts.add(host);
+            }
+        }
+        return hosts;
+    }
+
+    /**
+     * Gets the cluster of a host system.
+     *
+     * @param host the host system.
+     * @return the cluster, or null if the host is not in a cluster.
+     */
+    public Entity getCluster(Entity host) {
+        Entity parent = getEntity(host.getParent());
+        if (parent != null && CLUSTER_COMPUTE_RESOURCE.equals(parent.getType())) {
+            return parent;
+        }
+        return null;
+    }
+
+    public List<Entity> getAllEntities() {
+        return Collections.unmodifiableList(Lists.newArrayList(entities.values()));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.iwave.ext.vmware;
+
+import java.rmi.RemoteException;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectSpec;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.PropertySpec;
+import com.vmware.vim25.RetrieveOptions;
+import com.vmware.vim25.RetrieveResult;
+import com.vmware.vim25.SelectionSpec;
+import com.vmware.vim25.TraversalSpec;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.WaitOptions;
+import com.vmware.vim25.mo.PropertyCollector;
+import com.vmware.vim25.mo.PropertyFilter;
+
+/**
+ * Collects the {@link VCenterInventory} of a vCenter with the PropertyCollector, in a few paged calls instead of
+ * several calls per managed object. The whole inventory is fetched with {@link #retrieveInventory()}, or with
+ * {@link #startInventory()} which also creates a property filter, so later calls to
+ * {@link #refreshInventory(VCenterInventory)} on the same session only fetch the objects which changed since.
+ */
+public class VCenterInventoryCollector {
+    /** The default maximum number of objects returned by one call. */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private static final String FOLDER_TRAVERSAL = "folderTraversal";
+    private static final String DATACENTER_TRAVERSAL = "datacenterTraversal";
+    private static final String COMPUTE_RESOURCE_TRAVERSAL = "computeResourceTraversal";
+
+    private final PropertyCollector propertyCollector;
+    private final ManagedObjectReference rootFolder;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private PropertyFilter filter;
+
+    /**
+     * Creates a collector for the vCenter the API is logged in to.
+     *
+     * @param api the vCenter API.
+     */
+    public VCenterInventoryCollector(VCenterAPI api) {
+        this(api.getPropertyCollector(), api.getRootFolder().getMOR());
+    }
+
+    /**
+     * Creates a collector for the inventory under the given root folder.
+     *
+     * @param propertyCollector the property collector of the session.
+     * @param rootFolder the root folder.
+     */
+    public VCenterInventoryCollector(PropertyCollector propertyCollector, ManagedObjectReference rootFolder) {
+        this.propertyCollector = propertyCollector;
+        this.rootFolder = rootFolder;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Creates the spec selecting the folders, datacenters, compute resources and host systems under the root
+     * folder, with the properties of {@link VCenterInventory}.
+     *
+     * @param rootFolder the root folder.
+     * @return the property filter spec.
+     */
+    public static PropertyFilterSpec createInventorySpec(ManagedObjectReference rootFolder) {
+        // Folder.childEntity -> folders, datacenters, compute resources
+        TraversalSpec folderTraversal = new TraversalSpec();
+        folderTraversal.setName(FOLDER_TRAVERSAL);
+        folderTraversal.setType(VCenterInventory.FOLDER);
+        folderTraversal.setPath("childEntity");
+        folderTraversal.setSkip(false);
+        folderTraversal.setSelectSet(new SelectionSpec[] { selectionSpec(FOLDER_TRAVERSAL),
+                selectionSpec(DATACENTER_TRAVERSAL), selectionSpec(COMPUTE_RESOURCE_TRAVERSAL) });
+
+        // Datacenter.hostFolder -> folders
+        TraversalSpec datacenterTraversal = new TraversalSpec();
+        datacenterTraversal.setName(DATACENTER_TRAVERSAL);
+        datacenterTraversal.setType(VCenterInventory.DATACENTER);
+        datacenterTraversal.setPath("hostFolder");
+        datacenterTraversal.setSkip(false);
+        datacenterTraversal.setSelectSet(new SelectionSpec[] { selectionSpec(FOLDER_TRAVERSAL) });
+
+        // ComputeResource.host -> host systems
+        TraversalSpec computeResourceTraversal = new TraversalSpec();
+        computeResourceTraversal.setName(COMPUTE_RESOURCE_TRAVERSAL);
+        computeResourceTraversal.setType(VCenterInventory.COMPUTE_RESOURCE);
+        computeResourceTraversal.setPath("host");
+        computeResourceTraversal.setSkip(false);
+
+        ObjectSpec objectSpec = new ObjectSpec();
+        objectSpec.setObj(rootFolder);
+        objectSpec.setSkip(false);
+        objectSpec.setSelectSet(new SelectionSpec[] { folderTraversal, datacenterTraversal, computeResourceTraversal });
+
+        PropertyFilterSpec spec = new PropertyFilterSpec();
+        spec.setObjectSet(new ObjectSpec[] { objectSpec });
+        spec.setPropSet(new PropertySpec[] {
+                propertySpec(VCenterInventory.FOLDER, VCenterInventory.ENTITY_PROPERTIES),
+                propertySpec(VCenterInventory.DATACENTER, VCenterInventory.ENTITY_PROPERTIES),
+                propertySpec(VCenterInventory.COMPUTE_RESOURCE, VCenterInventory.COMPUTE_RESOURCE_PROPERTIES),
+                propertySpec(VCenterInventory.HOST_SYSTEM, VCenterInventory.HOST_PROPERTIES) });
+        return spec;
+    }
+
+    private static SelectionSpec selectionSpec(String name) {
+        SelectionSpec spec = new SelectionSpec();
+        spec.setName(name);
+        return spec;
+    }
+
+    private static PropertySpec propertySpec(String type, String[] paths) {
+        PropertySpec spec = new PropertySpec();
+        spec.setType(type);
+        spec.setAll(false);
+        spec.setPathSet(paths);
+        return spec;
+    }
+
+    /**
+     * Retrieves the whole inventory with RetrievePropertiesEx, a page of objects at a time.
+     *
+     * @return the inventory.
+     *
+     * @throws VMWareException if an error occurs.
+     */
+    public VCenterInventory retrieveInventory() throws VMWareException {
+        VCenterInventory inventory = new VCenterInventory();
+        RetrieveOptions options = new RetrieveOptions();
+        options.setMaxObjects(pageSize);
+        try {
+            RetrieveResult result = propertyCollector.retrievePropertiesEx(
+                    new PropertyFilterSpec[] { createInventorySpec(rootFolder) }, options);
+            while (result != null) {
+                inventory.addObjects(result.getObjects());
+                if (StringUtils.isEmpty(result.getToken())) {
+                    break;
+                }
+                result = propertyCollector.continueRetrievePropertiesEx(result.getToken());
+            }
+        } catch (RemoteException e) {
+            throw new VMWareException(e);
+        }
+        return inventory;
+    }
+
+    /**
+     * Creates a property filter for the inventory and collects the whole inventory from its first updates. The
+     * filter stays on the session until {@link #close()} is called.
+     *
+     * @return the inventory, with the version of the filter updates.
+     *
+     * @throws VMWareException if an error occurs.
+     */
+    public VCenterInventory startInventory() throws VMWareException {
+        close();
+        try {
+            filter = propertyCollector.createFilter(createInventorySpec(rootFolder), false);
+        } catch (RemoteException e) {
+            throw new VMWareException(e);
+        }
+        VCenterInventory inventory = new VCenterInventory();
+        refreshInventory(inventory);
+        return inventory;
+    }
+
+    /**
+     * Applies the changes made since the version of the inventory, without waiting for new changes. The inventory
+     * must have been collected by {@link #startInventory()} on this collector.
+     *
+     * @param inventory the inventory.
+     * @return the number of objects which entered, changed or left the inventory.
+     *
+     * @throws VMWareException if an error occurs, or if the filter was not created.
+     */
+    public int refreshInventory(VCenterInventory inventory) throws VMWareException {
+        if (filter == null) {
+            throw new VMWareException("No property filter for the inventory");
+        }
+        WaitOptions options = new WaitOptions();
+        options.setMaxWaitSeconds(0);
+        options.setMaxObjectUpdates(pageSize);
+        int changed = 0;
+        try {
+            UpdateSet updateSet = propertyCollector.waitForUpdatesEx(StringUtils.defaultString(inventory.getVersion()),
+                    options);
+            while (updateSet != null) {
+                changed += inventory.applyUpdates(updateSet);
+                if (!Boolean.TRUE.equals(updateSet.getTruncated())) {
+                    break;
+                }
+                updateSet = propertyCollector.waitForUpdatesEx(inventory.getVersion(), options);
+            }
+        } catch (RemoteException e) {
+            throw new VMWareException(e);
+        }
+        return changed;
+    }
+
+    /**
+     * Destroys the property filter, if any.
+     */
+    public void close() {
+        if (filter != null) {
+            try {
+                filter.destroyPropertyFilter();
+            } catch (Exception e) {
+                // the filter goes away with the session anyway
+            } finally {
+                filter = null;
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ package com.emc.vipr.client.core;
 import static com.emc.vipr.client.core.util.ResourceUtils.defaultList;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +42,7 @@ public class TasksResources extends AbstractBulkResources<TaskResourceRep> {
     public static final String START_TIME_PARAM = "startTime";
     public static final String END_TIME_PARAM = "endTime";
     public static final String STATE_PARAM = "state";
+    public static final String CONTINUATION_TOKEN_PARAM = "continuation_token";
 
     public static enum State {
         PENDING("pending"),
@@ -104,20 +106,33 @@ public class TasksResources extends AbstractBulkResources<TaskResourceRep> {
      * @param endTime End time in milliseconds (Null if not required)
      */
     public List<NamedRelatedResourceRep> listByTenant(URI tenantId, int maxCount, Long startTime, Long endTime) {
-        UriBuilder builder = client.uriBuilder(baseUrl);
-        addTenant(builder, tenantId);
-        builder.queryParam(MAX_COUNT_PARAM, maxCount);
+        boolean fetchAll = maxCount < 0;
+        List<NamedRelatedResourceRep> tasks = new ArrayList<>();
+        // An empty token asks for the first page
+        String continuationToken = "";
+        do {
+            // The server returns a limited number of tasks per page, follow the token until all are listed
+            int pageCount = fetchAll ? FETCH_ALL : maxCount - tasks.size();
+            UriBuilder builder = client.uriBuilder(baseUrl);
+            addTenant(builder, tenantId);
+            builder.queryParam(MAX_COUNT_PARAM, pageCount);
 
-        if (startTime != null) {
-            builder.queryParam(START_TIME_PARAM, startTime);
-        }
+            if (startTime != null) {
+                builder.queryParam(START_TIME_PARAM, startTime);
+            }
 
-        if (endTime != null) {
-            builder.queryParam(END_TIME_PARAM, endTime);
-        }
+            if (endTime != null) {
+                builder.queryParam(END_TIME_PARAM, endTime);
+            }
 
-        URI uri = builder.build();
-        return client.resource(uri).get(TasksList.class).getTasks();
+            builder.queryParam(CONTINUATION_TOKEN_PARAM, continuationToken);
+
+            TasksList page = getTasksList(builder.build());
+            tasks.addAll(page.getTasks());
+            continuationToken = page.getContinuationToken();
+        } while (continuationToken != null && (fetchAll || tasks.size() < maxCount));
+
+        return tasks;
     }
 
     public List<TaskResourceRep> findByResource(URI resourceId) {
@@ -210,6 +225,13 @@ public class TasksResources extends AbstractBulkResources<TaskResourceRep> {
         return defaultList(tasks.getTaskList());
     }
 
+    /**
+     * Gets one page of task references for the specified URI
+     */
+    protected TasksList getTasksList(URI uri) {
+        return client.resource(uri).get(TasksList.class);
+    }
+
     private void addTenant(UriBuilder builder, URI tenantId) {
         if (tenantId != null) {
             builder.queryParam(TENANT_PARAM, tenantId);
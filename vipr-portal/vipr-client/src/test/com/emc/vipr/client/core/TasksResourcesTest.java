@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.vipr.client.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.emc.storageos.model.NamedRelatedResourceRep;
+import com.emc.storageos.model.tasks.TasksList;
+import com.emc.vipr.client.ClientConfig;
+import com.emc.vipr.client.impl.RestClient;
+
+public class TasksResourcesTest {
+    private static final int SERVER_PAGE_LIMIT = 10000;
+
+    /**
+     * Answers task listings the way the task service does: when paged, at most SERVER_PAGE_LIMIT tasks per request and a
+     * continuation token when there are more
+     */
+    private static class PagedTasksResources extends TasksResources {
+        private final int taskCount;
+        private final List<Map<String, String>> requests = new ArrayList<>();
+
+        PagedTasksResources(int taskCount) {
+            super(new RestClient(URI.create("https://localhost:4443"), new ClientConfig()));
+            this.taskCount = taskCount;
+        }
+
+        @Override
+        protected TasksList getTasksList(URI uri) {
+            Map<String, String> params = new HashMap<>();
+            for (String param : uri.getQuery().split("&")) {
+                String[] pair = param.split("=", 2);
+                params.put(pair[0], pair[1]);
+            }
+            requests.add(params);
+
+            // tasks are only paged when a continuation token is passed, empty for the first page
+            String token = params.get(CONTINUATION_TOKEN_PARAM);
+            int start = (token == null || token.isEmpty()) ? 0 : Integer.parseInt(token);
+            int maxCount = Integer.parseInt(params.get(MAX_COUNT_PARAM));
+            int pageSize = (maxCount < 0 || maxCount > SERVER_PAGE_LIMIT) ? SERVER_PAGE_LIMIT : maxCount;
+            if (token == null) {
+                pageSize = (maxCount < 0) ? taskCount : maxCount;
+            }
+            int end = Math.min(start + pageSize, taskCount);
+
+            List<NamedRelatedResourceRep> tasks = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                tasks.add(new NamedRelatedResourceRep(URI.create("urn:storageos:Task:" + i + ":vdc1"), null, "task" + i));
+            }
+            return new TasksList(tasks, (token != null && end < taskCount) ? String.valueOf(end) : null);
+        }
+    }
+
+    @Test
+    public void testListAllFollowsContinuationTokens() {
+        PagedTasksResources resources = new PagedTasksResources(25000);
+
+        List<NamedRelatedResourceRep> tasks = resources.listAll();
+
+        assertEquals(25000, tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals("task" + i, tasks.get(i).getName());
+        }
+        assertEquals(3, resources.requests.size());
+        assertEquals("", resources.requests.get(0).get(TasksResources.CONTINUATION_TOKEN_PARAM));
+        assertEquals("10000", resources.requests.get(1).get(TasksResources.CONTINUATION_TOKEN_PARAM));
+        assertEquals("20000", resources.requests.get(2).get(TasksResources.CONTINUATION_TOKEN_PARAM));
+    }
+
+    @Test
+    public void testListByTenantStopsAtMaxCount() {
+        PagedTasksResources resources = new PagedTasksResources(25000);
+
+        List<NamedRelatedResourceRep> tasks = resources.listByTenant(TasksResources.SYSTEM_TENANT, 12000);
+
+        assertEquals(12000, tasks.size());
+        assertEquals(2, resources.requests.size());
+        assertEquals("12000", resources.requests.get(0).get(TasksResources.MAX_COUNT_PARAM));
+        assertEquals("2000", resources.requests.get(1).get(TasksResources.MAX_COUNT_PARAM));
+    }
+
+    @Test
+    public void testListByTenantWithinOnePage() {
+        PagedTasksResources resources = new PagedTasksResources(50);
+
+        List<NamedRelatedResourceRep> tasks = resources.listByTenant(TasksResources.SYSTEM_TENANT);
+
+        assertEquals(50, tasks.size());
+        assertEquals(1, resources.requests.size());
+    }
+}